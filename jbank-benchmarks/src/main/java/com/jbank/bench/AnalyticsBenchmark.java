@@ -0,0 +1,183 @@
+package com.jbank.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jbank.analytics.AccountFilter;
+import com.jbank.analytics.AnalyticsStore;
+import com.jbank.analytics.Dimension;
+import com.jbank.analytics.Measure;
+
+/**
+ * Compares the portfolio queries answered by {@link AnalyticsStore} with the equivalent SQL: total
+ * deposits by account type, credit exposure by business type and the credit score distribution of
+ * personal credit line holders. Reports the store's full load and incremental refresh times and the
+ * median time of each query both ways.
+ *
+ * By default it starts a {@link LocalDatabase} and fills it with set-based inserts (N clients, one in
+ * five a business, two accounts each, one in ten with a joint owner); with --url it runs against an
+ * existing database, e.g. one loaded by {@link DatasetSeeder}.
+ *
+ * Usage: AnalyticsBenchmark [--clients N] [--iterations I] [--url jdbc-url --user name --password secret]
+ *
+ * @author juanf
+ */
+public class AnalyticsBenchmark {
+
+    private static final String DEPOSITS_SQL = "SELECT account_type, COUNT(*), SUM(balance) FROM accounts "
+            + "WHERE account_type IN ('CHECKING', 'SAVINGS') AND balance >= ? GROUP BY account_type";
+    private static final String EXPOSURE_SQL = "SELECT b.business_type, COUNT(*), SUM(a.balance), SUM(cl.credit_limit) "
+            + "FROM accounts a JOIN credit_lines cl ON cl.account_id = a.account_id "
+            + "JOIN client_accounts ca ON ca.account_id = a.account_id AND ca.ownership_type = 'PRIMARY' "
+            + "JOIN business_clients b ON b.customer_id = ca.customer_id WHERE a.balance >= ? GROUP BY b.business_type";
+    private static final String SCORES_SQL = "SELECT PERCENTILE_DISC(0.1) WITHIN GROUP (ORDER BY p.credit_score), "
+            + "PERCENTILE_DISC(0.5) WITHIN GROUP (ORDER BY p.credit_score), "
+            + "PERCENTILE_DISC(0.9) WITHIN GROUP (ORDER BY p.credit_score) "
+            + "FROM accounts a JOIN client_accounts ca ON ca.account_id = a.account_id AND ca.ownership_type = 'PRIMARY' "
+            + "JOIN personal_clients p ON p.customer_id = ca.customer_id WHERE a.account_type = 'CREDIT_LINE' AND a.balance >= ?";
+
+    // Every run gets a different minimum balance, at or below zero so the answer stays the same; H2
+    // would otherwise serve a repeated query on unchanged tables from its result cache
+    private interface Query {
+        void run(BigDecimal minBalance) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200000"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20"));
+
+        LocalDatabase database = null;
+        Connection connection;
+        if (options.containsKey("url")) {
+            connection = DriverManager.getConnection(options.get("url"), options.getOrDefault("user", "jbank"),
+                    options.getOrDefault("password", ""));
+        } else {
+            database = new LocalDatabase();
+            connection = DriverManager.getConnection(database.getUrl(), "jbank", "jbank");
+            long start = System.nanoTime();
+            seed(connection, clients);
+            System.out.printf("Seeded %d clients and %d accounts in %.1f s%n", clients, clients * 2,
+                    (System.nanoTime() - start) / 1e9);
+        }
+
+        try (Connection storeConnection = options.containsKey("url")
+                ? DriverManager.getConnection(options.get("url"), options.getOrDefault("user", "jbank"),
+                        options.getOrDefault("password", ""))
+                : DriverManager.getConnection(database.getUrl(), "jbank", "jbank")) {
+            AnalyticsStore store = new AnalyticsStore(storeConnection);
+            long start = System.nanoTime();
+            store.reload();
+            System.out.printf("Full load of %d accounts: %.1f ms%n", store.getAccountCount(), (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            store.refresh();
+            System.out.printf("Incremental refresh:     %.1f ms%n%n", (System.nanoTime() - start) / 1e6);
+
+            AccountFilter deposits = AccountFilter.all().accountTypes("CHECKING", "SAVINGS");
+            AccountFilter creditLines = AccountFilter.all().accountTypes("CREDIT_LINE").ownerClientType("PERSONAL");
+
+            System.out.printf("%-22s %12s %12s %10s%n", "query", "SQL (ms)", "store (ms)", "speedup");
+            compare("deposits-by-type", iterations, min -> sql(connection, DEPOSITS_SQL, min),
+                    min -> store.aggregate(AccountFilter.all().accountTypes("CHECKING", "SAVINGS").minBalance(min),
+                            Dimension.ACCOUNT_TYPE));
+            compare("exposure-by-business", iterations, min -> sql(connection, EXPOSURE_SQL, min),
+                    min -> store.aggregate(AccountFilter.all().accountTypes("CREDIT_LINE").ownerClientType("BUSINESS")
+                            .minBalance(min), Dimension.OWNER_BUSINESS_TYPE));
+            compare("credit-score-p10/50/90", iterations, min -> sql(connection, SCORES_SQL, min),
+                    min -> store.percentiles(AccountFilter.all().accountTypes("CREDIT_LINE").ownerClientType("PERSONAL")
+                            .minBalance(min), Measure.OWNER_CREDIT_SCORE, 10, 50, 90));
+
+            System.out.println();
+            System.out.println("deposits by type:     " + store.aggregate(deposits, Dimension.ACCOUNT_TYPE).stream()
+                    .map(total -> total.getGroup() + "=" + total.getBalance()).toList());
+            System.out.println("credit score p10/50/90: "
+                    + Arrays.toString(store.percentiles(creditLines, Measure.OWNER_CREDIT_SCORE, 10, 50, 90)));
+        } finally {
+            connection.close();
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private static void compare(String name, int iterations, Query sql, Query store) throws Exception {
+        double sqlMillis = median(sql, iterations);
+        double storeMillis = median(store, iterations);
+        System.out.printf("%-22s %12.2f %12.2f %9.0fx%n", name, sqlMillis, storeMillis, sqlMillis / storeMillis);
+    }
+
+    // Median of the timed runs, after as many untimed warm-up runs
+    private static double median(Query query, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            query.run(BigDecimal.valueOf(-i));
+        }
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            BigDecimal minBalance = BigDecimal.valueOf(-iterations - i);
+            long start = System.nanoTime();
+            query.run(minBalance);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[iterations / 2] / 1e6;
+    }
+
+    private static void sql(Connection connection, String sql, BigDecimal minBalance) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setBigDecimal(1, minBalance);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rs.getObject(1);
+                }
+            }
+        }
+    }
+
+    // Set-based inserts, so a few hundred thousand rows load in seconds (H2 only)
+    private static void seed(Connection connection, int clients) throws Exception {
+        String range = " FROM SYSTEM_RANGE(1, " + clients + ")";
+        String accounts = " FROM SYSTEM_RANGE(1, " + (clients * 2) + ")";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) "
+                    + "SELECT \"X\", CASE WHEN MOD(\"X\", 5) = 0 THEN 'BUSINESS' ELSE 'PERSONAL' END, "
+                    + "'5550000000', 'Address', 'Client ' || \"X\"" + range);
+            statement.execute("INSERT INTO personal_clients (customer_id, tax_id, credit_score, yearly_income, total_debt) "
+                    + "SELECT \"X\", 'T' || \"X\", 300 + MOD(\"X\" * 37, 551), 50000, 0" + range
+                    + " WHERE MOD(\"X\", 5) <> 0");
+            statement.execute("INSERT INTO business_clients (customer_id, ein, business_type, contact_person_name, "
+                    + "contact_person_title, total_asset_value, annual_revenue, annual_profit) "
+                    + "SELECT \"X\", 'E' || \"X\", CASE MOD(\"X\" / 5, 4) WHEN 0 THEN 'LLC' WHEN 1 THEN 'Corporation' "
+                    + "WHEN 2 THEN 'Partnership' ELSE 'Sole Proprietorship' END, 'Contact', 'Owner', 1, 1, 1" + range
+                    + " WHERE MOD(\"X\", 5) = 0");
+            statement.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) "
+                    + "SELECT \"X\", CASE MOD(\"X\", 3) WHEN 0 THEN 'CHECKING' WHEN 1 THEN 'SAVINGS' ELSE 'CREDIT_LINE' END, "
+                    + "'Account', MOD(\"X\" * 7919, 1000000) / 100.0" + accounts);
+            statement.execute("INSERT INTO credit_lines (account_id, credit_limit, interest_rate, min_payment_percentage) "
+                    + "SELECT account_id, 1000 + MOD(account_id * 13, 50) * 1000, 18, 2 FROM accounts "
+                    + "WHERE account_type = 'CREDIT_LINE'");
+            statement.execute("INSERT INTO client_accounts (customer_id, account_id, ownership_type) "
+                    + "SELECT (\"X\" + 1) / 2, \"X\", 'PRIMARY'" + accounts);
+            statement.execute("INSERT INTO client_accounts (customer_id, account_id, ownership_type) "
+                    + "SELECT MOD(\"X\" * 7, " + clients + ") + 1, \"X\", 'JOINT'" + accounts
+                    + " WHERE MOD(\"X\", 10) = 0 AND MOD(\"X\" * 7, " + clients + ") + 1 <> (\"X\" + 1) / 2");
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,381 @@
+package com.jbank.bench;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jbank.api.ApiServer;
+import com.jbank.api.ApiServerMain;
+import com.jbank.metrics.LatencyHistogram;
+import com.jbank.shard.ShardPool;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Sustained-throughput test of the JSON API on one node: starts an {@link ApiServer} in this process over
+ * a seeded {@link LocalDatabase} (or --url), then drives it from --connections closed-loop clients, each
+ * sending its next request as soon as the previous answer arrives on the same kept-alive connection.
+ *
+ * The clients speak HTTP/1.1 over plain sockets so the load generator costs little next to the server,
+ * and count every connection they had to open: with keep-alive working that is one per client for the
+ * whole run. Reports requests/second, p50/p99/p99.9 latency per request type, 409/422 rejections and
+ * errors.
+ *
+ * Usage: ApiLoadTest [--connections C] [--duration SEC] [--warmup SEC] [--threads SERVER_WORKERS]
+ *        [--mix op=weight,...] [--clients N] [--accounts M] [--seed S] [--url jdbc-url --user name --password secret]
+ *
+ * @author juanf
+ */
+public class ApiLoadTest {
+
+    static final String DEFAULT_MIX = "get-account=35,get-client=20,client-accounts=15,deposit=15,withdraw=15";
+
+    // A request type: method, path for the picked IDs and body
+    private interface RequestType {
+        String request(SplittableRandom random);
+    }
+
+    private final String host;
+    private final int port;
+    private final String[] names;
+    private final RequestType[] types;
+    private final int[] cumulativeWeights;
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] rejected;
+    private final LongAdder[] errors;
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+    private volatile String firstError;
+
+    ApiLoadTest(String host, int port, BenchDataset dataset, Map<String, Integer> mix) {
+        this.host = host;
+        this.port = port;
+        Map<String, RequestType> available = requestTypes(dataset);
+        List<String> selected = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            if (!available.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown request in mix: " + entry.getKey());
+            }
+            if (entry.getValue() > 0) {
+                selected.add(entry.getKey());
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("The request mix is empty.");
+        }
+        names = selected.toArray(new String[0]);
+        types = new RequestType[names.length];
+        cumulativeWeights = new int[names.length];
+        latencies = new LatencyHistogram[names.length];
+        rejected = new LongAdder[names.length];
+        errors = new LongAdder[names.length];
+        int weight = 0;
+        for (int i = 0; i < names.length; i++) {
+            types[i] = available.get(names[i]);
+            weight += mix.get(names[i]);
+            cumulativeWeights[i] = weight;
+            latencies[i] = new LatencyHistogram();
+            rejected[i] = new LongAdder();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int connections = Integer.parseInt(options.getOrDefault("connections", "32"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()))));
+        Map<String, Integer> mix = LoadGenerator.parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "2"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        if (connections <= 0 || duration <= 0) {
+            throw new IllegalArgumentException("Connections and duration must be positive.");
+        }
+
+        ApiServer.configureConnections(30, connections * 2);
+        LocalDatabase database = null;
+        if (options.containsKey("url")) {
+            LocalDatabase.configure(options.get("url"), options.getOrDefault("user", "jbank"),
+                    options.getOrDefault("password", ""));
+        } else {
+            database = new LocalDatabase();
+            database.configure();
+        }
+
+        ApiServer server = null;
+        ShardPool workerConnections = null;
+        try {
+            long start = System.nanoTime();
+            BenchDataset dataset = BenchDataset.seed(clients, accounts, 0, 0, seed);
+            System.out.printf("Seeded %d clients, %d accounts in %.1f s%n", clients, dataset.getAccountIds().size(),
+                    (System.nanoTime() - start) / 1e9);
+
+            // Each worker on a connection of its own, as ApiServerMain runs them
+            workerConnections = ConnectionHandler.openPool("api", threads + 1);
+            server = new ApiServer(ApiServerMain.workerRoutes(workerConnections), ApiServer.DEFAULT_MAX_BODY_BYTES);
+            server.start(0, threads, 1024);
+
+            new ApiLoadTest("localhost", server.getPort(), dataset, mix).run(connections, warmup, duration, seed);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+            if (workerConnections != null) {
+                workerConnections.close();
+            }
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private Map<String, RequestType> requestTypes(BenchDataset dataset) {
+        List<Integer> clientIds = dataset.getClientIds();
+        List<Integer> checkingIds = dataset.getCheckingAccountIds();
+        Map<String, RequestType> available = new LinkedHashMap<>();
+        available.put("get-account", random -> get("/checking-accounts/" + pick(checkingIds, random)));
+        available.put("get-client", random -> get("/personal-clients/" + pick(clientIds, random)));
+        available.put("client-accounts", random -> get("/personal-clients/" + pick(clientIds, random) + "/accounts"));
+        available.put("deposit", random -> post("/checking-accounts/" + pick(checkingIds, random) + "/deposits",
+                "{\"amount\":25.00}"));
+        available.put("withdraw", random -> post("/checking-accounts/" + pick(checkingIds, random) + "/withdrawals",
+                "{\"amount\":20.00}"));
+        return available;
+    }
+
+    private static int pick(List<Integer> ids, SplittableRandom random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n";
+    }
+
+    private String post(String path, String body) {
+        return "POST " + path + " HTTP/1.1\r\nHost: " + host + "\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.length() + "\r\n\r\n" + body;
+    }
+
+    private void run(int connections, int warmupSeconds, int durationSeconds, long seed) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            SplittableRandom random = new SplittableRandom(seed + c);
+            Thread thread = new Thread(() -> clientLoop(random), "api-load-" + c);
+            thread.setDaemon(true);
+            clients.add(thread);
+            thread.start();
+        }
+        Thread.sleep(warmupSeconds * 1000L);
+        long openedBefore = connectionsOpened.get();
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(durationSeconds * 1000L);
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+        long opened = connectionsOpened.get() - openedBefore;
+        running = false;
+        for (Thread thread : clients) {
+            thread.join(5000);
+        }
+        report(connections, elapsed, opened);
+    }
+
+    private void clientLoop(SplittableRandom random) {
+        Connection connection = null;
+        while (running) {
+            int type = pick(random);
+            byte[] request = types[type].request(random).getBytes(StandardCharsets.US_ASCII);
+            long start = System.nanoTime();
+            int status;
+            try {
+                if (connection == null) {
+                    connection = new Connection(host, port);
+                    connectionsOpened.incrementAndGet();
+                }
+                status = connection.exchange(request);
+                if (connection.isClosedByServer()) {
+                    connection.close();
+                    connection = null;
+                }
+            } catch (IOException e) {
+                status = -1;
+                if (firstError == null) {
+                    firstError = e.toString();
+                }
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+            }
+            if (measuring) {
+                latencies[type].record(System.nanoTime() - start);
+                if (status == 409 || status == 422) {
+                    rejected[type].increment();
+                } else if (status < 200 || status >= 300) {
+                    errors[type].increment();
+                    if (firstError == null) {
+                        firstError = names[type] + " answered " + status;
+                    }
+                }
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    private int pick(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private void report(int connections, long elapsedNanos, long opened) {
+        long total = 0;
+        for (LatencyHistogram latency : latencies) {
+            total += latency.getCount();
+        }
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d connections, %.0f requests/s over %.0f s, %d connections opened while measuring%n",
+                connections, total / seconds, seconds, opened);
+        System.out.printf("%-16s %9s %9s %8s %8s %10s %10s %10s %10s%n", "request", "count", "req/s", "rejected",
+                "errors", "p50 (us)", "p99 (us)", "p999 (us)", "max (us)");
+        for (int i = 0; i < names.length; i++) {
+            LatencyHistogram.Snapshot snapshot = latencies[i].snapshot();
+            System.out.printf("%-16s %9d %9.0f %8d %8d %10.1f %10.1f %10.1f %10.1f%n", names[i], snapshot.getCount(),
+                    snapshot.getCount() / seconds, rejected[i].sum(), errors[i].sum(), micros(snapshot, 0.50),
+                    micros(snapshot, 0.99), micros(snapshot, 0.999), snapshot.getMax() / 1e3);
+        }
+        if (firstError != null) {
+            System.out.println("First error: " + firstError);
+        }
+    }
+
+    private static double micros(LatencyHistogram.Snapshot snapshot, double quantile) {
+        return snapshot.getCount() == 0 ? 0.0 : snapshot.getValueAtQuantile(quantile) / 1e3;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * One kept-alive HTTP/1.1 connection. Reads the status line and headers, then the body by
+     * Content-Length or chunked encoding, and discards it.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        private boolean closedByServer;
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 5000);
+            socket.setSoTimeout(30_000);
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+        }
+
+        int exchange(byte[] request) throws IOException {
+            out.write(request);
+            out.flush();
+            String statusLine = readLine();
+            if (statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.1 ")) {
+                throw new IOException("Bad status line: " + statusLine);
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long length = -1;
+            boolean chunked = false;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                int colon = header.indexOf(':');
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    closedByServer = value.equalsIgnoreCase("close");
+                }
+            }
+            if (chunked) {
+                for (long size = Long.parseLong(readLine().trim(), 16); size > 0; size = Long.parseLong(readLine().trim(), 16)) {
+                    skip(size);
+                    readLine();
+                }
+                readLine();
+            } else if (length > 0) {
+                skip(length);
+            }
+            return status;
+        }
+
+        boolean isClosedByServer() {
+            return closedByServer;
+        }
+
+        private String readLine() throws IOException {
+            line.reset();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        private void skip(long bytes) throws IOException {
+            while (bytes > 0) {
+                long skipped = in.skip(bytes);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException("Connection closed mid-body");
+                    }
+                    skipped = 1;
+                }
+                bytes -= skipped;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+    }
+}
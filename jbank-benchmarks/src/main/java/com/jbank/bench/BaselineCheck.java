@@ -0,0 +1,88 @@
+package com.jbank.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH CSV result file against the checked-in baseline and fails when a benchmark's
+ * primary score (time per operation) or allocation rate per operation grew by more than the tolerance,
+ * and by more than the two runs' score errors (99.9% confidence) together, so a difference the runs
+ * cannot tell apart from noise is not reported as a regression.
+ *
+ * Usage: BaselineCheck baseline.csv current.csv [tolerancePercent]
+ *
+ * @author juanf
+ */
+public class BaselineCheck {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 15.0;
+    private static final String ALLOCATION_SUFFIX = ":gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <baseline.csv> <current.csv> [tolerancePercent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+        Map<String, double[]> baseline = readScores(Path.of(args[0]));
+        Map<String, double[]> current = readScores(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] previous = baseline.get(entry.getKey());
+            double after = entry.getValue()[0];
+            double afterError = entry.getValue()[1];
+            if (previous == null) {
+                System.out.printf("NEW        %-70s %12.3f +/- %-10.3f%n", entry.getKey(), after, afterError);
+                continue;
+            }
+            double before = previous[0];
+            double beforeError = previous[1];
+            double change = before == 0 ? (after == 0 ? 0 : 100) : (after - before) / before * 100;
+            // Allocation of a few bytes per op is noise from the harness, not the code under test
+            boolean allocation = entry.getKey().endsWith(ALLOCATION_SUFFIX);
+            boolean regressed = change > tolerance && after - before > beforeError + afterError
+                    && (!allocation || after - before > 8);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-70s %12.3f +/- %-10.3f -> %12.3f +/- %-10.3f (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "OK", entry.getKey(), before, beforeError, after, afterError, change);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%% and their score error%n", regressions,
+                    tolerance);
+            System.exit(1);
+        }
+    }
+
+    // Score and score error, keyed by benchmark name plus the secondary metric, if any; only time and
+    // allocation rows are kept. JMH reports no error (NaN) for a single sample, which is taken as 0.
+    private static Map<String, double[]> readScores(Path file) throws IOException {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            if (columns.length < 6) {
+                continue;
+            }
+            String benchmark = unquote(columns[0]);
+            String unit = unquote(columns[columns.length - 1]);
+            if (unit.endsWith("/op") || benchmark.endsWith(ALLOCATION_SUFFIX)) {
+                double error = Double.parseDouble(unquote(columns[5]));
+                scores.put(benchmark, new double[] { Double.parseDouble(unquote(columns[4])),
+                        Double.isNaN(error) ? 0 : error });
+            }
+        }
+        return scores;
+    }
+
+    private static String unquote(String value) {
+        return value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+}
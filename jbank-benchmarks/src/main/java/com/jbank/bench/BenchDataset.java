@@ -0,0 +1,198 @@
+package com.jbank.bench;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.jbank.model.BusinessClient;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Seeds personal clients and their accounts through the service layer, and keeps the generated IDs
+ * for the benchmark to pick from. Each client's first account is a checking account; the rest rotate
+ * through savings and credit lines. A share of the accounts also gets a second, JOINT owner.
+ *
+ * Business clients, if any, each get one checking account.
+ *
+ * A separate pool of clients whose accounts all have a zero balance can be deleted by the benchmark.
+ *
+ * @author juanf
+ */
+public class BenchDataset {
+
+    private final List<Integer> clientIds = new ArrayList<>();
+    private final List<String> taxIds = new ArrayList<>();
+    private final List<Integer> businessClientIds = new ArrayList<>();
+    private final List<String> eins = new ArrayList<>();
+    private final List<Integer> checkingAccountIds = new ArrayList<>();
+    private final List<Integer> creditLineIds = new ArrayList<>();
+    private final List<Integer> accountIds = new ArrayList<>();
+    private final List<Integer> deletableClientIds = new ArrayList<>();
+    private int nextClient;
+    private int nextBusiness;
+
+    public static BenchDataset seed(int clients, int accountsPerClient, int jointPercent, int deletableClients,
+            long randomSeed) {
+        return seed(clients, 0, accountsPerClient, jointPercent, deletableClients, randomSeed);
+    }
+
+    /**
+     * @param clients Number of personal clients in the main pool
+     * @param businessClients Number of business clients
+     * @param accountsPerClient Accounts opened by each client
+     * @param jointPercent Percentage of accounts given a second owner
+     * @param deletableClients Clients with empty accounts, for the deletion benchmark
+     */
+    public static BenchDataset seed(int clients, int businessClients, int accountsPerClient, int jointPercent,
+            int deletableClients, long randomSeed) {
+        BenchDataset dataset = new BenchDataset();
+        Random random = new Random(randomSeed);
+        PersonalClientService clientService = new PersonalClientService();
+        BusinessClientService businessService = new BusinessClientService();
+        CheckingAccountService checkingService = new CheckingAccountService();
+        SavingsAccountService savingsService = new SavingsAccountService();
+        CreditLineService creditLineService = new CreditLineService();
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO();
+
+        for (int c = 0; c < clients; c++) {
+            int clientId = dataset.createClient(clientService);
+            for (int a = 0; a < accountsPerClient; a++) {
+                Integer accountId;
+                if (a == 0) {
+                    double balance = 100 + random.nextInt(5_000);
+                    accountId = checkingService.create(
+                            new CheckingAccount(clientId, 0, balance, "Checking", 25.00, 500.00), clientId);
+                    dataset.checkingAccountIds.add(accountId);
+                } else if (a % 2 == 1) {
+                    double balance = 100 + random.nextInt(10_000);
+                    accountId = savingsService.create(
+                            new SavingsAccount(clientId, 0, balance, "Savings", 2.5, 6), clientId);
+                } else {
+                    accountId = creditLineService.create(
+                            new CreditLine(clientId, 0, 0.0, "Credit", 5_000.00, 18.0, 2.0), clientId);
+                    if (accountId != null) {
+                        dataset.creditLineIds.add(accountId);
+                    }
+                }
+                if (accountId == null) {
+                    throw new IllegalStateException("Failed to seed an account for client " + clientId);
+                }
+                dataset.accountIds.add(accountId);
+            }
+        }
+
+        for (int b = 0; b < businessClients; b++) {
+            int clientId = dataset.createBusiness(businessService);
+            Integer accountId = checkingService.create(new CheckingAccount(clientId, 0,
+                    1_000 + random.nextInt(50_000), "Operating", 25.00, 500.00), clientId);
+            if (accountId == null) {
+                throw new IllegalStateException("Failed to seed an account for business " + clientId);
+            }
+            dataset.checkingAccountIds.add(accountId);
+            dataset.accountIds.add(accountId);
+        }
+
+        // Second owners are drawn from the clients seeded before
+        for (int accountId : dataset.accountIds) {
+            if (random.nextInt(100) < jointPercent && clients > 1) {
+                int owner = dataset.clientIds.get(random.nextInt(clients));
+                try {
+                    clientAccountDAO.assignAccountToClient(owner, accountId, "JOINT");
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Failed to add a joint owner to account " + accountId, e);
+                }
+            }
+        }
+
+        for (int c = 0; c < deletableClients; c++) {
+            int clientId = dataset.createClient(clientService);
+            dataset.clientIds.remove(dataset.clientIds.size() - 1);
+            dataset.taxIds.remove(dataset.taxIds.size() - 1);
+            for (int a = 0; a < accountsPerClient; a++) {
+                checkingService.create(new CheckingAccount(clientId, 0, 0.0, "Closing", 25.00, 500.00), clientId);
+            }
+            dataset.deletableClientIds.add(clientId);
+        }
+        return dataset;
+    }
+
+    private int createClient(PersonalClientService clientService) {
+        int n = nextClient++;
+        String taxId = String.format("%09d", 100_000_000 + n);
+        Integer clientId = clientService.create(new PersonalClient(0, "Bench Client " + letters(n),
+                "100 Main St", String.format("555%07d", n % 10_000_000), taxId, 700, 60_000.00, 5_000.00));
+        if (clientId == null) {
+            throw new IllegalStateException("Failed to seed client " + n);
+        }
+        clientIds.add(clientId);
+        // Stored formatted, which is also what a login looks up
+        taxIds.add(taxId.substring(0, 3) + "-" + taxId.substring(3, 5) + "-" + taxId.substring(5));
+        return clientId;
+    }
+
+    private int createBusiness(BusinessClientService businessService) {
+        int n = nextBusiness++;
+        String ein = String.format("%09d", 200_000_000 + n);
+        Integer clientId = businessService.create(new BusinessClient(0, "Bench Business " + letters(n),
+                "200 Market St", String.format("556%07d", n % 10_000_000), ein, "LLC", "Bench Contact", "Owner",
+                250_000.00, 1_000_000.00, 100_000.00));
+        if (clientId == null) {
+            throw new IllegalStateException("Failed to seed business " + n);
+        }
+        businessClientIds.add(clientId);
+        eins.add(ein.substring(0, 2) + "-" + ein.substring(2));
+        return clientId;
+    }
+
+    // Client names may not contain digits
+    private static String letters(int n) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('A' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return name.toString();
+    }
+
+    public List<Integer> getClientIds() {
+        return clientIds;
+    }
+
+    public List<String> getTaxIds() {
+        return taxIds;
+    }
+
+    public List<Integer> getBusinessClientIds() {
+        return businessClientIds;
+    }
+
+    public List<String> getEins() {
+        return eins;
+    }
+
+    public List<Integer> getCheckingAccountIds() {
+        return checkingAccountIds;
+    }
+
+    public List<Integer> getCreditLineIds() {
+        return creditLineIds;
+    }
+
+    public List<Integer> getAccountIds() {
+        return accountIds;
+    }
+
+    public List<Integer> getDeletableClientIds() {
+        return deletableClientIds;
+    }
+}
@@ -0,0 +1,104 @@
+package com.jbank.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jbank.model.BusinessClient;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.entities.BusinessClientEntity;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Entity to model to entity round trips through each service's conversion methods.
+ * The services are built without DAOs; conversion never touches the database.
+ *
+ * @author juanf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    private CheckingAccountService checkingService;
+    private SavingsAccountService savingsService;
+    private CreditLineService creditLineService;
+    private PersonalClientService personalClientService;
+    private BusinessClientService businessClientService;
+
+    private CheckingAccountEntity checkingEntity;
+    private SavingsAccountEntity savingsEntity;
+    private CreditLineEntity creditLineEntity;
+    private PersonalClientEntity personalClientEntity;
+    private BusinessClientEntity businessClientEntity;
+
+    @Setup
+    public void setUp() {
+        checkingService = new CheckingAccountService(null, null);
+        savingsService = new SavingsAccountService(null, null);
+        creditLineService = new CreditLineService(null, null);
+        personalClientService = new PersonalClientService(null, null);
+        businessClientService = new BusinessClientService(null, null);
+
+        checkingEntity = new CheckingAccountEntity(10, 1, 500.00, 25.00, 500.00, "Bench Checking");
+        savingsEntity = new SavingsAccountEntity(11, 1, 1_000.00, 3.0, 6, 2, "Bench Savings");
+        creditLineEntity = new CreditLineEntity(12, 1, 250.00, 5_000.00, 15.0, 2.0, "Bench Credit");
+        personalClientEntity = new PersonalClientEntity(1, "5551234567", "1200 Main St", "Jane Smith",
+                "123456789", 720, 85_000.00, 12_000.00);
+        businessClientEntity = new BusinessClientEntity(2, "5559876543", "500 Market St", "Acme Tools",
+                "987654321", "LLC", "John Doe", "CEO", 1_000_000.00, 500_000.00, 50_000.00);
+    }
+
+    @Benchmark
+    public CheckingAccountEntity checkingRoundTrip() {
+        CheckingAccount model = checkingService.convertEntityToModel(checkingEntity).orElseThrow();
+        return checkingService.convertModelToEntity(model).orElseThrow();
+    }
+
+    @Benchmark
+    public SavingsAccountEntity savingsRoundTrip() {
+        SavingsAccount model = savingsService.convertEntityToModel(savingsEntity).orElseThrow();
+        return savingsService.convertModelToEntity(model).orElseThrow();
+    }
+
+    @Benchmark
+    public CreditLineEntity creditLineRoundTrip() {
+        CreditLine model = creditLineService.convertEntityToModel(creditLineEntity).orElseThrow();
+        return creditLineService.convertModelToEntity(model).orElseThrow();
+    }
+
+    @Benchmark
+    public PersonalClientEntity personalClientRoundTrip() {
+        PersonalClient model = personalClientService.convertEntityToModel(personalClientEntity).orElseThrow();
+        return personalClientService.convertModelToEntity(model).orElseThrow();
+    }
+
+    @Benchmark
+    public BusinessClientEntity businessClientRoundTrip() {
+        BusinessClient model = businessClientService.convertEntityToModel(businessClientEntity).orElseThrow();
+        return businessClientService.convertModelToEntity(model).orElseThrow();
+    }
+}
@@ -0,0 +1,130 @@
+package com.jbank.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver that wraps another one to count database round trips: every statement execution,
+ * batch execution, commit and rollback. URLs are the wrapped URL with a "jdbc:counting:" prefix,
+ * e.g. jdbc:counting:jdbc:postgresql://localhost:5432/jbank.
+ *
+ * @author juanf
+ */
+public class CountingDriver implements Driver {
+
+    public static final String PREFIX = "jdbc:counting:";
+
+    private static final LongAdder ROUND_TRIPS = new LongAdder();
+
+    static {
+        try {
+            DriverManager.registerDriver(new CountingDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static long getRoundTrips() {
+        return ROUND_TRIPS.sum();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Connection connection = DriverManager.getConnection(url.substring(PREFIX.length()), info);
+        return (Connection) Proxy.newProxyInstance(CountingDriver.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new CountingConnection(connection));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Wraps the statements a connection creates, and counts transaction ends
+    private static final class CountingConnection implements InvocationHandler {
+        private final Connection connection;
+
+        CountingConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("commit") || name.equals("rollback")) {
+                ROUND_TRIPS.increment();
+            }
+            Object result = CountingDriver.invoke(connection, method, args);
+            if (result instanceof CallableStatement) {
+                return wrap(result, CallableStatement.class);
+            }
+            if (result instanceof PreparedStatement) {
+                return wrap(result, PreparedStatement.class);
+            }
+            if (result instanceof Statement) {
+                return wrap(result, Statement.class);
+            }
+            return result;
+        }
+
+        private static Object wrap(Object statement, Class<?> type) {
+            return Proxy.newProxyInstance(CountingDriver.class.getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            ROUND_TRIPS.increment();
+                        }
+                        return CountingDriver.invoke(statement, method, args);
+                    });
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.jbank.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import com.jbank.bench.SyntheticDataset.Table;
+import com.jbank.bench.SyntheticDataset.TableSink;
+import com.jbank.id.IdSequence;
+
+/**
+ * Loads a {@link SyntheticDataset} at bulk speed, either as CSV files plus a psql script, or straight
+ * into PostgreSQL with COPY.
+ *
+ * CSV mode (--out DIR) writes one file per table in a single generation pass, and load.sql, which loads
+ * them with \copy in one transaction and moves the ID sequences past the generated IDs.
+ *
+ * COPY mode (--url jdbc:postgresql://...) loads the tables phase by phase, so foreign keys always point
+ * at committed rows: one generation pass per phase, streaming every table of the phase into its own
+ * COPY on its own connection. Generated IDs start after the highest existing ones.
+ *
+ * Usage: DatasetSeeder (--out DIR | --url jdbc-url --user name --password secret) [--clients N]
+ *        [--business-percent P] [--accounts-per-client 1:40,2:35,3:20,4:5]
+ *        [--account-types checking=50,savings=30,credit=20] [--joint J] [--balance-median AMOUNT]
+ *        [--balance-sigma S] [--seed S] [--first-client-id ID --first-account-id ID]
+ *
+ * @author juanf
+ */
+public class DatasetSeeder {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("out") == options.containsKey("url")) {
+            throw new IllegalArgumentException("Pass either --out DIR or --url jdbc:postgresql://...");
+        }
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000000"));
+        int businessPercent = Integer.parseInt(options.getOrDefault("business-percent", "10"));
+        int[] accountsPerClient = parseAccountsPerClient(options.getOrDefault("accounts-per-client", "1:40,2:35,3:20,4:5"));
+        int[] accountTypes = parseAccountTypes(options.getOrDefault("account-types", "checking=50,savings=30,credit=20"));
+        int joint = Integer.parseInt(options.getOrDefault("joint", "10"));
+        double balanceMedian = Double.parseDouble(options.getOrDefault("balance-median", "2500"));
+        double balanceSigma = Double.parseDouble(options.getOrDefault("balance-sigma", "1.2"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        long start = System.nanoTime();
+        Map<Table, Long> rows;
+        if (options.containsKey("out")) {
+            SyntheticDataset dataset = new SyntheticDataset(clients, businessPercent, accountsPerClient, accountTypes,
+                    joint, balanceMedian, balanceSigma, seed,
+                    Integer.parseInt(options.getOrDefault("first-client-id", "1")),
+                    Integer.parseInt(options.getOrDefault("first-account-id", "1")));
+            rows = writeCsv(dataset, Paths.get(options.get("out")));
+        } else {
+            String url = options.get("url");
+            String user = options.getOrDefault("user", "jbank");
+            String password = options.getOrDefault("password", "");
+            int firstClientId;
+            int firstAccountId;
+            try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                firstClientId = Integer.parseInt(options.getOrDefault("first-client-id",
+                        String.valueOf(nextId(connection, "clients", "customer_id"))));
+                firstAccountId = Integer.parseInt(options.getOrDefault("first-account-id",
+                        String.valueOf(nextId(connection, "accounts", "account_id"))));
+            }
+            SyntheticDataset dataset = new SyntheticDataset(clients, businessPercent, accountsPerClient, accountTypes,
+                    joint, balanceMedian, balanceSigma, seed, firstClientId, firstAccountId);
+            rows = copy(dataset, url, user, password);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = 0;
+        for (Map.Entry<Table, Long> entry : rows.entrySet()) {
+            System.out.printf("%-18s %,14d rows%n", entry.getKey().getTableName(), entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.printf("Loaded %,d rows in %.1f s (%,.0f rows/s)%n", total, seconds, total / seconds);
+    }
+
+    // One pass, one file per table, plus the psql script that loads them
+    static Map<Table, Long> writeCsv(SyntheticDataset dataset, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<Table, TableSink> sinks = new EnumMap<>(Table.class);
+        try {
+            for (Table table : Table.values()) {
+                sinks.put(table, new FileSink(directory.resolve(table.getTableName() + ".csv"), table));
+            }
+            Map<Table, Long> rows = dataset.generate(sinks);
+            writeLoadScript(directory.resolve("load.sql"));
+            return rows;
+        } finally {
+            closeAll(sinks.values());
+        }
+    }
+
+    private static void writeLoadScript(Path path) throws IOException {
+        StringBuilder script = new StringBuilder();
+        script.append("-- Generated by DatasetSeeder; run from this directory: psql -f load.sql\n");
+        script.append("BEGIN;\n");
+        for (Table table : Table.values()) {
+            script.append("\\copy ").append(table.getTableName()).append(" (").append(table.getColumns())
+                    .append(") FROM '").append(table.getTableName()).append(".csv' WITH (FORMAT csv, HEADER true)\n");
+        }
+        for (IdSequence sequence : IdSequence.values()) {
+            script.append("SELECT setval('").append(sequence.getSequenceName()).append("', (SELECT MAX(")
+                    .append(sequence.getColumn()).append(") FROM ").append(sequence.getTable()).append("));\n");
+        }
+        script.append("COMMIT;\n");
+        script.append("ANALYZE;\n");
+        Files.writeString(path, script, StandardCharsets.UTF_8);
+    }
+
+    // Phase by phase, each table of a phase streamed into its own COPY
+    static Map<Table, Long> copy(SyntheticDataset dataset, String url, String user, String password)
+            throws IOException, SQLException {
+        Map<Table, Long> rows = new EnumMap<>(Table.class);
+        for (int phase = 1; phase <= 3; phase++) {
+            Map<Table, TableSink> sinks = new EnumMap<>(Table.class);
+            try {
+                for (Table table : Table.values()) {
+                    if (table.getPhase() == phase) {
+                        sinks.put(table, new CopySink(DriverManager.getConnection(url, user, password), table));
+                    }
+                }
+                rows.putAll(dataset.generate(sinks));
+            } catch (IOException | SQLException | RuntimeException e) {
+                // Nothing of a failed phase is committed
+                for (TableSink sink : sinks.values()) {
+                    ((CopySink) sink).cancel();
+                }
+                throw e;
+            } finally {
+                closeAll(sinks.values());
+            }
+        }
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+                Statement statement = connection.createStatement()) {
+            for (IdSequence sequence : IdSequence.values()) {
+                sequence.restartAfterMaxId(connection);
+            }
+            statement.execute("ANALYZE");
+        }
+        return rows;
+    }
+
+    private static int nextId(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Closes every sink, reporting the first failure
+    private static void closeAll(Iterable<TableSink> sinks) throws IOException {
+        IOException failure = null;
+        for (TableSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // e.g. 1:40,2:35,3:20,4:5 - weight of a client having 1, 2, 3 and 4 accounts
+    static int[] parseAccountsPerClient(String value) {
+        Map<Integer, Integer> weights = new LinkedHashMap<>();
+        int max = 0;
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected accounts:weight, got " + entry);
+            }
+            int accounts = Integer.parseInt(parts[0].trim());
+            if (accounts < 1) {
+                throw new IllegalArgumentException("Every client has at least one account: " + entry);
+            }
+            weights.put(accounts, Integer.parseInt(parts[1].trim()));
+            max = Math.max(max, accounts);
+        }
+        int[] result = new int[max];
+        weights.forEach((accounts, weight) -> result[accounts - 1] = weight);
+        return result;
+    }
+
+    // e.g. checking=50,savings=30,credit=20
+    static int[] parseAccountTypes(String value) {
+        List<String> names = List.of("checking", "savings", "credit");
+        int[] result = new int[3];
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int index = parts.length == 2 ? names.indexOf(parts[0].trim()) : -1;
+            if (index < 0) {
+                throw new IllegalArgumentException("Expected checking|savings|credit=weight, got " + entry);
+            }
+            result[index] = Integer.parseInt(parts[1].trim());
+        }
+        return result;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    // CSV file with a header row
+    private static final class FileSink implements TableSink {
+        private final Writer writer;
+
+        FileSink(Path path, Table table) throws IOException {
+            writer = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 16);
+            writer.write(table.getColumns().replace(" ", ""));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(CharSequence rows) throws IOException {
+            writer.append(rows);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    // COPY ... FROM STDIN on a dedicated connection; the rows commit when the sink is closed
+    private static final class CopySink implements TableSink {
+        private final Connection connection;
+        private final CopyIn copy;
+
+        CopySink(Connection connection, Table table) throws SQLException {
+            this.connection = connection;
+            try {
+                copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + table.getTableName()
+                        + " (" + table.getColumns() + ") FROM STDIN WITH (FORMAT csv)");
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(CharSequence rows) throws IOException {
+            byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copy.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IOException("COPY failed", e);
+            }
+        }
+
+        // Drops the rows sent so far
+        void cancel() {
+            try {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            } catch (SQLException e) {
+                // The connection is closed next either way
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (connection) {
+                if (copy.isActive()) {
+                    copy.endCopy();
+                }
+            } catch (SQLException e) {
+                throw new IOException("COPY failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.jbank.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.model.CheckingAccount;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Compares throughput and latency of deposits written with one autocommit transaction each against
+ * group commit, at increasing numbers of concurrent callers. By default it starts a {@link LocalDatabase};
+ * with --url it runs against an existing database that already has the schema.
+ * Each caller deposits into its own account, so neither mode sees write conflicts.
+ *
+ * Usage: GroupCommitBenchmark [--seconds S] [--connections C] [--url jdbc-url --user name --password secret]
+ *
+ * @author juanf
+ */
+public class GroupCommitBenchmark {
+    private static final int[] CALLER_LEVELS = { 1, 8, 64, 512 };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        int poolSize = Integer.parseInt(options.getOrDefault("connections", "16"));
+
+        LocalDatabase database = null;
+        if (options.containsKey("url")) {
+            LocalDatabase.configure(options.get("url"), options.getOrDefault("user", "jbank"),
+                    options.getOrDefault("password", ""));
+        } else {
+            database = new LocalDatabase();
+            database.configure();
+        }
+        try {
+            compare(seconds, poolSize);
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private static void compare(int seconds, int poolSize) throws Exception {
+        // Seeding, model loading and the group-commit service's reads use this connection
+        Connection setup = ConnectionHandler.openConnection();
+        CheckingAccountDAO setupDAO = new CheckingAccountDAO(setup);
+        List<Integer> accountIds = createAccounts(setupDAO, CALLER_LEVELS[CALLER_LEVELS.length - 1]);
+        System.out.printf("%-12s %8s %12s %10s %10s%n", "mode", "callers", "ops/s", "p50 (ms)", "p99 (ms)");
+
+        for (int callers : CALLER_LEVELS) {
+            // Autocommit: callers share a fixed set of connections, one transaction per deposit
+            List<Connection> connections = new ArrayList<>();
+            List<CheckingAccountService> services = new ArrayList<>();
+            for (int i = 0; i < Math.min(poolSize, callers); i++) {
+                Connection connection = ConnectionHandler.openConnection();
+                connections.add(connection);
+                services.add(new CheckingAccountService(new CheckingAccountDAO(connection), new ClientAccountDAO(connection)));
+            }
+            report("autocommit", callers, run(callers, seconds, accountIds, setupDAO, i -> services.get(i % services.size())));
+            for (Connection connection : connections) {
+                connection.close();
+            }
+
+            // Group commit: every caller goes through one writer and one connection
+            try (GroupCommitExecutor executor = new GroupCommitExecutor()) {
+                CheckingAccountService service = new CheckingAccountService(setupDAO, new ClientAccountDAO(setup));
+                service.setGroupCommitExecutor(executor);
+                report("group", callers, run(callers, seconds, accountIds, setupDAO, i -> service));
+                System.out.printf("%-12s %8s average group size %.1f%n", "", "",
+                        (double) executor.getWriteCount() / Math.max(1, executor.getCommitCount()));
+            }
+        }
+        setup.close();
+    }
+
+    private interface ServiceForCaller {
+        CheckingAccountService get(int caller);
+    }
+
+    private static Result run(int callers, int seconds, List<Integer> accountIds, CheckingAccountDAO setupDAO,
+            ServiceForCaller services) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(callers);
+        long[][] latencies = new long[callers][];
+        int[] counts = new int[callers];
+
+        for (int c = 0; c < callers; c++) {
+            int caller = c;
+            Thread thread = new Thread(() -> {
+                CheckingAccountService service = services.get(caller);
+                CheckingAccount account = load(setupDAO, accountIds.get(caller));
+                long[] samples = new long[1024];
+                int n = 0;
+                while (!stop.get()) {
+                    long start = System.nanoTime();
+                    if (!service.deposit(account, 1.00)) {
+                        break;
+                    }
+                    if (n == samples.length) {
+                        samples = Arrays.copyOf(samples, n * 2);
+                    }
+                    samples[n++] = System.nanoTime() - start;
+                }
+                latencies[caller] = samples;
+                counts[caller] = n;
+                done.countDown();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        stop.set(true);
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < callers; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(total * 1e9 / elapsed, percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static void report(String mode, int callers, Result result) {
+        System.out.printf("%-12s %8d %12.0f %10.2f %10.2f%n", mode, callers, result.opsPerSecond(),
+                result.p50Millis(), result.p99Millis());
+    }
+
+    private static List<Integer> createAccounts(CheckingAccountDAO dao, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(dao.create(new CheckingAccountEntity(0, 0, 0.00, 0.00, 0.00, "Bench " + i)));
+        }
+        return ids;
+    }
+
+    private static CheckingAccount load(CheckingAccountDAO dao, int accountId) {
+        try {
+            CheckingAccountEntity entity = dao.getByID(accountId).orElseThrow();
+            return new CheckingAccount(0, entity.getAccountID(), entity.getBalance(), entity.getAccountName(),
+                    entity.getOverdraftFee(), entity.getOverdraftLimit());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Result(double opsPerSecond, double p50Millis, double p99Millis) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.jbank.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jbank.metrics.InstrumentedConnection;
+import com.jbank.metrics.SlowQueryLog;
+
+/**
+ * What the InstrumentedConnection wrapper costs per statement: a balance lookup by primary key, as the
+ * DAOs run it, on an in-memory H2 connection used directly ("raw"), wrapped with metrics, JFR events and
+ * the slow-query log all off ("wrapped"), and wrapped with the slow-query log on at a threshold no
+ * statement reaches ("slowLog").
+ *
+ * @author juanf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JdbcWrapperBenchmark {
+
+    @Param({ "raw", "wrapped", "slowLog" })
+    public String connection;
+
+    private Connection raw;
+    private Connection used;
+    private int accountId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        raw = DriverManager.getConnection("jdbc:h2:mem:wrapper" + System.nanoTime());
+        try (Statement statement = raw.createStatement()) {
+            statement.execute("CREATE TABLE accounts (account_id INT PRIMARY KEY, balance DECIMAL(15, 2))");
+            statement.execute("INSERT INTO accounts SELECT X, 100 FROM SYSTEM_RANGE(1, 1000)");
+        }
+        SlowQueryLog.configure(connection.equals("slowLog") ? 60_000 : -1);
+        used = connection.equals("raw") ? raw : InstrumentedConnection.wrap(raw);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        SlowQueryLog.configure(-1);
+        raw.close();
+    }
+
+    // Prepares, binds, executes and closes like a DAO does, so every proxied call on the path is counted
+    @Benchmark
+    public double selectBalance() throws SQLException {
+        accountId = accountId % 1000 + 1;
+        try (PreparedStatement statement = used.prepareStatement(
+                "SELECT balance FROM accounts WHERE account_id = ?")) {
+            statement.setInt(1, accountId);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getDouble(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.jbank.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.jbank.ledger.LedgerCommandType;
+import com.jbank.ledger.LedgerEngine;
+import com.jbank.ledger.LedgerSnapshot;
+import com.jbank.ledger.LedgerStore;
+
+/**
+ * Measures how many charges per second the ledger engine applies and journals with several
+ * producer threads. Runs without a database: the store keeps nothing, so this measures the ring
+ * buffer, the writer and the local journal only.
+ *
+ * Usage: LedgerEngineBenchmark [accounts] [producers] [seconds]
+ *
+ * @author juanf
+ */
+public class LedgerEngineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        int[] ids = new int[accounts];
+        long[] limits = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = i + 1;
+            limits[i] = Long.MAX_VALUE / 2;
+        }
+        LedgerStore store = new LedgerStore() {
+            @Override
+            public LedgerSnapshot load() {
+                return new LedgerSnapshot(ids, new long[accounts], limits, 0);
+            }
+
+            @Override
+            public void save(int[] accountIds, long[] balanceCents, int count, long lastSequence) {
+                // Discarded: only the engine itself is measured
+            }
+        };
+
+        Path journal = Files.createTempFile("ledger-bench", ".journal");
+        LedgerEngine engine = new LedgerEngine(store, journal);
+        engine.start();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    engine.publish(LedgerCommandType.CHARGE, 1 + random.nextInt(accounts), 1 + random.nextInt(10_000));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Warm up before measuring
+        Thread.sleep(2000);
+        long startSequence = engine.getProcessedSequence();
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        long endSequence = engine.getProcessedSequence();
+        long elapsed = System.nanoTime() - start;
+
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        engine.close();
+        Files.deleteIfExists(journal);
+
+        double opsPerSecond = (endSequence - startSequence) * 1e9 / elapsed;
+        System.out.printf("accounts=%d producers=%d: %.2f million commands/s applied and journaled%n",
+                accounts, producers, opsPerSecond / 1e6);
+    }
+}
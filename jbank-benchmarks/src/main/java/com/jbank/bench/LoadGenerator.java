@@ -0,0 +1,366 @@
+package com.jbank.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import com.jbank.metrics.LatencyHistogram;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Open-loop load generator for the service layer. Requests arrive on a fixed schedule at the target rate
+ * (Poisson or evenly spaced), each drawn from a weighted operation mix, with clients and accounts picked
+ * by a {@link ZipfianGenerator} so a few hot accounts take most of the traffic.
+ *
+ * Latency is measured from each request's scheduled start, not from when it actually started, so time
+ * spent waiting behind a slow request is counted (the coordinated omission correction). Service time,
+ * measured from the actual start, is reported next to it: a large gap between the two means the system
+ * could not keep up with the target rate.
+ *
+ * Requests run one at a time, as they do in the application (all DAOs share one connection). By default
+ * it starts a {@link LocalDatabase} and seeds it; with --url it runs against an existing database.
+ *
+ * Usage: LoadGenerator [--rate OPS_PER_SEC] [--duration SEC] [--warmup SEC] [--arrivals poisson|constant]
+ *        [--zipf THETA] [--mix op=weight,...] [--clients N] [--businesses B] [--accounts M] [--joint J]
+ *        [--seed S] [--url jdbc-url --user name --password secret]
+ *
+ * @author juanf
+ */
+public class LoadGenerator {
+
+    static final String DEFAULT_MIX = "login-id=10,login-tax-id=10,login-ein=5,view-all-accounts=25,deposit=15,"
+            + "withdraw=10,credit-charge=8,credit-payment=7,co-owner-change=7,client-deletion=3";
+
+    // What a request did, as seen by the caller
+    private enum Outcome { OK, REJECTED, ERROR }
+
+    private interface Operation {
+        Outcome run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        boolean poisson = !"constant".equals(options.getOrDefault("arrivals", "poisson"));
+        double theta = Double.parseDouble(options.getOrDefault("zipf", "0.99"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int businesses = Integer.parseInt(options.getOrDefault("businesses", "200"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "3"));
+        int joint = Integer.parseInt(options.getOrDefault("joint", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        if (rate <= 0 || duration <= 0) {
+            throw new IllegalArgumentException("Rate and duration must be positive.");
+        }
+
+        // Enough deletable clients for the deletion share of the whole run, with some margin
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int deletions = (int) Math.ceil(mix.getOrDefault("client-deletion", 0) * 1.2 * rate
+                * (duration + warmup) / totalWeight);
+
+        LocalDatabase database = null;
+        if (options.containsKey("url")) {
+            LocalDatabase.configure(options.get("url"), options.getOrDefault("user", "jbank"),
+                    options.getOrDefault("password", ""));
+        } else {
+            database = new LocalDatabase();
+            database.configure();
+        }
+
+        try {
+            long start = System.nanoTime();
+            BenchDataset dataset = BenchDataset.seed(clients, businesses, accounts, joint, deletions, seed);
+            System.out.printf("Seeded %d clients, %d businesses, %d accounts, %d deletable clients in %.1f s%n",
+                    clients, businesses, dataset.getAccountIds().size(), deletions, (System.nanoTime() - start) / 1e9);
+            new LoadGenerator(dataset, mix, theta, seed).run(rate, poisson, warmup, duration);
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private final Random random;
+    private final String[] names;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final OperationStats[] stats;
+    private final OperationStats total = new OperationStats();
+
+    LoadGenerator(BenchDataset dataset, Map<String, Integer> mix, double theta, long seed) {
+        this.random = new Random(seed);
+        Map<String, Operation> available = operations(dataset, theta, seed);
+
+        List<String> selected = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            if (!available.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + entry.getKey());
+            }
+            if (entry.getValue() > 0) {
+                selected.add(entry.getKey());
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix is empty.");
+        }
+        names = selected.toArray(new String[0]);
+        operations = new Operation[names.length];
+        cumulativeWeights = new int[names.length];
+        stats = new OperationStats[names.length];
+        int weight = 0;
+        for (int i = 0; i < names.length; i++) {
+            operations[i] = available.get(names[i]);
+            weight += mix.get(names[i]);
+            cumulativeWeights[i] = weight;
+            stats[i] = new OperationStats();
+        }
+    }
+
+    private Map<String, Operation> operations(BenchDataset dataset, double theta, long seed) {
+        PersonalClientService clientService = new PersonalClientService();
+        BusinessClientService businessService = new BusinessClientService();
+        CheckingAccountService checkingService = new CheckingAccountService();
+        SavingsAccountService savingsService = new SavingsAccountService();
+        CreditLineService creditLineService = new CreditLineService();
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO();
+
+        List<Integer> clientIds = dataset.getClientIds();
+        List<String> taxIds = dataset.getTaxIds();
+        List<Integer> checkingIds = dataset.getCheckingAccountIds();
+        List<Integer> creditLineIds = dataset.getCreditLineIds();
+        List<Integer> accountIds = dataset.getAccountIds();
+        List<String> eins = dataset.getEins();
+        List<Integer> deletable = dataset.getDeletableClientIds();
+        // Separate seeds so the hot clients and hot accounts are unrelated
+        ZipfianGenerator clients = new ZipfianGenerator(clientIds.size(), theta, seed + 1);
+        ZipfianGenerator checking = new ZipfianGenerator(checkingIds.size(), theta, seed + 2);
+        ZipfianGenerator allAccounts = new ZipfianGenerator(accountIds.size(), theta, seed + 3);
+        ZipfianGenerator credit = creditLineIds.isEmpty() ? null
+                : new ZipfianGenerator(creditLineIds.size(), theta, seed + 4);
+        ZipfianGenerator businesses = eins.isEmpty() ? null : new ZipfianGenerator(eins.size(), theta, seed + 5);
+        int[] nextDeletion = new int[1];
+
+        Map<String, Operation> available = new LinkedHashMap<>();
+        available.put("login-id", () -> found(clientService.getById(clientIds.get(clients.next(random)))));
+        available.put("login-tax-id", () -> found(clientService.getByTaxID(taxIds.get(clients.next(random)))));
+        available.put("login-ein", () -> {
+            requireData(businesses, "login-ein needs --businesses");
+            return found(businessService.getByEIN(eins.get(businesses.next(random))));
+        });
+        // Repeats the lookups AccountController makes
+        available.put("view-all-accounts", () -> {
+            Map<Integer, String> owned = clientAccountDAO.getAccountsByClient(clientIds.get(clients.next(random)));
+            for (int accountId : owned.keySet()) {
+                if (checkingService.getById(accountId).isEmpty() && savingsService.getById(accountId).isEmpty()
+                        && creditLineService.getById(accountId).isEmpty()) {
+                    return Outcome.ERROR;
+                }
+            }
+            return Outcome.OK;
+        });
+        available.put("deposit", () -> {
+            Optional<CheckingAccount> account = checkingService.getById(checkingIds.get(checking.next(random)));
+            return account.isEmpty() ? Outcome.ERROR : classify(checkingService.tryDeposit(account.get(), 25.00));
+        });
+        available.put("withdraw", () -> {
+            Optional<CheckingAccount> account = checkingService.getById(checkingIds.get(checking.next(random)));
+            return account.isEmpty() ? Outcome.ERROR : classify(checkingService.tryWithdraw(account.get(), 20.00));
+        });
+        available.put("credit-charge", () -> {
+            requireData(credit, "credit-charge needs --accounts 3 or more");
+            Optional<CreditLine> account = creditLineService.getById(creditLineIds.get(credit.next(random)));
+            return account.isEmpty() ? Outcome.ERROR : classify(creditLineService.tryChargeCredit(account.get(), 40.00));
+        });
+        available.put("credit-payment", () -> {
+            requireData(credit, "credit-payment needs --accounts 3 or more");
+            Optional<CreditLine> account = creditLineService.getById(creditLineIds.get(credit.next(random)));
+            return account.isEmpty() ? Outcome.ERROR : classify(creditLineService.tryMakePayment(account.get(), 30.00));
+        });
+        // Adds a JOINT owner to a solely owned account, or removes one from a joint account
+        available.put("co-owner-change", () -> {
+            int accountId = accountIds.get(allAccounts.next(random));
+            Map<Integer, String> owners = clientAccountDAO.getClientsByAccount(accountId);
+            for (Map.Entry<Integer, String> owner : owners.entrySet()) {
+                if ("JOINT".equals(owner.getValue())) {
+                    return accepted(clientAccountDAO.removeAccountFromClient(owner.getKey(), accountId));
+                }
+            }
+            int clientId = clientIds.get(clients.next(random));
+            if (owners.containsKey(clientId)) {
+                return Outcome.REJECTED;
+            }
+            return accepted(clientAccountDAO.assignAccountToClient(clientId, accountId, "JOINT"));
+        });
+        available.put("client-deletion", () -> {
+            if (nextDeletion[0] >= deletable.size()) {
+                throw new IllegalStateException("Deletable client pool exhausted");
+            }
+            return accepted(clientService.delete(deletable.get(nextDeletion[0]++)));
+        });
+        return available;
+    }
+
+    private static Outcome found(Optional<?> result) {
+        return result.isPresent() ? Outcome.OK : Outcome.ERROR;
+    }
+
+    private static Outcome accepted(boolean result) {
+        return result ? Outcome.OK : Outcome.REJECTED;
+    }
+
+    // Business-rule rejections and lost write races count as REJECTED; database and journal failures as ERROR
+    private static Outcome classify(TransactionResult result) {
+        return switch (result) {
+            case OK -> Outcome.OK;
+            case DB_ERROR, JOURNAL_ERROR -> Outcome.ERROR;
+            default -> Outcome.REJECTED;
+        };
+    }
+
+    private static void requireData(ZipfianGenerator generator, String message) {
+        if (generator == null) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    void run(double rate, boolean poisson, int warmupSeconds, int durationSeconds) {
+        double meanIntervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + durationSeconds * 1_000_000_000L;
+        double scheduled = start;
+        long maxLag = 0;
+        long issued = 0;
+
+        while (true) {
+            scheduled += poisson ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+            long intended = (long) scheduled;
+            if (intended >= end) {
+                break;
+            }
+            long now = System.nanoTime();
+            while (now < intended) {
+                LockSupport.parkNanos(intended - now);
+                now = System.nanoTime();
+            }
+            int index = pick();
+            Outcome outcome;
+            String error = null;
+            try {
+                outcome = operations[index].run();
+            } catch (Exception e) {
+                outcome = Outcome.ERROR;
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            long finished = System.nanoTime();
+            if (intended >= measureFrom) {
+                stats[index].record(outcome, error, finished - intended, finished - now);
+                total.record(outcome, error, finished - intended, finished - now);
+                maxLag = Math.max(maxLag, now - intended);
+                issued++;
+            }
+        }
+        report(rate, issued, durationSeconds, maxLag);
+    }
+
+    private int pick() {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private void report(double rate, long issued, int durationSeconds, long maxLag) {
+        System.out.printf("Target %.0f ops/s, achieved %.0f ops/s, max schedule lag %.1f ms%n", rate,
+                issued / (double) durationSeconds, maxLag / 1e6);
+        System.out.printf("%-18s %8s %8s %8s %7s %10s %10s %10s %10s %12s%n", "operation", "ops", "rejected",
+                "errors", "err%", "p50 (us)", "p99 (us)", "p999 (us)", "max (us)", "svc p99 (us)");
+        for (int i = 0; i < names.length; i++) {
+            stats[i].print(names[i]);
+        }
+        total.print("total");
+        for (int i = 0; i < names.length; i++) {
+            if (stats[i].firstError != null) {
+                System.out.printf("First error in %s: %s%n", names[i], stats[i].firstError);
+            }
+        }
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected op=weight in mix, got " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: " + entry);
+            }
+            weights.put(parts[0].trim(), weight);
+        }
+        return weights;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static final class OperationStats {
+        private final LatencyHistogram responseTime = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private long rejected;
+        private long errors;
+        private String firstError;
+
+        void record(Outcome outcome, String error, long responseNanos, long serviceNanos) {
+            responseTime.record(responseNanos);
+            serviceTime.record(serviceNanos);
+            if (outcome == Outcome.REJECTED) {
+                rejected++;
+            } else if (outcome == Outcome.ERROR) {
+                errors++;
+                if (firstError == null) {
+                    firstError = error != null ? error : "operation returned no result";
+                }
+            }
+        }
+
+        void print(String name) {
+            LatencyHistogram.Snapshot response = responseTime.snapshot();
+            LatencyHistogram.Snapshot service = serviceTime.snapshot();
+            long ops = response.getCount();
+            System.out.printf("%-18s %8d %8d %8d %7.2f %10.1f %10.1f %10.1f %10.1f %12.1f%n", name, ops, rejected,
+                    errors, ops == 0 ? 0.0 : 100.0 * errors / ops, micros(response, 0.50), micros(response, 0.99),
+                    micros(response, 0.999), response.getMax() / 1e3, micros(service, 0.99));
+        }
+
+        private static double micros(LatencyHistogram.Snapshot snapshot, double quantile) {
+            return snapshot.getCount() == 0 ? 0.0 : snapshot.getValueAtQuantile(quantile) / 1e3;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.jbank.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.h2.tools.Server;
+
+/**
+ * Local stand-in for the PostgreSQL database: an in-memory H2 database in PostgreSQL mode, served over
+ * TCP on a free localhost port so every statement is a real network round trip. The jbank schema is
+ * created from schema.sql on start.
+ *
+ * {@link #configure(String, String, String)} points ConnectionHandler at a database through
+ * {@link CountingDriver}; it must run before the first DAO is created.
+ *
+ * @author juanf
+ */
+public class LocalDatabase implements AutoCloseable {
+
+    private static final String USER = "jbank";
+    private static final String PASSWORD = "jbank";
+
+    private final Server server;
+    private final String url;
+    // Keeps the in-memory database alive between connections
+    private final Connection keepAlive;
+
+    public LocalDatabase() throws SQLException, IOException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + server.getPort()
+                + "/mem:jbank;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+        keepAlive = DriverManager.getConnection(url, USER, PASSWORD);
+        createSchema(keepAlive);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // Routes ConnectionHandler to this database
+    public void configure() {
+        configure(url, USER, PASSWORD);
+    }
+
+    // Routes ConnectionHandler to the given database, counting round trips
+    public static void configure(String url, String user, String password) {
+        System.setProperty("jbank.db.driver", CountingDriver.class.getName());
+        System.setProperty("jbank.db.url", CountingDriver.PREFIX + url);
+        System.setProperty("jbank.db.username", user);
+        System.setProperty("jbank.db.password", password);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        keepAlive.close();
+        server.stop();
+    }
+
+    private static void createSchema(Connection connection) throws SQLException, IOException {
+        String schema;
+        try (InputStream input = LocalDatabase.class.getClassLoader().getResourceAsStream("schema.sql")) {
+            if (input == null) {
+                throw new IOException("Unable to find schema.sql");
+            }
+            schema = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // Strip comments, and map the one type H2 spells differently
+        StringBuilder script = new StringBuilder();
+        for (String line : schema.split("\n")) {
+            int comment = line.indexOf("--");
+            script.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        String ddl = script.toString().replace("TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE");
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : ddl.split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.jbank.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.SavingsAccount;
+
+/**
+ * Money operations on the account models.
+ * Balances are large enough that a measurement run never hits a limit, and withdraw/payment
+ * are paired with the opposite operation where needed so the state stays stable across iterations.
+ *
+ * @author juanf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    private CheckingAccount checking;
+    private CheckingAccount overdrawnChecking;
+    private SavingsAccount savings;
+    private CreditLine creditLine;
+
+    @Setup
+    public void setUp() {
+        checking = new CheckingAccount(1, 1, 1_000_000_000.00, "Bench Checking", 25.00, 500.00);
+        overdrawnChecking = new CheckingAccount(1, 2, -100.00, "Bench Overdrawn", 0.00, 1_000_000_000.00);
+        savings = new SavingsAccount(1, 3, 10.00, "Bench Savings", 0.01, 6);
+        creditLine = new CreditLine(1, 4, 1_000_000_000.00, "Bench Credit", 1_000_000_000.00, 15.0, 2.0);
+    }
+
+    @Benchmark
+    public double checkingWithdraw() {
+        checking.withdraw(0.01);
+        return checking.getBalance();
+    }
+
+    // Overdraft path: the balance stays negative, so every withdrawal takes the fee branch (fee 0)
+    @Benchmark
+    public double checkingWithdrawOverdraft() {
+        overdrawnChecking.withdraw(0.01);
+        return overdrawnChecking.getBalance();
+    }
+
+    // Interest is tiny and rounded to cents, so the balance does not grow during a run
+    @Benchmark
+    public double savingsApplyInterest() {
+        savings.applyInterest();
+        return savings.getBalance();
+    }
+
+    @Benchmark
+    public double creditLineMakePayment() {
+        creditLine.makePayment(0.01);
+        return creditLine.getBalance();
+    }
+}
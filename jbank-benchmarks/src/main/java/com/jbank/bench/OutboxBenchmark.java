@@ -0,0 +1,113 @@
+package com.jbank.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.model.CheckingAccount;
+import com.jbank.outbox.FileSink;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxRelay;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.OutboxDAO;
+import com.jbank.service.CheckingAccountService;
+
+/**
+ * Measures the transactional outbox on a {@link LocalDatabase}: deposits per second with and without an
+ * outbox event on direct writes, deposits with events through group commit from many callers, and how
+ * fast a relay drains the resulting backlog to a file.
+ *
+ * Usage: OutboxBenchmark [deposits-per-mode] [group-commit-callers] [relay-batch-size]
+ *
+ * @author juanf
+ */
+public class OutboxBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int deposits = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int callers = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : OutboxRelay.DEFAULT_BATCH_SIZE;
+
+        try (LocalDatabase database = new LocalDatabase();
+                Connection connection = DriverManager.getConnection(database.getUrl(), "jbank", "jbank")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) "
+                        + "SELECT \"X\", 'CHECKING', 'Bench', 0 FROM SYSTEM_RANGE(1, " + callers + ")");
+                statement.execute("INSERT INTO checking_accounts (account_id, overdraft_fee, overdraft_limit) "
+                        + "SELECT \"X\", 35, 0 FROM SYSTEM_RANGE(1, " + callers + ")");
+            }
+            CheckingAccountDAO dao = new CheckingAccountDAO(connection);
+            CheckingAccountService service = new CheckingAccountService(dao, new ClientAccountDAO(connection));
+
+            System.out.printf("%-28s %12s%n", "mode", "deposits/s");
+            System.out.printf("%-28s %12.0f%n", "direct", depositRate(service, deposits));
+            // One thread writes here, so the outbox can share the service's connection
+            service.setOutbox(new Outbox(connection));
+            System.out.printf("%-28s %12.0f%n", "direct + outbox", depositRate(service, deposits));
+            try (GroupCommitExecutor executor = new GroupCommitExecutor(
+                    () -> DriverManager.getConnection(database.getUrl(), "jbank", "jbank"), 256, 200)) {
+                service.setGroupCommitExecutor(executor);
+                System.out.printf("%-28s %12.0f%n", "group commit + outbox (" + callers + ")",
+                        concurrentRate(service, dao, callers, deposits));
+            }
+
+            long backlog = new OutboxDAO(connection).countPending();
+            Path file = Files.createTempFile("jbank-outbox", ".ndjson");
+            try (OutboxRelay relay = new OutboxRelay(() -> DriverManager.getConnection(database.getUrl(), "jbank", "jbank"),
+                    "bench", List.of(new FileSink(file)), batchSize)) {
+                long start = System.nanoTime();
+                while (relay.relayOnce() > 0) {
+                    // Drain
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%nRelayed %d events to %s in %.2f s: %.0f events/s (%d MB)%n", backlog, file,
+                        seconds, backlog / seconds, Files.size(file) >> 20);
+            }
+            Files.delete(file);
+        }
+    }
+
+    private static double depositRate(CheckingAccountService service, int deposits) {
+        CheckingAccount account = new CheckingAccount(0, 1, 0, "Bench", 35, 0);
+        // Deposits run back to back on the model, so its balance always matches the stored one
+        for (int i = 0; i < deposits / 10; i++) {
+            service.deposit(account, 1.00);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < deposits; i++) {
+            service.deposit(account, 1.00);
+        }
+        return deposits * 1e9 / (System.nanoTime() - start);
+    }
+
+    // Every caller deposits into its own account, so group commit sees no conflicts
+    private static double concurrentRate(CheckingAccountService service, CheckingAccountDAO dao, int callers,
+            int deposits) throws Exception {
+        int perCaller = Math.max(1, deposits / callers);
+        CountDownLatch done = new CountDownLatch(callers);
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < callers; c++) {
+            CheckingAccount account = new CheckingAccount(0, c + 1, dao.getByID(c + 1).orElseThrow().getBalance(),
+                    "Bench", 35, 0);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perCaller; i++) {
+                    service.deposit(account, 1.00);
+                }
+                done.countDown();
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        done.await();
+        return perCaller * (double) callers * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,174 @@
+package com.jbank.bench;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Measures the full service to DAO path against a database: ops/sec, database round trips per operation
+ * and p50/p99/p99.9 latency for login, view-all-accounts, deposit, withdraw, co-owner listing and
+ * client deletion. By default it starts a {@link LocalDatabase} and seeds it; with --url it runs against
+ * an existing database that already has the schema.
+ *
+ * Operations run one at a time, as they do in the application (all DAOs share one connection).
+ * View-all-accounts and co-owner listing repeat the lookups AccountController makes.
+ *
+ * Usage: PersistenceBenchmark [--clients N] [--accounts M] [--joint J] [--iterations I] [--warmup W]
+ *        [--deletions D] [--seed S] [--url jdbc-url --user name --password secret]
+ *
+ * @author juanf
+ */
+public class PersistenceBenchmark {
+
+    private interface Operation {
+        void run(int iteration) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "3"));
+        int joint = Integer.parseInt(options.getOrDefault("joint", "10"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5000"));
+        int deletions = Integer.parseInt(options.getOrDefault("deletions", "500"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        LocalDatabase database = null;
+        if (options.containsKey("url")) {
+            LocalDatabase.configure(options.get("url"), options.getOrDefault("user", "jbank"),
+                    options.getOrDefault("password", ""));
+        } else {
+            database = new LocalDatabase();
+            database.configure();
+        }
+
+        try {
+            long start = System.nanoTime();
+            BenchDataset dataset = BenchDataset.seed(clients, accounts, joint, deletions, seed);
+            System.out.printf("Seeded %d clients, %d accounts (%d%% joint), %d deletable clients in %.1f s%n",
+                    clients, dataset.getAccountIds().size(), joint, deletions, (System.nanoTime() - start) / 1e9);
+            run(dataset, iterations, warmup, new Random(seed));
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private static void run(BenchDataset dataset, int iterations, int warmup, Random random) throws Exception {
+        PersonalClientService clientService = new PersonalClientService();
+        CheckingAccountService checkingService = new CheckingAccountService();
+        SavingsAccountService savingsService = new SavingsAccountService();
+        CreditLineService creditLineService = new CreditLineService();
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO();
+
+        List<String> taxIds = dataset.getTaxIds();
+        List<Integer> clientIds = dataset.getClientIds();
+        List<Integer> checkingIds = dataset.getCheckingAccountIds();
+        List<Integer> accountIds = dataset.getAccountIds();
+        List<Integer> deletable = dataset.getDeletableClientIds();
+
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("login", i -> clientService.getByTaxID(taxIds.get(random.nextInt(taxIds.size()))));
+        operations.put("view-all-accounts", i -> {
+            Map<Integer, String> owned = clientAccountDAO.getAccountsByClient(
+                    clientIds.get(random.nextInt(clientIds.size())));
+            for (int accountId : owned.keySet()) {
+                if (checkingService.getById(accountId).isEmpty()
+                        && savingsService.getById(accountId).isEmpty()) {
+                    creditLineService.getById(accountId);
+                }
+            }
+        });
+        operations.put("deposit", i -> {
+            Optional<CheckingAccount> account = checkingService.getById(checkingIds.get(random.nextInt(checkingIds.size())));
+            checkingService.deposit(account.orElseThrow(), 10.00);
+        });
+        operations.put("withdraw", i -> {
+            Optional<CheckingAccount> account = checkingService.getById(checkingIds.get(random.nextInt(checkingIds.size())));
+            checkingService.withdraw(account.orElseThrow(), 10.00);
+        });
+        operations.put("co-owner-listing", i -> {
+            Map<Integer, String> owners = clientAccountDAO.getClientsByAccount(
+                    accountIds.get(random.nextInt(accountIds.size())));
+            for (int clientId : owners.keySet()) {
+                clientService.getById(clientId);
+            }
+        });
+
+        System.out.printf("%-18s %8s %10s %12s %10s %10s %10s%n", "operation", "ops", "ops/s", "trips/op",
+                "p50 (us)", "p99 (us)", "p999 (us)");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            measure(entry.getValue(), warmup);
+            report(entry.getKey(), measure(entry.getValue(), iterations));
+        }
+        // Deletion consumes its clients, so it runs once over the pool with no warmup
+        report("client-deletion", measure(i -> clientService.delete(deletable.get(i)), deletable.size()));
+    }
+
+    private static Result measure(Operation operation, int iterations) throws Exception {
+        long[] latencies = new long[iterations];
+        long roundTrips = CountingDriver.getRoundTrips();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long opStart = System.nanoTime();
+            operation.run(i);
+            latencies[i] = System.nanoTime() - opStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(latencies, elapsed, CountingDriver.getRoundTrips() - roundTrips);
+    }
+
+    private static void report(String name, Result result) {
+        int ops = result.latencies.length;
+        if (ops == 0) {
+            System.out.printf("%-18s %8d%n", name, 0);
+            return;
+        }
+        Arrays.sort(result.latencies);
+        System.out.printf("%-18s %8d %10.0f %12.2f %10.1f %10.1f %10.1f%n", name, ops,
+                ops / (result.elapsedNanos / 1e9), (double) result.roundTrips / ops,
+                percentile(result.latencies, 0.50), percentile(result.latencies, 0.99),
+                percentile(result.latencies, 0.999));
+    }
+
+    // In microseconds
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000.0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static final class Result {
+        private final long[] latencies;
+        private final long elapsedNanos;
+        private final long roundTrips;
+
+        Result(long[] latencies, long elapsedNanos, long roundTrips) {
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.roundTrips = roundTrips;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.jbank.bench;
+
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.service.CheckingAccountService;
+
+/**
+ * Throughput of withdrawals when a share of them is rejected (default 50%, as under card authorizations
+ * hitting limits): the exception-throwing model method caught by the caller against the result-code API,
+ * plus the service's result-code path over an in-memory DAO.
+ *
+ * Accepted withdrawals take a cent from a balance large enough to never run out during a run; rejected
+ * ones ask for more than the balance and overdraft limit allow. The sequence of amounts is fixed by a seed.
+ *
+ * @author juanf
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectionBenchmark {
+
+    private static final int AMOUNTS = 1024;
+    private static final double BALANCE = 1_000_000_000.00;
+
+    @Param({ "0.5" })
+    public double rejectionRate;
+
+    private final double[] amounts = new double[AMOUNTS];
+    private int next;
+    private CheckingAccount account;
+    private CheckingAccountService service;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = random.nextDouble() < rejectionRate ? BALANCE * 2 : 0.01;
+        }
+        account = new CheckingAccount(1, 1, BALANCE, "Bench Checking", 25.00, 500.00);
+        // Stand-in DAO: the service's own work is measured, not a database write
+        service = new CheckingAccountService(new CheckingAccountDAO((Connection) null) {
+            @Override
+            public CheckingAccountEntity updateByID(CheckingAccountEntity entity) {
+                return entity;
+            }
+
+            @Override
+            public Optional<CheckingAccountEntity> getByID(Integer id) {
+                return Optional.empty();
+            }
+        }, new ClientAccountDAO((Connection) null));
+    }
+
+    private double nextAmount() {
+        double amount = amounts[next];
+        next = (next + 1) & (AMOUNTS - 1);
+        return amount;
+    }
+
+    @Benchmark
+    public boolean modelWithdrawException() {
+        try {
+            account.withdraw(nextAmount());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public TransactionResult modelTryWithdraw() {
+        return account.tryWithdraw(nextAmount());
+    }
+
+    @Benchmark
+    public TransactionResult serviceTryWithdraw() {
+        return service.tryWithdraw(account, nextAmount());
+    }
+}
@@ -0,0 +1,369 @@
+package com.jbank.bench;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of jbank rows: personal and business clients with valid tax IDs and EINs,
+ * checking, savings and credit line accounts, and their client_accounts links with a share of JOINT
+ * owners. Rows are produced as CSV text, table by table, into {@link TableSink}s.
+ *
+ * Every client draws from its own random stream, seeded from the dataset seed and the client's index,
+ * so the same options always produce the same rows, and any subset of the tables can be generated in
+ * a separate pass with matching IDs. Customer and account IDs are assigned explicitly, counting up from
+ * the configured first IDs.
+ *
+ * Generated values never contain commas, quotes or line breaks, so no CSV quoting is needed. Names,
+ * addresses and phone numbers pass ClientValidator, and phone numbers, tax IDs and EINs are stored in
+ * the formats the services write.
+ *
+ * @author juanf
+ */
+public class SyntheticDataset {
+
+    /**
+     * Tables filled by the generator, in load order: a table only references tables of earlier phases.
+     */
+    public enum Table {
+        CLIENTS("clients", 1, "customer_id, client_type, phone_number, address, name"),
+        ACCOUNTS("accounts", 1, "account_id, account_type, account_name, balance"),
+        PERSONAL_CLIENTS("personal_clients", 2, "customer_id, tax_id, credit_score, yearly_income, total_debt"),
+        BUSINESS_CLIENTS("business_clients", 2, "customer_id, ein, business_type, contact_person_name, "
+                + "contact_person_title, total_asset_value, annual_revenue, annual_profit"),
+        CHECKING_ACCOUNTS("checking_accounts", 2, "account_id, overdraft_fee, overdraft_limit"),
+        SAVINGS_ACCOUNTS("savings_accounts", 2, "account_id, interest_rate, withdrawal_limit, withdrawal_counter"),
+        CREDIT_LINES("credit_lines", 2, "account_id, credit_limit, interest_rate, min_payment_percentage"),
+        CLIENT_ACCOUNTS("client_accounts", 3, "customer_id, account_id, ownership_type");
+
+        private final String tableName;
+        private final int phase;
+        private final String columns;
+
+        Table(String tableName, int phase, String columns) {
+            this.tableName = tableName;
+            this.phase = phase;
+            this.columns = columns;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public int getPhase() {
+            return phase;
+        }
+
+        public String getColumns() {
+            return columns;
+        }
+    }
+
+    /**
+     * Receives the CSV text of one table, in chunks of whole rows.
+     */
+    public interface TableSink extends AutoCloseable {
+        void write(CharSequence rows) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final int FLUSH_CHARS = 1 << 20;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final String[] FIRST_NAMES = { "James", "Mary", "Robert", "Patricia", "John", "Jennifer",
+            "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+            "Thomas", "Sarah", "Carlos", "Karen", "Daniel", "Lisa", "Matthew", "Nancy", "Anthony", "Sandra", "Mark",
+            "Betty", "Luis", "Ashley", "Steven", "Maria", "Andrew", "Kimberly", "Paul", "Emily", "Joshua", "Donna",
+            "Kenneth", "Michelle", "Juan", "Carol", "Kevin", "Amanda", "Brian", "Melissa", "George", "Deborah" };
+    private static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+            "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+            "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris",
+            "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright",
+            "Scott", "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera",
+            "Campbell", "Mitchell", "Carter", "Roberts", "O'Brien", "Ruiz" };
+    private static final String[] BUSINESS_WORDS = { "Logistics", "Bakery", "Consulting", "Builders", "Dental",
+            "Hardware", "Motors", "Farms", "Studio", "Software", "Catering", "Plumbing", "Realty", "Fitness",
+            "Printing", "Landscaping", "Imports", "Pharmacy", "Roofing", "Electric" };
+    private static final String[] BUSINESS_SUFFIXES = { "LLC", "Inc", "Co", "Group", "Partners" };
+    private static final String[] STREETS = { "Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Washington", "Lake",
+            "Hill", "Park", "Sunset", "Lincoln", "Jackson", "River", "Church", "Highland", "Spring", "Ridge" };
+    private static final String[] STREET_SUFFIXES = { "St", "Ave", "Blvd", "Rd", "Ln", "Dr", "Ct", "Way" };
+    private static final String[] BUSINESS_TYPES = { "LLC", "Corporation", "Partnership", "Sole Proprietorship",
+            "Non-Profit" };
+    private static final String[] TITLES = { "CEO", "CFO", "Manager", "Director", "Owner", "Partner" };
+    private static final long[] CREDIT_LIMITS_CENTS = { 100_000, 250_000, 500_000, 1_000_000, 2_500_000 };
+
+    private final int clients;
+    private final int businessPercent;
+    private final int[] accountsPerClientWeights;
+    private final int[] accountTypeWeights;
+    private final int jointPercent;
+    private final double balanceMedian;
+    private final double balanceSigma;
+    private final long seed;
+    private final int firstClientId;
+    private final int firstAccountId;
+
+    /**
+     * @param businessPercent Percentage of clients that are businesses
+     * @param accountsPerClientWeights Relative weight of a client having 1, 2, 3... accounts
+     * @param accountTypeWeights Relative weights of checking, savings and credit line accounts
+     * @param jointPercent Percentage of accounts given a second, JOINT owner
+     * @param balanceMedian Median balance of checking and savings accounts (balances are log-normal)
+     * @param balanceSigma Spread of the log-normal balances; 0 gives every account the median
+     */
+    public SyntheticDataset(int clients, int businessPercent, int[] accountsPerClientWeights,
+            int[] accountTypeWeights, int jointPercent, double balanceMedian, double balanceSigma, long seed,
+            int firstClientId, int firstAccountId) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("At least one client must be generated.");
+        }
+        if (businessPercent < 0 || businessPercent > 100 || jointPercent < 0 || jointPercent > 100) {
+            throw new IllegalArgumentException("Percentages must be between 0 and 100.");
+        }
+        if (accountTypeWeights.length != 3) {
+            throw new IllegalArgumentException("Account type weights are checking, savings and credit line.");
+        }
+        if (sum(accountsPerClientWeights) <= 0 || sum(accountTypeWeights) <= 0) {
+            throw new IllegalArgumentException("Weights must add up to more than zero.");
+        }
+        if (balanceMedian <= 0 || balanceSigma < 0) {
+            throw new IllegalArgumentException("Balance median must be positive and sigma non-negative.");
+        }
+        if (firstClientId < 1 || firstAccountId < 1
+                || (long) firstClientId + clients > 600_000_000L) {
+            // Tax IDs and EINs are derived from customer IDs and must stay 9 digits
+            throw new IllegalArgumentException("Customer IDs must be positive and below 600000000.");
+        }
+        this.clients = clients;
+        this.businessPercent = businessPercent;
+        this.accountsPerClientWeights = accountsPerClientWeights.clone();
+        this.accountTypeWeights = accountTypeWeights.clone();
+        this.jointPercent = jointPercent;
+        this.balanceMedian = balanceMedian;
+        this.balanceSigma = balanceSigma;
+        this.seed = seed;
+        this.firstClientId = firstClientId;
+        this.firstAccountId = firstAccountId;
+    }
+
+    // Mean number of accounts per client, for sizing
+    public double meanAccountsPerClient() {
+        double weighted = 0;
+        for (int i = 0; i < accountsPerClientWeights.length; i++) {
+            weighted += (i + 1) * accountsPerClientWeights[i];
+        }
+        return weighted / sum(accountsPerClientWeights);
+    }
+
+    /**
+     * Generates every client in one pass, writing the tables that have a sink. Sinks are not closed.
+     * @return Rows written per table
+     */
+    public Map<Table, Long> generate(Map<Table, TableSink> sinks) throws IOException {
+        Map<Table, StringBuilder> buffers = new EnumMap<>(Table.class);
+        Map<Table, Long> rows = new EnumMap<>(Table.class);
+        for (Table table : sinks.keySet()) {
+            buffers.put(table, new StringBuilder(FLUSH_CHARS + 4096));
+            rows.put(table, 0L);
+        }
+        StringBuilder clientRows = buffers.get(Table.CLIENTS);
+        StringBuilder accountRows = buffers.get(Table.ACCOUNTS);
+        StringBuilder personalRows = buffers.get(Table.PERSONAL_CLIENTS);
+        StringBuilder businessRows = buffers.get(Table.BUSINESS_CLIENTS);
+        StringBuilder checkingRows = buffers.get(Table.CHECKING_ACCOUNTS);
+        StringBuilder savingsRows = buffers.get(Table.SAVINGS_ACCOUNTS);
+        StringBuilder creditRows = buffers.get(Table.CREDIT_LINES);
+        StringBuilder ownerRows = buffers.get(Table.CLIENT_ACCOUNTS);
+
+        int nextAccountId = firstAccountId;
+        for (int index = 0; index < clients; index++) {
+            SplittableRandom random = new SplittableRandom(seed + (index + 1) * GOLDEN_GAMMA);
+            int customerId = firstClientId + index;
+            boolean business = random.nextInt(100) < businessPercent;
+
+            // Drawn in a fixed order whether or not the table is generated, so passes stay in step
+            String first = pick(random, FIRST_NAMES);
+            String last = pick(random, LAST_NAMES);
+            int houseNumber = 1 + random.nextInt(9_999);
+            String street = pick(random, STREETS);
+            String streetSuffix = pick(random, STREET_SUFFIXES);
+            int area = 201 + random.nextInt(789);
+            int exchange = 200 + random.nextInt(800);
+            int line = random.nextInt(10_000);
+
+            if (clientRows != null) {
+                clientRows.append(customerId).append(business ? ",BUSINESS," : ",PERSONAL,");
+                clientRows.append('(').append(area).append(") ").append(exchange).append('-');
+                appendPadded(clientRows, line, 4).append(',');
+                clientRows.append(houseNumber).append(' ').append(street).append(' ').append(streetSuffix).append(',');
+                if (business) {
+                    clientRows.append(last).append(' ').append(BUSINESS_WORDS[customerId % BUSINESS_WORDS.length])
+                            .append(' ').append(BUSINESS_SUFFIXES[houseNumber % BUSINESS_SUFFIXES.length]);
+                } else {
+                    clientRows.append(first).append(' ').append(last);
+                }
+                clientRows.append('\n');
+            }
+
+            if (business) {
+                String businessType = pick(random, BUSINESS_TYPES);
+                String title = pick(random, TITLES);
+                long assets = logNormalCents(random, 500_000, 1.0);
+                long revenue = logNormalCents(random, 1_200_000, 1.0);
+                long profit = (long) (revenue * (random.nextDouble() * 0.35 - 0.10));
+                if (businessRows != null) {
+                    // EIN: 2-7 digit groups, from 400000000 up
+                    int ein = 400_000_000 + customerId;
+                    businessRows.append(customerId).append(',').append(ein / 10_000_000).append('-');
+                    appendPadded(businessRows, ein % 10_000_000, 7).append(',');
+                    businessRows.append(businessType).append(',').append(first).append(' ').append(last).append(',')
+                            .append(title).append(',');
+                    appendCents(businessRows, assets).append(',');
+                    appendCents(businessRows, revenue).append(',');
+                    appendCents(businessRows, profit).append('\n');
+                }
+            } else {
+                int creditScore = (int) Math.max(300, Math.min(850, Math.round(690 + random.nextGaussian() * 80)));
+                long income = logNormalCents(random, 55_000, 0.6);
+                long debt = (long) (income * random.nextDouble() * 0.8);
+                if (personalRows != null) {
+                    // SSN-style tax ID: 3-2-4 digit groups, from 300000000 up
+                    int taxId = 300_000_000 + customerId;
+                    personalRows.append(customerId).append(',').append(taxId / 1_000_000).append('-');
+                    appendPadded(personalRows, taxId / 10_000 % 100, 2).append('-');
+                    appendPadded(personalRows, taxId % 10_000, 4).append(',');
+                    personalRows.append(creditScore).append(',');
+                    appendCents(personalRows, income).append(',');
+                    appendCents(personalRows, debt).append('\n');
+                }
+            }
+
+            int accounts = 1 + weightedIndex(random, accountsPerClientWeights);
+            for (int a = 0; a < accounts; a++) {
+                int accountId = nextAccountId++;
+                int type = weightedIndex(random, accountTypeWeights);
+                long balance;
+                if (type == 2) {
+                    long limit = CREDIT_LIMITS_CENTS[random.nextInt(CREDIT_LIMITS_CENTS.length)];
+                    balance = (long) (limit * random.nextDouble() * 0.6);
+                    int interest = 1_200 + random.nextInt(1_800);
+                    int minPayment = 200 + random.nextInt(301);
+                    if (creditRows != null) {
+                        creditRows.append(accountId).append(',');
+                        appendCents(creditRows, limit).append(',');
+                        appendCents(creditRows, interest).append(',');
+                        appendCents(creditRows, minPayment).append('\n');
+                    }
+                } else {
+                    balance = logNormalCents(random, balanceMedian, balanceSigma);
+                    if (type == 0) {
+                        boolean premium = random.nextInt(4) == 0;
+                        if (checkingRows != null) {
+                            checkingRows.append(accountId).append(premium ? ",0.00,2000.00\n" : ",25.00,500.00\n");
+                        }
+                    } else {
+                        int interest = 50 + random.nextInt(400);
+                        if (savingsRows != null) {
+                            savingsRows.append(accountId).append(',');
+                            appendCents(savingsRows, interest).append(",6,0\n");
+                        }
+                    }
+                }
+                if (accountRows != null) {
+                    accountRows.append(accountId).append(type == 0 ? ",CHECKING,Checking,"
+                            : type == 1 ? ",SAVINGS,Savings," : ",CREDIT_LINE,Credit Line,");
+                    appendCents(accountRows, balance).append('\n');
+                }
+
+                boolean joint = clients > 1 && random.nextInt(100) < jointPercent;
+                int coOwner = joint ? random.nextInt(clients - 1) : 0;
+                if (ownerRows != null) {
+                    ownerRows.append(customerId).append(',').append(accountId).append(",PRIMARY\n");
+                    if (joint) {
+                        // Any other client
+                        int coOwnerId = firstClientId + (coOwner >= index ? coOwner + 1 : coOwner);
+                        ownerRows.append(coOwnerId).append(',').append(accountId).append(",JOINT\n");
+                    }
+                }
+            }
+
+            for (Map.Entry<Table, StringBuilder> buffer : buffers.entrySet()) {
+                if (buffer.getValue().length() >= FLUSH_CHARS) {
+                    flush(buffer.getKey(), buffer.getValue(), sinks, rows);
+                }
+            }
+        }
+        for (Map.Entry<Table, StringBuilder> buffer : buffers.entrySet()) {
+            flush(buffer.getKey(), buffer.getValue(), sinks, rows);
+        }
+        return rows;
+    }
+
+    private static void flush(Table table, StringBuilder buffer, Map<Table, TableSink> sinks, Map<Table, Long> rows)
+            throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        long lines = 0;
+        for (int i = 0; i < buffer.length(); i++) {
+            if (buffer.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        sinks.get(table).write(buffer);
+        rows.merge(table, lines, Long::sum);
+        buffer.setLength(0);
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static int weightedIndex(SplittableRandom random, int[] weights) {
+        int value = random.nextInt(sum(weights));
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static long logNormalCents(SplittableRandom random, double median, double sigma) {
+        return Math.round(median * Math.exp(sigma * random.nextGaussian()) * 100);
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int value : values) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative.");
+            }
+            total += value;
+        }
+        return total;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder out, int value, int digits) {
+        for (int limit = 10, i = 1; i < digits; i++, limit *= 10) {
+            if (value < limit) {
+                out.append('0');
+            }
+        }
+        return out.append(value);
+    }
+
+    private static StringBuilder appendCents(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        return appendPadded(out, (int) (cents % 100), 2);
+    }
+}
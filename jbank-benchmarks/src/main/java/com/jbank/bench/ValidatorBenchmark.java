@@ -0,0 +1,125 @@
+package com.jbank.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.validator.AccountValidator;
+import com.jbank.validator.BusinessClientValidator;
+import com.jbank.validator.CheckingAccountValidator;
+import com.jbank.validator.ClientValidator;
+import com.jbank.validator.CreditLineValidator;
+import com.jbank.validator.PersonalClientValidator;
+import com.jbank.validator.SavingsAccountValidator;
+import com.jbank.validator.ValidationUtils;
+
+/**
+ * Every validator in com.jbank.validator, on valid input (the common case, which runs every check).
+ *
+ * @author juanf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatorBenchmark {
+
+    private String name = "Jane O'Neil-Smith";
+    private String address = "1200 Main St. Apt #4, Springfield";
+    private String phone = "(555) 123-4567";
+    private String taxId = "123-45-6789";
+    private String currency = "$1,234.56";
+    private PersonalClient personalClient;
+    private CheckingAccount checkingAccount;
+    private SavingsAccount savingsAccount;
+    private CreditLine creditLine;
+
+    @Setup
+    public void setUp() {
+        personalClient = new PersonalClient(1, name, address, phone, taxId, 720, 85_000.00, 12_000.00);
+        checkingAccount = new CheckingAccount(1, 1, 500.00, "Bench Checking", 25.00, 500.00);
+        savingsAccount = new SavingsAccount(1, 2, 1_000.00, "Bench Savings", 3.0, 6);
+        creditLine = new CreditLine(1, 3, 0.00, "Bench Credit", 5_000.00, 15.0, 2.0);
+    }
+
+    @Benchmark
+    public void accountValidator(Blackhole blackhole) {
+        blackhole.consume(AccountValidator.isValidBalance(500.00));
+        blackhole.consume(AccountValidator.isValidAccountId(42));
+        blackhole.consume(AccountValidator.isValidClientId(7));
+    }
+
+    @Benchmark
+    public void businessClientValidator(Blackhole blackhole) {
+        blackhole.consume(BusinessClientValidator.isValidEIN(taxId));
+        blackhole.consume(BusinessClientValidator.isValidBusinessType("LLC"));
+        blackhole.consume(BusinessClientValidator.isValidContactName(name));
+        blackhole.consume(BusinessClientValidator.isValidContactTitle("CEO"));
+        blackhole.consume(BusinessClientValidator.isValidTotalAssetValue(1_000_000.00));
+        blackhole.consume(BusinessClientValidator.isValidAnnualRevenue(500_000.00));
+        blackhole.consume(BusinessClientValidator.isValidAnnualProfit(50_000.00));
+    }
+
+    @Benchmark
+    public boolean checkingAccountValidator() {
+        return CheckingAccountValidator.validate(checkingAccount);
+    }
+
+    @Benchmark
+    public void clientValidator(Blackhole blackhole) {
+        blackhole.consume(ClientValidator.isValidName(name));
+        blackhole.consume(ClientValidator.isValidAddress(address));
+        blackhole.consume(ClientValidator.isValidPhone(phone));
+        blackhole.consume(ClientValidator.isValidTaxID(taxId));
+    }
+
+    @Benchmark
+    public boolean creditLineValidator() {
+        return CreditLineValidator.validate(creditLine);
+    }
+
+    @Benchmark
+    public boolean personalClientValidator() {
+        return PersonalClientValidator.validate(personalClient);
+    }
+
+    @Benchmark
+    public boolean savingsAccountValidator() {
+        return SavingsAccountValidator.validate(savingsAccount);
+    }
+
+    @Benchmark
+    public void validationUtils(Blackhole blackhole) {
+        blackhole.consume(ValidationUtils.isValidString(name));
+        blackhole.consume(ValidationUtils.isValidDollarAmount(1_234.56));
+        blackhole.consume(ValidationUtils.isValidPercentage(15.0));
+        blackhole.consume(ValidationUtils.roundToTwoDecimals(1_234.5678));
+    }
+
+    // Parsing and formatting are separate: they allocate, unlike the checks above
+    @Benchmark
+    public Object validationUtilsParseCurrency() {
+        return ValidationUtils.parseCurrencyString(currency);
+    }
+
+    @Benchmark
+    public String validationUtilsFormatCurrency() {
+        return ValidationUtils.formatCurrency(1_234.56);
+    }
+}
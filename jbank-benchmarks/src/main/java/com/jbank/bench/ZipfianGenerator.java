@@ -0,0 +1,62 @@
+package com.jbank.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks indexes in [0, n) with a Zipfian distribution: the item of rank k is chosen with probability
+ * proportional to 1 / k^theta. A theta of 0 is uniform; 0.99 (the YCSB default) sends about half of
+ * the picks to the hottest 0.1% of a million items.
+ *
+ * Ranks are assigned to indexes through a seeded shuffle, so the hot items are spread over the data set
+ * instead of being the first ones seeded. Picks are a binary search over a precomputed CDF.
+ *
+ * @author juanf
+ */
+public class ZipfianGenerator {
+
+    private final double[] cdf;
+    private final int[] indexOfRank;
+
+    public ZipfianGenerator(int n, double theta, long seed) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipfian generator needs at least one item.");
+        }
+        if (theta < 0) {
+            throw new IllegalArgumentException("Zipfian theta cannot be negative.");
+        }
+        cdf = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, theta);
+            cdf[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cdf[rank] /= total;
+        }
+
+        indexOfRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexOfRank[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexOfRank[i];
+            indexOfRank[i] = indexOfRank[j];
+            indexOfRank[j] = swap;
+        }
+    }
+
+    public int next(Random random) {
+        int rank = Arrays.binarySearch(cdf, random.nextDouble());
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return indexOfRank[Math.min(rank, cdf.length - 1)];
+    }
+
+    public int size() {
+        return cdf.length;
+    }
+}
@@ -2,8 +2,10 @@ package com.jbank;
 
 import java.util.Optional;
 
+import com.jbank.cli.BatchMode;
 import com.jbank.controller.BusinessClientController;
 import com.jbank.controller.PersonalClientController;
+import com.jbank.metrics.MetricsExporter;
 import com.jbank.util.InputHandler;
 
 public class App {
@@ -12,6 +14,10 @@ public class App {
     private static boolean appRunning = true;
     
     public static void main(String[] args) {
+        MetricsExporter.startFromSystemProperties();
+        if (BatchMode.isRequested(args)) {
+            System.exit(BatchMode.run(args));
+        }
         System.out.println("\n\n==Welcome to JBank==");
 
         while(appRunning) {
@@ -0,0 +1,115 @@
+package com.jbank.analytics;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Which accounts an analytics query covers. Unset conditions match every account, e.g.
+ * {@code AccountFilter.all().accountTypes("CREDIT_LINE").ownerClientType("BUSINESS")}.
+ * Owner conditions apply to the account's PRIMARY owner; accounts without one never match them.
+ *
+ * @author juanf
+ */
+public final class AccountFilter {
+    private int accountTypeMask = (1 << PortfolioColumns.ACCOUNT_TYPES.length) - 1;
+    private long minBalanceCents = Long.MIN_VALUE;
+    private long maxBalanceCents = Long.MAX_VALUE;
+    private int ownerClientType = -1;
+    private String ownerBusinessType;
+
+    private AccountFilter() {
+    }
+
+    public static AccountFilter all() {
+        return new AccountFilter();
+    }
+
+    // CHECKING, SAVINGS and/or CREDIT_LINE
+    public AccountFilter accountTypes(String... types) {
+        accountTypeMask = 0;
+        for (String type : types) {
+            accountTypeMask |= 1 << PortfolioColumns.code(type.toUpperCase(Locale.ROOT), PortfolioColumns.ACCOUNT_TYPES);
+        }
+        return this;
+    }
+
+    public AccountFilter minBalance(BigDecimal balance) {
+        minBalanceCents = balance.movePointRight(2).longValue();
+        return this;
+    }
+
+    public AccountFilter maxBalance(BigDecimal balance) {
+        maxBalanceCents = balance.movePointRight(2).longValue();
+        return this;
+    }
+
+    // PERSONAL or BUSINESS
+    public AccountFilter ownerClientType(String type) {
+        ownerClientType = PortfolioColumns.code(type.toUpperCase(Locale.ROOT), PortfolioColumns.CLIENT_TYPES);
+        return this;
+    }
+
+    // Implies a business owner
+    public AccountFilter ownerBusinessType(String type) {
+        ownerBusinessType = type;
+        return this;
+    }
+
+    // Resolved against one version of the columns, for the scan loops
+    Compiled compile(PortfolioColumns columns) {
+        int businessType = -1;
+        if (ownerBusinessType != null) {
+            // A business type nobody has matches nothing
+            businessType = -2;
+            for (int i = 0; i < columns.businessTypeNames.length; i++) {
+                if (columns.businessTypeNames[i].equals(ownerBusinessType)) {
+                    businessType = i;
+                }
+            }
+        }
+        return new Compiled(accountTypeMask, minBalanceCents, maxBalanceCents, ownerClientType, businessType);
+    }
+
+    static final class Compiled {
+        private final int accountTypeMask;
+        private final long minBalanceCents;
+        private final long maxBalanceCents;
+        private final int ownerClientType;
+        private final int businessType;
+        private final boolean needsOwner;
+
+        Compiled(int accountTypeMask, long minBalanceCents, long maxBalanceCents, int ownerClientType,
+                int businessType) {
+            this.accountTypeMask = accountTypeMask;
+            this.minBalanceCents = minBalanceCents;
+            this.maxBalanceCents = maxBalanceCents;
+            this.ownerClientType = ownerClientType;
+            this.businessType = businessType;
+            this.needsOwner = ownerClientType >= 0 || businessType != -1;
+        }
+
+        boolean matches(PortfolioColumns columns, int row) {
+            int type = columns.accountTypes[row];
+            if (type < 0 || (accountTypeMask & (1 << type)) == 0) {
+                return false;
+            }
+            long balance = columns.balanceCents[row];
+            if (balance < minBalanceCents || balance > maxBalanceCents) {
+                return false;
+            }
+            if (needsOwner) {
+                int owner = columns.owners[row];
+                if (owner < 0) {
+                    return false;
+                }
+                if (ownerClientType >= 0 && columns.clientTypes[owner] != ownerClientType) {
+                    return false;
+                }
+                if (businessType != -1 && columns.businessTypes[owner] != businessType) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.jbank.analytics;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Reads the analytics columns from the database, all in one repeatable-read transaction so the tables
+ * are consistent with each other.
+ *
+ * A full load reads everything. An incremental load keeps what was loaded before and reads:
+ * clients and accounts with IDs above the highest loaded ones, every account up to the highest loaded
+ * ID (refreshing balances and marking the ones no longer there as deleted), and the PRIMARY owners.
+ * IDs are not committed in order: an insert can commit after a later one was loaded, and with hi/lo
+ * allocation another node hands out IDs from a block it reserved earlier. So the rows at or below the
+ * highest loaded IDs are checked too; accounts in the same scan that refreshes the balances, clients
+ * with a scan of their IDs, reading the rows from the first missed one on. Changes to the credit score
+ * or business type of an already loaded client need a full load.
+ *
+ * @author juanf
+ */
+final class AnalyticsLoader {
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String CLIENT_COLUMNS_SQL =
+            "SELECT c.customer_id, c.client_type, p.credit_score, b.business_type FROM clients c " +
+            "LEFT JOIN personal_clients p ON p.customer_id = c.customer_id " +
+            "LEFT JOIN business_clients b ON b.customer_id = c.customer_id ";
+    private static final String CLIENTS_SQL =
+            CLIENT_COLUMNS_SQL + "WHERE c.customer_id > ? ORDER BY c.customer_id";
+    private static final String CLIENTS_RANGE_SQL =
+            CLIENT_COLUMNS_SQL + "WHERE c.customer_id BETWEEN ? AND ? ORDER BY c.customer_id";
+    private static final String CLIENT_IDS_SQL =
+            "SELECT customer_id FROM clients WHERE customer_id <= ? ORDER BY customer_id";
+    private static final String ACCOUNT_COLUMNS_SQL =
+            "SELECT a.account_id, a.account_type, a.balance, cl.credit_limit FROM accounts a " +
+            "LEFT JOIN credit_lines cl ON cl.account_id = a.account_id ";
+    private static final String ACCOUNTS_SQL =
+            ACCOUNT_COLUMNS_SQL + "WHERE a.account_id > ? ORDER BY a.account_id";
+    private static final String EXISTING_ACCOUNTS_SQL =
+            ACCOUNT_COLUMNS_SQL + "WHERE a.account_id <= ? ORDER BY a.account_id";
+    private static final String OWNERS_SQL =
+            "SELECT account_id, customer_id FROM client_accounts WHERE ownership_type = 'PRIMARY' " +
+            "ORDER BY account_id, customer_id";
+
+    private final Connection connection;
+
+    AnalyticsLoader(Connection connection) {
+        this.connection = connection;
+    }
+
+    PortfolioColumns loadFull() throws SQLException {
+        return load(PortfolioColumns.EMPTY);
+    }
+
+    PortfolioColumns loadIncremental(PortfolioColumns previous) throws SQLException {
+        return load(previous);
+    }
+
+    private PortfolioColumns load(PortfolioColumns previous) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try {
+            Clients clients = new Clients(previous);
+            if (previous.clientCount > 0) {
+                clients.readMissed(previous.lastClientId());
+            }
+            clients.readNew(previous.lastClientId());
+            Accounts accounts = new Accounts(previous);
+            if (previous.accountCount > 0) {
+                accounts.readExisting(previous.lastAccountId());
+            }
+            accounts.readNew(previous.lastAccountId());
+            int[] owners = readOwners(clients, accounts);
+            return new PortfolioColumns(clients.count, clients.ids, clients.types, clients.creditScores,
+                    clients.businessTypes, clients.businessTypeNames, accounts.count, accounts.ids, accounts.types,
+                    accounts.balances, accounts.creditLimits, owners);
+        } finally {
+            connection.rollback();
+            connection.setTransactionIsolation(isolation);
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Client columns, starting as the previous ones and grown as new clients are read
+    private final class Clients {
+        int count;
+        int[] ids;
+        byte[] types;
+        short[] creditScores;
+        short[] businessTypes;
+        String[] businessTypeNames;
+
+        Clients(PortfolioColumns previous) {
+            count = previous.clientCount;
+            ids = previous.clientIds;
+            types = previous.clientTypes;
+            creditScores = previous.creditScores;
+            businessTypes = previous.businessTypes;
+            businessTypeNames = previous.businessTypeNames;
+        }
+
+        void readNew(int afterId) throws SQLException {
+            try (PreparedStatement stmt = connection.prepareStatement(CLIENTS_SQL)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setInt(1, afterId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        append(rs);
+                    }
+                }
+            }
+        }
+
+        // Inserts the clients up to upToId that are not loaded, keeping the columns in ID order
+        void readMissed(int upToId) throws SQLException {
+            int firstMissed = firstMissedId(upToId);
+            if (firstMissed < 0) {
+                return;
+            }
+            // Entries below the first missed ID stay where they are; the rest are merged with the rows read
+            int next = -indexOf(firstMissed) - 1;
+            int previousCount = count;
+            int[] previousIds = ids;
+            byte[] previousTypes = types;
+            short[] previousScores = creditScores;
+            short[] previousBusinessTypes = businessTypes;
+            ids = Arrays.copyOf(ids, ids.length);
+            types = Arrays.copyOf(types, types.length);
+            creditScores = Arrays.copyOf(creditScores, creditScores.length);
+            businessTypes = Arrays.copyOf(businessTypes, businessTypes.length);
+            count = next;
+            try (PreparedStatement stmt = connection.prepareStatement(CLIENTS_RANGE_SQL)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setInt(1, firstMissed);
+                stmt.setInt(2, upToId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt(1);
+                        while (next < previousCount && previousIds[next] <= id) {
+                            append(previousIds[next], previousTypes[next], previousScores[next],
+                                    previousBusinessTypes[next]);
+                            next++;
+                        }
+                        if (count == 0 || ids[count - 1] != id) {
+                            append(rs);
+                        }
+                    }
+                }
+            }
+            while (next < previousCount) {
+                append(previousIds[next], previousTypes[next], previousScores[next], previousBusinessTypes[next]);
+                next++;
+            }
+        }
+
+        // Lowest client ID up to upToId that is not loaded, or -1 if none is missing
+        private int firstMissedId(int upToId) throws SQLException {
+            int next = 0;
+            try (PreparedStatement stmt = connection.prepareStatement(CLIENT_IDS_SQL)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setInt(1, upToId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt(1);
+                        while (next < count && ids[next] < id) {
+                            next++;
+                        }
+                        if (next == count || ids[next] != id) {
+                            return id;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void append(ResultSet rs) throws SQLException {
+            String businessType = rs.getString(4);
+            append(rs.getInt(1), PortfolioColumns.code(rs.getString(2), PortfolioColumns.CLIENT_TYPES),
+                    (short) rs.getInt(3), businessType == null ? -1 : businessTypeCode(businessType));
+        }
+
+        private void append(int id, byte type, short creditScore, short businessType) {
+            if (count == ids.length) {
+                grow();
+            }
+            ids[count] = id;
+            types[count] = type;
+            creditScores[count] = creditScore;
+            businessTypes[count] = businessType;
+            count++;
+        }
+
+        private short businessTypeCode(String name) {
+            for (int i = 0; i < businessTypeNames.length; i++) {
+                if (businessTypeNames[i].equals(name)) {
+                    return (short) i;
+                }
+            }
+            if (businessTypeNames.length == Short.MAX_VALUE) {
+                throw new IllegalStateException("More than " + Short.MAX_VALUE + " business types");
+            }
+            businessTypeNames = Arrays.copyOf(businessTypeNames, businessTypeNames.length + 1);
+            businessTypeNames[businessTypeNames.length - 1] = name;
+            return (short) (businessTypeNames.length - 1);
+        }
+
+        // Copies on growth, so the previous columns stay as they were
+        private void grow() {
+            int capacity = Math.max(1024, count * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            creditScores = Arrays.copyOf(creditScores, capacity);
+            businessTypes = Arrays.copyOf(businessTypes, capacity);
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, count, id);
+        }
+    }
+
+    // Account columns, rebuilt by readExisting since a refresh rewrites balances and types
+    private final class Accounts {
+        int count;
+        int[] ids;
+        byte[] types;
+        long[] balances;
+        long[] creditLimits;
+
+        Accounts(PortfolioColumns previous) {
+            count = previous.accountCount;
+            ids = previous.accountIds;
+            types = previous.accountTypes;
+            balances = previous.balanceCents;
+            creditLimits = previous.creditLimitCents;
+        }
+
+        // Refreshes the loaded accounts up to upToId, marks the ones no longer there as deleted and
+        // inserts the ones the previous load missed
+        void readExisting(int upToId) throws SQLException {
+            int previousCount = count;
+            int[] previousIds = ids;
+            long[] previousBalances = balances;
+            long[] previousLimits = creditLimits;
+            int capacity = Math.max(ids.length, 1024);
+            ids = new int[capacity];
+            types = new byte[capacity];
+            balances = new long[capacity];
+            creditLimits = new long[capacity];
+            count = 0;
+            int next = 0;
+            try (PreparedStatement stmt = connection.prepareStatement(EXISTING_ACCOUNTS_SQL)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setInt(1, upToId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt(1);
+                        // Loaded accounts skipped by the scan were deleted
+                        while (next < previousCount && previousIds[next] < id) {
+                            append(previousIds[next], PortfolioColumns.DELETED, previousBalances[next], previousLimits[next]);
+                            next++;
+                        }
+                        if (next < previousCount && previousIds[next] == id) {
+                            next++;
+                        }
+                        append(rs);
+                    }
+                }
+            }
+            while (next < previousCount) {
+                append(previousIds[next], PortfolioColumns.DELETED, previousBalances[next], previousLimits[next]);
+                next++;
+            }
+        }
+
+        void readNew(int afterId) throws SQLException {
+            try (PreparedStatement stmt = connection.prepareStatement(ACCOUNTS_SQL)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setInt(1, afterId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        append(rs);
+                    }
+                }
+            }
+        }
+
+        private void append(ResultSet rs) throws SQLException {
+            BigDecimal creditLimit = rs.getBigDecimal(4);
+            append(rs.getInt(1), PortfolioColumns.code(rs.getString(2), PortfolioColumns.ACCOUNT_TYPES),
+                    toCents(rs.getBigDecimal(3)), creditLimit == null ? 0 : toCents(creditLimit));
+        }
+
+        private void append(int id, byte type, long balance, long creditLimit) {
+            if (count == ids.length) {
+                grow();
+            }
+            ids[count] = id;
+            types[count] = type;
+            balances[count] = balance;
+            creditLimits[count] = creditLimit;
+            count++;
+        }
+
+        private void grow() {
+            int capacity = Math.max(1024, count * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            creditLimits = Arrays.copyOf(creditLimits, capacity);
+        }
+    }
+
+    // Owners are re-read every time: ownership of existing accounts can change
+    private int[] readOwners(Clients clients, Accounts accounts) throws SQLException {
+        int[] owners = new int[accounts.ids.length];
+        Arrays.fill(owners, -1);
+        int next = 0;
+        try (PreparedStatement stmt = connection.prepareStatement(OWNERS_SQL)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int accountId = rs.getInt(1);
+                    while (next < accounts.count && accounts.ids[next] < accountId) {
+                        next++;
+                    }
+                    // Rows come by account, lowest customer ID first; that one is kept
+                    if (next < accounts.count && accounts.ids[next] == accountId && owners[next] < 0) {
+                        int client = clients.indexOf(rs.getInt(2));
+                        owners[next] = client >= 0 ? client : -1;
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+}
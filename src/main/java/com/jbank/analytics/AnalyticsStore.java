@@ -0,0 +1,166 @@
+package com.jbank.analytics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Read-only, in-memory copy of the account and client attributes portfolio questions need, held as
+ * primitive columns (int IDs, long cents, byte types) and queried with fork/join scans:
+ *
+ * <pre>
+ * // Total deposits by account type
+ * store.aggregate(AccountFilter.all().accountTypes("CHECKING", "SAVINGS"), Dimension.ACCOUNT_TYPE);
+ * // Credit exposure by business type
+ * store.aggregate(AccountFilter.all().accountTypes("CREDIT_LINE").ownerClientType("BUSINESS"),
+ *         Dimension.OWNER_BUSINESS_TYPE);
+ * // Credit score distribution of credit line holders
+ * store.percentiles(AccountFilter.all().accountTypes("CREDIT_LINE"), Measure.OWNER_CREDIT_SCORE, 10, 50, 90);
+ * </pre>
+ *
+ * Data is as of the last {@link #reload()} or {@link #refresh()}; see {@link AnalyticsLoader} for what an
+ * incremental refresh picks up. A query works on the version current when it starts, so refreshes never
+ * disturb it. Give the store its own connection: loads run a long read transaction.
+ *
+ * @author juanf
+ */
+public class AnalyticsStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsStore.class);
+
+    private final AnalyticsLoader loader;
+    private final ForkJoinPool pool;
+    private volatile PortfolioColumns columns = PortfolioColumns.EMPTY;
+    private ScheduledExecutorService scheduler;
+    private boolean loaded;
+    private int refreshesSinceReload;
+
+    public AnalyticsStore(Connection connection) {
+        this(connection, ForkJoinPool.commonPool());
+    }
+
+    public AnalyticsStore(Connection connection, ForkJoinPool pool) {
+        this.loader = new AnalyticsLoader(connection);
+        this.pool = pool;
+        Metrics.gauge("analytics.accounts", () -> columns.accountCount);
+    }
+
+    // Reads everything again
+    public synchronized void reload() throws SQLException {
+        try (Metrics.Sample sample = Metrics.time("analytics.reload")) {
+            columns = loader.loadFull();
+            loaded = true;
+            refreshesSinceReload = 0;
+        }
+        LOGGER.info("Analytics store loaded {} clients and {} accounts", columns.clientCount, columns.accountCount);
+    }
+
+    // Picks up new clients and accounts, balances and ownership; the first call is a full load
+    public synchronized void refresh() throws SQLException {
+        if (!loaded) {
+            reload();
+            return;
+        }
+        try (Metrics.Sample sample = Metrics.time("analytics.refresh")) {
+            columns = loader.loadIncremental(columns);
+            refreshesSinceReload++;
+        }
+    }
+
+    /**
+     * Refreshes in the background every period, with a full reload every fullReloadEvery refreshes to pick
+     * up edits to existing clients. The first run is a full load.
+     */
+    public synchronized void startRefreshing(long period, TimeUnit unit, int fullReloadEvery) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Already refreshing");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (loaded && refreshesSinceReload + 1 >= fullReloadEvery) {
+                    reload();
+                } else {
+                    refresh();
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Never let an exception escape, it would cancel the periodic schedule
+                LOGGER.error("Analytics refresh failed: {}", e.getMessage());
+            }
+        }, 0, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public int getAccountCount() {
+        return columns.accountCount;
+    }
+
+    /**
+     * Counts and sums the matching accounts per group. Groups without accounts are left out.
+     */
+    public List<GroupTotal> aggregate(AccountFilter filter, Dimension groupBy) {
+        try (Metrics.Sample sample = Metrics.time("analytics.aggregate")) {
+            PortfolioColumns current = columns;
+            int groups = groupBy.groupCount(current);
+            long[] totals = pool.invoke(new ScanTasks.Aggregate(current, filter.compile(current), groupBy, groups,
+                    0, current.accountCount));
+            List<GroupTotal> result = new ArrayList<>();
+            for (int group = 0; group < groups; group++) {
+                if (totals[group * 3] > 0) {
+                    result.add(new GroupTotal(groupBy.label(current, group), totals[group * 3],
+                            totals[group * 3 + 1], totals[group * 3 + 2]));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Nearest-rank percentiles (0 to 100) of the measure over the matching accounts, in the measure's unit
+     * (cents, or credit score points).
+     *
+     * @return One value per requested percentile, or an empty array if no account matches
+     */
+    public long[] percentiles(AccountFilter filter, Measure measure, double... percentiles) {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+        }
+        try (Metrics.Sample sample = Metrics.time("analytics.percentiles")) {
+            PortfolioColumns current = columns;
+            long[] values = pool.invoke(new ScanTasks.Collect(current, filter.compile(current), measure, 0,
+                    current.accountCount));
+            if (values.length == 0) {
+                return values;
+            }
+            Arrays.parallelSort(values);
+            long[] result = new long[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                int rank = (int) Math.ceil(percentiles[i] / 100 * values.length);
+                result[i] = values[Math.max(rank, 1) - 1];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.jbank.analytics;
+
+/**
+ * What an aggregate query groups accounts by. Owner dimensions use the account's PRIMARY owner; accounts
+ * the dimension does not apply to (no owner, or a business owner for credit score bands) fall in NONE.
+ *
+ * @author juanf
+ */
+public enum Dimension {
+    TOTAL,
+    ACCOUNT_TYPE,
+    OWNER_CLIENT_TYPE,
+    OWNER_BUSINESS_TYPE,
+    // FICO-style bands of the owner's credit score
+    CREDIT_SCORE_BAND;
+
+    private static final String[] SCORE_BANDS = { "300-579", "580-669", "670-739", "740-799", "800-850" };
+
+    int groupCount(PortfolioColumns columns) {
+        switch (this) {
+            case TOTAL:
+                return 1;
+            case ACCOUNT_TYPE:
+                return PortfolioColumns.ACCOUNT_TYPES.length;
+            case OWNER_CLIENT_TYPE:
+                return PortfolioColumns.CLIENT_TYPES.length + 1;
+            case OWNER_BUSINESS_TYPE:
+                return columns.businessTypeNames.length + 1;
+            default:
+                return SCORE_BANDS.length + 1;
+        }
+    }
+
+    int group(PortfolioColumns columns, int row) {
+        int owner;
+        switch (this) {
+            case TOTAL:
+                return 0;
+            case ACCOUNT_TYPE:
+                return columns.accountTypes[row];
+            case OWNER_CLIENT_TYPE:
+                owner = columns.owners[row];
+                return owner < 0 ? PortfolioColumns.CLIENT_TYPES.length : columns.clientTypes[owner];
+            case OWNER_BUSINESS_TYPE:
+                owner = columns.owners[row];
+                return owner < 0 || columns.businessTypes[owner] < 0 ? columns.businessTypeNames.length
+                        : columns.businessTypes[owner];
+            default:
+                owner = columns.owners[row];
+                if (owner < 0 || columns.clientTypes[owner] != PortfolioColumns.PERSONAL) {
+                    return SCORE_BANDS.length;
+                }
+                int score = columns.creditScores[owner];
+                return score < 580 ? 0 : score < 670 ? 1 : score < 740 ? 2 : score < 800 ? 3 : 4;
+        }
+    }
+
+    String label(PortfolioColumns columns, int group) {
+        switch (this) {
+            case TOTAL:
+                return "ALL";
+            case ACCOUNT_TYPE:
+                return PortfolioColumns.ACCOUNT_TYPES[group];
+            case OWNER_CLIENT_TYPE:
+                return group < PortfolioColumns.CLIENT_TYPES.length ? PortfolioColumns.CLIENT_TYPES[group] : "NONE";
+            case OWNER_BUSINESS_TYPE:
+                return group < columns.businessTypeNames.length ? columns.businessTypeNames[group] : "NONE";
+            default:
+                return group < SCORE_BANDS.length ? SCORE_BANDS[group] : "NONE";
+        }
+    }
+}
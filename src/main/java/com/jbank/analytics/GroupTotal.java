@@ -0,0 +1,43 @@
+package com.jbank.analytics;
+
+import java.math.BigDecimal;
+
+/**
+ * One group of an aggregate query: how many accounts, and the sum of their balances and credit limits.
+ *
+ * @author juanf
+ */
+public final class GroupTotal {
+    private final String group;
+    private final long accounts;
+    private final long balanceCents;
+    private final long creditLimitCents;
+
+    public GroupTotal(String group, long accounts, long balanceCents, long creditLimitCents) {
+        this.group = group;
+        this.accounts = accounts;
+        this.balanceCents = balanceCents;
+        this.creditLimitCents = creditLimitCents;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+
+    public BigDecimal getBalance() {
+        return BigDecimal.valueOf(balanceCents, 2);
+    }
+
+    public BigDecimal getCreditLimit() {
+        return BigDecimal.valueOf(creditLimitCents, 2);
+    }
+
+    @Override
+    public String toString() {
+        return group + ": " + accounts + " accounts, balance " + getBalance() + ", credit limit " + getCreditLimit();
+    }
+}
@@ -0,0 +1,32 @@
+package com.jbank.analytics;
+
+/**
+ * Per-account value a percentile query ranks: balance or credit limit in cents, or the credit score of the
+ * PRIMARY owner (accounts without a personal owner have none and are left out).
+ *
+ * @author juanf
+ */
+public enum Measure {
+    BALANCE,
+    CREDIT_LIMIT,
+    OWNER_CREDIT_SCORE;
+
+    boolean has(PortfolioColumns columns, int row) {
+        if (this != OWNER_CREDIT_SCORE) {
+            return true;
+        }
+        int owner = columns.owners[row];
+        return owner >= 0 && columns.clientTypes[owner] == PortfolioColumns.PERSONAL;
+    }
+
+    long value(PortfolioColumns columns, int row) {
+        switch (this) {
+            case BALANCE:
+                return columns.balanceCents[row];
+            case CREDIT_LIMIT:
+                return columns.creditLimitCents[row];
+            default:
+                return columns.creditScores[columns.owners[row]];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.jbank.analytics;
+
+/**
+ * One loaded version of the analytics data, as primitive column arrays. Clients and accounts are each
+ * sorted by ID, and row i of every column of a table belongs to the same entity.
+ *
+ * Never modified once built: a refresh builds a new instance, sharing the arrays that did not change
+ * and writing only past the previous row counts, so queries running on the previous one are unaffected.
+ *
+ * @author juanf
+ */
+final class PortfolioColumns {
+    static final byte PERSONAL = 0;
+    static final byte BUSINESS = 1;
+
+    static final byte CHECKING = 0;
+    static final byte SAVINGS = 1;
+    static final byte CREDIT_LINE = 2;
+    // Account that disappeared since it was loaded
+    static final byte DELETED = -1;
+
+    static final String[] CLIENT_TYPES = { "PERSONAL", "BUSINESS" };
+    static final String[] ACCOUNT_TYPES = { "CHECKING", "SAVINGS", "CREDIT_LINE" };
+
+    static final PortfolioColumns EMPTY = new PortfolioColumns(0, new int[0], new byte[0], new short[0], new short[0],
+            new String[0], 0, new int[0], new byte[0], new long[0], new long[0], new int[0]);
+
+    final int clientCount;
+    final int[] clientIds;
+    final byte[] clientTypes;
+    // 0 for business clients
+    final short[] creditScores;
+    // Code into businessTypeNames, -1 for personal clients
+    final short[] businessTypes;
+    final String[] businessTypeNames;
+
+    final int accountCount;
+    final int[] accountIds;
+    final byte[] accountTypes;
+    final long[] balanceCents;
+    // 0 for accounts that are not credit lines
+    final long[] creditLimitCents;
+    // Client row of the account's PRIMARY owner (the lowest ID if several), -1 if it has none
+    final int[] owners;
+
+    PortfolioColumns(int clientCount, int[] clientIds, byte[] clientTypes, short[] creditScores, short[] businessTypes,
+            String[] businessTypeNames, int accountCount, int[] accountIds, byte[] accountTypes, long[] balanceCents,
+            long[] creditLimitCents, int[] owners) {
+        this.clientCount = clientCount;
+        this.clientIds = clientIds;
+        this.clientTypes = clientTypes;
+        this.creditScores = creditScores;
+        this.businessTypes = businessTypes;
+        this.businessTypeNames = businessTypeNames;
+        this.accountCount = accountCount;
+        this.accountIds = accountIds;
+        this.accountTypes = accountTypes;
+        this.balanceCents = balanceCents;
+        this.creditLimitCents = creditLimitCents;
+        this.owners = owners;
+    }
+
+    int lastClientId() {
+        return clientCount == 0 ? 0 : clientIds[clientCount - 1];
+    }
+
+    int lastAccountId() {
+        return accountCount == 0 ? 0 : accountIds[accountCount - 1];
+    }
+
+    static byte code(String value, String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(value)) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown type: " + value);
+    }
+}
@@ -0,0 +1,103 @@
+package com.jbank.analytics;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join scans over the account rows. A task splits its row range in halves until it is at most
+ * {@link #LEAF_ROWS} long, then runs one tight loop over it; partial results are combined on the way up.
+ *
+ * @author juanf
+ */
+final class ScanTasks {
+    static final int LEAF_ROWS = 1 << 16;
+
+    private ScanTasks() {
+    }
+
+    // Per group: account count, balance sum and credit limit sum, at [3 * group], [3 * group + 1], [3 * group + 2]
+    static final class Aggregate extends RecursiveTask<long[]> {
+        private final PortfolioColumns columns;
+        private final AccountFilter.Compiled filter;
+        private final Dimension dimension;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        Aggregate(PortfolioColumns columns, AccountFilter.Compiled filter, Dimension dimension, int groups,
+                int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.dimension = dimension;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                Aggregate left = new Aggregate(columns, filter, dimension, groups, from, middle);
+                left.fork();
+                long[] totals = new Aggregate(columns, filter, dimension, groups, middle, to).compute();
+                long[] other = left.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += other[i];
+                }
+                return totals;
+            }
+            long[] totals = new long[groups * 3];
+            long[] balances = columns.balanceCents;
+            long[] limits = columns.creditLimitCents;
+            for (int row = from; row < to; row++) {
+                if (filter.matches(columns, row)) {
+                    int slot = dimension.group(columns, row) * 3;
+                    totals[slot]++;
+                    totals[slot + 1] += balances[row];
+                    totals[slot + 2] += limits[row];
+                }
+            }
+            return totals;
+        }
+    }
+
+    // Values of the measure for the matching rows, in row order
+    static final class Collect extends RecursiveTask<long[]> {
+        private final PortfolioColumns columns;
+        private final AccountFilter.Compiled filter;
+        private final Measure measure;
+        private final int from;
+        private final int to;
+
+        Collect(PortfolioColumns columns, AccountFilter.Compiled filter, Measure measure, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.measure = measure;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                Collect left = new Collect(columns, filter, measure, from, middle);
+                left.fork();
+                long[] right = new Collect(columns, filter, measure, middle, to).compute();
+                long[] values = left.join();
+                long[] both = Arrays.copyOf(values, values.length + right.length);
+                System.arraycopy(right, 0, both, values.length, right.length);
+                return both;
+            }
+            long[] values = new long[to - from];
+            int count = 0;
+            for (int row = from; row < to; row++) {
+                if (filter.matches(columns, row) && measure.has(columns, row)) {
+                    values[count++] = measure.value(columns, row);
+                }
+            }
+            return Arrays.copyOf(values, count);
+        }
+    }
+}
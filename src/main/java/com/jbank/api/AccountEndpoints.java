@@ -0,0 +1,405 @@
+package com.jbank.api;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.jbank.model.AbstractAccount;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * JSON endpoints for accounts and their owners:
+ *
+ * <pre>
+ * GET    /checking-accounts                all accounts
+ * POST   /checking-accounts                create for {"clientId": n, ...}, who becomes PRIMARY owner
+ * GET    /checking-accounts/{id}
+ * PUT    /checking-accounts/{id}           account settings; the balance only changes through movements
+ * DELETE /checking-accounts/{id}
+ * POST   /checking-accounts/{id}/deposits  {"amount": x}
+ * POST   /checking-accounts/{id}/withdrawals
+ * </pre>
+ *
+ * the same under /savings-accounts (plus /interest and /withdrawal-counter-reset) and /credit-lines
+ * (/charges, /payments, /limit-increase, GET /minimum-payment), and owners under /accounts/{id}/owners.
+ *
+ * A money movement answers 200 with the account when it went through, and otherwise the
+ * {@link TransactionResult} as the error code: 422 for a business-rule rejection, 409 when the balance
+ * changed concurrently, 503 when it could not be stored.
+ *
+ * @author juanf
+ */
+public class AccountEndpoints {
+    private final CheckingAccountService checkingService;
+    private final SavingsAccountService savingsService;
+    private final CreditLineService creditLineService;
+    private final ClientAccountDAO clientAccountDAO;
+
+    public AccountEndpoints(CheckingAccountService checkingService, SavingsAccountService savingsService,
+            CreditLineService creditLineService, ClientAccountDAO clientAccountDAO) {
+        this.checkingService = checkingService;
+        this.savingsService = savingsService;
+        this.creditLineService = creditLineService;
+        this.clientAccountDAO = clientAccountDAO;
+    }
+
+    public void register(Router router) {
+        router.get("/checking-accounts", "checking.list", request -> list(checkingService.getAll(), AccountEndpoints::writeChecking))
+                .post("/checking-accounts", "checking.create", this::createChecking)
+                .get("/checking-accounts/{id}", "checking.get",
+                        request -> get(request, this::findChecking, AccountEndpoints::writeChecking))
+                .put("/checking-accounts/{id}", "checking.update", this::updateChecking)
+                .delete("/checking-accounts/{id}", "checking.delete", request -> {
+                    findChecking(request);
+                    return ClientEndpoints.deleted(checkingService.delete(request.pathId("id")), "Checking account could not be deleted");
+                })
+                .post("/checking-accounts/{id}/deposits", "checking.deposit", request -> {
+                    CheckingAccount account = findCheckingForWrite(request);
+                    return movement(checkingService.tryDeposit(account, request.requireDouble("amount")),
+                            json -> writeChecking(json, account));
+                })
+                .post("/checking-accounts/{id}/withdrawals", "checking.withdraw", request -> {
+                    CheckingAccount account = findCheckingForWrite(request);
+                    return movement(checkingService.tryWithdraw(account, request.requireDouble("amount")),
+                            json -> writeChecking(json, account));
+                });
+
+        router.get("/savings-accounts", "savings.list", request -> list(savingsService.getAll(), AccountEndpoints::writeSavings))
+                .post("/savings-accounts", "savings.create", this::createSavings)
+                .get("/savings-accounts/{id}", "savings.get",
+                        request -> get(request, this::findSavings, AccountEndpoints::writeSavings))
+                .put("/savings-accounts/{id}", "savings.update", this::updateSavings)
+                .delete("/savings-accounts/{id}", "savings.delete", request -> {
+                    findSavings(request);
+                    return ClientEndpoints.deleted(savingsService.delete(request.pathId("id")), "Savings account could not be deleted");
+                })
+                .post("/savings-accounts/{id}/deposits", "savings.deposit", request -> {
+                    SavingsAccount account = findSavingsForWrite(request);
+                    return movement(savingsService.tryDeposit(account, request.requireDouble("amount")),
+                            json -> writeSavings(json, account));
+                })
+                .post("/savings-accounts/{id}/withdrawals", "savings.withdraw", request -> {
+                    SavingsAccount account = findSavingsForWrite(request);
+                    return movement(savingsService.tryWithdraw(account, request.requireDouble("amount")),
+                            json -> writeSavings(json, account));
+                })
+                .post("/savings-accounts/{id}/interest", "savings.interest", request -> {
+                    SavingsAccount account = findSavingsForWrite(request);
+                    return stored(savingsService.applyInterest(account), json -> writeSavings(json, account));
+                })
+                .post("/savings-accounts/{id}/withdrawal-counter-reset", "savings.resetWithdrawals", request -> {
+                    SavingsAccount account = findSavingsForWrite(request);
+                    return stored(savingsService.resetWithdrawalCounter(account), json -> writeSavings(json, account));
+                });
+
+        router.get("/credit-lines", "credit.list", request -> list(creditLineService.getAll(), AccountEndpoints::writeCreditLine))
+                .post("/credit-lines", "credit.create", this::createCreditLine)
+                .get("/credit-lines/{id}", "credit.get",
+                        request -> get(request, this::findCreditLine, AccountEndpoints::writeCreditLine))
+                .put("/credit-lines/{id}", "credit.update", this::updateCreditLine)
+                .delete("/credit-lines/{id}", "credit.delete", request -> {
+                    findCreditLine(request);
+                    return ClientEndpoints.deleted(creditLineService.delete(request.pathId("id")), "Credit line could not be deleted");
+                })
+                .post("/credit-lines/{id}/charges", "credit.charge", request -> {
+                    CreditLine account = findCreditLineForWrite(request);
+                    return movement(creditLineService.tryChargeCredit(account, request.requireDouble("amount")),
+                            json -> writeCreditLine(json, account));
+                })
+                .post("/credit-lines/{id}/payments", "credit.payment", request -> {
+                    CreditLine account = findCreditLineForWrite(request);
+                    return movement(creditLineService.tryMakePayment(account, request.requireDouble("amount")),
+                            json -> writeCreditLine(json, account));
+                })
+                .post("/credit-lines/{id}/limit-increase", "credit.increaseLimit", request -> {
+                    CreditLine account = findCreditLineForWrite(request);
+                    return stored(creditLineService.increaseCreditLimit(account), json -> writeCreditLine(json, account));
+                })
+                .get("/credit-lines/{id}/minimum-payment", "credit.minimumPayment", request -> {
+                    CreditLine account = findCreditLine(request);
+                    double minimum = creditLineService.calculateMinimumPayment(account);
+                    return ApiResponse.ok(json -> json.beginObject()
+                            .field("accountId", account.getAccountID())
+                            .field("minimumPayment", minimum)
+                            .endObject());
+                });
+
+        router.get("/accounts/{id}/owners", "owners.list", this::listOwners)
+                .post("/accounts/{id}/owners", "owners.add", this::addOwner)
+                .delete("/accounts/{id}/owners", "owners.removeAll", request -> {
+                    clientAccountDAO.removeAllClientsFromAccount(request.pathId("id"));
+                    return ApiResponse.noContent();
+                })
+                .get("/accounts/{id}/owners/{clientId}", "owners.check", request -> {
+                    int accountId = request.pathId("id");
+                    int clientId = request.pathId("clientId");
+                    boolean owner = clientAccountDAO.clientOwnsAccount(clientId, accountId);
+                    return ApiResponse.ok(json -> json.beginObject()
+                            .field("accountId", accountId)
+                            .field("clientId", clientId)
+                            .field("owner", owner)
+                            .endObject());
+                })
+                .delete("/accounts/{id}/owners/{clientId}", "owners.remove", request -> {
+                    if (!clientAccountDAO.removeAccountFromClient(request.pathId("clientId"), request.pathId("id"))) {
+                        throw ApiException.notFound("Client does not own the account");
+                    }
+                    return ApiResponse.noContent();
+                })
+                .get("/joint-accounts", "owners.joint", request -> {
+                    List<Integer> accountIds = clientAccountDAO.getAllJointAccounts();
+                    return ApiResponse.ok(json -> {
+                        json.beginArray();
+                        for (Integer accountId : accountIds) {
+                            json.value(accountId);
+                        }
+                        json.endArray();
+                    });
+                });
+    }
+
+    // Checking accounts
+
+    private ApiResponse createChecking(ApiRequest request) {
+        CheckingAccount account = new CheckingAccount(request.requireInt("clientId"), 0,
+                request.requireDouble("initialDeposit"),
+                request.requireString("accountName"),
+                request.requireDouble("overdraftFee"),
+                request.requireDouble("overdraftLimit"));
+        return ClientEndpoints.created(checkingService.create(account, account.getCustomerID()),
+                "Checking account could not be created");
+    }
+
+    private ApiResponse updateChecking(ApiRequest request) {
+        CheckingAccount account = findCheckingForWrite(request);
+        if (request.has("overdraftFee")) {
+            account.setOverdraftFee(request.requireDouble("overdraftFee"));
+        }
+        if (request.has("overdraftLimit")) {
+            account.setOverdraftLimit(request.requireDouble("overdraftLimit"));
+        }
+        CheckingAccount updated = checkingService.update(account.getAccountID(), account);
+        return updated(updated, json -> writeChecking(json, updated));
+    }
+
+    private CheckingAccount findChecking(ApiRequest request) {
+        int id = request.pathId("id");
+        return checkingService.getById(id).orElseThrow(() -> ApiException.notFound("No checking account with ID " + id));
+    }
+
+    // The account as committed on the primary, for requests that change it
+    private CheckingAccount findCheckingForWrite(ApiRequest request) {
+        int id = request.pathId("id");
+        return checkingService.getByIdForWrite(id).orElseThrow(() -> ApiException.notFound("No checking account with ID " + id));
+    }
+
+    static void writeChecking(JsonWriter json, CheckingAccount account) throws IOException {
+        writeCommon(json.beginObject(), account);
+        json.field("overdraftFee", account.getOverdraftFee())
+                .field("overdraftLimit", account.getOverdraftLimit())
+                .endObject();
+    }
+
+    // Savings accounts
+
+    private ApiResponse createSavings(ApiRequest request) {
+        SavingsAccount account = new SavingsAccount(request.requireInt("clientId"), 0,
+                request.requireDouble("initialDeposit"),
+                request.requireString("accountName"),
+                request.requireDouble("interestRate"),
+                request.requireInt("withdrawalLimit"));
+        return ClientEndpoints.created(savingsService.create(account, account.getCustomerID()),
+                "Savings account could not be created");
+    }
+
+    private ApiResponse updateSavings(ApiRequest request) {
+        SavingsAccount account = findSavingsForWrite(request);
+        if (request.has("interestRate")) {
+            account.setInterestRate(request.requireDouble("interestRate"));
+        }
+        if (request.has("withdrawalLimit")) {
+            account.setWithdrawalLimit(request.requireInt("withdrawalLimit"));
+        }
+        SavingsAccount updated = savingsService.update(account.getAccountID(), account);
+        return updated(updated, json -> writeSavings(json, updated));
+    }
+
+    private SavingsAccount findSavings(ApiRequest request) {
+        int id = request.pathId("id");
+        return savingsService.getById(id).orElseThrow(() -> ApiException.notFound("No savings account with ID " + id));
+    }
+
+    // The account as committed on the primary, for requests that change it
+    private SavingsAccount findSavingsForWrite(ApiRequest request) {
+        int id = request.pathId("id");
+        return savingsService.getByIdForWrite(id).orElseThrow(() -> ApiException.notFound("No savings account with ID " + id));
+    }
+
+    static void writeSavings(JsonWriter json, SavingsAccount account) throws IOException {
+        writeCommon(json.beginObject(), account);
+        json.field("interestRate", account.getInterestRate())
+                .field("withdrawalLimit", account.getWithdrawalLimit())
+                .field("withdrawalCounter", account.getWithdrawalCounter())
+                .endObject();
+    }
+
+    // Credit lines
+
+    private ApiResponse createCreditLine(ApiRequest request) {
+        CreditLine account = new CreditLine(request.requireInt("clientId"), 0, 0,
+                request.requireString("accountName"),
+                request.requireDouble("creditLimit"),
+                request.requireDouble("interestRate"),
+                request.requireDouble("minPaymentPercentage"));
+        return ClientEndpoints.created(creditLineService.create(account, account.getCustomerID()),
+                "Credit line could not be created");
+    }
+
+    private ApiResponse updateCreditLine(ApiRequest request) {
+        CreditLine account = findCreditLineForWrite(request);
+        if (request.has("creditLimit")) {
+            account.setCreditLimit(request.requireDouble("creditLimit"));
+        }
+        if (request.has("interestRate")) {
+            account.setInterestRate(request.requireDouble("interestRate"));
+        }
+        if (request.has("minPaymentPercentage")) {
+            account.setMinPaymentPercentage(request.requireDouble("minPaymentPercentage"));
+        }
+        CreditLine updated = creditLineService.update(account.getAccountID(), account);
+        return updated(updated, json -> writeCreditLine(json, updated));
+    }
+
+    private CreditLine findCreditLine(ApiRequest request) {
+        int id = request.pathId("id");
+        return creditLineService.getById(id).orElseThrow(() -> ApiException.notFound("No credit line with ID " + id));
+    }
+
+    // The account as committed on the primary, for requests that change it
+    private CreditLine findCreditLineForWrite(ApiRequest request) {
+        int id = request.pathId("id");
+        return creditLineService.getByIdForWrite(id).orElseThrow(() -> ApiException.notFound("No credit line with ID " + id));
+    }
+
+    static void writeCreditLine(JsonWriter json, CreditLine account) throws IOException {
+        writeCommon(json.beginObject(), account);
+        json.field("creditLimit", account.getCreditLimit())
+                .field("interestRate", account.getInterestRate())
+                .field("minPaymentPercentage", account.getMinPaymentPercentage() * 100) // Model stores a fraction
+                .endObject();
+    }
+
+    // Owners
+
+    private ApiResponse listOwners(ApiRequest request) throws SQLException {
+        int accountId = request.pathId("id");
+        Map<Integer, String> owners = clientAccountDAO.getClientsByAccount(accountId);
+        return ApiResponse.ok(json -> {
+            json.beginObject().field("accountId", accountId).name("owners").beginArray();
+            for (Map.Entry<Integer, String> owner : owners.entrySet()) {
+                json.beginObject()
+                        .field("clientId", owner.getKey())
+                        .field("ownershipType", owner.getValue())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    private ApiResponse addOwner(ApiRequest request) throws SQLException {
+        int accountId = request.pathId("id");
+        int clientId = request.requireInt("clientId");
+        String ownershipType = request.requireString("ownershipType");
+        if (!"PRIMARY".equals(ownershipType) && !"JOINT".equals(ownershipType)) {
+            throw ApiException.badRequest("Ownership type must be PRIMARY or JOINT");
+        }
+        if (!clientAccountDAO.assignAccountToClient(clientId, accountId, ownershipType)) {
+            throw new ApiException(409, "NOT_ASSIGNED", "Client could not be added as an owner");
+        }
+        return ApiResponse.created(json -> json.beginObject()
+                .field("accountId", accountId)
+                .field("clientId", clientId)
+                .field("ownershipType", ownershipType)
+                .endObject());
+    }
+
+    // Shared responses
+
+    private interface View<T> {
+        void write(JsonWriter json, T account) throws IOException;
+    }
+
+    private static <T> ApiResponse list(List<T> accounts, View<T> view) {
+        return ApiResponse.ok(json -> {
+            json.beginArray();
+            for (T account : accounts) {
+                view.write(json, account);
+            }
+            json.endArray();
+        });
+    }
+
+    private static <T> ApiResponse get(ApiRequest request, Function<ApiRequest, T> find, View<T> view) {
+        T account = find.apply(request);
+        return ApiResponse.ok(json -> view.write(json, account));
+    }
+
+    private static void writeCommon(JsonWriter json, AbstractAccount account) throws IOException {
+        json.field("id", account.getAccountID())
+                .field("clientId", account.getCustomerID())
+                .field("accountName", account.getAccountName())
+                .field("balance", account.getBalance());
+    }
+
+    static ApiResponse movement(TransactionResult result, ApiResponse.Body account) {
+        if (result.isSuccess()) {
+            return ApiResponse.ok(json -> {
+                json.beginObject().field("result", result.name()).name("account");
+                account.write(json);
+                json.endObject();
+            });
+        }
+        return ApiResponse.error(statusOf(result), result.name(), result.getMessage());
+    }
+
+    static int statusOf(TransactionResult result) {
+        switch (result) {
+            case OK:
+                return 200;
+            case INVALID_DEPOSIT_AMOUNT:
+            case INVALID_WITHDRAWAL_AMOUNT:
+            case INVALID_CHARGE_AMOUNT:
+            case INVALID_PAYMENT_AMOUNT:
+            case INVALID_ACCOUNT:
+            case INVALID_REQUEST:
+                return 400;
+            case REJECTED:
+                return 409;
+            case JOURNAL_ERROR:
+            case DB_ERROR:
+                return 503;
+            default:
+                return 422;
+        }
+    }
+
+    private static ApiResponse stored(boolean stored, ApiResponse.Body account) {
+        if (!stored) {
+            throw new ApiException(503, "UPDATE_FAILED", "Account could not be updated");
+        }
+        return ApiResponse.ok(account);
+    }
+
+    private static ApiResponse updated(AbstractAccount updated, ApiResponse.Body account) {
+        return stored(updated != null, account);
+    }
+}
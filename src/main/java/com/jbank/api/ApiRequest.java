@@ -0,0 +1,110 @@
+package com.jbank.api;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A parsed API request: path parameters from the matched route, query parameters and the JSON body.
+ * The body is parsed on first use, so handlers that take none pay nothing for it.
+ *
+ * The accessors report missing or mistyped input as a 400 {@link ApiException}.
+ *
+ * @author juanf
+ */
+public final class ApiRequest {
+    private final Map<String, String> pathParams;
+    private final String rawQuery;
+    private final byte[] body;
+    private Map<String, String> query;
+    private Map<String, Object> json;
+
+    public ApiRequest(Map<String, String> pathParams, String rawQuery, byte[] body) {
+        this.pathParams = pathParams;
+        this.rawQuery = rawQuery;
+        this.body = body;
+    }
+
+    // Path parameter holding a positive integer ID
+    public int pathId(String name) {
+        String value = pathParams.get(name);
+        try {
+            int id = Integer.parseInt(value);
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw ApiException.badRequest("Path parameter '" + name + "' must be a positive integer: " + value);
+    }
+
+    // Query parameter, or null when absent
+    public String query(String name) {
+        if (query == null) {
+            query = parseQuery(rawQuery);
+        }
+        return query.get(name);
+    }
+
+    public String requireString(String name) {
+        Object value = field(name);
+        if (!(value instanceof String)) {
+            throw ApiException.badRequest("Field '" + name + "' must be a string");
+        }
+        return (String) value;
+    }
+
+    public double requireDouble(String name) {
+        Object value = field(name);
+        if (!(value instanceof Double)) {
+            throw ApiException.badRequest("Field '" + name + "' must be a number");
+        }
+        return (Double) value;
+    }
+
+    public int requireInt(String name) {
+        double value = requireDouble(name);
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw ApiException.badRequest("Field '" + name + "' must be an integer");
+        }
+        return (int) value;
+    }
+
+    public boolean has(String name) {
+        return json().get(name) != null;
+    }
+
+    private Object field(String name) {
+        Object value = json().get(name);
+        if (value == null) {
+            throw ApiException.badRequest("Missing field '" + name + "'");
+        }
+        return value;
+    }
+
+    private Map<String, Object> json() {
+        if (json == null) {
+            if (body.length == 0) {
+                throw ApiException.badRequest("Request body required");
+            }
+            json = JsonReader.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+        return json;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,58 @@
+package com.jbank.api;
+
+import java.io.IOException;
+
+/**
+ * Status and body of an API response. The body is written by the server straight into the response
+ * through a {@link JsonWriter} once the handler has returned.
+ *
+ * @author juanf
+ */
+public final class ApiResponse {
+
+    // Writes one JSON value
+    @FunctionalInterface
+    public interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private final int status;
+    private final Body body;
+
+    private ApiResponse(int status, Body body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public static ApiResponse ok(Body body) {
+        return new ApiResponse(200, body);
+    }
+
+    public static ApiResponse created(Body body) {
+        return new ApiResponse(201, body);
+    }
+
+    public static ApiResponse noContent() {
+        return new ApiResponse(204, null);
+    }
+
+    public static ApiResponse status(int status, Body body) {
+        return new ApiResponse(status, body);
+    }
+
+    public static ApiResponse error(int status, String code, String message) {
+        return new ApiResponse(status, json -> json.beginObject()
+                .field("error", code)
+                .field("message", message)
+                .endObject());
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    // Null when the response has no body
+    public Body getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,325 @@
+package com.jbank.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP/JSON server for the service layer, on the JDK's com.sun.net.httpserver.
+ *
+ * Requests are handled on a fixed pool of worker threads with a bounded queue; when the queue is full
+ * the accepting thread runs the request itself, which stops it from accepting more until it is done, so
+ * overload turns into back-pressure on the clients' connections instead of an unbounded backlog.
+ * Connections are kept alive between requests (every response has a length or is chunked), and request
+ * bodies over the size limit are refused with 413 and the connection closed without reading them.
+ *
+ * Responses are written through a {@link JsonWriter} into a buffer and sent with a Content-Length; one
+ * that outgrows the buffer is streamed chunked instead. Each matched request is timed as api.&lt;route&gt;
+ * and, when sampled, traced with that name as the root span.
+ *
+ * Every worker thread serves with routes of its own, built on its first request by the server's
+ * {@link RouterFactory}, so services that hold a connection can give each worker a different one and
+ * no two requests share a transaction.
+ *
+ * With read replicas, a request carrying an X-JBank-Session header runs in that named session, so a
+ * client that sends the same value on every request reads its own writes.
+ *
+ * @author juanf
+ */
+public class ApiServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApiServer.class);
+
+    public static final int DEFAULT_MAX_BODY_BYTES = 16 * 1024;
+
+    private static final int BACKLOG = 1024;
+    // Responses up to this size are sent with a Content-Length, larger ones chunked
+    private static final int RESPONSE_BUFFER_BYTES = 64 * 1024;
+    private static final String SESSION_HEADER = "X-JBank-Session";
+    private static final ReplicaRouter.Scope NO_SESSION = () -> { };
+
+    // Builds the routes a worker thread serves with, on its first request
+    @FunctionalInterface
+    public interface RouterFactory {
+        Router create() throws SQLException;
+    }
+
+    private final RouterFactory routerFactory;
+    private final ThreadLocal<Router> workerRouter = new ThreadLocal<>();
+    private final int maxBodyBytes;
+    private ReplicaRouter replicaRouter;
+    private HttpServer server;
+    private ThreadPoolExecutor executor;
+
+    // Every worker serves with the same routes; their services must not hold a transaction across calls
+    public ApiServer(Router router, int maxBodyBytes) {
+        this(() -> router, maxBodyBytes);
+    }
+
+    public ApiServer(RouterFactory routerFactory, int maxBodyBytes) {
+        this.routerFactory = routerFactory;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    // Routes for every client, account and ownership endpoint
+    public static Router routes(PersonalClientService personalClientService, BusinessClientService businessClientService,
+            CheckingAccountService checkingService, SavingsAccountService savingsService,
+            CreditLineService creditLineService, ClientAccountDAO clientAccountDAO) {
+        Router router = new Router();
+        new ClientEndpoints(personalClientService, businessClientService).register(router);
+        new AccountEndpoints(checkingService, savingsService, creditLineService, clientAccountDAO).register(router);
+        return router;
+    }
+
+    /**
+     * Idle keep-alive time and TCP_NODELAY for the JDK server. They are read once, when the first
+     * HttpServer in the process is created, so call this before starting any (including the metrics one).
+     * Settings already given on the command line win.
+     */
+    public static void configureConnections(int idleSeconds, int maxIdleConnections) {
+        System.setProperty("sun.net.httpserver.idleInterval",
+                System.getProperty("sun.net.httpserver.idleInterval", Integer.toString(idleSeconds)));
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(maxIdleConnections)));
+        // Small responses on kept-alive connections would otherwise wait on Nagle's algorithm
+        System.setProperty("sun.net.httpserver.nodelay", System.getProperty("sun.net.httpserver.nodelay", "true"));
+    }
+
+    // Binds requests with a session header to that session of the router. Pass null to disable
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Starts listening. Port 0 picks a free port; see {@link #getPort()}.
+     */
+    public void start(int port, int threads, int queueCapacity) throws IOException {
+        AtomicInteger workers = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "api-worker-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        Metrics.gauge("api.queued", () -> executor.getQueue().size());
+        Metrics.gauge("api.active", () -> executor.getActiveCount());
+
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        LOGGER.info("Serving the JBank API on port {} with {} workers", getPort(), threads);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting, lets exchanges in progress finish for up to delaySeconds, then stops the workers
+    public void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    void handle(HttpExchange exchange) {
+        try {
+            ApiResponse response;
+            boolean close = false;
+            try {
+                Router.Match match = workerRouter().match(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+                byte[] body = readBody(exchange);
+                ApiRequest request = new ApiRequest(match.getPathParams(), exchange.getRequestURI().getRawQuery(), body);
+                try (ReplicaRouter.Scope scope = bindSession(exchange)) {
+                    response = invoke(match.getRoute(), request);
+                }
+            } catch (ApiException e) {
+                // Unknown routes and oversized bodies; the body of the latter is left unread
+                response = ApiResponse.error(e.getStatus(), e.getCode(), e.getMessage());
+                close = e.getStatus() == 413;
+            }
+            send(exchange, response, close);
+        } catch (IOException e) {
+            LOGGER.debug("Could not answer {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Router workerRouter() {
+        Router router = workerRouter.get();
+        if (router == null) {
+            try {
+                router = routerFactory.create();
+            } catch (SQLException e) {
+                // Not cached, so the worker tries again on its next request
+                LOGGER.warn("Could not set up {} to serve requests: {}", Thread.currentThread().getName(), e.getMessage());
+                throw new ApiException(503, "DB_ERROR", "Database error");
+            }
+            workerRouter.set(router);
+        }
+        return router;
+    }
+
+    private ReplicaRouter.Scope bindSession(HttpExchange exchange) {
+        String session = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (replicaRouter == null || session == null || session.isBlank()) {
+            return NO_SESSION;
+        }
+        return replicaRouter.bind(replicaRouter.session(session));
+    }
+
+    private ApiResponse invoke(Router.Route route, ApiRequest request) {
+        try (Span trace = Tracer.startTrace(route.getMetricName());
+                Metrics.Sample sample = Metrics.time(route.getMetricName())) {
+            ApiResponse response = dispatch(route, request);
+            if (response.getStatus() >= 400) {
+                sample.fail(Integer.toString(response.getStatus()));
+            }
+            return response;
+        }
+    }
+
+    private static ApiResponse dispatch(Router.Route route, ApiRequest request) {
+        try {
+            return route.getHandler().handle(request);
+        } catch (ApiException e) {
+            return ApiResponse.error(e.getStatus(), e.getCode(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Malformed JSON, or values the models reject
+            return ApiResponse.error(400, "BAD_REQUEST", e.getMessage());
+        } catch (SQLException e) {
+            LOGGER.warn("Database error in {}: {}", route.getName(), e.getMessage());
+            return ApiResponse.error(503, "DB_ERROR", "Database error");
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error in {}", route.getName(), e);
+            return ApiResponse.error(500, "INTERNAL_ERROR", "Internal error");
+        }
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null) {
+            try {
+                if (Long.parseLong(declared.trim()) > maxBodyBytes) {
+                    throw tooLarge();
+                }
+            } catch (NumberFormatException e) {
+                throw ApiException.badRequest("Invalid Content-Length");
+            }
+        }
+        // Chunked bodies have no declared length: read one byte past the limit to detect the overflow
+        InputStream in = exchange.getRequestBody();
+        byte[] body = in.readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            throw tooLarge();
+        }
+        in.close();
+        return body;
+    }
+
+    private ApiException tooLarge() {
+        return new ApiException(413, "PAYLOAD_TOO_LARGE", "Request body exceeds " + maxBodyBytes + " bytes");
+    }
+
+    private static void send(HttpExchange exchange, ApiResponse response, boolean close) throws IOException {
+        if (close) {
+            exchange.getResponseHeaders().set("Connection", "close");
+        }
+        if (response.getBody() == null) {
+            exchange.sendResponseHeaders(response.getStatus(), -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ResponseOutput out = new ResponseOutput(exchange, response.getStatus());
+        try {
+            JsonWriter json = new JsonWriter(out);
+            response.getBody().write(json);
+            json.flush();
+        } catch (RuntimeException e) {
+            if (out.isStreaming()) {
+                // Headers are gone; all that can be done is cut the response short
+                throw new IOException("Response failed after streaming started", e);
+            }
+            LOGGER.error("Could not write response", e);
+            out = new ResponseOutput(exchange, 500);
+            JsonWriter json = new JsonWriter(out);
+            ApiResponse.error(500, "INTERNAL_ERROR", "Internal error").getBody().write(json);
+            json.flush();
+        }
+        out.finish();
+    }
+
+    /**
+     * Buffers the response so it can be sent with a Content-Length; past the buffer size it sends the
+     * headers for a chunked response and streams the rest.
+     */
+    private static final class ResponseOutput extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        private OutputStream body;
+
+        ResponseOutput(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        boolean isStreaming() {
+            return body != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (body != null) {
+                body.write(bytes, offset, length);
+                return;
+            }
+            buffer.write(bytes, offset, length);
+            if (buffer.size() > RESPONSE_BUFFER_BYTES) {
+                exchange.sendResponseHeaders(status, 0);
+                body = exchange.getResponseBody();
+                buffer.writeTo(body);
+                buffer.reset();
+            }
+        }
+
+        void finish() throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, buffer.size());
+                body = exchange.getResponseBody();
+                buffer.writeTo(body);
+            }
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.jbank.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.jbank.cache.CacheCoherence;
+import com.jbank.cache.CachedEntity;
+import com.jbank.cache.EntityCache;
+import com.jbank.cache.InvalidationTransport;
+import com.jbank.id.IdAllocator;
+import com.jbank.metrics.MetricsExporter;
+import com.jbank.outbox.Outbox;
+import com.jbank.replica.ReplicaRouter;
+import com.jbank.repository.DAO.BusinessClientDAO;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.BusinessClientEntity;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+import com.jbank.shard.ShardPool;
+import com.jbank.snapshot.SnapshotCacheWarmer;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Command-line entry point that serves the JSON API until the process is stopped. Configured with
+ * system properties. Every worker thread serves on a database connection of its own, so concurrent
+ * requests never share a transaction.
+ *
+ * jbank.api.port (default 8080), jbank.api.threads (default 4 per CPU, at least 8),
+ * jbank.api.queue (default 1024), jbank.api.maxBodyBytes (default 16384) and
+ * jbank.api.idleSeconds, how long an idle keep-alive connection stays open (default 30), and
+ * jbank.api.outbox: true to record every balance, client and ownership change in the outbox, each
+ * write on a pooled connection of its own (up to one per worker thread), and
+ * jbank.api.cacheEntries: clients and accounts cached per service, kept coherent across instances
+ * (default 0, no caching), and jbank.api.cacheSnapshot: a snapshot file the database was just restored
+ * from, to fill the caches from before serving.
+ *
+ * @author juanf
+ */
+public class ApiServerMain {
+
+    public static void main(String[] args) {
+        ApiServer.configureConnections(Integer.getInteger("jbank.api.idleSeconds", 30), 1000);
+        MetricsExporter.startFromSystemProperties();
+
+        int port = Integer.getInteger("jbank.api.port", 8080);
+        int threads = Integer.getInteger("jbank.api.threads", Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+        int queue = Integer.getInteger("jbank.api.queue", 1024);
+        int maxBodyBytes = Integer.getInteger("jbank.api.maxBodyBytes", ApiServer.DEFAULT_MAX_BODY_BYTES);
+
+        Outbox outbox = null;
+        if (Boolean.getBoolean("jbank.api.outbox")) {
+            // Workers write concurrently, so each outbox write takes its own connection
+            outbox = new Outbox(ConnectionHandler.openPool("outbox", threads));
+        }
+        WorkerCaches caches = null;
+        int cacheEntries = Integer.getInteger("jbank.api.cacheEntries", 0);
+        if (cacheEntries > 0) {
+            try {
+                caches = new WorkerCaches(cacheEntries, System.getProperty("jbank.api.cacheSnapshot"));
+            } catch (SQLException e) {
+                System.err.println("Could not set up the entity caches: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // One connection per worker, and one for the accepting thread when it runs a request itself, so a
+        // worker's transaction never takes in another worker's statements or has its autocommit flipped
+        ShardPool connections = ConnectionHandler.openPool("api", threads + 1);
+        Outbox workerOutbox = outbox;
+        WorkerCaches workerCaches = caches;
+        ApiServer server = new ApiServer(() -> workerRoutes(connections.borrow(), workerOutbox, workerCaches),
+                maxBodyBytes);
+        server.setReplicaRouter(ConnectionHandler.getReplicaRouter());
+        try {
+            server.start(port, threads, queue);
+        } catch (IOException e) {
+            System.err.println("Could not start the API server: " + e.getMessage());
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1), "api-shutdown"));
+    }
+
+    // Routes for each worker on a connection of its own from the pool, without outbox or caches
+    public static ApiServer.RouterFactory workerRoutes(ShardPool connections) {
+        return () -> workerRoutes(connections.borrow(), null, null);
+    }
+
+    // The services and DAOs one worker serves with, all on its own connection, which it keeps for good
+    private static Router workerRoutes(Connection connection, Outbox outbox, WorkerCaches caches) {
+        ReplicaRouter replicaRouter = ConnectionHandler.getReplicaRouter();
+        IdAllocator idAllocator = ConnectionHandler.getIdAllocator();
+
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO(connection);
+        clientAccountDAO.setReplicaRouter(replicaRouter);
+        PersonalClientDAO personalClientDAO = new PersonalClientDAO(connection);
+        personalClientDAO.setReplicaRouter(replicaRouter);
+        personalClientDAO.setIdAllocator(idAllocator);
+        BusinessClientDAO businessClientDAO = new BusinessClientDAO(connection);
+        businessClientDAO.setReplicaRouter(replicaRouter);
+        businessClientDAO.setIdAllocator(idAllocator);
+        CheckingAccountDAO checkingAccountDAO = new CheckingAccountDAO(connection);
+        checkingAccountDAO.setReplicaRouter(replicaRouter);
+        checkingAccountDAO.setIdAllocator(idAllocator);
+        SavingsAccountDAO savingsAccountDAO = new SavingsAccountDAO(connection);
+        savingsAccountDAO.setReplicaRouter(replicaRouter);
+        savingsAccountDAO.setIdAllocator(idAllocator);
+        CreditLineDAO creditLineDAO = new CreditLineDAO(connection);
+        creditLineDAO.setReplicaRouter(replicaRouter);
+        creditLineDAO.setIdAllocator(idAllocator);
+
+        PersonalClientService personalClientService = new PersonalClientService(personalClientDAO, clientAccountDAO);
+        personalClientService.setReplicaRouter(replicaRouter);
+        BusinessClientService businessClientService = new BusinessClientService(businessClientDAO, clientAccountDAO);
+        businessClientService.setReplicaRouter(replicaRouter);
+        CheckingAccountService checkingService = new CheckingAccountService(checkingAccountDAO, clientAccountDAO);
+        checkingService.setReplicaRouter(replicaRouter);
+        SavingsAccountService savingsService = new SavingsAccountService(savingsAccountDAO, clientAccountDAO);
+        savingsService.setReplicaRouter(replicaRouter);
+        CreditLineService creditLineService = new CreditLineService(creditLineDAO, clientAccountDAO);
+        creditLineService.setReplicaRouter(replicaRouter);
+
+        if (outbox != null) {
+            personalClientService.setOutbox(outbox);
+            businessClientService.setOutbox(outbox);
+            checkingService.setOutbox(outbox);
+            savingsService.setOutbox(outbox);
+            creditLineService.setOutbox(outbox);
+            clientAccountDAO.setOutbox(outbox);
+        }
+        if (caches != null) {
+            personalClientService.setCache(caches.personalClients);
+            businessClientService.setCache(caches.businessClients);
+            checkingService.setCache(caches.checkingAccounts);
+            savingsService.setCache(caches.savingsAccounts);
+            creditLineService.setCache(caches.creditLines);
+        }
+        return ApiServer.routes(personalClientService, businessClientService,
+                checkingService, savingsService, creditLineService, clientAccountDAO);
+    }
+
+    // One cache per kind of entity, shared by every worker and kept coherent across instances
+    private static final class WorkerCaches {
+        final EntityCache<PersonalClientEntity> personalClients;
+        final EntityCache<BusinessClientEntity> businessClients;
+        final EntityCache<CheckingAccountEntity> checkingAccounts;
+        final EntityCache<SavingsAccountEntity> savingsAccounts;
+        final EntityCache<CreditLineEntity> creditLines;
+
+        WorkerCaches(int entries, String snapshot) throws SQLException {
+            CacheCoherence coherence = new CacheCoherence(ConnectionHandler::openConnection,
+                    InvalidationTransport.forConnection(ConnectionHandler.getConnection(), CacheCoherence.DEFAULT_CHANNEL),
+                    CacheCoherence.DEFAULT_COALESCE_MILLIS);
+            personalClients = coherence.register(new EntityCache<>(CachedEntity.CLIENT, entries));
+            businessClients = coherence.register(new EntityCache<>(CachedEntity.CLIENT, entries));
+            checkingAccounts = coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, entries));
+            savingsAccounts = coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, entries));
+            creditLines = coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, entries));
+            if (snapshot != null) {
+                warm(Path.of(snapshot));
+            }
+            coherence.start();
+        }
+
+        private void warm(Path snapshot) {
+            SnapshotCacheWarmer warmer = new SnapshotCacheWarmer(snapshot);
+            warmer.setPersonalClientCache(personalClients);
+            warmer.setBusinessClientCache(businessClients);
+            warmer.setCheckingAccountCache(checkingAccounts);
+            warmer.setSavingsAccountCache(savingsAccounts);
+            warmer.setCreditLineCache(creditLines);
+            try {
+                warmer.warm();
+            } catch (IOException e) {
+                // The caches fill from the database instead
+                System.err.println("Could not warm the entity caches from " + snapshot + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.jbank.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.jbank.model.BusinessClient;
+import com.jbank.model.PersonalClient;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.util.AccountDeletionException;
+import com.jbank.validator.PersonalClientValidator;
+
+/**
+ * JSON endpoints for personal and business clients:
+ *
+ * <pre>
+ * GET    /personal-clients[?taxId=]        all clients, or the one with the tax ID
+ * POST   /personal-clients                 create, returns {"id": n}
+ * GET    /personal-clients/{id}
+ * PUT    /personal-clients/{id}            fields left out keep their value; the tax ID cannot change
+ * DELETE /personal-clients/{id}            409 while a sole-owned account has a balance
+ * GET    /personal-clients/{id}/accounts   account IDs and ownership types
+ * </pre>
+ *
+ * and the same under /business-clients, looked up by ?ein= instead.
+ *
+ * @author juanf
+ */
+public class ClientEndpoints {
+    private final PersonalClientService personalClientService;
+    private final BusinessClientService businessClientService;
+
+    public ClientEndpoints(PersonalClientService personalClientService, BusinessClientService businessClientService) {
+        this.personalClientService = personalClientService;
+        this.businessClientService = businessClientService;
+    }
+
+    public void register(Router router) {
+        router.get("/personal-clients", "personal.list", this::listPersonal)
+                .post("/personal-clients", "personal.create", this::createPersonal)
+                .get("/personal-clients/{id}", "personal.get", this::getPersonal)
+                .put("/personal-clients/{id}", "personal.update", this::updatePersonal)
+                .delete("/personal-clients/{id}", "personal.delete", this::deletePersonal)
+                .get("/personal-clients/{id}/accounts", "personal.accounts",
+                        request -> accounts(request.pathId("id"), personalClientService.getClientAccounts(request.pathId("id"))));
+
+        router.get("/business-clients", "business.list", this::listBusiness)
+                .post("/business-clients", "business.create", this::createBusiness)
+                .get("/business-clients/{id}", "business.get", this::getBusiness)
+                .put("/business-clients/{id}", "business.update", this::updateBusiness)
+                .delete("/business-clients/{id}", "business.delete", this::deleteBusiness)
+                .get("/business-clients/{id}/accounts", "business.accounts",
+                        request -> accounts(request.pathId("id"), businessClientService.getClientAccounts(request.pathId("id"))));
+    }
+
+    // Personal clients
+
+    private ApiResponse listPersonal(ApiRequest request) {
+        String taxId = request.query("taxId");
+        if (taxId != null) {
+            PersonalClient client = personalClientService.getByTaxID(taxId)
+                    .orElseThrow(() -> ApiException.notFound("No personal client with that tax ID"));
+            return ApiResponse.ok(json -> writePersonal(json, client));
+        }
+        List<PersonalClient> clients = personalClientService.getAll();
+        return ApiResponse.ok(json -> {
+            json.beginArray();
+            for (PersonalClient client : clients) {
+                writePersonal(json, client);
+            }
+            json.endArray();
+        });
+    }
+
+    private ApiResponse createPersonal(ApiRequest request) {
+        PersonalClient client = new PersonalClient(0,
+                request.requireString("name"),
+                request.requireString("address"),
+                request.requireString("phoneNumber"),
+                request.requireString("taxId"),
+                request.requireInt("creditScore"),
+                request.requireDouble("yearlyIncome"),
+                request.requireDouble("totalDebt"));
+        if (!PersonalClientValidator.validate(client)) {
+            throw ApiException.badRequest("Invalid personal client data");
+        }
+        return created(personalClientService.create(client), "Personal client could not be created");
+    }
+
+    private ApiResponse getPersonal(ApiRequest request) {
+        PersonalClient client = findPersonal(request.pathId("id"));
+        return ApiResponse.ok(json -> writePersonal(json, client));
+    }
+
+    private ApiResponse updatePersonal(ApiRequest request) {
+        int id = request.pathId("id");
+        PersonalClient current = findPersonal(id);
+        PersonalClient changed = new PersonalClient(id,
+                request.has("name") ? request.requireString("name") : current.getName(),
+                request.has("address") ? request.requireString("address") : current.getAddress(),
+                request.has("phoneNumber") ? request.requireString("phoneNumber") : current.getPhoneNumber(),
+                current.getTaxID(),
+                request.has("creditScore") ? request.requireInt("creditScore") : current.getCreditScore(),
+                request.has("yearlyIncome") ? request.requireDouble("yearlyIncome") : current.getYearlyIncome(),
+                request.has("totalDebt") ? request.requireDouble("totalDebt") : current.getTotalDebt());
+        PersonalClient updated = personalClientService.update(id, changed);
+        if (updated == null) {
+            throw new ApiException(503, "UPDATE_FAILED", "Personal client could not be updated");
+        }
+        return ApiResponse.ok(json -> writePersonal(json, updated));
+    }
+
+    private ApiResponse deletePersonal(ApiRequest request) {
+        int id = request.pathId("id");
+        findPersonal(id);
+        try {
+            return deleted(personalClientService.delete(id), "Personal client could not be deleted");
+        } catch (AccountDeletionException e) {
+            return deletionBlocked(e);
+        }
+    }
+
+    private PersonalClient findPersonal(int id) {
+        return personalClientService.getById(id)
+                .orElseThrow(() -> ApiException.notFound("No personal client with ID " + id));
+    }
+
+    static void writePersonal(JsonWriter json, PersonalClient client) throws IOException {
+        json.beginObject()
+                .field("id", client.getCustomerID())
+                .field("name", client.getName())
+                .field("address", client.getAddress())
+                .field("phoneNumber", client.getPhoneNumber())
+                .field("taxId", client.getTaxID())
+                .field("creditScore", client.getCreditScore())
+                .field("yearlyIncome", client.getYearlyIncome())
+                .field("totalDebt", client.getTotalDebt())
+                .endObject();
+    }
+
+    // Business clients
+
+    private ApiResponse listBusiness(ApiRequest request) {
+        String ein = request.query("ein");
+        if (ein != null) {
+            BusinessClient client = businessClientService.getByEIN(ein)
+                    .orElseThrow(() -> ApiException.notFound("No business client with that EIN"));
+            return ApiResponse.ok(json -> writeBusiness(json, client));
+        }
+        List<BusinessClient> clients = businessClientService.getAll();
+        return ApiResponse.ok(json -> {
+            json.beginArray();
+            for (BusinessClient client : clients) {
+                writeBusiness(json, client);
+            }
+            json.endArray();
+        });
+    }
+
+    private ApiResponse createBusiness(ApiRequest request) {
+        BusinessClient client = new BusinessClient(0,
+                request.requireString("name"),
+                request.requireString("address"),
+                request.requireString("phoneNumber"),
+                request.requireString("ein"),
+                request.requireString("businessType"),
+                request.requireString("contactName"),
+                request.requireString("contactTitle"),
+                request.requireDouble("totalAssetValue"),
+                request.requireDouble("annualRevenue"),
+                request.requireDouble("annualProfit"));
+        return created(businessClientService.create(client), "Business client could not be created");
+    }
+
+    private ApiResponse getBusiness(ApiRequest request) {
+        BusinessClient client = findBusiness(request.pathId("id"));
+        return ApiResponse.ok(json -> writeBusiness(json, client));
+    }
+
+    private ApiResponse updateBusiness(ApiRequest request) {
+        int id = request.pathId("id");
+        BusinessClient current = findBusiness(id);
+        BusinessClient changed = new BusinessClient(id,
+                request.has("name") ? request.requireString("name") : current.getName(),
+                request.has("address") ? request.requireString("address") : current.getAddress(),
+                request.has("phoneNumber") ? request.requireString("phoneNumber") : current.getPhoneNumber(),
+                current.getEin(),
+                request.has("businessType") ? request.requireString("businessType") : current.getBusinessType(),
+                request.has("contactName") ? request.requireString("contactName") : current.getContactName(),
+                request.has("contactTitle") ? request.requireString("contactTitle") : current.getContactTitle(),
+                request.has("totalAssetValue") ? request.requireDouble("totalAssetValue") : current.getTotalAssetValue(),
+                request.has("annualRevenue") ? request.requireDouble("annualRevenue") : current.getAnnualRevenue(),
+                request.has("annualProfit") ? request.requireDouble("annualProfit") : current.getAnnualProfit());
+        BusinessClient updated = businessClientService.update(id, changed);
+        if (updated == null) {
+            throw new ApiException(503, "UPDATE_FAILED", "Business client could not be updated");
+        }
+        return ApiResponse.ok(json -> writeBusiness(json, updated));
+    }
+
+    private ApiResponse deleteBusiness(ApiRequest request) {
+        int id = request.pathId("id");
+        findBusiness(id);
+        try {
+            return deleted(businessClientService.delete(id), "Business client could not be deleted");
+        } catch (AccountDeletionException e) {
+            return deletionBlocked(e);
+        }
+    }
+
+    private BusinessClient findBusiness(int id) {
+        return businessClientService.getById(id)
+                .orElseThrow(() -> ApiException.notFound("No business client with ID " + id));
+    }
+
+    static void writeBusiness(JsonWriter json, BusinessClient client) throws IOException {
+        json.beginObject()
+                .field("id", client.getCustomerID())
+                .field("name", client.getName())
+                .field("address", client.getAddress())
+                .field("phoneNumber", client.getPhoneNumber())
+                .field("ein", client.getEin())
+                .field("businessType", client.getBusinessType())
+                .field("contactName", client.getContactName())
+                .field("contactTitle", client.getContactTitle())
+                .field("totalAssetValue", client.getTotalAssetValue())
+                .field("annualRevenue", client.getAnnualRevenue())
+                .field("annualProfit", client.getAnnualProfit())
+                .endObject();
+    }
+
+    // Shared responses
+
+    private static ApiResponse accounts(int clientId, Map<Integer, String> accounts) {
+        return ApiResponse.ok(json -> {
+            json.beginObject().field("clientId", clientId).name("accounts").beginArray();
+            for (Map.Entry<Integer, String> account : accounts.entrySet()) {
+                json.beginObject()
+                        .field("accountId", account.getKey())
+                        .field("ownershipType", account.getValue())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    static ApiResponse created(Integer id, String failure) {
+        if (id == null) {
+            throw new ApiException(503, "CREATE_FAILED", failure);
+        }
+        return ApiResponse.created(json -> json.beginObject().field("id", id).endObject());
+    }
+
+    static ApiResponse deleted(boolean deleted, String failure) {
+        if (!deleted) {
+            throw new ApiException(503, "DELETE_FAILED", failure);
+        }
+        return ApiResponse.noContent();
+    }
+
+    private static ApiResponse deletionBlocked(AccountDeletionException e) {
+        return ApiResponse.status(409, json -> json.beginObject()
+                .field("error", "DELETION_BLOCKED")
+                .field("message", e.getMessage())
+                .field("details", Optional.ofNullable(e.getAccountDetails()).orElse("").trim())
+                .endObject());
+    }
+}
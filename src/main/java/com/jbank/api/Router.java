@@ -0,0 +1,148 @@
+package com.jbank.api;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps a method and path to a handler. Route templates are literal segments and {name} parameters,
+ * e.g. /checking-accounts/{id}/withdraw. Routes are grouped by their first segment, so a lookup only
+ * compares the few routes of one resource.
+ *
+ * @author juanf
+ */
+public final class Router {
+
+    // Database errors that escape a handler are answered with 503
+    @FunctionalInterface
+    public interface Handler {
+        ApiResponse handle(ApiRequest request) throws SQLException;
+    }
+
+    public static final class Route {
+        private final String method;
+        private final String name;
+        private final String metricName;
+        private final String[] segments;
+        private final Handler handler;
+
+        private Route(String method, String name, String[] segments, Handler handler) {
+            this.method = method;
+            this.name = name;
+            this.metricName = "api." + name;
+            this.segments = segments;
+            this.handler = handler;
+        }
+
+        // Metric and trace name, e.g. checking.withdraw
+        public String getName() {
+            return name;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public Handler getHandler() {
+            return handler;
+        }
+    }
+
+    public static final class Match {
+        private final Route route;
+        private final Map<String, String> pathParams;
+
+        private Match(Route route, Map<String, String> pathParams) {
+            this.route = route;
+            this.pathParams = pathParams;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public Map<String, String> getPathParams() {
+            return pathParams;
+        }
+    }
+
+    private final Map<String, List<Route>> routesByResource = new HashMap<>();
+
+    public Router add(String method, String template, String name, Handler handler) {
+        String[] segments = split(template);
+        routesByResource.computeIfAbsent(segments.length == 0 ? "" : segments[0], key -> new ArrayList<>())
+                .add(new Route(method, name, segments, handler));
+        return this;
+    }
+
+    public Router get(String template, String name, Handler handler) {
+        return add("GET", template, name, handler);
+    }
+
+    public Router post(String template, String name, Handler handler) {
+        return add("POST", template, name, handler);
+    }
+
+    public Router put(String template, String name, Handler handler) {
+        return add("PUT", template, name, handler);
+    }
+
+    public Router delete(String template, String name, Handler handler) {
+        return add("DELETE", template, name, handler);
+    }
+
+    /**
+     * Finds the route for a request.
+     * @throws ApiException 404 when no route has the path, 405 when none of those with it takes the method
+     */
+    public Match match(String method, String path) {
+        String[] segments = split(path);
+        List<Route> candidates = routesByResource.getOrDefault(segments.length == 0 ? "" : segments[0], List.of());
+        boolean pathMatched = false;
+        for (Route route : candidates) {
+            Map<String, String> params = bind(route.segments, segments);
+            if (params == null) {
+                continue;
+            }
+            if (route.method.equals(method)) {
+                return new Match(route, params);
+            }
+            pathMatched = true;
+        }
+        if (pathMatched) {
+            throw new ApiException(405, "METHOD_NOT_ALLOWED", method + " is not supported on " + path);
+        }
+        throw ApiException.notFound("No such resource: " + path);
+    }
+
+    // Path parameters if the path fits the template, otherwise null
+    private static Map<String, String> bind(String[] template, String[] path) {
+        if (template.length != path.length) {
+            return null;
+        }
+        Map<String, String> params = null;
+        for (int i = 0; i < template.length; i++) {
+            String segment = template[i];
+            if (segment.startsWith("{")) {
+                if (params == null) {
+                    params = new HashMap<>(4);
+                }
+                params.put(segment.substring(1, segment.length() - 1), path[i]);
+            } else if (!segment.equals(path[i])) {
+                return null;
+            }
+        }
+        return params == null ? Collections.emptyMap() : params;
+    }
+
+    private static String[] split(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        if (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+}
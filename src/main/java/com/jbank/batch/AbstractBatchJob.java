@@ -0,0 +1,29 @@
+package com.jbank.batch;
+
+/**
+ * Base class for batch jobs holding the job name and declared parallelism.
+ *
+ * @author juanf
+ */
+public abstract class AbstractBatchJob implements BatchJob {
+    private final String name;
+    private final int parallelism;
+
+    protected AbstractBatchJob(String name, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getParallelism() {
+        return parallelism;
+    }
+}
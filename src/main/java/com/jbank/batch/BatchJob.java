@@ -0,0 +1,47 @@
+package com.jbank.batch;
+
+import java.sql.Connection;
+
+/**
+ * A unit of periodic work that processes the account-ID space in partitions.
+ * The runner splits [min account_id, max account_id] into partitions that workers on any number of
+ * instances claim from the batch_partitions work queue, checkpointing every {@code getChunkSize()} IDs.
+ *
+ * @author juanf
+ */
+public interface BatchJob {
+
+    // Unique job name, used to find and resume unfinished runs
+    String getName();
+
+    // Number of worker threads (and database connections) the job may use
+    int getParallelism();
+
+    // Number of partitions to split the account-ID space into.
+    // Should comfortably exceed the total number of workers across all instances.
+    default int getPartitionCount() {
+        return Math.max(64, getParallelism() * 4);
+    }
+
+    // Width of the ID range processed between two checkpoints
+    default int getChunkSize() {
+        return 500;
+    }
+
+    // How long a claimed partition stays reserved without a checkpoint before another worker may take it
+    default int getLeaseSeconds() {
+        return 120;
+    }
+
+    // How many times a failing partition is claimed before the run gives up on it
+    default int getMaxAttempts() {
+        return 3;
+    }
+
+    /**
+     * Creates a worker bound to a dedicated connection.
+     * The connection is in manual-commit mode; the runner commits after each chunk together with
+     * the checkpoint, so the worker must not commit or close it.
+     */
+    BatchWorker createWorker(Connection connection);
+}
@@ -0,0 +1,247 @@
+package com.jbank.batch;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.repository.DAO.BatchJobDAO;
+import com.jbank.repository.entities.BatchPartitionEntity;
+import com.jbank.util.ConnectionHandler;
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Runs batch jobs over the account-ID space on a worker pool.
+ * Any number of instances may run the same job and run key against one database: they join the
+ * same run and claim its partitions from the shared work queue with FOR UPDATE SKIP LOCKED, so
+ * every partition is processed by exactly one worker and throughput grows with each instance.
+ *
+ * Each worker owns a dedicated connection and commits every chunk together with its partition
+ * checkpoint, which also renews the claim's lease. If an instance dies, its leases expire and the
+ * partitions are reclaimed by the surviving workers from the last committed checkpoint.
+ *
+ * @author juanf
+ */
+public class BatchJobRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchJobRunner.class);
+
+    // How often an instance with nothing to claim checks whether other instances' leases expired
+    private static final long POLL_INTERVAL_MILLIS = 2000;
+
+    private final ConnectionSupplier connectionSupplier;
+    private final Function<Connection, BatchJobDAO> daoFactory;
+    private final String instanceId;
+    private final Map<String, BatchProgress> activeRuns = new ConcurrentHashMap<>();
+
+    public BatchJobRunner() {
+        this(ConnectionHandler::openConnection, BatchJobDAO::new, ManagementFactory.getRuntimeMXBean().getName());
+    }
+
+    public BatchJobRunner(ConnectionSupplier connectionSupplier, Function<Connection, BatchJobDAO> daoFactory,
+            String instanceId) {
+        this.connectionSupplier = connectionSupplier;
+        this.daoFactory = daoFactory;
+        this.instanceId = instanceId;
+    }
+
+    // Runs (or joins) today's run of a job
+    public BatchProgress run(BatchJob job) throws SQLException {
+        return run(job, LocalDate.now().toString());
+    }
+
+    /**
+     * Runs a job to completion, joining the existing run for the key if there is one.
+     * A COMPLETED run is not repeated; a FAILED run is reopened and its failed partitions retried.
+     * Partition failures do not stop the other workers; a partition is retried up to
+     * {@link BatchJob#getMaxAttempts()} times before the run is closed as FAILED.
+     *
+     * @param runKey Business period of the run (e.g. the date); instances using the same key share one run
+     * @return Final progress of the run
+     * @throws SQLException if the run could not be created or joined
+     */
+    public BatchProgress run(BatchJob job, String runKey) throws SQLException {
+        try (Connection connection = connectionSupplier.get()) {
+            BatchJobDAO batchJobDAO = daoFactory.apply(connection);
+            int runId = joinRun(job, runKey, connection, batchJobDAO);
+
+            Map<String, Integer> counts = batchJobDAO.getPartitionCounts(runId, job.getMaxAttempts());
+            BatchProgress progress = new BatchProgress(job.getName(), runId, counts.get("total"), counts.get("completed"));
+            activeRuns.put(job.getName(), progress);
+            LOGGER.info("Instance {} joined job {} run {} ({}): {} of {} partitions completed, parallelism {}",
+                    instanceId, job.getName(), runId, runKey, counts.get("completed"), counts.get("total"),
+                    job.getParallelism());
+
+            try {
+                while (true) {
+                    long attemptedBefore = attempted(progress);
+                    runWorkers(job, runId, progress);
+                    counts = batchJobDAO.getPartitionCounts(runId, job.getMaxAttempts());
+                    if (counts.get("claimable") == 0 && counts.get("leased") == 0) {
+                        break;
+                    }
+                    // Either other instances still hold partitions (stay around to take over if they die),
+                    // or our workers could not claim anything; back off instead of spinning
+                    if (counts.get("claimable") == 0 || attempted(progress) == attemptedBefore) {
+                        Thread.sleep(POLL_INTERVAL_MILLIS);
+                    }
+                }
+                progress.finish(batchJobDAO.finishRun(runId), counts.get("completed"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                progress.finish("RUNNING", progress.getCompletedPartitions());
+            } finally {
+                activeRuns.remove(job.getName());
+            }
+
+            LOGGER.info("Finished job {}: {}", job.getName(), progress);
+            return progress;
+        }
+    }
+
+    /**
+     * Returns the live progress of a job that is currently running on this instance.
+     */
+    public Optional<BatchProgress> getProgress(String jobName) {
+        return Optional.ofNullable(activeRuns.get(jobName));
+    }
+
+    private static long attempted(BatchProgress progress) {
+        return progress.getItemsProcessed() + progress.getCompletedPartitions()
+                + progress.getFailedPartitions() + progress.getLeasesLost();
+    }
+
+    // Creates the run with its partitions in one transaction, or joins the run another instance created
+    private int joinRun(BatchJob job, String runKey, Connection connection, BatchJobDAO batchJobDAO) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            int runId;
+            Optional<Integer> created = batchJobDAO.createRunIfAbsent(job.getName(), runKey);
+            if (created.isPresent()) {
+                runId = created.get();
+                Optional<int[]> range = batchJobDAO.getAccountIDRange();
+                if (range.isPresent()) {
+                    batchJobDAO.createPartitions(BatchPartitioner.split(
+                            runId, range.get()[0], range.get()[1], job.getPartitionCount()));
+                }
+            } else {
+                runId = batchJobDAO.findRunID(job.getName(), runKey)
+                        .orElseThrow(() -> new SQLException("Batch run disappeared for job " + job.getName()));
+                if (batchJobDAO.reopenFailedRun(runId)) {
+                    LOGGER.info("Reopened failed run {} of job {}", runId, job.getName());
+                }
+            }
+            connection.commit();
+            return runId;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void runWorkers(BatchJob job, int runId, BatchProgress progress) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(job.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "batch-" + job.getName() + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < job.getParallelism(); i++) {
+            pool.execute(() -> claimPartitions(job, runId, progress));
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.info("Job {} in progress: {}", job.getName(), progress);
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Worker loop: claims partitions from the shared queue until nothing is claimable
+    private void claimPartitions(BatchJob job, int runId, BatchProgress progress) {
+        String owner = instanceId + "/" + Thread.currentThread().getName();
+        try (Connection connection = connectionSupplier.get()) {
+            connection.setAutoCommit(false);
+            BatchJobDAO batchJobDAO = daoFactory.apply(connection);
+            BatchWorker worker = job.createWorker(connection);
+
+            while (true) {
+                Optional<BatchPartitionEntity> claimed = batchJobDAO.claimPartition(
+                        runId, owner, job.getLeaseSeconds(), job.getMaxAttempts());
+                connection.commit();
+                if (claimed.isEmpty()) {
+                    return;
+                }
+                processPartition(job, worker, batchJobDAO, connection, claimed.get(), owner, progress);
+            }
+        } catch (SQLException e) {
+            // Any partition held by this worker is reclaimed after its lease expires
+            LOGGER.error("Batch worker {} stopped: {}", owner, e.getMessage());
+        }
+    }
+
+    private void processPartition(BatchJob job, BatchWorker worker, BatchJobDAO batchJobDAO, Connection connection,
+            BatchPartitionEntity partition, String owner, BatchProgress progress) {
+        int end = partition.getRangeEnd();
+        try {
+            while (partition.getCheckpoint() < end) {
+                int from = partition.getCheckpoint();
+                int to = (int) Math.min((long) from + job.getChunkSize(), end);
+                int processed = worker.processRange(from, to);
+
+                // Only the committed state is reflected in the claimed entity
+                BatchPartitionEntity next = new BatchPartitionEntity(partition.getRunID(), partition.getPartitionID(),
+                        partition.getRangeStart(), end, to, partition.getItemsProcessed() + processed,
+                        to >= end ? "COMPLETED" : "RUNNING");
+                if (!batchJobDAO.checkpoint(next, owner, job.getLeaseSeconds())) {
+                    // Lease expired and another worker took over; discard this chunk's work
+                    connection.rollback();
+                    progress.leaseLost();
+                    LOGGER.warn("Job {} lost lease on partition {} at checkpoint {}", job.getName(),
+                            partition.getPartitionID(), partition.getCheckpoint());
+                    return;
+                }
+                connection.commit();
+
+                partition.setCheckpoint(to);
+                partition.setItemsProcessed(next.getItemsProcessed());
+                partition.setStatus(next.getStatus());
+                progress.recordItems(processed);
+            }
+            progress.partitionCompleted();
+            LOGGER.debug("Job {} completed partition {} ({} items)", job.getName(), partition.getPartitionID(),
+                    partition.getItemsProcessed());
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("Job {} failed partition {} at checkpoint {} (attempt {}): {}", job.getName(),
+                    partition.getPartitionID(), partition.getCheckpoint(), partition.getAttempts(), e.getMessage());
+            progress.partitionFailed();
+            releaseFailed(batchJobDAO, connection, partition, owner);
+        }
+    }
+
+    private void releaseFailed(BatchJobDAO batchJobDAO, Connection connection, BatchPartitionEntity partition,
+            String owner) {
+        try {
+            connection.rollback();
+            batchJobDAO.releaseFailed(partition, owner);
+            connection.commit();
+        } catch (SQLException e) {
+            LOGGER.warn("Could not record failure of partition {}: {}", partition.getPartitionID(), e.getMessage());
+        }
+    }
+}
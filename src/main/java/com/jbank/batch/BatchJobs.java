@@ -0,0 +1,39 @@
+package com.jbank.batch;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.jbank.batch.jobs.InterestAccrualJob;
+import com.jbank.batch.jobs.MinimumPaymentJob;
+import com.jbank.batch.jobs.OverdraftSweepJob;
+import com.jbank.batch.jobs.WithdrawalCounterResetJob;
+
+/**
+ * Registry of the batch jobs that can be started by name.
+ *
+ * @author juanf
+ */
+public class BatchJobs {
+
+    private BatchJobs() {
+    }
+
+    public static List<String> names() {
+        return List.of(
+            "savings-interest-accrual",
+            "savings-withdrawal-counter-reset",
+            "credit-minimum-payment",
+            "checking-overdraft-sweep"
+        );
+    }
+
+    public static Optional<BatchJob> create(String name, int parallelism) {
+        return switch (name) {
+            case "savings-interest-accrual" -> Optional.of(new InterestAccrualJob(parallelism));
+            case "savings-withdrawal-counter-reset" -> Optional.of(new WithdrawalCounterResetJob(parallelism));
+            case "credit-minimum-payment" -> Optional.of(new MinimumPaymentJob(parallelism));
+            case "checking-overdraft-sweep" -> Optional.of(new OverdraftSweepJob(parallelism));
+            default -> Optional.empty();
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.jbank.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jbank.repository.entities.BatchPartitionEntity;
+
+/**
+ * Splits an account-ID space into contiguous, non-overlapping partitions.
+ *
+ * @author juanf
+ */
+public class BatchPartitioner {
+
+    private BatchPartitioner() {
+    }
+
+    /**
+     * Splits [minId, maxId] into at most {@code partitionCount} partitions of near-equal width.
+     * Fewer partitions are returned when the range is narrower than the requested count.
+     *
+     * @param runId Run the partitions belong to
+     * @param minId Lowest account ID (inclusive)
+     * @param maxId Highest account ID (inclusive)
+     * @param partitionCount Requested number of partitions
+     * @return Partitions ordered by range, each starting at its range start
+     */
+    public static List<BatchPartitionEntity> split(int runId, int minId, int maxId, int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1.");
+        }
+        List<BatchPartitionEntity> partitions = new ArrayList<>();
+        if (maxId < minId) {
+            return partitions;
+        }
+
+        long width = (long) maxId - minId + 1;
+        int count = (int) Math.min(partitionCount, width);
+        long start = minId;
+        for (int i = 0; i < count; i++) {
+            // Spread the remainder over the first partitions so widths differ by at most one
+            long size = width / count + (i < width % count ? 1 : 0);
+            long end = start + size;
+            partitions.add(new BatchPartitionEntity(runId, i, (int) start, (int) end));
+            start = end;
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,126 @@
+package com.jbank.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live progress and throughput of a batch job run as seen by this instance.
+ * Updated concurrently by the workers; safe to read from any thread while the run is in progress.
+ * Partitions completed by other instances are only reflected once the run finishes.
+ *
+ * @author juanf
+ */
+public class BatchProgress {
+    private final String jobName;
+    private final int runID;
+    private final int totalPartitions;
+    private final AtomicInteger completedPartitions;
+    private final AtomicInteger failedPartitions = new AtomicInteger();
+    private final AtomicInteger leasesLost = new AtomicInteger();
+    private final LongAdder itemsProcessed = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private volatile String runStatus = "RUNNING";
+
+    public BatchProgress(String jobName, int runID, int totalPartitions, int alreadyCompleted) {
+        this.jobName = jobName;
+        this.runID = runID;
+        this.totalPartitions = totalPartitions;
+        this.completedPartitions = new AtomicInteger(alreadyCompleted);
+    }
+
+    // Mutators (called by workers)
+    void recordItems(int count) {
+        itemsProcessed.add(count);
+    }
+
+    void partitionCompleted() {
+        completedPartitions.incrementAndGet();
+    }
+
+    void partitionFailed() {
+        failedPartitions.incrementAndGet();
+    }
+
+    void leaseLost() {
+        leasesLost.incrementAndGet();
+    }
+
+    // Records the final, cluster-wide outcome of the run
+    void finish(String status, int totalCompleted) {
+        completedPartitions.set(totalCompleted);
+        runStatus = status;
+        endNanos = System.nanoTime();
+    }
+
+    // Getters
+    public String getJobName() {
+        return jobName;
+    }
+
+    public int getRunID() {
+        return runID;
+    }
+
+    public int getTotalPartitions() {
+        return totalPartitions;
+    }
+
+    public int getCompletedPartitions() {
+        return completedPartitions.get();
+    }
+
+    public int getFailedPartitions() {
+        return failedPartitions.get();
+    }
+
+    // Partitions this instance had to abandon because another worker reclaimed them after lease expiry
+    public int getLeasesLost() {
+        return leasesLost.get();
+    }
+
+    public String getRunStatus() {
+        return runStatus;
+    }
+
+    // Items processed by this invocation (excludes work committed by an earlier, resumed run)
+    public long getItemsProcessed() {
+        return itemsProcessed.sum();
+    }
+
+    public boolean isFinished() {
+        return endNanos != 0;
+    }
+
+    public boolean isSuccessful() {
+        return isFinished() && "COMPLETED".equals(runStatus);
+    }
+
+    public long getElapsedMillis() {
+        long end = isFinished() ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    public double getPercentComplete() {
+        if (totalPartitions == 0) {
+            return 100.0;
+        }
+        return getCompletedPartitions() * 100.0 / totalPartitions;
+    }
+
+    // Items per second since the run started
+    public double getThroughput() {
+        long elapsedMillis = getElapsedMillis();
+        if (elapsedMillis == 0) {
+            return 0.0;
+        }
+        return getItemsProcessed() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchProgress{job='%s', runID=%d, status=%s, partitions=%d/%d, failed=%d, items=%d, elapsed=%dms, throughput=%.1f/s}",
+                jobName, runID, runStatus, getCompletedPartitions(), totalPartitions, getFailedPartitions(),
+                getItemsProcessed(), getElapsedMillis(), getThroughput());
+    }
+}
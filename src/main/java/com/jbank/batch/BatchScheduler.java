@@ -0,0 +1,87 @@
+package com.jbank.batch;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules batch jobs at a fixed time of day.
+ * Jobs share a single scheduling thread, so end-of-day jobs run one after another in the order
+ * they become due; each job still processes its partitions in parallel.
+ *
+ * @author juanf
+ */
+public class BatchScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchScheduler.class);
+
+    private final BatchJobRunner runner;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BatchScheduler() {
+        this(new BatchJobRunner());
+    }
+
+    public BatchScheduler(BatchJobRunner runner) {
+        this.runner = runner;
+    }
+
+    // Run a job every day at the given time
+    public void scheduleDaily(BatchJob job, LocalTime runAt) {
+        scheduleDaily(job, runAt, date -> true);
+    }
+
+    // Run a job once a month, e.g. withdrawal counter resets on the 1st
+    public void scheduleMonthly(BatchJob job, int dayOfMonth, LocalTime runAt) {
+        if (dayOfMonth < 1 || dayOfMonth > 28) {
+            throw new IllegalArgumentException("Day of month must be between 1 and 28.");
+        }
+        scheduleDaily(job, runAt, date -> date.getDayOfMonth() == dayOfMonth);
+    }
+
+    /**
+     * Checks every day at {@code runAt} and runs the job on the days accepted by {@code runOn}.
+     */
+    public void scheduleDaily(BatchJob job, LocalTime runAt, Predicate<LocalDate> runOn) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(runAt);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, firstRun).toMillis();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            if (runOn.test(LocalDate.now())) {
+                runNow(job);
+            }
+        }, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        LOGGER.info("Scheduled job {} daily at {} (first check {})", job.getName(), runAt, firstRun);
+    }
+
+    // Run a job immediately on the calling thread
+    public BatchProgress runNow(BatchJob job) {
+        try {
+            return runner.run(job);
+        } catch (SQLException | RuntimeException e) {
+            // Never let an exception escape, it would cancel the periodic schedule
+            LOGGER.error("Job {} could not be run: {}", job.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
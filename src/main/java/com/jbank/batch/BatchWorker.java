@@ -0,0 +1,18 @@
+package com.jbank.batch;
+
+import java.sql.SQLException;
+
+/**
+ * Processes the accounts of one ID range on behalf of a {@link BatchJob}.
+ *
+ * @author juanf
+ */
+@FunctionalInterface
+public interface BatchWorker {
+
+    /**
+     * Processes all relevant accounts with IDs in [fromId, toId).
+     * @return Number of accounts processed
+     */
+    int processRange(int fromId, int toId) throws SQLException;
+}
@@ -0,0 +1,51 @@
+package com.jbank.batch;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Command-line entry point that runs one batch job on this instance.
+ * Start it on as many hosts (or as many local processes) as needed: every process joins the same
+ * run for the run key and claims partitions from the shared work queue.
+ *
+ * Usage: BatchWorkerMain &lt;job-name&gt; [parallelism] [run-key]
+ *
+ * @author juanf
+ */
+public class BatchWorkerMain {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchWorkerMain <job-name> [parallelism] [run-key]");
+            System.err.println("Jobs: " + String.join(", ", BatchJobs.names()));
+            System.exit(2);
+        }
+
+        int parallelism = 4;
+        if (args.length > 1) {
+            try {
+                parallelism = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Parallelism must be a number: " + args[1]);
+                System.exit(2);
+            }
+        }
+        String runKey = args.length > 2 ? args[2] : LocalDate.now().toString();
+
+        Optional<BatchJob> job = BatchJobs.create(args[0], parallelism);
+        if (job.isEmpty()) {
+            System.err.println("Unknown job: " + args[0] + ". Jobs: " + String.join(", ", BatchJobs.names()));
+            System.exit(2);
+        }
+
+        try {
+            BatchProgress progress = new BatchJobRunner().run(job.get(), runKey);
+            System.out.println(progress);
+            System.exit(progress.isSuccessful() ? 0 : 1);
+        } catch (SQLException e) {
+            System.err.println("Batch job failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.jbank.batch.jobs;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import com.jbank.batch.AbstractBatchJob;
+import com.jbank.batch.BatchWorker;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Applies interest to every savings account.
+ * An account whose balance changed after the range was read is re-read and retried; if it still cannot
+ * be written the partition fails, so the chunk is rolled back and retried rather than checkpointed
+ * without the account's interest.
+ *
+ * @author juanf
+ */
+public class InterestAccrualJob extends AbstractBatchJob {
+
+    // Attempts per account, counting the first one
+    private static final int MAX_ATTEMPTS = 3;
+
+    public InterestAccrualJob() {
+        this(4);
+    }
+
+    public InterestAccrualJob(int parallelism) {
+        super("savings-interest-accrual", parallelism);
+    }
+
+    @Override
+    public BatchWorker createWorker(Connection connection) {
+        SavingsAccountDAO savingsAccountDAO = new SavingsAccountDAO(connection);
+        SavingsAccountService savingsService = new SavingsAccountService(savingsAccountDAO, new ClientAccountDAO(connection));
+
+        return (fromId, toId) -> {
+            int processed = 0;
+            for (SavingsAccountEntity entity : savingsAccountDAO.getByIDRange(fromId, toId)) {
+                if (applyInterest(entity, savingsAccountDAO, savingsService)) {
+                    processed++;
+                }
+            }
+            return processed;
+        };
+    }
+
+    // @return false if the account could not be converted to a model
+    private boolean applyInterest(SavingsAccountEntity entity, SavingsAccountDAO savingsAccountDAO,
+            SavingsAccountService savingsService) throws SQLException {
+        Optional<SavingsAccountEntity> current = Optional.of(entity);
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Optional<SavingsAccount> account = current.flatMap(savingsService::convertEntityToModel);
+            if (account.isEmpty()) {
+                return false;
+            }
+            if (savingsService.applyInterest(account.get())) {
+                return true;
+            }
+            current = savingsAccountDAO.getByIDForWrite(entity.getAccountID());
+            if (current.isEmpty()) {
+                return false; // Deleted since the range was read
+            }
+        }
+        throw new SQLException("Could not apply interest to savings account " + entity.getAccountID()
+                + " after " + MAX_ATTEMPTS + " attempts");
+    }
+}
@@ -0,0 +1,64 @@
+package com.jbank.batch.jobs;
+
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.batch.AbstractBatchJob;
+import com.jbank.batch.BatchWorker;
+import com.jbank.model.CreditLine;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.service.CreditLineService;
+
+/**
+ * Calculates the minimum payment due on every credit line with an outstanding balance.
+ * The total amount due across all processed credit lines is available after the run.
+ *
+ * @author juanf
+ */
+public class MinimumPaymentJob extends AbstractBatchJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MinimumPaymentJob.class);
+
+    // Accumulated in cents to avoid floating-point drift across many accounts
+    private final LongAdder totalMinimumDueCents = new LongAdder();
+
+    public MinimumPaymentJob() {
+        this(4);
+    }
+
+    public MinimumPaymentJob(int parallelism) {
+        super("credit-minimum-payment", parallelism);
+    }
+
+    @Override
+    public BatchWorker createWorker(Connection connection) {
+        CreditLineDAO creditLineDAO = new CreditLineDAO(connection);
+        CreditLineService creditLineService = new CreditLineService(creditLineDAO, new ClientAccountDAO(connection));
+
+        return (fromId, toId) -> {
+            int processed = 0;
+            for (CreditLineEntity entity : creditLineDAO.getByIDRange(fromId, toId)) {
+                if (entity.getBalance() <= 0) {
+                    continue; // Nothing owed
+                }
+                Optional<CreditLine> account = creditLineService.convertEntityToModel(entity);
+                if (account.isPresent()) {
+                    double minimumDue = creditLineService.calculateMinimumPayment(account.get());
+                    totalMinimumDueCents.add(Math.round(minimumDue * 100));
+                    LOGGER.debug("Minimum payment for credit line {}: {}", entity.getAccountID(), minimumDue);
+                    processed++;
+                }
+            }
+            return processed;
+        };
+    }
+
+    public double getTotalMinimumDue() {
+        return totalMinimumDueCents.sum() / 100.0;
+    }
+}
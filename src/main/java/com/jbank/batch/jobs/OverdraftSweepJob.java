@@ -0,0 +1,104 @@
+package com.jbank.batch.jobs;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.batch.AbstractBatchJob;
+import com.jbank.batch.BatchWorker;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Covers overdrawn checking accounts from the primary owner's savings accounts.
+ * Each savings transfer counts as a withdrawal, so accounts at their withdrawal limit are skipped.
+ * Both legs of a transfer are written under a savepoint of the chunk's transaction: if either fails,
+ * the transfer is rolled back and the overdrawn account is left for the next run.
+ *
+ * @author juanf
+ */
+public class OverdraftSweepJob extends AbstractBatchJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OverdraftSweepJob.class);
+
+    public OverdraftSweepJob() {
+        this(4);
+    }
+
+    public OverdraftSweepJob(int parallelism) {
+        super("checking-overdraft-sweep", parallelism);
+    }
+
+    @Override
+    public BatchWorker createWorker(Connection connection) {
+        CheckingAccountDAO checkingAccountDAO = new CheckingAccountDAO(connection);
+        SavingsAccountDAO savingsAccountDAO = new SavingsAccountDAO(connection);
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO(connection);
+        CheckingAccountService checkingService = new CheckingAccountService(checkingAccountDAO, clientAccountDAO);
+        SavingsAccountService savingsService = new SavingsAccountService(savingsAccountDAO, clientAccountDAO);
+
+        return (fromId, toId) -> {
+            int processed = 0;
+            for (CheckingAccountEntity entity : checkingAccountDAO.getByIDRange(fromId, toId)) {
+                if (entity.getBalance() >= 0) {
+                    continue;
+                }
+                Optional<CheckingAccount> checking = checkingService.convertEntityToModel(entity);
+                if (checking.isPresent() && sweep(connection, checking.get(), clientAccountDAO, savingsAccountDAO,
+                        checkingService, savingsService)) {
+                    processed++;
+                }
+            }
+            return processed;
+        };
+    }
+
+    // Moves as much as possible (up to the overdrawn amount) from the owner's savings into checking
+    private boolean sweep(Connection connection, CheckingAccount checking, ClientAccountDAO clientAccountDAO,
+            SavingsAccountDAO savingsAccountDAO, CheckingAccountService checkingService,
+            SavingsAccountService savingsService) throws SQLException {
+        for (Map.Entry<Integer, String> owner : clientAccountDAO.getClientsByAccount(checking.getAccountID()).entrySet()) {
+            if (!"PRIMARY".equals(owner.getValue())) {
+                continue;
+            }
+            for (Integer accountId : clientAccountDAO.getAccountsByClient(owner.getKey()).keySet()) {
+                Optional<SavingsAccount> savings = savingsAccountDAO.getByID(accountId)
+                        .flatMap(savingsService::convertEntityToModel);
+                if (savings.isEmpty() || savings.get().getBalance() <= 0) {
+                    continue;
+                }
+
+                double amount = Math.min(-checking.getBalance(), savings.get().getBalance());
+                Savepoint transfer = connection.setSavepoint();
+                TransactionResult withdrawn = savingsService.tryWithdraw(savings.get(), amount);
+                if (withdrawn == TransactionResult.WITHDRAWAL_LIMIT_REACHED) {
+                    connection.releaseSavepoint(transfer);
+                    continue; // Nothing was written; try the owner's next savings account
+                }
+                if (withdrawn.isSuccess() && checkingService.deposit(checking, amount)) {
+                    connection.releaseSavepoint(transfer);
+                    LOGGER.info("Swept {} from savings {} into overdrawn checking {}",
+                            amount, accountId, checking.getAccountID());
+                    return true;
+                }
+                // The models may already hold the failed transfer, so stop here rather than sweep from them
+                connection.rollback(transfer);
+                LOGGER.warn("Sweep from savings {} into overdrawn checking {} failed ({}), rolled back",
+                        accountId, checking.getAccountID(), withdrawn.isSuccess() ? "deposit" : withdrawn.name());
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jbank.batch.jobs;
+
+import java.sql.Connection;
+import java.util.Optional;
+
+import com.jbank.batch.AbstractBatchJob;
+import com.jbank.batch.BatchWorker;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Resets the monthly withdrawal counter of every savings account that used any withdrawals.
+ *
+ * @author juanf
+ */
+public class WithdrawalCounterResetJob extends AbstractBatchJob {
+
+    public WithdrawalCounterResetJob() {
+        this(4);
+    }
+
+    public WithdrawalCounterResetJob(int parallelism) {
+        super("savings-withdrawal-counter-reset", parallelism);
+    }
+
+    @Override
+    public BatchWorker createWorker(Connection connection) {
+        SavingsAccountDAO savingsAccountDAO = new SavingsAccountDAO(connection);
+        SavingsAccountService savingsService = new SavingsAccountService(savingsAccountDAO, new ClientAccountDAO(connection));
+
+        return (fromId, toId) -> {
+            int processed = 0;
+            for (SavingsAccountEntity entity : savingsAccountDAO.getByIDRange(fromId, toId)) {
+                if (entity.getWithdrawalCounter() == 0) {
+                    continue; // Nothing to reset
+                }
+                Optional<SavingsAccount> account = savingsService.convertEntityToModel(entity);
+                if (account.isPresent() && savingsService.resetWithdrawalCounter(account.get())) {
+                    processed++;
+                }
+            }
+            return processed;
+        };
+    }
+}
@@ -0,0 +1,290 @@
+package com.jbank.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Keeps the entity caches of several nodes coherent. Invalidations made on this node are queued and a
+ * publisher thread sends them, coalescing those that arrive within coalesceMillis of each other into one
+ * message per entity set. A listener thread on its own connection receives the other nodes' messages,
+ * again gathering a burst before evicting, and evicts the named IDs from every registered cache of that
+ * kind. Messages from this node are ignored: its caches were evicted when the invalidation was made.
+ *
+ * Messages sent while the listener is not connected are lost, so every time it (re)connects all the
+ * registered caches are flushed. A failed send is kept and retried with the next batch. Invalidate only
+ * after the change commits; a node may serve its stale copy until the message arrives, typically a few
+ * milliseconds later.
+ *
+ * @author juanf
+ */
+public class CacheCoherence implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheCoherence.class);
+
+    public static final String DEFAULT_CHANNEL = "jbank_cache";
+    public static final long DEFAULT_COALESCE_MILLIS = 5;
+
+    private static final int RECEIVE_TIMEOUT_MILLIS = 500;
+    private static final long RETRY_MILLIS = 1000;
+
+    private final ConnectionSupplier connectionSupplier;
+    private final InvalidationTransport transport;
+    private final long coalesceMillis;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<CachedEntity, List<EntityCache<?>>> caches = new EnumMap<>(CachedEntity.class);
+    // Kind ordinal in the high half, ID in the low half
+    private final BlockingQueue<Long> outgoing = new LinkedBlockingQueue<>();
+    private Thread publisher;
+    private Thread listener;
+    private volatile boolean running;
+    private volatile boolean listening;
+
+    /**
+     * @param connectionSupplier Opens the listener's and the publisher's dedicated connections
+     * @param coalesceMillis How long to gather invalidations before sending or evicting them
+     */
+    public CacheCoherence(ConnectionSupplier connectionSupplier, InvalidationTransport transport, long coalesceMillis) {
+        this.connectionSupplier = connectionSupplier;
+        this.transport = transport;
+        this.coalesceMillis = coalesceMillis;
+        for (CachedEntity kind : CachedEntity.values()) {
+            caches.put(kind, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    // Makes the cache's invalidations reach other nodes and theirs reach it
+    public <V> EntityCache<V> register(EntityCache<V> cache) {
+        caches.get(cache.getKind()).add(cache);
+        cache.setCoherence(this);
+        return cache;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Cache coherence already started");
+        }
+        running = true;
+        publisher = daemon(this::publish, "cache-publisher-" + nodeId);
+        listener = daemon(this::listen, "cache-listener-" + nodeId);
+        LOGGER.info("Cache coherence started on node {}", nodeId);
+    }
+
+    // Whether the listener is connected; while it is not, other nodes' invalidations are not applied
+    public boolean isListening() {
+        return listening;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // Evicts everything from every registered cache on this node
+    public void flushAll() {
+        for (List<EntityCache<?>> kindCaches : caches.values()) {
+            for (EntityCache<?> cache : kindCaches) {
+                cache.clear();
+            }
+        }
+        Metrics.increment("cache.flushes", 1);
+    }
+
+    @Override
+    public void close() {
+        Thread[] threads;
+        synchronized (this) {
+            running = false;
+            threads = new Thread[] { publisher, listener };
+            publisher = null;
+            listener = null;
+        }
+        for (Thread thread : threads) {
+            if (thread != null) {
+                thread.interrupt();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    void publish(CachedEntity kind, int id) {
+        if (running) {
+            outgoing.add(((long) kind.ordinal() << 32) | (id & 0xFFFFFFFFL));
+        }
+    }
+
+    private void publish() {
+        Connection conn = null;
+        Map<CachedEntity, Set<Integer>> pending = new EnumMap<>(CachedEntity.class);
+        while (running) {
+            try {
+                Long first = outgoing.poll(RECEIVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null && pending.isEmpty()) {
+                    continue;
+                }
+                if (first != null) {
+                    add(pending, first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+                    for (long left = coalesceMillis; left > 0; left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+                        Long next = outgoing.poll(left, TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        add(pending, next);
+                    }
+                }
+                List<Long> rest = new ArrayList<>();
+                outgoing.drainTo(rest);
+                rest.forEach(key -> add(pending, key));
+
+                if (conn == null) {
+                    conn = connectionSupplier.get();
+                    conn.setAutoCommit(true);
+                }
+                List<String> messages = InvalidationMessage.encode(nodeId, pending);
+                try (Metrics.Sample sample = Metrics.time("cache.publish")) {
+                    transport.send(conn, messages);
+                }
+                Metrics.increment("cache.invalidations.published", count(pending));
+                pending.clear();
+            } catch (InterruptedException e) {
+                break;
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.warn("Could not publish cache invalidations, retrying: {}", e.getMessage());
+                conn = close(conn);
+                if (!sleep(RETRY_MILLIS)) {
+                    break;
+                }
+            }
+        }
+        close(conn);
+    }
+
+    private void listen() {
+        Connection conn = null;
+        while (running) {
+            try {
+                if (conn == null) {
+                    conn = connectionSupplier.get();
+                    transport.listen(conn);
+                    // Whatever was sent while not listening is lost
+                    flushAll();
+                    listening = true;
+                    LOGGER.info("Cache listener connected, caches flushed");
+                }
+                List<String> messages = transport.receive(conn, RECEIVE_TIMEOUT_MILLIS);
+                if (messages.isEmpty()) {
+                    continue;
+                }
+                Map<CachedEntity, Set<Integer>> received = new EnumMap<>(CachedEntity.class);
+                decode(messages, received);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+                for (long left = coalesceMillis; left > 0; left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+                    List<String> more = transport.receive(conn, (int) left);
+                    if (more.isEmpty()) {
+                        break;
+                    }
+                    decode(more, received);
+                }
+                evict(received);
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                listening = false;
+                LOGGER.warn("Cache listener failed, reconnecting: {}", e.getMessage());
+                conn = close(conn);
+                if (!sleep(RETRY_MILLIS)) {
+                    break;
+                }
+            }
+        }
+        listening = false;
+        close(conn);
+    }
+
+    private void decode(List<String> messages, Map<CachedEntity, Set<Integer>> into) {
+        for (String text : messages) {
+            InvalidationMessage message;
+            try {
+                message = InvalidationMessage.decode(text);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Ignoring malformed cache invalidation: {}", e.getMessage());
+                continue;
+            }
+            if (message.getNodeId().equals(nodeId)) {
+                continue;
+            }
+            message.getIds().forEach((kind, ids) -> into.computeIfAbsent(kind, k -> new LinkedHashSet<>()).addAll(ids));
+        }
+    }
+
+    private void evict(Map<CachedEntity, Set<Integer>> received) {
+        for (Map.Entry<CachedEntity, Set<Integer>> entry : received.entrySet()) {
+            for (EntityCache<?> cache : caches.get(entry.getKey())) {
+                for (int id : entry.getValue()) {
+                    cache.evict(id);
+                }
+            }
+        }
+        Metrics.increment("cache.invalidations.received", count(received));
+    }
+
+    private static void add(Map<CachedEntity, Set<Integer>> pending, long key) {
+        CachedEntity kind = CachedEntity.values()[(int) (key >>> 32)];
+        pending.computeIfAbsent(kind, k -> new LinkedHashSet<>()).add((int) key);
+    }
+
+    private static long count(Map<CachedEntity, Set<Integer>> ids) {
+        long count = 0;
+        for (Set<Integer> kindIds : ids.values()) {
+            count += kindIds.size();
+        }
+        return count;
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static Connection close(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Error closing cache coherence connection: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.jbank.cache;
+
+/**
+ * Kinds of cached entity, keyed by ID. Client IDs are unique across personal and business clients and
+ * account IDs across account types, so one kind covers each family.
+ *
+ * @author juanf
+ */
+public enum CachedEntity {
+    CLIENT('C'),
+    ACCOUNT('A');
+
+    private final char code;
+
+    CachedEntity(char code) {
+        this.code = code;
+    }
+
+    // One-letter code used in invalidation messages
+    public char getCode() {
+        return code;
+    }
+
+    public static CachedEntity fromCode(char code) {
+        for (CachedEntity kind : values()) {
+            if (kind.code == code) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cached entity code: " + code);
+    }
+}
@@ -0,0 +1,127 @@
+package com.jbank.cache;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * In-memory cache of entities by ID, for the services' getById. Holds DAO entities, which the services
+ * convert to a fresh model on every read, so callers never share a cached object.
+ *
+ * {@link #invalidate(int)} evicts an entry here and, once the cache is registered with a
+ * {@link CacheCoherence}, on every other node. A load that overlaps an invalidation is not cached, so
+ * a value read before a change cannot be stored after its eviction. When full, new entries are simply
+ * not cached until evictions make room.
+ *
+ * @author juanf
+ */
+public class EntityCache<V> {
+
+    public interface Loader<V> {
+        Optional<V> load() throws SQLException;
+    }
+
+    private final CachedEntity kind;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Integer, V> entries = new ConcurrentHashMap<>();
+    // Bumped before every eviction; a load only keeps its value if no eviction happened meanwhile
+    private final AtomicLong evictions = new AtomicLong();
+    private final String metricPrefix;
+    private volatile CacheCoherence coherence;
+
+    public EntityCache(CachedEntity kind, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one entry.");
+        }
+        this.kind = kind;
+        this.maxEntries = maxEntries;
+        this.metricPrefix = "cache." + kind.name().toLowerCase();
+    }
+
+    /**
+     * Returns the cached entity, or loads and caches it.
+     * @param loader Reads the entity from the database on a miss
+     */
+    public Optional<V> get(int id, Loader<V> loader) throws SQLException {
+        V cached = entries.get(id);
+        if (cached != null) {
+            Metrics.increment(metricPrefix + ".hits", 1);
+            return Optional.of(cached);
+        }
+        Metrics.increment(metricPrefix + ".misses", 1);
+
+        long stamp = evictions.get();
+        Optional<V> loaded = loader.load();
+        if (loaded.isPresent() && evictions.get() == stamp && entries.size() < maxEntries) {
+            V value = loaded.get();
+            entries.putIfAbsent(id, value);
+            // An eviction between the check and the put may have missed this entry; drop it then
+            if (evictions.get() != stamp) {
+                entries.remove(id, value);
+            }
+        }
+        return loaded;
+    }
+
+    // Stamp to pass to preload, taken before the preloaded values are read
+    public long preloadStamp() {
+        return evictions.get();
+    }
+
+    /**
+     * Caches a value read outside of get, e.g. from a snapshot, unless the entity is cached already, the
+     * cache is full, or anything was evicted since the stamp was taken.
+     * @return Whether the value was cached
+     */
+    public boolean preload(int id, V value, long stamp) {
+        if (evictions.get() != stamp || entries.size() >= maxEntries || entries.putIfAbsent(id, value) != null) {
+            return false;
+        }
+        // An eviction between the check and the put may have missed this entry; drop it then
+        if (evictions.get() != stamp) {
+            entries.remove(id, value);
+            return false;
+        }
+        return true;
+    }
+
+    // Evicts the entity here and, when registered, on every other node; call after the change commits
+    public void invalidate(int id) {
+        evict(id);
+        CacheCoherence current = coherence;
+        if (current != null) {
+            current.publish(kind, id);
+        }
+    }
+
+    // Evicts the entity on this node only
+    public void evict(int id) {
+        evictions.incrementAndGet();
+        entries.remove(id);
+    }
+
+    // Evicts everything on this node only
+    public void clear() {
+        evictions.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public CachedEntity getKind() {
+        return kind;
+    }
+
+    void setCoherence(CacheCoherence coherence) {
+        this.coherence = coherence;
+    }
+}
@@ -0,0 +1,91 @@
+package com.jbank.cache;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact text form of a set of invalidations: the sending node's ID, then each kind's code followed by
+ * its IDs, e.g. {@code 3f9c1a2b|C17,42;A1001}. Sets too large for one message are split so each stays
+ * under the size limit (PostgreSQL's NOTIFY payload limit is 8000 bytes).
+ *
+ * @author juanf
+ */
+public final class InvalidationMessage {
+    public static final int MAX_LENGTH = 7900;
+
+    private final String nodeId;
+    private final Map<CachedEntity, Set<Integer>> ids;
+
+    private InvalidationMessage(String nodeId, Map<CachedEntity, Set<Integer>> ids) {
+        this.nodeId = nodeId;
+        this.ids = ids;
+    }
+
+    public static List<String> encode(String nodeId, Map<CachedEntity, Set<Integer>> ids) {
+        List<String> messages = new ArrayList<>();
+        StringBuilder message = new StringBuilder(nodeId).append('|');
+        int emptyLength = message.length();
+        for (Map.Entry<CachedEntity, Set<Integer>> entry : ids.entrySet()) {
+            boolean kindOpen = false;
+            for (int id : entry.getValue()) {
+                String value = Integer.toString(id);
+                if (message.length() + value.length() + 2 > MAX_LENGTH) {
+                    messages.add(message.toString());
+                    message.setLength(emptyLength);
+                    kindOpen = false;
+                }
+                if (!kindOpen) {
+                    if (message.length() > emptyLength) {
+                        message.append(';');
+                    }
+                    message.append(entry.getKey().getCode());
+                    kindOpen = true;
+                } else {
+                    message.append(',');
+                }
+                message.append(value);
+            }
+        }
+        if (message.length() > emptyLength) {
+            messages.add(message.toString());
+        }
+        return messages;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message is malformed
+     */
+    public static InvalidationMessage decode(String message) {
+        int bar = message.indexOf('|');
+        if (bar < 1) {
+            throw new IllegalArgumentException("Invalidation message without node ID: " + message);
+        }
+        Map<CachedEntity, Set<Integer>> ids = new EnumMap<>(CachedEntity.class);
+        String body = message.substring(bar + 1);
+        if (!body.isEmpty()) {
+            for (String group : body.split(";")) {
+                if (group.length() < 2) {
+                    throw new IllegalArgumentException("Empty invalidation group in: " + message);
+                }
+                Set<Integer> kindIds = ids.computeIfAbsent(CachedEntity.fromCode(group.charAt(0)),
+                        kind -> new LinkedHashSet<>());
+                for (String id : group.substring(1).split(",")) {
+                    kindIds.add(Integer.parseInt(id));
+                }
+            }
+        }
+        return new InvalidationMessage(message.substring(0, bar), ids);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Map<CachedEntity, Set<Integer>> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,33 @@
+package com.jbank.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+
+/**
+ * How invalidation messages travel between nodes. Each method is given the caller's dedicated
+ * connection; an instance holds the receiving state of a single listener.
+ *
+ * @author juanf
+ */
+public interface InvalidationTransport {
+
+    // Starts receiving messages sent from now on
+    void listen(Connection connection) throws SQLException;
+
+    // Messages received since the last call, waiting up to timeoutMillis for the first; empty if none came
+    List<String> receive(Connection connection, int timeoutMillis) throws SQLException;
+
+    // Sends the messages to every listening node, this one included
+    void send(Connection connection, List<String> messages) throws SQLException;
+
+    // NOTIFY on PostgreSQL, the polled table elsewhere (H2)
+    static InvalidationTransport forConnection(Connection connection, String channel) throws SQLException {
+        if (connection.isWrapperFor(PGConnection.class)) {
+            return new PgNotifyTransport(channel);
+        }
+        return new PollingTransport();
+    }
+}
@@ -0,0 +1,61 @@
+package com.jbank.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * PostgreSQL LISTEN/NOTIFY. A notification sent inside a transaction is delivered when it commits and
+ * dropped if it rolls back; on an autocommit connection it goes out at once.
+ *
+ * @author juanf
+ */
+public class PgNotifyTransport implements InvalidationTransport {
+    private final String channel;
+
+    public PgNotifyTransport(String channel) {
+        // LISTEN takes an identifier, not a parameter
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.channel = channel;
+    }
+
+    @Override
+    public void listen(Connection connection) throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("LISTEN " + channel);
+        }
+    }
+
+    @Override
+    public List<String> receive(Connection connection, int timeoutMillis) throws SQLException {
+        PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(timeoutMillis);
+        if (notifications == null) {
+            return List.of();
+        }
+        List<String> messages = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            messages.add(notification.getParameter());
+        }
+        return messages;
+    }
+
+    @Override
+    public void send(Connection connection, List<String> messages) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String message : messages) {
+                stmt.setString(1, channel);
+                stmt.setString(2, message);
+                stmt.executeQuery().close();
+            }
+        }
+    }
+}
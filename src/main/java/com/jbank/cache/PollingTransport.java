@@ -0,0 +1,88 @@
+package com.jbank.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fallback for databases without LISTEN/NOTIFY: messages are rows of cache_invalidations, which the
+ * listener polls past the last seq it has read. Rows far behind the newest are purged by the senders.
+ *
+ * A message whose insert commits after a higher seq has been read is missed, so this is meant for tests
+ * and single-host setups; production runs on PostgreSQL use {@link PgNotifyTransport}.
+ *
+ * @author juanf
+ */
+public class PollingTransport implements InvalidationTransport {
+    // Messages kept for slow listeners
+    private static final int RETAINED = 10_000;
+    private static final int PURGE_EVERY = 1000;
+
+    private long lastSeq;
+    private int sent;
+
+    @Override
+    public void listen(Connection connection) throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM cache_invalidations")) {
+            rs.next();
+            lastSeq = rs.getLong(1);
+        }
+    }
+
+    @Override
+    public List<String> receive(Connection connection, int timeoutMillis) throws SQLException {
+        List<String> messages = poll(connection);
+        if (messages.isEmpty() && timeoutMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return messages;
+            }
+            messages = poll(connection);
+        }
+        return messages;
+    }
+
+    @Override
+    public void send(Connection connection, List<String> messages) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO cache_invalidations (payload) VALUES (?)")) {
+            for (String message : messages) {
+                stmt.setString(1, message);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        sent += messages.size();
+        if (sent >= PURGE_EVERY) {
+            sent = 0;
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "DELETE FROM cache_invalidations WHERE seq < (SELECT MAX(seq) FROM cache_invalidations) - ?")) {
+                stmt.setInt(1, RETAINED);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private List<String> poll(Connection connection) throws SQLException {
+        List<String> messages = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT seq, payload FROM cache_invalidations WHERE seq > ? ORDER BY seq")) {
+            stmt.setLong(1, lastSeq);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lastSeq = rs.getLong(1);
+                    messages.add(rs.getString(2));
+                }
+            }
+        }
+        return messages;
+    }
+}
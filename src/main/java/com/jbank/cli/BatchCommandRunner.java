@@ -0,0 +1,375 @@
+package com.jbank.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import com.jbank.model.AbstractAccount;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Runs a script of account commands straight against the services, without the interactive menus.
+ * One command per line; blank lines and lines starting with # are skipped, and arguments containing
+ * spaces go in double quotes:
+ *
+ * <pre>
+ * deposit &lt;account&gt; &lt;amount&gt;              checking or savings
+ * withdraw &lt;account&gt; &lt;amount&gt;             checking or savings
+ * charge &lt;account&gt; &lt;amount&gt;               credit line
+ * pay &lt;account&gt; &lt;amount&gt;                  credit line
+ * balance &lt;account&gt;
+ * apply-interest &lt;account&gt;                savings
+ * reset-withdrawals &lt;account&gt;             savings
+ * open-checking &lt;client&gt; &lt;deposit&gt; &lt;overdraft-fee&gt; &lt;overdraft-limit&gt; &lt;name&gt;
+ * open-savings &lt;client&gt; &lt;deposit&gt; &lt;interest-rate&gt; &lt;withdrawal-limit&gt; &lt;name&gt;
+ * open-credit &lt;client&gt; &lt;credit-limit&gt; &lt;interest-rate&gt; &lt;min-payment-%&gt; &lt;name&gt;
+ * close &lt;account&gt;
+ * add-owner &lt;account&gt; &lt;client&gt; [PRIMARY|JOINT]
+ * remove-owner &lt;account&gt; &lt;client&gt;
+ * </pre>
+ *
+ * Each command writes one line, "ok &lt;line&gt; &lt;command&gt; ..." or "FAIL &lt;line&gt; &lt;command&gt;: reason",
+ * and a failed command does not stop the script. The account type found for an ID is remembered for
+ * the rest of the run, so repeated commands on one account look it up once.
+ *
+ * @author juanf
+ */
+public class BatchCommandRunner {
+
+    // A command's arguments, after the command name; returns what to print after "ok"
+    @FunctionalInterface
+    private interface Command {
+        String run(String[] args) throws CommandException, SQLException;
+    }
+
+    // Reason a command failed, printed after "FAIL"
+    static final class CommandException extends Exception {
+        CommandException(String message) {
+            super(message);
+        }
+    }
+
+    private enum AccountType { CHECKING, SAVINGS, CREDIT_LINE }
+
+    private final CheckingAccountService checkingService;
+    private final SavingsAccountService savingsService;
+    private final CreditLineService creditLineService;
+    private final ClientAccountDAO clientAccountDAO;
+    private final Map<String, Command> commands = new LinkedHashMap<>();
+    private final Map<Integer, AccountType> accountTypes = new HashMap<>();
+
+    public BatchCommandRunner(CheckingAccountService checkingService, SavingsAccountService savingsService,
+            CreditLineService creditLineService, ClientAccountDAO clientAccountDAO) {
+        this.checkingService = checkingService;
+        this.savingsService = savingsService;
+        this.creditLineService = creditLineService;
+        this.clientAccountDAO = clientAccountDAO;
+
+        commands.put("deposit", args -> {
+            expect(args, 2, "deposit <account> <amount>");
+            double amount = amount(args[1]);
+            AbstractAccount account = find(accountId(args[0]), AccountType.CHECKING, AccountType.SAVINGS);
+            TransactionResult result = account instanceof CheckingAccount
+                    ? checkingService.tryDeposit((CheckingAccount) account, amount)
+                    : savingsService.tryDeposit((SavingsAccount) account, amount);
+            return moved(result, account, amount);
+        });
+        commands.put("withdraw", args -> {
+            expect(args, 2, "withdraw <account> <amount>");
+            double amount = amount(args[1]);
+            AbstractAccount account = find(accountId(args[0]), AccountType.CHECKING, AccountType.SAVINGS);
+            TransactionResult result = account instanceof CheckingAccount
+                    ? checkingService.tryWithdraw((CheckingAccount) account, amount)
+                    : savingsService.tryWithdraw((SavingsAccount) account, amount);
+            return moved(result, account, amount);
+        });
+        commands.put("charge", args -> {
+            expect(args, 2, "charge <account> <amount>");
+            double amount = amount(args[1]);
+            CreditLine account = (CreditLine) find(accountId(args[0]), AccountType.CREDIT_LINE);
+            return moved(creditLineService.tryChargeCredit(account, amount), account, amount);
+        });
+        commands.put("pay", args -> {
+            expect(args, 2, "pay <account> <amount>");
+            double amount = amount(args[1]);
+            CreditLine account = (CreditLine) find(accountId(args[0]), AccountType.CREDIT_LINE);
+            return moved(creditLineService.tryMakePayment(account, amount), account, amount);
+        });
+        commands.put("balance", args -> {
+            expect(args, 1, "balance <account>");
+            return balance(find(accountId(args[0]), AccountType.values()));
+        });
+        commands.put("apply-interest", args -> {
+            expect(args, 1, "apply-interest <account>");
+            SavingsAccount account = (SavingsAccount) find(accountId(args[0]), AccountType.SAVINGS);
+            return stored(savingsService.applyInterest(account), balance(account));
+        });
+        commands.put("reset-withdrawals", args -> {
+            expect(args, 1, "reset-withdrawals <account>");
+            SavingsAccount account = (SavingsAccount) find(accountId(args[0]), AccountType.SAVINGS);
+            return stored(savingsService.resetWithdrawalCounter(account), "withdrawals=0");
+        });
+        commands.put("open-checking", args -> {
+            expect(args, 5, "open-checking <client> <deposit> <overdraft-fee> <overdraft-limit> <name>");
+            int clientId = id(args[0], "client");
+            CheckingAccount account = model(() -> new CheckingAccount(clientId, 0, number(args[1]), args[4],
+                    number(args[2]), number(args[3])));
+            return opened(checkingService.create(account, clientId), AccountType.CHECKING);
+        });
+        commands.put("open-savings", args -> {
+            expect(args, 5, "open-savings <client> <deposit> <interest-rate> <withdrawal-limit> <name>");
+            int clientId = id(args[0], "client");
+            int withdrawalLimit = integer(args[3]);
+            SavingsAccount account = model(() -> new SavingsAccount(clientId, 0, number(args[1]), args[4],
+                    number(args[2]), withdrawalLimit));
+            return opened(savingsService.create(account, clientId), AccountType.SAVINGS);
+        });
+        commands.put("open-credit", args -> {
+            expect(args, 5, "open-credit <client> <credit-limit> <interest-rate> <min-payment-%> <name>");
+            int clientId = id(args[0], "client");
+            CreditLine account = model(() -> new CreditLine(clientId, 0, 0, args[4], number(args[1]),
+                    number(args[2]), number(args[3])));
+            return opened(creditLineService.create(account, clientId), AccountType.CREDIT_LINE);
+        });
+        commands.put("close", args -> {
+            expect(args, 1, "close <account>");
+            int accountId = accountId(args[0]);
+            AbstractAccount account = find(accountId, AccountType.values());
+            boolean deleted;
+            if (account instanceof CheckingAccount) {
+                deleted = checkingService.delete(accountId);
+            } else if (account instanceof SavingsAccount) {
+                deleted = savingsService.delete(accountId);
+            } else {
+                deleted = creditLineService.delete(accountId);
+            }
+            accountTypes.remove(accountId);
+            return stored(deleted, "closed");
+        });
+        commands.put("add-owner", args -> {
+            if (args.length != 2 && args.length != 3) {
+                throw new CommandException("usage: add-owner <account> <client> [PRIMARY|JOINT]");
+            }
+            String ownershipType = args.length == 3 ? args[2].toUpperCase(Locale.ROOT) : "JOINT";
+            if (!ownershipType.equals("PRIMARY") && !ownershipType.equals("JOINT")) {
+                throw new CommandException("ownership type must be PRIMARY or JOINT");
+            }
+            boolean assigned = clientAccountDAO.assignAccountToClient(id(args[1], "client"), accountId(args[0]), ownershipType);
+            return stored(assigned, ownershipType);
+        });
+        commands.put("remove-owner", args -> {
+            expect(args, 2, "remove-owner <account> <client>");
+            return stored(clientAccountDAO.removeAccountFromClient(id(args[1], "client"), accountId(args[0])), "removed");
+        });
+    }
+
+    /**
+     * Runs every command read from in, writing one result line each and then the summary.
+     * The output is flushed once at the end, not per line.
+     */
+    public BatchSummary run(BufferedReader in, Writer out) throws IOException {
+        BatchSummary summary = new BatchSummary();
+        int lineNumber = 0;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String name = trimmed;
+            try {
+                List<String> tokens = tokenize(trimmed);
+                name = tokens.get(0);
+                Command command = commands.get(name);
+                if (command == null) {
+                    throw new CommandException("unknown command");
+                }
+                String detail = command.run(tokens.subList(1, tokens.size()).toArray(new String[0]));
+                summary.succeeded();
+                out.append("ok ").append(Integer.toString(lineNumber)).append(' ').append(name);
+                if (!detail.isEmpty()) {
+                    out.append(' ').append(detail);
+                }
+                out.append('\n');
+            } catch (CommandException | SQLException e) {
+                summary.failed();
+                out.append("FAIL ").append(Integer.toString(lineNumber)).append(' ').append(name)
+                        .append(": ").append(e.getMessage()).append('\n');
+            }
+        }
+        summary.finish();
+        out.append(summary.toString()).append('\n');
+        out.flush();
+        return summary;
+    }
+
+    // Finds the account among the allowed types, trying the remembered type first
+    private AbstractAccount find(int accountId, AccountType... allowed) throws CommandException {
+        AccountType known = accountTypes.get(accountId);
+        if (known != null) {
+            Optional<? extends AbstractAccount> account = load(accountId, known);
+            if (account.isPresent()) {
+                return requireType(account.get(), known, allowed);
+            }
+            accountTypes.remove(accountId);
+        }
+        for (AccountType type : AccountType.values()) {
+            Optional<? extends AbstractAccount> account = load(accountId, type);
+            if (account.isPresent()) {
+                accountTypes.put(accountId, type);
+                return requireType(account.get(), type, allowed);
+            }
+        }
+        throw new CommandException("no account " + accountId);
+    }
+
+    // Read from the primary: nearly every command writes the balance it reads
+    private Optional<? extends AbstractAccount> load(int accountId, AccountType type) {
+        switch (type) {
+            case CHECKING:
+                return checkingService.getByIdForWrite(accountId);
+            case SAVINGS:
+                return savingsService.getByIdForWrite(accountId);
+            default:
+                return creditLineService.getByIdForWrite(accountId);
+        }
+    }
+
+    private static AbstractAccount requireType(AbstractAccount account, AccountType type, AccountType... allowed)
+            throws CommandException {
+        for (AccountType candidate : allowed) {
+            if (candidate == type) {
+                return account;
+            }
+        }
+        throw new CommandException("account " + account.getAccountID() + " is a "
+                + type.name().toLowerCase(Locale.ROOT).replace('_', ' ') + " account");
+    }
+
+    private String opened(Integer accountId, AccountType type) throws CommandException {
+        if (accountId == null) {
+            throw new CommandException("account could not be created");
+        }
+        accountTypes.put(accountId, type);
+        return "account=" + accountId;
+    }
+
+    // Only the amount is reported: depending on the write path the model may not reflect the new balance
+    private static String moved(TransactionResult result, AbstractAccount account, double amount) throws CommandException {
+        if (!result.isSuccess()) {
+            throw new CommandException(result.name() + " (" + result.getMessage() + ")");
+        }
+        return String.format(Locale.ROOT, "account=%d amount=%.2f", account.getAccountID(), amount);
+    }
+
+    private static String stored(boolean stored, String detail) throws CommandException {
+        if (!stored) {
+            throw new CommandException("not stored");
+        }
+        return detail;
+    }
+
+    private static String balance(AbstractAccount account) {
+        return String.format(Locale.ROOT, "account=%d balance=%.2f", account.getAccountID(), account.getBalance());
+    }
+
+    // Model constructors reject invalid values with IllegalArgumentException
+    private interface ModelFactory<T> {
+        T create() throws CommandException;
+    }
+
+    private static <T> T model(ModelFactory<T> factory) throws CommandException {
+        try {
+            return factory.create();
+        } catch (IllegalArgumentException e) {
+            throw new CommandException(e.getMessage());
+        }
+    }
+
+    private static void expect(String[] args, int count, String usage) throws CommandException {
+        if (args.length != count) {
+            throw new CommandException("usage: " + usage);
+        }
+    }
+
+    private static int accountId(String value) throws CommandException {
+        return id(value, "account");
+    }
+
+    private static int id(String value, String what) throws CommandException {
+        int id = integer(value);
+        if (id <= 0) {
+            throw new CommandException(what + " ID must be positive: " + value);
+        }
+        return id;
+    }
+
+    private static int integer(String value) throws CommandException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new CommandException("not a whole number: " + value);
+        }
+    }
+
+    private static double amount(String value) throws CommandException {
+        double amount = number(value);
+        if (amount <= 0) {
+            throw new CommandException("amount must be positive: " + value);
+        }
+        return amount;
+    }
+
+    private static double number(String value) throws CommandException {
+        try {
+            double number = Double.parseDouble(value);
+            if (Double.isFinite(number)) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new CommandException("not a number: " + value);
+    }
+
+    // Splits on whitespace; a double-quoted token may contain spaces
+    static List<String> tokenize(String line) throws CommandException {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = line.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new CommandException("unterminated quote");
+                }
+                tokens.add(line.substring(i + 1, end));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
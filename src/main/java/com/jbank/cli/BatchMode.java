@@ -0,0 +1,63 @@
+package com.jbank.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Entry for `App --batch &lt;commands-file|-&gt; [--out results-file]`: runs the commands with a
+ * {@link BatchCommandRunner} instead of starting the menus. Results go to the file, or standard output,
+ * through a buffered writer.
+ *
+ * @author juanf
+ */
+public final class BatchMode {
+    private static final int OUTPUT_BUFFER_CHARS = 64 * 1024;
+
+    private BatchMode() {
+    }
+
+    // Whether the arguments ask for batch mode
+    public static boolean isRequested(String[] args) {
+        return args.length > 0 && args[0].equals("--batch");
+    }
+
+    /**
+     * @return Process exit code: 0 if every command succeeded, 1 if any failed, 2 for bad arguments
+     */
+    public static int run(String[] args) {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("--out"))) {
+            System.err.println("Usage: App --batch <commands-file|-> [--out results-file]");
+            return 2;
+        }
+        try (BufferedReader in = args[1].equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            OutputStream target = args.length == 4 ? new FileOutputStream(args[3]) : System.out;
+            Writer out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), OUTPUT_BUFFER_CHARS);
+            BatchCommandRunner runner = new BatchCommandRunner(new CheckingAccountService(), new SavingsAccountService(),
+                    new CreditLineService(), new ClientAccountDAO());
+            BatchSummary summary = runner.run(in, out);
+            if (target != System.out) {
+                out.close();
+            }
+            return summary.isSuccessful() ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jbank.cli;
+
+import java.util.Locale;
+
+/**
+ * Counts and elapsed time of one batch command run.
+ *
+ * @author juanf
+ */
+public class BatchSummary {
+    private final long startNanos = System.nanoTime();
+    private long endNanos;
+    private int succeeded;
+    private int failed;
+
+    void succeeded() {
+        succeeded++;
+    }
+
+    void failed() {
+        failed++;
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public boolean isSuccessful() {
+        return failed == 0;
+    }
+
+    public double getElapsedSeconds() {
+        return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1e9;
+    }
+
+    // Commands run per second, failures included
+    public double getThroughput() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? (succeeded + failed) / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d commands: %d succeeded, %d failed in %.3f s (%.0f commands/s)",
+                succeeded + failed, succeeded, failed, getElapsedSeconds(), getThroughput());
+    }
+}
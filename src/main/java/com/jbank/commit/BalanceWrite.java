@@ -0,0 +1,86 @@
+package com.jbank.commit;
+
+import java.util.UUID;
+
+import com.jbank.outbox.OutboxEvent;
+
+/**
+ * A conditional balance update queued for group commit.
+ * The write only applies if the stored balance still equals expectedBalance, so an account
+ * changed by someone else since the caller read it is rejected instead of silently overwritten.
+ *
+ * @author juanf
+ */
+public final class BalanceWrite {
+    private final int accountID;
+    private final double expectedBalance;
+    private final double newBalance;
+    private final Integer withdrawals;
+    private final OutboxEvent event;
+    private final UUID movementKey;
+
+    public BalanceWrite(int accountID, double expectedBalance, double newBalance) {
+        this(accountID, expectedBalance, newBalance, null);
+    }
+
+    // withdrawals is added to the savings_accounts withdrawal counter together with the balance; null leaves it untouched
+    public BalanceWrite(int accountID, double expectedBalance, double newBalance, Integer withdrawals) {
+        this(accountID, expectedBalance, newBalance, withdrawals, null);
+    }
+
+    // event is appended to the outbox in the same commit if the write applies; null records none
+    public BalanceWrite(int accountID, double expectedBalance, double newBalance, Integer withdrawals,
+            OutboxEvent event) {
+        this(accountID, expectedBalance, newBalance, withdrawals, event, null);
+    }
+
+    // movementKey, a journaled movement's idempotency key, is stored in movement_keys in the same commit; null stores none
+    public BalanceWrite(int accountID, double expectedBalance, double newBalance, Integer withdrawals,
+            OutboxEvent event, UUID movementKey) {
+        if (accountID <= 0) {
+            throw new IllegalArgumentException("Account ID must be positive.");
+        }
+        this.accountID = accountID;
+        this.expectedBalance = expectedBalance;
+        this.newBalance = newBalance;
+        this.withdrawals = withdrawals;
+        this.event = event;
+        this.movementKey = movementKey;
+    }
+
+    // Getters
+    public int getAccountID() {
+        return accountID;
+    }
+
+    public double getExpectedBalance() {
+        return expectedBalance;
+    }
+
+    public double getNewBalance() {
+        return newBalance;
+    }
+
+    public Integer getWithdrawals() {
+        return withdrawals;
+    }
+
+    public OutboxEvent getEvent() {
+        return event;
+    }
+
+    public UUID getMovementKey() {
+        return movementKey;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceWrite{" +
+                "accountID=" + accountID +
+                ", expectedBalance=" + expectedBalance +
+                ", newBalance=" + newBalance +
+                ", withdrawals=" + withdrawals +
+                ", movementKey=" + movementKey +
+                '}';
+    }
+}
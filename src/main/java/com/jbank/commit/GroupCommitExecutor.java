@@ -0,0 +1,326 @@
+package com.jbank.commit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.repository.DAO.MovementKeyDAO;
+import com.jbank.repository.DAO.OutboxDAO;
+import com.jbank.util.ConnectionHandler;
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Group commit for balance writes.
+ * Callers queue {@link BalanceWrite}s from any number of threads; a single writer thread drains up to
+ * maxBatchSize writes, or whatever arrives within maxWaitMicros of the first one, and applies them in
+ * one transaction with batched conditional updates. Each caller's future completes only after that
+ * shared commit, with its own result: true if applied, false if the balance changed concurrently.
+ *
+ * Outbox events and movement keys attached to the writes are inserted in the same transaction, one
+ * batched insert each per group for the writes that applied.
+ *
+ * If the batch as a whole is rejected by the database, the writes are retried one transaction each
+ * so a single bad write fails only its own caller.
+ *
+ * @author juanf
+ */
+public class GroupCommitExecutor implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitExecutor.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAX_WAIT_MICROS = 200;
+
+    private static final String BALANCE_SQL =
+            "UPDATE accounts SET balance = ? WHERE account_id = ? AND balance = ?";
+    private static final String COUNTER_SQL =
+            "UPDATE savings_accounts SET withdrawal_counter = withdrawal_counter + ? WHERE account_id = ?";
+
+    private final ConnectionSupplier connectionSupplier;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    // Submitters share the read lock; close takes the write lock, so no write is queued after the writer stops
+    private final ReadWriteLock state = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread
+    private Connection connection;
+
+    public GroupCommitExecutor() {
+        this(ConnectionHandler::openConnection, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_MICROS);
+    }
+
+    public GroupCommitExecutor(ConnectionSupplier connectionSupplier, int maxBatchSize, long maxWaitMicros) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1.");
+        }
+        if (maxWaitMicros < 0) {
+            throw new IllegalArgumentException("Max wait cannot be negative.");
+        }
+        this.connectionSupplier = connectionSupplier;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        Metrics.gauge("commit.pending", queue::size);
+        this.writer = new Thread(this::drainLoop, "group-commit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a write for the next group commit.
+     * @return Future completing after the commit with true if applied, false if the balance changed
+     *         concurrently; completes exceptionally with a SQLException if the write failed
+     */
+    public CompletableFuture<Boolean> submit(BalanceWrite write) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        state.readLock().lock();
+        try {
+            if (!running) {
+                result.completeExceptionally(new IllegalStateException("Group commit executor is closed"));
+                return result;
+            }
+            queue.add(new PendingWrite(write, result));
+        } finally {
+            state.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Queues a write and waits for its group commit.
+     * @return true if applied, false if the balance changed concurrently
+     * @throws SQLException if the write or its commit failed
+     */
+    public boolean apply(BalanceWrite write) throws SQLException {
+        try {
+            return submit(write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for group commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Group commit failed", e.getCause());
+        }
+    }
+
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    // Stops accepting writes, commits whatever is queued and closes the writer's connection
+    @Override
+    public void close() {
+        state.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            state.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failAll(batch, new SQLException("Group commit writer stopped"));
+            List<PendingWrite> leftover = new ArrayList<>();
+            queue.drainTo(leftover);
+            failAll(leftover, new SQLException("Group commit writer stopped"));
+            closeConnection();
+        }
+    }
+
+    private void commitBatch(List<PendingWrite> batch) {
+        boolean[] applied;
+        try {
+            Connection conn = connection();
+            try {
+                applied = applyWrites(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (BatchUpdateException e) {
+            LOGGER.warn("Group commit of {} writes rejected, retrying individually: {}", batch.size(), e.getMessage());
+            commitIndividually(batch);
+            return;
+        } catch (SQLException e) {
+            LOGGER.warn("Group commit of {} writes failed: {}", batch.size(), e.getMessage());
+            closeConnection();
+            failAll(batch, e);
+            return;
+        }
+
+        commits.increment();
+        writes.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(applied[i]);
+        }
+    }
+
+    private void commitIndividually(List<PendingWrite> batch) {
+        for (PendingWrite pending : batch) {
+            try {
+                Connection conn = connection();
+                try {
+                    boolean[] applied = applyWrites(conn, List.of(pending));
+                    conn.commit();
+                    commits.increment();
+                    writes.increment();
+                    pending.result().complete(applied[0]);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("Balance write {} failed: {}", pending.write(), e.getMessage());
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    // Applies the writes in order, so a later write to the same account sees the earlier one's balance
+    private static boolean[] applyWrites(Connection conn, List<PendingWrite> batch) throws SQLException {
+        boolean[] applied = new boolean[batch.size()];
+        try (PreparedStatement stmt = conn.prepareStatement(BALANCE_SQL)) {
+            for (PendingWrite pending : batch) {
+                stmt.setBigDecimal(1, toAmount(pending.write().getNewBalance()));
+                stmt.setInt(2, pending.write().getAccountID());
+                stmt.setBigDecimal(3, toAmount(pending.write().getExpectedBalance()));
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                applied[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+            }
+        }
+
+        boolean hasCounters = false;
+        try (PreparedStatement stmt = conn.prepareStatement(COUNTER_SQL)) {
+            for (int i = 0; i < batch.size(); i++) {
+                Integer withdrawals = batch.get(i).write().getWithdrawals();
+                if (applied[i] && withdrawals != null) {
+                    stmt.setInt(1, withdrawals);
+                    stmt.setInt(2, batch.get(i).write().getAccountID());
+                    stmt.addBatch();
+                    hasCounters = true;
+                }
+            }
+            if (hasCounters) {
+                stmt.executeBatch();
+            }
+        }
+
+        Map<UUID, Integer> movementKeys = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            UUID key = batch.get(i).write().getMovementKey();
+            if (applied[i] && key != null) {
+                movementKeys.put(key, batch.get(i).write().getAccountID());
+            }
+        }
+        new MovementKeyDAO(conn).recordAll(movementKeys);
+
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i).write().getEvent();
+            if (applied[i] && event != null) {
+                events.add(event);
+            }
+        }
+        new OutboxDAO(conn).appendAll(events);
+        return applied;
+    }
+
+    // Balances are DECIMAL(12, 2); compare as numeric so the conditional update is exact
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = connectionSupplier.get();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Error closing group commit connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+
+    private static void failAll(List<PendingWrite> writes, SQLException e) {
+        for (PendingWrite pending : writes) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingWrite(BalanceWrite write, CompletableFuture<Boolean> result) {
+    }
+}
@@ -14,6 +14,8 @@ import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.service.CheckingAccountService;
 import com.jbank.service.CreditLineService;
 import com.jbank.service.SavingsAccountService;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
 import com.jbank.util.InputHandler;
 import com.jbank.validator.CheckingAccountValidator;
 import com.jbank.validator.CreditLineValidator;
@@ -68,7 +70,7 @@ public class AccountController {
     private void viewAllAccounts(AbstractClient client) {
         System.out.println("\n== All Your Accounts ==");
         
-        try {
+        try (Span span = Tracer.startTrace("AccountController.viewAllAccounts")) {
             Map<Integer, String> accountMap = clientAccountDAO.getAccountsByClient(client.getCustomerID());
             
             if (accountMap.isEmpty()) {
@@ -148,7 +150,10 @@ public class AccountController {
 
     private void manageCheckingAccounts(AbstractClient client) {
         try {
-            List<CheckingAccount> accounts = getClientCheckingAccounts(client.getCustomerID());
+            List<CheckingAccount> accounts;
+            try (Span span = Tracer.startTrace("AccountController.manageCheckingAccounts")) {
+                accounts = getClientCheckingAccounts(client.getCustomerID());
+            }
             
             if (accounts.isEmpty()) {
                 System.out.println("\nYou don't have any checking accounts.");
@@ -193,7 +198,10 @@ public class AccountController {
         boolean managing = true;
         while (managing) {
             // Refresh account data from database before displaying menu
-            Optional<CheckingAccount> refreshed = checkingService.getById(account.getAccountID());
+            Optional<CheckingAccount> refreshed;
+            try (Span span = Tracer.startTrace("AccountController.handleCheckingAccountOperations")) {
+                refreshed = checkingService.getByIdForWrite(account.getAccountID());
+            }
             if (refreshed.isEmpty()) {
                 System.out.println("Error refreshing account data. Returning to menu.");
                 return;
@@ -240,7 +248,10 @@ public class AccountController {
             }
             
             double amount = amountOpt.get();
-            boolean success = checkingService.deposit(account, amount);
+            boolean success;
+            try (Span span = Tracer.startTrace("AccountController.depositToChecking")) {
+                success = checkingService.deposit(account, amount);
+            }
             
             if (success) {
                 System.out.println("Successfully deposited " + ValidationUtils.formatCurrency(amount));
@@ -263,7 +274,10 @@ public class AccountController {
             }
             
             double amount = amountOpt.get();
-            boolean success = checkingService.withdraw(account, amount);
+            boolean success;
+            try (Span span = Tracer.startTrace("AccountController.withdrawFromChecking")) {
+                success = checkingService.withdraw(account, amount);
+            }
             
             if (success) {
                 System.out.println("Successfully withdrew " + ValidationUtils.formatCurrency(amount));
@@ -291,7 +305,10 @@ public class AccountController {
         String confirmation = InputHandler.getStringInput("Type 'yes' to confirm account closure: ");
         
         if (confirmation.equalsIgnoreCase("yes")) {
-            boolean deleted = checkingService.delete(account.getAccountID());
+            boolean deleted;
+            try (Span span = Tracer.startTrace("AccountController.closeCheckingAccount")) {
+                deleted = checkingService.delete(account.getAccountID());
+            }
             if (deleted) {
                 System.out.println("Checking account closed successfully.");
                 return true;
@@ -309,7 +326,10 @@ public class AccountController {
 
     private void manageSavingsAccounts(AbstractClient client) {
         try {
-            List<SavingsAccount> accounts = getClientSavingsAccounts(client.getCustomerID());
+            List<SavingsAccount> accounts;
+            try (Span span = Tracer.startTrace("AccountController.manageSavingsAccounts")) {
+                accounts = getClientSavingsAccounts(client.getCustomerID());
+            }
             
             if (accounts.isEmpty()) {
                 System.out.println("\nYou don't have any savings accounts.");
@@ -354,7 +374,10 @@ public class AccountController {
         boolean managing = true;
         while (managing) {
             // Refresh account data from database before displaying menu
-            Optional<SavingsAccount> refreshed = savingsService.getById(account.getAccountID());
+            Optional<SavingsAccount> refreshed;
+            try (Span span = Tracer.startTrace("AccountController.handleSavingsAccountOperations")) {
+                refreshed = savingsService.getByIdForWrite(account.getAccountID());
+            }
             if (refreshed.isEmpty()) {
                 System.out.println("Error refreshing account data. Returning to menu.");
                 return;
@@ -403,7 +426,10 @@ public class AccountController {
             }
             
             double amount = amountOpt.get();
-            boolean success = savingsService.deposit(account, amount);
+            boolean success;
+            try (Span span = Tracer.startTrace("AccountController.depositToSavings")) {
+                success = savingsService.deposit(account, amount);
+            }
             
             if (success) {
                 System.out.println("Successfully deposited " + ValidationUtils.formatCurrency(amount));
@@ -441,7 +467,10 @@ public class AccountController {
                 return;
             }
             
-            boolean success = savingsService.withdraw(account, amount);
+            boolean success;
+            try (Span span = Tracer.startTrace("AccountController.withdrawFromSavings")) {
+                success = savingsService.withdraw(account, amount);
+            }
             
             if (success) {
                 System.out.println("Successfully withdrew " + ValidationUtils.formatCurrency(amount));
@@ -467,7 +496,10 @@ public class AccountController {
         String confirmation = InputHandler.getStringInput("Type 'yes' to confirm account closure: ");
         
         if (confirmation.equalsIgnoreCase("yes")) {
-            boolean deleted = savingsService.delete(account.getAccountID());
+            boolean deleted;
+            try (Span span = Tracer.startTrace("AccountController.closeSavingsAccount")) {
+                deleted = savingsService.delete(account.getAccountID());
+            }
             if (deleted) {
                 System.out.println("Savings account closed successfully.");
                 return true;
@@ -485,7 +517,10 @@ public class AccountController {
 
     private void manageCreditLines(AbstractClient client) {
         try {
-            List<CreditLine> accounts = getClientCreditLines(client.getCustomerID());
+            List<CreditLine> accounts;
+            try (Span span = Tracer.startTrace("AccountController.manageCreditLines")) {
+                accounts = getClientCreditLines(client.getCustomerID());
+            }
             
             if (accounts.isEmpty()) {
                 System.out.println("\nYou don't have any credit lines.");
@@ -533,7 +568,10 @@ public class AccountController {
         boolean managing = true;
         while (managing) {
             // Refresh account data from database before displaying menu
-            Optional<CreditLine> refreshed = creditLineService.getById(account.getAccountID());
+            Optional<CreditLine> refreshed;
+            try (Span span = Tracer.startTrace("AccountController.handleCreditLineOperations")) {
+                refreshed = creditLineService.getByIdForWrite(account.getAccountID());
+            }
             if (refreshed.isEmpty()) {
                 System.out.println("Error refreshing account data. Returning to menu.");
                 return;
@@ -599,11 +637,17 @@ public class AccountController {
                 return;
             }
             
-            boolean success = creditLineService.chargeCredit(account, amount);
+            boolean success;
+            Optional<CreditLine> refreshed = Optional.empty();
+            try (Span span = Tracer.startTrace("AccountController.makeCharge")) {
+                success = creditLineService.chargeCredit(account, amount);
+                if (success) {
+                    // Refresh account data
+                    refreshed = creditLineService.getById(account.getAccountID());
+                }
+            }
             
             if (success) {
-                // Refresh account data
-                Optional<CreditLine> refreshed = creditLineService.getById(account.getAccountID());
                 if (refreshed.isPresent()) {
                     System.out.println("Successfully charged " + ValidationUtils.formatCurrency(amount));
                     System.out.println("New balance: " + ValidationUtils.formatCurrency(refreshed.get().getBalance()));
@@ -635,11 +679,17 @@ public class AccountController {
             }
             
             double amount = amountOpt.get();
-            boolean success = creditLineService.makePayment(account, amount);
+            boolean success;
+            Optional<CreditLine> refreshed = Optional.empty();
+            try (Span span = Tracer.startTrace("AccountController.makePayment")) {
+                success = creditLineService.makePayment(account, amount);
+                if (success) {
+                    // Refresh account data
+                    refreshed = creditLineService.getById(account.getAccountID());
+                }
+            }
             
             if (success) {
-                // Refresh account data
-                Optional<CreditLine> refreshed = creditLineService.getById(account.getAccountID());
                 if (refreshed.isPresent()) {
                     System.out.println("Successfully paid " + ValidationUtils.formatCurrency(amount));
                     System.out.println("New balance: " + ValidationUtils.formatCurrency(refreshed.get().getBalance()));
@@ -664,7 +714,10 @@ public class AccountController {
         String confirmation = InputHandler.getStringInput("Type 'yes' to confirm account closure: ");
         
         if (confirmation.equalsIgnoreCase("yes")) {
-            boolean deleted = creditLineService.delete(account.getAccountID());
+            boolean deleted;
+            try (Span span = Tracer.startTrace("AccountController.closeCreditLine")) {
+                deleted = creditLineService.delete(account.getAccountID());
+            }
             if (deleted) {
                 System.out.println("Credit line closed successfully.");
                 return true;
@@ -722,7 +775,10 @@ public class AccountController {
                 overdraftLimit
             );
             
-            Integer accountId = checkingService.create(newAccount, client.getCustomerID());
+            Integer accountId;
+            try (Span span = Tracer.startTrace("AccountController.createCheckingAccount")) {
+                accountId = checkingService.create(newAccount, client.getCustomerID());
+            }
             
             if (accountId != null) {
                 System.out.println("Checking account created successfully!");
@@ -754,7 +810,10 @@ public class AccountController {
                 withdrawalLimit
             );
             
-            Integer accountId = savingsService.create(newAccount, client.getCustomerID());
+            Integer accountId;
+            try (Span span = Tracer.startTrace("AccountController.createSavingsAccount")) {
+                accountId = savingsService.create(newAccount, client.getCustomerID());
+            }
             
             if (accountId != null) {
                 System.out.println("Savings account created successfully!");
@@ -788,7 +847,10 @@ public class AccountController {
                 minPaymentPercentage
             );
             
-            Integer accountId = creditLineService.create(newAccount, client.getCustomerID());
+            Integer accountId;
+            try (Span span = Tracer.startTrace("AccountController.createCreditLine")) {
+                accountId = creditLineService.create(newAccount, client.getCustomerID());
+            }
             
             if (accountId != null) {
                 System.out.println("Credit line approved!");
@@ -1086,7 +1148,7 @@ public class AccountController {
     private void viewCoOwners(int accountId) {
         System.out.println("\n== Account Co-Owners ==");
         
-        try {
+        try (Span span = Tracer.startTrace("AccountController.viewCoOwners")) {
             Map<Integer, String> owners = clientAccountDAO.getClientsByAccount(accountId);
             
             if (owners.isEmpty()) {
@@ -1148,7 +1210,9 @@ public class AccountController {
             }
             
             // Add as JOINT owner
-            clientAccountDAO.assignAccountToClient(newClientId, accountId, "JOINT");
+            try (Span span = Tracer.startTrace("AccountController.addCoOwner")) {
+                clientAccountDAO.assignAccountToClient(newClientId, accountId, "JOINT");
+            }
             System.out.println("Successfully added " + clientName + " as a co-owner!");
             
         } catch (SQLException e) {
@@ -1206,7 +1270,9 @@ public class AccountController {
             }
             
             // Remove the owner
-            clientAccountDAO.removeAccountFromClient(removeClientId, accountId);
+            try (Span span = Tracer.startTrace("AccountController.removeCoOwner")) {
+                clientAccountDAO.removeAccountFromClient(removeClientId, accountId);
+            }
             System.out.println("Successfully removed " + clientName + " as a co-owner.");
             
         } catch (SQLException e) {
@@ -4,6 +4,8 @@ import java.util.Optional;
 
 import com.jbank.model.BusinessClient;
 import com.jbank.service.BusinessClientService;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
 import com.jbank.util.ClientInputHelper;
 import com.jbank.util.InputHandler;
 import com.jbank.validator.BusinessClientValidator;
@@ -50,7 +52,10 @@ public class BusinessClientController {
             );
             
             // Save to database and get generated ID
-            Integer newID = businessClientService.create(newClient);
+            Integer newID;
+            try (Span span = Tracer.startTrace("BusinessClientController.createNewClient")) {
+                newID = businessClientService.create(newClient);
+            }
             
             if (newID != null) {
                 System.out.println("Business client created successfully with ID: " + newID + "! You can now log in with this ID from the main menu.");
@@ -91,7 +96,10 @@ public class BusinessClientController {
             return;
         }
         
-        Optional<BusinessClient> clientOpt = businessClientService.getById(idOpt.get());
+        Optional<BusinessClient> clientOpt;
+        try (Span span = Tracer.startTrace("BusinessClientController.loginViaClientID")) {
+            clientOpt = businessClientService.getById(idOpt.get());
+        }
         if (clientOpt.isPresent()) {
             System.out.println("\nWelcome, " + clientOpt.get().getName() + "!");
             handleLoggedInClient(clientOpt.get());
@@ -107,7 +115,10 @@ public class BusinessClientController {
             return;
         }
         
-        Optional<BusinessClient> clientOpt = businessClientService.getByEIN(einOpt.get());
+        Optional<BusinessClient> clientOpt;
+        try (Span span = Tracer.startTrace("BusinessClientController.loginViaEIN")) {
+            clientOpt = businessClientService.getByEIN(einOpt.get());
+        }
         if (clientOpt.isPresent()) {
             System.out.println("\nWelcome, " + clientOpt.get().getName() + "!");
             handleLoggedInClient(clientOpt.get());
@@ -141,7 +152,10 @@ public class BusinessClientController {
     }
 
     private void saveUpdatedClient(BusinessClient client) {
-        BusinessClient updated = businessClientService.update(client.getCustomerID(), client);
+        BusinessClient updated;
+        try (Span span = Tracer.startTrace("BusinessClientController.saveUpdatedClient")) {
+            updated = businessClientService.update(client.getCustomerID(), client);
+        }
         if (updated != null) {
             System.out.println("Business account information updated successfully!");
         } else {
@@ -228,7 +242,7 @@ public class BusinessClientController {
         String confirmation = InputHandler.getStringInput("Type 'yes' to confirm or anything else to cancel: ");
         
         if (confirmation.equalsIgnoreCase("yes")) {
-            try {
+            try (Span span = Tracer.startTrace("BusinessClientController.deleteAccount")) {
                 boolean deleted = businessClientService.delete(client.getCustomerID());
                 if (deleted) {
                     System.out.println("Business account deleted successfully. Returning to main menu...");
@@ -4,6 +4,8 @@ import java.util.Optional;
 
 import com.jbank.model.PersonalClient;
 import com.jbank.service.PersonalClientService;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
 import com.jbank.util.ClientInputHelper;
 import com.jbank.util.InputHandler;
 import com.jbank.validator.ClientValidator;
@@ -43,7 +45,10 @@ public class PersonalClientController {
             );
             
             // Save to database and get generated ID
-            Integer newID = personalClientService.create(newClient);
+            Integer newID;
+            try (Span span = Tracer.startTrace("PersonalClientController.createNewClient")) {
+                newID = personalClientService.create(newClient);
+            }
             
             if (newID != null) {
                 System.out.println("Client created successfully with ID: " + newID + "! You can now log in with this ID from the main menu.");
@@ -84,7 +89,10 @@ public class PersonalClientController {
             return;
         }
         
-        Optional<PersonalClient> clientOpt = personalClientService.getById(idOpt.get());
+        Optional<PersonalClient> clientOpt;
+        try (Span span = Tracer.startTrace("PersonalClientController.loginViaClientID")) {
+            clientOpt = personalClientService.getById(idOpt.get());
+        }
         if (clientOpt.isPresent()) {
             System.out.println("\nWelcome, " + clientOpt.get().getName() + "!");
             handleLoggedInClient(clientOpt.get());
@@ -100,7 +108,10 @@ public class PersonalClientController {
             return;
         }
         
-        Optional<PersonalClient> clientOpt = personalClientService.getByTaxID(taxIDOpt.get());
+        Optional<PersonalClient> clientOpt;
+        try (Span span = Tracer.startTrace("PersonalClientController.loginViaTaxID")) {
+            clientOpt = personalClientService.getByTaxID(taxIDOpt.get());
+        }
         if (clientOpt.isPresent()) {
             System.out.println("\nWelcome, " + clientOpt.get().getName() + "!");
             handleLoggedInClient(clientOpt.get());
@@ -134,7 +145,10 @@ public class PersonalClientController {
     }
 
     private void saveUpdatedClient(PersonalClient client) {
-        PersonalClient updated = personalClientService.update(client.getCustomerID(), client);
+        PersonalClient updated;
+        try (Span span = Tracer.startTrace("PersonalClientController.saveUpdatedClient")) {
+            updated = personalClientService.update(client.getCustomerID(), client);
+        }
         if (updated != null) {
             System.out.println("Account information updated successfully!");
         } else {
@@ -197,7 +211,7 @@ public class PersonalClientController {
         String confirmation = InputHandler.getStringInput("Type 'yes' to confirm or anything else to cancel: ");
         
         if (confirmation.equalsIgnoreCase("yes")) {
-            try {
+            try (Span span = Tracer.startTrace("PersonalClientController.deleteAccount")) {
                 boolean deleted = personalClientService.delete(client.getCustomerID());
                 if (deleted) {
                     System.out.println("Account deleted successfully. Returning to main menu...");
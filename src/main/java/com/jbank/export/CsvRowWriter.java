@@ -0,0 +1,80 @@
+package com.jbank.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * RFC 4180 CSV in UTF-8: a header row of column names, CRLF line endings, and fields quoted only when they
+ * contain a comma, quote or line break. NULL is an empty field; values are the driver's text form, so
+ * DECIMAL columns keep their exact digits.
+ *
+ * @author juanf
+ */
+final class CsvRowWriter implements RowWriter {
+    private final Writer out;
+    private int columnCount;
+
+    CsvRowWriter(OutputStream out) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void start(ResultSetMetaData columns) throws SQLException, IOException {
+        columnCount = columns.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            field(i, columns.getColumnLabel(i));
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void row(ResultSet row) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            field(i, row.getString(i));
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void field(int column, String value) throws IOException {
+        if (column > 1) {
+            out.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,111 @@
+package com.jbank.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Streams a table extract from the database into CSV or newline-delimited JSON.
+ *
+ * Rows are read through a forward-only cursor a fetch at a time and written out as they arrive, so
+ * memory use is the same for ten rows or ten million. The PostgreSQL driver only uses a cursor inside a
+ * transaction, so the export runs in one (read-only, rolled back at the end), which also gives it a
+ * consistent snapshot of the table. Give the exporter its own connection: the transaction is held open
+ * for the whole export.
+ *
+ * @author juanf
+ */
+public class DataExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataExporter.class);
+
+    static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Connection connection;
+
+    public DataExporter(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Writes the extract to the stream, which is flushed but left open.
+     *
+     * @return Number of rows written
+     */
+    public long export(ExportTable table, ExportFilter filter, ExportFormat format, OutputStream out)
+            throws SQLException, IOException {
+        String sql = table.sql(filter);
+        try (Metrics.Sample sample = Metrics.time("export." + table.getTableName())) {
+            boolean autoCommit = connection.getAutoCommit();
+            boolean readOnly = connection.isReadOnly();
+            connection.setAutoCommit(false);
+            // Set before the first statement; PostgreSQL refuses to change it inside a transaction
+            connection.setReadOnly(true);
+            try (PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                filter.bind(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+                    writer.start(rs.getMetaData());
+                    long rows = 0;
+                    while (rs.next()) {
+                        writer.row(rs);
+                        rows++;
+                    }
+                    writer.finish();
+                    return rows;
+                }
+            } finally {
+                // Nothing was written; ending the transaction closes the cursor
+                connection.rollback();
+                connection.setReadOnly(readOnly);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Writes the extract to a file, optionally gzip-compressed. The data goes to a .part file next to the
+     * target that is renamed over it once complete, so a failed export never leaves a truncated file
+     * under the final name.
+     */
+    public ExportResult exportToFile(ExportTable table, ExportFilter filter, ExportFormat format, Path target,
+            boolean gzip) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long rows;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES);
+            OutputStream out = gzip ? new GZIPOutputStream(file, BUFFER_BYTES) : file;
+            rows = export(table, filter, format, out);
+            // Writes the gzip trailer and the last buffer
+            out.close();
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        ExportResult result = new ExportResult(table, rows, Files.size(target), System.nanoTime() - start);
+        LOGGER.info("{} to {}", result, target);
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package com.jbank.export;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Optional row filters for an export: client type, account type and an inclusive balance range.
+ * Unset filters match every row. Built with the chained setters, e.g.
+ * {@code ExportFilter.all().accountType("SAVINGS").minBalance(new BigDecimal("10000"))}.
+ *
+ * @author juanf
+ */
+public final class ExportFilter {
+    private static final Set<String> CLIENT_TYPES = Set.of("PERSONAL", "BUSINESS");
+    private static final Set<String> ACCOUNT_TYPES = Set.of("CHECKING", "SAVINGS", "CREDIT_LINE");
+
+    private String clientType;
+    private String accountType;
+    private BigDecimal minBalance;
+    private BigDecimal maxBalance;
+
+    private ExportFilter() {
+    }
+
+    public static ExportFilter all() {
+        return new ExportFilter();
+    }
+
+    public ExportFilter clientType(String clientType) {
+        this.clientType = checked(clientType, CLIENT_TYPES, "client type");
+        return this;
+    }
+
+    public ExportFilter accountType(String accountType) {
+        this.accountType = checked(accountType, ACCOUNT_TYPES, "account type");
+        return this;
+    }
+
+    public ExportFilter minBalance(BigDecimal minBalance) {
+        this.minBalance = minBalance;
+        checkRange();
+        return this;
+    }
+
+    public ExportFilter maxBalance(BigDecimal maxBalance) {
+        this.maxBalance = maxBalance;
+        checkRange();
+        return this;
+    }
+
+    public String getClientType() {
+        return clientType;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public BigDecimal getMinBalance() {
+        return minBalance;
+    }
+
+    public BigDecimal getMaxBalance() {
+        return maxBalance;
+    }
+
+    boolean hasBalanceRange() {
+        return minBalance != null || maxBalance != null;
+    }
+
+    // Binds the set filters in the order ExportTable.sql adds their conditions
+    void bind(PreparedStatement statement) throws SQLException {
+        int index = 1;
+        if (clientType != null) {
+            statement.setString(index++, clientType);
+        }
+        if (accountType != null) {
+            statement.setString(index++, accountType);
+        }
+        if (minBalance != null) {
+            statement.setBigDecimal(index++, minBalance);
+        }
+        if (maxBalance != null) {
+            statement.setBigDecimal(index, maxBalance);
+        }
+    }
+
+    private void checkRange() {
+        if (minBalance != null && maxBalance != null && minBalance.compareTo(maxBalance) > 0) {
+            throw new IllegalArgumentException("Minimum balance " + minBalance + " is above maximum " + maxBalance);
+        }
+    }
+
+    private static String checked(String value, Set<String> allowed, String what) {
+        String upper = value.toUpperCase(Locale.ROOT);
+        if (!allowed.contains(upper)) {
+            throw new IllegalArgumentException("Unknown " + what + ": " + value + " (expected one of " + allowed + ")");
+        }
+        return upper;
+    }
+}
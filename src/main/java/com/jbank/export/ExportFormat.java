@@ -0,0 +1,21 @@
+package com.jbank.export;
+
+/**
+ * Output formats of an export: CSV with a header row, or newline-delimited JSON with one object per row.
+ *
+ * @author juanf
+ */
+public enum ExportFormat {
+    CSV,
+    NDJSON;
+
+    // Case-insensitive lookup for command-line arguments
+    public static ExportFormat parse(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name + " (expected csv or ndjson)");
+    }
+}
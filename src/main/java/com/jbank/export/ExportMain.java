@@ -0,0 +1,96 @@
+package com.jbank.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Command-line entry point that exports one table extract to a file, or to standard output with -.
+ *
+ * Usage: ExportMain &lt;table&gt; &lt;csv|ndjson&gt; &lt;file|-&gt; [--gzip] [--client-type PERSONAL|BUSINESS]
+ * [--account-type CHECKING|SAVINGS|CREDIT_LINE] [--min-balance n] [--max-balance n]
+ *
+ * @author juanf
+ */
+public class ExportMain {
+    private static final String USAGE = "Usage: ExportMain <clients|personal_clients|business_clients|accounts|client_accounts> "
+            + "<csv|ndjson> <file|-> [--gzip] [--client-type type] [--account-type type] "
+            + "[--min-balance n] [--max-balance n]";
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        ExportTable table;
+        ExportFormat format;
+        ExportFilter filter = ExportFilter.all();
+        boolean gzip = false;
+        try {
+            table = ExportTable.parse(args[0]);
+            format = ExportFormat.parse(args[1]);
+            for (int i = 3; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--gzip")) {
+                    gzip = true;
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--client-type":
+                        filter.clientType(value);
+                        break;
+                    case "--account-type":
+                        filter.accountType(value);
+                        break;
+                    case "--min-balance":
+                        filter.minBalance(new BigDecimal(value));
+                        break;
+                    case "--max-balance":
+                        filter.maxBalance(new BigDecimal(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            // Rejects filters that do not apply to the table before connecting
+            table.sql(filter);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException included
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try (Connection connection = ConnectionHandler.openConnection()) {
+            DataExporter exporter = new DataExporter(connection);
+            if (args[2].equals("-")) {
+                OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+                if (gzip) {
+                    out = new GZIPOutputStream(out);
+                }
+                long rows = exporter.export(table, filter, format, out);
+                out.close();
+                System.err.println("Exported " + rows + " rows of " + table.getTableName());
+            } else {
+                System.out.println(exporter.exportToFile(table, filter, format, Path.of(args[2]), gzip));
+            }
+            System.exit(0);
+        } catch (SQLException | IOException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jbank.export;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one file export: rows written, bytes on disk (after compression) and elapsed time.
+ *
+ * @author juanf
+ */
+public final class ExportResult {
+    private final ExportTable table;
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    ExportResult(ExportTable table, long rows, long bytes, long elapsedNanos) {
+        this.table = table;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public ExportTable getTable() {
+        return table;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Exported %d rows of %s (%d bytes) in %.3f s (%.0f rows/s)",
+                rows, table.getTableName(), bytes, getElapsedSeconds(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,97 @@
+package com.jbank.export;
+
+/**
+ * The extracts that can be exported. Subtype tables are joined to their parent, so a personal client row
+ * carries the name and address from clients and an account row carries the columns of its type (the
+ * others are null). Rows come out in primary key order.
+ *
+ * Queries alias clients as c and accounts as a; a filter on a table without that alias is rejected.
+ *
+ * @author juanf
+ */
+public enum ExportTable {
+    CLIENTS("clients",
+            "SELECT c.customer_id, c.client_type, c.name, c.address, c.phone_number FROM clients c",
+            "c.customer_id", true, false),
+    PERSONAL_CLIENTS("personal_clients",
+            "SELECT c.customer_id, c.name, c.address, c.phone_number, p.tax_id, p.credit_score, p.yearly_income, "
+                    + "p.total_debt FROM personal_clients p JOIN clients c ON c.customer_id = p.customer_id",
+            "c.customer_id", true, false),
+    BUSINESS_CLIENTS("business_clients",
+            "SELECT c.customer_id, c.name, c.address, c.phone_number, b.ein, b.business_type, b.contact_person_name, "
+                    + "b.contact_person_title, b.total_asset_value, b.annual_revenue, b.annual_profit "
+                    + "FROM business_clients b JOIN clients c ON c.customer_id = b.customer_id",
+            "c.customer_id", true, false),
+    ACCOUNTS("accounts",
+            "SELECT a.account_id, a.account_type, a.account_name, a.balance, "
+                    + "ch.overdraft_fee, ch.overdraft_limit, "
+                    + "s.interest_rate AS savings_interest_rate, s.withdrawal_limit, s.withdrawal_counter, "
+                    + "cl.credit_limit, cl.interest_rate AS credit_interest_rate, cl.min_payment_percentage "
+                    + "FROM accounts a "
+                    + "LEFT JOIN checking_accounts ch ON ch.account_id = a.account_id "
+                    + "LEFT JOIN savings_accounts s ON s.account_id = a.account_id "
+                    + "LEFT JOIN credit_lines cl ON cl.account_id = a.account_id",
+            "a.account_id", false, true),
+    CLIENT_ACCOUNTS("client_accounts",
+            "SELECT ca.customer_id, c.client_type, ca.account_id, a.account_type, ca.ownership_type, a.balance "
+                    + "FROM client_accounts ca "
+                    + "JOIN clients c ON c.customer_id = ca.customer_id "
+                    + "JOIN accounts a ON a.account_id = ca.account_id",
+            "ca.customer_id, ca.account_id", true, true);
+
+    private final String tableName;
+    private final String select;
+    private final String orderBy;
+    private final boolean hasClient;
+    private final boolean hasAccount;
+
+    ExportTable(String tableName, String select, String orderBy, boolean hasClient, boolean hasAccount) {
+        this.tableName = tableName;
+        this.select = select;
+        this.orderBy = orderBy;
+        this.hasClient = hasClient;
+        this.hasAccount = hasAccount;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    // Accepts the table name as it is in the database, e.g. client_accounts
+    public static ExportTable parse(String name) {
+        for (ExportTable table : values()) {
+            if (table.tableName.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export table: " + name);
+    }
+
+    // Full query for the filter; its parameters are bound by ExportFilter.bind in the same order
+    String sql(ExportFilter filter) {
+        if (!hasClient && filter.getClientType() != null) {
+            throw new IllegalArgumentException("The client type filter does not apply to " + tableName);
+        }
+        if (!hasAccount && (filter.getAccountType() != null || filter.hasBalanceRange())) {
+            throw new IllegalArgumentException("Account filters do not apply to " + tableName);
+        }
+        StringBuilder sql = new StringBuilder(select);
+        String where = " WHERE ";
+        if (filter.getClientType() != null) {
+            sql.append(where).append("c.client_type = ?");
+            where = " AND ";
+        }
+        if (filter.getAccountType() != null) {
+            sql.append(where).append("a.account_type = ?");
+            where = " AND ";
+        }
+        if (filter.getMinBalance() != null) {
+            sql.append(where).append("a.balance >= ?");
+            where = " AND ";
+        }
+        if (filter.getMaxBalance() != null) {
+            sql.append(where).append("a.balance <= ?");
+        }
+        return sql.append(" ORDER BY ").append(orderBy).toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jbank.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.jbank.api.JsonWriter;
+
+/**
+ * Newline-delimited JSON: one object per row keyed by column name. Integer columns are written as numbers,
+ * DECIMAL columns as exact decimal numbers, and everything else as strings; NULL is null.
+ *
+ * @author juanf
+ */
+final class NdjsonRowWriter implements RowWriter {
+    private static final int TEXT = 0;
+    private static final int INTEGER = 1;
+    private static final int DECIMAL = 2;
+
+    private final JsonWriter json;
+    private String[] names;
+    private int[] kinds;
+
+    NdjsonRowWriter(OutputStream out) {
+        this.json = new JsonWriter(out);
+    }
+
+    @Override
+    public void start(ResultSetMetaData columns) throws SQLException {
+        int count = columns.getColumnCount();
+        names = new String[count];
+        kinds = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = columns.getColumnLabel(i + 1);
+            kinds[i] = kind(columns.getColumnType(i + 1));
+        }
+    }
+
+    @Override
+    public void row(ResultSet row) throws SQLException, IOException {
+        json.beginObject();
+        for (int i = 0; i < names.length; i++) {
+            json.name(names[i]);
+            switch (kinds[i]) {
+                case INTEGER:
+                    long value = row.getLong(i + 1);
+                    if (row.wasNull()) {
+                        json.nullValue();
+                    } else {
+                        json.value(value);
+                    }
+                    break;
+                case DECIMAL:
+                    json.value(row.getBigDecimal(i + 1));
+                    break;
+                default:
+                    json.value(row.getString(i + 1));
+            }
+        }
+        json.endObject().newline();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        json.flush();
+    }
+
+    private static int kind(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return INTEGER;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return DECIMAL;
+            default:
+                return TEXT;
+        }
+    }
+}
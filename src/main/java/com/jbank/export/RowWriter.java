@@ -0,0 +1,23 @@
+package com.jbank.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Writes result set rows in one export format, one row at a time, so nothing but the current row is held.
+ *
+ * @author juanf
+ */
+interface RowWriter {
+
+    // Called once before the first row with the columns of the query
+    void start(ResultSetMetaData columns) throws SQLException, IOException;
+
+    // Writes the row the result set is positioned on
+    void row(ResultSet row) throws SQLException, IOException;
+
+    // Flushes what is buffered; the underlying stream is left open
+    void finish() throws IOException;
+}
@@ -0,0 +1,99 @@
+package com.jbank.id;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Hi/lo allocator: each value taken from a sequence reserves a block of IDs, handed out from memory until
+ * the block runs out, so only one ID in blockSize costs a round trip.
+ *
+ * The sequence must step by blockSize * stride (see {@link #configure}). A value v then reserves
+ * v, v + stride, ... v + (blockSize - 1) * stride, which no other allocator, node or plain insert can be
+ * given: they all take whole steps of the same sequence, a plain insert using only the first ID of its
+ * block. With a stride of n on shard k, every ID stays in the shard's stripe (id % n == k).
+ *
+ * @author juanf
+ */
+public class HiLoIdAllocator implements IdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private final int blockSize;
+    private final int stride;
+    private final Map<IdSequence, Block> blocks = new EnumMap<>(IdSequence.class);
+
+    public HiLoIdAllocator(int blockSize, int stride) {
+        if (blockSize < 1 || stride < 1) {
+            throw new IllegalArgumentException("Block size and stride must be at least 1.");
+        }
+        this.blockSize = blockSize;
+        this.stride = stride;
+    }
+
+    public HiLoIdAllocator(int blockSize) {
+        this(blockSize, 1);
+    }
+
+    @Override
+    public synchronized int nextId(Connection connection, IdSequence sequence) throws SQLException {
+        Block block = blocks.get(sequence);
+        if (block == null || block.used == blockSize) {
+            block = reserve(connection, sequence, block == null);
+            blocks.put(sequence, block);
+        }
+        return Math.toIntExact(block.start + (long) block.used++ * stride);
+    }
+
+    /**
+     * Sets both sequences to step in blocks of blockSize within the shard's stripe, continuing past the
+     * existing rows. Run once per database while no application is inserting into it; allocators
+     * configured for another block size refuse to use the sequences afterwards.
+     */
+    public static void configure(Connection connection, int blockSize, int shard, int shardCount) throws SQLException {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Shard " + shard + " is not one of " + shardCount);
+        }
+        for (IdSequence sequence : IdSequence.values()) {
+            long start = firstIdAfter(sequence.maxId(connection), shard, shardCount);
+            sequence.restart(connection, start, (long) blockSize * shardCount);
+        }
+    }
+
+    public static void configure(Connection connection, int blockSize) throws SQLException {
+        configure(connection, blockSize, 0, 1);
+    }
+
+    // Smallest ID above max in the shard's stripe, and at least 1
+    static long firstIdAfter(long max, int shard, int shardCount) {
+        long next = Math.max(max + 1, 1);
+        long offset = Math.floorMod(shard - next, (long) shardCount);
+        return next + offset;
+    }
+
+    private Block reserve(Connection connection, IdSequence sequence, boolean first) throws SQLException {
+        try (Metrics.Sample sample = Metrics.time("id.reserveBlock")) {
+            if (first) {
+                // A sequence stepping by less would hand the same IDs to plain inserts and other nodes
+                long increment = sequence.increment(connection);
+                if (increment != (long) blockSize * stride) {
+                    sample.fail("MISCONFIGURED");
+                    throw new SQLException("Sequence " + sequence.getSequenceName() + " steps by " + increment
+                            + ", not " + (long) blockSize * stride + "; run HiLoIdAllocator.configure on it");
+                }
+            }
+            return new Block(sequence.nextValue(connection));
+        }
+    }
+
+    private static final class Block {
+        private final long start;
+        private int used;
+
+        Block(long start) {
+            this.start = start;
+        }
+    }
+}
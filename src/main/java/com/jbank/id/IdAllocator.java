@@ -0,0 +1,27 @@
+package com.jbank.id;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out client and account IDs before the rows are inserted, so DAOs can insert with the ID in hand:
+ * no generated key to read back, rows that can be batched, and child rows that can reference their
+ * parent's ID before either is written.
+ *
+ * IDs come from the sequences of the database the given connection points at; one allocator serves one
+ * database.
+ *
+ * @author juanf
+ */
+public interface IdAllocator {
+
+    int nextId(Connection connection, IdSequence sequence) throws SQLException;
+
+    default int[] nextIds(Connection connection, IdSequence sequence, int count) throws SQLException {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId(connection, sequence);
+        }
+        return ids;
+    }
+}
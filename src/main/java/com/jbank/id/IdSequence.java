@@ -0,0 +1,91 @@
+package com.jbank.id;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The sequences behind client and account IDs. Client IDs are shared by personal and business clients
+ * and account IDs by every account type, so one sequence serves each family.
+ *
+ * @author juanf
+ */
+public enum IdSequence {
+    CLIENT("clients_customer_id_seq", "clients", "customer_id"),
+    ACCOUNT("accounts_account_id_seq", "accounts", "account_id");
+
+    private final String sequenceName;
+    private final String table;
+    private final String column;
+
+    IdSequence(String sequenceName, String table, String column) {
+        this.sequenceName = sequenceName;
+        this.table = table;
+        this.column = column;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // Takes the next value, as an insert without an ID would
+    public long nextValue(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT nextval('" + sequenceName + "')");
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Step between values; text in PostgreSQL's information_schema, a number in H2's
+    public long increment(Connection connection) throws SQLException {
+        String sql = "SELECT increment FROM information_schema.sequences WHERE sequence_name = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, sequenceName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No sequence " + sequenceName);
+                }
+                return Long.parseLong(rs.getString(1).trim());
+            }
+        }
+    }
+
+    // Highest ID in the table, or 0 when it is empty
+    public long maxId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Moves the sequence past the highest ID in its table, keeping its step, after rows were loaded with
+     * their own IDs. The next value is max + step: for a hi/lo sequence that is still in max's stripe, and
+     * its block starts above every ID reserved by earlier blocks. An empty table leaves the sequence alone.
+     */
+    public void restartAfterMaxId(Connection connection) throws SQLException {
+        long max = maxId(connection);
+        if (max > 0) {
+            long increment = increment(connection);
+            restart(connection, max + increment, increment);
+        }
+    }
+
+    void restart(Connection connection, long start, long increment) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER SEQUENCE " + sequenceName + " INCREMENT BY " + increment + " RESTART WITH " + start);
+        }
+    }
+}
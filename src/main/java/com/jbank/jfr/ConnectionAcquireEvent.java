@@ -0,0 +1,26 @@
+package com.jbank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Opening a database connection through ConnectionHandler.
+ *
+ * @author juanf
+ */
+@Name("com.jbank.ConnectionAcquire")
+@Label("JBank Connection Acquire")
+@Category({ "JBank", "Database" })
+@Description("Opening a database connection")
+@Enabled(false)
+public class ConnectionAcquireEvent extends jdk.jfr.Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
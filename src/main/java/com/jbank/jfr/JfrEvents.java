@@ -0,0 +1,71 @@
+package com.jbank.jfr;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * Tracks whether the JBank events are enabled in a running recording, so instrumented code can skip
+ * creating events with a volatile read. The flags are refreshed whenever a recording starts or stops.
+ *
+ * ConnectionHandler only wraps a connection for the SQL events if a recording enables them when it is
+ * opened, since the wrapper costs every statement something even with no recording. Connections opened
+ * before a recording starts (the shared one, usually) therefore emit no SQL events in it; set the
+ * jbank.jfr.enabled system property to true to wrap every connection so they do, or to false to turn
+ * the events off entirely.
+ *
+ * @author juanf
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = !"false".equals(System.getProperty("jbank.jfr.enabled"))
+            && FlightRecorder.isAvailable();
+    private static final boolean ALWAYS_WRAP = AVAILABLE && Boolean.getBoolean("jbank.jfr.enabled");
+
+    private static volatile boolean operations;
+    private static volatile boolean statements;
+    private static volatile boolean transactions;
+
+    static {
+        if (AVAILABLE) {
+            FlightRecorder.register(OperationEvent.class);
+            FlightRecorder.register(SqlStatementEvent.class);
+            FlightRecorder.register(TransactionEvent.class);
+            FlightRecorder.register(ConnectionAcquireEvent.class);
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording recording) {
+                    refresh();
+                }
+            });
+            refresh();
+        }
+    }
+
+    private JfrEvents() {
+    }
+
+    // Whether a connection opened now should be wrapped so statement and transaction events can be emitted
+    public static boolean wrapConnections() {
+        return ALWAYS_WRAP || statements || transactions;
+    }
+
+    public static boolean operationsEnabled() {
+        return operations;
+    }
+
+    public static boolean statementsEnabled() {
+        return statements;
+    }
+
+    public static boolean transactionsEnabled() {
+        return transactions;
+    }
+
+    private static void refresh() {
+        operations = EventType.getEventType(OperationEvent.class).isEnabled();
+        statements = EventType.getEventType(SqlStatementEvent.class).isEnabled();
+        transactions = EventType.getEventType(TransactionEvent.class).isEnabled();
+    }
+}
@@ -0,0 +1,39 @@
+package com.jbank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A service or DAO method call, emitted by {@link com.jbank.metrics.Metrics#time(String)}.
+ * Money movements also carry the account, amount and outcome; the outcome of a failed movement is the
+ * name of its {@link com.jbank.model.TransactionResult}.
+ *
+ * @author juanf
+ */
+@Name("com.jbank.Operation")
+@Label("JBank Operation")
+@Category({ "JBank", "Operations" })
+@Description("Service or DAO method call")
+@Enabled(false)
+@StackTrace(false)
+public class OperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    @Description("Layer, class and method, e.g. service.CheckingAccountService.withdraw")
+    public String operation;
+
+    @Label("Account ID")
+    public int accountId;
+
+    @Label("Amount")
+    public double amount;
+
+    @Label("Outcome")
+    @Description("OK, or for money movements the TransactionResult name (INSUFFICIENT_FUNDS, INVALID_ACCOUNT, "
+            + "INVALID_REQUEST, REJECTED, JOURNAL_ERROR, DB_ERROR, ...); other operations report their own codes")
+    public String outcome;
+}
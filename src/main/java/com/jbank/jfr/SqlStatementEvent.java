@@ -0,0 +1,28 @@
+package com.jbank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One JDBC statement execution on a connection from ConnectionHandler. Its stack trace (enabled by
+ * jbank.jfc) links the statement to the DAO and service method that issued it.
+ *
+ * @author juanf
+ */
+@Name("com.jbank.SqlStatement")
+@Label("JBank SQL Statement")
+@Category({ "JBank", "Database" })
+@Description("JDBC statement execution")
+@Enabled(false)
+public class SqlStatementEvent extends jdk.jfr.Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    @Description("Rows changed, or -1 for a query (rows are read after the event ends)")
+    public long rows;
+}
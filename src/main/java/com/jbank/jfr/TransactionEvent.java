@@ -0,0 +1,28 @@
+package com.jbank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An explicit database transaction, from its first statement to commit or rollback (group commit,
+ * batch chunks, ledger saves). Autocommit statements are only reported as {@link SqlStatementEvent}s.
+ *
+ * @author juanf
+ */
+@Name("com.jbank.Transaction")
+@Label("JBank Transaction")
+@Category({ "JBank", "Database" })
+@Description("Database transaction from first statement to commit or rollback")
+@Enabled(false)
+public class TransactionEvent extends jdk.jfr.Event {
+
+    @Label("Statements")
+    public int statements;
+
+    @Label("Outcome")
+    @Description("COMMITTED or ROLLED_BACK")
+    public String outcome;
+}
@@ -0,0 +1,23 @@
+package com.jbank.journal;
+
+/**
+ * Kinds of record in the write-ahead journal: money movements, and the markers appended once the
+ * database outcome of a movement is known. A marker carries the movement's idempotency key and no amount.
+ *
+ * @author juanf
+ */
+public enum JournalOpType {
+    DEPOSIT,
+    WITHDRAWAL,
+    CHARGE,
+    PAYMENT,
+    INTEREST,
+    // The movement with the same key was written to the database
+    COMMIT,
+    // The movement with the same key was not written (rejected or rolled back)
+    ABORT;
+
+    public boolean isMarker() {
+        return this == COMMIT || this == ABORT;
+    }
+}
@@ -0,0 +1,104 @@
+package com.jbank.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sequential reader over the records of a write-ahead journal directory, oldest first.
+ * Reading stops at the end of the written part, or at the first record that fails its CRC check
+ * or breaks the sequence (a record torn by a crash).
+ *
+ * @author juanf
+ */
+public class JournalReader implements Iterator<JournalRecord>, AutoCloseable {
+
+    private final List<Path> segments;
+    private final long fromSequence;
+    private int segmentIndex;
+    private JournalSegment segment;
+    private int position;
+    private long expectedSequence = -1;
+    private JournalRecord next;
+    private boolean finished;
+
+    public JournalReader(Path directory, long fromSequence) throws IOException {
+        this.segments = JournalSegment.list(directory);
+        this.fromSequence = fromSequence;
+        // Skip segments that end before fromSequence
+        while (segmentIndex + 1 < segments.size()
+                && JournalSegment.firstSequenceOf(segments.get(segmentIndex + 1)) <= fromSequence) {
+            segmentIndex++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JournalRecord record = next;
+        next = null;
+        return record;
+    }
+
+    private JournalRecord advance() throws IOException {
+        while (true) {
+            if (segment == null) {
+                if (segmentIndex >= segments.size()) {
+                    return null;
+                }
+                segment = JournalSegment.openForRead(segments.get(segmentIndex++));
+                position = 0;
+                if (expectedSequence < 0) {
+                    expectedSequence = segment.getFirstSequence();
+                } else if (segment.getFirstSequence() != expectedSequence) {
+                    // A gap between segments means the earlier one was cut short by a crash
+                    return null;
+                }
+            }
+
+            JournalRecord record = segment.read(position);
+            if (record == null || record.getSequence() != expectedSequence) {
+                boolean segmentFull = !segment.hasRoom(position);
+                segment.close();
+                segment = null;
+                if (!segmentFull) {
+                    // End of the written part
+                    return null;
+                }
+                continue;
+            }
+            position += JournalSegment.RECORD_SIZE;
+            expectedSequence++;
+            if (record.getSequence() >= fromSequence) {
+                return record;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+}
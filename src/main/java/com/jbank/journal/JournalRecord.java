@@ -0,0 +1,81 @@
+package com.jbank.journal;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One money movement as stored in the write-ahead journal.
+ *
+ * @author juanf
+ */
+public final class JournalRecord {
+    private final long sequence;
+    private final int accountID;
+    private final JournalOpType opType;
+    private final long amountCents;
+    private final long timestampMillis;
+    private final UUID idempotencyKey;
+
+    public JournalRecord(long sequence, int accountID, JournalOpType opType, long amountCents,
+            long timestampMillis, UUID idempotencyKey) {
+        this.sequence = sequence;
+        this.accountID = accountID;
+        this.opType = opType;
+        this.amountCents = amountCents;
+        this.timestampMillis = timestampMillis;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getAccountID() {
+        return accountID;
+    }
+
+    public JournalOpType getOpType() {
+        return opType;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public UUID getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    // equals, hashCode, toString
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JournalRecord that = (JournalRecord) o;
+        return sequence == that.sequence && accountID == that.accountID && amountCents == that.amountCents
+                && timestampMillis == that.timestampMillis && opType == that.opType
+                && Objects.equals(idempotencyKey, that.idempotencyKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence, accountID, opType, amountCents, timestampMillis, idempotencyKey);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "sequence=" + sequence +
+                ", accountID=" + accountID +
+                ", opType=" + opType +
+                ", amountCents=" + amountCents +
+                ", timestampMillis=" + timestampMillis +
+                ", idempotencyKey=" + idempotencyKey +
+                '}';
+    }
+}
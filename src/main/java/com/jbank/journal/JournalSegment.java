@@ -0,0 +1,159 @@
+package com.jbank.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size, memory-mapped segment file of the write-ahead journal, plus the binary record format.
+ *
+ * Record layout (49 bytes, big-endian): CRC32C of the rest (int), sequence (long), account ID (int),
+ * op type (byte), amount in cents (long), timestamp millis (long), idempotency key (two longs).
+ * Unused space in a segment is zero-filled, which never passes the CRC check, so the first record
+ * that fails it marks the end of the segment.
+ *
+ * @author juanf
+ */
+final class JournalSegment implements AutoCloseable {
+
+    static final int RECORD_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Byte.BYTES
+            + Long.BYTES + Long.BYTES + 2 * Long.BYTES;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private static final JournalOpType[] OP_TYPES = JournalOpType.values();
+
+    private final Path path;
+    private final long firstSequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    // Creates or reopens a segment for writing; a new file is sized (zero-filled) up front
+    static JournalSegment openForWrite(Path directory, long firstSequence, int segmentSize) throws IOException {
+        Path path = directory.resolve(fileName(firstSequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize - segmentSize % RECORD_SIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new JournalSegment(path, firstSequence, channel, buffer);
+    }
+
+    static JournalSegment openForRead(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return new JournalSegment(path, firstSequenceOf(path), channel, buffer);
+    }
+
+    // Segment files of a directory, oldest first
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+    }
+
+    static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Zero-padded so lexical order is sequence order
+    private static String fileName(long firstSequence) {
+        return String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    boolean hasRoom(int position) {
+        return position + RECORD_SIZE <= buffer.capacity();
+    }
+
+    void write(int position, long sequence, int accountId, JournalOpType opType, long amountCents,
+            long timestampMillis, UUID idempotencyKey) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + Integer.BYTES);
+        record.putLong(sequence);
+        record.putInt(accountId);
+        record.put((byte) opType.ordinal());
+        record.putLong(amountCents);
+        record.putLong(timestampMillis);
+        record.putLong(idempotencyKey.getMostSignificantBits());
+        record.putLong(idempotencyKey.getLeastSignificantBits());
+        buffer.putInt(position, checksum(position));
+    }
+
+    /**
+     * Reads the record at position.
+     * @return The record, or null if there is no valid record there (end of the written part)
+     */
+    JournalRecord read(int position) {
+        if (!hasRoom(position) || buffer.getInt(position) != checksum(position)) {
+            return null;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + Integer.BYTES);
+        long sequence = record.getLong();
+        int accountId = record.getInt();
+        int op = record.get();
+        long amount = record.getLong();
+        long timestamp = record.getLong();
+        UUID key = new UUID(record.getLong(), record.getLong());
+        if (op < 0 || op >= OP_TYPES.length) {
+            return null;
+        }
+        return new JournalRecord(sequence, accountId, OP_TYPES[op], amount, timestamp, key);
+    }
+
+    // Writes the given byte range of the mapping to disk
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    private int checksum(int position) {
+        crc.reset();
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + Integer.BYTES).limit(position + RECORD_SIZE);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,217 @@
+package com.jbank.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local write-ahead journal of money movements, stored in fixed-size memory-mapped segment files.
+ *
+ * Services append a record before writing the movement to the database, under an idempotency key that
+ * the write stores in movement_keys in the same transaction, and a COMMIT or ABORT marker with that key
+ * once the database has answered. The journal is a durable audit trail and the basis for crash recovery:
+ * after a crash, records can be replayed with {@link JournalReader}, and a movement left without a marker
+ * was applied if and only if {@link com.jbank.repository.DAO.MovementKeyDAO} contains its key.
+ *
+ * Appends go to the mapped segment and are made durable in batches: every fsyncEveryRecords records,
+ * and at least every fsyncIntervalMillis by a background thread. When a segment is full a new one is
+ * started, and only the newest retainedSegments segments are kept.
+ *
+ * @author juanf
+ */
+public class WriteAheadJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadJournal.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_FSYNC_EVERY_RECORDS = 256;
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 10;
+    public static final int DEFAULT_RETAINED_SEGMENTS = 16;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int fsyncEveryRecords;
+    private final int retainedSegments;
+    private final ScheduledExecutorService syncer;
+
+    // Guarded by this
+    private JournalSegment segment;
+    private int position;
+    private int syncedPosition;
+    private int unsyncedRecords;
+    private long nextSequence;
+    private boolean closed;
+
+    public WriteAheadJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FSYNC_EVERY_RECORDS, DEFAULT_FSYNC_INTERVAL_MILLIS,
+                DEFAULT_RETAINED_SEGMENTS);
+    }
+
+    /**
+     * Opens the journal in a directory, continuing after the last valid record of the newest segment.
+     * @param segmentSize Size of each segment file in bytes
+     * @param fsyncEveryRecords Records appended between forced syncs (1 = sync every append)
+     * @param fsyncIntervalMillis Longest time an appended record stays unsynced (0 = no timed sync)
+     * @param retainedSegments Number of segment files kept, including the one being written
+     */
+    public WriteAheadJournal(Path directory, int segmentSize, int fsyncEveryRecords, long fsyncIntervalMillis,
+            int retainedSegments) throws IOException {
+        if (segmentSize < JournalSegment.RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must fit at least one record.");
+        }
+        if (fsyncEveryRecords < 1) {
+            throw new IllegalArgumentException("Records between syncs must be at least 1.");
+        }
+        if (retainedSegments < 1) {
+            throw new IllegalArgumentException("At least one segment must be retained.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncEveryRecords = fsyncEveryRecords;
+        this.retainedSegments = retainedSegments;
+
+        Files.createDirectories(directory);
+        recover();
+
+        if (fsyncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::timedSync, fsyncIntervalMillis, fsyncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Appends a money movement with a fresh idempotency key.
+     * @return Sequence number of the record
+     */
+    public long append(int accountId, JournalOpType opType, long amountCents) throws IOException {
+        return append(accountId, opType, amountCents, UUID.randomUUID());
+    }
+
+    /**
+     * Appends a money movement, or a COMMIT or ABORT marker for the movement with the same key (amount 0).
+     * The record is durable once the next sync completes.
+     * @param idempotencyKey Key identifying the operation, used to match records with database state on replay
+     * @return Sequence number of the record
+     */
+    public synchronized long append(int accountId, JournalOpType opType, long amountCents, UUID idempotencyKey)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        if (!segment.hasRoom(position)) {
+            rollOver();
+        }
+        long sequence = nextSequence++;
+        segment.write(position, sequence, accountId, opType, amountCents, System.currentTimeMillis(), idempotencyKey);
+        position += JournalSegment.RECORD_SIZE;
+        if (++unsyncedRecords >= fsyncEveryRecords) {
+            syncLocked();
+        }
+        return sequence;
+    }
+
+    // Forces every appended record to disk
+    public synchronized void sync() {
+        if (!closed) {
+            syncLocked();
+        }
+    }
+
+    // Sequence the next appended record will get
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Opens a reader over the retained records, starting at fromSequence
+    public JournalReader reader(long fromSequence) throws IOException {
+        sync();
+        return new JournalReader(directory, fromSequence);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        syncLocked();
+        segment.close();
+        closed = true;
+    }
+
+    private void timedSync() {
+        synchronized (this) {
+            if (!closed && unsyncedRecords > 0) {
+                syncLocked();
+            }
+        }
+    }
+
+    private void syncLocked() {
+        segment.force(syncedPosition, position);
+        syncedPosition = position;
+        unsyncedRecords = 0;
+    }
+
+    // Finds the end of the newest segment, or starts the first one
+    private void recover() throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            segment = JournalSegment.openForWrite(directory, nextSequence, segmentSize);
+            position = 0;
+            syncedPosition = 0;
+            return;
+        }
+
+        Path newest = segments.get(segments.size() - 1);
+        segment = JournalSegment.openForWrite(directory, JournalSegment.firstSequenceOf(newest), segmentSize);
+        long expected = segment.getFirstSequence();
+        position = 0;
+        JournalRecord record;
+        while ((record = segment.read(position)) != null && record.getSequence() == expected) {
+            position += JournalSegment.RECORD_SIZE;
+            expected++;
+        }
+        nextSequence = expected;
+        syncedPosition = position;
+        LOGGER.info("Opened journal {} at sequence {}", directory, nextSequence);
+    }
+
+    private void rollOver() throws IOException {
+        syncLocked();
+        segment.close();
+        segment = JournalSegment.openForWrite(directory, nextSequence, segmentSize);
+        position = 0;
+        syncedPosition = 0;
+        applyRetention();
+    }
+
+    private void applyRetention() throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+            LOGGER.debug("Deleted journal segment {}", segments.get(i).getFileName());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jbank.ledger;
+
+import java.util.Arrays;
+
+/**
+ * Account ID to slot index with open addressing over one int array, sized by the number of accounts
+ * rather than by the largest ID, since striped and block-allocated IDs are sparse. No boxing on lookups.
+ *
+ * @author juanf
+ */
+final class AccountSlots {
+    private static final int EMPTY = -1;
+
+    private final int[] accountIds;
+    // Slot of the account hashed to each position, or EMPTY; kept at most half full
+    private final int[] table;
+    private final int mask;
+
+    AccountSlots(int[] accountIds) {
+        this.accountIds = accountIds;
+        int capacity = Integer.highestOneBit(Math.max(accountIds.length, 1) * 2 - 1) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(table, EMPTY);
+        for (int slot = 0; slot < accountIds.length; slot++) {
+            int position = hash(accountIds[slot]) & mask;
+            while (table[position] != EMPTY) {
+                if (accountIds[table[position]] == accountIds[slot]) {
+                    throw new IllegalArgumentException("Duplicate account ID " + accountIds[slot]);
+                }
+                position = (position + 1) & mask;
+            }
+            table[position] = slot;
+        }
+    }
+
+    // Slot of the account, or -1 if it is not loaded
+    int slotOf(int accountId) {
+        int position = hash(accountId) & mask;
+        int slot;
+        while ((slot = table[position]) != EMPTY) {
+            if (accountIds[slot] == accountId) {
+                return slot;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Spreads IDs that share a stride (e.g. every third ID on a shard) over the table
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
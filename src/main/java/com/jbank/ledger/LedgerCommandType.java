@@ -0,0 +1,15 @@
+package com.jbank.ledger;
+
+/**
+ * Money movements the ledger engine applies to credit line balances (amount owed), and limit changes.
+ *
+ * @author juanf
+ */
+public enum LedgerCommandType {
+    // Increases the balance owed; rejected if it would exceed the credit limit
+    CHARGE,
+    // Decreases the balance owed; rejected if the resulting credit would exceed the credit limit
+    PAYMENT,
+    // Sets the credit limit to the amount; not journaled, since the store already holds the new limit
+    CREDIT_LIMIT
+}
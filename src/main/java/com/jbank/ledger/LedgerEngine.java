@@ -0,0 +1,514 @@
+package com.jbank.ledger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional in-memory engine for high-volume charges and payments against credit lines.
+ *
+ * Balances and limits live in primitive arrays indexed by account slot and are only touched by one
+ * writer thread, which consumes commands from a pre-allocated ring buffer. Each batch of applied
+ * commands is appended to a local journal and fsynced before callers are answered; changed balances
+ * are then written to the store (PostgreSQL) in the background every flush interval.
+ *
+ * If the journal cannot be written, the batch is undone: its balances are restored and its records cut
+ * from the journal, so the store never receives a change whose caller was told it failed. Commands are
+ * refused from then on.
+ *
+ * On start the engine loads the store's snapshot, replays journal entries the store does not include
+ * yet, saves the result and truncates the journal. While running it owns the balances of the credit
+ * lines it loaded, so they must not be written through other paths at the same time; credit limits
+ * changed in the store are passed on with {@link #setCreditLimit(int, long)}.
+ *
+ * @author juanf
+ */
+public class LedgerEngine implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerEngine.class);
+
+    public static final int DEFAULT_RING_SIZE = 1 << 16;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    // How long close waits for the last save before leaving it to the journal
+    private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+    private final LedgerStore store;
+    private final Path journalPath;
+    private final long flushIntervalNanos;
+    private final LedgerRingBuffer ring;
+    private final BlockingQueue<FlushBatch> flushQueue = new LinkedBlockingQueue<>();
+    private final LedgerJournal.Opener journalOpener;
+    // Producers hold the read lock while enqueueing; close takes the write lock, so nothing is enqueued after it
+    private final StampedLock lifecycle = new StampedLock();
+
+    // Account state, owned by the writer thread once started
+    private AccountSlots slots;
+    private int[] accountIds;
+    private long[] balanceCents;
+    private long[] creditLimitCents;
+    private boolean[] dirty;
+    private int[] dirtySlots;
+    private int dirtyCount;
+
+    // Undo log of the batch being processed: each touched slot's balance and dirty mark before the batch
+    private boolean[] touched;
+    private int[] touchedSlots;
+    private long[] undoBalanceCents;
+    private boolean[] undoDirty;
+    private int touchedCount;
+
+    private LedgerJournal journal;
+    private long baseSequence;
+    private long lastFlushNanos;
+    private volatile long processedSequence = -1;
+    private volatile boolean running;
+    private volatile boolean failed;
+    private Thread writer;
+    private Thread flusher;
+
+    public LedgerEngine(LedgerStore store, Path journalPath) {
+        this(store, journalPath, DEFAULT_RING_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public LedgerEngine(LedgerStore store, Path journalPath, int ringSize, long flushIntervalMillis) {
+        this(store, journalPath, ringSize, flushIntervalMillis, LedgerJournal::new);
+    }
+
+    LedgerEngine(LedgerStore store, Path journalPath, int ringSize, long flushIntervalMillis,
+            LedgerJournal.Opener journalOpener) {
+        this.store = store;
+        this.journalOpener = journalOpener;
+        this.journalPath = journalPath;
+        this.ring = new LedgerRingBuffer(ringSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    /**
+     * Rebuilds the account state from the store plus the journal and starts the writer.
+     * @throws SQLException if the snapshot could not be loaded or the replayed state not saved
+     * @throws IOException if the journal could not be read or reopened
+     */
+    public synchronized void start() throws SQLException, IOException {
+        if (running) {
+            throw new IllegalStateException("Ledger engine already started");
+        }
+        LedgerSnapshot snapshot = store.load();
+        loadSnapshot(snapshot);
+
+        long storedSequence = snapshot.getLastSequence();
+        long replayed = LedgerJournal.replay(journalPath, (sequence, type, accountId, amount, balanceAfter) -> {
+            int slot = slotOf(accountId);
+            if (sequence > storedSequence && slot >= 0) {
+                balanceCents[slot] = balanceAfter;
+                markDirty(slot);
+            }
+        });
+        baseSequence = Math.max(storedSequence, replayed);
+        if (dirtyCount > 0) {
+            LOGGER.info("Replayed journal up to sequence {} ({} accounts changed since the last save)",
+                    baseSequence, dirtyCount);
+        }
+        // The store must include the replayed entries before the journal is cut
+        FlushBatch replayedBatch = takeDirty(baseSequence);
+        store.save(replayedBatch.accountIds, replayedBatch.balanceCents, replayedBatch.count, baseSequence);
+
+        journal = journalOpener.open(journalPath);
+        journal.truncate();
+        lastFlushNanos = System.nanoTime();
+        running = true;
+
+        writer = new Thread(this::writerLoop, "ledger-writer");
+        flusher = new Thread(this::flusherLoop, "ledger-flusher");
+        writer.setDaemon(true);
+        flusher.setDaemon(true);
+        writer.start();
+        flusher.start();
+        LOGGER.info("Ledger engine started with {} credit lines at sequence {}", accountIds.length, baseSequence);
+    }
+
+    // Charges a credit line; completes with false if the account is unknown or the limit would be exceeded
+    public CompletableFuture<Boolean> charge(int accountId, long amountCents) {
+        return submit(LedgerCommandType.CHARGE, accountId, amountCents);
+    }
+
+    // Applies a payment to a credit line; completes with false if the account is unknown or the amount invalid
+    public CompletableFuture<Boolean> payment(int accountId, long amountCents) {
+        return submit(LedgerCommandType.PAYMENT, accountId, amountCents);
+    }
+
+    /**
+     * Sets a credit line's limit, for a limit already changed in the store; completes with false if the
+     * account is unknown or the limit negative. The balance is left alone.
+     */
+    public CompletableFuture<Boolean> setCreditLimit(int accountId, long limitCents) {
+        return submit(LedgerCommandType.CREDIT_LIMIT, accountId, limitCents);
+    }
+
+    /**
+     * Submits a command and returns a future completed once it is applied and journaled.
+     */
+    public CompletableFuture<Boolean> submit(LedgerCommandType type, int accountId, long amountCents) {
+        CompletableFuture<Boolean> reply = new CompletableFuture<>();
+        long stamp = lifecycle.readLock();
+        try {
+            if (!running) {
+                reply.completeExceptionally(new IllegalStateException("Ledger engine is not running"));
+                return reply;
+            }
+            enqueue(type, accountId, amountCents, reply);
+        } finally {
+            lifecycle.unlockRead(stamp);
+        }
+        return reply;
+    }
+
+    /**
+     * Submits a command without waiting for its outcome. No allocation; for high-volume producers
+     * that track results elsewhere.
+     * @return Sequence of the command, comparable with {@link #getProcessedSequence()}
+     */
+    public long publish(LedgerCommandType type, int accountId, long amountCents) {
+        long stamp = lifecycle.readLock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Ledger engine is not running");
+            }
+            return enqueue(type, accountId, amountCents, null);
+        } finally {
+            lifecycle.unlockRead(stamp);
+        }
+    }
+
+    private long enqueue(LedgerCommandType type, int accountId, long amountCents, CompletableFuture<Boolean> reply) {
+        long sequence = ring.claim();
+        LedgerRingBuffer.Entry entry = ring.get(sequence);
+        entry.type = type;
+        entry.accountId = accountId;
+        entry.amountCents = amountCents;
+        entry.reply = reply;
+        ring.publish(sequence);
+        return sequence;
+    }
+
+    // Highest command sequence applied and journaled
+    public long getProcessedSequence() {
+        return processedSequence;
+    }
+
+    /**
+     * Current balance owed in cents, or empty if the account is not a loaded credit line.
+     * Exact once the engine is closed; while running it may lag commands still in flight.
+     */
+    public OptionalLong getBalanceCents(int accountId) {
+        int slot = slotOf(accountId);
+        return slot < 0 ? OptionalLong.empty() : OptionalLong.of(balanceCents[slot]);
+    }
+
+    // Credit limit in cents, or empty if the account is not a loaded credit line; may lag like getBalanceCents
+    public OptionalLong getCreditLimitCents(int accountId) {
+        int slot = slotOf(accountId);
+        return slot < 0 ? OptionalLong.empty() : OptionalLong.of(creditLimitCents[slot]);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops accepting commands, applies those already submitted and saves every balance to the store.
+     * A producer waiting for room in a full ring is still served before the writer stops.
+     * If the store cannot be written, close gives up on it instead of waiting: the journal is kept and
+     * its entries are replayed on the next start.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        // Waits for producers in the middle of enqueueing, so the writer sees every command they claimed
+        long stamp = lifecycle.writeLock();
+        try {
+            running = false;
+        } finally {
+            lifecycle.unlockWrite(stamp);
+        }
+        try {
+            writer.join();
+            // Cut a retry backoff short; the final batch is tried once more, then left to the journal
+            LockSupport.unpark(flusher);
+            flusher.join(CLOSE_TIMEOUT_MILLIS);
+            if (flusher.isAlive()) {
+                LOGGER.warn("Ledger store still saving after {} ms; unsaved balances stay in the journal", CLOSE_TIMEOUT_MILLIS);
+                flusher.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Ledger engine stopped at sequence {}", baseSequence + processedSequence + 1);
+    }
+
+    private void loadSnapshot(LedgerSnapshot snapshot) {
+        int size = snapshot.size();
+        accountIds = Arrays.copyOf(snapshot.getAccountIds(), size);
+        balanceCents = Arrays.copyOf(snapshot.getBalanceCents(), size);
+        creditLimitCents = Arrays.copyOf(snapshot.getCreditLimitCents(), size);
+        dirty = new boolean[size];
+        dirtySlots = new int[size];
+        dirtyCount = 0;
+        touched = new boolean[size];
+        touchedSlots = new int[size];
+        undoBalanceCents = new long[size];
+        undoDirty = new boolean[size];
+        touchedCount = 0;
+        slots = new AccountSlots(accountIds);
+    }
+
+    private int slotOf(int accountId) {
+        return slots.slotOf(accountId);
+    }
+
+    private void markDirty(int slot) {
+        if (!dirty[slot]) {
+            dirty[slot] = true;
+            dirtySlots[dirtyCount++] = slot;
+        }
+    }
+
+    private void writerLoop() {
+        long next = 0;
+        int idleSpins = 0;
+        while (true) {
+            long available = ring.highestPublished(next);
+            if (available < next) {
+                if (!running && ring.getClaimed() < next) {
+                    break;
+                }
+                maybeHandOff(false);
+                if (++idleSpins < 200) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(50_000);
+                }
+                continue;
+            }
+            idleSpins = 0;
+            processBatch(next, available);
+            next = available + 1;
+            maybeHandOff(false);
+        }
+        maybeHandOff(true);
+        flushQueue.add(FlushBatch.STOP);
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close ledger journal: {}", e.getMessage());
+        }
+    }
+
+    private void processBatch(long first, long last) {
+        IOException journalFailure = null;
+        long journalLength = journal.size();
+        boolean journaled = false;
+        for (long sequence = first; sequence <= last; sequence++) {
+            LedgerRingBuffer.Entry entry = ring.get(sequence);
+            boolean applied = !failed && apply(entry.type, entry.accountId, entry.amountCents);
+            if (applied && entry.type != LedgerCommandType.CREDIT_LIMIT) {
+                int slot = slotOf(entry.accountId);
+                journaled = true;
+                try {
+                    journal.append(baseSequence + sequence + 1, entry.type, entry.accountId, entry.amountCents,
+                            balanceCents[slot]);
+                } catch (IOException e) {
+                    journalFailure = e;
+                }
+            }
+            // Outcome kept in the entry until the batch is durable
+            entry.applied = applied;
+        }
+        // Nothing to make durable if every command was rejected
+        if (journalFailure == null && journaled) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                journalFailure = e;
+            }
+        }
+        if (journalFailure != null) {
+            undoBatch(journalLength);
+            if (!failed) {
+                // Without a journal nothing more can be made durable; refuse further commands
+                LOGGER.error("Ledger journal write failed, rejecting further commands: {}", journalFailure.getMessage());
+                failed = true;
+            }
+        }
+        clearUndo();
+
+        for (long sequence = first; sequence <= last; sequence++) {
+            LedgerRingBuffer.Entry entry = ring.get(sequence);
+            CompletableFuture<Boolean> reply = entry.reply;
+            entry.reply = null;
+            if (reply != null) {
+                // A limit change is not journaled, so it stands whatever happened to the journal
+                if (journalFailure != null && entry.type != LedgerCommandType.CREDIT_LIMIT) {
+                    reply.completeExceptionally(journalFailure);
+                } else {
+                    reply.complete(entry.applied);
+                }
+            }
+        }
+        processedSequence = last;
+        ring.release(last);
+    }
+
+    // Applies one command to the arrays; false if it is rejected
+    private boolean apply(LedgerCommandType type, int accountId, long amountCents) {
+        int slot = slotOf(accountId);
+        if (type == LedgerCommandType.CREDIT_LIMIT) {
+            if (slot < 0 || amountCents < 0) {
+                return false;
+            }
+            creditLimitCents[slot] = amountCents;
+            return true;
+        }
+        if (slot < 0 || amountCents <= 0) {
+            return false;
+        }
+        long balance = balanceCents[slot];
+        long newBalance;
+        if (type == LedgerCommandType.CHARGE) {
+            newBalance = balance + amountCents;
+            if (newBalance > creditLimitCents[slot]) {
+                return false;
+            }
+        } else {
+            newBalance = balance - amountCents;
+            // Same rule as CreditLine.makePayment: credit may not exceed the limit
+            if (newBalance < -creditLimitCents[slot]) {
+                return false;
+            }
+        }
+        if (!touched[slot]) {
+            touched[slot] = true;
+            touchedSlots[touchedCount++] = slot;
+            undoBalanceCents[slot] = balance;
+            undoDirty[slot] = dirty[slot];
+        }
+        balanceCents[slot] = newBalance;
+        markDirty(slot);
+        return true;
+    }
+
+    // Puts the touched balances back as they were before the batch and cuts its records from the journal
+    private void undoBatch(long journalLength) {
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touchedSlots[i];
+            balanceCents[slot] = undoBalanceCents[slot];
+            dirty[slot] = undoDirty[slot];
+        }
+        // Slots that were clean before the batch leave the dirty list, so the flusher never sees them
+        int kept = 0;
+        for (int i = 0; i < dirtyCount; i++) {
+            if (dirty[dirtySlots[i]]) {
+                dirtySlots[kept++] = dirtySlots[i];
+            }
+        }
+        dirtyCount = kept;
+        try {
+            journal.rollback(journalLength);
+        } catch (IOException e) {
+            LOGGER.error("Could not cut failed batch from the ledger journal: {}", e.getMessage());
+        }
+    }
+
+    private void clearUndo() {
+        for (int i = 0; i < touchedCount; i++) {
+            touched[touchedSlots[i]] = false;
+        }
+        touchedCount = 0;
+    }
+
+    // Hands the changed balances to the flusher once per flush interval
+    private void maybeHandOff(boolean force) {
+        long now = System.nanoTime();
+        if (dirtyCount == 0 || (!force && now - lastFlushNanos < flushIntervalNanos)) {
+            return;
+        }
+        lastFlushNanos = now;
+        flushQueue.add(takeDirty(baseSequence + processedSequence + 1));
+    }
+
+    private FlushBatch takeDirty(long lastSequence) {
+        int[] ids = new int[dirtyCount];
+        long[] balances = new long[dirtyCount];
+        for (int i = 0; i < dirtyCount; i++) {
+            int slot = dirtySlots[i];
+            ids[i] = accountIds[slot];
+            balances[i] = balanceCents[slot];
+            dirty[slot] = false;
+        }
+        FlushBatch batch = new FlushBatch(ids, balances, dirtyCount, lastSequence);
+        dirtyCount = 0;
+        return batch;
+    }
+
+    /**
+     * Writes batches in order; a failed batch is retried before any later one so the store never goes
+     * back. Once closing, a failed save is not retried: what it held is still in the journal.
+     */
+    private void flusherLoop() {
+        long backoffMillis = 100;
+        FlushBatch batch = null;
+        while (true) {
+            try {
+                if (batch == null) {
+                    batch = flushQueue.take();
+                }
+                if (batch == FlushBatch.STOP) {
+                    return;
+                }
+                store.save(batch.accountIds, batch.balanceCents, batch.count, batch.lastSequence);
+                batch = null;
+                backoffMillis = 100;
+            } catch (SQLException e) {
+                if (!running) {
+                    LOGGER.error("Failed to save ledger balances up to sequence {} while closing; they will be "
+                            + "replayed from the journal on the next start: {}", batch.lastSequence, e.getMessage());
+                    return;
+                }
+                LOGGER.warn("Failed to save ledger balances up to sequence {}, retrying: {}",
+                        batch.lastSequence, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+                backoffMillis = Math.min(backoffMillis * 2, 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class FlushBatch {
+        static final FlushBatch STOP = new FlushBatch(new int[0], new long[0], 0, -1);
+
+        final int[] accountIds;
+        final long[] balanceCents;
+        final int count;
+        final long lastSequence;
+
+        FlushBatch(int[] accountIds, long[] balanceCents, int count, long lastSequence) {
+            this.accountIds = accountIds;
+            this.balanceCents = balanceCents;
+            this.count = count;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.jbank.ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only local journal of applied ledger commands.
+ * Each record holds the balance after the command, so replaying a record twice is harmless.
+ * Records are buffered and written out with one write and one fsync per flush; a record torn by a
+ * crash mid-write is ignored on replay and cut off when the journal is reopened.
+ *
+ * @author juanf
+ */
+class LedgerJournal implements AutoCloseable {
+
+    // sequence, type, account ID, amount, balance after
+    static final int RECORD_SIZE = Long.BYTES + Byte.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+
+    @FunctionalInterface
+    interface Opener {
+        LedgerJournal open(Path path) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void onRecord(long sequence, LedgerCommandType type, int accountId, long amountCents, long balanceAfterCents);
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 4096);
+    // Bytes written to the channel, not counting the buffer
+    private long written;
+
+    LedgerJournal(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long complete = channel.size() - channel.size() % RECORD_SIZE;
+        channel.truncate(complete);
+        channel.position(complete);
+        written = complete;
+    }
+
+    void append(long sequence, LedgerCommandType type, int accountId, long amountCents, long balanceAfterCents)
+            throws IOException {
+        if (buffer.remaining() < RECORD_SIZE) {
+            writeBuffer();
+        }
+        buffer.putLong(sequence);
+        buffer.put((byte) type.ordinal());
+        buffer.putInt(accountId);
+        buffer.putLong(amountCents);
+        buffer.putLong(balanceAfterCents);
+    }
+
+    // Makes every appended record durable
+    void flush() throws IOException {
+        writeBuffer();
+        channel.force(false);
+    }
+
+    // Drops every record, once the backing store includes them all
+    void truncate() throws IOException {
+        rollback(0);
+        channel.force(true);
+    }
+
+    // Length of the journal including buffered records, to roll back to
+    long size() {
+        return written + buffer.position();
+    }
+
+    // Drops the records appended since size() returned length, buffered or already written
+    void rollback(long length) throws IOException {
+        buffer.clear();
+        channel.truncate(length);
+        channel.position(length);
+        written = length;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Reads every complete record of a journal file in order.
+     * @return Highest sequence read, or -1 if the journal is empty or missing
+     */
+    static long replay(Path path, RecordHandler handler) throws IOException {
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        LedgerCommandType[] types = LedgerCommandType.values();
+        long last = -1;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer readBuffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+            while (in.read(readBuffer) > 0) {
+                readBuffer.flip();
+                while (readBuffer.remaining() >= RECORD_SIZE) {
+                    long sequence = readBuffer.getLong();
+                    LedgerCommandType type = types[readBuffer.get()];
+                    int accountId = readBuffer.getInt();
+                    long amount = readBuffer.getLong();
+                    long balanceAfter = readBuffer.getLong();
+                    handler.onRecord(sequence, type, accountId, amount, balanceAfter);
+                    last = sequence;
+                }
+                readBuffer.compact();
+            }
+        }
+        return last;
+    }
+}
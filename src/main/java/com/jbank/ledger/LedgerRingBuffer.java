@@ -0,0 +1,93 @@
+package com.jbank.ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-allocated multi-producer, single-consumer ring of ledger commands.
+ * Producers claim a sequence with one atomic increment, fill the pre-allocated entry in place and
+ * publish it; the consumer reads entries in sequence order. No locks and no allocation per command.
+ * Producers wait (spin, then yield) only when the ring is full.
+ *
+ * @author juanf
+ */
+final class LedgerRingBuffer {
+
+    // Mutable slot, reused every time the ring wraps
+    static final class Entry {
+        LedgerCommandType type;
+        int accountId;
+        long amountCents;
+        CompletableFuture<Boolean> reply;
+        boolean applied;
+    }
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int indexShift;
+    // Round in which each slot was last published, so the consumer can tell a fresh entry from a stale one
+    private final AtomicIntegerArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+
+    LedgerRingBuffer(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two.");
+        }
+        this.entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    // Claims the next sequence, waiting while the ring is full
+    long claim() {
+        long sequence = claimed.incrementAndGet();
+        int spins = 0;
+        while (sequence - entries.length > consumed) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return sequence;
+    }
+
+    Entry get(long sequence) {
+        return entries[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * Returns the highest sequence from next onwards that is published without gaps,
+     * or next - 1 if next itself is not published yet.
+     */
+    long highestPublished(long next) {
+        long limit = claimed.get();
+        long sequence = next;
+        while (sequence <= limit && published.get((int) sequence & mask) == (int) (sequence >>> indexShift)) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    long getClaimed() {
+        return claimed.get();
+    }
+
+    // Frees every entry up to and including sequence for reuse by producers
+    void release(long sequence) {
+        consumed = sequence;
+    }
+}
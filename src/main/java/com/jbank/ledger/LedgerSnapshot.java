@@ -0,0 +1,45 @@
+package com.jbank.ledger;
+
+/**
+ * Durable state the ledger engine starts from: one entry per credit line plus the journal sequence
+ * the stored balances already include. Amounts are in cents.
+ *
+ * @author juanf
+ */
+public final class LedgerSnapshot {
+    private final int[] accountIds;
+    private final long[] balanceCents;
+    private final long[] creditLimitCents;
+    private final long lastSequence;
+
+    public LedgerSnapshot(int[] accountIds, long[] balanceCents, long[] creditLimitCents, long lastSequence) {
+        if (accountIds.length != balanceCents.length || accountIds.length != creditLimitCents.length) {
+            throw new IllegalArgumentException("Snapshot arrays must have the same length.");
+        }
+        this.accountIds = accountIds;
+        this.balanceCents = balanceCents;
+        this.creditLimitCents = creditLimitCents;
+        this.lastSequence = lastSequence;
+    }
+
+    // Getters
+    public int[] getAccountIds() {
+        return accountIds;
+    }
+
+    public long[] getBalanceCents() {
+        return balanceCents;
+    }
+
+    public long[] getCreditLimitCents() {
+        return creditLimitCents;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public int size() {
+        return accountIds.length;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jbank.ledger;
+
+import java.sql.SQLException;
+
+/**
+ * Durable backing store of the ledger engine (PostgreSQL in production, see LedgerDAO).
+ *
+ * @author juanf
+ */
+public interface LedgerStore {
+
+    // Loads every credit line balance and the last journal sequence already stored
+    LedgerSnapshot load() throws SQLException;
+
+    /**
+     * Stores the balances of the first count accounts and records that the store now includes
+     * every journal entry up to lastSequence. Must be atomic.
+     */
+    void save(int[] accountIds, long[] balanceCents, int count, long lastSequence) throws SQLException;
+}
@@ -0,0 +1,135 @@
+package com.jbank.metrics;
+
+import java.lang.ref.Cleaner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the dedicated connections handed out by ConnectionHandler.openConnection. A connection that is
+ * garbage-collected without being closed is logged as leaked; one still open after the hold threshold is
+ * flagged once, and its total hold time is logged when it is finally closed. Both entries carry the thread
+ * and JBank frames that opened the connection, and go to the jbank.jdbc.leak logger at WARN.
+ *
+ * The hold threshold comes from the jbank.jdbc.holdWarningSeconds system property (default 300; negative
+ * turns the check off) or {@link #configure(long)}. Long-lived owners such as the group-commit writer are
+ * flagged like any other connection, so keep the threshold above their expected lifetime when they are in use.
+ *
+ * @author juanf
+ */
+public final class ConnectionLeakDetector {
+    private static final Logger LEAK_LOG = LoggerFactory.getLogger("jbank.jdbc.leak");
+
+    private static final Cleaner CLEANER = Cleaner.create(runnable -> {
+        Thread thread = new Thread(runnable, "connection-leak-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<Lease> OPEN = ConcurrentHashMap.newKeySet();
+
+    private static volatile long holdThresholdNanos = secondsToNanos(
+            SlowQueryLog.parseLong("jbank.jdbc.holdWarningSeconds", 300));
+    private static ScheduledExecutorService checker;
+
+    private ConnectionLeakDetector() {
+    }
+
+    /**
+     * @param holdSeconds Connections open at least this long are flagged; negative turns the check off
+     */
+    public static void configure(long holdSeconds) {
+        holdThresholdNanos = secondsToNanos(holdSeconds);
+    }
+
+    public static int getOpenCount() {
+        return OPEN.size();
+    }
+
+    // Starts tracking a connection proxy; the proxy must call Lease.closed() when it is closed
+    static Lease open(Object connection) {
+        Lease lease = new Lease(Thread.currentThread().getName(), SlowQueryLog.caller(), System.nanoTime());
+        OPEN.add(lease);
+        lease.cleanable = CLEANER.register(connection, lease);
+        startChecker();
+        return lease;
+    }
+
+    // Flags every connection open longer than the hold threshold that has not been flagged yet
+    static void check() {
+        long threshold = holdThresholdNanos;
+        if (threshold < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Lease lease : OPEN) {
+            if (!lease.flagged && now - lease.openedNanos >= threshold) {
+                lease.flagged = true;
+                LEAK_LOG.warn("Connection held for {} s by {}, still open; opened{}",
+                        (now - lease.openedNanos) / 1_000_000_000, lease.thread, lease.openedAt);
+            }
+        }
+    }
+
+    private static synchronized void startChecker() {
+        if (checker != null) {
+            return;
+        }
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-leak-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(ConnectionLeakDetector::check, 10, 10, TimeUnit.SECONDS);
+    }
+
+    private static long secondsToNanos(long seconds) {
+        return seconds < 0 ? -1 : TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * One tracked connection. Also the cleaning action run if the connection becomes unreachable, so it
+     * must not refer to the connection itself.
+     */
+    static final class Lease implements Runnable {
+        private final String thread;
+        private final String openedAt;
+        private final long openedNanos;
+        private volatile boolean closed;
+        private volatile boolean flagged;
+        private Cleaner.Cleanable cleanable;
+
+        private Lease(String thread, String openedAt, long openedNanos) {
+            this.thread = thread;
+            this.openedAt = openedAt;
+            this.openedNanos = openedNanos;
+        }
+
+        void closed() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            OPEN.remove(this);
+            cleanable.clean();
+            if (flagged) {
+                LEAK_LOG.warn("Connection flagged as held too long was closed after {} s; opened{}",
+                        (System.nanoTime() - openedNanos) / 1_000_000_000, openedAt);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            OPEN.remove(this);
+            LEAK_LOG.warn("Connection leaked: garbage-collected without being closed after {} s, "
+                    + "opened by {}{}", (System.nanoTime() - openedNanos) / 1_000_000_000, thread, openedAt);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.jbank.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.jbank.jfr.JfrEvents;
+import com.jbank.jfr.SqlStatementEvent;
+import com.jbank.jfr.TransactionEvent;
+import com.jbank.tracing.Tracer;
+
+/**
+ * Wraps a JDBC connection so every statement execution is timed in a "sql:" histogram named after the
+ * SQL text, and the rows it returned or changed are added to a "sql.rows:" counter of the same name.
+ * Query time covers the execute call; rows are counted as the result set is read.
+ *
+ * While a JFR recording has them enabled, statements are also emitted as {@link SqlStatementEvent}s,
+ * and explicit transactions (autocommit off) as {@link TransactionEvent}s ending at commit or rollback.
+ * Inside a sampled trace each statement adds a span, under the DAO call that ran it.
+ *
+ * Statements at or above the slow-query threshold, and statements that fail, are written to the
+ * {@link SlowQueryLog} with their bind count and rows; connections wrapped with leak tracking are watched by
+ * the {@link ConnectionLeakDetector}.
+ * Like the connection itself, a wrapped connection must be used by one thread at a time.
+ *
+ * @author juanf
+ */
+public final class InstrumentedConnection {
+
+    static final String LATENCY_PREFIX = "sql:";
+    static final String ROWS_PREFIX = "sql.rows:";
+
+    private InstrumentedConnection() {
+    }
+
+    public static Connection wrap(Connection connection) {
+        return wrap(connection, false);
+    }
+
+    /**
+     * @param trackLeaks Whether the ConnectionLeakDetector should watch the connection until it is closed
+     */
+    public static Connection wrap(Connection connection, boolean trackLeaks) {
+        TransactionState transaction = new TransactionState();
+        ConnectionLeakDetector.Lease[] lease = new ConnectionLeakDetector.Lease[1];
+        Connection wrapped = (Connection) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    String name = method.getName();
+                    boolean noArgs = args == null || args.length == 0;
+                    if (name.equals("close") && lease[0] != null) {
+                        Object result = invoke(connection, method, args);
+                        lease[0].closed();
+                        return result;
+                    }
+                    if (name.equals("commit") || (name.equals("rollback") && noArgs)) {
+                        Object result = invoke(connection, method, args);
+                        transaction.end(name.equals("commit") ? "COMMITTED" : "ROLLED_BACK");
+                        return result;
+                    }
+                    if (name.equals("setAutoCommit")) {
+                        Object result = invoke(connection, method, args);
+                        // Turning autocommit on commits the open transaction
+                        transaction.autoCommit = (Boolean) args[0];
+                        if (transaction.autoCommit) {
+                            transaction.end("COMMITTED");
+                        }
+                        return result;
+                    }
+
+                    Object result = invoke(connection, method, args);
+                    // prepareStatement/prepareCall take the SQL up front; plain statements get it per execute
+                    String sql = !noArgs && args[0] instanceof String ? (String) args[0] : null;
+                    if (result instanceof CallableStatement) {
+                        return wrapStatement((Statement) result, CallableStatement.class, sql, transaction);
+                    }
+                    if (result instanceof PreparedStatement) {
+                        return wrapStatement((Statement) result, PreparedStatement.class, sql, transaction);
+                    }
+                    if (result instanceof Statement) {
+                        return wrapStatement((Statement) result, Statement.class, null, transaction);
+                    }
+                    return result;
+                });
+        if (trackLeaks) {
+            lease[0] = ConnectionLeakDetector.open(wrapped);
+        }
+        return wrapped;
+    }
+
+    private static Object wrapStatement(Statement statement, Class<?> type, String preparedSql,
+            TransactionState transaction) {
+        int[] binds = new int[1];
+        return Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (!name.startsWith("execute")) {
+                        // Bind count is the highest parameter index set since the last clearParameters
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            binds[0] = Math.max(binds[0], (Integer) args[0]);
+                        } else if (name.equals("clearParameters")) {
+                            binds[0] = 0;
+                        }
+                        return invoke(statement, method, args);
+                    }
+                    transaction.statementExecuted();
+                    boolean metrics = Metrics.isEnabled();
+                    boolean recording = JfrEvents.statementsEnabled();
+                    boolean tracing = Tracer.isTracing();
+                    long slowNanos = SlowQueryLog.thresholdNanos();
+                    if (!metrics && !recording && !tracing && slowNanos < 0) {
+                        return invoke(statement, method, args);
+                    }
+
+                    String sql = args != null && args.length > 0 && args[0] instanceof String
+                            ? (String) args[0] : preparedSql;
+                    if (sql == null) {
+                        sql = "<unknown>";
+                    }
+                    SqlStatementEvent event = null;
+                    if (recording) {
+                        event = new SqlStatementEvent();
+                        event.begin();
+                    }
+                    Object result;
+                    long start = System.nanoTime();
+                    try (Metrics.Sample sample = metrics || tracing ? Metrics.time(LATENCY_PREFIX + sql) : null) {
+                        result = invoke(statement, method, args);
+                    } catch (SQLException e) {
+                        if (slowNanos >= 0) {
+                            SlowQueryLog.failed(sql, binds[0], System.nanoTime() - start, e);
+                        }
+                        throw e;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    boolean slow = slowNanos >= 0 && elapsed >= slowNanos;
+
+                    long rows = -1;
+                    if (result instanceof Integer || result instanceof Long) {
+                        rows = Math.max(0, ((Number) result).longValue());
+                    } else if (result instanceof int[]) {
+                        rows = 0;
+                        for (int updated : (int[]) result) {
+                            rows += Math.max(0, updated);
+                        }
+                    }
+                    if (event != null) {
+                        event.end();
+                        if (event.shouldCommit()) {
+                            event.sql = sql;
+                            event.rows = rows;
+                            event.commit();
+                        }
+                    }
+                    if (result instanceof ResultSet && (metrics || slow)) {
+                        // A slow query is logged once its rows have been read, when the result set closes
+                        SlowQuery pending = slow ? new SlowQuery(sql, binds[0], elapsed, SlowQueryLog.caller()) : null;
+                        return wrapResultSet((ResultSet) result,
+                                metrics ? Metrics.registry().counter(ROWS_PREFIX + sql) : null, pending);
+                    }
+                    if (metrics && rows >= 0) {
+                        Metrics.increment(ROWS_PREFIX + sql, rows);
+                    }
+                    if (slow) {
+                        SlowQueryLog.slow(sql, binds[0], elapsed, rows, SlowQueryLog.caller());
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrapResultSet(ResultSet resultSet, Counter rowsCounter, SlowQuery pending) {
+        long[] rows = new long[1];
+        return Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    String name = method.getName();
+                    if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                        rows[0]++;
+                        if (rowsCounter != null) {
+                            rowsCounter.increment();
+                        }
+                    } else if (name.equals("close") && pending != null && rows[0] >= 0) {
+                        SlowQueryLog.slow(pending.sql, pending.binds, pending.elapsedNanos, rows[0], pending.caller);
+                        // Logged once, however often close is called
+                        rows[0] = -1;
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // A slow query waiting for its result set to be read, with the call site captured at execute time
+    private static final class SlowQuery {
+        private final String sql;
+        private final int binds;
+        private final long elapsedNanos;
+        private final String caller;
+
+        SlowQuery(String sql, int binds, long elapsedNanos, String caller) {
+            this.sql = sql;
+            this.binds = binds;
+            this.elapsedNanos = elapsedNanos;
+            this.caller = caller;
+        }
+    }
+
+    // The explicit transaction open on a connection, if a recording wants transaction events
+    private static final class TransactionState {
+        private boolean autoCommit = true;
+        private TransactionEvent event;
+        private int statements;
+
+        void statementExecuted() {
+            if (autoCommit) {
+                return;
+            }
+            if (event == null) {
+                if (!JfrEvents.transactionsEnabled()) {
+                    return;
+                }
+                event = new TransactionEvent();
+                event.begin();
+            }
+            statements++;
+        }
+
+        void end(String outcome) {
+            if (event == null) {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.statements = statements;
+                event.outcome = outcome;
+                event.commit();
+            }
+            event = null;
+            statements = 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jbank.metrics;
+
+import java.util.function.LongSupplier;
+
+import com.jbank.jfr.JfrEvents;
+import com.jbank.jfr.OperationEvent;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
+
+/**
+ * Entry point for in-process metrics. Services and DAOs time each public method by starting a sample
+ * and closing it as a resource of the method's own try: {@code Metrics.Sample sample = Metrics.time("...");}
+ * then {@code try (sample; PreparedStatement stmt = ...)}, or {@code try (sample)}, which needs no
+ * extra nesting and does not leave an unreferenced resource variable. Methods whose catch clauses record
+ * a failure on the sample close it in a finally instead. Connections handed out by ConnectionHandler
+ * time every SQL statement and count its rows.
+ *
+ * Metrics are off unless the jbank.metrics.enabled system property is true or {@link #setEnabled(boolean)}
+ * turns them on. While off, {@link #time(String)} returns a shared no-op sample, so instrumented code
+ * pays one volatile read per call. Independently of that, each sample is emitted as a JFR
+ * {@link OperationEvent} while a recording has the event enabled, and adds a span to the current trace
+ * while the thread is inside a sampled one (see {@link Tracer}).
+ *
+ * @author juanf
+ */
+public final class Metrics {
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+    private static final Sample NOOP = new Sample(null, null, null, null, 0);
+    private static volatile boolean enabled = Boolean.getBoolean("jbank.metrics.enabled");
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Starts timing an operation; closing the sample records its latency in the named histogram.
+     */
+    public static Sample time(String name) {
+        boolean recording = JfrEvents.operationsEnabled();
+        Span span = Tracer.startSpan(name);
+        if (!enabled && !recording && !span.isRecording()) {
+            return NOOP;
+        }
+        OperationEvent event = null;
+        if (recording) {
+            event = new OperationEvent();
+            event.begin();
+        }
+        return new Sample(enabled ? REGISTRY.histogram(name) : null, name, event,
+                span.isRecording() ? span : null, System.nanoTime());
+    }
+
+    public static void increment(String counterName, long amount) {
+        if (enabled) {
+            REGISTRY.counter(counterName).add(amount);
+        }
+    }
+
+    public static void gauge(String name, LongSupplier value) {
+        REGISTRY.gauge(name, value);
+    }
+
+    /**
+     * A running timing. Not thread-safe; close it once, on the thread that started it.
+     * Money operations describe themselves with {@link #movement(int, double)} and report why they
+     * failed with {@link #fail(String)}; both only matter for the JFR event and the trace span.
+     */
+    public static final class Sample implements AutoCloseable {
+        private final LatencyHistogram histogram;
+        private final String name;
+        private final OperationEvent event;
+        private final Span span;
+        private final long startNanos;
+
+        private Sample(LatencyHistogram histogram, String name, OperationEvent event, Span span, long startNanos) {
+            this.histogram = histogram;
+            this.name = name;
+            this.event = event;
+            this.span = span;
+            this.startNanos = startNanos;
+        }
+
+        public void movement(int accountId, double amount) {
+            if (event != null) {
+                event.accountId = accountId;
+                event.amount = amount;
+            }
+        }
+
+        // Records the failure outcome and returns false, for use in return statements
+        public boolean fail(String outcome) {
+            if (event != null) {
+                event.outcome = outcome;
+            }
+            if (span != null) {
+                span.outcome(outcome);
+            }
+            return false;
+        }
+
+        // Returns success, recording the failure outcome if it is false
+        public boolean outcome(boolean success, String failure) {
+            return success || fail(failure);
+        }
+
+        @Override
+        public void close() {
+            if (histogram != null) {
+                histogram.record(System.nanoTime() - startNanos);
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = name;
+                    if (event.outcome == null) {
+                        event.outcome = "OK";
+                    }
+                    event.commit();
+                }
+            }
+            if (span != null) {
+                span.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.jbank.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publishes a registry: as text in the Prometheus exposition format (over HTTP at /metrics, or
+ * periodically dumped to a file), and over JMX as com.jbank:type=Metrics.
+ *
+ * {@link #startFromSystemProperties()} wires these up from jbank.metrics.* system properties when
+ * metrics are enabled: jbank.metrics.jmx (default true), jbank.metrics.port and jbank.metrics.file
+ * (with jbank.metrics.fileIntervalSeconds, default 10).
+ *
+ * @author juanf
+ */
+public class MetricsExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsExporter.class);
+
+    public static final String OBJECT_NAME = "com.jbank:type=Metrics";
+
+    private MetricsExporter() {
+    }
+
+    public static void startFromSystemProperties() {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        try {
+            if (Boolean.parseBoolean(System.getProperty("jbank.metrics.jmx", "true"))) {
+                registerJmx(Metrics.registry());
+            }
+            String port = System.getProperty("jbank.metrics.port");
+            if (port != null) {
+                startHttp(Metrics.registry(), Integer.parseInt(port));
+            }
+            String file = System.getProperty("jbank.metrics.file");
+            if (file != null) {
+                long interval = Long.parseLong(System.getProperty("jbank.metrics.fileIntervalSeconds", "10"));
+                startFileDump(Metrics.registry(), Path.of(file), interval);
+            }
+        } catch (IOException | JMException | NumberFormatException e) {
+            LOGGER.warn("Could not start metrics export: {}", e.getMessage());
+        }
+    }
+
+    public static void registerJmx(MetricsRegistry registry) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new MetricsMBean(registry), name);
+        }
+    }
+
+    // Serves the text exposition at http://host:port/metrics
+    public static HttpServer startHttp(MetricsRegistry registry, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toText(registry).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        LOGGER.info("Serving metrics on port {}", server.getAddress().getPort());
+        return server;
+    }
+
+    // Rewrites the file with the current exposition every intervalSeconds
+    public static ScheduledExecutorService startFileDump(MetricsRegistry registry, Path file, long intervalSeconds) {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(() -> {
+            try {
+                writeTo(registry, file);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write metrics to {}: {}", file, e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return dumper;
+    }
+
+    // Written to a temporary file first so readers never see half a dump
+    public static void writeTo(MetricsRegistry registry, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, toText(registry));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String toText(MetricsRegistry registry) {
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE jbank_counter counter\n");
+        for (Map.Entry<String, Long> entry : registry.getCounterValues().entrySet()) {
+            text.append("jbank_counter{name=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+        text.append("# TYPE jbank_gauge gauge\n");
+        for (Map.Entry<String, Long> entry : registry.getGaugeValues().entrySet()) {
+            text.append("jbank_gauge{name=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+        text.append("# TYPE jbank_latency_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : registry.getHistogramSnapshots().entrySet()) {
+            String name = escape(entry.getKey());
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            for (double quantile : new double[] { 0.5, 0.99, 0.999 }) {
+                text.append("jbank_latency_seconds{name=\"").append(name).append("\",quantile=\"").append(quantile)
+                        .append("\"} ").append(seconds(snapshot.getValueAtQuantile(quantile))).append('\n');
+            }
+            text.append("jbank_latency_seconds_count{name=\"").append(name).append("\"} ")
+                    .append(snapshot.getCount()).append('\n');
+            text.append("jbank_latency_seconds_sum{name=\"").append(name).append("\"} ")
+                    .append(seconds(snapshot.getSum())).append('\n');
+            text.append("jbank_latency_seconds_max{name=\"").append(name).append("\"} ")
+                    .append(seconds(snapshot.getMax())).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,112 @@
+package com.jbank.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+
+/**
+ * Read-only JMX view of a registry. Every counter and gauge is one attribute; every histogram has
+ * name.count, name.meanMicros, name.p50Micros, name.p99Micros, name.p999Micros and name.maxMicros.
+ *
+ * @author juanf
+ */
+public class MetricsMBean implements DynamicMBean {
+
+    private static final String[] HISTOGRAM_FIELDS = { "count", "meanMicros", "p50Micros", "p99Micros",
+            "p999Micros", "maxMicros" };
+
+    private final MetricsRegistry registry;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long counter = registry.getCounterValues().get(attribute);
+        if (counter != null) {
+            return counter;
+        }
+        Long gauge = registry.getGaugeValues().get(attribute);
+        if (gauge != null) {
+            return gauge;
+        }
+        int dot = attribute.lastIndexOf('.');
+        if (dot > 0) {
+            LatencyHistogram.Snapshot snapshot = registry.getHistogramSnapshots().get(attribute.substring(0, dot));
+            if (snapshot != null) {
+                return histogramField(snapshot, attribute.substring(dot + 1));
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object histogramField(LatencyHistogram.Snapshot snapshot, String field)
+            throws AttributeNotFoundException {
+        return switch (field) {
+            case "count" -> snapshot.getCount();
+            case "meanMicros" -> snapshot.getMean() / 1_000.0;
+            case "p50Micros" -> snapshot.getValueAtQuantile(0.50) / 1_000.0;
+            case "p99Micros" -> snapshot.getValueAtQuantile(0.99) / 1_000.0;
+            case "p999Micros" -> snapshot.getValueAtQuantile(0.999) / 1_000.0;
+            case "maxMicros" -> snapshot.getMax() / 1_000.0;
+            default -> throw new AttributeNotFoundException(field);
+        };
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Skipped, as the JMX contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("No operations");
+    }
+
+    // Rebuilt on every call, since metrics appear as they are first used
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getCounterValues().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+        }
+        for (String name : registry.getGaugeValues().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+        }
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : registry.getHistogramSnapshots().entrySet()) {
+            for (String field : HISTOGRAM_FIELDS) {
+                String type = field.equals("count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + field, type, "Latency " + field,
+                        true, false, false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "JBank metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.jbank.metrics;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs statements run through an InstrumentedConnection that take at least the slow-query threshold,
+ * and statements that fail, with their SQL, bind count, duration, rows and the JBank frames (DAO, service,
+ * controller) that ran them. Many DAOs only print failures to stderr, so this is where they become visible.
+ *
+ * The threshold comes from the jbank.jdbc.slowQueryMillis system property (default -1, off) or
+ * {@link #configure(long)}. The log needs connections wrapped by ConnectionHandler, which costs every
+ * statement on them, so it is opt-in, and only connections opened while it is on are covered. Statements
+ * under the threshold only pay for two clock reads; the call stack is walked only for statements that
+ * are logged. Entries go to the jbank.jdbc.slow logger at WARN.
+ *
+ * @author juanf
+ */
+public final class SlowQueryLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("jbank.jdbc.slow");
+
+    private static final int STACK_FRAMES = 4;
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private static volatile long thresholdNanos = millisToNanos(parseLong("jbank.jdbc.slowQueryMillis", -1));
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * @param slowMillis Statements taking at least this long are logged; negative turns the log off
+     */
+    public static void configure(long slowMillis) {
+        thresholdNanos = millisToNanos(slowMillis);
+    }
+
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    // -1 while the log is off
+    static long thresholdNanos() {
+        return thresholdNanos;
+    }
+
+    static void slow(String sql, int binds, long elapsedNanos, long rows, String caller) {
+        SLOW_LOG.warn("Slow SQL: {} ms, {} binds, {} rows: {}{}", elapsedNanos / 1_000_000, binds,
+                rows < 0 ? "?" : rows, sql, caller);
+    }
+
+    static void failed(String sql, int binds, long elapsedNanos, Throwable failure) {
+        SLOW_LOG.warn("Failed SQL after {} ms, {} binds: {} ({}){}", elapsedNanos / 1_000_000, binds, sql,
+                failure.getMessage(), caller());
+    }
+
+    /**
+     * The innermost JBank frames outside the JDBC wrapper, one "\n    at ..." line each, so a log entry
+     * points at the DAO method and whatever called it.
+     */
+    static String caller() {
+        List<StackWalker.StackFrame> frames = WALKER.walk(stream -> stream
+                .filter(frame -> isApplicationFrame(frame.getClassName()))
+                .limit(STACK_FRAMES)
+                .collect(Collectors.toList()));
+        StringBuilder snippet = new StringBuilder();
+        for (StackWalker.StackFrame frame : frames) {
+            snippet.append("\n    at ").append(frame.getClassName()).append('.').append(frame.getMethodName())
+                    .append('(').append(frame.getFileName()).append(':').append(frame.getLineNumber()).append(')');
+        }
+        return snippet.toString();
+    }
+
+    private static boolean isApplicationFrame(String className) {
+        if (!className.startsWith("com.jbank.")) {
+            return false;
+        }
+        int nested = className.indexOf('$');
+        String outer = nested < 0 ? className : className.substring(0, nested);
+        return !outer.equals(InstrumentedConnection.class.getName())
+                && !outer.equals(SlowQueryLog.class.getName())
+                && !outer.equals(ConnectionLeakDetector.class.getName())
+                && !outer.equals("com.jbank.util.ConnectionHandler");
+    }
+
+    private static long millisToNanos(long millis) {
+        return millis < 0 ? -1 : millis * 1_000_000;
+    }
+
+    static long parseLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid {}: {}", property, value);
+            return defaultValue;
+        }
+    }
+}
@@ -28,24 +28,35 @@ public class CheckingAccount extends AbstractAccount implements Depositable, Wit
     // Interface implementations
     @Override
     public void deposit (double depositAmount) {
+        tryDeposit(depositAmount).throwIfRejected();
+    }
+
+    @Override
+    public TransactionResult tryDeposit(double depositAmount) {
         if(depositAmount <= 0) {
-            throw new IllegalArgumentException("Deposit amount must be positive.");
+            return TransactionResult.INVALID_DEPOSIT_AMOUNT;
         }
         double newBalance = this.getBalance() + depositAmount;
         this.setBalance(newBalance);
+        return TransactionResult.OK;
     }
 
     @Override
     public void withdraw (double withdrawAmount) {
+        tryWithdraw(withdrawAmount).throwIfRejected();
+    }
+
+    @Override
+    public TransactionResult tryWithdraw(double withdrawAmount) {
         if(withdrawAmount <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive.");
+            return TransactionResult.INVALID_WITHDRAWAL_AMOUNT;
         }
         double newBalance = this.getBalance() - withdrawAmount;
         
         // Check if withdrawal would exceed overdraft limit
         // Account can go negative down to -overdraftLimit
         if (newBalance < -overdraftLimit) {
-            throw new IllegalArgumentException("Withdrawal would exceed overdraft limit.");
+            return TransactionResult.OVERDRAFT_LIMIT_EXCEEDED;
         }
         
         // If balance goes negative, apply overdraft fee
@@ -54,6 +65,7 @@ public class CheckingAccount extends AbstractAccount implements Depositable, Wit
         }
         
         this.setBalance(newBalance);
+        return TransactionResult.OK;
     }
 
     // Setter
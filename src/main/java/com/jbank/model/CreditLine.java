@@ -48,17 +48,34 @@ public class CreditLine extends AbstractAccount {
         this.minPaymentPercentage = minPaymentPercentage / 100;
     }
     public void makePayment(double paymentAmount) {
+        tryMakePayment(paymentAmount).throwIfRejected();
+    }
+
+    // Same rules as makePayment, reporting a rejection instead of throwing
+    public TransactionResult tryMakePayment(double paymentAmount) {
         if(paymentAmount < 0) {
-            throw new IllegalArgumentException("Payment amount cannot be negative.");
+            return TransactionResult.INVALID_PAYMENT_AMOUNT;
         }
         double newBalance = this.getBalance() - paymentAmount;
         // Balance cannot go below -creditLimit (more credit than limit allows)
         // For credit lines: positive balance = owe money, negative = credit available
         // Prevent paying in the wrong direction (balance becoming too negative)
         if (newBalance < -creditLimit) {
-            throw new IllegalArgumentException("Payment would result in a credit balance exceeding the credit limit.");
+            return TransactionResult.OVERPAYMENT;
         }
         this.setBalance(newBalance);
+        return TransactionResult.OK;
+    }
+
+    // Checks a charge against the credit limit without applying it
+    public TransactionResult checkCharge(double chargeAmount) {
+        if (chargeAmount <= 0) {
+            return TransactionResult.INVALID_CHARGE_AMOUNT;
+        }
+        if (this.getBalance() + chargeAmount > creditLimit) {
+            return TransactionResult.CREDIT_LIMIT_EXCEEDED;
+        }
+        return TransactionResult.OK;
     }
 
 
@@ -7,4 +7,7 @@ package com.jbank.model;
  */
 public interface Depositable {
     void deposit(double amount);
+
+    // Same rules as deposit, reporting a rejection instead of throwing
+    TransactionResult tryDeposit(double amount);
 }
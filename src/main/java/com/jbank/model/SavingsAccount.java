@@ -11,6 +11,12 @@ public class SavingsAccount extends AbstractAccount implements Depositable, With
 
     public SavingsAccount(int customerID, int accountID, double initialDeposit, String accountName,
             double interestRate, int withdrawalLimit) {
+        this(customerID, accountID, initialDeposit, accountName, interestRate, withdrawalLimit, 0);
+    }
+
+    // Restores an existing account, including the withdrawals already made this period
+    public SavingsAccount(int customerID, int accountID, double initialDeposit, String accountName,
+            double interestRate, int withdrawalLimit, int withdrawalCounter) {
         super(customerID, accountID, initialDeposit, accountName);
         // Input validation
         if(interestRate < 0) {
@@ -25,33 +31,45 @@ public class SavingsAccount extends AbstractAccount implements Depositable, With
 
         this.interestRate = interestRate;
         this.withdrawalLimit = withdrawalLimit;
-        this.withdrawalCounter = 0;
+        this.withdrawalCounter = withdrawalCounter;
     }
 
     // Interface Implementations
     @Override
     public void deposit (double depositAmount) {
+        tryDeposit(depositAmount).throwIfRejected();
+    }
+
+    @Override
+    public TransactionResult tryDeposit(double depositAmount) {
         if(depositAmount <= 0) {
-            throw new IllegalArgumentException("Deposit amount must be positive.");
+            return TransactionResult.INVALID_DEPOSIT_AMOUNT;
         }
         double newBalance = this.getBalance() + depositAmount;
         this.setBalance(newBalance);
+        return TransactionResult.OK;
     }
 
     @Override
     public void withdraw (double withdrawAmount) {
+        tryWithdraw(withdrawAmount).throwIfRejected();
+    }
+
+    @Override
+    public TransactionResult tryWithdraw(double withdrawAmount) {
         if(withdrawAmount <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive.");
+            return TransactionResult.INVALID_WITHDRAWAL_AMOUNT;
         }
         if (withdrawalCounter >= withdrawalLimit) {
-            throw new IllegalArgumentException("Withdrawal limit reached.");
+            return TransactionResult.WITHDRAWAL_LIMIT_REACHED;
         }
         double newBalance = this.getBalance() - withdrawAmount;
         if (newBalance < 0) {
-            throw new IllegalArgumentException("Insufficient funds for withdrawal.");
+            return TransactionResult.INSUFFICIENT_FUNDS;
         }
         this.setBalance(newBalance);
         withdrawalCounter++;
+        return TransactionResult.OK;
     }
 
     // Setters / Mutators
@@ -0,0 +1,52 @@
+package com.jbank.model;
+
+/**
+ * Outcome of a money operation (deposit, withdrawal, charge or payment). Business-rule rejections are
+ * ordinary outcomes on hot paths, so the models and services report them with these constants instead of
+ * throwing: no exception or stack trace is built for a rejected withdrawal.
+ *
+ * @author juanf
+ */
+public enum TransactionResult {
+    OK(null),
+
+    // Rejected by the account's rules; the model is left unchanged
+    INVALID_DEPOSIT_AMOUNT("Deposit amount must be positive."),
+    INVALID_WITHDRAWAL_AMOUNT("Withdrawal amount must be positive."),
+    INVALID_CHARGE_AMOUNT("Charge amount must be positive."),
+    INVALID_PAYMENT_AMOUNT("Payment amount cannot be negative."),
+    INSUFFICIENT_FUNDS("Insufficient funds for withdrawal."),
+    WITHDRAWAL_LIMIT_REACHED("Withdrawal limit reached."),
+    OVERDRAFT_LIMIT_EXCEEDED("Withdrawal would exceed overdraft limit."),
+    CREDIT_LIMIT_EXCEEDED("Charge would exceed the credit limit."),
+    OVERPAYMENT("Payment would result in a credit balance exceeding the credit limit."),
+
+    // Reported by the services when the change could not be stored
+    INVALID_ACCOUNT("Account ID must be positive."),
+    INVALID_REQUEST("Account data or amount failed validation."),
+    REJECTED("Balance changed concurrently or the ledger refused the command."),
+    JOURNAL_ERROR("Journal write failed."),
+    DB_ERROR("Database error.");
+
+    private final String message;
+
+    TransactionResult(String message) {
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return this == OK;
+    }
+
+    // Human-readable reason, null for OK
+    public String getMessage() {
+        return message;
+    }
+
+    // Throws the IllegalArgumentException the exception-based model methods report a rejection with
+    void throwIfRejected() {
+        if (this != OK) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -6,4 +6,7 @@ package com.jbank.model;
  */
 public interface Withdrawable {
     void withdraw(double amount);
+
+    // Same rules as withdraw, reporting a rejection instead of throwing
+    TransactionResult tryWithdraw(double amount);
 }
@@ -0,0 +1,52 @@
+package com.jbank.outbox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.jbank.api.JsonWriter;
+
+/**
+ * Appends events to a local file as newline-delimited JSON, one object per event. Each batch is
+ * forced to disk before it counts as delivered, so a crash can repeat events at the end of the file
+ * but never lose them.
+ *
+ * @author juanf
+ */
+public class FileSink implements OutboxSink {
+    private final Path path;
+    private final FileChannel channel;
+    private final JsonWriter json;
+
+    public FileSink(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        OutputStream out = Channels.newOutputStream(channel);
+        this.json = new JsonWriter(out);
+    }
+
+    @Override
+    public String getName() {
+        return "file:" + path;
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        for (OutboxEvent event : events) {
+            event.writeJson(json);
+            json.newline();
+        }
+        json.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.jbank.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands events to listeners in the same process, on the relay's thread. A listener that throws is
+ * logged and skipped; it does not hold back delivery to the others or the relay.
+ *
+ * @author juanf
+ */
+public class ListenerSink implements OutboxSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerSink.class);
+
+    private final List<Consumer<OutboxEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<OutboxEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Consumer<OutboxEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String getName() {
+        return "listeners";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        for (Consumer<OutboxEvent> listener : listeners) {
+            for (OutboxEvent event : events) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Outbox listener failed on event {}: {}", event.getEventId(), e.getMessage());
+                }
+            }
+        }
+    }
+}
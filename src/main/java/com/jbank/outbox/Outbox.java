@@ -0,0 +1,93 @@
+package com.jbank.outbox;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.jbank.repository.DAO.OutboxDAO;
+import com.jbank.shard.ShardPool;
+
+/**
+ * Writes outbox events in the same transaction as the change they describe, so an event exists if
+ * and only if its change committed. The change is handed the connection to make it on, and the event
+ * insert runs on the same one.
+ *
+ * An outbox on a pool borrows a connection per write, so concurrent writers each get their own
+ * transaction; this is what a multi-threaded server needs. An outbox on one connection locks it for
+ * the duration of a write: other outbox writes wait, but statements other threads send on it outside
+ * an outbox write can still land in the transaction, so only use it where one thread writes.
+ *
+ * On an autocommit connection each change becomes its own transaction: the change's statements, one
+ * INSERT for the event, and the commit. On a connection already in a transaction (a batch worker's,
+ * say) the event just joins it and the caller commits.
+ *
+ * @author juanf
+ */
+public class Outbox {
+
+    // A change made through a DAO on the given connection
+    public interface Change {
+        // @return false if nothing was changed, in which case no event is written
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final ShardPool pool;
+
+    public Outbox(Connection connection) {
+        this.connection = connection;
+        this.pool = null;
+    }
+
+    // Each write borrows its own connection from the pool
+    public Outbox(ShardPool pool) {
+        this.connection = null;
+        this.pool = pool;
+    }
+
+    /**
+     * Applies the change and appends the event in one transaction.
+     * @return false if the change reported nothing changed; it is then rolled back and no event written
+     * @throws SQLException if either failed; neither is kept
+     */
+    public boolean write(OutboxEvent event, Change change) throws SQLException {
+        if (pool == null) {
+            synchronized (connection) {
+                return write(connection, event, change);
+            }
+        }
+        Connection borrowed = pool.borrow();
+        try {
+            return write(borrowed, event, change);
+        } finally {
+            pool.release(borrowed);
+        }
+    }
+
+    private static boolean write(Connection connection, OutboxEvent event, Change change) throws SQLException {
+        OutboxDAO outboxDAO = new OutboxDAO(connection);
+        if (!connection.getAutoCommit()) {
+            // The caller's transaction: it commits or rolls back both
+            if (!change.apply(connection)) {
+                return false;
+            }
+            outboxDAO.append(event);
+            return true;
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            if (!change.apply(connection)) {
+                connection.rollback();
+                return false;
+            }
+            outboxDAO.append(event);
+            connection.commit();
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
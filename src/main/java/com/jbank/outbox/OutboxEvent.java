@@ -0,0 +1,132 @@
+package com.jbank.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+import com.jbank.api.JsonWriter;
+
+/**
+ * One change in the outbox: its type, the account or client it is about, and a small JSON payload.
+ * Created by the services with the factory methods; event ID and creation time are assigned by the
+ * database, so they are only set on events read back by a relay.
+ *
+ * @author juanf
+ */
+public final class OutboxEvent {
+    private final long eventId;
+    private final OutboxEventType type;
+    private final int aggregateId;
+    private final String payload;
+    private final Timestamp createdAt;
+
+    public OutboxEvent(long eventId, OutboxEventType type, int aggregateId, String payload, Timestamp createdAt) {
+        if (type == null) {
+            throw new IllegalArgumentException("Event type cannot be null.");
+        }
+        if (payload == null) {
+            throw new IllegalArgumentException("Event payload cannot be null.");
+        }
+        this.eventId = eventId;
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    // A deposit, withdrawal, charge or payment: the amount moved and the account's balance after it
+    public static OutboxEvent movement(OutboxEventType type, int accountId, double amount, double balance) {
+        return create(type, accountId, json -> json.beginObject()
+                .field("accountId", accountId)
+                .name("amount").value(toAmount(amount))
+                .name("balance").value(toAmount(balance))
+                .endObject());
+    }
+
+    // A client added to or removed from an account
+    public static OutboxEvent ownership(OutboxEventType type, int accountId, int clientId, String ownershipType) {
+        return create(type, accountId, json -> {
+            json.beginObject().field("accountId", accountId).field("clientId", clientId);
+            if (ownershipType != null) {
+                json.field("ownershipType", ownershipType);
+            }
+            json.endObject();
+        });
+    }
+
+    // Any update to a client; consumers read the client for the new values
+    public static OutboxEvent clientUpdated(int clientId, String clientType) {
+        return create(OutboxEventType.CLIENT_UPDATED, clientId, json -> json.beginObject()
+                .field("clientId", clientId)
+                .field("clientType", clientType)
+                .endObject());
+    }
+
+    // The event as one JSON object, the form every sink delivers
+    public void writeJson(JsonWriter json) throws IOException {
+        json.beginObject()
+                .field("eventId", eventId)
+                .field("type", type.name())
+                .field("aggregateType", type.getAggregateType())
+                .field("aggregateId", aggregateId)
+                .field("createdAt", createdAt == null ? null : createdAt.toInstant().toString())
+                .name("payload").rawValue(payload)
+                .endObject();
+    }
+
+    private interface Payload {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static OutboxEvent create(OutboxEventType type, int aggregateId, Payload payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        try {
+            JsonWriter json = new JsonWriter(out);
+            payload.write(json);
+            json.flush();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return new OutboxEvent(0, type, aggregateId, out.toString(StandardCharsets.UTF_8), null);
+    }
+
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Getters
+    public long getEventId() {
+        return eventId;
+    }
+
+    public OutboxEventType getType() {
+        return type;
+    }
+
+    public int getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "eventId=" + eventId +
+                ", type=" + type +
+                ", aggregateId=" + aggregateId +
+                ", payload=" + payload +
+                '}';
+    }
+}
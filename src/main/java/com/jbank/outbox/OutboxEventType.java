@@ -0,0 +1,27 @@
+package com.jbank.outbox;
+
+/**
+ * Kinds of change recorded in the outbox, each about one account or one client (its aggregate).
+ *
+ * @author juanf
+ */
+public enum OutboxEventType {
+    DEPOSIT("ACCOUNT"),
+    WITHDRAWAL("ACCOUNT"),
+    CREDIT_CHARGE("ACCOUNT"),
+    CREDIT_PAYMENT("ACCOUNT"),
+    OWNER_ADDED("ACCOUNT"),
+    OWNER_REMOVED("ACCOUNT"),
+    CLIENT_UPDATED("CLIENT");
+
+    private final String aggregateType;
+
+    OutboxEventType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    // ACCOUNT or CLIENT: what the event's aggregate ID refers to
+    public String getAggregateType() {
+        return aggregateType;
+    }
+}
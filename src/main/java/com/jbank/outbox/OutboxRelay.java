@@ -0,0 +1,195 @@
+package com.jbank.outbox;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.repository.DAO.OutboxDAO;
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Moves events from the outbox table to a set of sinks. Each batch is one transaction on the relay's
+ * own connection: claim up to batchSize of the oldest events with FOR UPDATE SKIP LOCKED, deliver them
+ * to every sink in turn, delete them and advance the relay's offset, commit. If a sink fails the
+ * transaction rolls back and the batch is offered again later, so delivery is at least once.
+ *
+ * Several relays can drain the same outbox: SKIP LOCKED hands each a different batch instead of making
+ * them wait. Each then sees only part of the stream, so give every relay the same sinks. Events come out
+ * in event ID order within a batch; a transaction that commits after later-numbered events were
+ * delivered is picked up by the next batch rather than skipped.
+ *
+ * @author juanf
+ */
+public class OutboxRelay implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final ConnectionSupplier connectionSupplier;
+    private final String consumer;
+    private final List<OutboxSink> sinks;
+    private final int batchSize;
+    private final LongAdder delivered = new LongAdder();
+    private Connection connection;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param consumer Name the relay's offset is stored under
+     * @param sinks Every batch goes to all of them, in this order
+     */
+    public OutboxRelay(ConnectionSupplier connectionSupplier, String consumer, List<OutboxSink> sinks, int batchSize) {
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("At least one sink is required.");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.connectionSupplier = connectionSupplier;
+        this.consumer = consumer;
+        this.sinks = List.copyOf(sinks);
+        this.batchSize = batchSize;
+        Metrics.gauge("outbox.delivered", delivered::sum);
+    }
+
+    /**
+     * Delivers one batch.
+     * @return Number of events delivered; 0 if the outbox was empty (or entirely claimed by other relays)
+     * @throws IOException if a sink failed; the batch stays in the outbox
+     */
+    public synchronized int relayOnce() throws SQLException, IOException {
+        Connection conn = connection();
+        try (Metrics.Sample sample = Metrics.time("outbox.relay")) {
+            try {
+                OutboxDAO outboxDAO = new OutboxDAO(conn);
+                List<OutboxEvent> events = outboxDAO.claim(batchSize);
+                if (events.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                for (OutboxSink sink : sinks) {
+                    sink.deliver(events);
+                }
+                outboxDAO.delete(events);
+                outboxDAO.advanceOffset(consumer, events.get(events.size() - 1).getEventId(), events.size());
+                conn.commit();
+                delivered.add(events.size());
+                return events.size();
+            } catch (SQLException | IOException | RuntimeException e) {
+                sample.fail(e.getClass().getSimpleName());
+                rollback(conn);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Relays on a background thread until closed. Batches follow each other without pause while the
+     * outbox has a backlog; once it is drained the thread polls every pollMillis.
+     */
+    public synchronized void start(long pollMillis) {
+        if (thread != null) {
+            throw new IllegalStateException("Relay already started");
+        }
+        running = true;
+        thread = new Thread(() -> run(pollMillis), "outbox-relay-" + consumer);
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Outbox relay {} started with sinks {}", consumer, sinks.stream().map(OutboxSink::getName).toList());
+    }
+
+    // Events delivered by this relay since it was created
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    // Stops the background thread, then closes the sinks and the connection
+    @Override
+    public void close() {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            thread = null;
+            for (OutboxSink sink : sinks) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Error closing sink {}: {}", sink.getName(), e.getMessage());
+                }
+            }
+            closeConnection();
+        }
+    }
+
+    private void run(long pollMillis) {
+        while (running) {
+            try {
+                if (relayOnce() < batchSize) {
+                    TimeUnit.MILLISECONDS.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Outbox relay {} failed, retrying: {}", consumer, e.getMessage());
+                if (e instanceof SQLException) {
+                    synchronized (this) {
+                        closeConnection();
+                    }
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(Math.max(pollMillis, 1000));
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = connectionSupplier.get();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    private static void rollback(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            LOGGER.debug("Rollback of outbox batch failed: {}", e.getMessage());
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Error closing outbox relay connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.jbank.outbox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.jbank.metrics.MetricsExporter;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Command-line entry point that relays the outbox to a file and/or a socket receiver until the process
+ * is stopped.
+ *
+ * Usage: OutboxRelayMain &lt;consumer&gt; [--file path] [--socket host:port] [--batch n] [--poll millis]
+ *
+ * @author juanf
+ */
+public class OutboxRelayMain {
+    private static final String USAGE =
+            "Usage: OutboxRelayMain <consumer> [--file path] [--socket host:port] [--batch n] [--poll millis]";
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        List<OutboxSink> sinks = new ArrayList<>();
+        int batchSize = OutboxRelay.DEFAULT_BATCH_SIZE;
+        long pollMillis = 100;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                String option = args[i];
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[i + 1];
+                switch (option) {
+                    case "--file":
+                        sinks.add(new FileSink(Path.of(value)));
+                        break;
+                    case "--socket":
+                        int colon = value.lastIndexOf(':');
+                        if (colon < 0) {
+                            throw new IllegalArgumentException("Expected host:port, got " + value);
+                        }
+                        sinks.add(new SocketSink(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1)), 30_000));
+                        break;
+                    case "--batch":
+                        batchSize = Integer.parseInt(value);
+                        break;
+                    case "--poll":
+                        pollMillis = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            if (sinks.isEmpty()) {
+                throw new IllegalArgumentException("Give at least one --file or --socket sink");
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException included
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        } catch (IOException e) {
+            System.err.println("Could not open sink: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        MetricsExporter.startFromSystemProperties();
+        OutboxRelay relay = new OutboxRelay(ConnectionHandler::openConnection, args[0], sinks, batchSize);
+        relay.start(pollMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(relay::close, "outbox-relay-shutdown"));
+        try {
+            // The relay thread is a daemon; keep the process alive until it is stopped
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.jbank.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of relayed outbox events. A batch counts as delivered when deliver returns; if it throws,
+ * the relay keeps the events and offers them again, so sinks may see an event more than once and
+ * consumers should ignore event IDs they have already handled.
+ *
+ * @author juanf
+ */
+public interface OutboxSink extends Closeable {
+
+    // Name used in logs
+    String getName();
+
+    // Delivers the events, in event ID order; returns only once they are safely handed over
+    void deliver(List<OutboxEvent> events) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,97 @@
+package com.jbank.outbox;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.jbank.api.JsonWriter;
+
+/**
+ * Streams events over TCP to a receiver, typically a process on the same host, as newline-delimited
+ * JSON. After each batch the receiver answers with a line holding the batch's last event ID; only then
+ * does the batch count as delivered. The connection is opened on first use and again after any error.
+ *
+ * @author juanf
+ */
+public class SocketSink implements OutboxSink {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private final String host;
+    private final int port;
+    private final int ackTimeoutMillis;
+    private Socket socket;
+    private JsonWriter json;
+    private BufferedReader acks;
+
+    public SocketSink(String host, int port, int ackTimeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "socket:" + host + ":" + port;
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            connect();
+            for (OutboxEvent event : events) {
+                event.writeJson(json);
+                json.newline();
+            }
+            json.flush();
+
+            long expected = events.get(events.size() - 1).getEventId();
+            String ack = acks.readLine();
+            if (ack == null) {
+                throw new IOException("Receiver closed the connection before acknowledging");
+            }
+            if (!ack.trim().equals(Long.toString(expected))) {
+                throw new IOException("Receiver acknowledged " + ack.trim() + ", expected " + expected);
+            }
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        Socket opened = new Socket();
+        opened.setTcpNoDelay(true);
+        opened.setSoTimeout(ackTimeoutMillis);
+        opened.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        socket = opened;
+        json = new JsonWriter(new BufferedOutputStream(opened.getOutputStream(), 64 * 1024));
+        acks = new BufferedReader(new InputStreamReader(opened.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.jbank.replica;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * PostgreSQL streaming replication: WAL positions (LSNs) as byte offsets. The primary's insert position
+ * is used rather than its flush position, so it covers commits that are not yet flushed under
+ * synchronous_commit = off.
+ *
+ * @author juanf
+ */
+public class PgReplicationMonitor implements ReplicationMonitor {
+
+    @Override
+    public long primaryPosition(Connection primary) throws SQLException {
+        return position(primary, "SELECT pg_current_wal_insert_lsn() - '0/0'::pg_lsn", 0);
+    }
+
+    @Override
+    public long replayedPosition(Connection replica) throws SQLException {
+        // Null when the server is not in recovery, i.e. not a standby: it is as current as it gets
+        return position(replica, "SELECT pg_last_wal_replay_lsn() - '0/0'::pg_lsn", Long.MAX_VALUE);
+    }
+
+    private static long position(Connection connection, String sql, long ifNull) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            long position = rs.getLong(1);
+            return rs.wasNull() ? ifNull : position;
+        }
+    }
+}
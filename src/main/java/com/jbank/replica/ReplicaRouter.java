@@ -0,0 +1,250 @@
+package com.jbank.replica;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Routes read-only queries to read replicas and leaves writes on the primary.
+ *
+ * Each read goes to the least busy replica (fewest reads in progress), taking turns among equally busy
+ * ones, as long as that replica has replayed the session's last write. A session records the primary's
+ * log position after each of its writes; until some replica has caught up to it, the session reads from
+ * the primary. Sessions are bound to the current thread; a thread with none bound uses its own, which
+ * suits the CLI and is conservative for pooled threads.
+ *
+ * Replica positions are remembered and only queried again when a session needs a newer one, at most
+ * every refreshMillis. A replica whose position cannot be read is skipped for a while.
+ *
+ * @author juanf
+ */
+public class ReplicaRouter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public static final long DEFAULT_REFRESH_MILLIS = 2;
+
+    private static final long UNAVAILABLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_NAMED_SESSIONS = 10_000;
+
+    private final Connection primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReplicationMonitor monitor;
+    private final long refreshNanos;
+    private final AtomicInteger turn = new AtomicInteger();
+    private final ThreadLocal<Session> threadSession = ThreadLocal.withInitial(Session::new);
+    private final ThreadLocal<Session> boundSession = new ThreadLocal<>();
+    private final Map<String, Session> namedSessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+            return size() > MAX_NAMED_SESSIONS;
+        }
+    };
+
+    public ReplicaRouter(Connection primary, List<Connection> replicaConnections, ReplicationMonitor monitor,
+            long refreshMillis) {
+        this.primary = primary;
+        for (Connection connection : replicaConnections) {
+            replicas.add(new Replica(connection));
+        }
+        this.monitor = monitor;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    }
+
+    /**
+     * A connection for a read-only query: a replica that has caught up with the current session, or the
+     * primary. Close the lease when the query is done.
+     */
+    public Lease forRead() {
+        Session session = currentSession();
+        Replica replica = pick(session);
+        if (replica == null) {
+            Metrics.increment("replica.reads.primary", 1);
+            return new Lease(primary, null);
+        }
+        replica.inFlight.incrementAndGet();
+        Metrics.increment("replica.reads.replica", 1);
+        return new Lease(replica.connection, replica);
+    }
+
+    // Call after a write has committed on the primary, so the session's later reads include it
+    public void recordWrite() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        Session session = currentSession();
+        try {
+            session.advance(monitor.primaryPosition(primary));
+        } catch (SQLException e) {
+            // Without the position, only the primary is sure to have the write
+            LOGGER.warn("Could not read the primary's log position, reading from it for a while: {}", e.getMessage());
+            session.pinToPrimary(System.nanoTime() + UNAVAILABLE_NANOS);
+        }
+    }
+
+    /**
+     * Makes the session the current thread's until the scope is closed, e.g. for one request of a client
+     * that identifies its session.
+     */
+    public Scope bind(Session session) {
+        Session previous = boundSession.get();
+        boundSession.set(session);
+        return () -> {
+            if (previous == null) {
+                boundSession.remove();
+            } else {
+                boundSession.set(previous);
+            }
+        };
+    }
+
+    // The session with this name, created on first use; the least recently used are dropped past a limit
+    public Session session(String name) {
+        synchronized (namedSessions) {
+            return namedSessions.computeIfAbsent(name, key -> new Session());
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    private Session currentSession() {
+        Session bound = boundSession.get();
+        return bound != null ? bound : threadSession.get();
+    }
+
+    private Replica pick(Session session) {
+        int count = replicas.size();
+        if (count == 0 || session.isPinned()) {
+            return null;
+        }
+        long required = session.position;
+        int start = Math.floorMod(turn.getAndIncrement(), count);
+        Replica best = null;
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if ((best == null || replica.inFlight.get() < best.inFlight.get()) && replica.hasReplayed(required)) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * What one client has written: the primary's position after its latest write.
+     */
+    public static final class Session {
+        private volatile long position;
+        private volatile long pinnedUntil;
+        private volatile boolean pinned;
+
+        private synchronized void advance(long newPosition) {
+            if (newPosition > position) {
+                position = newPosition;
+            }
+        }
+
+        private void pinToPrimary(long untilNanos) {
+            pinnedUntil = untilNanos;
+            pinned = true;
+        }
+
+        private boolean isPinned() {
+            if (pinned && System.nanoTime() - pinnedUntil >= 0) {
+                pinned = false;
+            }
+            return pinned;
+        }
+    }
+
+    /**
+     * A connection borrowed for one read.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final Replica replica;
+
+        private Lease(Connection connection, Replica replica) {
+            this.connection = connection;
+            this.replica = replica;
+        }
+
+        // A lease on the given connection, for callers without a router
+        public static Lease of(Connection connection) {
+            return new Lease(connection, null);
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public boolean isReplica() {
+            return replica != null;
+        }
+
+        @Override
+        public void close() {
+            if (replica != null) {
+                replica.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private final class Replica {
+        final Connection connection;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile long replayed;
+        volatile long checkedAt = System.nanoTime() - refreshNanos;
+        volatile long unavailableUntil;
+        volatile boolean unavailable;
+
+        Replica(Connection connection) {
+            this.connection = connection;
+        }
+
+        boolean hasReplayed(long required) {
+            if (unavailable) {
+                if (System.nanoTime() - unavailableUntil < 0) {
+                    return false;
+                }
+                unavailable = false;
+            }
+            if (replayed >= required) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - checkedAt < refreshNanos) {
+                return false;
+            }
+            synchronized (this) {
+                if (replayed < required && System.nanoTime() - checkedAt >= refreshNanos) {
+                    checkedAt = System.nanoTime();
+                    try {
+                        replayed = monitor.replayedPosition(connection);
+                    } catch (SQLException e) {
+                        LOGGER.warn("Could not read a replica's replay position, skipping it for a while: {}", e.getMessage());
+                        unavailableUntil = System.nanoTime() + UNAVAILABLE_NANOS;
+                        unavailable = true;
+                        return false;
+                    }
+                }
+                return replayed >= required;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.jbank.replica;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Reads how far the primary has written and how far a replica has replayed, as comparable positions in
+ * the primary's write-ahead log.
+ *
+ * @author juanf
+ */
+public interface ReplicationMonitor {
+
+    // Never behind: for replicas whose lag cannot be measured, e.g. other H2 databases in tests
+    ReplicationMonitor NONE = new ReplicationMonitor() {
+        @Override
+        public long primaryPosition(Connection primary) {
+            return 0;
+        }
+
+        @Override
+        public long replayedPosition(Connection replica) {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    // Position covering every transaction committed on the primary so far
+    long primaryPosition(Connection primary) throws SQLException;
+
+    // Position up to which the replica has applied the primary's log
+    long replayedPosition(Connection replica) throws SQLException;
+}
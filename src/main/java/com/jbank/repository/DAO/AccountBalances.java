@@ -0,0 +1,82 @@
+package com.jbank.repository.DAO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Conditional balance update shared by the account DAOs.
+ * A movement computes its new balance from the one it read; writing it only while the stored balance
+ * still equals that read makes a concurrent movement's write fail this one instead of being overwritten.
+ * A journaled movement's idempotency key is stored in movement_keys in the same transaction.
+ *
+ * @author juanf
+ */
+final class AccountBalances {
+
+    private static final String UPDATE_IF_UNCHANGED_SQL =
+            "UPDATE accounts SET balance = ? WHERE account_id = ? AND balance = ?";
+
+    // Statements that must commit together
+    interface Work {
+        // @return false if nothing was written
+        boolean run() throws SQLException;
+    }
+
+    private AccountBalances() {
+    }
+
+    // @return false if the balance is no longer expectedBalance or the account does not exist
+    static boolean compareAndSet(Connection connection, int accountId, double expectedBalance, double newBalance)
+            throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(UPDATE_IF_UNCHANGED_SQL)) {
+            stmt.setBigDecimal(1, toAmount(newBalance));
+            stmt.setInt(2, accountId);
+            stmt.setBigDecimal(3, toAmount(expectedBalance));
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Same, also storing movementKey when the balance is set; a null key stores nothing
+    static boolean compareAndSet(Connection connection, int accountId, double expectedBalance, double newBalance,
+            UUID movementKey) throws SQLException {
+        if (movementKey == null) {
+            return compareAndSet(connection, accountId, expectedBalance, newBalance);
+        }
+        return inTransaction(connection, () -> compareAndSet(connection, accountId, expectedBalance, newBalance)
+                && new MovementKeyDAO(connection).record(accountId, movementKey));
+    }
+
+    /**
+     * Runs the work as one transaction, or as part of the caller's if the connection is already in one;
+     * the caller then commits or rolls back. Work that returns false must not have written anything.
+     */
+    static boolean inTransaction(Connection connection, Work work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            if (!work.run()) {
+                return false;
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+            return true;
+        } catch (SQLException e) {
+            if (autoCommit) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Balances are DECIMAL(12, 2); compare as numeric so the condition is exact
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
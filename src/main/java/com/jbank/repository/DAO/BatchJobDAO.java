@@ -0,0 +1,315 @@
+package com.jbank.repository.DAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.repository.entities.BatchPartitionEntity;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Data Access Object for batch job runs and their partitions.
+ * Manages the batch_job_runs and batch_partitions tables used to checkpoint end-of-day processing.
+ * Partitions form a work queue shared by all instances: they are claimed with
+ * FOR UPDATE SKIP LOCKED under a time-limited lease that every checkpoint renews.
+ *
+ * @author juanf
+ */
+public class BatchJobDAO {
+
+    private static final String PARTITION_COLUMNS =
+            "run_id, partition_id, range_start, range_end, checkpoint, items_processed, status, attempts";
+
+    private final Connection connection;
+
+    public BatchJobDAO() {
+        this(ConnectionHandler.getConnection());
+    }
+
+    // Allows callers that manage their own transaction (e.g. batch workers) to supply the connection
+    public BatchJobDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Creates the run for a job and key unless another instance already did.
+     * A concurrent insert of the same run blocks until the first transaction commits.
+     * @param jobName Job name
+     * @param runKey Business period of the run (e.g. the date)
+     * @return Generated run ID, or empty if the run already exists
+     */
+    public Optional<Integer> createRunIfAbsent(String jobName, String runKey) throws SQLException {
+        String sql = "INSERT INTO batch_job_runs (job_name, run_key) VALUES (?, ?) " +
+                     "ON CONFLICT (job_name, run_key) DO NOTHING RETURNING run_id";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.createRunIfAbsent");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, jobName);
+            stmt.setString(2, runKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getInt("run_id"));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the run of a job for a key.
+     * @return Run ID, or empty if there is no such run
+     */
+    public Optional<Integer> findRunID(String jobName, String runKey) throws SQLException {
+        String sql = "SELECT run_id FROM batch_job_runs WHERE job_name = ? AND run_key = ?";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.findRunID");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, jobName);
+            stmt.setString(2, runKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(rs.getInt("run_id"));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reopens a FAILED run so its failed partitions get a fresh set of attempts.
+     * @return true if the run was reopened by this call
+     */
+    public boolean reopenFailedRun(int runId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.reopenFailedRun");
+        try (sample) {
+            String runSql = "UPDATE batch_job_runs SET status = 'RUNNING', finished_at = NULL " +
+                            "WHERE run_id = ? AND status = 'FAILED'";
+            try (PreparedStatement stmt = connection.prepareStatement(runSql)) {
+                stmt.setInt(1, runId);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+
+            String partitionSql = "UPDATE batch_partitions SET status = 'PENDING', attempts = 0 " +
+                                  "WHERE run_id = ? AND status = 'FAILED'";
+            try (PreparedStatement stmt = connection.prepareStatement(partitionSql)) {
+                stmt.setInt(1, runId);
+                stmt.executeUpdate();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Closes a run once no partition is outstanding: COMPLETED if every partition completed,
+     * otherwise FAILED. Safe to call from several instances.
+     * @return Final status of the run
+     */
+    public String finishRun(int runId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.finishRun");
+        try (sample) {
+            String sql = "UPDATE batch_job_runs SET finished_at = CURRENT_TIMESTAMP, status = " +
+                         "CASE WHEN EXISTS (SELECT 1 FROM batch_partitions WHERE run_id = ? AND status <> 'COMPLETED') " +
+                         "THEN 'FAILED' ELSE 'COMPLETED' END " +
+                         "WHERE run_id = ? AND status = 'RUNNING'";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, runId);
+                stmt.setInt(2, runId);
+                stmt.executeUpdate();
+            }
+
+            String statusSql = "SELECT status FROM batch_job_runs WHERE run_id = ?";
+            try (PreparedStatement stmt = connection.prepareStatement(statusSql)) {
+                stmt.setInt(1, runId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("status");
+                    }
+                }
+            }
+            throw new SQLException("Batch run " + runId + " not found");
+        }
+    }
+
+    /**
+     * Inserts the partitions of a run in a single batch.
+     */
+    public void createPartitions(List<BatchPartitionEntity> partitions) throws SQLException {
+        String sql = "INSERT INTO batch_partitions (run_id, partition_id, range_start, range_end, checkpoint) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.createPartitions");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (BatchPartitionEntity partition : partitions) {
+                stmt.setInt(1, partition.getRunID());
+                stmt.setInt(2, partition.getPartitionID());
+                stmt.setInt(3, partition.getRangeStart());
+                stmt.setInt(4, partition.getRangeEnd());
+                stmt.setInt(5, partition.getCheckpoint());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Retrieves all partitions of a run.
+     * @param runId Run ID
+     * @return Partitions ordered by partition ID
+     */
+    public List<BatchPartitionEntity> getPartitions(int runId) throws SQLException {
+        List<BatchPartitionEntity> partitions = new ArrayList<>();
+        String sql = "SELECT " + PARTITION_COLUMNS + " FROM batch_partitions WHERE run_id = ? ORDER BY partition_id";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.getPartitions");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, runId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(mapPartition(rs));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Counts the partitions of a run by state.
+     * @param maxAttempts Attempts after which a FAILED partition is no longer retried
+     * @return Map with keys "total", "completed", "claimable" (pending, retryable or lease expired)
+     *         and "leased" (running under a live lease)
+     */
+    public Map<String, Integer> getPartitionCounts(int runId, int maxAttempts) throws SQLException {
+        String sql = "SELECT COUNT(*) AS total, " +
+                     "COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed, " +
+                     "COUNT(*) FILTER (WHERE status = 'PENDING' OR (status = 'FAILED' AND attempts < ?) " +
+                     "OR (status = 'RUNNING' AND lease_expires_at < CURRENT_TIMESTAMP)) AS claimable, " +
+                     "COUNT(*) FILTER (WHERE status = 'RUNNING' AND lease_expires_at >= CURRENT_TIMESTAMP) AS leased " +
+                     "FROM batch_partitions WHERE run_id = ?";
+        Map<String, Integer> counts = new HashMap<>();
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.getPartitionCounts");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, maxAttempts);
+            stmt.setInt(2, runId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    counts.put("total", rs.getInt("total"));
+                    counts.put("completed", rs.getInt("completed"));
+                    counts.put("claimable", rs.getInt("claimable"));
+                    counts.put("leased", rs.getInt("leased"));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Claims the next available partition of a run for a worker.
+     * Partitions locked by another claimer are skipped rather than waited on, so concurrent workers
+     * on any number of instances never block each other or receive the same partition.
+     * The caller must commit right after claiming to publish the lease.
+     *
+     * @param owner Unique worker identity (instance and thread)
+     * @param leaseSeconds How long the claim is valid without a checkpoint
+     * @param maxAttempts Attempts after which a FAILED partition is no longer retried
+     * @return The claimed partition, or empty if nothing is claimable right now
+     */
+    public Optional<BatchPartitionEntity> claimPartition(int runId, String owner, int leaseSeconds, int maxAttempts)
+            throws SQLException {
+        String sql = "UPDATE batch_partitions SET status = 'RUNNING', attempts = attempts + 1, lease_owner = ?, " +
+                     "lease_expires_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second' " +
+                     "WHERE (run_id, partition_id) = (" +
+                     "SELECT run_id, partition_id FROM batch_partitions WHERE run_id = ? AND (" +
+                     "status = 'PENDING' OR (status = 'FAILED' AND attempts < ?) " +
+                     "OR (status = 'RUNNING' AND lease_expires_at < CURRENT_TIMESTAMP)) " +
+                     "ORDER BY partition_id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                     "RETURNING " + PARTITION_COLUMNS;
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.claimPartition");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, owner);
+            stmt.setInt(2, leaseSeconds);
+            stmt.setInt(3, runId);
+            stmt.setInt(4, maxAttempts);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapPartition(rs));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Records progress of a claimed partition and renews its lease. Called on the worker's
+     * connection so the checkpoint commits atomically with the work done for the chunk.
+     * @return false if the lease was lost to another worker; the caller must then roll back
+     */
+    public boolean checkpoint(BatchPartitionEntity partition, String owner, int leaseSeconds) throws SQLException {
+        String sql = "UPDATE batch_partitions SET checkpoint = ?, items_processed = ?, status = ?, " +
+                     "lease_expires_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second' " +
+                     "WHERE run_id = ? AND partition_id = ? AND lease_owner = ?";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.checkpoint");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, partition.getCheckpoint());
+            stmt.setInt(2, partition.getItemsProcessed());
+            stmt.setString(3, partition.getStatus());
+            stmt.setInt(4, leaseSeconds);
+            stmt.setInt(5, partition.getRunID());
+            stmt.setInt(6, partition.getPartitionID());
+            stmt.setString(7, owner);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Marks a claimed partition FAILED and releases its lease, keeping the last checkpoint.
+     */
+    public void releaseFailed(BatchPartitionEntity partition, String owner) throws SQLException {
+        String sql = "UPDATE batch_partitions SET status = 'FAILED', lease_owner = NULL, lease_expires_at = NULL " +
+                     "WHERE run_id = ? AND partition_id = ? AND lease_owner = ?";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.releaseFailed");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, partition.getRunID());
+            stmt.setInt(2, partition.getPartitionID());
+            stmt.setString(3, owner);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Gets the lowest and highest account IDs currently in the accounts table.
+     * @return Two-element array {min, max}, or empty if there are no accounts
+     */
+    public Optional<int[]> getAccountIDRange() throws SQLException {
+        String sql = "SELECT MIN(account_id) AS min_id, MAX(account_id) AS max_id FROM accounts";
+        Metrics.Sample sample = Metrics.time("dao.BatchJobDAO.getAccountIDRange");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                int maxId = rs.getInt("max_id");
+                if (!rs.wasNull()) {
+                    return Optional.of(new int[] { rs.getInt("min_id"), maxId });
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private BatchPartitionEntity mapPartition(ResultSet rs) throws SQLException {
+        BatchPartitionEntity partition = new BatchPartitionEntity(
+            rs.getInt("run_id"),
+            rs.getInt("partition_id"),
+            rs.getInt("range_start"),
+            rs.getInt("range_end"),
+            rs.getInt("checkpoint"),
+            rs.getInt("items_processed"),
+            rs.getString("status")
+        );
+        partition.setAttempts(rs.getInt("attempts"));
+        return partition;
+    }
+}
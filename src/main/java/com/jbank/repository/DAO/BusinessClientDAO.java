@@ -9,6 +9,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import com.jbank.id.IdAllocator;
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.entities.BusinessClientEntity;
 import com.jbank.util.ConnectionHandler;
 
@@ -20,12 +24,52 @@ import com.jbank.util.ConnectionHandler;
  */
 public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private static final String INSERT_CLIENT_WITH_ID =
+            "INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_BUSINESS_CLIENT =
+            "INSERT INTO business_clients (customer_id, ein, business_type, contact_person_name, contact_person_title, total_asset_value, annual_revenue, annual_profit) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Connection connection;
+    private ReplicaRouter replicaRouter;
+    private IdAllocator idAllocator;
+
+    public BusinessClientDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+        this.idAllocator = ConnectionHandler.getIdAllocator();
+    }
+
+    // Allows callers that manage their own connection (e.g. tests against a local database) to supply it
+    public BusinessClientDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getByID, getByEIN, getByName, getAll) to read replicas through the router; writes
+     * stay on this DAO's connection. Pass null to read from it too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Assigns client IDs from the allocator instead of the database, so create needs no generated key
+     * and createAll inserts in batches. Pass null to let the database assign them.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 
     // Create
     @Override
     public Integer create(BusinessClientEntity businessClientEntity) throws SQLException {
-        try {
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.create");
+        try (sample) {
+            if (idAllocator != null) {
+                int id = idAllocator.nextId(connection, IdSequence.CLIENT);
+                insertWithIDs(List.of(businessClientEntity), new int[] { id });
+                return id;
+            }
             // First, insert into clients table
             String clientSql = "INSERT INTO clients (client_type, phone_number, address, name) VALUES (?, ?, ?, ?)";
             try(PreparedStatement clientStmt = connection.prepareStatement(clientSql, Statement.RETURN_GENERATED_KEYS)){
@@ -34,7 +78,7 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
                 clientStmt.setString(3, businessClientEntity.getAddress());
                 clientStmt.setString(4, businessClientEntity.getName());
                 clientStmt.executeUpdate();
-                
+            
                 // Get the generated customer_id
                 int customerId;
                 try(ResultSet rs = clientStmt.getGeneratedKeys()){
@@ -44,10 +88,9 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
                         throw new SQLException("Failed to insert into clients table");
                     }
                 }
-                
+            
                 // Now insert into business_clients table
-                String businessSql = "INSERT INTO business_clients (customer_id, ein, business_type, contact_person_name, contact_person_title, total_asset_value, annual_revenue, annual_profit) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-                try(PreparedStatement businessStmt = connection.prepareStatement(businessSql)){
+                try(PreparedStatement businessStmt = connection.prepareStatement(INSERT_BUSINESS_CLIENT)){
                     businessStmt.setInt(1, customerId);
                     businessStmt.setString(2, businessClientEntity.getEIN());
                     businessStmt.setString(3, businessClientEntity.getBusinessType());
@@ -58,7 +101,7 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
                     businessStmt.setDouble(8, businessClientEntity.getAnnualProfit());
                     businessStmt.executeUpdate();
                 }
-                
+            
                 return customerId;
             }
         } catch (SQLException e) {
@@ -67,31 +110,94 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
         }
     }
 
+    // Create under an ID taken from the allocator beforehand, e.g. so rows referencing it can be prepared first
+    public Integer createWithID(BusinessClientEntity client, int id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.createWithID");
+        try (sample) {
+            insertWithIDs(List.of(client), new int[] { id });
+            return id;
+        } catch (SQLException e) {
+            System.err.println("Error creating BusinessClient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // With an ID allocator, one batch per table for all of them; run it in a transaction to insert all or none
+    @Override
+    public List<Integer> createAll(List<BusinessClientEntity> clients) throws SQLException {
+        if (idAllocator == null) {
+            return DAOinterface.super.createAll(clients);
+        }
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.createAll");
+        try (sample) {
+            int[] ids = idAllocator.nextIds(connection, IdSequence.CLIENT, clients.size());
+            insertWithIDs(clients, ids);
+            List<Integer> created = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                created.add(id);
+            }
+            return created;
+        } catch (SQLException e) {
+            System.err.println("Error creating BusinessClient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insertWithIDs(List<BusinessClientEntity> clients, int[] ids) throws SQLException {
+        try (PreparedStatement clientStmt = connection.prepareStatement(INSERT_CLIENT_WITH_ID);
+                PreparedStatement businessStmt = connection.prepareStatement(INSERT_BUSINESS_CLIENT)) {
+            for (int i = 0; i < ids.length; i++) {
+                BusinessClientEntity client = clients.get(i);
+                clientStmt.setInt(1, ids[i]);
+                clientStmt.setString(2, "BUSINESS");
+                clientStmt.setString(3, client.getPhoneNumber());
+                clientStmt.setString(4, client.getAddress());
+                clientStmt.setString(5, client.getName());
+                clientStmt.addBatch();
+                businessStmt.setInt(1, ids[i]);
+                businessStmt.setString(2, client.getEIN());
+                businessStmt.setString(3, client.getBusinessType());
+                businessStmt.setString(4, client.getContactPersonName());
+                businessStmt.setString(5, client.getContactPersonTitle());
+                businessStmt.setDouble(6, client.getTotalAssetValue());
+                businessStmt.setDouble(7, client.getAnnualRevenue());
+                businessStmt.setDouble(8, client.getAnnualProfit());
+                businessStmt.addBatch();
+            }
+            clientStmt.executeBatch();
+            businessStmt.executeBatch();
+        }
+    }
+
     // Read by ID
     @Override
     public Optional<BusinessClientEntity> getByID(Integer id) throws SQLException {
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
-                     "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
-                     "WHERE c.customer_id = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setInt(1, id);
-            try(ResultSet rs = stmt.executeQuery()){
-                if (rs.next()) {
-                    BusinessClientEntity businessClient = new BusinessClientEntity(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone_number"),
-                        rs.getString("address"),
-                        rs.getString("name"),
-                        rs.getString("ein"),
-                        rs.getString("business_type"),
-                        rs.getString("contact_person_name"),
-                        rs.getString("contact_person_title"),
-                        rs.getDouble("total_asset_value"),
-                        rs.getDouble("annual_revenue"),
-                        rs.getDouble("annual_profit"));
-                    return Optional.of(businessClient);
-                } else {
-                    return Optional.empty();
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.getByID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
+                         "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
+                         "WHERE c.customer_id = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setInt(1, id);
+                try(ResultSet rs = stmt.executeQuery()){
+                    if (rs.next()) {
+                        BusinessClientEntity businessClient = new BusinessClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("ein"),
+                            rs.getString("business_type"),
+                            rs.getString("contact_person_name"),
+                            rs.getString("contact_person_title"),
+                            rs.getDouble("total_asset_value"),
+                            rs.getDouble("annual_revenue"),
+                            rs.getDouble("annual_profit"));
+                        return Optional.of(businessClient);
+                    } else {
+                        return Optional.empty();
+                    }
                 }
             }
         }
@@ -99,28 +205,32 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
 
     // Read by EIN
     public Optional<BusinessClientEntity> getByEIN(String ein) throws SQLException {
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
-                     "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
-                     "WHERE bc.ein = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setString(1, ein);
-            try(ResultSet rs = stmt.executeQuery()){
-                if (rs.next()) {
-                    BusinessClientEntity businessClient = new BusinessClientEntity(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone_number"),
-                        rs.getString("address"),
-                        rs.getString("name"),
-                        rs.getString("ein"),
-                        rs.getString("business_type"),
-                        rs.getString("contact_person_name"),
-                        rs.getString("contact_person_title"),
-                        rs.getDouble("total_asset_value"),
-                        rs.getDouble("annual_revenue"),
-                        rs.getDouble("annual_profit"));
-                    return Optional.of(businessClient);
-                } else {
-                    return Optional.empty();
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.getByEIN");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
+                         "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
+                         "WHERE bc.ein = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setString(1, ein);
+                try(ResultSet rs = stmt.executeQuery()){
+                    if (rs.next()) {
+                        BusinessClientEntity businessClient = new BusinessClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("ein"),
+                            rs.getString("business_type"),
+                            rs.getString("contact_person_name"),
+                            rs.getString("contact_person_title"),
+                            rs.getDouble("total_asset_value"),
+                            rs.getDouble("annual_revenue"),
+                            rs.getDouble("annual_profit"));
+                        return Optional.of(businessClient);
+                    } else {
+                        return Optional.empty();
+                    }
                 }
             }
         }
@@ -128,13 +238,49 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
 
     // Read by Name
     public List<BusinessClientEntity> getByName(String name) throws SQLException {
-        List<BusinessClientEntity> businessClients = new ArrayList<>();
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
-                     "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
-                     "WHERE c.name = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setString(1, name);
-            try(ResultSet rs = stmt.executeQuery()){
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.getByName");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<BusinessClientEntity> businessClients = new ArrayList<>();
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
+                         "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id " +
+                         "WHERE c.name = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setString(1, name);
+                try(ResultSet rs = stmt.executeQuery()){
+                    while (rs.next()) {
+                        BusinessClientEntity businessClient = new BusinessClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("ein"),
+                            rs.getString("business_type"),
+                            rs.getString("contact_person_name"),
+                            rs.getString("contact_person_title"),
+                            rs.getDouble("total_asset_value"),
+                            rs.getDouble("annual_revenue"),
+                            rs.getDouble("annual_profit"));
+                        businessClients.add(businessClient);
+                    }
+                }
+            }
+            return businessClients;
+        }
+    }
+
+    // Read all
+    @Override
+    public List<BusinessClientEntity> getAll() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.getAll");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<BusinessClientEntity> businessClients = new ArrayList<>();
+
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
+                         "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()){
                 while (rs.next()) {
                     BusinessClientEntity businessClient = new BusinessClientEntity(
                         rs.getInt("customer_id"),
@@ -151,107 +297,93 @@ public class BusinessClientDAO implements DAOinterface<BusinessClientEntity> {
                     businessClients.add(businessClient);
                 }
             }
+            return businessClients;
         }
-        return businessClients;
-    }
-
-    // Read all
-    @Override
-    public List<BusinessClientEntity> getAll() throws SQLException {
-        List<BusinessClientEntity> businessClients = new ArrayList<>();
-
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, bc.ein, bc.business_type, bc.contact_person_name, bc.contact_person_title, bc.total_asset_value, bc.annual_revenue, bc.annual_profit " +
-                     "FROM clients c JOIN business_clients bc ON c.customer_id = bc.customer_id";
-        try(PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery()){
-            while (rs.next()) {
-                BusinessClientEntity businessClient = new BusinessClientEntity(
-                    rs.getInt("customer_id"),
-                    rs.getString("phone_number"),
-                    rs.getString("address"),
-                    rs.getString("name"),
-                    rs.getString("ein"),
-                    rs.getString("business_type"),
-                    rs.getString("contact_person_name"),
-                    rs.getString("contact_person_title"),
-                    rs.getDouble("total_asset_value"),
-                    rs.getDouble("annual_revenue"),
-                    rs.getDouble("annual_profit"));
-                businessClients.add(businessClient);
-            }
-        }
-        return businessClients;
     }
 
     // Update by ID
     @Override
     public BusinessClientEntity updateByID(BusinessClientEntity businessClientEntity) throws SQLException {
-        String clientSql = "UPDATE clients SET phone_number = ?, address = ?, name = ? WHERE customer_id = ?";
-        try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
-            clientStmt.setString(1, businessClientEntity.getPhoneNumber());
-            clientStmt.setString(2, businessClientEntity.getAddress());
-            clientStmt.setString(3, businessClientEntity.getName());
-            clientStmt.setInt(4, businessClientEntity.getCustomerID());
-            clientStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.updateByID");
+        try (sample) {
+            String clientSql = "UPDATE clients SET phone_number = ?, address = ?, name = ? WHERE customer_id = ?";
+            try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
+                clientStmt.setString(1, businessClientEntity.getPhoneNumber());
+                clientStmt.setString(2, businessClientEntity.getAddress());
+                clientStmt.setString(3, businessClientEntity.getName());
+                clientStmt.setInt(4, businessClientEntity.getCustomerID());
+                clientStmt.executeUpdate();
+            }
 
-        String businessSql = "UPDATE business_clients SET ein = ?, business_type = ?, contact_person_name = ?, contact_person_title = ?, total_asset_value = ?, annual_revenue = ?, annual_profit = ? WHERE customer_id = ?";
-        try(PreparedStatement businessStmt = connection.prepareStatement(businessSql)){
-            businessStmt.setString(1, businessClientEntity.getEIN());
-            businessStmt.setString(2, businessClientEntity.getBusinessType());
-            businessStmt.setString(3, businessClientEntity.getContactPersonName());
-            businessStmt.setString(4, businessClientEntity.getContactPersonTitle());
-            businessStmt.setDouble(5, businessClientEntity.getTotalAssetValue());
-            businessStmt.setDouble(6, businessClientEntity.getAnnualRevenue());
-            businessStmt.setDouble(7, businessClientEntity.getAnnualProfit());
-            businessStmt.setInt(8, businessClientEntity.getCustomerID());
-            businessStmt.executeUpdate();
-        }
+            String businessSql = "UPDATE business_clients SET ein = ?, business_type = ?, contact_person_name = ?, contact_person_title = ?, total_asset_value = ?, annual_revenue = ?, annual_profit = ? WHERE customer_id = ?";
+            try(PreparedStatement businessStmt = connection.prepareStatement(businessSql)){
+                businessStmt.setString(1, businessClientEntity.getEIN());
+                businessStmt.setString(2, businessClientEntity.getBusinessType());
+                businessStmt.setString(3, businessClientEntity.getContactPersonName());
+                businessStmt.setString(4, businessClientEntity.getContactPersonTitle());
+                businessStmt.setDouble(5, businessClientEntity.getTotalAssetValue());
+                businessStmt.setDouble(6, businessClientEntity.getAnnualRevenue());
+                businessStmt.setDouble(7, businessClientEntity.getAnnualProfit());
+                businessStmt.setInt(8, businessClientEntity.getCustomerID());
+                businessStmt.executeUpdate();
+            }
 
-        return businessClientEntity;
+            return businessClientEntity;
+        }
     }
 
     // Delete by ID
     @Override
     public boolean deleteByID(Integer id) throws SQLException {
-        // First, delete from client_accounts junction table (which cascades to delete accounts and their subtypes)
-        String junctionSql = "DELETE FROM client_accounts WHERE customer_id = ?";
-        try(PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)){
-            junctionStmt.setInt(1, id);
-            junctionStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.deleteByID");
+        try (sample) {
+            // First, delete from client_accounts junction table (which cascades to delete accounts and their subtypes)
+            String junctionSql = "DELETE FROM client_accounts WHERE customer_id = ?";
+            try(PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)){
+                junctionStmt.setInt(1, id);
+                junctionStmt.executeUpdate();
+            }
 
-        // Then delete from business_clients
-        String businessSql = "DELETE FROM business_clients WHERE customer_id = ?";
-        try(PreparedStatement businessStmt = connection.prepareStatement(businessSql)){
-            businessStmt.setInt(1, id);
-            businessStmt.executeUpdate();
-        }
+            // Then delete from business_clients
+            String businessSql = "DELETE FROM business_clients WHERE customer_id = ?";
+            try(PreparedStatement businessStmt = connection.prepareStatement(businessSql)){
+                businessStmt.setInt(1, id);
+                businessStmt.executeUpdate();
+            }
 
-        // Finally delete from clients
-        String clientSql = "DELETE FROM clients WHERE customer_id = ?";
-        try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
-            clientStmt.setInt(1, id);
-            int rowsAffected = clientStmt.executeUpdate();
-            return rowsAffected > 0;
+            // Finally delete from clients
+            String clientSql = "DELETE FROM clients WHERE customer_id = ?";
+            try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
+                clientStmt.setInt(1, id);
+                int rowsAffected = clientStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
         }
     }
 
     // Delete by EIN
     public boolean deleteByEIN(String ein) throws SQLException {
-        String getIdSql = "SELECT customer_id FROM business_clients WHERE ein = ?";
-        int customerId;
-        try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
-            getIdStmt.setString(1, ein);
-            try(ResultSet rs = getIdStmt.executeQuery()){
-                if (rs.next()) {
-                    customerId = rs.getInt("customer_id");
-                } else {
-                    return false; // No such EIN
+        Metrics.Sample sample = Metrics.time("dao.BusinessClientDAO.deleteByEIN");
+        try (sample) {
+            String getIdSql = "SELECT customer_id FROM business_clients WHERE ein = ?";
+            int customerId;
+            try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
+                getIdStmt.setString(1, ein);
+                try(ResultSet rs = getIdStmt.executeQuery()){
+                    if (rs.next()) {
+                        customerId = rs.getInt("customer_id");
+                    } else {
+                        return false; // No such EIN
+                    }
                 }
             }
+
+            return deleteByID(customerId);
         }
+    }
 
-        return deleteByID(customerId);
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
     }
 }
@@ -8,7 +8,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import com.jbank.id.IdAllocator;
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.entities.CheckingAccountEntity;
 import com.jbank.util.ConnectionHandler;
 
@@ -21,12 +26,52 @@ import com.jbank.util.ConnectionHandler;
  */
 public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private static final String INSERT_ACCOUNT_WITH_ID =
+            "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_CHECKING_ACCOUNT =
+            "INSERT INTO checking_accounts (account_id, overdraft_fee, overdraft_limit) VALUES (?, ?, ?)";
+
+    private final Connection connection;
+    private ReplicaRouter replicaRouter;
+    private IdAllocator idAllocator;
+
+    public CheckingAccountDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+        this.idAllocator = ConnectionHandler.getIdAllocator();
+    }
+
+    // Allows callers that manage their own transaction (e.g. batch workers) to supply the connection
+    public CheckingAccountDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getByID, getAll) to read replicas through the router; writes and
+     * getByIDForWrite stay on this DAO's connection. Pass null to read from it too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Assigns account IDs from the allocator instead of the database, so create needs no generated key
+     * and createAll inserts in batches. Pass null to let the database assign them.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 
     // Create
     @Override
     public Integer create(CheckingAccountEntity checkingAccountEntity) throws SQLException {
-        try {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.create");
+        try (sample) {
+            if (idAllocator != null) {
+                int id = idAllocator.nextId(connection, IdSequence.ACCOUNT);
+                insertWithIDs(List.of(checkingAccountEntity), new int[] { id });
+                return id;
+            }
             // First, insert into accounts table
             String accountSql = "INSERT INTO accounts (account_type, account_name, balance) VALUES (?, ?, ?)";
             try (PreparedStatement accountStmt = connection.prepareStatement(accountSql, Statement.RETURN_GENERATED_KEYS)) {
@@ -34,7 +79,7 @@ public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
                 accountStmt.setString(2, checkingAccountEntity.getAccountName());
                 accountStmt.setDouble(3, checkingAccountEntity.getBalance()); // Use the initial deposit from entity
                 accountStmt.executeUpdate();
-                
+            
                 // Get the generated account_id
                 int accountId;
                 try (ResultSet rs = accountStmt.getGeneratedKeys()) {
@@ -44,16 +89,15 @@ public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
                         throw new SQLException("Failed to insert into accounts table");
                     }
                 }
-                
+            
                 // Now insert into checking_accounts table
-                String checkingSql = "INSERT INTO checking_accounts (account_id, overdraft_fee, overdraft_limit) VALUES (?, ?, ?)";
-                try (PreparedStatement checkingStmt = connection.prepareStatement(checkingSql)) {
+                try (PreparedStatement checkingStmt = connection.prepareStatement(INSERT_CHECKING_ACCOUNT)) {
                     checkingStmt.setInt(1, accountId);
                     checkingStmt.setDouble(2, checkingAccountEntity.getOverdraftFee());
                     checkingStmt.setDouble(3, checkingAccountEntity.getOverdraftLimit());
                     checkingStmt.executeUpdate();
                 }
-                
+            
                 return accountId;
             }
         } catch (SQLException e) {
@@ -62,14 +106,83 @@ public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
         }
     }
 
+    // Create under an ID taken from the allocator beforehand, e.g. so rows referencing it can be prepared first
+    public Integer createWithID(CheckingAccountEntity account, int id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.createWithID");
+        try (sample) {
+            insertWithIDs(List.of(account), new int[] { id });
+            return id;
+        } catch (SQLException e) {
+            System.err.println("Error creating CheckingAccount: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // With an ID allocator, one batch per table for all of them; run it in a transaction to insert all or none
+    @Override
+    public List<Integer> createAll(List<CheckingAccountEntity> accounts) throws SQLException {
+        if (idAllocator == null) {
+            return DAOinterface.super.createAll(accounts);
+        }
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.createAll");
+        try (sample) {
+            int[] ids = idAllocator.nextIds(connection, IdSequence.ACCOUNT, accounts.size());
+            insertWithIDs(accounts, ids);
+            List<Integer> created = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                created.add(id);
+            }
+            return created;
+        } catch (SQLException e) {
+            System.err.println("Error creating CheckingAccount: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insertWithIDs(List<CheckingAccountEntity> accounts, int[] ids) throws SQLException {
+        try (PreparedStatement accountStmt = connection.prepareStatement(INSERT_ACCOUNT_WITH_ID);
+                PreparedStatement checkingStmt = connection.prepareStatement(INSERT_CHECKING_ACCOUNT)) {
+            for (int i = 0; i < ids.length; i++) {
+                CheckingAccountEntity account = accounts.get(i);
+                accountStmt.setInt(1, ids[i]);
+                accountStmt.setString(2, "CHECKING");
+                accountStmt.setString(3, account.getAccountName());
+                accountStmt.setDouble(4, account.getBalance());
+                accountStmt.addBatch();
+                checkingStmt.setInt(1, ids[i]);
+                checkingStmt.setDouble(2, account.getOverdraftFee());
+                checkingStmt.setDouble(3, account.getOverdraftLimit());
+                checkingStmt.addBatch();
+            }
+            accountStmt.executeBatch();
+            checkingStmt.executeBatch();
+        }
+    }
+
     // Read by ID
     @Override
     public Optional<CheckingAccountEntity> getByID(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.getByID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            return readByID(lease.getConnection(), id);
+        }
+    }
+
+    // Read by ID on this DAO's connection even with a replica router set, for reads whose balance feeds a write
+    public Optional<CheckingAccountEntity> getByIDForWrite(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.getByIDForWrite");
+        try (sample) {
+            return readByID(connection, id);
+        }
+    }
+
+    private Optional<CheckingAccountEntity> readByID(Connection conn, Integer id) throws SQLException {
         String sql = "SELECT a.account_id, a.account_name, a.balance, ca.overdraft_fee, ca.overdraft_limit " +
                      "FROM accounts a " +
                      "JOIN checking_accounts ca ON a.account_id = ca.account_id " +
                      "WHERE a.account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -92,23 +205,57 @@ public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
     // Read all
     @Override
     public List<CheckingAccountEntity> getAll() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.getAll");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<CheckingAccountEntity> accounts = new ArrayList<>();
+            String sql = "SELECT a.account_id, a.account_name, a.balance, ca.overdraft_fee, ca.overdraft_limit " +
+                         "FROM accounts a " +
+                         "JOIN checking_accounts ca ON a.account_id = ca.account_id";
+        
+            try (PreparedStatement stmt = lease.getConnection().prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CheckingAccountEntity account = new CheckingAccountEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("overdraft_fee"),
+                        rs.getDouble("overdraft_limit"),
+                        rs.getString("account_name")
+                    );
+                    accounts.add(account);
+                }
+            }
+            return accounts;
+        }
+    }
+
+    // Read by ID range [fromId, toId), ordered by ID (used by batch jobs)
+    public List<CheckingAccountEntity> getByIDRange(int fromId, int toId) throws SQLException {
         List<CheckingAccountEntity> accounts = new ArrayList<>();
         String sql = "SELECT a.account_id, a.account_name, a.balance, ca.overdraft_fee, ca.overdraft_limit " +
                      "FROM accounts a " +
-                     "JOIN checking_accounts ca ON a.account_id = ca.account_id";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                CheckingAccountEntity account = new CheckingAccountEntity(
-                    rs.getInt("account_id"),
-                    0,
-                    rs.getDouble("balance"),
-                    rs.getDouble("overdraft_fee"),
-                    rs.getDouble("overdraft_limit"),
-                    rs.getString("account_name")
-                );
-                accounts.add(account);
+                     "JOIN checking_accounts ca ON a.account_id = ca.account_id " +
+                     "WHERE a.account_id >= ? AND a.account_id < ? " +
+                     "ORDER BY a.account_id";
+
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.getByIDRange");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, fromId);
+            stmt.setInt(2, toId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CheckingAccountEntity account = new CheckingAccountEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("overdraft_fee"),
+                        rs.getDouble("overdraft_limit"),
+                        rs.getString("account_name")
+                    );
+                    accounts.add(account);
+                }
             }
         }
         return accounts;
@@ -117,47 +264,73 @@ public class CheckingAccountDAO implements DAOinterface<CheckingAccountEntity> {
     // Update by ID
     @Override
     public CheckingAccountEntity updateByID(CheckingAccountEntity checkingAccountEntity) throws SQLException {
-        String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setDouble(1, checkingAccountEntity.getBalance());
-            accountStmt.setInt(2, checkingAccountEntity.getAccountID());
-            accountStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.updateByID");
+        try (sample) {
+            String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setDouble(1, checkingAccountEntity.getBalance());
+                accountStmt.setInt(2, checkingAccountEntity.getAccountID());
+                accountStmt.executeUpdate();
+            }
         
-        String checkingSql = "UPDATE checking_accounts SET overdraft_fee = ?, overdraft_limit = ? WHERE account_id = ?";
-        try (PreparedStatement checkingStmt = connection.prepareStatement(checkingSql)) {
-            checkingStmt.setDouble(1, checkingAccountEntity.getOverdraftFee());
-            checkingStmt.setDouble(2, checkingAccountEntity.getOverdraftLimit());
-            checkingStmt.setInt(3, checkingAccountEntity.getAccountID());
-            checkingStmt.executeUpdate();
-        }
+            String checkingSql = "UPDATE checking_accounts SET overdraft_fee = ?, overdraft_limit = ? WHERE account_id = ?";
+            try (PreparedStatement checkingStmt = connection.prepareStatement(checkingSql)) {
+                checkingStmt.setDouble(1, checkingAccountEntity.getOverdraftFee());
+                checkingStmt.setDouble(2, checkingAccountEntity.getOverdraftLimit());
+                checkingStmt.setInt(3, checkingAccountEntity.getAccountID());
+                checkingStmt.executeUpdate();
+            }
         
-        return checkingAccountEntity;
+            return checkingAccountEntity;
+        }
+    }
+
+    /**
+     * Sets the balance only if it still is expectedBalance, so a movement computed from an outdated read is
+     * refused instead of overwriting a concurrent one. The other columns are left alone.
+     * @param movementKey Idempotency key of a journaled movement, stored in movement_keys in the same
+     *        transaction; null for none
+     * @return false if the balance had changed or the account does not exist
+     */
+    public boolean updateBalance(int accountId, double expectedBalance, double newBalance, UUID movementKey)
+            throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.updateBalance");
+        try (sample) {
+            return AccountBalances.compareAndSet(connection, accountId, expectedBalance, newBalance, movementKey);
+        }
     }
 
     // Delete by ID
     @Override
     public boolean deleteByID(Integer id) throws SQLException {
-        // First delete from client_accounts junction table
-        String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
-        try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
-            junctionStmt.setInt(1, id);
-            junctionStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.CheckingAccountDAO.deleteByID");
+        try (sample) {
+            // First delete from client_accounts junction table
+            String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
+            try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
+                junctionStmt.setInt(1, id);
+                junctionStmt.executeUpdate();
+            }
         
-        // Then delete from checking_accounts (child table)
-        String checkingSql = "DELETE FROM checking_accounts WHERE account_id = ?";
-        try (PreparedStatement checkingStmt = connection.prepareStatement(checkingSql)) {
-            checkingStmt.setInt(1, id);
-            checkingStmt.executeUpdate();
-        }
+            // Then delete from checking_accounts (child table)
+            String checkingSql = "DELETE FROM checking_accounts WHERE account_id = ?";
+            try (PreparedStatement checkingStmt = connection.prepareStatement(checkingSql)) {
+                checkingStmt.setInt(1, id);
+                checkingStmt.executeUpdate();
+            }
         
-        // Finally delete from accounts (parent table)
-        String accountSql = "DELETE FROM accounts WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setInt(1, id);
-            int rowsAffected = accountStmt.executeUpdate();
-            return rowsAffected > 0;
+            // Finally delete from accounts (parent table)
+            String accountSql = "DELETE FROM accounts WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setInt(1, id);
+                int rowsAffected = accountStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
         }
     }
+
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
+    }
 }
@@ -9,6 +9,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.outbox.OutboxEventType;
 import com.jbank.util.ConnectionHandler;
 
 /**
@@ -20,7 +25,36 @@ import com.jbank.util.ConnectionHandler;
  */
 public class ClientAccountDAO {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private final Connection connection;
+    private Outbox outbox;
+    private ReplicaRouter replicaRouter;
+
+    public ClientAccountDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+    }
+
+    // Allows callers that manage their own transaction (e.g. batch workers) to supply the connection
+    public ClientAccountDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getAccountsByClient, getClientsByAccount) to read replicas through the
+     * router. Ownership changes stay on this DAO's connection and are recorded with the router once
+     * committed, so the session reads them back. Pass null to read from the connection too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Records OWNER_ADDED and OWNER_REMOVED outbox events for every assignment and removal, in the same
+     * transaction, made on the outbox's connection rather than this DAO's. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
 
     /**
      * Assigns an account to a client with specified ownership type.
@@ -30,8 +64,18 @@ public class ClientAccountDAO {
      * @return true if assignment was successful
      */
     public boolean assignAccountToClient(int clientId, int accountId, String ownershipType) throws SQLException {
+        boolean assigned = outbox != null
+                ? outbox.write(OutboxEvent.ownership(OutboxEventType.OWNER_ADDED, accountId, clientId, ownershipType),
+                        outboxConnection -> insertOwnership(outboxConnection, clientId, accountId, ownershipType))
+                : insertOwnership(connection, clientId, accountId, ownershipType);
+        recordWrite();
+        return assigned;
+    }
+
+    private boolean insertOwnership(Connection connection, int clientId, int accountId, String ownershipType) {
         String sql = "INSERT INTO client_accounts (customer_id, account_id, ownership_type) VALUES (?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.assignAccountToClient");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, clientId);
             stmt.setInt(2, accountId);
             stmt.setString(3, ownershipType);
@@ -49,20 +93,24 @@ public class ClientAccountDAO {
      * @return Map of account IDs to their ownership types (PRIMARY/JOINT)
      */
     public Map<Integer, String> getAccountsByClient(int clientId) throws SQLException {
-        Map<Integer, String> accountMap = new HashMap<>();
-        String sql = "SELECT account_id, ownership_type FROM client_accounts WHERE customer_id = ?";
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.getAccountsByClient");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            Map<Integer, String> accountMap = new HashMap<>();
+            String sql = "SELECT account_id, ownership_type FROM client_accounts WHERE customer_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, clientId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int accountId = rs.getInt("account_id");
-                    String ownershipType = rs.getString("ownership_type");
-                    accountMap.put(accountId, ownershipType);
+            try (PreparedStatement stmt = lease.getConnection().prepareStatement(sql)) {
+                stmt.setInt(1, clientId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int accountId = rs.getInt("account_id");
+                        String ownershipType = rs.getString("ownership_type");
+                        accountMap.put(accountId, ownershipType);
+                    }
                 }
             }
+            return accountMap;
         }
-        return accountMap;
     }
 
     /**
@@ -71,20 +119,24 @@ public class ClientAccountDAO {
      * @return Map of client IDs to their ownership types
      */
     public Map<Integer, String> getClientsByAccount(int accountId) throws SQLException {
-        Map<Integer, String> clientMap = new HashMap<>();
-        String sql = "SELECT customer_id, ownership_type FROM client_accounts WHERE account_id = ?";
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.getClientsByAccount");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            Map<Integer, String> clientMap = new HashMap<>();
+            String sql = "SELECT customer_id, ownership_type FROM client_accounts WHERE account_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, accountId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int clientId = rs.getInt("customer_id");
-                    String ownershipType = rs.getString("ownership_type");
-                    clientMap.put(clientId, ownershipType);
+            try (PreparedStatement stmt = lease.getConnection().prepareStatement(sql)) {
+                stmt.setInt(1, accountId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int clientId = rs.getInt("customer_id");
+                        String ownershipType = rs.getString("ownership_type");
+                        clientMap.put(clientId, ownershipType);
+                    }
                 }
             }
+            return clientMap;
         }
-        return clientMap;
     }
 
     /**
@@ -94,8 +146,18 @@ public class ClientAccountDAO {
      * @return true if removal was successful
      */
     public boolean removeAccountFromClient(int clientId, int accountId) throws SQLException {
+        boolean removed = outbox != null
+                ? outbox.write(OutboxEvent.ownership(OutboxEventType.OWNER_REMOVED, accountId, clientId, null),
+                        outboxConnection -> deleteOwnership(outboxConnection, clientId, accountId))
+                : deleteOwnership(connection, clientId, accountId);
+        recordWrite();
+        return removed;
+    }
+
+    private boolean deleteOwnership(Connection connection, int clientId, int accountId) {
         String sql = "DELETE FROM client_accounts WHERE customer_id = ? AND account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.removeAccountFromClient");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, clientId);
             stmt.setInt(2, accountId);
             int rowsAffected = stmt.executeUpdate();
@@ -113,7 +175,8 @@ public class ClientAccountDAO {
      */
     public boolean isJointAccount(int accountId) throws SQLException {
         String sql = "SELECT COUNT(*) as owner_count FROM client_accounts WHERE account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.isJointAccount");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, accountId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -132,7 +195,8 @@ public class ClientAccountDAO {
         List<Integer> jointAccounts = new ArrayList<>();
         String sql = "SELECT account_id FROM client_accounts GROUP BY account_id HAVING COUNT(*) > 1";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.getAllJointAccounts");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 jointAccounts.add(rs.getInt("account_id"));
@@ -149,7 +213,8 @@ public class ClientAccountDAO {
      */
     public boolean clientOwnsAccount(int clientId, int accountId) throws SQLException {
         String sql = "SELECT COUNT(*) as count FROM client_accounts WHERE customer_id = ? AND account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.clientOwnsAccount");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, clientId);
             stmt.setInt(2, accountId);
             try (ResultSet rs = stmt.executeQuery()) {
@@ -169,13 +234,26 @@ public class ClientAccountDAO {
      */
     public boolean removeAllClientsFromAccount(int accountId) throws SQLException {
         String sql = "DELETE FROM client_accounts WHERE account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        Metrics.Sample sample = Metrics.time("dao.ClientAccountDAO.removeAllClientsFromAccount");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, accountId);
             int rowsAffected = stmt.executeUpdate();
+            recordWrite();
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error removing all clients from account: " + e.getMessage());
             return false;
         }
     }
+
+    private void recordWrite() {
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
+    }
 }
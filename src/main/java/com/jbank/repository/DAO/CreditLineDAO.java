@@ -8,7 +8,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import com.jbank.id.IdAllocator;
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.entities.CreditLineEntity;
 import com.jbank.util.ConnectionHandler;
 
@@ -21,12 +26,52 @@ import com.jbank.util.ConnectionHandler;
  */
 public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private static final String INSERT_ACCOUNT_WITH_ID =
+            "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_CREDIT_LINE =
+            "INSERT INTO credit_lines (account_id, credit_limit, interest_rate, min_payment_percentage) VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+    private ReplicaRouter replicaRouter;
+    private IdAllocator idAllocator;
+
+    public CreditLineDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+        this.idAllocator = ConnectionHandler.getIdAllocator();
+    }
+
+    // Allows callers that manage their own transaction (e.g. batch workers) to supply the connection
+    public CreditLineDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getByID, getAll) to read replicas through the router; writes and
+     * getByIDForWrite stay on this DAO's connection. Pass null to read from it too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Assigns account IDs from the allocator instead of the database, so create needs no generated key
+     * and createAll inserts in batches. Pass null to let the database assign them.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 
     // Create
     @Override
     public Integer create(CreditLineEntity creditLineEntity) throws SQLException {
-        try {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.create");
+        try (sample) {
+            if (idAllocator != null) {
+                int id = idAllocator.nextId(connection, IdSequence.ACCOUNT);
+                insertWithIDs(List.of(creditLineEntity), new int[] { id });
+                return id;
+            }
             // First, insert into accounts table
             String accountSql = "INSERT INTO accounts (account_type, account_name, balance) VALUES (?, ?, ?)";
             try (PreparedStatement accountStmt = connection.prepareStatement(accountSql, Statement.RETURN_GENERATED_KEYS)) {
@@ -34,7 +79,7 @@ public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
                 accountStmt.setString(2, creditLineEntity.getAccountName());
                 accountStmt.setDouble(3, creditLineEntity.getBalance());
                 accountStmt.executeUpdate();
-                
+            
                 // Get the generated account_id
                 int accountId;
                 try (ResultSet rs = accountStmt.getGeneratedKeys()) {
@@ -44,17 +89,16 @@ public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
                         throw new SQLException("Failed to insert into accounts table");
                     }
                 }
-                
+            
                 // Now insert into credit_lines table
-                String creditSql = "INSERT INTO credit_lines (account_id, credit_limit, interest_rate, min_payment_percentage) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement creditStmt = connection.prepareStatement(creditSql)) {
+                try (PreparedStatement creditStmt = connection.prepareStatement(INSERT_CREDIT_LINE)) {
                     creditStmt.setInt(1, accountId);
                     creditStmt.setDouble(2, creditLineEntity.getCreditLimit());
                     creditStmt.setDouble(3, creditLineEntity.getInterestRate());
                     creditStmt.setDouble(4, creditLineEntity.getMinPaymentPercentage());
                     creditStmt.executeUpdate();
                 }
-                
+            
                 return accountId;
             }
         } catch (SQLException e) {
@@ -63,14 +107,84 @@ public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
         }
     }
 
+    // Create under an ID taken from the allocator beforehand, e.g. so rows referencing it can be prepared first
+    public Integer createWithID(CreditLineEntity account, int id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.createWithID");
+        try (sample) {
+            insertWithIDs(List.of(account), new int[] { id });
+            return id;
+        } catch (SQLException e) {
+            System.err.println("Error creating CreditLine: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // With an ID allocator, one batch per table for all of them; run it in a transaction to insert all or none
+    @Override
+    public List<Integer> createAll(List<CreditLineEntity> accounts) throws SQLException {
+        if (idAllocator == null) {
+            return DAOinterface.super.createAll(accounts);
+        }
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.createAll");
+        try (sample) {
+            int[] ids = idAllocator.nextIds(connection, IdSequence.ACCOUNT, accounts.size());
+            insertWithIDs(accounts, ids);
+            List<Integer> created = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                created.add(id);
+            }
+            return created;
+        } catch (SQLException e) {
+            System.err.println("Error creating CreditLine: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insertWithIDs(List<CreditLineEntity> accounts, int[] ids) throws SQLException {
+        try (PreparedStatement accountStmt = connection.prepareStatement(INSERT_ACCOUNT_WITH_ID);
+                PreparedStatement creditStmt = connection.prepareStatement(INSERT_CREDIT_LINE)) {
+            for (int i = 0; i < ids.length; i++) {
+                CreditLineEntity account = accounts.get(i);
+                accountStmt.setInt(1, ids[i]);
+                accountStmt.setString(2, "CREDIT_LINE");
+                accountStmt.setString(3, account.getAccountName());
+                accountStmt.setDouble(4, account.getBalance());
+                accountStmt.addBatch();
+                creditStmt.setInt(1, ids[i]);
+                creditStmt.setDouble(2, account.getCreditLimit());
+                creditStmt.setDouble(3, account.getInterestRate());
+                creditStmt.setDouble(4, account.getMinPaymentPercentage());
+                creditStmt.addBatch();
+            }
+            accountStmt.executeBatch();
+            creditStmt.executeBatch();
+        }
+    }
+
     // Read by ID
     @Override
     public Optional<CreditLineEntity> getByID(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.getByID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            return readByID(lease.getConnection(), id);
+        }
+    }
+
+    // Read by ID on this DAO's connection even with a replica router set, for reads whose balance feeds a write
+    public Optional<CreditLineEntity> getByIDForWrite(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.getByIDForWrite");
+        try (sample) {
+            return readByID(connection, id);
+        }
+    }
+
+    private Optional<CreditLineEntity> readByID(Connection conn, Integer id) throws SQLException {
         String sql = "SELECT a.account_id, a.account_name, a.balance, cl.credit_limit, cl.interest_rate, cl.min_payment_percentage " +
                      "FROM accounts a " +
                      "JOIN credit_lines cl ON a.account_id = cl.account_id " +
                      "WHERE a.account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -94,24 +208,59 @@ public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
     // Read all
     @Override
     public List<CreditLineEntity> getAll() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.getAll");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<CreditLineEntity> creditLines = new ArrayList<>();
+            String sql = "SELECT a.account_id, a.account_name, a.balance, cl.credit_limit, cl.interest_rate, cl.min_payment_percentage " +
+                         "FROM accounts a " +
+                         "JOIN credit_lines cl ON a.account_id = cl.account_id";
+        
+            try (PreparedStatement stmt = lease.getConnection().prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CreditLineEntity creditLine = new CreditLineEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("credit_limit"),
+                        rs.getDouble("interest_rate"),
+                        rs.getDouble("min_payment_percentage"),
+                        rs.getString("account_name")
+                    );
+                    creditLines.add(creditLine);
+                }
+            }
+            return creditLines;
+        }
+    }
+
+    // Read by ID range [fromId, toId), ordered by ID (used by batch jobs)
+    public List<CreditLineEntity> getByIDRange(int fromId, int toId) throws SQLException {
         List<CreditLineEntity> creditLines = new ArrayList<>();
         String sql = "SELECT a.account_id, a.account_name, a.balance, cl.credit_limit, cl.interest_rate, cl.min_payment_percentage " +
                      "FROM accounts a " +
-                     "JOIN credit_lines cl ON a.account_id = cl.account_id";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                CreditLineEntity creditLine = new CreditLineEntity(
-                    rs.getInt("account_id"),
-                    0,
-                    rs.getDouble("balance"),
-                    rs.getDouble("credit_limit"),
-                    rs.getDouble("interest_rate"),
-                    rs.getDouble("min_payment_percentage"),
-                    rs.getString("account_name")
-                );
-                creditLines.add(creditLine);
+                     "JOIN credit_lines cl ON a.account_id = cl.account_id " +
+                     "WHERE a.account_id >= ? AND a.account_id < ? " +
+                     "ORDER BY a.account_id";
+
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.getByIDRange");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, fromId);
+            stmt.setInt(2, toId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CreditLineEntity creditLine = new CreditLineEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("credit_limit"),
+                        rs.getDouble("interest_rate"),
+                        rs.getDouble("min_payment_percentage"),
+                        rs.getString("account_name")
+                    );
+                    creditLines.add(creditLine);
+                }
             }
         }
         return creditLines;
@@ -120,48 +269,91 @@ public class CreditLineDAO implements DAOinterface<CreditLineEntity> {
     // Update by ID
     @Override
     public CreditLineEntity updateByID(CreditLineEntity creditLineEntity) throws SQLException {
-        String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setDouble(1, creditLineEntity.getBalance());
-            accountStmt.setInt(2, creditLineEntity.getAccountID());
-            accountStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.updateByID");
+        try (sample) {
+            String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setDouble(1, creditLineEntity.getBalance());
+                accountStmt.setInt(2, creditLineEntity.getAccountID());
+                accountStmt.executeUpdate();
+            }
         
-        String creditSql = "UPDATE credit_lines SET credit_limit = ?, interest_rate = ?, min_payment_percentage = ? WHERE account_id = ?";
-        try (PreparedStatement creditStmt = connection.prepareStatement(creditSql)) {
-            creditStmt.setDouble(1, creditLineEntity.getCreditLimit());
-            creditStmt.setDouble(2, creditLineEntity.getInterestRate());
-            creditStmt.setDouble(3, creditLineEntity.getMinPaymentPercentage());
-            creditStmt.setInt(4, creditLineEntity.getAccountID());
-            creditStmt.executeUpdate();
-        }
+            String creditSql = "UPDATE credit_lines SET credit_limit = ?, interest_rate = ?, min_payment_percentage = ? WHERE account_id = ?";
+            try (PreparedStatement creditStmt = connection.prepareStatement(creditSql)) {
+                creditStmt.setDouble(1, creditLineEntity.getCreditLimit());
+                creditStmt.setDouble(2, creditLineEntity.getInterestRate());
+                creditStmt.setDouble(3, creditLineEntity.getMinPaymentPercentage());
+                creditStmt.setInt(4, creditLineEntity.getAccountID());
+                creditStmt.executeUpdate();
+            }
         
-        return creditLineEntity;
+            return creditLineEntity;
+        }
+    }
+
+    /**
+     * Writes the credit limit, interest rate and minimum payment and leaves the balance alone, for changes
+     * to the terms while the balance may be moving elsewhere (the ledger engine, concurrent movements).
+     * @return false if the credit line does not exist
+     */
+    public boolean updateTerms(CreditLineEntity creditLineEntity) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.updateTerms");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE credit_lines SET credit_limit = ?, interest_rate = ?, min_payment_percentage = ? WHERE account_id = ?")) {
+            stmt.setDouble(1, creditLineEntity.getCreditLimit());
+            stmt.setDouble(2, creditLineEntity.getInterestRate());
+            stmt.setDouble(3, creditLineEntity.getMinPaymentPercentage());
+            stmt.setInt(4, creditLineEntity.getAccountID());
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Sets the balance only if it still is expectedBalance, so a movement computed from an outdated read is
+     * refused instead of overwriting a concurrent one. The other columns are left alone.
+     * @param movementKey Idempotency key of a journaled movement, stored in movement_keys in the same
+     *        transaction; null for none
+     * @return false if the balance had changed or the account does not exist
+     */
+    public boolean updateBalance(int accountId, double expectedBalance, double newBalance, UUID movementKey)
+            throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.updateBalance");
+        try (sample) {
+            return AccountBalances.compareAndSet(connection, accountId, expectedBalance, newBalance, movementKey);
+        }
     }
 
     // Delete by ID
     @Override
     public boolean deleteByID(Integer id) throws SQLException {
-        // First delete from client_accounts junction table
-        String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
-        try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
-            junctionStmt.setInt(1, id);
-            junctionStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.CreditLineDAO.deleteByID");
+        try (sample) {
+            // First delete from client_accounts junction table
+            String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
+            try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
+                junctionStmt.setInt(1, id);
+                junctionStmt.executeUpdate();
+            }
         
-        // Then delete from credit_lines (child table)
-        String creditSql = "DELETE FROM credit_lines WHERE account_id = ?";
-        try (PreparedStatement creditStmt = connection.prepareStatement(creditSql)) {
-            creditStmt.setInt(1, id);
-            creditStmt.executeUpdate();
-        }
+            // Then delete from credit_lines (child table)
+            String creditSql = "DELETE FROM credit_lines WHERE account_id = ?";
+            try (PreparedStatement creditStmt = connection.prepareStatement(creditSql)) {
+                creditStmt.setInt(1, id);
+                creditStmt.executeUpdate();
+            }
         
-        // Finally delete from accounts (parent table)
-        String accountSql = "DELETE FROM accounts WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setInt(1, id);
-            int rowsAffected = accountStmt.executeUpdate();
-            return rowsAffected > 0;
+            // Finally delete from accounts (parent table)
+            String accountSql = "DELETE FROM accounts WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setInt(1, id);
+                int rowsAffected = accountStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
         }
     }
+
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
+    }
 }
@@ -0,0 +1,97 @@
+package com.jbank.repository.DAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Data Access Object for cross_shard_owners, the directory of joint owners whose client lives on another
+ * shard than the account. One instance works on one shard's connection; the same row is written on the
+ * account's shard and on the owner's shard.
+ *
+ * @author juanf
+ */
+public class CrossShardOwnerDAO {
+
+    private final Connection connection;
+
+    public CrossShardOwnerDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Records the ownership if the account is on this shard.
+     * @return false if there is no such account here
+     */
+    public boolean addForAccount(int clientId, int accountId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CrossShardOwnerDAO.addForAccount");
+        try (sample) {
+            return insertIfExists(clientId, accountId, "SELECT 1 FROM accounts WHERE account_id = ?", accountId);
+        }
+    }
+
+    /**
+     * Records the ownership if the client is on this shard.
+     * @return false if there is no such client here
+     */
+    public boolean addForClient(int clientId, int accountId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CrossShardOwnerDAO.addForClient");
+        try (sample) {
+            return insertIfExists(clientId, accountId, "SELECT 1 FROM clients WHERE customer_id = ?", clientId);
+        }
+    }
+
+    public boolean remove(int clientId, int accountId) throws SQLException {
+        String sql = "DELETE FROM cross_shard_owners WHERE customer_id = ? AND account_id = ?";
+        Metrics.Sample sample = Metrics.time("dao.CrossShardOwnerDAO.remove");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, clientId);
+            stmt.setInt(2, accountId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Accounts on other shards that the client jointly owns
+    public List<Integer> getAccountsByClient(int clientId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CrossShardOwnerDAO.getAccountsByClient");
+        try (sample) {
+            return ids("SELECT account_id FROM cross_shard_owners WHERE customer_id = ?", clientId);
+        }
+    }
+
+    // Joint owners of the account whose client lives on another shard
+    public List<Integer> getClientsByAccount(int accountId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.CrossShardOwnerDAO.getClientsByAccount");
+        try (sample) {
+            return ids("SELECT customer_id FROM cross_shard_owners WHERE account_id = ?", accountId);
+        }
+    }
+
+    private boolean insertIfExists(int clientId, int accountId, String existsSql, int existsId) throws SQLException {
+        String sql = "INSERT INTO cross_shard_owners (customer_id, account_id) SELECT ?, ? WHERE EXISTS (" + existsSql + ")";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, clientId);
+            stmt.setInt(2, accountId);
+            stmt.setInt(3, existsId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    private List<Integer> ids(String sql, int id) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+}
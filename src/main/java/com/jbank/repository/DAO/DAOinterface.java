@@ -2,6 +2,7 @@ package com.jbank.repository.DAO;
 
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,19 @@ public interface DAOinterface<T> {
     // Create
     public Integer create(T client) throws SQLException;
 
+    // Create several: their IDs in order, or null if one failed. Implementations may batch the inserts
+    public default List<Integer> createAll(List<T> clients) throws SQLException {
+        List<Integer> ids = new ArrayList<>(clients.size());
+        for (T client : clients) {
+            Integer id = create(client);
+            if (id == null) {
+                return null;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
     // Read by ID
     public Optional<T> getByID(Integer id) throws SQLException;
 
@@ -0,0 +1,119 @@
+package com.jbank.repository.DAO;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import com.jbank.ledger.LedgerSnapshot;
+import com.jbank.ledger.LedgerStore;
+import com.jbank.metrics.Metrics;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Data Access Object backing the in-memory ledger engine.
+ * Loads credit line balances and limits, and saves changed balances together with the
+ * ledger_checkpoints row recording how much of the engine's journal they include.
+ *
+ * @author juanf
+ */
+public class LedgerDAO implements LedgerStore {
+
+    private final Connection connection;
+    private final String ledgerName;
+
+    public LedgerDAO(String ledgerName) throws SQLException {
+        this(ConnectionHandler.openConnection(), ledgerName);
+    }
+
+    // The engine saves from its own thread, so it gets a dedicated connection
+    public LedgerDAO(Connection connection, String ledgerName) {
+        this.connection = connection;
+        this.ledgerName = ledgerName;
+    }
+
+    // Read all credit lines and the last saved journal sequence
+    @Override
+    public LedgerSnapshot load() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.LedgerDAO.load");
+        try (sample) {
+            String sql = "SELECT a.account_id, a.balance, cl.credit_limit " +
+                         "FROM accounts a " +
+                         "JOIN credit_lines cl ON a.account_id = cl.account_id " +
+                         "ORDER BY a.account_id";
+            int count = 0;
+            int[] ids = new int[1024];
+            long[] balances = new long[1024];
+            long[] limits = new long[1024];
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setFetchSize(10_000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                            balances = Arrays.copyOf(balances, count * 2);
+                            limits = Arrays.copyOf(limits, count * 2);
+                        }
+                        ids[count] = rs.getInt("account_id");
+                        balances[count] = toCents(rs.getBigDecimal("balance"));
+                        limits[count] = toCents(rs.getBigDecimal("credit_limit"));
+                        count++;
+                    }
+                }
+            }
+
+            long lastSequence = 0;
+            String checkpointSql = "SELECT last_sequence FROM ledger_checkpoints WHERE ledger_name = ?";
+            try (PreparedStatement stmt = connection.prepareStatement(checkpointSql)) {
+                stmt.setString(1, ledgerName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        lastSequence = rs.getLong("last_sequence");
+                    }
+                }
+            }
+            return new LedgerSnapshot(Arrays.copyOf(ids, count), Arrays.copyOf(balances, count),
+                    Arrays.copyOf(limits, count), lastSequence);
+        }
+    }
+
+    // Update balances and the checkpoint in one transaction
+    @Override
+    public void save(int[] accountIds, long[] balanceCents, int count, long lastSequence) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        Metrics.Sample sample = Metrics.time("dao.LedgerDAO.save");
+        try (sample) {
+            String balanceSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+            try (PreparedStatement stmt = connection.prepareStatement(balanceSql)) {
+                for (int i = 0; i < count; i++) {
+                    stmt.setBigDecimal(1, BigDecimal.valueOf(balanceCents[i], 2));
+                    stmt.setInt(2, accountIds[i]);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            String checkpointSql = "INSERT INTO ledger_checkpoints (ledger_name, last_sequence) VALUES (?, ?) " +
+                                   "ON CONFLICT (ledger_name) DO UPDATE SET last_sequence = EXCLUDED.last_sequence, " +
+                                   "updated_at = CURRENT_TIMESTAMP";
+            try (PreparedStatement stmt = connection.prepareStatement(checkpointSql)) {
+                stmt.setString(1, ledgerName);
+                stmt.setLong(2, lastSequence);
+                stmt.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+}
@@ -0,0 +1,75 @@
+package com.jbank.repository.DAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Data Access Object for movement_keys: the idempotency keys of journaled money movements, recorded on
+ * the caller's connection in the same transaction as the balance write. After a crash, a journal record
+ * left without a COMMIT or ABORT marker was applied if and only if its key is here.
+ *
+ * @author juanf
+ */
+public class MovementKeyDAO {
+
+    private static final String INSERT_SQL = "INSERT INTO movement_keys (idempotency_key, account_id) VALUES (?, ?)";
+
+    private final Connection connection;
+
+    public MovementKeyDAO() {
+        this(ConnectionHandler.getConnection());
+    }
+
+    // Keys must be recorded on the connection that writes the balance, so callers supply it
+    public MovementKeyDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Records the key of a movement on the account.
+     * @throws SQLException if the key was already recorded, i.e. the movement was already applied
+     */
+    public boolean record(int accountId, UUID movementKey) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.MovementKeyDAO.record");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            stmt.setObject(1, movementKey);
+            stmt.setInt(2, accountId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Records several keys, each with its account ID, as one batched statement
+    public void recordAll(Map<UUID, Integer> accountIdsByKey) throws SQLException {
+        if (accountIdsByKey.isEmpty()) {
+            return;
+        }
+        Metrics.Sample sample = Metrics.time("dao.MovementKeyDAO.recordAll");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            for (Map.Entry<UUID, Integer> entry : accountIdsByKey.entrySet()) {
+                stmt.setObject(1, entry.getKey());
+                stmt.setInt(2, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Whether the movement with this key was applied
+    public boolean contains(UUID movementKey) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.MovementKeyDAO.contains");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(
+                "SELECT 1 FROM movement_keys WHERE idempotency_key = ?")) {
+            stmt.setObject(1, movementKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
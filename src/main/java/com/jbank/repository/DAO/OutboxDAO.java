@@ -0,0 +1,162 @@
+package com.jbank.repository.DAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jbank.metrics.Metrics;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.outbox.OutboxEventType;
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Data Access Object for the transactional outbox.
+ * Appends events to outbox_events on the caller's connection, so they commit or roll back with the
+ * change they describe, and serves relays: claiming the oldest events with FOR UPDATE SKIP LOCKED,
+ * deleting delivered ones and recording each relay's offset in outbox_offsets.
+ *
+ * @author juanf
+ */
+public class OutboxDAO {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload) VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+
+    public OutboxDAO() {
+        this(ConnectionHandler.getConnection());
+    }
+
+    // Events must be appended on the connection that makes the change, so callers supply it
+    public OutboxDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Appends one event
+    public void append(OutboxEvent event) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.append");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            bind(stmt, event);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Appends several events as one batched statement
+    public void appendAll(List<OutboxEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.appendAll");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            for (OutboxEvent event : events) {
+                bind(stmt, event);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Locks and returns up to limit of the oldest events, skipping those another relay has locked.
+     * Must run inside a transaction; the locks are held until it ends.
+     */
+    public List<OutboxEvent> claim(int limit) throws SQLException {
+        String sql = "SELECT event_id, event_type, aggregate_id, payload, created_at " +
+                     "FROM outbox_events " +
+                     "ORDER BY event_id LIMIT ? FOR UPDATE SKIP LOCKED";
+        List<OutboxEvent> events = new ArrayList<>();
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.claim");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(new OutboxEvent(
+                        rs.getLong("event_id"),
+                        OutboxEventType.valueOf(rs.getString("event_type")),
+                        rs.getInt("aggregate_id"),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at")
+                    ));
+                }
+            }
+        }
+        return events;
+    }
+
+    // Deletes delivered events, as one batched statement
+    public void delete(List<OutboxEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.delete");
+        try (sample; PreparedStatement stmt = connection.prepareStatement("DELETE FROM outbox_events WHERE event_id = ?")) {
+            for (OutboxEvent event : events) {
+                stmt.setLong(1, event.getEventId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Number of events not yet delivered
+    public long countPending() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.countPending");
+        try (sample; PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM outbox_events");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Highest event ID the consumer has delivered, or 0 if it has delivered nothing
+    public long getOffset(String consumer) throws SQLException {
+        String sql = "SELECT last_event_id FROM outbox_offsets WHERE consumer = ?";
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.getOffset");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, consumer);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Records a delivered batch for the consumer. Called in the relay's transaction, so the offset
+     * moves exactly when the batch's events are deleted.
+     */
+    public void advanceOffset(String consumer, long lastEventId, int delivered) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.OutboxDAO.advanceOffset");
+        try (sample) {
+            String updateSql = "UPDATE outbox_offsets SET last_event_id = GREATEST(last_event_id, ?), " +
+                               "delivered = delivered + ?, updated_at = CURRENT_TIMESTAMP WHERE consumer = ?";
+            try (PreparedStatement stmt = connection.prepareStatement(updateSql)) {
+                stmt.setLong(1, lastEventId);
+                stmt.setLong(2, delivered);
+                stmt.setString(3, consumer);
+                if (stmt.executeUpdate() > 0) {
+                    return;
+                }
+            }
+
+            // First batch for this consumer
+            String insertSql = "INSERT INTO outbox_offsets (consumer, last_event_id, delivered) VALUES (?, ?, ?)";
+            try (PreparedStatement stmt = connection.prepareStatement(insertSql)) {
+                stmt.setString(1, consumer);
+                stmt.setLong(2, lastEventId);
+                stmt.setLong(3, delivered);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, OutboxEvent event) throws SQLException {
+        stmt.setString(1, event.getType().getAggregateType());
+        stmt.setInt(2, event.getAggregateId());
+        stmt.setString(3, event.getType().name());
+        stmt.setString(4, event.getPayload());
+    }
+}
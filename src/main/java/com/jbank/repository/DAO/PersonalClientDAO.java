@@ -8,6 +8,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import com.jbank.id.IdAllocator;
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.entities.PersonalClientEntity;
 import com.jbank.util.ConnectionHandler;
 
@@ -19,12 +23,52 @@ import com.jbank.util.ConnectionHandler;
  */
 public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private static final String INSERT_CLIENT_WITH_ID =
+            "INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PERSONAL_CLIENT =
+            "INSERT INTO personal_clients (customer_id, tax_id, credit_score, yearly_income, total_debt) VALUES (?, ?, ?, ?, ?)";
+
+    private final Connection connection;
+    private ReplicaRouter replicaRouter;
+    private IdAllocator idAllocator;
+
+    public PersonalClientDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+        this.idAllocator = ConnectionHandler.getIdAllocator();
+    }
+
+    // Allows callers that manage their own connection (e.g. tests against a local database) to supply it
+    public PersonalClientDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getByID, getByTaxID, getByName, getAll) to read replicas through the router; writes
+     * stay on this DAO's connection. Pass null to read from it too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Assigns client IDs from the allocator instead of the database, so create needs no generated key
+     * and createAll inserts in batches. Pass null to let the database assign them.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 
     // Create
     @Override
     public Integer create(PersonalClientEntity personalClientEntity) throws SQLException {
-        try {
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.create");
+        try (sample) {
+            if (idAllocator != null) {
+                int id = idAllocator.nextId(connection, IdSequence.CLIENT);
+                insertWithIDs(List.of(personalClientEntity), new int[] { id });
+                return id;
+            }
             // First, insert into clients table
             String clientSql = "INSERT INTO clients (client_type, phone_number, address, name) VALUES (?, ?, ?, ?)";
             try(PreparedStatement clientStmt = connection.prepareStatement(clientSql, Statement.RETURN_GENERATED_KEYS)){
@@ -33,7 +77,7 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
                 clientStmt.setString(3, personalClientEntity.getAddress());
                 clientStmt.setString(4, personalClientEntity.getName());
                 clientStmt.executeUpdate();
-                
+            
                 // Get the generated customer_id
                 int customerId;
                 try(ResultSet rs = clientStmt.getGeneratedKeys()){
@@ -43,10 +87,9 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
                         throw new SQLException("Failed to insert into clients table");
                     }
                 }
-                
+            
                 // Now insert into personal_clients table
-                String personalSql = "INSERT INTO personal_clients (customer_id, tax_id, credit_score, yearly_income, total_debt) VALUES (?, ?, ?, ?, ?)";
-                try(PreparedStatement personalStmt = connection.prepareStatement(personalSql)){
+                try(PreparedStatement personalStmt = connection.prepareStatement(INSERT_PERSONAL_CLIENT)){
                     personalStmt.setInt(1, customerId);
                     personalStmt.setString(2, personalClientEntity.getTaxID());
                     personalStmt.setInt(3, personalClientEntity.getCreditScore());
@@ -54,7 +97,7 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
                     personalStmt.setDouble(5, personalClientEntity.getTotalDebt());
                     personalStmt.executeUpdate();
                 }
-                
+            
                 return customerId;
             }
         } catch (SQLException e) {
@@ -63,28 +106,88 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
         }
     }
 
+    // Create under an ID taken from the allocator beforehand, e.g. so rows referencing it can be prepared first
+    public Integer createWithID(PersonalClientEntity client, int id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.createWithID");
+        try (sample) {
+            insertWithIDs(List.of(client), new int[] { id });
+            return id;
+        } catch (SQLException e) {
+            System.err.println("Error creating PersonalClient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // With an ID allocator, one batch per table for all of them; run it in a transaction to insert all or none
+    @Override
+    public List<Integer> createAll(List<PersonalClientEntity> clients) throws SQLException {
+        if (idAllocator == null) {
+            return DAOinterface.super.createAll(clients);
+        }
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.createAll");
+        try (sample) {
+            int[] ids = idAllocator.nextIds(connection, IdSequence.CLIENT, clients.size());
+            insertWithIDs(clients, ids);
+            List<Integer> created = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                created.add(id);
+            }
+            return created;
+        } catch (SQLException e) {
+            System.err.println("Error creating PersonalClient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insertWithIDs(List<PersonalClientEntity> clients, int[] ids) throws SQLException {
+        try (PreparedStatement clientStmt = connection.prepareStatement(INSERT_CLIENT_WITH_ID);
+                PreparedStatement personalStmt = connection.prepareStatement(INSERT_PERSONAL_CLIENT)) {
+            for (int i = 0; i < ids.length; i++) {
+                PersonalClientEntity client = clients.get(i);
+                clientStmt.setInt(1, ids[i]);
+                clientStmt.setString(2, "PERSONAL");
+                clientStmt.setString(3, client.getPhoneNumber());
+                clientStmt.setString(4, client.getAddress());
+                clientStmt.setString(5, client.getName());
+                clientStmt.addBatch();
+                personalStmt.setInt(1, ids[i]);
+                personalStmt.setString(2, client.getTaxID());
+                personalStmt.setInt(3, client.getCreditScore());
+                personalStmt.setDouble(4, client.getYearlyIncome());
+                personalStmt.setDouble(5, client.getTotalDebt());
+                personalStmt.addBatch();
+            }
+            clientStmt.executeBatch();
+            personalStmt.executeBatch();
+        }
+    }
+
     // Read by ID
     @Override
     public Optional<PersonalClientEntity> getByID(Integer id) throws SQLException {
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
-                     "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
-                     "WHERE c.customer_id = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setInt(1, id);
-            try(ResultSet rs = stmt.executeQuery()){
-                if (rs.next()) {
-                    PersonalClientEntity personalClient = new PersonalClientEntity(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone_number"),
-                        rs.getString("address"),
-                        rs.getString("name"),
-                        rs.getString("tax_id"),
-                        rs.getInt("credit_score"),
-                        rs.getDouble("yearly_income"),
-                        rs.getDouble("total_debt"));
-                    return Optional.of(personalClient);
-                } else {
-                    return Optional.empty();
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.getByID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
+                         "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
+                         "WHERE c.customer_id = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setInt(1, id);
+                try(ResultSet rs = stmt.executeQuery()){
+                    if (rs.next()) {
+                        PersonalClientEntity personalClient = new PersonalClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("tax_id"),
+                            rs.getInt("credit_score"),
+                            rs.getDouble("yearly_income"),
+                            rs.getDouble("total_debt"));
+                        return Optional.of(personalClient);
+                    } else {
+                        return Optional.empty();
+                    }
                 }
             }
         }
@@ -92,25 +195,29 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
 
     // Read by taxID
     public Optional<PersonalClientEntity> getByTaxID(String taxID) throws SQLException {
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
-                     "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
-                     "WHERE pc.tax_id = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setString(1, taxID);
-            try(ResultSet rs = stmt.executeQuery()){
-                if (rs.next()) {
-                    PersonalClientEntity personalClient = new PersonalClientEntity(
-                        rs.getInt("customer_id"),
-                        rs.getString("phone_number"),
-                        rs.getString("address"),
-                        rs.getString("name"),
-                        rs.getString("tax_id"),
-                        rs.getInt("credit_score"),
-                        rs.getDouble("yearly_income"),
-                        rs.getDouble("total_debt"));
-                    return Optional.of(personalClient);
-                } else {
-                    return Optional.empty();
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.getByTaxID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
+                         "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
+                         "WHERE pc.tax_id = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setString(1, taxID);
+                try(ResultSet rs = stmt.executeQuery()){
+                    if (rs.next()) {
+                        PersonalClientEntity personalClient = new PersonalClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("tax_id"),
+                            rs.getInt("credit_score"),
+                            rs.getDouble("yearly_income"),
+                            rs.getDouble("total_debt"));
+                        return Optional.of(personalClient);
+                    } else {
+                        return Optional.empty();
+                    }
                 }
             }
         }
@@ -118,13 +225,46 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
 
     // Read by Name
     public List<PersonalClientEntity> getByName(String name) throws SQLException {
-        List<PersonalClientEntity> personalClients = new ArrayList<>();
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
-                     "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
-                     "WHERE c.name = ?";
-        try(PreparedStatement stmt = connection.prepareStatement(sql)){
-            stmt.setString(1, name);
-            try(ResultSet rs = stmt.executeQuery()){
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.getByName");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<PersonalClientEntity> personalClients = new ArrayList<>();
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
+                         "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id " +
+                         "WHERE c.name = ?";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql)){
+                stmt.setString(1, name);
+                try(ResultSet rs = stmt.executeQuery()){
+                    while (rs.next()) {
+                        PersonalClientEntity personalClient = new PersonalClientEntity(
+                            rs.getInt("customer_id"),
+                            rs.getString("phone_number"),
+                            rs.getString("address"),
+                            rs.getString("name"),
+                            rs.getString("tax_id"),
+                            rs.getInt("credit_score"),
+                            rs.getDouble("yearly_income"),
+                            rs.getDouble("total_debt"));
+                        personalClients.add(personalClient);
+                    }
+                }
+            }
+            return personalClients;
+        }
+    }
+
+    // Read all
+    @Override
+    public List<PersonalClientEntity> getAll() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.getAll");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<PersonalClientEntity> personalClients = new ArrayList<>();
+
+            String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
+                         "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id";
+            try(PreparedStatement stmt = lease.getConnection().prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()){
                 while (rs.next()) {
                     PersonalClientEntity personalClient = new PersonalClientEntity(
                         rs.getInt("customer_id"),
@@ -138,130 +278,122 @@ public class PersonalClientDAO implements DAOinterface<PersonalClientEntity> {
                     personalClients.add(personalClient);
                 }
             }
+            return personalClients;
         }
-        return personalClients;
-    }
-
-    // Read all
-    @Override
-    public List<PersonalClientEntity> getAll() throws SQLException {
-        List<PersonalClientEntity> personalClients = new ArrayList<>();
-
-        String sql = "SELECT c.customer_id, c.phone_number, c.address, c.name, pc.tax_id, pc.credit_score, pc.yearly_income, pc.total_debt " +
-                     "FROM clients c JOIN personal_clients pc ON c.customer_id = pc.customer_id";
-        try(PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery()){
-            while (rs.next()) {
-                PersonalClientEntity personalClient = new PersonalClientEntity(
-                    rs.getInt("customer_id"),
-                    rs.getString("phone_number"),
-                    rs.getString("address"),
-                    rs.getString("name"),
-                    rs.getString("tax_id"),
-                    rs.getInt("credit_score"),
-                    rs.getDouble("yearly_income"),
-                    rs.getDouble("total_debt"));
-                personalClients.add(personalClient);
-            }
-        }
-        return personalClients;
     }
 
     // Update by ID
     @Override
     public PersonalClientEntity updateByID(PersonalClientEntity personalClientEntity) throws SQLException {
-        String clientSql = "UPDATE clients SET phone_number = ?, address = ?, name = ? WHERE customer_id = ?";
-        try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
-            clientStmt.setString(1, personalClientEntity.getPhoneNumber());
-            clientStmt.setString(2, personalClientEntity.getAddress());
-            clientStmt.setString(3, personalClientEntity.getName());
-            clientStmt.setInt(4, personalClientEntity.getCustomerID());
-            clientStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.updateByID");
+        try (sample) {
+            String clientSql = "UPDATE clients SET phone_number = ?, address = ?, name = ? WHERE customer_id = ?";
+            try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
+                clientStmt.setString(1, personalClientEntity.getPhoneNumber());
+                clientStmt.setString(2, personalClientEntity.getAddress());
+                clientStmt.setString(3, personalClientEntity.getName());
+                clientStmt.setInt(4, personalClientEntity.getCustomerID());
+                clientStmt.executeUpdate();
+            }
 
-        String personalSql = "UPDATE personal_clients SET tax_id = ?, credit_score = ?, yearly_income = ?, total_debt = ? WHERE customer_id = ?";
-        try(PreparedStatement personalStmt = connection.prepareStatement(personalSql)){
-            personalStmt.setString(1, personalClientEntity.getTaxID());
-            personalStmt.setInt(2, personalClientEntity.getCreditScore());
-            personalStmt.setDouble(3, personalClientEntity.getYearlyIncome());
-            personalStmt.setDouble(4, personalClientEntity.getTotalDebt());
-            personalStmt.setInt(5, personalClientEntity.getCustomerID());
-            personalStmt.executeUpdate();
-        }
+            String personalSql = "UPDATE personal_clients SET tax_id = ?, credit_score = ?, yearly_income = ?, total_debt = ? WHERE customer_id = ?";
+            try(PreparedStatement personalStmt = connection.prepareStatement(personalSql)){
+                personalStmt.setString(1, personalClientEntity.getTaxID());
+                personalStmt.setInt(2, personalClientEntity.getCreditScore());
+                personalStmt.setDouble(3, personalClientEntity.getYearlyIncome());
+                personalStmt.setDouble(4, personalClientEntity.getTotalDebt());
+                personalStmt.setInt(5, personalClientEntity.getCustomerID());
+                personalStmt.executeUpdate();
+            }
 
-        return personalClientEntity;
+            return personalClientEntity;
+        }
     }
 
     // Update by taxID
     public PersonalClientEntity updateByTaxID(PersonalClientEntity personalClientEntity) throws SQLException {
-        String getIdSql = "SELECT customer_id FROM personal_clients WHERE tax_id = ?";
-        int customerId;
-        try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
-            getIdStmt.setString(1, personalClientEntity.getTaxID());
-            try(ResultSet rs = getIdStmt.executeQuery()){
-                if (rs.next()) {
-                    customerId = rs.getInt("customer_id");
-                } else {
-                    throw new SQLException("No personal client found with tax ID: " + personalClientEntity.getTaxID());
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.updateByTaxID");
+        try (sample) {
+            String getIdSql = "SELECT customer_id FROM personal_clients WHERE tax_id = ?";
+            int customerId;
+            try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
+                getIdStmt.setString(1, personalClientEntity.getTaxID());
+                try(ResultSet rs = getIdStmt.executeQuery()){
+                    if (rs.next()) {
+                        customerId = rs.getInt("customer_id");
+                    } else {
+                        throw new SQLException("No personal client found with tax ID: " + personalClientEntity.getTaxID());
+                    }
                 }
             }
-        }
 
-        personalClientEntity = new PersonalClientEntity(
-            customerId,
-            personalClientEntity.getPhoneNumber(),
-            personalClientEntity.getAddress(),
-            personalClientEntity.getName(),
-            personalClientEntity.getTaxID(),
-            personalClientEntity.getCreditScore(),
-            personalClientEntity.getYearlyIncome(),
-            personalClientEntity.getTotalDebt()
-        );
+            personalClientEntity = new PersonalClientEntity(
+                customerId,
+                personalClientEntity.getPhoneNumber(),
+                personalClientEntity.getAddress(),
+                personalClientEntity.getName(),
+                personalClientEntity.getTaxID(),
+                personalClientEntity.getCreditScore(),
+                personalClientEntity.getYearlyIncome(),
+                personalClientEntity.getTotalDebt()
+            );
 
-        return updateByID(personalClientEntity);
+            return updateByID(personalClientEntity);
+        }
     }
 
     // Delete by ID
     @Override
     public boolean deleteByID(Integer id) throws SQLException {
-        // First, delete from client_accounts junction table (which cascades to delete accounts and their subtypes)
-        String junctionSql = "DELETE FROM client_accounts WHERE customer_id = ?";
-        try(PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)){
-            junctionStmt.setInt(1, id);
-            junctionStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.deleteByID");
+        try (sample) {
+            // First, delete from client_accounts junction table (which cascades to delete accounts and their subtypes)
+            String junctionSql = "DELETE FROM client_accounts WHERE customer_id = ?";
+            try(PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)){
+                junctionStmt.setInt(1, id);
+                junctionStmt.executeUpdate();
+            }
 
-        // Then delete from personal_clients
-        String personalSql = "DELETE FROM personal_clients WHERE customer_id = ?";
-        try(PreparedStatement personalStmt = connection.prepareStatement(personalSql)){
-            personalStmt.setInt(1, id);
-            personalStmt.executeUpdate();
-        }
+            // Then delete from personal_clients
+            String personalSql = "DELETE FROM personal_clients WHERE customer_id = ?";
+            try(PreparedStatement personalStmt = connection.prepareStatement(personalSql)){
+                personalStmt.setInt(1, id);
+                personalStmt.executeUpdate();
+            }
 
-        // Finally delete from clients
-        String clientSql = "DELETE FROM clients WHERE customer_id = ?";
-        try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
-            clientStmt.setInt(1, id);
-            int rowsAffected = clientStmt.executeUpdate();
-            return rowsAffected > 0;
+            // Finally delete from clients
+            String clientSql = "DELETE FROM clients WHERE customer_id = ?";
+            try(PreparedStatement clientStmt = connection.prepareStatement(clientSql)){
+                clientStmt.setInt(1, id);
+                int rowsAffected = clientStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
         }
     }
 
     // Delete by taxID
     public boolean deleteByTaxID(String taxID) throws SQLException {
-        String getIdSql = "SELECT customer_id FROM personal_clients WHERE tax_id = ?";
-        int customerId;
-        try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
-            getIdStmt.setString(1, taxID);
-            try(ResultSet rs = getIdStmt.executeQuery()){
-                if (rs.next()) {
-                    customerId = rs.getInt("customer_id");
-                } else {
-                    return false; // No such taxID
+        Metrics.Sample sample = Metrics.time("dao.PersonalClientDAO.deleteByTaxID");
+        try (sample) {
+            String getIdSql = "SELECT customer_id FROM personal_clients WHERE tax_id = ?";
+            int customerId;
+            try(PreparedStatement getIdStmt = connection.prepareStatement(getIdSql)){
+                getIdStmt.setString(1, taxID);
+                try(ResultSet rs = getIdStmt.executeQuery()){
+                    if (rs.next()) {
+                        customerId = rs.getInt("customer_id");
+                    } else {
+                        return false; // No such taxID
+                    }
                 }
             }
+
+            return deleteByID(customerId);
         }
+    }
 
-        return deleteByID(customerId);
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
     }
 }
\ No newline at end of file
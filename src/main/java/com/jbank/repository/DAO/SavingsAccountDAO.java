@@ -8,7 +8,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import com.jbank.id.IdAllocator;
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.entities.SavingsAccountEntity;
 import com.jbank.util.ConnectionHandler;
 
@@ -21,12 +26,52 @@ import com.jbank.util.ConnectionHandler;
  */
 public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
 
-    private final Connection connection = ConnectionHandler.getConnection();
+    private static final String INSERT_ACCOUNT_WITH_ID =
+            "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_SAVINGS_ACCOUNT =
+            "INSERT INTO savings_accounts (account_id, interest_rate, withdrawal_limit, withdrawal_counter) VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+    private ReplicaRouter replicaRouter;
+    private IdAllocator idAllocator;
+
+    public SavingsAccountDAO() {
+        this(ConnectionHandler.getConnection());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
+        this.idAllocator = ConnectionHandler.getIdAllocator();
+    }
+
+    // Allows callers that manage their own transaction (e.g. batch workers) to supply the connection
+    public SavingsAccountDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the read-only queries (getByID, getAll) to read replicas through the router; writes and
+     * getByIDForWrite stay on this DAO's connection. Pass null to read from it too.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Assigns account IDs from the allocator instead of the database, so create needs no generated key
+     * and createAll inserts in batches. Pass null to let the database assign them.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 
     // Create
     @Override
     public Integer create(SavingsAccountEntity savingsAccountEntity) throws SQLException {
-        try {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.create");
+        try (sample) {
+            if (idAllocator != null) {
+                int id = idAllocator.nextId(connection, IdSequence.ACCOUNT);
+                insertWithIDs(List.of(savingsAccountEntity), new int[] { id });
+                return id;
+            }
             // First, insert into accounts table
             String accountSql = "INSERT INTO accounts (account_type, account_name, balance) VALUES (?, ?, ?)";
             try (PreparedStatement accountStmt = connection.prepareStatement(accountSql, Statement.RETURN_GENERATED_KEYS)) {
@@ -34,7 +79,7 @@ public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
                 accountStmt.setString(2, savingsAccountEntity.getAccountName());
                 accountStmt.setDouble(3, savingsAccountEntity.getBalance());
                 accountStmt.executeUpdate();
-                
+            
                 // Get the generated account_id
                 int accountId;
                 try (ResultSet rs = accountStmt.getGeneratedKeys()) {
@@ -44,17 +89,16 @@ public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
                         throw new SQLException("Failed to insert into accounts table");
                     }
                 }
-                
+            
                 // Now insert into savings_accounts table
-                String savingsSql = "INSERT INTO savings_accounts (account_id, interest_rate, withdrawal_limit, withdrawal_counter) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement savingsStmt = connection.prepareStatement(savingsSql)) {
+                try (PreparedStatement savingsStmt = connection.prepareStatement(INSERT_SAVINGS_ACCOUNT)) {
                     savingsStmt.setInt(1, accountId);
                     savingsStmt.setDouble(2, savingsAccountEntity.getInterestRate());
                     savingsStmt.setInt(3, savingsAccountEntity.getWithdrawalLimit());
                     savingsStmt.setInt(4, 0); // Start with 0 withdrawals
                     savingsStmt.executeUpdate();
                 }
-                
+            
                 return accountId;
             }
         } catch (SQLException e) {
@@ -63,14 +107,84 @@ public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
         }
     }
 
+    // Create under an ID taken from the allocator beforehand, e.g. so rows referencing it can be prepared first
+    public Integer createWithID(SavingsAccountEntity account, int id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.createWithID");
+        try (sample) {
+            insertWithIDs(List.of(account), new int[] { id });
+            return id;
+        } catch (SQLException e) {
+            System.err.println("Error creating SavingsAccount: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // With an ID allocator, one batch per table for all of them; run it in a transaction to insert all or none
+    @Override
+    public List<Integer> createAll(List<SavingsAccountEntity> accounts) throws SQLException {
+        if (idAllocator == null) {
+            return DAOinterface.super.createAll(accounts);
+        }
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.createAll");
+        try (sample) {
+            int[] ids = idAllocator.nextIds(connection, IdSequence.ACCOUNT, accounts.size());
+            insertWithIDs(accounts, ids);
+            List<Integer> created = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                created.add(id);
+            }
+            return created;
+        } catch (SQLException e) {
+            System.err.println("Error creating SavingsAccount: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void insertWithIDs(List<SavingsAccountEntity> accounts, int[] ids) throws SQLException {
+        try (PreparedStatement accountStmt = connection.prepareStatement(INSERT_ACCOUNT_WITH_ID);
+                PreparedStatement savingsStmt = connection.prepareStatement(INSERT_SAVINGS_ACCOUNT)) {
+            for (int i = 0; i < ids.length; i++) {
+                SavingsAccountEntity account = accounts.get(i);
+                accountStmt.setInt(1, ids[i]);
+                accountStmt.setString(2, "SAVINGS");
+                accountStmt.setString(3, account.getAccountName());
+                accountStmt.setDouble(4, account.getBalance());
+                accountStmt.addBatch();
+                savingsStmt.setInt(1, ids[i]);
+                savingsStmt.setDouble(2, account.getInterestRate());
+                savingsStmt.setInt(3, account.getWithdrawalLimit());
+                savingsStmt.setInt(4, 0);
+                savingsStmt.addBatch();
+            }
+            accountStmt.executeBatch();
+            savingsStmt.executeBatch();
+        }
+    }
+
     // Read by ID
     @Override
     public Optional<SavingsAccountEntity> getByID(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.getByID");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            return readByID(lease.getConnection(), id);
+        }
+    }
+
+    // Read by ID on this DAO's connection even with a replica router set, for reads whose balance feeds a write
+    public Optional<SavingsAccountEntity> getByIDForWrite(Integer id) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.getByIDForWrite");
+        try (sample) {
+            return readByID(connection, id);
+        }
+    }
+
+    private Optional<SavingsAccountEntity> readByID(Connection conn, Integer id) throws SQLException {
         String sql = "SELECT a.account_id, a.account_name, a.balance, sa.interest_rate, sa.withdrawal_limit, sa.withdrawal_counter " +
                      "FROM accounts a " +
                      "JOIN savings_accounts sa ON a.account_id = sa.account_id " +
                      "WHERE a.account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -94,24 +208,59 @@ public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
     // Read all
     @Override
     public List<SavingsAccountEntity> getAll() throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.getAll");
+        try (sample;
+                ReplicaRouter.Lease lease = readLease()) {
+            List<SavingsAccountEntity> accounts = new ArrayList<>();
+            String sql = "SELECT a.account_id, a.account_name, a.balance, sa.interest_rate, sa.withdrawal_limit, sa.withdrawal_counter " +
+                         "FROM accounts a " +
+                         "JOIN savings_accounts sa ON a.account_id = sa.account_id";
+        
+            try (PreparedStatement stmt = lease.getConnection().prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    SavingsAccountEntity account = new SavingsAccountEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("interest_rate"),
+                        rs.getInt("withdrawal_limit"),
+                        rs.getInt("withdrawal_counter"),
+                        rs.getString("account_name")
+                    );
+                    accounts.add(account);
+                }
+            }
+            return accounts;
+        }
+    }
+
+    // Read by ID range [fromId, toId), ordered by ID (used by batch jobs)
+    public List<SavingsAccountEntity> getByIDRange(int fromId, int toId) throws SQLException {
         List<SavingsAccountEntity> accounts = new ArrayList<>();
         String sql = "SELECT a.account_id, a.account_name, a.balance, sa.interest_rate, sa.withdrawal_limit, sa.withdrawal_counter " +
                      "FROM accounts a " +
-                     "JOIN savings_accounts sa ON a.account_id = sa.account_id";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                SavingsAccountEntity account = new SavingsAccountEntity(
-                    rs.getInt("account_id"),
-                    0,
-                    rs.getDouble("balance"),
-                    rs.getDouble("interest_rate"),
-                    rs.getInt("withdrawal_limit"),
-                    rs.getInt("withdrawal_counter"),
-                    rs.getString("account_name")
-                );
-                accounts.add(account);
+                     "JOIN savings_accounts sa ON a.account_id = sa.account_id " +
+                     "WHERE a.account_id >= ? AND a.account_id < ? " +
+                     "ORDER BY a.account_id";
+
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.getByIDRange");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, fromId);
+            stmt.setInt(2, toId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    SavingsAccountEntity account = new SavingsAccountEntity(
+                        rs.getInt("account_id"),
+                        0,
+                        rs.getDouble("balance"),
+                        rs.getDouble("interest_rate"),
+                        rs.getInt("withdrawal_limit"),
+                        rs.getInt("withdrawal_counter"),
+                        rs.getString("account_name")
+                    );
+                    accounts.add(account);
+                }
             }
         }
         return accounts;
@@ -120,48 +269,103 @@ public class SavingsAccountDAO implements DAOinterface<SavingsAccountEntity> {
     // Update by ID
     @Override
     public SavingsAccountEntity updateByID(SavingsAccountEntity savingsAccountEntity) throws SQLException {
-        String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setDouble(1, savingsAccountEntity.getBalance());
-            accountStmt.setInt(2, savingsAccountEntity.getAccountID());
-            accountStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.updateByID");
+        try (sample) {
+            String accountSql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setDouble(1, savingsAccountEntity.getBalance());
+                accountStmt.setInt(2, savingsAccountEntity.getAccountID());
+                accountStmt.executeUpdate();
+            }
         
-        String savingsSql = "UPDATE savings_accounts SET interest_rate = ?, withdrawal_limit = ?, withdrawal_counter = ? WHERE account_id = ?";
-        try (PreparedStatement savingsStmt = connection.prepareStatement(savingsSql)) {
-            savingsStmt.setDouble(1, savingsAccountEntity.getInterestRate());
-            savingsStmt.setInt(2, savingsAccountEntity.getWithdrawalLimit());
-            savingsStmt.setInt(3, savingsAccountEntity.getWithdrawalCounter());
-            savingsStmt.setInt(4, savingsAccountEntity.getAccountID());
-            savingsStmt.executeUpdate();
-        }
+            String savingsSql = "UPDATE savings_accounts SET interest_rate = ?, withdrawal_limit = ?, withdrawal_counter = ? WHERE account_id = ?";
+            try (PreparedStatement savingsStmt = connection.prepareStatement(savingsSql)) {
+                savingsStmt.setDouble(1, savingsAccountEntity.getInterestRate());
+                savingsStmt.setInt(2, savingsAccountEntity.getWithdrawalLimit());
+                savingsStmt.setInt(3, savingsAccountEntity.getWithdrawalCounter());
+                savingsStmt.setInt(4, savingsAccountEntity.getAccountID());
+                savingsStmt.executeUpdate();
+            }
         
-        return savingsAccountEntity;
+            return savingsAccountEntity;
+        }
+    }
+
+    /**
+     * Sets the balance only if it still is expectedBalance, so a movement computed from an outdated read is
+     * refused instead of overwriting a concurrent one, and if it applied adds withdrawals to the withdrawal
+     * counter in the same transaction. The other columns are left alone.
+     * @param movementKey Idempotency key of a journaled movement, stored in movement_keys in the same
+     *        transaction; null for none
+     * @return false if the balance had changed or the account does not exist
+     */
+    public boolean updateBalance(int accountId, double expectedBalance, double newBalance, int withdrawals,
+            UUID movementKey) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.updateBalance");
+        try (sample) {
+            if (withdrawals == 0) {
+                return AccountBalances.compareAndSet(connection, accountId, expectedBalance, newBalance, movementKey);
+            }
+            return AccountBalances.inTransaction(connection, () -> {
+                if (!AccountBalances.compareAndSet(connection, accountId, expectedBalance, newBalance)) {
+                    return false;
+                }
+                String counterSql = "UPDATE savings_accounts SET withdrawal_counter = withdrawal_counter + ? WHERE account_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(counterSql)) {
+                    stmt.setInt(1, withdrawals);
+                    stmt.setInt(2, accountId);
+                    stmt.executeUpdate();
+                }
+                return movementKey == null || new MovementKeyDAO(connection).record(accountId, movementKey);
+            });
+        }
+    }
+
+    /**
+     * Sets the withdrawal counter to 0 and leaves the balance alone, so a movement committed since the
+     * account was read is kept.
+     * @return false if the account does not exist
+     */
+    public boolean resetWithdrawalCounter(int accountId) throws SQLException {
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.resetWithdrawalCounter");
+        try (sample; PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE savings_accounts SET withdrawal_counter = 0 WHERE account_id = ?")) {
+            stmt.setInt(1, accountId);
+            return stmt.executeUpdate() > 0;
+        }
     }
 
     // Delete by ID
     @Override
     public boolean deleteByID(Integer id) throws SQLException {
-        // First delete from client_accounts junction table
-        String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
-        try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
-            junctionStmt.setInt(1, id);
-            junctionStmt.executeUpdate();
-        }
+        Metrics.Sample sample = Metrics.time("dao.SavingsAccountDAO.deleteByID");
+        try (sample) {
+            // First delete from client_accounts junction table
+            String junctionSql = "DELETE FROM client_accounts WHERE account_id = ?";
+            try (PreparedStatement junctionStmt = connection.prepareStatement(junctionSql)) {
+                junctionStmt.setInt(1, id);
+                junctionStmt.executeUpdate();
+            }
         
-        // Then delete from savings_accounts (child table)
-        String savingsSql = "DELETE FROM savings_accounts WHERE account_id = ?";
-        try (PreparedStatement savingsStmt = connection.prepareStatement(savingsSql)) {
-            savingsStmt.setInt(1, id);
-            savingsStmt.executeUpdate();
-        }
+            // Then delete from savings_accounts (child table)
+            String savingsSql = "DELETE FROM savings_accounts WHERE account_id = ?";
+            try (PreparedStatement savingsStmt = connection.prepareStatement(savingsSql)) {
+                savingsStmt.setInt(1, id);
+                savingsStmt.executeUpdate();
+            }
         
-        // Finally delete from accounts (parent table)
-        String accountSql = "DELETE FROM accounts WHERE account_id = ?";
-        try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
-            accountStmt.setInt(1, id);
-            int rowsAffected = accountStmt.executeUpdate();
-            return rowsAffected > 0;
+            // Finally delete from accounts (parent table)
+            String accountSql = "DELETE FROM accounts WHERE account_id = ?";
+            try (PreparedStatement accountStmt = connection.prepareStatement(accountSql)) {
+                accountStmt.setInt(1, id);
+                int rowsAffected = accountStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
         }
     }
+
+    // A replica for a read-only query when a router is set, otherwise this DAO's connection
+    private ReplicaRouter.Lease readLease() {
+        return replicaRouter != null ? replicaRouter.forRead() : ReplicaRouter.Lease.of(connection);
+    }
 }
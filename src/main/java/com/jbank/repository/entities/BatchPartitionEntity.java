@@ -0,0 +1,133 @@
+package com.jbank.repository.entities;
+
+import java.util.Objects;
+
+/**
+ * Entity class representing one account-ID partition of a batch job run.
+ * Maps to the batch_partitions table.
+ * The partition covers account IDs in [rangeStart, rangeEnd); checkpoint is the next ID to process.
+ *
+ * @author juanf
+ */
+public class BatchPartitionEntity {
+    private int runID;
+    private int partitionID;
+    private int rangeStart;
+    private int rangeEnd;
+    private int checkpoint;
+    private int itemsProcessed;
+    private String status;
+    private int attempts;
+
+    public BatchPartitionEntity() {
+    }
+
+    public BatchPartitionEntity(int runID, int partitionID, int rangeStart, int rangeEnd) {
+        this(runID, partitionID, rangeStart, rangeEnd, rangeStart, 0, "PENDING");
+    }
+
+    public BatchPartitionEntity(int runID, int partitionID, int rangeStart, int rangeEnd,
+            int checkpoint, int itemsProcessed, String status) {
+        this.runID = runID;
+        this.partitionID = partitionID;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.checkpoint = checkpoint;
+        this.itemsProcessed = itemsProcessed;
+        this.status = status;
+    }
+
+    // Getters
+    public int getRunID() {
+        return runID;
+    }
+
+    public int getPartitionID() {
+        return partitionID;
+    }
+
+    public int getRangeStart() {
+        return rangeStart;
+    }
+
+    public int getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public int getCheckpoint() {
+        return checkpoint;
+    }
+
+    public int getItemsProcessed() {
+        return itemsProcessed;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    // Setters
+    public void setRunID(int runID) {
+        this.runID = runID;
+    }
+
+    public void setPartitionID(int partitionID) {
+        this.partitionID = partitionID;
+    }
+
+    public void setRangeStart(int rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public void setRangeEnd(int rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    public void setCheckpoint(int checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public void setItemsProcessed(int itemsProcessed) {
+        this.itemsProcessed = itemsProcessed;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    // equals, hashCode, toString
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchPartitionEntity that = (BatchPartitionEntity) o;
+        return runID == that.runID && partitionID == that.partitionID;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(runID, partitionID);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchPartitionEntity{" +
+                "runID=" + runID +
+                ", partitionID=" + partitionID +
+                ", rangeStart=" + rangeStart +
+                ", rangeEnd=" + rangeEnd +
+                ", checkpoint=" + checkpoint +
+                ", itemsProcessed=" + itemsProcessed +
+                ", status='" + status + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
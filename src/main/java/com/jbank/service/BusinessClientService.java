@@ -7,11 +7,17 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.cache.EntityCache;
+import com.jbank.metrics.Metrics;
 import com.jbank.model.BusinessClient;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.DAO.BusinessClientDAO;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.entities.BusinessClientEntity;
 import com.jbank.util.AccountDeletionException;
+import com.jbank.util.ConnectionHandler;
 
 /**
  * Service layer for BusinessClient operations.
@@ -27,9 +33,13 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
     // DAO instance (constructor injected for testability)
     private final BusinessClientDAO businessClientDAO;
     private final ClientAccountDAO clientAccountDAO;
+    private Outbox outbox;
+    private EntityCache<BusinessClientEntity> cache;
+    private ReplicaRouter replicaRouter;
 
     public BusinessClientService() {
         this(new BusinessClientDAO(), new ClientAccountDAO());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
     }
 
     public BusinessClientService(BusinessClientDAO businessClientDAO, ClientAccountDAO clientAccountDAO) {
@@ -37,16 +47,44 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
         this.clientAccountDAO = clientAccountDAO;
     }
 
+    /**
+     * Records a CLIENT_UPDATED outbox event for every update, in the same transaction. The update is
+     * made on the outbox's connection rather than this service's DAO's. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Serves getById from the cache; updates and deletes invalidate the client's entry, on other nodes
+     * too when the cache is registered with a CacheCoherence. Pass null to disable.
+     */
+    public void setCache(EntityCache<BusinessClientEntity> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records every committed write with the router, so the reads this session's DAOs send to replicas
+     * wait for them. Use the router the DAOs read through. Pass null to disable.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
     // Create BusinessClient
     @Override
     public Integer create(BusinessClient model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.create");
+        try (sample) {
             Optional<BusinessClientEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert BusinessClient model to entity");
                 return null;
             }
             Integer newID = businessClientDAO.create(entityOpt.get());
+            if (newID != null) {
+                afterWrite(newID);
+            }
             return newID;
         } catch (SQLException e) {
             LOGGER.warn("Database error creating BusinessClient: {}", e.getMessage());
@@ -57,8 +95,11 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
     // Get BusinessClient by ID
     @Override
     public Optional<BusinessClient> getById(Integer id) {
-        try {
-            Optional<BusinessClientEntity> entityOpt = businessClientDAO.getByID(id);
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.getById");
+        try (sample) {
+            Optional<BusinessClientEntity> entityOpt = cache != null
+                    ? cache.get(id, () -> businessClientDAO.getByID(id))
+                    : businessClientDAO.getByID(id);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("BusinessClient not found with ID {}", id);
                 return Optional.empty();
@@ -72,7 +113,8 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
 
     // Get BusinessClient by EIN
     public Optional<BusinessClient> getByEIN(String ein) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.getByEIN");
+        try (sample) {
             Optional<BusinessClientEntity> entityOpt = businessClientDAO.getByEIN(ein);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("BusinessClient not found with EIN {}", ein);
@@ -88,7 +130,8 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
     // Get all BusinessClients
     @Override
     public List<BusinessClient> getAll() {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.getAll");
+        try (sample) {
             List<BusinessClientEntity> entities = businessClientDAO.getAll();
             return entities.stream()
                     .map(this::convertEntityToModel)
@@ -104,13 +147,22 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
     // Update BusinessClient
     @Override
     public BusinessClient update(Integer id, BusinessClient model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.update");
+        try (sample) {
             Optional<BusinessClientEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert BusinessClient model to entity");
                 return null;
             }
-            BusinessClientEntity updated = businessClientDAO.updateByID(entityOpt.get());
+            BusinessClientEntity entity = entityOpt.get();
+            if (outbox != null) {
+                outbox.write(OutboxEvent.clientUpdated(entity.getCustomerID(), "BUSINESS"),
+                        connection -> new BusinessClientDAO(connection).updateByID(entity) != null);
+                afterWrite(entity.getCustomerID());
+                return convertEntityToModel(entity).orElse(null);
+            }
+            BusinessClientEntity updated = businessClientDAO.updateByID(entity);
+            afterWrite(entity.getCustomerID());
             return convertEntityToModel(updated).orElse(null);
         } catch (SQLException e) {
             LOGGER.warn("Database error updating BusinessClient with ID {}: {}", id, e.getMessage());
@@ -129,16 +181,17 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
      * @throws AccountDeletionException if any sole-owned account fails validation
      */
     public boolean delete(Integer id) throws AccountDeletionException {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.delete");
+        try (sample) {
             // Get all accounts owned by this client
             java.util.Map<Integer, String> clientAccounts = getClientAccounts(id);
-            
+        
             // First pass: Validate all sole-owned accounts before attempting deletion
             StringBuilder validationErrors = new StringBuilder();
             for (Integer accountId : clientAccounts.keySet()) {
                 try {
                     boolean isJoint = clientAccountDAO.isJointAccount(accountId);
-                    
+                
                     if (!isJoint) {
                         // This client is the sole owner - validate it can be deleted
                         String validationError = validateAccountForDeletion(accountId);
@@ -151,7 +204,7 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
                     validationErrors.append("Error validating account ").append(accountId).append(": ").append(e.getMessage()).append("\n");
                 }
             }
-            
+        
             // If any validation errors, throw exception before attempting deletion
             if (validationErrors.length() > 0) {
                 throw new AccountDeletionException(
@@ -159,12 +212,12 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
                     validationErrors.toString()
                 );
             }
-            
+        
             // Second pass: Delete all sole-owned accounts that passed validation
             for (Integer accountId : clientAccounts.keySet()) {
                 try {
                     boolean isJoint = clientAccountDAO.isJointAccount(accountId);
-                    
+                
                     if (!isJoint) {
                         // This client is the sole owner - delete the account
                         deleteAccountByIdAndType(accountId);
@@ -175,15 +228,27 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
                     // Continue deleting other accounts even if one fails
                 }
             }
-            
+        
             // Now delete the client (CASCADE will remove client_accounts entries)
-            return businessClientDAO.deleteByID(id);
+            boolean deleted = businessClientDAO.deleteByID(id);
+            afterWrite(id);
+            return deleted;
         } catch (SQLException e) {
             LOGGER.warn("Database error deleting BusinessClient with ID {}: {}", id, e.getMessage());
             throw new AccountDeletionException("Database error during client deletion: " + e.getMessage());
         }
     }
     
+    // Once a write has committed: drops the cached copy and makes this session's reads include the write
+    private void afterWrite(Integer id) {
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
     /**
      * Validates if an account can be deleted based on its balance.
      * For checking/savings: balance must be 0
@@ -277,7 +342,8 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
      * @return Map of account IDs to ownership types (PRIMARY/JOINT)
      */
     public java.util.Map<Integer, String> getClientAccounts(int clientId) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.BusinessClientService.getClientAccounts");
+        try (sample) {
             return clientAccountDAO.getAccountsByClient(clientId);
         } catch (SQLException e) {
             LOGGER.warn("Database error retrieving accounts for client {}: {}", clientId, e.getMessage());
@@ -314,7 +380,7 @@ public class BusinessClientService implements ServiceInterface<BusinessClientEnt
         try {
             String formattedPhone = formatPhoneNumber(model.getPhoneNumber());
             String formattedEIN = formatEIN(model.getEin());
-            
+        
             BusinessClientEntity entity = new BusinessClientEntity(
                 model.getCustomerID(),
                 formattedPhone,
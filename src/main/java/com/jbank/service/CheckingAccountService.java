@@ -1,16 +1,30 @@
 package com.jbank.service;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.commit.BalanceWrite;
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.journal.JournalOpType;
+import com.jbank.journal.WriteAheadJournal;
+import com.jbank.cache.EntityCache;
+import com.jbank.metrics.Metrics;
 import com.jbank.model.CheckingAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.outbox.OutboxEventType;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.DAO.CheckingAccountDAO;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.util.ConnectionHandler;
 import com.jbank.validator.CheckingAccountValidator;
 
 /**
@@ -24,9 +38,15 @@ public class CheckingAccountService {
 
     private final CheckingAccountDAO checkingAccountDAO;
     private final ClientAccountDAO clientAccountDAO;
+    private GroupCommitExecutor groupCommitExecutor;
+    private WriteAheadJournal journal;
+    private Outbox outbox;
+    private EntityCache<CheckingAccountEntity> cache;
+    private ReplicaRouter replicaRouter;
 
     public CheckingAccountService() {
         this(new CheckingAccountDAO(), new ClientAccountDAO());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
     }
 
     public CheckingAccountService(CheckingAccountDAO checkingAccountDAO, ClientAccountDAO clientAccountDAO) {
@@ -34,21 +54,60 @@ public class CheckingAccountService {
         this.clientAccountDAO = clientAccountDAO;
     }
 
+    /**
+     * Routes balance writes of money operations through a shared group-commit executor instead of one
+     * autocommit transaction each. Pass null to go back to direct writes.
+     */
+    public void setGroupCommitExecutor(GroupCommitExecutor groupCommitExecutor) {
+        this.groupCommitExecutor = groupCommitExecutor;
+    }
+
+    // Records every money movement in a local write-ahead journal before it is written. Pass null to disable
+    public void setJournal(WriteAheadJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records an outbox event for every deposit and withdrawal in the same transaction as its balance
+     * write, made on the outbox's connection rather than this service's DAO's. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Serves getById from the cache; balance changes, updates and deletes invalidate the account's entry,
+     * on other nodes too when the cache is registered with a CacheCoherence. getByIdForWrite never uses
+     * it. Pass null to disable.
+     */
+    public void setCache(EntityCache<CheckingAccountEntity> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records every committed write with the router, so the reads this session's DAOs send to replicas
+     * wait for them. Use the router the DAOs read through. Pass null to disable.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
     // Create a new checking account and assign it to a client as PRIMARY owner
     public Integer create(CheckingAccount model, int clientId) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.create");
+        try (sample) {
             // Validate the account model
             if (!CheckingAccountValidator.validate(model)) {
                 LOGGER.warn("Invalid CheckingAccount data: account validation failed");
                 return null;
             }
-            
+        
             Optional<CheckingAccountEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert CheckingAccount model to entity");
                 return null;
             }
-            
+        
             Integer accountId = checkingAccountDAO.create(entityOpt.get());
             if (accountId != null) {
                 // Assign account to client as PRIMARY owner
@@ -59,6 +118,7 @@ public class CheckingAccountService {
                     LOGGER.error("Failed to assign checking account {} to client {}, rolling back account creation", accountId, clientId);
                     return null;
                 }
+                afterWrite(accountId);
             }
             return accountId;
         } catch (SQLException e) {
@@ -69,8 +129,30 @@ public class CheckingAccountService {
 
     // Get checking account by ID
     public Optional<CheckingAccount> getById(Integer id) {
-        try {
-            Optional<CheckingAccountEntity> entityOpt = checkingAccountDAO.getByID(id);
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.getById");
+        try (sample) {
+            Optional<CheckingAccountEntity> entityOpt = cache != null
+                    ? cache.get(id, () -> checkingAccountDAO.getByID(id))
+                    : checkingAccountDAO.getByID(id);
+            if (entityOpt.isEmpty()) {
+                LOGGER.debug("CheckingAccount not found with ID {}", id);
+                return Optional.empty();
+            }
+            return convertEntityToModel(entityOpt.get());
+        } catch (SQLException e) {
+            LOGGER.warn("Database error retrieving CheckingAccount by ID {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get an account by ID to change it: read from the primary, never a replica or the cache, so the
+     * balance a movement or update starts from is the latest committed one.
+     */
+    public Optional<CheckingAccount> getByIdForWrite(Integer id) {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.getByIdForWrite");
+        try (sample) {
+            Optional<CheckingAccountEntity> entityOpt = checkingAccountDAO.getByIDForWrite(id);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("CheckingAccount not found with ID {}", id);
                 return Optional.empty();
@@ -84,7 +166,8 @@ public class CheckingAccountService {
 
     // Get all checking accounts
     public List<CheckingAccount> getAll() {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.getAll");
+        try (sample) {
             List<CheckingAccountEntity> entities = checkingAccountDAO.getAll();
             return entities.stream()
                     .map(this::convertEntityToModel)
@@ -99,20 +182,22 @@ public class CheckingAccountService {
 
     // Update checking account
     public CheckingAccount update(Integer id, CheckingAccount model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.update");
+        try (sample) {
             // Validate the account model
             if (!CheckingAccountValidator.validate(model)) {
                 LOGGER.warn("Invalid CheckingAccount data: account validation failed");
                 return null;
             }
-            
+        
             Optional<CheckingAccountEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert CheckingAccount model to entity");
                 return null;
             }
-            
+        
             CheckingAccountEntity updated = checkingAccountDAO.updateByID(entityOpt.get());
+            afterWrite(entityOpt.get().getAccountID());
             return convertEntityToModel(updated).orElse(null);
         } catch (SQLException e) {
             LOGGER.warn("Database error updating CheckingAccount with ID {}: {}", id, e.getMessage());
@@ -122,10 +207,13 @@ public class CheckingAccountService {
 
     // Delete checking account
     public boolean delete(Integer id) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.delete");
+        try (sample) {
             // Remove all client-account relationships first
             clientAccountDAO.removeAllClientsFromAccount(id);
-            return checkingAccountDAO.deleteByID(id);
+            boolean deleted = checkingAccountDAO.deleteByID(id);
+            afterWrite(id);
+            return deleted;
         } catch (SQLException e) {
             LOGGER.warn("Database error deleting CheckingAccount with ID {}: {}", id, e.getMessage());
             return false;
@@ -134,51 +222,173 @@ public class CheckingAccountService {
 
     // Deposit funds into checking account, updates balance in both model and database
     public boolean deposit(CheckingAccount account, double depositAmount) {
+        return tryDeposit(account, depositAmount).isSuccess();
+    }
+
+    // Same as deposit, reporting why the deposit was rejected or failed instead of only false
+    public TransactionResult tryDeposit(CheckingAccount account, double depositAmount) {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.deposit");
         try {
-            account.deposit(depositAmount);
-            
-            // Update in database
-            CheckingAccountEntity entity = new CheckingAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getOverdraftFee(),
-                account.getOverdraftLimit(),
-                account.getAccountName()
-            );
-            checkingAccountDAO.updateByID(entity);
-            return true;
+            sample.movement(account.getAccountID(), depositAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            double previousBalance = account.getBalance();
+            TransactionResult result = account.tryDeposit(depositAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Deposit rejected: {}", result.getMessage());
+                return failed(sample, result);
+            }
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.DEPOSIT, depositAmount);
+            OutboxEvent event = movementEvent(OutboxEventType.DEPOSIT, account, depositAmount);
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), previousBalance,
+                        account.getBalance(), null, event, movementKey));
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
+            boolean written = updateBalance(account.getAccountID(), previousBalance, account.getBalance(), event,
+                    movementKey);
+            return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid deposit: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during deposit: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during deposit: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
         }
     }
 
     // Withdraw funds from checking account, applies overdraft fee if balance goes negative
     public boolean withdraw(CheckingAccount account, double withdrawAmount) {
+        return tryWithdraw(account, withdrawAmount).isSuccess();
+    }
+
+    // Same as withdraw, reporting why the withdrawal was rejected or failed instead of only false
+    public TransactionResult tryWithdraw(CheckingAccount account, double withdrawAmount) {
+        Metrics.Sample sample = Metrics.time("service.CheckingAccountService.withdraw");
         try {
-            account.withdraw(withdrawAmount);
-            
-            // Update in database - pass overdraft limit from model to entity
-            CheckingAccountEntity entity = new CheckingAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getOverdraftFee(),
-                account.getOverdraftLimit(),
-                account.getAccountName()
-            );
-            checkingAccountDAO.updateByID(entity);
-            return true;
+            sample.movement(account.getAccountID(), withdrawAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            double previousBalance = account.getBalance();
+            TransactionResult result = account.tryWithdraw(withdrawAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Withdrawal rejected: {}", result.getMessage());
+                return failed(sample, result);
+            }
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.WITHDRAWAL,
+                    previousBalance - account.getBalance());
+            OutboxEvent event = movementEvent(OutboxEventType.WITHDRAWAL, account, previousBalance - account.getBalance());
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), previousBalance,
+                        account.getBalance(), null, event, movementKey));
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
+            boolean written = updateBalance(account.getAccountID(), previousBalance, account.getBalance(), event,
+                    movementKey);
+            return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid withdrawal: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during withdrawal: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during withdrawal: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
+        }
+    }
+
+    // Records a failed outcome on the sample and returns it
+    private static TransactionResult failed(Metrics.Sample sample, TransactionResult result) {
+        sample.fail(result.name());
+        return result;
+    }
+
+    // Writes the balance through group commit; rejected if the stored balance no longer matches the model's
+    private boolean writeBalance(BalanceWrite write) throws SQLException {
+        boolean applied;
+        try {
+            applied = groupCommitExecutor.apply(write);
+        } finally {
+            afterWrite(write.getAccountID());
+        }
+        journalOutcome(write.getAccountID(), write.getMovementKey(), applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", write.getAccountID());
+        return false;
+    }
+
+    // The outbox event for a movement, or null when no outbox is set
+    private OutboxEvent movementEvent(OutboxEventType type, CheckingAccount account, double amount) {
+        return outbox == null ? null : OutboxEvent.movement(type, account.getAccountID(), amount, account.getBalance());
+    }
+
+    // Writes the new balance, together with its outbox event when there is one; rejected like writeBalance
+    private boolean updateBalance(int accountId, double previousBalance, double newBalance, OutboxEvent event,
+            UUID movementKey) throws SQLException {
+        boolean applied;
+        try {
+            applied = event == null
+                    ? checkingAccountDAO.updateBalance(accountId, previousBalance, newBalance, movementKey)
+                    : outbox.write(event, connection -> new CheckingAccountDAO(connection)
+                            .updateBalance(accountId, previousBalance, newBalance, movementKey));
+        } finally {
+            afterWrite(accountId);
+        }
+        journalOutcome(accountId, movementKey, applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", accountId);
+        return false;
+    }
+
+    // Once a write has committed: drops the cached copy and makes this session's reads include the write
+    private void afterWrite(int accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    // Journals the movement (if enabled) ahead of the database write; returns its idempotency key, or null
+    private UUID journalMovement(int accountId, JournalOpType opType, double amount) throws IOException {
+        if (journal == null) {
+            return null;
+        }
+        UUID movementKey = UUID.randomUUID();
+        journal.append(accountId, opType, Math.round(amount * 100.0), movementKey);
+        return movementKey;
+    }
+
+    /**
+     * Appends COMMIT or ABORT for a journaled movement once the database has answered. A write that threw
+     * gets neither, since its commit may or may not have happened: movement_keys settles it on recovery.
+     * The movement's outcome stands either way, so a failed marker is only logged.
+     */
+    private void journalOutcome(int accountId, UUID movementKey, boolean written) {
+        if (movementKey == null) {
+            return;
+        }
+        try {
+            journal.append(accountId, written ? JournalOpType.COMMIT : JournalOpType.ABORT, 0, movementKey);
+        } catch (IOException e) {
+            LOGGER.warn("Journal marker for movement {} failed: {}", movementKey, e.getMessage());
         }
     }
 
@@ -1,16 +1,34 @@
 package com.jbank.service;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.commit.BalanceWrite;
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.journal.JournalOpType;
+import com.jbank.journal.WriteAheadJournal;
+import com.jbank.ledger.LedgerEngine;
+import com.jbank.cache.EntityCache;
+import com.jbank.metrics.Metrics;
 import com.jbank.model.CreditLine;
+import com.jbank.model.TransactionResult;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.outbox.OutboxEventType;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.DAO.CreditLineDAO;
 import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.util.ConnectionHandler;
 import com.jbank.validator.CreditLineValidator;
 
 /**
@@ -25,9 +43,16 @@ public class CreditLineService {
 
     private final CreditLineDAO creditLineDAO;
     private final ClientAccountDAO clientAccountDAO;
+    private GroupCommitExecutor groupCommitExecutor;
+    private LedgerEngine ledgerEngine;
+    private WriteAheadJournal journal;
+    private Outbox outbox;
+    private EntityCache<CreditLineEntity> cache;
+    private ReplicaRouter replicaRouter;
 
     public CreditLineService() {
         this(new CreditLineDAO(), new ClientAccountDAO());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
     }
 
     public CreditLineService(CreditLineDAO creditLineDAO, ClientAccountDAO clientAccountDAO) {
@@ -35,21 +60,71 @@ public class CreditLineService {
         this.clientAccountDAO = clientAccountDAO;
     }
 
+    /**
+     * Routes balance writes of money operations through a shared group-commit executor instead of one
+     * autocommit transaction each. Pass null to go back to direct writes.
+     */
+    public void setGroupCommitExecutor(GroupCommitExecutor groupCommitExecutor) {
+        this.groupCommitExecutor = groupCommitExecutor;
+    }
+
+    // Records every money movement in a local write-ahead journal before it is written. Pass null to disable
+    public void setJournal(WriteAheadJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records an outbox event for every charge and payment in the same transaction as its balance write,
+     * made on the outbox's connection rather than this service's DAO's. Movements applied by the ledger
+     * engine are saved in its checkpoints rather than one by one, and get no event. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Serves getById from the cache; balance changes, updates and deletes invalidate the account's entry,
+     * on other nodes too when the cache is registered with a CacheCoherence. getByIdForWrite never uses
+     * it. Pass null to disable.
+     * Balances kept by the ledger engine reach the database, and so the cache, only at its checkpoints.
+     */
+    public void setCache(EntityCache<CreditLineEntity> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records every committed write with the router, so the reads this session's DAOs send to replicas
+     * wait for them. Use the router the DAOs read through. Pass null to disable.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Routes charges and payments through the in-memory ledger engine, which owns the credit line
+     * balances while it runs. Takes precedence over group commit. Updates and limit increases then write
+     * only the terms, and pass the new limit to the engine. Pass null to go back to direct writes.
+     */
+    public void setLedgerEngine(LedgerEngine ledgerEngine) {
+        this.ledgerEngine = ledgerEngine;
+    }
+
     // Create a new credit line and assign it to a client as PRIMARY owner
     public Integer create(CreditLine model, int clientId) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.create");
+        try (sample) {
             // Validate the account model
             if (!CreditLineValidator.validate(model)) {
                 LOGGER.warn("Invalid CreditLine data: account validation failed");
                 return null;
             }
-            
+        
             Optional<CreditLineEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert CreditLine model to entity");
                 return null;
             }
-            
+        
             Integer accountId = creditLineDAO.create(entityOpt.get());
             if (accountId != null) {
                 // Assign account to client as PRIMARY owner
@@ -60,6 +135,7 @@ public class CreditLineService {
                     LOGGER.error("Failed to assign credit line {} to client {}, rolling back account creation", accountId, clientId);
                     return null;
                 }
+                afterWrite(accountId);
             }
             return accountId;
         } catch (SQLException e) {
@@ -70,8 +146,30 @@ public class CreditLineService {
 
     // Get credit line by ID
     public Optional<CreditLine> getById(Integer id) {
-        try {
-            Optional<CreditLineEntity> entityOpt = creditLineDAO.getByID(id);
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.getById");
+        try (sample) {
+            Optional<CreditLineEntity> entityOpt = cache != null
+                    ? cache.get(id, () -> creditLineDAO.getByID(id))
+                    : creditLineDAO.getByID(id);
+            if (entityOpt.isEmpty()) {
+                LOGGER.debug("CreditLine not found with ID {}", id);
+                return Optional.empty();
+            }
+            return convertEntityToModel(entityOpt.get());
+        } catch (SQLException e) {
+            LOGGER.warn("Database error retrieving CreditLine by ID {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get an account by ID to change it: read from the primary, never a replica or the cache, so the
+     * balance a movement or update starts from is the latest committed one.
+     */
+    public Optional<CreditLine> getByIdForWrite(Integer id) {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.getByIdForWrite");
+        try (sample) {
+            Optional<CreditLineEntity> entityOpt = creditLineDAO.getByIDForWrite(id);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("CreditLine not found with ID {}", id);
                 return Optional.empty();
@@ -85,7 +183,8 @@ public class CreditLineService {
 
     // Get all credit lines
     public List<CreditLine> getAll() {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.getAll");
+        try (sample) {
             List<CreditLineEntity> entities = creditLineDAO.getAll();
             return entities.stream()
                     .map(this::convertEntityToModel)
@@ -98,22 +197,31 @@ public class CreditLineService {
         }
     }
 
-    // Update credit line
+    // Update credit line; with a ledger engine the balance is the engine's and the model's is ignored
     public CreditLine update(Integer id, CreditLine model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.update");
+        try (sample) {
             // Validate the account model
             if (!CreditLineValidator.validate(model)) {
                 LOGGER.warn("Invalid CreditLine data: account validation failed");
                 return null;
             }
-            
+        
             Optional<CreditLineEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert CreditLine model to entity");
                 return null;
             }
-            
+        
+            if (ledgerEngine != null) {
+                if (!updateTerms(entityOpt.get())) {
+                    LOGGER.warn("CreditLine with ID {} not found, not updated", id);
+                    return null;
+                }
+                return convertEntityToModel(withLedgerBalance(entityOpt.get())).orElse(null);
+            }
             CreditLineEntity updated = creditLineDAO.updateByID(entityOpt.get());
+            afterWrite(entityOpt.get().getAccountID());
             return convertEntityToModel(updated).orElse(null);
         } catch (SQLException e) {
             LOGGER.warn("Database error updating CreditLine with ID {}: {}", id, e.getMessage());
@@ -123,10 +231,13 @@ public class CreditLineService {
 
     // Delete credit line
     public boolean delete(Integer id) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.delete");
+        try (sample) {
             // Remove all client-account relationships first
             clientAccountDAO.removeAllClientsFromAccount(id);
-            return creditLineDAO.deleteByID(id);
+            boolean deleted = creditLineDAO.deleteByID(id);
+            afterWrite(id);
+            return deleted;
         } catch (SQLException e) {
             LOGGER.warn("Database error deleting CreditLine with ID {}: {}", id, e.getMessage());
             return false;
@@ -135,77 +246,128 @@ public class CreditLineService {
 
     // Charge the credit line (increase balance owed), updates balance and verifies it doesn't exceed credit limit
     public boolean chargeCredit(CreditLine account, double chargeAmount) {
+        return tryChargeCredit(account, chargeAmount).isSuccess();
+    }
+
+    // Same as chargeCredit, reporting why the charge was rejected or failed instead of only false
+    public TransactionResult tryChargeCredit(CreditLine account, double chargeAmount) {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.chargeCredit");
         try {
-            if (chargeAmount <= 0) {
-                LOGGER.warn("Invalid charge amount: {}", chargeAmount);
-                return false;
+            sample.movement(account.getAccountID(), chargeAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            // Verify the amount and that the charge doesn't exceed the credit limit
+            TransactionResult result = account.checkCharge(chargeAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Charge of {} rejected for account {}: {}", chargeAmount, account.getAccountID(),
+                        result.getMessage());
+                return failed(sample, result);
             }
-            
+        
             double newBalance = account.getBalance() + chargeAmount;
-            
-            // Verify charge doesn't exceed credit limit
-            if (newBalance > account.getCreditLimit()) {
-                LOGGER.warn("Charge would exceed credit limit of {} for account {}", 
-                           account.getCreditLimit(), account.getAccountID());
-                return false;
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.CHARGE, chargeAmount);
+            if (ledgerEngine != null) {
+                boolean applied = awaitLedger(ledgerEngine.charge(account.getAccountID(), toCents(chargeAmount)));
+                journalOutcome(account.getAccountID(), movementKey, applied);
+                return applied ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
             }
-            
-            // Update balance directly through protected setter (need another approach)
-            // For now, we'll use a workaround - create a new entity and update via DAO
-            CreditLineEntity entity = new CreditLineEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                newBalance,
-                account.getCreditLimit(),
-                account.getInterestRate(),
-                account.getMinPaymentPercentage()
-            );
-            creditLineDAO.updateByID(entity);
-            return true;
+            OutboxEvent event = movementEvent(OutboxEventType.CREDIT_CHARGE, account.getAccountID(), chargeAmount, newBalance);
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), account.getBalance(),
+                        newBalance, null, event, movementKey));
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
+            boolean written = updateBalance(account.getAccountID(), account.getBalance(), newBalance, event,
+                    movementKey);
+            return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid charge: {}", e.getMessage());
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during charge: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during charge: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
         }
     }
 
     // Make a payment on the credit line, reduces balance
     public boolean makePayment(CreditLine account, double paymentAmount) {
+        return tryMakePayment(account, paymentAmount).isSuccess();
+    }
+
+    // Same as makePayment, reporting why the payment was rejected or failed instead of only false
+    public TransactionResult tryMakePayment(CreditLine account, double paymentAmount) {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.makePayment");
         try {
-            account.makePayment(paymentAmount);
-            
+            sample.movement(account.getAccountID(), paymentAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            double previousBalance = account.getBalance();
+            TransactionResult result = account.tryMakePayment(paymentAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Payment rejected: {}", result.getMessage());
+                return failed(sample, result);
+            }
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.PAYMENT, paymentAmount);
+            if (ledgerEngine != null) {
+                boolean applied = awaitLedger(ledgerEngine.payment(account.getAccountID(), toCents(paymentAmount)));
+                journalOutcome(account.getAccountID(), movementKey, applied);
+                return applied ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+            OutboxEvent event = movementEvent(OutboxEventType.CREDIT_PAYMENT, account.getAccountID(), paymentAmount,
+                    account.getBalance());
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), previousBalance,
+                        account.getBalance(), null, event, movementKey));
+                if (written) {
+                    LOGGER.info("Payment of {} applied to account {}", paymentAmount, account.getAccountID());
+                }
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
             // Update in database with new balance (no automatic interest on every payment)
-            CreditLineEntity entity = new CreditLineEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getCreditLimit(),
-                account.getInterestRate(),
-                account.getMinPaymentPercentage()
-            );
-            creditLineDAO.updateByID(entity);
-            
+            if (!updateBalance(account.getAccountID(), previousBalance, account.getBalance(), event, movementKey)) {
+                return failed(sample, TransactionResult.REJECTED);
+            }
             LOGGER.info("Payment of {} applied to account {}", paymentAmount, account.getAccountID());
-            return true;
+            return TransactionResult.OK;
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid payment: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during payment: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during payment: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
         }
     }
 
     // Calculate minimum payment required (percentage of balance)
     public double calculateMinimumPayment(CreditLine account) {
-        return account.getBalance() * (account.getMinPaymentPercentage() / 100.0);
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.calculateMinimumPayment");
+        try (sample) {
+            return account.getBalance() * (account.getMinPaymentPercentage() / 100.0);
+        }
     }
 
-    // Increase credit limit based on payment history (assumes 12+ on-time payments, increases by 10%)
+    // Increase credit limit based on payment history (assumes 12+ on-time payments, increases by 10%).
+    // Only the terms are written, so the stored balance is kept even if the account's is outdated.
     public boolean increaseCreditLimit(CreditLine account) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.CreditLineService.increaseCreditLimit");
+        try (sample) {
             double newLimit = account.getCreditLimit() * 1.10; // 10% increase
             account.setCreditLimit(newLimit);
-            
+        
             // Update in database
             CreditLineEntity entity = new CreditLineEntity(
                 account.getAccountID(),
@@ -215,8 +377,11 @@ public class CreditLineService {
                 account.getInterestRate(),
                 account.getMinPaymentPercentage()
             );
-            creditLineDAO.updateByID(entity);
-            
+            if (!updateTerms(entity)) {
+                LOGGER.warn("Credit line {} not found, credit limit not increased", account.getAccountID());
+                return false;
+            }
+        
             LOGGER.info("Increased credit limit to {} for account {}", newLimit, account.getAccountID());
             return true;
         } catch (SQLException e) {
@@ -225,6 +390,136 @@ public class CreditLineService {
         }
     }
 
+    // Writes the terms but not the balance, and passes the limit on to the ledger engine if there is one
+    private boolean updateTerms(CreditLineEntity entity) throws SQLException {
+        boolean updated;
+        try {
+            updated = creditLineDAO.updateTerms(entity);
+        } finally {
+            afterWrite(entity.getAccountID());
+        }
+        if (updated && ledgerEngine != null) {
+            // A credit line the engine did not load is rejected; its charges go nowhere else anyway
+            awaitLedger(ledgerEngine.setCreditLimit(entity.getAccountID(), toCents(entity.getCreditLimit())));
+        }
+        return updated;
+    }
+
+    // The entity with the balance the ledger engine holds for it, when the engine has one
+    private CreditLineEntity withLedgerBalance(CreditLineEntity entity) {
+        OptionalLong owedCents = ledgerEngine.getBalanceCents(entity.getAccountID());
+        if (owedCents.isEmpty()) {
+            return entity;
+        }
+        return new CreditLineEntity(entity.getAccountID(), entity.getCustomerID(), owedCents.getAsLong() / 100.0,
+                entity.getCreditLimit(), entity.getInterestRate(), entity.getMinPaymentPercentage(),
+                entity.getAccountName());
+    }
+
+    // Records a failed outcome on the sample and returns it
+    private static TransactionResult failed(Metrics.Sample sample, TransactionResult result) {
+        sample.fail(result.name());
+        return result;
+    }
+
+    // Writes the balance through group commit; rejected if the stored balance no longer matches the model's
+    private boolean writeBalance(BalanceWrite write) throws SQLException {
+        boolean applied;
+        try {
+            applied = groupCommitExecutor.apply(write);
+        } finally {
+            afterWrite(write.getAccountID());
+        }
+        journalOutcome(write.getAccountID(), write.getMovementKey(), applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", write.getAccountID());
+        return false;
+    }
+
+    // Waits until the ledger engine has applied and journaled the command
+    private boolean awaitLedger(CompletableFuture<Boolean> result) {
+        try {
+            boolean applied = result.get();
+            if (!applied) {
+                LOGGER.warn("Ledger engine rejected the command");
+            }
+            return applied;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            LOGGER.warn("Ledger engine error: {}", e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    // The outbox event for a movement, or null when no outbox is set
+    private OutboxEvent movementEvent(OutboxEventType type, int accountId, double amount, double balance) {
+        return outbox == null ? null : OutboxEvent.movement(type, accountId, amount, balance);
+    }
+
+    // Writes the new balance, together with its outbox event when there is one; rejected like writeBalance
+    private boolean updateBalance(int accountId, double previousBalance, double newBalance, OutboxEvent event,
+            UUID movementKey) throws SQLException {
+        boolean applied;
+        try {
+            applied = event == null
+                    ? creditLineDAO.updateBalance(accountId, previousBalance, newBalance, movementKey)
+                    : outbox.write(event, connection -> new CreditLineDAO(connection)
+                            .updateBalance(accountId, previousBalance, newBalance, movementKey));
+        } finally {
+            afterWrite(accountId);
+        }
+        journalOutcome(accountId, movementKey, applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", accountId);
+        return false;
+    }
+
+    // Once a write has committed: drops the cached copy and makes this session's reads include the write
+    private void afterWrite(int accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    // Journals the movement (if enabled) ahead of the database write; returns its idempotency key, or null
+    private UUID journalMovement(int accountId, JournalOpType opType, double amount) throws IOException {
+        if (journal == null) {
+            return null;
+        }
+        UUID movementKey = UUID.randomUUID();
+        journal.append(accountId, opType, toCents(amount), movementKey);
+        return movementKey;
+    }
+
+    /**
+     * Appends COMMIT or ABORT for a journaled movement once the database has answered. A write that threw
+     * gets neither, since its commit may or may not have happened: movement_keys settles it on recovery.
+     * The movement's outcome stands either way, so a failed marker is only logged.
+     */
+    private void journalOutcome(int accountId, UUID movementKey, boolean written) {
+        if (movementKey == null) {
+            return;
+        }
+        try {
+            journal.append(accountId, written ? JournalOpType.COMMIT : JournalOpType.ABORT, 0, movementKey);
+        } catch (IOException e) {
+            LOGGER.warn("Journal marker for movement {} failed: {}", movementKey, e.getMessage());
+        }
+    }
+
     // Conversion methods
     public Optional<CreditLine> convertEntityToModel(CreditLineEntity entity) {
         try {
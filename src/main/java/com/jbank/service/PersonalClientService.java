@@ -8,11 +8,17 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.cache.EntityCache;
+import com.jbank.metrics.Metrics;
 import com.jbank.model.PersonalClient;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.DAO.PersonalClientDAO;
 import com.jbank.repository.entities.PersonalClientEntity;
 import com.jbank.util.AccountDeletionException;
+import com.jbank.util.ConnectionHandler;
 /**
  *
  * @author juanf
@@ -25,9 +31,13 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
     // DAO instance (constructor injected for testability)
     private final PersonalClientDAO personalClientDAO;
     private final ClientAccountDAO clientAccountDAO;
+    private Outbox outbox;
+    private EntityCache<PersonalClientEntity> cache;
+    private ReplicaRouter replicaRouter;
 
     public PersonalClientService() {
         this(new PersonalClientDAO(), new ClientAccountDAO());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
     }
 
     public PersonalClientService(PersonalClientDAO personalClientDAO, ClientAccountDAO clientAccountDAO) {
@@ -35,16 +45,44 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
         this.clientAccountDAO = clientAccountDAO;
     }
 
+    /**
+     * Records a CLIENT_UPDATED outbox event for every update, in the same transaction. The update is
+     * made on the outbox's connection rather than this service's DAO's. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Serves getById from the cache; updates and deletes invalidate the client's entry, on other nodes
+     * too when the cache is registered with a CacheCoherence. Pass null to disable.
+     */
+    public void setCache(EntityCache<PersonalClientEntity> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records every committed write with the router, so the reads this session's DAOs send to replicas
+     * wait for them. Use the router the DAOs read through. Pass null to disable.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
     // Create PersonalClient
     @Override
     public Integer create(PersonalClient model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.create");
+        try (sample) {
             Optional<PersonalClientEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert PersonalClient model to entity");
                 return null;
             }
             Integer newID = personalClientDAO.create(entityOpt.get());
+            if (newID != null) {
+                afterWrite(newID);
+            }
             return newID;
         } catch (SQLException e) {
             LOGGER.warn("Database error creating PersonalClient: {}", e.getMessage());
@@ -55,8 +93,11 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
     // Get PersonalClient by ID
     @Override
     public Optional<PersonalClient> getById(Integer id) {
-        try {
-            Optional<PersonalClientEntity> entityOpt = personalClientDAO.getByID(id);
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.getById");
+        try (sample) {
+            Optional<PersonalClientEntity> entityOpt = cache != null
+                    ? cache.get(id, () -> personalClientDAO.getByID(id))
+                    : personalClientDAO.getByID(id);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("PersonalClient not found with ID {}", id);
                 return Optional.empty();
@@ -70,7 +111,8 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
 
     // Get PersonalClient by Tax ID
     public Optional<PersonalClient> getByTaxID(String taxID) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.getByTaxID");
+        try (sample) {
             Optional<PersonalClientEntity> entityOpt = personalClientDAO.getByTaxID(taxID);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("PersonalClient not found with Tax ID {}", taxID);
@@ -86,7 +128,8 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
     // Get all PersonalClients
     @Override
     public List<PersonalClient> getAll() {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.getAll");
+        try (sample) {
             List<PersonalClientEntity> entities = personalClientDAO.getAll();
             return entities.stream()
                     .map(this::convertEntityToModel)
@@ -102,13 +145,22 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
     // Delete PersonalClient by ID
     @Override
     public PersonalClient update(Integer id, PersonalClient model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.update");
+        try (sample) {
             Optional<PersonalClientEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert PersonalClient model to entity");
                 return null;
             }
-            PersonalClientEntity updated = personalClientDAO.updateByID(entityOpt.get());
+            PersonalClientEntity entity = entityOpt.get();
+            if (outbox != null) {
+                outbox.write(OutboxEvent.clientUpdated(entity.getCustomerID(), "PERSONAL"),
+                        connection -> new PersonalClientDAO(connection).updateByID(entity) != null);
+                afterWrite(entity.getCustomerID());
+                return convertEntityToModel(entity).orElse(null);
+            }
+            PersonalClientEntity updated = personalClientDAO.updateByID(entity);
+            afterWrite(entity.getCustomerID());
             return convertEntityToModel(updated).orElse(null);
         } catch (SQLException e) {
             LOGGER.warn("Database error updating PersonalClient with ID {}: {}", id, e.getMessage());
@@ -127,16 +179,17 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
      * @throws AccountDeletionException if any sole-owned account fails validation
      */
     public boolean delete(Integer id) throws AccountDeletionException {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.delete");
+        try (sample) {
             // Get all accounts owned by this client
             java.util.Map<Integer, String> clientAccounts = getClientAccounts(id);
-            
+        
             // First pass: Validate all sole-owned accounts before attempting deletion
             StringBuilder validationErrors = new StringBuilder();
             for (Integer accountId : clientAccounts.keySet()) {
                 try {
                     boolean isJoint = clientAccountDAO.isJointAccount(accountId);
-                    
+                
                     if (!isJoint) {
                         // This client is the sole owner - validate it can be deleted
                         String validationError = validateAccountForDeletion(accountId);
@@ -149,7 +202,7 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
                     validationErrors.append("Error validating account ").append(accountId).append(": ").append(e.getMessage()).append("\n");
                 }
             }
-            
+        
             // If any validation errors, throw exception before attempting deletion
             if (validationErrors.length() > 0) {
                 throw new AccountDeletionException(
@@ -157,12 +210,12 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
                     validationErrors.toString()
                 );
             }
-            
+        
             // Second pass: Delete all sole-owned accounts that passed validation
             for (Integer accountId : clientAccounts.keySet()) {
                 try {
                     boolean isJoint = clientAccountDAO.isJointAccount(accountId);
-                    
+                
                     if (!isJoint) {
                         // This client is the sole owner - delete the account
                         deleteAccountByIdAndType(accountId);
@@ -173,15 +226,27 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
                     // Continue deleting other accounts even if one fails
                 }
             }
-            
+        
             // Now delete the client (CASCADE will remove client_accounts entries)
-            return personalClientDAO.deleteByID(id);
+            boolean deleted = personalClientDAO.deleteByID(id);
+            afterWrite(id);
+            return deleted;
         } catch (SQLException e) {
             LOGGER.warn("Database error deleting PersonalClient with ID {}: {}", id, e.getMessage());
             throw new AccountDeletionException("Database error during client deletion: " + e.getMessage());
         }
     }
     
+    // Once a write has committed: drops the cached copy and makes this session's reads include the write
+    private void afterWrite(Integer id) {
+        if (cache != null) {
+            cache.invalidate(id);
+        }
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
     /**
      * Validates if an account can be deleted based on its balance.
      * For checking/savings: balance must be 0
@@ -275,7 +340,8 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
      * @return Map of account IDs to ownership types
      */
     public java.util.Map<Integer, String> getClientAccounts(int clientId) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.PersonalClientService.getClientAccounts");
+        try (sample) {
             return clientAccountDAO.getAccountsByClient(clientId);
         } catch (SQLException e) {
             LOGGER.warn("Database error retrieving accounts for client {}: {}", clientId, e.getMessage());
@@ -309,7 +375,7 @@ public class PersonalClientService implements ServiceInterface<PersonalClientEnt
         try {
             String formattedPhone = formatPhoneNumber(model.getPhoneNumber());
             String formattedTaxID = formatTaxID(model.getTaxID());
-            
+        
             PersonalClientEntity entity = new PersonalClientEntity(
                 model.getCustomerID(),
                 formattedPhone,
@@ -1,16 +1,30 @@
 package com.jbank.service;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.commit.BalanceWrite;
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.journal.JournalOpType;
+import com.jbank.journal.WriteAheadJournal;
+import com.jbank.cache.EntityCache;
+import com.jbank.metrics.Metrics;
 import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.outbox.Outbox;
+import com.jbank.outbox.OutboxEvent;
+import com.jbank.outbox.OutboxEventType;
+import com.jbank.replica.ReplicaRouter;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.DAO.SavingsAccountDAO;
 import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.util.ConnectionHandler;
 import com.jbank.validator.SavingsAccountValidator;
 
 /**
@@ -25,9 +39,15 @@ public class SavingsAccountService {
 
     private final SavingsAccountDAO savingsAccountDAO;
     private final ClientAccountDAO clientAccountDAO;
+    private GroupCommitExecutor groupCommitExecutor;
+    private WriteAheadJournal journal;
+    private Outbox outbox;
+    private EntityCache<SavingsAccountEntity> cache;
+    private ReplicaRouter replicaRouter;
 
     public SavingsAccountService() {
         this(new SavingsAccountDAO(), new ClientAccountDAO());
+        this.replicaRouter = ConnectionHandler.getReplicaRouter();
     }
 
     public SavingsAccountService(SavingsAccountDAO savingsAccountDAO, ClientAccountDAO clientAccountDAO) {
@@ -35,21 +55,60 @@ public class SavingsAccountService {
         this.clientAccountDAO = clientAccountDAO;
     }
 
+    /**
+     * Routes balance writes of money operations through a shared group-commit executor instead of one
+     * autocommit transaction each. Pass null to go back to direct writes.
+     */
+    public void setGroupCommitExecutor(GroupCommitExecutor groupCommitExecutor) {
+        this.groupCommitExecutor = groupCommitExecutor;
+    }
+
+    // Records every money movement in a local write-ahead journal before it is written. Pass null to disable
+    public void setJournal(WriteAheadJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records an outbox event for every deposit and withdrawal in the same transaction as its balance
+     * write, made on the outbox's connection rather than this service's DAO's. Pass null to disable.
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Serves getById from the cache; balance changes, updates and deletes invalidate the account's entry,
+     * on other nodes too when the cache is registered with a CacheCoherence. getByIdForWrite never uses
+     * it. Pass null to disable.
+     */
+    public void setCache(EntityCache<SavingsAccountEntity> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records every committed write with the router, so the reads this session's DAOs send to replicas
+     * wait for them. Use the router the DAOs read through. Pass null to disable.
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
     // Create a new savings account and assign it to a client as PRIMARY owner
     public Integer create(SavingsAccount model, int clientId) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.create");
+        try (sample) {
             // Validate the account model
             if (!SavingsAccountValidator.validate(model)) {
                 LOGGER.warn("Invalid SavingsAccount data: account validation failed");
                 return null;
             }
-            
+        
             Optional<SavingsAccountEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert SavingsAccount model to entity");
                 return null;
             }
-            
+        
             Integer accountId = savingsAccountDAO.create(entityOpt.get());
             if (accountId != null) {
                 // Assign account to client as PRIMARY owner
@@ -60,6 +119,7 @@ public class SavingsAccountService {
                     LOGGER.error("Failed to assign savings account {} to client {}, rolling back account creation", accountId, clientId);
                     return null;
                 }
+                afterWrite(accountId);
             }
             return accountId;
         } catch (SQLException e) {
@@ -70,8 +130,30 @@ public class SavingsAccountService {
 
     // Get savings account by ID
     public Optional<SavingsAccount> getById(Integer id) {
-        try {
-            Optional<SavingsAccountEntity> entityOpt = savingsAccountDAO.getByID(id);
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.getById");
+        try (sample) {
+            Optional<SavingsAccountEntity> entityOpt = cache != null
+                    ? cache.get(id, () -> savingsAccountDAO.getByID(id))
+                    : savingsAccountDAO.getByID(id);
+            if (entityOpt.isEmpty()) {
+                LOGGER.debug("SavingsAccount not found with ID {}", id);
+                return Optional.empty();
+            }
+            return convertEntityToModel(entityOpt.get());
+        } catch (SQLException e) {
+            LOGGER.warn("Database error retrieving SavingsAccount by ID {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get an account by ID to change it: read from the primary, never a replica or the cache, so the
+     * balance a movement or update starts from is the latest committed one.
+     */
+    public Optional<SavingsAccount> getByIdForWrite(Integer id) {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.getByIdForWrite");
+        try (sample) {
+            Optional<SavingsAccountEntity> entityOpt = savingsAccountDAO.getByIDForWrite(id);
             if (entityOpt.isEmpty()) {
                 LOGGER.debug("SavingsAccount not found with ID {}", id);
                 return Optional.empty();
@@ -85,7 +167,8 @@ public class SavingsAccountService {
 
     // Get all savings accounts
     public List<SavingsAccount> getAll() {
-        try {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.getAll");
+        try (sample) {
             List<SavingsAccountEntity> entities = savingsAccountDAO.getAll();
             return entities.stream()
                     .map(this::convertEntityToModel)
@@ -100,20 +183,22 @@ public class SavingsAccountService {
 
     // Update savings account
     public SavingsAccount update(Integer id, SavingsAccount model) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.update");
+        try (sample) {
             // Validate the account model
             if (!SavingsAccountValidator.validate(model)) {
                 LOGGER.warn("Invalid SavingsAccount data: account validation failed");
                 return null;
             }
-            
+        
             Optional<SavingsAccountEntity> entityOpt = convertModelToEntity(model);
             if (entityOpt.isEmpty()) {
                 LOGGER.error("Failed to convert SavingsAccount model to entity");
                 return null;
             }
-            
+        
             SavingsAccountEntity updated = savingsAccountDAO.updateByID(entityOpt.get());
+            afterWrite(entityOpt.get().getAccountID());
             return convertEntityToModel(updated).orElse(null);
         } catch (SQLException e) {
             LOGGER.warn("Database error updating SavingsAccount with ID {}: {}", id, e.getMessage());
@@ -123,10 +208,13 @@ public class SavingsAccountService {
 
     // Delete savings account
     public boolean delete(Integer id) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.delete");
+        try (sample) {
             // Remove all client-account relationships first
             clientAccountDAO.removeAllClientsFromAccount(id);
-            return savingsAccountDAO.deleteByID(id);
+            boolean deleted = savingsAccountDAO.deleteByID(id);
+            afterWrite(id);
+            return deleted;
         } catch (SQLException e) {
             LOGGER.warn("Database error deleting SavingsAccount with ID {}: {}", id, e.getMessage());
             return false;
@@ -135,99 +223,140 @@ public class SavingsAccountService {
 
     // Deposit funds into savings account, updates balance in both model and database
     public boolean deposit(SavingsAccount account, double depositAmount) {
+        return tryDeposit(account, depositAmount).isSuccess();
+    }
+
+    // Same as deposit, reporting why the deposit was rejected or failed instead of only false
+    public TransactionResult tryDeposit(SavingsAccount account, double depositAmount) {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.deposit");
         try {
-            account.deposit(depositAmount);
-            
-            // Update in database
-            SavingsAccountEntity entity = new SavingsAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getInterestRate(),
-                account.getWithdrawalLimit(),
-                account.getWithdrawalCounter()
-            );
-            savingsAccountDAO.updateByID(entity);
-            return true;
+            sample.movement(account.getAccountID(), depositAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            double previousBalance = account.getBalance();
+            TransactionResult result = account.tryDeposit(depositAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Deposit rejected: {}", result.getMessage());
+                return failed(sample, result);
+            }
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.DEPOSIT, depositAmount);
+            OutboxEvent event = movementEvent(OutboxEventType.DEPOSIT, account, depositAmount);
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), previousBalance,
+                        account.getBalance(), null, event, movementKey));
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
+            boolean written = updateBalance(account.getAccountID(), previousBalance, account.getBalance(), 0, event,
+                    movementKey);
+            return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid deposit: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during deposit: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during deposit: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
         }
     }
 
     // Withdraw funds from savings account, checks withdrawal limit (6 per month) and increments counter
     public boolean withdraw(SavingsAccount account, double withdrawAmount) {
+        return tryWithdraw(account, withdrawAmount).isSuccess();
+    }
+
+    // Same as withdraw, reporting why the withdrawal was rejected or failed instead of only false
+    public TransactionResult tryWithdraw(SavingsAccount account, double withdrawAmount) {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.withdraw");
         try {
-            account.withdraw(withdrawAmount);
-            
-            // Update in database
-            SavingsAccountEntity entity = new SavingsAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getInterestRate(),
-                account.getWithdrawalLimit(),
-                account.getWithdrawalCounter()
-            );
-            savingsAccountDAO.updateByID(entity);
-            return true;
+            sample.movement(account.getAccountID(), withdrawAmount);
+            if (account.getAccountID() <= 0) {
+                return failed(sample, TransactionResult.INVALID_ACCOUNT);
+            }
+            double previousBalance = account.getBalance();
+            TransactionResult result = account.tryWithdraw(withdrawAmount);
+            if (!result.isSuccess()) {
+                LOGGER.debug("Withdrawal rejected: {}", result.getMessage());
+                return failed(sample, result);
+            }
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.WITHDRAWAL, withdrawAmount);
+            OutboxEvent event = movementEvent(OutboxEventType.WITHDRAWAL, account, withdrawAmount);
+            if (groupCommitExecutor != null) {
+                boolean written = writeBalance(new BalanceWrite(account.getAccountID(), previousBalance, account.getBalance(),
+                        1, event, movementKey));
+                return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
+            }
+
+            boolean written = updateBalance(account.getAccountID(), previousBalance, account.getBalance(), 1, event,
+                    movementKey);
+            return written ? TransactionResult.OK : failed(sample, TransactionResult.REJECTED);
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Invalid withdrawal: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.INVALID_REQUEST);
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed during withdrawal: {}", e.getMessage());
+            return failed(sample, TransactionResult.JOURNAL_ERROR);
         } catch (SQLException e) {
             LOGGER.warn("Database error during withdrawal: {}", e.getMessage());
-            return false;
+            return failed(sample, TransactionResult.DB_ERROR);
+        } finally {
+            sample.close();
         }
     }
 
     /**
      * Apply interest to savings account.
-     * Calculates and adds interest based on current balance and interest rate.
+     * Calculates and adds interest based on current balance and interest rate. Returns false without
+     * writing if the stored balance changed since the account was read.
      */
     public boolean applyInterest(SavingsAccount account) {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.applyInterest");
         try {
+            double previousBalance = account.getBalance();
             account.applyInterest();
-            
+            sample.movement(account.getAccountID(), account.getBalance() - previousBalance);
+            UUID movementKey = journalMovement(account.getAccountID(), JournalOpType.INTEREST,
+                    account.getBalance() - previousBalance);
+
             // Update in database
-            SavingsAccountEntity entity = new SavingsAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getInterestRate(),
-                account.getWithdrawalLimit(),
-                account.getWithdrawalCounter()
-            );
-            savingsAccountDAO.updateByID(entity);
-            
+            if (!updateBalance(account.getAccountID(), previousBalance, account.getBalance(), 0, null, movementKey)) {
+                return sample.fail("REJECTED");
+            }
             LOGGER.info("Applied interest to account {}", account.getAccountID());
             return true;
+        } catch (IOException e) {
+            LOGGER.warn("Journal write failed applying interest: {}", e.getMessage());
+            return sample.fail("JOURNAL_ERROR");
         } catch (SQLException e) {
             LOGGER.warn("Database error applying interest: {}", e.getMessage());
-            return false;
+            return sample.fail("DB_ERROR");
+        } finally {
+            sample.close();
         }
     }
 
     /**
      * Reset withdrawal counter (typically done monthly).
+     * Only the counter is written, so the stored balance is kept even if the account's is outdated.
      */
     public boolean resetWithdrawalCounter(SavingsAccount account) {
-        try {
+        Metrics.Sample sample = Metrics.time("service.SavingsAccountService.resetWithdrawalCounter");
+        try (sample) {
             account.resetWithdrawalCounter();
-            
+        
             // Update in database
-            SavingsAccountEntity entity = new SavingsAccountEntity(
-                account.getAccountID(),
-                account.getCustomerID(),
-                account.getBalance(),
-                account.getInterestRate(),
-                account.getWithdrawalLimit(),
-                0
-            );
-            savingsAccountDAO.updateByID(entity);
-            
+            boolean reset = savingsAccountDAO.resetWithdrawalCounter(account.getAccountID());
+            afterWrite(account.getAccountID());
+            if (!reset) {
+                LOGGER.warn("Savings account {} not found, withdrawal counter not reset", account.getAccountID());
+                return false;
+            }
+        
             LOGGER.info("Reset withdrawal counter for account {}", account.getAccountID());
             return true;
         } catch (SQLException e) {
@@ -236,6 +365,89 @@ public class SavingsAccountService {
         }
     }
 
+    // Records a failed outcome on the sample and returns it
+    private static TransactionResult failed(Metrics.Sample sample, TransactionResult result) {
+        sample.fail(result.name());
+        return result;
+    }
+
+    // Writes the balance through group commit; rejected if the stored balance no longer matches the model's
+    private boolean writeBalance(BalanceWrite write) throws SQLException {
+        boolean applied;
+        try {
+            applied = groupCommitExecutor.apply(write);
+        } finally {
+            afterWrite(write.getAccountID());
+        }
+        journalOutcome(write.getAccountID(), write.getMovementKey(), applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", write.getAccountID());
+        return false;
+    }
+
+    // The outbox event for a movement, or null when no outbox is set
+    private OutboxEvent movementEvent(OutboxEventType type, SavingsAccount account, double amount) {
+        return outbox == null ? null : OutboxEvent.movement(type, account.getAccountID(), amount, account.getBalance());
+    }
+
+    // Writes the new balance and withdrawal count, together with its outbox event when there is one; rejected like writeBalance
+    private boolean updateBalance(int accountId, double previousBalance, double newBalance, int withdrawals,
+            OutboxEvent event, UUID movementKey) throws SQLException {
+        boolean applied;
+        try {
+            applied = event == null
+                    ? savingsAccountDAO.updateBalance(accountId, previousBalance, newBalance, withdrawals, movementKey)
+                    : outbox.write(event, connection -> new SavingsAccountDAO(connection)
+                            .updateBalance(accountId, previousBalance, newBalance, withdrawals, movementKey));
+        } finally {
+            afterWrite(accountId);
+        }
+        journalOutcome(accountId, movementKey, applied);
+        if (applied) {
+            return true;
+        }
+        LOGGER.warn("Balance of account {} changed concurrently, write rejected", accountId);
+        return false;
+    }
+
+    // Once a write has committed: drops the cached copy and makes this session's reads include the write
+    private void afterWrite(int accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+    }
+
+    // Journals the movement (if enabled) ahead of the database write; returns its idempotency key, or null
+    private UUID journalMovement(int accountId, JournalOpType opType, double amount) throws IOException {
+        if (journal == null) {
+            return null;
+        }
+        UUID movementKey = UUID.randomUUID();
+        journal.append(accountId, opType, Math.round(amount * 100.0), movementKey);
+        return movementKey;
+    }
+
+    /**
+     * Appends COMMIT or ABORT for a journaled movement once the database has answered. A write that threw
+     * gets neither, since its commit may or may not have happened: movement_keys settles it on recovery.
+     * The movement's outcome stands either way, so a failed marker is only logged.
+     */
+    private void journalOutcome(int accountId, UUID movementKey, boolean written) {
+        if (movementKey == null) {
+            return;
+        }
+        try {
+            journal.append(accountId, written ? JournalOpType.COMMIT : JournalOpType.ABORT, 0, movementKey);
+        } catch (IOException e) {
+            LOGGER.warn("Journal marker for movement {} failed: {}", movementKey, e.getMessage());
+        }
+    }
+
     // Conversion methods
     public Optional<SavingsAccount> convertEntityToModel(SavingsAccountEntity entity) {
         try {
@@ -245,7 +457,8 @@ public class SavingsAccountService {
                 entity.getBalance(),
                 entity.getAccountName(),
                 entity.getInterestRate(),
-                entity.getWithdrawalLimit()
+                entity.getWithdrawalLimit(),
+                entity.getWithdrawalCounter()
             );
             return Optional.of(account);
         } catch (IllegalArgumentException e) {
@@ -0,0 +1,32 @@
+package com.jbank.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.jbank.id.HiLoIdAllocator;
+
+/**
+ * Shard-aware IDs: shard k of n hands out client and account IDs with id % n == k, by striding the
+ * client and account ID sequences. Any ID then names its shard, and accounts, created on their primary
+ * owner's shard, share it with the owner.
+ *
+ * @author juanf
+ */
+public final class ShardIds {
+
+    private ShardIds() {
+    }
+
+    public static int shardOf(int id, int shardCount) {
+        return Math.floorMod(id, shardCount);
+    }
+
+    /**
+     * Makes the shard's sequences continue past its existing rows with IDs of its own stripe only. Run
+     * once per shard when it is set up, before it takes inserts; rows inserted earlier keep their IDs.
+     * For IDs reserved in blocks, use {@link HiLoIdAllocator#configure(Connection, int, int, int)} instead.
+     */
+    public static void stripe(Connection connection, int shard, int shardCount) throws SQLException {
+        HiLoIdAllocator.configure(connection, 1, shard, shardCount);
+    }
+}
@@ -0,0 +1,109 @@
+package com.jbank.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Fixed-size pool of connections to one shard. Connections are opened on demand up to the pool size and
+ * kept for reuse; a borrower waits up to the timeout for one to be returned. Returned connections are
+ * rolled back and put back in autocommit mode, and closed ones are dropped.
+ *
+ * @author juanf
+ */
+public class ShardPool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardPool.class);
+
+    private final String name;
+    private final ConnectionSupplier connectionSupplier;
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle;
+    private final long timeoutMillis;
+    private volatile boolean closed;
+
+    public ShardPool(String name, ConnectionSupplier connectionSupplier, int size, long timeoutMillis) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1.");
+        }
+        this.name = name;
+        this.connectionSupplier = connectionSupplier;
+        this.permits = new Semaphore(size, true);
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * A connection for the caller's exclusive use; give it back with {@link #release(Connection)}.
+     * @throws SQLException if none became free within the timeout, or a new one could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool for shard " + name + " is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a connection to shard " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection to shard " + name, e);
+        }
+        try {
+            Connection connection = idle.poll();
+            while (connection != null && connection.isClosed()) {
+                connection = idle.poll();
+            }
+            return connection != null ? connection : connectionSupplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Connection connection) {
+        try {
+            if (!connection.isClosed() && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (closed || connection.isClosed() || !idle.offer(connection)) {
+                close(connection);
+            }
+        } catch (SQLException e) {
+            LOGGER.debug("Dropping connection to shard {}: {}", name, e.getMessage());
+            close(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Closes the idle connections; borrowed ones are closed as they come back
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Error closing connection to shard {}: {}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.jbank.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jbank.metrics.Metrics;
+
+/**
+ * Routes data access to the shard that owns it. Clients and accounts live on the shard their ID names
+ * (see {@link ShardIds}); new clients are placed on the shards in turn. Work runs on a connection
+ * borrowed from the shard's pool, so the DAOs are used unchanged: build one on the connection given.
+ *
+ * Queries that need every shard (getAll, reports) are scattered to all of them in parallel and their
+ * results gathered in shard order.
+ *
+ * @author juanf
+ */
+public class ShardRouter implements AutoCloseable {
+
+    // Data access on one shard's connection
+    @FunctionalInterface
+    public interface Work<R> {
+        R run(Connection connection) throws SQLException;
+    }
+
+    private final List<ShardPool> shards;
+    private final AtomicInteger nextClientShard = new AtomicInteger();
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(List<ShardPool> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        this.shards = List.copyOf(shards);
+        AtomicInteger threads = new AtomicInteger();
+        this.scatterExecutor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Shard holding the client or account with this ID
+    public int shardOf(int id) {
+        return ShardIds.shardOf(id, shards.size());
+    }
+
+    // Shard for the next new client; they are spread evenly
+    public int nextShardForClient() {
+        return Math.floorMod(nextClientShard.getAndIncrement(), shards.size());
+    }
+
+    public <R> R onShard(int shard, Work<R> work) throws SQLException {
+        ShardPool pool = shards.get(shard);
+        Connection connection = pool.borrow();
+        try {
+            return work.run(connection);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    // Runs on the shard of the client or account with this ID
+    public <R> R onShardOf(int id, Work<R> work) throws SQLException {
+        return onShard(shardOf(id), work);
+    }
+
+    // Runs as one transaction on the shard: committed if the work returns, rolled back if it throws
+    public <R> R inTransaction(int shard, Work<R> work) throws SQLException {
+        return onShard(shard, connection -> {
+            connection.setAutoCommit(false);
+            try {
+                R result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    // The work's result on every shard, in shard order
+    public <R> List<R> scatterEach(Work<R> work) throws SQLException {
+        try (Metrics.Sample sample = Metrics.time("shard.scatter")) {
+            List<Future<R>> futures = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int target = shard;
+                futures.add(scatterExecutor.submit(() -> onShard(target, work)));
+            }
+            List<R> results = new ArrayList<>(shards.size());
+            SQLException failure = null;
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted waiting for the shards", e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException
+                                ? (SQLException) e.getCause()
+                                : new SQLException("Shard query failed", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                sample.fail("SHARD_ERROR");
+                throw failure;
+            }
+            return results;
+        }
+    }
+
+    // The rows the work finds on every shard, gathered into one list
+    public <R> List<R> scatter(Work<? extends Collection<R>> work) throws SQLException {
+        List<R> gathered = new ArrayList<>();
+        for (Collection<R> rows : scatterEach(work)) {
+            gathered.addAll(rows);
+        }
+        return gathered;
+    }
+
+    @Override
+    public void close() {
+        scatterExecutor.shutdownNow();
+        for (ShardPool pool : shards) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.jbank.shard;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.analytics.GroupTotal;
+import com.jbank.id.HiLoIdAllocator;
+import com.jbank.id.IdAllocator;
+import com.jbank.metrics.Metrics;
+import com.jbank.repository.DAO.BusinessClientDAO;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.CrossShardOwnerDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.BusinessClientEntity;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+
+/**
+ * Clients, accounts and ownership spread over the shards of a {@link ShardRouter}, through the regular
+ * DAOs on each shard's connection.
+ *
+ * A client is created on the next shard in turn, and each of its accounts on the same shard together with
+ * its PRIMARY ownership, in one transaction. A joint owner on the account's shard is an ordinary
+ * client_accounts row; one on another shard is recorded in cross_shard_owners on both shards, account
+ * side first, and the first row is removed again if the second cannot be written. Lookups by ID go to
+ * one shard; getAll and the balance report ask every shard.
+ *
+ * New IDs are assigned by each shard on insert, or taken in blocks from it with {@link #setIdBlockSize}.
+ *
+ * @author juanf
+ */
+public class ShardedRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedRepository.class);
+
+    private final ShardRouter router;
+    private List<IdAllocator> idAllocators = List.of();
+
+    public ShardedRepository(ShardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Reserves new client and account IDs from each shard in blocks of blockSize. The shards' sequences
+     * must be set up with {@link HiLoIdAllocator#configure(java.sql.Connection, int, int, int)} for the
+     * same block size. Pass 0 to let the shards assign them on insert.
+     */
+    public void setIdBlockSize(int blockSize) {
+        List<IdAllocator> allocators = new ArrayList<>();
+        for (int shard = 0; blockSize > 0 && shard < router.getShardCount(); shard++) {
+            allocators.add(new HiLoIdAllocator(blockSize, router.getShardCount()));
+        }
+        idAllocators = allocators;
+    }
+
+    public Integer createPersonalClient(PersonalClientEntity client) throws SQLException {
+        int shard = router.nextShardForClient();
+        return router.inTransaction(shard, conn -> {
+            PersonalClientDAO dao = new PersonalClientDAO(conn);
+            dao.setIdAllocator(idAllocator(shard));
+            return checkStripe(dao.create(client), shard);
+        });
+    }
+
+    public Integer createBusinessClient(BusinessClientEntity client) throws SQLException {
+        int shard = router.nextShardForClient();
+        return router.inTransaction(shard, conn -> {
+            BusinessClientDAO dao = new BusinessClientDAO(conn);
+            dao.setIdAllocator(idAllocator(shard));
+            return checkStripe(dao.create(client), shard);
+        });
+    }
+
+    public Optional<PersonalClientEntity> getPersonalClient(int clientId) throws SQLException {
+        return router.onShardOf(clientId, conn -> new PersonalClientDAO(conn).getByID(clientId));
+    }
+
+    public Optional<BusinessClientEntity> getBusinessClient(int clientId) throws SQLException {
+        return router.onShardOf(clientId, conn -> new BusinessClientDAO(conn).getByID(clientId));
+    }
+
+    public PersonalClientEntity updatePersonalClient(PersonalClientEntity client) throws SQLException {
+        return router.onShardOf(client.getCustomerID(), conn -> new PersonalClientDAO(conn).updateByID(client));
+    }
+
+    public BusinessClientEntity updateBusinessClient(BusinessClientEntity client) throws SQLException {
+        return router.onShardOf(client.getCustomerID(), conn -> new BusinessClientDAO(conn).updateByID(client));
+    }
+
+    public List<PersonalClientEntity> getAllPersonalClients() throws SQLException {
+        return router.scatter(conn -> new PersonalClientDAO(conn).getAll());
+    }
+
+    public List<BusinessClientEntity> getAllBusinessClients() throws SQLException {
+        return router.scatter(conn -> new BusinessClientDAO(conn).getAll());
+    }
+
+    // Creates the account on its owner's shard, owned by them as PRIMARY
+    public Integer createCheckingAccount(CheckingAccountEntity account, int ownerId) throws SQLException {
+        return createAccount(ownerId, (conn, allocator) -> {
+            CheckingAccountDAO dao = new CheckingAccountDAO(conn);
+            dao.setIdAllocator(allocator);
+            return dao.create(account);
+        });
+    }
+
+    public Integer createSavingsAccount(SavingsAccountEntity account, int ownerId) throws SQLException {
+        return createAccount(ownerId, (conn, allocator) -> {
+            SavingsAccountDAO dao = new SavingsAccountDAO(conn);
+            dao.setIdAllocator(allocator);
+            return dao.create(account);
+        });
+    }
+
+    public Integer createCreditLine(CreditLineEntity account, int ownerId) throws SQLException {
+        return createAccount(ownerId, (conn, allocator) -> {
+            CreditLineDAO dao = new CreditLineDAO(conn);
+            dao.setIdAllocator(allocator);
+            return dao.create(account);
+        });
+    }
+
+    public Optional<CheckingAccountEntity> getCheckingAccount(int accountId) throws SQLException {
+        return router.onShardOf(accountId, conn -> new CheckingAccountDAO(conn).getByID(accountId));
+    }
+
+    public Optional<SavingsAccountEntity> getSavingsAccount(int accountId) throws SQLException {
+        return router.onShardOf(accountId, conn -> new SavingsAccountDAO(conn).getByID(accountId));
+    }
+
+    public Optional<CreditLineEntity> getCreditLine(int accountId) throws SQLException {
+        return router.onShardOf(accountId, conn -> new CreditLineDAO(conn).getByID(accountId));
+    }
+
+    public List<CheckingAccountEntity> getAllCheckingAccounts() throws SQLException {
+        return router.scatter(conn -> new CheckingAccountDAO(conn).getAll());
+    }
+
+    public List<SavingsAccountEntity> getAllSavingsAccounts() throws SQLException {
+        return router.scatter(conn -> new SavingsAccountDAO(conn).getAll());
+    }
+
+    public List<CreditLineEntity> getAllCreditLines() throws SQLException {
+        return router.scatter(conn -> new CreditLineDAO(conn).getAll());
+    }
+
+    /**
+     * Adds the client as a JOINT owner of the account, wherever each of them lives.
+     * @return false if the client or the account does not exist, or the ownership could not be recorded
+     */
+    public boolean addJointOwner(int clientId, int accountId) throws SQLException {
+        int accountShard = router.shardOf(accountId);
+        int clientShard = router.shardOf(clientId);
+        if (accountShard == clientShard) {
+            return router.onShard(accountShard,
+                    conn -> new ClientAccountDAO(conn).assignAccountToClient(clientId, accountId, "JOINT"));
+        }
+        if (!router.onShard(accountShard, conn -> new CrossShardOwnerDAO(conn).addForAccount(clientId, accountId))) {
+            return false;
+        }
+        boolean added = false;
+        try {
+            added = router.onShard(clientShard, conn -> new CrossShardOwnerDAO(conn).addForClient(clientId, accountId));
+            return added;
+        } finally {
+            if (!added) {
+                // Undo the account side, so the directory never lists an owner the client's shard does not know
+                router.onShard(accountShard, conn -> new CrossShardOwnerDAO(conn).remove(clientId, accountId));
+                LOGGER.warn("Could not record client {} as joint owner of account {}", clientId, accountId);
+            }
+        }
+    }
+
+    public boolean removeOwner(int clientId, int accountId) throws SQLException {
+        int accountShard = router.shardOf(accountId);
+        int clientShard = router.shardOf(clientId);
+        if (accountShard == clientShard) {
+            return router.onShard(accountShard,
+                    conn -> new ClientAccountDAO(conn).removeAccountFromClient(clientId, accountId));
+        }
+        boolean removedClientSide = router.onShard(clientShard,
+                conn -> new CrossShardOwnerDAO(conn).remove(clientId, accountId));
+        boolean removedAccountSide = router.onShard(accountShard,
+                conn -> new CrossShardOwnerDAO(conn).remove(clientId, accountId));
+        return removedClientSide || removedAccountSide;
+    }
+
+    // Account IDs to ownership types, including accounts jointly owned on other shards
+    public Map<Integer, String> getAccountsByClient(int clientId) throws SQLException {
+        return router.onShardOf(clientId, conn -> {
+            Map<Integer, String> accounts = new HashMap<>(new ClientAccountDAO(conn).getAccountsByClient(clientId));
+            for (int accountId : new CrossShardOwnerDAO(conn).getAccountsByClient(clientId)) {
+                accounts.put(accountId, "JOINT");
+            }
+            return accounts;
+        });
+    }
+
+    // Client IDs to ownership types, including joint owners living on other shards
+    public Map<Integer, String> getClientsByAccount(int accountId) throws SQLException {
+        return router.onShardOf(accountId, conn -> {
+            Map<Integer, String> clients = new HashMap<>(new ClientAccountDAO(conn).getClientsByAccount(accountId));
+            for (int clientId : new CrossShardOwnerDAO(conn).getClientsByAccount(accountId)) {
+                clients.put(clientId, "JOINT");
+            }
+            return clients;
+        });
+    }
+
+    // Accounts, balances and credit limits per account type over every shard
+    public List<GroupTotal> balancesByAccountType() throws SQLException {
+        try (Metrics.Sample sample = Metrics.time("shard.balancesByAccountType")) {
+            String sql = "SELECT a.account_type, COUNT(*), SUM(a.balance), COALESCE(SUM(cl.credit_limit), 0) "
+                    + "FROM accounts a LEFT JOIN credit_lines cl ON cl.account_id = a.account_id GROUP BY a.account_type";
+            List<List<GroupTotal>> perShard = router.scatterEach(conn -> {
+                List<GroupTotal> totals = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql);
+                        ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        totals.add(new GroupTotal(rs.getString(1), rs.getLong(2), cents(rs.getBigDecimal(3)),
+                                cents(rs.getBigDecimal(4))));
+                    }
+                }
+                return totals;
+            });
+            Map<String, long[]> merged = new TreeMap<>();
+            for (List<GroupTotal> totals : perShard) {
+                for (GroupTotal total : totals) {
+                    long[] sums = merged.computeIfAbsent(total.getGroup(), group -> new long[3]);
+                    sums[0] += total.getAccounts();
+                    sums[1] += cents(total.getBalance());
+                    sums[2] += cents(total.getCreditLimit());
+                }
+            }
+            List<GroupTotal> result = new ArrayList<>(merged.size());
+            merged.forEach((group, sums) -> result.add(new GroupTotal(group, sums[0], sums[1], sums[2])));
+            return result;
+        }
+    }
+
+    private Integer createAccount(int ownerId, AccountInsert insert) throws SQLException {
+        int shard = router.shardOf(ownerId);
+        return router.inTransaction(shard, conn -> {
+            Integer accountId = checkStripe(insert.run(conn, idAllocator(shard)), shard);
+            if (!new ClientAccountDAO(conn).assignAccountToClient(ownerId, accountId, "PRIMARY")) {
+                throw new SQLException("Could not assign account to client " + ownerId + " on shard " + shard);
+            }
+            return accountId;
+        });
+    }
+
+    private IdAllocator idAllocator(int shard) {
+        return idAllocators.isEmpty() ? null : idAllocators.get(shard);
+    }
+
+    // The DAOs report failed inserts as null; an ID outside the shard's stripe means it was never striped
+    private Integer checkStripe(Integer id, int shard) throws SQLException {
+        if (id == null) {
+            throw new SQLException("Insert failed on shard " + shard);
+        }
+        if (router.shardOf(id) != shard) {
+            throw new IllegalStateException("Shard " + shard + " generated ID " + id + " outside its stripe; run ShardIds.stripe on it");
+        }
+        return id;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+
+    // Inserts an account on its shard's connection, taking its ID from the allocator when there is one
+    @FunctionalInterface
+    private interface AccountInsert {
+        Integer run(Connection connection, IdAllocator allocator) throws SQLException;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jbank.snapshot;
+
+/**
+ * How a column is encoded in a snapshot record.
+ *
+ * @author juanf
+ */
+enum ColumnKind {
+    // Leading key the section is ordered by: unsigned varint of the difference from the previous row's key
+    KEY,
+    // Integer: zigzag varint, so small negative numbers stay small
+    INT,
+    // DECIMAL(n, 2) amounts and rates as hundredths (cents): zigzag varint
+    CENTS,
+    // UTF-8 string: varint byte length, then the bytes
+    TEXT,
+    // Low-cardinality string: varint code into the section's dictionary. The first use of a value writes
+    // the next free code followed by the string, which defines it for the rest of the section
+    DICT
+}
@@ -0,0 +1,101 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Loads a table with COPY ... FROM STDIN in PostgreSQL's text format: tab-separated columns, one row per
+ * line, with backslash, tab, newline and carriage return escaped in strings.
+ *
+ * @author juanf
+ */
+final class CopyTableLoader implements TableLoader {
+    private static final int COPY_BUFFER_BYTES = 256 * 1024;
+
+    private final SnapshotTable table;
+    private final PGCopyOutputStream copy;
+    private final StringBuilder line = new StringBuilder(256);
+
+    CopyTableLoader(PGConnection connection, SnapshotTable table) throws SQLException {
+        this.table = table;
+        this.copy = new PGCopyOutputStream(connection, table.copySql(), COPY_BUFFER_BYTES);
+    }
+
+    @Override
+    public void row(SnapshotRow row) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < table.columnCount(); i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            switch (table.kind(i)) {
+                case KEY:
+                case INT:
+                    line.append(row.numbers[i]);
+                    break;
+                case CENTS:
+                    appendCents(row.numbers[i]);
+                    break;
+                default:
+                    appendText(row.texts[i]);
+            }
+        }
+        line.append('\n');
+        copy.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        copy.close();
+    }
+
+    @Override
+    public void abort() {
+        try {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        } catch (SQLException e) {
+            // The rollback that follows ends the transaction either way
+        }
+    }
+
+    private void appendCents(long cents) {
+        if (cents < 0) {
+            line.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        line.append(cents / 100).append('.');
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    private void appendText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+}
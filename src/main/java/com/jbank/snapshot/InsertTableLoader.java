@@ -0,0 +1,65 @@
+package com.jbank.snapshot;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Loads a table with batched INSERTs, for databases without COPY.
+ *
+ * @author juanf
+ */
+final class InsertTableLoader implements TableLoader {
+    private static final int BATCH_SIZE = 1000;
+
+    private final SnapshotTable table;
+    private final PreparedStatement statement;
+    private int batched;
+
+    InsertTableLoader(Connection connection, SnapshotTable table) throws SQLException {
+        this.table = table;
+        this.statement = connection.prepareStatement(table.insertSql());
+    }
+
+    @Override
+    public void row(SnapshotRow row) throws SQLException {
+        for (int i = 0; i < table.columnCount(); i++) {
+            switch (table.kind(i)) {
+                case KEY:
+                case INT:
+                    statement.setLong(i + 1, row.numbers[i]);
+                    break;
+                case CENTS:
+                    statement.setBigDecimal(i + 1, SnapshotRow.fromCents(row.numbers[i]));
+                    break;
+                default:
+                    statement.setString(i + 1, row.texts[i]);
+            }
+        }
+        statement.addBatch();
+        if (++batched == BATCH_SIZE) {
+            statement.executeBatch();
+            batched = 0;
+        }
+    }
+
+    @Override
+    public void finish() throws SQLException {
+        try {
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The rollback that follows ends the transaction either way
+        }
+    }
+}
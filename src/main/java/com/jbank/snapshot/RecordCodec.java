@@ -0,0 +1,162 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the records of one section. A record is a varint byte length followed by the
+ * columns in {@link ColumnKind} encoding; a reader skips bytes past the columns it knows, so a later
+ * version can append columns without breaking older readers.
+ *
+ * Holds the section's state (previous key and dictionary), so use one instance per section and
+ * direction.
+ *
+ * @author juanf
+ */
+final class RecordCodec {
+    private final SnapshotTable table;
+    // Dictionary: value to code when writing, code to value when reading
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private long previousKey;
+
+    private byte[] record = new byte[256];
+    private int length;
+    private int offset;
+
+    RecordCodec(SnapshotTable table) {
+        this.table = table;
+    }
+
+    void write(SnapshotRow row, SnapshotOutput out) throws IOException {
+        length = 0;
+        for (int i = 0; i < table.columnCount(); i++) {
+            switch (table.kind(i)) {
+                case KEY:
+                    long delta = row.numbers[i] - previousKey;
+                    if (delta < 0) {
+                        throw new IllegalStateException(table.getTableName() + " rows are not in key order");
+                    }
+                    putVarLong(delta);
+                    previousKey = row.numbers[i];
+                    break;
+                case INT:
+                case CENTS:
+                    putVarLong(zigzag(row.numbers[i]));
+                    break;
+                case TEXT:
+                    putText(row.texts[i]);
+                    break;
+                default:
+                    Integer code = codes.get(row.texts[i]);
+                    if (code == null) {
+                        putVarLong(codes.size());
+                        putText(row.texts[i]);
+                        codes.put(row.texts[i], codes.size());
+                    } else {
+                        putVarLong(code);
+                    }
+            }
+        }
+        out.writeVarLong(length);
+        out.write(record, 0, length);
+    }
+
+    void read(SectionInput in, SnapshotRow row) throws IOException {
+        long size = in.readVarLong();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Snapshot record of " + size + " bytes");
+        }
+        length = (int) size;
+        ensureCapacity(length);
+        in.readFully(record, length);
+        offset = 0;
+        for (int i = 0; i < table.columnCount(); i++) {
+            switch (table.kind(i)) {
+                case KEY:
+                    previousKey += getVarLong();
+                    row.numbers[i] = previousKey;
+                    break;
+                case INT:
+                case CENTS:
+                    long value = getVarLong();
+                    row.numbers[i] = (value >>> 1) ^ -(value & 1);
+                    break;
+                case TEXT:
+                    row.texts[i] = getText();
+                    break;
+                default:
+                    long code = getVarLong();
+                    if (code == dictionary.size()) {
+                        dictionary.add(getText());
+                    } else if (code > dictionary.size()) {
+                        throw new IOException("Undefined dictionary code " + code + " in " + table.getTableName());
+                    }
+                    row.texts[i] = dictionary.get((int) code);
+            }
+        }
+    }
+
+    private void putVarLong(long value) {
+        ensureCapacity(length + 10);
+        length = putVarLong(record, length, value);
+    }
+
+    private void putText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length);
+        ensureCapacity(length + bytes.length);
+        System.arraycopy(bytes, 0, record, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private long getVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (offset == length) {
+                throw new IOException("Snapshot record of " + table.getTableName() + " is missing columns");
+            }
+            int b = record[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in " + table.getTableName());
+    }
+
+    private String getText() throws IOException {
+        long size = getVarLong();
+        if (size > length - offset) {
+            throw new IOException("Snapshot record of " + table.getTableName() + " is missing columns");
+        }
+        String text = new String(record, offset, (int) size, StandardCharsets.UTF_8);
+        offset += (int) size;
+        return text;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > record.length) {
+            record = Arrays.copyOf(record, Math.max(capacity, record.length * 2));
+        }
+    }
+
+    // Unsigned LEB128; returns the offset after the value
+    static int putVarLong(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,14 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a snapshot section as they are decoded. The row is reused for the next one.
+ *
+ * @author juanf
+ */
+@FunctionalInterface
+interface RowSink {
+    void row(SnapshotRow row) throws SQLException, IOException;
+}
@@ -0,0 +1,103 @@
+package com.jbank.snapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Buffered reader of one byte range of a snapshot file, using positional reads so several sections of
+ * one file can be read at once from different threads. Every byte read goes into a CRC32C.
+ *
+ * @author juanf
+ */
+final class SectionInput {
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    private long position;
+    private final long end;
+
+    SectionInput(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.position = offset;
+        this.end = offset + length;
+        this.buffer = ByteBuffer.allocate((int) Math.min(BUFFER_BYTES, Math.max(length, 1)));
+        buffer.limit(0);
+    }
+
+    boolean hasMore() {
+        return buffer.hasRemaining() || position < end;
+    }
+
+    int checksum() {
+        return (int) crc.getValue();
+    }
+
+    int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            fill();
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    void readFully(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            int chunk = Math.min(length - offset, buffer.remaining());
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    long readLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    int readInt() throws IOException {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private void fill() throws IOException {
+        if (position >= end) {
+            throw new EOFException("Snapshot section ends in the middle of a record");
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Snapshot file is truncated");
+            }
+        }
+        buffer.flip();
+        position += buffer.limit();
+        crc.update(buffer.duplicate());
+    }
+}
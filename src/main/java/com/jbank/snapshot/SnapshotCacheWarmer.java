@@ -0,0 +1,173 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.cache.EntityCache;
+import com.jbank.repository.entities.BusinessClientEntity;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+
+/**
+ * Fills the services' entity caches from a snapshot file instead of letting every first read go to the
+ * database, the way {@link SnapshotLedgerStore} warms the ledger engine. Each cache takes the entities
+ * with the lowest IDs, up to its size; a cache left unset is skipped.
+ *
+ * Only valid while the database still matches the snapshot, i.e. for a node started on a database just
+ * restored from it; warm before serving requests. An entity evicted while warming is not cached.
+ *
+ * @author juanf
+ */
+public class SnapshotCacheWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCacheWarmer.class);
+
+    private final Path snapshot;
+    private EntityCache<PersonalClientEntity> personalClients;
+    private EntityCache<BusinessClientEntity> businessClients;
+    private EntityCache<CheckingAccountEntity> checkingAccounts;
+    private EntityCache<SavingsAccountEntity> savingsAccounts;
+    private EntityCache<CreditLineEntity> creditLines;
+
+    public SnapshotCacheWarmer(Path snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public void setPersonalClientCache(EntityCache<PersonalClientEntity> cache) {
+        this.personalClients = cache;
+    }
+
+    public void setBusinessClientCache(EntityCache<BusinessClientEntity> cache) {
+        this.businessClients = cache;
+    }
+
+    public void setCheckingAccountCache(EntityCache<CheckingAccountEntity> cache) {
+        this.checkingAccounts = cache;
+    }
+
+    public void setSavingsAccountCache(EntityCache<SavingsAccountEntity> cache) {
+        this.savingsAccounts = cache;
+    }
+
+    public void setCreditLineCache(EntityCache<CreditLineEntity> cache) {
+        this.creditLines = cache;
+    }
+
+    /**
+     * @return Number of entities cached
+     * @throws IOException if the snapshot cannot be read; the caches then fill from the database as usual
+     */
+    public int warm() throws IOException {
+        List<Target<?>> clients = new ArrayList<>();
+        addTarget(clients, personalClients, SnapshotTable.PERSONAL_CLIENTS, (client, row) -> new PersonalClientEntity(
+                (int) client.numbers[0], client.texts[2], client.texts[3], client.texts[4],
+                row.texts[1], (int) row.numbers[2], amount(row.numbers[3]), amount(row.numbers[4])));
+        addTarget(clients, businessClients, SnapshotTable.BUSINESS_CLIENTS, (client, row) -> new BusinessClientEntity(
+                (int) client.numbers[0], client.texts[2], client.texts[3], client.texts[4],
+                row.texts[1], row.texts[2], row.texts[3], row.texts[4],
+                amount(row.numbers[5]), amount(row.numbers[6]), amount(row.numbers[7])));
+        // The account DAOs read without the owner, so the cached accounts have none either
+        List<Target<?>> accounts = new ArrayList<>();
+        addTarget(accounts, checkingAccounts, SnapshotTable.CHECKING_ACCOUNTS, (account, row) -> new CheckingAccountEntity(
+                (int) account.numbers[0], 0, amount(account.numbers[3]),
+                amount(row.numbers[1]), amount(row.numbers[2]), account.texts[2]));
+        addTarget(accounts, savingsAccounts, SnapshotTable.SAVINGS_ACCOUNTS, (account, row) -> new SavingsAccountEntity(
+                (int) account.numbers[0], 0, amount(account.numbers[3]),
+                amount(row.numbers[1]), (int) row.numbers[2], (int) row.numbers[3], account.texts[2]));
+        addTarget(accounts, creditLines, SnapshotTable.CREDIT_LINES, (account, row) -> new CreditLineEntity(
+                (int) account.numbers[0], 0, amount(account.numbers[3]),
+                amount(row.numbers[1]), amount(row.numbers[2]), amount(row.numbers[3]), account.texts[2]));
+        if (clients.isEmpty() && accounts.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        int cached = 0;
+        try (SnapshotReader reader = SnapshotReader.open(snapshot)) {
+            cached += warm(reader, SnapshotTable.CLIENTS, clients);
+            cached += warm(reader, SnapshotTable.ACCOUNTS, accounts);
+        } catch (SQLException e) {
+            // The sinks never touch the database
+            throw new IllegalStateException(e);
+        }
+        LOGGER.info("Cached {} entities from snapshot {} in {} ms", cached, snapshot,
+                (System.nanoTime() - start) / 1_000_000);
+        return cached;
+    }
+
+    // Collects each target's rows, as many as its cache has room for, then joins them to the parent rows
+    private static int warm(SnapshotReader reader, SnapshotTable parent, List<Target<?>> targets)
+            throws IOException, SQLException {
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        for (Target<?> target : targets) {
+            reader.read(target.table, target::collect);
+        }
+        int[] cached = { 0 };
+        reader.read(parent, row -> {
+            for (Target<?> target : targets) {
+                if (target.preload(row)) {
+                    cached[0]++;
+                }
+            }
+        });
+        return cached[0];
+    }
+
+    private static <V> void addTarget(List<Target<?>> targets, EntityCache<V> cache, SnapshotTable table,
+            EntityFactory<V> factory) {
+        if (cache != null) {
+            targets.add(new Target<>(cache, table, factory));
+        }
+    }
+
+    private static double amount(long cents) {
+        return cents / 100.0;
+    }
+
+    @FunctionalInterface
+    private interface EntityFactory<V> {
+        V create(SnapshotRow parent, SnapshotRow row);
+    }
+
+    // One cache and the snapshot table that, joined with its parent table, gives the cached entities
+    private static final class Target<V> {
+        final EntityCache<V> cache;
+        final SnapshotTable table;
+        final EntityFactory<V> factory;
+        // Taken before the rows are read, so an entity evicted since is not cached from them
+        final long stamp;
+        final Map<Integer, SnapshotRow> rows = new HashMap<>();
+        final int room;
+
+        Target(EntityCache<V> cache, SnapshotTable table, EntityFactory<V> factory) {
+            this.cache = cache;
+            this.table = table;
+            this.factory = factory;
+            this.stamp = cache.preloadStamp();
+            this.room = cache.getMaxEntries() - cache.size();
+        }
+
+        void collect(SnapshotRow row) {
+            if (rows.size() < room) {
+                rows.put((int) row.numbers[0], row.copy());
+            }
+        }
+
+        boolean preload(SnapshotRow parent) {
+            int id = (int) parent.numbers[0];
+            SnapshotRow row = rows.remove(id);
+            return row != null && cache.preload(id, factory.create(parent, row), stamp);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.ledger.LedgerSnapshot;
+import com.jbank.ledger.LedgerStore;
+
+/**
+ * Ledger store that warms the engine from a snapshot file instead of scanning the credit lines in the
+ * database: the first load reads the snapshot, everything else goes to the delegate (normally a LedgerDAO).
+ *
+ * Only valid while the database still matches the snapshot, i.e. for an engine started on a database
+ * just restored from it. If the snapshot cannot be read, the load falls back to the delegate.
+ *
+ * @author juanf
+ */
+public class SnapshotLedgerStore implements LedgerStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotLedgerStore.class);
+
+    private final Path snapshot;
+    private final String ledgerName;
+    private final LedgerStore delegate;
+    private boolean warmed;
+
+    public SnapshotLedgerStore(Path snapshot, String ledgerName, LedgerStore delegate) {
+        this.snapshot = snapshot;
+        this.ledgerName = ledgerName;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public LedgerSnapshot load() throws SQLException {
+        if (!warmed) {
+            warmed = true;
+            try (SnapshotReader reader = SnapshotReader.open(snapshot)) {
+                LedgerSnapshot state = reader.ledgerSnapshot(ledgerName);
+                LOGGER.info("Loaded {} credit lines for ledger {} from snapshot {}", state.size(), ledgerName, snapshot);
+                return state;
+            } catch (IOException e) {
+                LOGGER.warn("Could not read snapshot {}, loading the ledger from the database: {}", snapshot, e.getMessage());
+            }
+        }
+        return delegate.load();
+    }
+
+    @Override
+    public void save(int[] accountIds, long[] balanceCents, int count, long lastSequence) throws SQLException {
+        delegate.save(accountIds, balanceCents, count, lastSequence);
+    }
+}
@@ -0,0 +1,65 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+
+import com.jbank.util.ConnectionHandler;
+
+/**
+ * Command-line entry point for snapshots of the bank's data.
+ *
+ * Usage: SnapshotMain dump &lt;file&gt; | restore &lt;file&gt; [parallelism] | info &lt;file&gt;
+ *
+ * @author juanf
+ */
+public class SnapshotMain {
+    private static final String USAGE = "Usage: SnapshotMain dump <file> | restore <file> [parallelism] | info <file>";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Path file = Path.of(args[1]);
+        try {
+            switch (args[0]) {
+                case "dump":
+                    long start = System.nanoTime();
+                    try (Connection connection = ConnectionHandler.openConnection()) {
+                        for (SnapshotSection section : new SnapshotWriter(connection).write(file)) {
+                            System.out.println(section);
+                        }
+                    }
+                    System.out.printf("Snapshot written in %.1f s%n", (System.nanoTime() - start) / 1e9);
+                    break;
+                case "restore":
+                    int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+                    start = System.nanoTime();
+                    long rows = new SnapshotRestorer(ConnectionHandler::openConnection, parallelism).restore(file);
+                    System.out.printf("Restored %d rows in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+                    break;
+                case "info":
+                    try (SnapshotReader reader = SnapshotReader.open(file)) {
+                        System.out.println("Created " + Instant.ofEpochMilli(reader.getCreatedMillis()));
+                        for (SnapshotSection section : reader.getSections()) {
+                            System.out.println(section);
+                        }
+                    }
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+            System.exit(0);
+        } catch (NumberFormatException e) {
+            System.err.println("Parallelism must be a number: " + args[2]);
+            System.exit(2);
+        } catch (SQLException | IOException | IllegalStateException e) {
+            System.err.println("Snapshot " + args[0] + " failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Buffered writer of a snapshot file. Tracks the file position and a running CRC32C that is reset at
+ * the start of each section.
+ *
+ * @author juanf
+ */
+final class SnapshotOutput implements AutoCloseable {
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private final byte[] scratch = new byte[10];
+    private long position;
+
+    SnapshotOutput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    long position() {
+        return position;
+    }
+
+    void resetChecksum() {
+        crc.reset();
+    }
+
+    int checksum() {
+        return (int) crc.getValue();
+    }
+
+    void write(byte[] bytes, int offset, int length) throws IOException {
+        crc.update(bytes, offset, length);
+        position += length;
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    void writeByte(int value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        crc.update(value);
+        buffer.put((byte) value);
+        position++;
+    }
+
+    void writeVarLong(long value) throws IOException {
+        write(scratch, 0, RecordCodec.putVarLong(scratch, 0, value));
+    }
+
+    // Fixed-width big-endian, for the header and footer
+    void writeInt(int value) throws IOException {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(value >>> shift);
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Writes what is buffered and forces it to disk
+    @Override
+    public void close() throws IOException {
+        drain();
+        channel.force(true);
+    }
+}
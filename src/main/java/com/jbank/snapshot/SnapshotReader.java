@@ -0,0 +1,195 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jbank.ledger.LedgerSnapshot;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter}. Opening checks the header and trailer and reads the
+ * section directory; the rows of each section are checked against its CRC32C as they are read.
+ *
+ * @author juanf
+ */
+public final class SnapshotReader implements AutoCloseable {
+    private static final int HEADER_BYTES = SnapshotWriter.MAGIC.length + Integer.BYTES + Long.BYTES;
+    private static final int TRAILER_BYTES = Long.BYTES + SnapshotWriter.MAGIC.length;
+
+    private final FileChannel channel;
+    private final long createdMillis;
+    private final Map<SnapshotTable, SnapshotSection> sections;
+
+    private SnapshotReader(FileChannel channel, long createdMillis, Map<SnapshotTable, SnapshotSection> sections) {
+        this.channel = channel;
+        this.createdMillis = createdMillis;
+        this.sections = sections;
+    }
+
+    public static SnapshotReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            SectionInput header = new SectionInput(channel, 0, HEADER_BYTES);
+            checkMagic(header, path);
+            int version = header.readInt();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+            long createdMillis = header.readLong();
+
+            SectionInput trailer = new SectionInput(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long footerOffset = trailer.readLong();
+            checkMagic(trailer, path);
+            if (footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+                throw new IOException("Corrupt snapshot directory in " + path);
+            }
+
+            SectionInput footer = new SectionInput(channel, footerOffset, size - TRAILER_BYTES - footerOffset);
+            Map<SnapshotTable, SnapshotSection> sections = new EnumMap<>(SnapshotTable.class);
+            long count = footer.readVarLong();
+            for (long i = 0; i < count; i++) {
+                SnapshotTable table = SnapshotTable.byId(footer.readByte());
+                long offset = footer.readLong();
+                long length = footer.readLong();
+                long rows = footer.readLong();
+                int checksum = footer.readInt();
+                if (offset < HEADER_BYTES || offset + length > footerOffset) {
+                    throw new IOException("Corrupt snapshot directory in " + path);
+                }
+                // Tables added by a later version are skipped
+                if (table != null) {
+                    sections.put(table, new SnapshotSection(table, offset, length, rows, checksum));
+                }
+            }
+            return new SnapshotReader(channel, createdMillis, sections);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public List<SnapshotSection> getSections() {
+        return new ArrayList<>(sections.values());
+    }
+
+    boolean has(SnapshotTable table) {
+        return sections.containsKey(table);
+    }
+
+    /**
+     * Decodes the rows of a table into the sink, then checks the section's checksum. Sections can be
+     * read from several threads at once.
+     */
+    void read(SnapshotTable table, RowSink sink) throws IOException, SQLException {
+        SnapshotSection section = sections.get(table);
+        if (section == null) {
+            return;
+        }
+        SectionInput in = new SectionInput(channel, section.getOffset(), section.getBytes());
+        RecordCodec codec = new RecordCodec(table);
+        SnapshotRow row = new SnapshotRow(table);
+        for (long i = 0; i < section.getRows(); i++) {
+            codec.read(in, row);
+            sink.row(row);
+        }
+        if (in.hasMore() || in.checksum() != section.getChecksum()) {
+            throw new IOException("Snapshot section " + table.getTableName() + " is corrupt");
+        }
+    }
+
+    /**
+     * The ledger engine's starting state straight from the snapshot: every credit line's balance and limit,
+     * and the journal sequence recorded for the ledger (0 if it has none).
+     */
+    public LedgerSnapshot ledgerSnapshot(String ledgerName) throws IOException {
+        LedgerLoad load = new LedgerLoad(ledgerName);
+        try {
+            read(SnapshotTable.CREDIT_LINES, load::creditLine);
+            read(SnapshotTable.ACCOUNTS, load::account);
+            read(SnapshotTable.LEDGER_CHECKPOINTS, load::checkpoint);
+        } catch (SQLException e) {
+            // The sinks never touch the database
+            throw new IllegalStateException(e);
+        }
+        return load.toSnapshot();
+    }
+
+    /**
+     * Collects the ledger state. Credit lines and accounts are both in account ID order, so the balances
+     * of the credit lines are picked out of the accounts in one merge pass.
+     */
+    private static final class LedgerLoad {
+        private final String ledgerName;
+        private int[] ids = new int[1024];
+        private long[] limits = new long[1024];
+        private long[] balances;
+        private int count;
+        private int matched;
+        private long lastSequence;
+
+        LedgerLoad(String ledgerName) {
+            this.ledgerName = ledgerName;
+        }
+
+        void creditLine(SnapshotRow row) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                limits = Arrays.copyOf(limits, count * 2);
+            }
+            ids[count] = (int) row.numbers[0];
+            limits[count] = row.numbers[1];
+            count++;
+        }
+
+        void account(SnapshotRow row) {
+            if (balances == null) {
+                balances = new long[count];
+            }
+            if (matched < count && ids[matched] == row.numbers[0]) {
+                balances[matched++] = row.numbers[3];
+            }
+        }
+
+        void checkpoint(SnapshotRow row) {
+            if (row.texts[0].equals(ledgerName)) {
+                lastSequence = row.numbers[1];
+            }
+        }
+
+        LedgerSnapshot toSnapshot() throws IOException {
+            if (matched != count) {
+                throw new IOException("Snapshot has credit lines without an account row");
+            }
+            return new LedgerSnapshot(Arrays.copyOf(ids, count), balances == null ? new long[0] : balances,
+                    Arrays.copyOf(limits, count), lastSequence);
+        }
+    }
+
+    private static void checkMagic(SectionInput in, Path path) throws IOException {
+        for (byte expected : SnapshotWriter.MAGIC) {
+            if (in.readByte() != expected) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
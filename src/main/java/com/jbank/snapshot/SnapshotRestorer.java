@@ -0,0 +1,159 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jbank.id.IdSequence;
+import com.jbank.metrics.Metrics;
+import com.jbank.util.ConnectionSupplier;
+
+/**
+ * Loads a snapshot into an empty database (freshly created from schema.sql).
+ *
+ * Each table is loaded by its own worker on its own connection and transaction, with COPY on PostgreSQL.
+ * The parent tables (clients, accounts) are loaded first, then every table that references them, so the
+ * foreign keys hold at each commit. Afterwards the ID sequences are moved past the restored keys.
+ *
+ * A restore that fails part way leaves the tables already committed; reset the database with
+ * drop_schema.sql and schema.sql before trying again.
+ *
+ * @author juanf
+ */
+public class SnapshotRestorer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotRestorer.class);
+
+    private final ConnectionSupplier connectionSupplier;
+    private final int parallelism;
+
+    public SnapshotRestorer(ConnectionSupplier connectionSupplier, int parallelism) {
+        this.connectionSupplier = connectionSupplier;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return Number of rows restored
+     * @throws IllegalStateException if the database already has clients, accounts or ledger checkpoints
+     */
+    public long restore(Path snapshot) throws SQLException, IOException {
+        try (Metrics.Sample sample = Metrics.time("snapshot.restore");
+                SnapshotReader reader = SnapshotReader.open(snapshot)) {
+            try (Connection connection = connectionSupplier.get()) {
+                checkEmpty(connection);
+            }
+
+            long rows = 0;
+            for (int phase = 0; phase <= 1; phase++) {
+                List<SnapshotTable> tables = new ArrayList<>();
+                for (SnapshotTable table : SnapshotTable.values()) {
+                    if (table.getPhase() == phase && reader.has(table)) {
+                        tables.add(table);
+                    }
+                }
+                rows += loadInParallel(reader, tables);
+            }
+
+            try (Connection connection = connectionSupplier.get()) {
+                resetSequences(connection);
+            }
+            return rows;
+        }
+    }
+
+    private long loadInParallel(SnapshotReader reader, List<SnapshotTable> tables) throws SQLException, IOException {
+        if (tables.isEmpty()) {
+            return 0;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, tables.size()), runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-restore-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> loads = new ArrayList<>();
+            for (SnapshotTable table : tables) {
+                loads.add(pool.submit(() -> load(reader, table)));
+            }
+            long rows = 0;
+            for (Future<Long> load : loads) {
+                rows += load.get();
+            }
+            return rows;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException("Snapshot restore failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Snapshot restore interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long load(SnapshotReader reader, SnapshotTable table) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long[] rows = { 0 };
+        try (Connection connection = connectionSupplier.get()) {
+            connection.setAutoCommit(false);
+            TableLoader loader = TableLoader.open(connection, table);
+            try {
+                reader.read(table, row -> {
+                    loader.row(row);
+                    rows[0]++;
+                });
+                loader.finish();
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                loader.abort();
+                connection.rollback();
+                throw e;
+            }
+        }
+        LOGGER.info("Restored {} rows into {} in {} ms", rows[0], table.getTableName(),
+                (System.nanoTime() - start) / 1_000_000);
+        return rows[0];
+    }
+
+    private static void checkEmpty(Connection connection) throws SQLException {
+        for (SnapshotTable table : SnapshotTable.values()) {
+            if (table.getPhase() != 0) {
+                continue;
+            }
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table.getTableName() + " LIMIT 1")) {
+                if (rs.next()) {
+                    throw new IllegalStateException("Table " + table.getTableName()
+                            + " is not empty; restore needs a database freshly created from schema.sql");
+                }
+            }
+        }
+    }
+
+    // Moves the ID sequences past the highest restored key, so new rows do not collide with them
+    private static void resetSequences(Connection connection) throws SQLException {
+        for (IdSequence sequence : IdSequence.values()) {
+            sequence.restartAfterMaxId(connection);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jbank.snapshot;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * One row of a snapshot table, reused from row to row. KEY, INT and CENTS columns are held in numbers
+ * (CENTS as hundredths), TEXT and DICT columns in texts; the other array's slot is unused.
+ *
+ * @author juanf
+ */
+final class SnapshotRow {
+    final SnapshotTable table;
+    final long[] numbers;
+    final String[] texts;
+
+    SnapshotRow(SnapshotTable table) {
+        this.table = table;
+        this.numbers = new long[table.columnCount()];
+        this.texts = new String[table.columnCount()];
+    }
+
+    private SnapshotRow(SnapshotTable table, long[] numbers, String[] texts) {
+        this.table = table;
+        this.numbers = numbers;
+        this.texts = texts;
+    }
+
+    // A copy that keeps this row's values when the original is reused
+    SnapshotRow copy() {
+        return new SnapshotRow(table, numbers.clone(), texts.clone());
+    }
+
+    // Reads the current row of a result set with the table's columns, in order
+    void fill(ResultSet rs) throws SQLException {
+        for (int i = 0; i < numbers.length; i++) {
+            switch (table.kind(i)) {
+                case KEY:
+                case INT:
+                    numbers[i] = rs.getLong(i + 1);
+                    break;
+                case CENTS:
+                    numbers[i] = toCents(rs.getBigDecimal(i + 1));
+                    break;
+                default:
+                    texts[i] = rs.getString(i + 1);
+            }
+        }
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
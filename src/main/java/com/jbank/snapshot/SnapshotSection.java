@@ -0,0 +1,47 @@
+package com.jbank.snapshot;
+
+/**
+ * Directory entry of one table in a snapshot: where its records are, how many, and their CRC32C.
+ *
+ * @author juanf
+ */
+public final class SnapshotSection {
+    private final SnapshotTable table;
+    private final long offset;
+    private final long length;
+    private final long rows;
+    private final int checksum;
+
+    SnapshotSection(SnapshotTable table, long offset, long length, long rows, int checksum) {
+        this.table = table;
+        this.offset = offset;
+        this.length = length;
+        this.rows = rows;
+        this.checksum = checksum;
+    }
+
+    public SnapshotTable getTable() {
+        return table;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return length;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    int getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return table.getTableName() + ": " + rows + " rows, " + length + " bytes";
+    }
+}
@@ -0,0 +1,105 @@
+package com.jbank.snapshot;
+
+import static com.jbank.snapshot.ColumnKind.CENTS;
+import static com.jbank.snapshot.ColumnKind.DICT;
+import static com.jbank.snapshot.ColumnKind.INT;
+import static com.jbank.snapshot.ColumnKind.KEY;
+import static com.jbank.snapshot.ColumnKind.TEXT;
+
+/**
+ * The tables a snapshot holds, one section each, with the encoding of every column. Rows are stored in
+ * primary key order so the leading key can be delta-encoded.
+ *
+ * Restore loads the tables of phase 0 (the parents) before phase 1, which references them; tables in one
+ * phase are loaded in parallel. The id of a table is stored in the snapshot and must never change.
+ *
+ * @author juanf
+ */
+public enum SnapshotTable {
+    CLIENTS(1, "clients", 0, "customer_id",
+            new String[] { "customer_id", "client_type", "phone_number", "address", "name" },
+            new ColumnKind[] { KEY, DICT, TEXT, TEXT, TEXT }),
+    PERSONAL_CLIENTS(2, "personal_clients", 1, "customer_id",
+            new String[] { "customer_id", "tax_id", "credit_score", "yearly_income", "total_debt" },
+            new ColumnKind[] { KEY, TEXT, INT, CENTS, CENTS }),
+    BUSINESS_CLIENTS(3, "business_clients", 1, "customer_id",
+            new String[] { "customer_id", "ein", "business_type", "contact_person_name", "contact_person_title",
+                    "total_asset_value", "annual_revenue", "annual_profit" },
+            new ColumnKind[] { KEY, TEXT, DICT, TEXT, TEXT, CENTS, CENTS, CENTS }),
+    ACCOUNTS(4, "accounts", 0, "account_id",
+            new String[] { "account_id", "account_type", "account_name", "balance" },
+            new ColumnKind[] { KEY, DICT, TEXT, CENTS }),
+    CHECKING_ACCOUNTS(5, "checking_accounts", 1, "account_id",
+            new String[] { "account_id", "overdraft_fee", "overdraft_limit" },
+            new ColumnKind[] { KEY, CENTS, CENTS }),
+    SAVINGS_ACCOUNTS(6, "savings_accounts", 1, "account_id",
+            new String[] { "account_id", "interest_rate", "withdrawal_limit", "withdrawal_counter" },
+            new ColumnKind[] { KEY, CENTS, INT, INT }),
+    CREDIT_LINES(7, "credit_lines", 1, "account_id",
+            new String[] { "account_id", "credit_limit", "interest_rate", "min_payment_percentage" },
+            new ColumnKind[] { KEY, CENTS, CENTS, CENTS }),
+    CLIENT_ACCOUNTS(8, "client_accounts", 1, "customer_id, account_id",
+            new String[] { "customer_id", "account_id", "ownership_type" },
+            new ColumnKind[] { KEY, INT, DICT }),
+    LEDGER_CHECKPOINTS(9, "ledger_checkpoints", 0, "ledger_name",
+            new String[] { "ledger_name", "last_sequence" },
+            new ColumnKind[] { TEXT, INT });
+
+    private final int id;
+    private final String tableName;
+    private final int phase;
+    private final String orderBy;
+    private final String[] columns;
+    private final ColumnKind[] kinds;
+
+    SnapshotTable(int id, String tableName, int phase, String orderBy, String[] columns, ColumnKind[] kinds) {
+        this.id = id;
+        this.tableName = tableName;
+        this.phase = phase;
+        this.orderBy = orderBy;
+        this.columns = columns;
+        this.kinds = kinds;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getPhase() {
+        return phase;
+    }
+
+    int columnCount() {
+        return columns.length;
+    }
+
+    ColumnKind kind(int column) {
+        return kinds[column];
+    }
+
+    static SnapshotTable byId(int id) {
+        for (SnapshotTable table : values()) {
+            if (table.id == id) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    String selectSql() {
+        return "SELECT " + String.join(", ", columns) + " FROM " + tableName + " ORDER BY " + orderBy;
+    }
+
+    String copySql() {
+        return "COPY " + tableName + " (" + String.join(", ", columns) + ") FROM STDIN";
+    }
+
+    String insertSql() {
+        return "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES ("
+                + "?, ".repeat(columns.length - 1) + "?)";
+    }
+}
@@ -0,0 +1,31 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+
+/**
+ * Bulk-loads the rows of one table within the connection's current transaction.
+ *
+ * @author juanf
+ */
+interface TableLoader {
+
+    void row(SnapshotRow row) throws SQLException, IOException;
+
+    // Sends what is still buffered; the caller commits
+    void finish() throws SQLException, IOException;
+
+    // Abandons the load after a failure so the transaction can be rolled back
+    void abort();
+
+    // COPY on PostgreSQL, batched inserts on anything else (such as the H2 test database)
+    static TableLoader open(Connection connection, SnapshotTable table) throws SQLException {
+        if (connection.isWrapperFor(PGConnection.class)) {
+            return new CopyTableLoader(connection.unwrap(PGConnection.class), table);
+        }
+        return new InsertTableLoader(connection, table);
+    }
+}
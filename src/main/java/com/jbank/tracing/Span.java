@@ -0,0 +1,80 @@
+package com.jbank.tracing;
+
+/**
+ * One timed step of a {@link Trace}: a controller action, service or DAO call, SQL statement or
+ * connection open. Spans nest on the thread that started them; close each one, on that thread, with
+ * try-with-resources.
+ *
+ * Outside a sampled trace, {@link Tracer} hands out a shared no-op span.
+ *
+ * @author juanf
+ */
+public final class Span implements AutoCloseable {
+
+    static final Span NOOP = new Span(null, null, 0, null, 0);
+
+    private final Trace trace;
+    private final Span parent;
+    private final int id;
+    private final String name;
+    private final long startNanos;
+    private long endNanos = -1;
+    private String outcome;
+
+    Span(Trace trace, Span parent, int id, String name, long startNanos) {
+        this.trace = trace;
+        this.parent = parent;
+        this.id = id;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    // Marks the step as failed or rejected, e.g. "DB_ERROR"
+    public void outcome(String value) {
+        if (trace != null) {
+            outcome = value;
+        }
+    }
+
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    Trace getTrace() {
+        return trace;
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    // -1 while the span is open
+    long getEndNanos() {
+        return endNanos;
+    }
+
+    String getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public void close() {
+        if (trace == null || endNanos >= 0) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        Tracer.ended(this);
+    }
+}
@@ -0,0 +1,122 @@
+package com.jbank.tracing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The spans of one sampled operation, from the root span started by a controller action down to the
+ * SQL statements it ran. Spans are kept in start order, up to {@link #MAX_SPANS}; later ones are only
+ * counted, so a runaway loop cannot hold unbounded memory.
+ *
+ * @author juanf
+ */
+public final class Trace {
+
+    static final int MAX_SPANS = 2_000;
+
+    private final String traceId;
+    private final String thread;
+    private final long startEpochMillis;
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+    private Span root;
+
+    Trace() {
+        this.traceId = String.format("%016x", ThreadLocalRandom.current().nextLong());
+        this.thread = Thread.currentThread().getName();
+        this.startEpochMillis = System.currentTimeMillis();
+    }
+
+    // Creates a span under parent (null for the root), or returns null when the trace is full
+    Span newSpan(Span parent, String name) {
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return null;
+        }
+        Span span = new Span(this, parent, spans.size() + 1, name, System.nanoTime());
+        spans.add(span);
+        if (parent == null) {
+            root = span;
+        }
+        return span;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getRootName() {
+        return root.getName();
+    }
+
+    public long getDurationNanos() {
+        return root.getEndNanos() - root.getStartNanos();
+    }
+
+    public int getSpanCount() {
+        return spans.size();
+    }
+
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    /**
+     * One-line JSON: the trace, and each span with its parent, offset from the trace start and duration
+     * in microseconds. Spans left open (an exception skipped their close) have a duration of -1.
+     */
+    public String toJson() {
+        long origin = root.getStartNanos();
+        StringBuilder json = new StringBuilder(128 + spans.size() * 96);
+        json.append("{\"traceId\":\"").append(traceId).append("\",\"name\":");
+        appendString(json, root.getName());
+        json.append(",\"start\":\"").append(Instant.ofEpochMilli(startEpochMillis))
+                .append("\",\"durationMicros\":").append(getDurationNanos() / 1_000)
+                .append(",\"thread\":");
+        appendString(json, thread);
+        json.append(",\"droppedSpans\":").append(droppedSpans).append(",\"spans\":[");
+        for (int i = 0; i < spans.size(); i++) {
+            Span span = spans.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(span.getId())
+                    .append(",\"parent\":").append(span.getParent() == null ? 0 : span.getParent().getId())
+                    .append(",\"name\":");
+            appendString(json, span.getName());
+            json.append(",\"offsetMicros\":").append((span.getStartNanos() - origin) / 1_000)
+                    .append(",\"durationMicros\":")
+                    .append(span.getEndNanos() < 0 ? -1 : (span.getEndNanos() - span.getStartNanos()) / 1_000);
+            if (span.getOutcome() != null) {
+                json.append(",\"outcome\":");
+                appendString(json, span.getOutcome());
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,143 @@
+package com.jbank.tracing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process tracing. Controller actions start a trace with {@link #startTrace(String)}; every service
+ * and DAO call timed through Metrics, every SQL statement and every connection open then adds a child
+ * span, found through the thread's current span. When a trace takes longer than the slow threshold it is
+ * written as one JSON line to the jbank.tracing logger, and appended to a file if one is configured.
+ *
+ * Configured by system properties, or {@link #configure(double, long, Path)}:
+ * jbank.tracing.sampleRate (share of controller actions traced, 0 to 1; default 0, tracing off),
+ * jbank.tracing.slowMillis (default 1000; 0 writes every sampled trace) and jbank.tracing.file.
+ * While tracing is off, or outside a sampled trace, starting a span costs one volatile read (plus a
+ * thread-local lookup when on) and returns a shared no-op span.
+ *
+ * @author juanf
+ */
+public final class Tracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Tracer.class);
+    // Slow traces go to their own logger, so they can be routed to a separate appender
+    private static final Logger TRACE_LOG = LoggerFactory.getLogger("jbank.tracing");
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static volatile double sampleRate = parseDouble("jbank.tracing.sampleRate", 0);
+    private static volatile long slowThresholdNanos = (long) (parseDouble("jbank.tracing.slowMillis", 1_000) * 1_000_000);
+    private static volatile Path file = System.getProperty("jbank.tracing.file") == null ? null
+            : Path.of(System.getProperty("jbank.tracing.file"));
+
+    private Tracer() {
+    }
+
+    /**
+     * @param rate Share of traces sampled, 0 (off) to 1 (every trace)
+     * @param slowMillis Traces at least this long are written out
+     * @param outputFile File slow traces are appended to as JSON lines, or null for the log only
+     */
+    public static void configure(double rate, long slowMillis, Path outputFile) {
+        if (rate < 0 || rate > 1 || slowMillis < 0) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1 and the threshold non-negative.");
+        }
+        sampleRate = rate;
+        slowThresholdNanos = slowMillis * 1_000_000;
+        file = outputFile;
+    }
+
+    public static boolean isEnabled() {
+        return sampleRate > 0;
+    }
+
+    // True while the current thread is inside a sampled trace
+    public static boolean isTracing() {
+        return sampleRate > 0 && CURRENT.get() != null;
+    }
+
+    /**
+     * Starts a trace for a controller action, if it is sampled. Inside a running trace (one action
+     * calling another) it starts a child span instead.
+     */
+    public static Span startTrace(String name) {
+        double rate = sampleRate;
+        if (rate <= 0) {
+            return Span.NOOP;
+        }
+        Span current = CURRENT.get();
+        if (current != null) {
+            return child(current, name);
+        }
+        if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return Span.NOOP;
+        }
+        Span root = new Trace().newSpan(null, name);
+        CURRENT.set(root);
+        return root;
+    }
+
+    // Starts a child of the current span, or returns the no-op span outside a sampled trace
+    public static Span startSpan(String name) {
+        if (sampleRate <= 0) {
+            return Span.NOOP;
+        }
+        Span current = CURRENT.get();
+        return current == null ? Span.NOOP : child(current, name);
+    }
+
+    private static Span child(Span parent, String name) {
+        Span span = parent.getTrace().newSpan(parent, name);
+        if (span == null) {
+            return Span.NOOP;
+        }
+        CURRENT.set(span);
+        return span;
+    }
+
+    static void ended(Span span) {
+        Span parent = span.getParent();
+        if (parent != null) {
+            CURRENT.set(parent);
+            return;
+        }
+        CURRENT.remove();
+        Trace trace = span.getTrace();
+        if (trace.getDurationNanos() >= slowThresholdNanos) {
+            write(trace);
+        }
+    }
+
+    private static void write(Trace trace) {
+        String json = trace.toJson();
+        TRACE_LOG.info(json);
+        Path output = file;
+        if (output == null) {
+            return;
+        }
+        synchronized (Tracer.class) {
+            try {
+                Files.writeString(output, json + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write trace {} to {}: {}", trace.getTraceId(), output, e.getMessage());
+            }
+        }
+    }
+
+    private static double parseDouble(String property, double defaultValue) {
+        String value = System.getProperty(property);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid {}: {}", property, value);
+            return defaultValue;
+        }
+    }
+}
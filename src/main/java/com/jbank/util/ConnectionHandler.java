@@ -5,22 +5,47 @@ import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import org.postgresql.PGConnection;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jbank.id.HiLoIdAllocator;
+import com.jbank.id.IdAllocator;
+import com.jbank.jfr.ConnectionAcquireEvent;
+import com.jbank.jfr.JfrEvents;
+import com.jbank.metrics.InstrumentedConnection;
+import com.jbank.metrics.Metrics;
+import com.jbank.metrics.SlowQueryLog;
+import com.jbank.replica.PgReplicationMonitor;
+import com.jbank.replica.ReplicaRouter;
+import com.jbank.replica.ReplicationMonitor;
+import com.jbank.shard.ShardPool;
+import com.jbank.shard.ShardRouter;
+import com.jbank.tracing.Span;
+import com.jbank.tracing.Tracer;
+
 public class ConnectionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ConnectionHandler.class);
+    private static final Properties properties = new Properties();
     private static final Connection connection;
+    private static final long SHARD_TIMEOUT_MILLIS = 5000;
+    private static ReplicaRouter replicaRouter;
+    private static boolean replicasChecked;
+    private static ShardRouter shardRouter;
+    private static boolean shardsChecked;
+    private static IdAllocator idAllocator;
+    private static boolean idAllocatorChecked;
 
     static {
         Connection tempConnection = null;
         
         try {
-            Properties properties = new Properties();
-
             try(InputStream input = ConnectionHandler.class.getClassLoader()
                     .getResourceAsStream("database.properties")) {
 
@@ -31,15 +56,21 @@ public class ConnectionHandler {
                 properties.load(input);
             }
 
+            // System properties (e.g. -Djbank.db.url=...) override the file, so tools can point at another database
+            for (String key : new String[] { "db.url", "db.username", "db.password", "db.driver", "db.replica.urls",
+                    "db.shard.urls", "db.shard.poolSize", "db.id.blockSize" }) {
+                String override = System.getProperty("jbank." + key);
+                if (override != null) {
+                    properties.setProperty(key, override);
+                }
+            }
+
             // Load JDBC driver
             Class.forName(properties.getProperty("db.driver"));
 
             // Get connection
-            tempConnection = DriverManager.getConnection(
-                properties.getProperty("db.url"),
-                properties.getProperty("db.username"),
-                properties.getProperty("db.password")
-            );
+            // The shared connection lives as long as the application, so it is not tracked for leaks
+            tempConnection = connect(false);
             
             System.out.println("Database connection established");
             
@@ -57,4 +88,129 @@ public class ConnectionHandler {
         }
         return connection;
     }
+
+    /**
+     * Opens a new, dedicated connection using the same settings as the shared one.
+     * Used by background workers that need their own transaction scope.
+     * The caller owns the returned connection and must close it.
+     */
+    public static Connection openConnection() throws SQLException {
+        return connect(true);
+    }
+
+    /**
+     * Pool of up to size dedicated connections to the primary, opened on demand, for components whose
+     * concurrent callers each need their own transaction (the API server's workers and outbox writers).
+     */
+    public static ShardPool openPool(String name, int size) {
+        // Pooled connections are kept open for reuse, so the leak detector would flag every one of them
+        return new ShardPool(name, () -> connect(false), size, SHARD_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Router for read-only queries over the replicas listed in db.replica.urls (comma-separated, same
+     * credentials as the primary), opened on first use. Null when no replicas are configured, in which
+     * case everything stays on the shared connection.
+     */
+    public static synchronized ReplicaRouter getReplicaRouter() {
+        if (replicasChecked) {
+            return replicaRouter;
+        }
+        replicasChecked = true;
+        String urls = properties.getProperty("db.replica.urls", "").trim();
+        if (urls.isEmpty()) {
+            return null;
+        }
+        List<Connection> replicas = new ArrayList<>();
+        try {
+            for (String url : urls.split(",")) {
+                replicas.add(connect(url.trim(), false));
+            }
+            ReplicationMonitor monitor = getConnection().isWrapperFor(PGConnection.class)
+                    ? new PgReplicationMonitor() : ReplicationMonitor.NONE;
+            replicaRouter = new ReplicaRouter(getConnection(), replicas, monitor, ReplicaRouter.DEFAULT_REFRESH_MILLIS);
+            logger.info("Routing reads to {} replicas", replicas.size());
+        } catch (SQLException e) {
+            logger.error("Could not connect to the read replicas, reading from the primary", e);
+            for (Connection replica : replicas) {
+                try {
+                    replica.close();
+                } catch (SQLException closeError) {
+                    logger.debug("Error closing replica connection: {}", closeError.getMessage());
+                }
+            }
+        }
+        return replicaRouter;
+    }
+
+    /**
+     * Router over the shard databases listed in db.shard.urls (comma-separated, in shard order, same
+     * credentials as the primary), each with a pool of db.shard.poolSize connections opened on demand.
+     * Null when no shards are configured.
+     */
+    public static synchronized ShardRouter getShardRouter() {
+        if (shardsChecked) {
+            return shardRouter;
+        }
+        shardsChecked = true;
+        String urls = properties.getProperty("db.shard.urls", "").trim();
+        if (urls.isEmpty()) {
+            return null;
+        }
+        int poolSize = Integer.parseInt(properties.getProperty("db.shard.poolSize", "4").trim());
+        List<ShardPool> pools = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            String shardUrl = url.trim();
+            // Pooled connections are kept open for reuse, so the leak detector would flag every one of them
+            pools.add(new ShardPool(shardUrl, () -> connect(shardUrl, false), poolSize, SHARD_TIMEOUT_MILLIS));
+        }
+        shardRouter = new ShardRouter(pools);
+        logger.info("Routing sharded data over {} databases", pools.size());
+        return shardRouter;
+    }
+
+    /**
+     * Allocator the DAOs take client and account IDs from, reserving db.id.blockSize of them per trip to
+     * the database. Null when the block size is 0, in which case the database assigns IDs on insert.
+     */
+    public static synchronized IdAllocator getIdAllocator() {
+        if (idAllocatorChecked) {
+            return idAllocator;
+        }
+        idAllocatorChecked = true;
+        int blockSize = Integer.parseInt(properties.getProperty("db.id.blockSize", "0").trim());
+        if (blockSize > 0) {
+            idAllocator = new HiLoIdAllocator(blockSize);
+            logger.info("Assigning client and account IDs in blocks of {}", blockSize);
+        }
+        return idAllocator;
+    }
+
+    private static Connection connect(boolean trackLeaks) throws SQLException {
+        return connect(properties.getProperty("db.url"), trackLeaks);
+    }
+
+    private static Connection connect(String url, boolean trackLeaks) throws SQLException {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        Connection newConnection = null;
+        try (Span span = Tracer.startSpan("connection.open")) {
+            newConnection = DriverManager.getConnection(
+                url,
+                properties.getProperty("db.username"),
+                properties.getProperty("db.password")
+            );
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.url = url;
+                event.succeeded = newConnection != null;
+                event.commit();
+            }
+        }
+        // Per-statement timing, row counts, JFR statement events, trace spans and the slow-query log, only
+        // paid for when one of them is on. Dedicated connections are also watched for leaks.
+        return trackLeaks || Metrics.isEnabled() || JfrEvents.wrapConnections() || Tracer.isEnabled()
+                || SlowQueryLog.isEnabled() ? InstrumentedConnection.wrap(newConnection, trackLeaks) : newConnection;
+    }
 }
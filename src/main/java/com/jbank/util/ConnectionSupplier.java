@@ -0,0 +1,15 @@
+package com.jbank.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source of dedicated connections for components that run their own transactions
+ * (batch workers, the group-commit writer). Production code uses {@link ConnectionHandler#openConnection()}.
+ *
+ * @author juanf
+ */
+@FunctionalInterface
+public interface ConnectionSupplier {
+    Connection get() throws SQLException;
+}
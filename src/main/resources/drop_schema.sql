@@ -2,6 +2,14 @@
 -- Run this to reset your local development database
 
 -- Drop tables in reverse order (child tables first, then parent tables)
+DROP TABLE IF EXISTS cross_shard_owners CASCADE;
+DROP TABLE IF EXISTS cache_invalidations CASCADE;
+DROP TABLE IF EXISTS movement_keys CASCADE;
+DROP TABLE IF EXISTS outbox_offsets CASCADE;
+DROP TABLE IF EXISTS outbox_events CASCADE;
+DROP TABLE IF EXISTS ledger_checkpoints CASCADE;
+DROP TABLE IF EXISTS batch_partitions CASCADE;
+DROP TABLE IF EXISTS batch_job_runs CASCADE;
 DROP TABLE IF EXISTS client_accounts CASCADE;
 DROP TABLE IF EXISTS credit_lines CASCADE;
 DROP TABLE IF EXISTS savings_accounts CASCADE;
@@ -11,6 +19,10 @@ DROP TABLE IF EXISTS business_clients CASCADE;
 DROP TABLE IF EXISTS personal_clients CASCADE;
 DROP TABLE IF EXISTS clients CASCADE;
 
+-- ID sequences (see schema.sql)
+DROP SEQUENCE IF EXISTS accounts_account_id_seq;
+DROP SEQUENCE IF EXISTS clients_customer_id_seq;
+
 -- -- Drop indexes (if they weren't dropped with CASCADE)
 -- DROP INDEX IF EXISTS idx_clients_type;
 -- DROP INDEX IF EXISTS idx_personal_tax_id;
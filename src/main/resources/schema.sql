@@ -1,8 +1,15 @@
 -- Schema for JBank Database
 
+-- Client and account IDs. Named as SERIAL would name them, so the ID allocator (com.jbank.id) can reserve
+-- blocks of IDs from them for inserts that assign their own. They are not OWNED BY their columns (H2
+-- cannot parse that), so pg_get_serial_sequence does not find them: code that moves them goes through
+-- com.jbank.id.IdSequence, and drop_schema.sql drops them
+CREATE SEQUENCE clients_customer_id_seq;
+CREATE SEQUENCE accounts_account_id_seq;
+
 -- Base clients table (common fields for all client types)
 CREATE TABLE clients (
-    customer_id SERIAL PRIMARY KEY,
+    customer_id INT DEFAULT nextval('clients_customer_id_seq') PRIMARY KEY,
     client_type VARCHAR(10) NOT NULL CHECK (client_type IN ('PERSONAL', 'BUSINESS')),
     phone_number VARCHAR(20) NOT NULL,
     address VARCHAR(200) NOT NULL,
@@ -34,7 +41,7 @@ CREATE TABLE business_clients (
 
 -- Base accounts table (common fields for all account types)
 CREATE TABLE accounts (
-    account_id SERIAL PRIMARY KEY,
+    account_id INT DEFAULT nextval('accounts_account_id_seq') PRIMARY KEY,
     account_type VARCHAR(20) NOT NULL CHECK (account_type IN ('CHECKING', 'SAVINGS', 'CREDIT_LINE')),
     account_name VARCHAR(30) NOT NULL,
     balance DECIMAL(12, 2) NOT NULL
@@ -78,6 +85,91 @@ CREATE TABLE client_accounts (
     FOREIGN KEY (account_id) REFERENCES accounts(account_id) ON DELETE RESTRICT
 );
 
+-- Batch job runs (end-of-day processing), one per job and business period (run_key, e.g. the date).
+-- A run stays open until every partition completes, so a crashed or failed run is resumed by the
+-- next invocation with the same key, and instances starting the same run join it instead of repeating it.
+CREATE TABLE batch_job_runs (
+    run_id SERIAL PRIMARY KEY,
+    job_name VARCHAR(50) NOT NULL,
+    run_key VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' CHECK (status IN ('RUNNING', 'COMPLETED', 'FAILED')),
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP,
+    UNIQUE (job_name, run_key)
+);
+
+-- Account-ID partitions of a batch run: a work queue claimed by workers with FOR UPDATE SKIP LOCKED
+-- checkpoint is the next account_id to process; range_end is exclusive
+-- A RUNNING partition whose lease expired (its worker died) can be reclaimed by any instance
+CREATE TABLE batch_partitions (
+    run_id INT NOT NULL,
+    partition_id INT NOT NULL,
+    range_start INT NOT NULL,
+    range_end INT NOT NULL,
+    checkpoint INT NOT NULL,
+    items_processed INT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED')),
+    attempts INT NOT NULL DEFAULT 0,
+    lease_owner VARCHAR(100),
+    lease_expires_at TIMESTAMPTZ,
+    PRIMARY KEY (run_id, partition_id),
+    FOREIGN KEY (run_id) REFERENCES batch_job_runs(run_id) ON DELETE CASCADE
+);
+
+-- Journal position of the in-memory ledger engine: balances of its credit lines in accounts include
+-- every journal entry up to last_sequence, so only later entries are replayed on startup
+CREATE TABLE ledger_checkpoints (
+    ledger_name VARCHAR(50) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Transactional outbox: one row per balance, client or ownership change, inserted in the same transaction
+-- as the change. Relays claim rows in event_id order with FOR UPDATE SKIP LOCKED, deliver them to their
+-- sinks and delete them; payload is the event's JSON document
+CREATE TABLE outbox_events (
+    event_id BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(10) NOT NULL CHECK (aggregate_type IN ('ACCOUNT', 'CLIENT')),
+    aggregate_id INT NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    payload VARCHAR(1000) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- How far each relay (consumer) has delivered the outbox, updated with every delivered batch
+CREATE TABLE outbox_offsets (
+    consumer VARCHAR(50) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    delivered BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Idempotency keys of journaled money movements, inserted in the same transaction as the balance write.
+-- After a crash, a journal record without a COMMIT or ABORT marker was applied if and only if its key is here
+CREATE TABLE movement_keys (
+    idempotency_key UUID PRIMARY KEY,
+    account_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Cache invalidation messages, for databases without LISTEN/NOTIFY: every node appends its messages and
+-- polls for rows past the last seq it has seen. Rows are purged once they are far behind the newest
+CREATE TABLE cache_invalidations (
+    seq BIGSERIAL PRIMARY KEY,
+    payload VARCHAR(8000) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Joint owners whose client lives on another shard (sharded deployments only). client_accounts can only
+-- reference rows of its own database, so such an ownership is kept here instead, on both the account's
+-- shard and the owner's shard
+CREATE TABLE cross_shard_owners (
+    customer_id INT NOT NULL,
+    account_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (customer_id, account_id)
+);
+
 -- Possible future indexes for better performance? (Not needed for this scale but good to know)
 -- CREATE INDEX idx_clients_type ON clients(client_type);
 -- CREATE INDEX idx_personal_tax_id ON personal_clients(tax_id);
@@ -0,0 +1,167 @@
+package com.jbank.analytics;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for AnalyticsStore against an in-memory database - grouping, owner filters, percentiles,
+ * incremental refresh and parallel scans checked against SQL
+ *
+ * @author juanf
+ */
+public class AnalyticsStoreTest {
+
+    private TestDatabase database;
+    private AnalyticsStore store;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        store = new AnalyticsStore(database.getConnection());
+        execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                + "(1, 'PERSONAL', '1', 'a', 'Ana'), (2, 'PERSONAL', '2', 'b', 'Bo'), (3, 'PERSONAL', '3', 'c', 'Cy'), "
+                + "(4, 'BUSINESS', '4', 'd', 'Dock LLC'), (5, 'BUSINESS', '5', 'e', 'Elm Corp')",
+                "INSERT INTO personal_clients VALUES (1, 't1', 550, 1, 0), (2, 't2', 700, 1, 0), (3, 't3', 810, 1, 0)",
+                "INSERT INTO business_clients VALUES (4, 'e4', 'LLC', 'n', 't', 1, 1, 1), "
+                + "(5, 'e5', 'Corporation', 'n', 't', 1, 1, 1)",
+                "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES "
+                + "(10, 'CHECKING', 'a', 100.50), (11, 'SAVINGS', 'b', 2000.00), (12, 'CREDIT_LINE', 'c', 300.00), "
+                + "(13, 'CREDIT_LINE', 'd', 50.00), (14, 'CREDIT_LINE', 'e', 1000.00), (15, 'CHECKING', 'f', -20.25), "
+                + "(16, 'CREDIT_LINE', 'g', 700.00)",
+                "INSERT INTO checking_accounts VALUES (10, 35, 0), (15, 35, 100)",
+                "INSERT INTO savings_accounts VALUES (11, 1, 6, 0)",
+                "INSERT INTO credit_lines VALUES (12, 1000, 18, 2), (13, 500, 18, 2), (14, 5000, 12, 2), (16, 9000, 10, 2)",
+                "INSERT INTO client_accounts VALUES (1, 10, 'PRIMARY'), (2, 11, 'PRIMARY'), (1, 11, 'JOINT'), "
+                + "(1, 12, 'PRIMARY'), (3, 13, 'PRIMARY'), (4, 14, 'PRIMARY'), (5, 15, 'PRIMARY'), (5, 16, 'PRIMARY'), "
+                + "(4, 16, 'PRIMARY')");
+        store.refresh();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testAggregate_DepositsByAccountType() {
+        List<GroupTotal> totals = store.aggregate(AccountFilter.all().accountTypes("CHECKING", "SAVINGS"),
+                Dimension.ACCOUNT_TYPE);
+
+        assertEquals(2, totals.size());
+        assertEquals("CHECKING", totals.get(0).getGroup());
+        assertEquals(2, totals.get(0).getAccounts());
+        assertEquals(new BigDecimal("80.25"), totals.get(0).getBalance());
+        assertEquals("SAVINGS", totals.get(1).getGroup());
+        assertEquals(new BigDecimal("2000.00"), totals.get(1).getBalance());
+    }
+
+    @Test
+    public void testAggregate_CreditExposureByBusinessType() {
+        List<GroupTotal> totals = store.aggregate(AccountFilter.all().accountTypes("CREDIT_LINE")
+                .ownerClientType("BUSINESS"), Dimension.OWNER_BUSINESS_TYPE);
+
+        // Account 16 has two PRIMARY owners and is counted once, for the lowest client ID (4, LLC)
+        assertEquals(1, totals.size());
+        assertEquals("LLC", totals.get(0).getGroup());
+        assertEquals(2, totals.get(0).getAccounts());
+        assertEquals(new BigDecimal("1700.00"), totals.get(0).getBalance());
+        assertEquals(new BigDecimal("14000.00"), totals.get(0).getCreditLimit());
+
+        assertEquals(0, store.aggregate(AccountFilter.all().ownerBusinessType("Partnership"), Dimension.TOTAL).size());
+    }
+
+    @Test
+    public void testCreditScoreDistribution_OfCreditLineHolders() {
+        AccountFilter creditLines = AccountFilter.all().accountTypes("CREDIT_LINE");
+
+        assertArrayEquals(new long[] { 550, 550, 810 },
+                store.percentiles(creditLines, Measure.OWNER_CREDIT_SCORE, 0, 50, 100));
+        List<GroupTotal> bands = store.aggregate(creditLines, Dimension.CREDIT_SCORE_BAND);
+        assertEquals(List.of("300-579", "800-850", "NONE"), bands.stream().map(GroupTotal::getGroup).toList());
+        assertEquals(2, bands.get(2).getAccounts());
+        assertEquals(0, store.percentiles(AccountFilter.all().minBalance(new BigDecimal("1000000")),
+                Measure.BALANCE, 50).length);
+    }
+
+    @Test
+    public void testRefresh_PicksUpNewAccountsBalancesDeletionsAndOwners() throws Exception {
+        execute("INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (20, 'SAVINGS', 'h', 5.00)",
+                "INSERT INTO savings_accounts VALUES (20, 1, 6, 0)",
+                "INSERT INTO client_accounts VALUES (3, 20, 'PRIMARY')",
+                "UPDATE accounts SET balance = 150.50 WHERE account_id = 10",
+                "DELETE FROM client_accounts WHERE account_id = 15",
+                "DELETE FROM checking_accounts WHERE account_id = 15",
+                "DELETE FROM accounts WHERE account_id = 15");
+
+        store.refresh();
+
+        assertEquals(8, store.getAccountCount());
+        List<GroupTotal> deposits = store.aggregate(AccountFilter.all().accountTypes("CHECKING", "SAVINGS"),
+                Dimension.OWNER_CLIENT_TYPE);
+        assertEquals(1, deposits.size());
+        assertEquals("PERSONAL", deposits.get(0).getGroup());
+        assertEquals(3, deposits.get(0).getAccounts());
+        assertEquals(new BigDecimal("2155.50"), deposits.get(0).getBalance());
+    }
+
+    @Test
+    public void testRefresh_PicksUpIdsCommittedBelowTheLoadedOnes() throws Exception {
+        execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                + "(9, 'PERSONAL', '9', 'i', 'Ivy')",
+                "INSERT INTO personal_clients VALUES (9, 't9', 640, 1, 0)");
+        store.refresh();
+
+        // Committed after the refresh above, with IDs below the highest loaded ones (a hi/lo block, say)
+        execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                + "(7, 'PERSONAL', '7', 'g', 'Gus')",
+                "INSERT INTO personal_clients VALUES (7, 't7', 600, 1, 0)",
+                "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (9, 'SAVINGS', 'z', 40.00)",
+                "INSERT INTO savings_accounts VALUES (9, 1, 6, 0)",
+                "INSERT INTO client_accounts VALUES (7, 9, 'PRIMARY')");
+        store.refresh();
+
+        assertEquals(8, store.getAccountCount());
+        List<GroupTotal> savings = store.aggregate(AccountFilter.all().accountTypes("SAVINGS"),
+                Dimension.CREDIT_SCORE_BAND);
+        assertEquals(List.of("580-669", "670-739"), savings.stream().map(GroupTotal::getGroup).toList());
+        assertEquals(new BigDecimal("40.00"), savings.get(0).getBalance());
+    }
+
+    @Test
+    public void testParallelScan_MatchesSql() throws Exception {
+        // Enough rows for the scan to split across several fork/join tasks
+        execute("INSERT INTO accounts (account_id, account_type, account_name, balance) "
+                + "SELECT \"X\" + 1000, CASE MOD(\"X\", 3) WHEN 0 THEN 'CHECKING' WHEN 1 THEN 'SAVINGS' ELSE 'CREDIT_LINE' END, "
+                + "'bulk', MOD(\"X\" * 7919, 1000000) / 100.0 FROM SYSTEM_RANGE(1, " + (ScanTasks.LEAF_ROWS * 3) + ")");
+        store.reload();
+
+        for (GroupTotal total : store.aggregate(AccountFilter.all().minBalance(new BigDecimal("2500")),
+                Dimension.ACCOUNT_TYPE)) {
+            try (Statement statement = database.getConnection().createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT COUNT(*), SUM(balance) FROM accounts "
+                            + "WHERE balance >= 2500 AND account_type = '" + total.getGroup() + "'")) {
+                rs.next();
+                assertEquals(rs.getLong(1), total.getAccounts());
+                assertEquals(0, rs.getBigDecimal(2).compareTo(total.getBalance()));
+            }
+        }
+    }
+
+    private void execute(String... statements) throws Exception {
+        try (Statement statement = database.getConnection().createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.jbank.api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.jbank.repository.DAO.BusinessClientDAO;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.service.BusinessClientService;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Tests for ApiServer over HTTP against services with mocked DAOs - routing, status codes for rejections
+ * and errors, and the request size limit
+ *
+ * @author juanf
+ */
+public class ApiServerTest {
+
+    // The services are real: mocking them would instrument the classes other tests measure
+    private final CheckingAccountDAO checkingAccountDAO = mock(CheckingAccountDAO.class);
+    private final ClientAccountDAO clientAccountDAO = mock(ClientAccountDAO.class);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ApiServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Router router = ApiServer.routes(
+                new PersonalClientService(mock(PersonalClientDAO.class), clientAccountDAO),
+                new BusinessClientService(mock(BusinessClientDAO.class), clientAccountDAO),
+                new CheckingAccountService(checkingAccountDAO, clientAccountDAO),
+                new SavingsAccountService(mock(SavingsAccountDAO.class), clientAccountDAO),
+                new CreditLineService(mock(CreditLineDAO.class), clientAccountDAO),
+                clientAccountDAO);
+        server = new ApiServer(router, 1024);
+        server.start(0, 2, 16);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testGetAccount_ReturnsJson() throws Exception {
+        when(checkingAccountDAO.getByID(5)).thenReturn(Optional.of(new CheckingAccountEntity(5, 9, 250.0, 35.0, 100.0, "Main \"Ops\"")));
+
+        HttpResponse<String> response = send("GET", "/checking-accounts/5", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("{\"id\":5,\"clientId\":9,\"accountName\":\"Main \\\"Ops\\\"\",\"balance\":250.0,"
+                + "\"overdraftFee\":35.0,\"overdraftLimit\":100.0}", response.body());
+    }
+
+    @Test
+    public void testWithdraw_RejectionReportedWithResultCode() throws Exception {
+        when(checkingAccountDAO.getByIDForWrite(5)).thenReturn(Optional.of(new CheckingAccountEntity(5, 9, 250.0, 35.0, 100.0, "Main")));
+
+        HttpResponse<String> response = send("POST", "/checking-accounts/5/withdrawals", "{\"amount\": 1000}");
+
+        assertEquals(422, response.statusCode());
+        assertEquals("{\"error\":\"OVERDRAFT_LIMIT_EXCEEDED\",\"message\":\"Withdrawal would exceed overdraft limit.\"}",
+                response.body());
+        verify(checkingAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testWithdraw_Accepted() throws Exception {
+        when(checkingAccountDAO.getByIDForWrite(5)).thenReturn(Optional.of(new CheckingAccountEntity(5, 9, 250.0, 35.0, 100.0, "Main")));
+        when(checkingAccountDAO.updateBalance(5, 250.0, 200.0, null)).thenReturn(true);
+
+        HttpResponse<String> response = send("POST", "/checking-accounts/5/withdrawals", "{\"amount\": 50}");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"result\":\"OK\",\"account\":{\"id\":5,"));
+        assertTrue(response.body().contains("\"balance\":200.0"));
+        verify(checkingAccountDAO).updateBalance(5, 250.0, 200.0, null);
+        // The balance the withdrawal starts from is read on the primary, not through a replica
+        verify(checkingAccountDAO, never()).getByID(anyInt());
+    }
+
+    @Test
+    public void testRequestErrors() throws Exception {
+        assertEquals(404, send("GET", "/checking-accounts/77", null).statusCode());
+        assertEquals(404, send("GET", "/no-such-thing", null).statusCode());
+        assertEquals(405, send("DELETE", "/joint-accounts", null).statusCode());
+        assertEquals(400, send("GET", "/checking-accounts/abc", null).statusCode());
+        assertEquals(400, send("POST", "/accounts/3/owners", "{\"clientId\": 1,").statusCode());
+        assertEquals(400, send("POST", "/accounts/3/owners", "{\"clientId\": 1}").statusCode());
+    }
+
+    @Test
+    public void testOversizedBody_Refused() throws Exception {
+        HttpResponse<String> response = send("POST", "/accounts/3/owners", "{\"pad\":\"" + "x".repeat(2000) + "\"}");
+
+        assertEquals(413, response.statusCode());
+        assertEquals("PAYLOAD_TOO_LARGE", JsonReader.parseObject(response.body()).get("error"));
+    }
+
+    @Test
+    public void testDatabaseError_Returns503() throws Exception {
+        when(clientAccountDAO.getClientsByAccount(3)).thenThrow(new SQLException("connection lost"));
+        when(clientAccountDAO.getClientsByAccount(4)).thenReturn(Map.of(1, "PRIMARY"));
+
+        assertEquals(503, send("GET", "/accounts/3/owners", null).statusCode());
+        HttpResponse<String> response = send("GET", "/accounts/4/owners", null);
+        assertEquals("{\"accountId\":4,\"owners\":[{\"clientId\":1,\"ownershipType\":\"PRIMARY\"}]}", response.body());
+    }
+
+    @Test
+    public void testRouterFactory_BuildsRoutesOncePerWorkerAndRetriesFailure() throws Exception {
+        server.stop(0);
+        when(clientAccountDAO.getClientsByAccount(4)).thenReturn(Map.of(1, "PRIMARY"));
+        Router router = ApiServer.routes(
+                new PersonalClientService(mock(PersonalClientDAO.class), clientAccountDAO),
+                new BusinessClientService(mock(BusinessClientDAO.class), clientAccountDAO),
+                new CheckingAccountService(checkingAccountDAO, clientAccountDAO),
+                new SavingsAccountService(mock(SavingsAccountDAO.class), clientAccountDAO),
+                new CreditLineService(mock(CreditLineDAO.class), clientAccountDAO),
+                clientAccountDAO);
+        AtomicInteger attempts = new AtomicInteger();
+        Set<String> built = ConcurrentHashMap.newKeySet();
+        server = new ApiServer(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new SQLException("no connection");
+            }
+            assertTrue(built.add(Thread.currentThread().getName()), "routes built twice for one thread");
+            return router;
+        }, 1024);
+        server.start(0, 2, 16);
+
+        assertEquals(503, send("GET", "/accounts/4/owners", null).statusCode());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send("GET", "/accounts/4/owners", null).statusCode());
+        }
+        // Two workers, plus the accepting thread if it ever ran a request itself
+        assertTrue(built.size() <= 3, "routes built for " + built);
+        assertEquals(built.size() + 1, attempts.get());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,50 @@
+package com.jbank.api;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for JsonReader - request bodies parse into maps, malformed ones are rejected
+ *
+ * @author juanf
+ */
+public class JsonReaderTest {
+
+    @Test
+    public void testParseObject_AllValueTypes() {
+        Map<String, Object> object = JsonReader.parseObject(
+                " { \"amount\": 125.50, \"clientId\": 42, \"name\": \"Jos\\u00e9 \\\"JR\\\"\", \"joint\": false,"
+                        + " \"note\": null, \"ids\": [1, 2e2, -3], \"nested\": {\"a\": true} } ");
+
+        assertEquals(125.5, object.get("amount"));
+        assertEquals(42.0, object.get("clientId"));
+        assertEquals("José \"JR\"", object.get("name"));
+        assertEquals(Boolean.FALSE, object.get("joint"));
+        assertTrue(object.containsKey("note"));
+        assertNull(object.get("note"));
+        assertEquals(List.of(1.0, 200.0, -3.0), object.get("ids"));
+        assertEquals(Map.of("a", true), object.get("nested"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "[1]", "{", "{\"a\":}", "{\"a\":1,}", "{\"a\":1} x", "{a:1}", "{\"a\":\"\\x\"}",
+            "{\"a\":1-2}", "{\"a\":tru}" })
+    public void testParseObject_Malformed(String text) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> JsonReader.parseObject(text));
+        assertTrue(e.getMessage().startsWith("Malformed JSON at offset "));
+    }
+
+    @Test
+    public void testParseObject_DeepNestingRejected() {
+        String text = "{\"a\":" + "[".repeat(100) + "]".repeat(100) + "}";
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parseObject(text));
+    }
+}
@@ -0,0 +1,91 @@
+package com.jbank.api;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for JsonWriter - separators, escaping and UTF-8 encoding
+ *
+ * @author juanf
+ */
+public class JsonWriterTest {
+
+    @Test
+    public void testNestedValues_SeparatorsPlaced() throws Exception {
+        String json = write(writer -> writer.beginObject()
+                .field("id", 7)
+                .field("name", "Ana")
+                .field("active", true)
+                .name("balances").beginArray().value(1.5).value(-20.25).nullValue().endArray()
+                .name("owner").beginObject().endObject()
+                .endObject());
+
+        assertEquals("{\"id\":7,\"name\":\"Ana\",\"active\":true,\"balances\":[1.5,-20.25,null],\"owner\":{}}", json);
+    }
+
+    @Test
+    public void testStrings_EscapedAndEncoded() throws Exception {
+        String json = write(writer -> writer.beginArray()
+                .value("quote \" backslash \\ newline \n tab \t bell \u0007")
+                .value("café €5 \uD83D\uDE00")
+                .value((String) null)
+                .endArray());
+
+        assertEquals("[\"quote \\\" backslash \\\\ newline \\n tab \\t bell \\u0007\",\"café €5 \uD83D\uDE00\",null]", json);
+    }
+
+    @Test
+    public void testNonFiniteDouble_WrittenAsNull() throws Exception {
+        assertEquals("[null,null]", write(writer -> writer.beginArray().value(Double.NaN)
+                .value(Double.POSITIVE_INFINITY).endArray()));
+    }
+
+    @Test
+    public void testLargeOutput_FlushedAcrossBuffer() throws Exception {
+        String json = write(writer -> {
+            writer.beginArray();
+            for (int i = 0; i < 5000; i++) {
+                writer.value("account-" + i);
+            }
+            writer.endArray();
+        });
+
+        assertTrue(json.startsWith("[\"account-0\",\"account-1\","));
+        assertTrue(json.endsWith(",\"account-4999\"]"));
+        assertEquals(5000, json.split(",").length);
+    }
+
+    @Test
+    public void testNewlineDelimitedValues_ExactDecimals() throws Exception {
+        String json = write(writer -> {
+            writer.beginObject().field("id", 1).name("balance").value(new BigDecimal("1234567890.10")).endObject().newline();
+            writer.beginObject().field("id", 2).name("balance").value((BigDecimal) null).endObject().newline();
+        });
+
+        assertEquals("{\"id\":1,\"balance\":1234567890.10}\n{\"id\":2,\"balance\":null}\n", json);
+        assertThrows(IllegalStateException.class, () -> write(writer -> writer.beginArray().newline()));
+    }
+
+    @Test
+    public void testUnbalancedClose_Rejected() {
+        assertThrows(IllegalStateException.class, () -> write(writer -> writer.endObject()));
+    }
+
+    private interface Writes {
+        void write(JsonWriter writer) throws Exception;
+    }
+
+    private static String write(Writes writes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writes.write(writer);
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
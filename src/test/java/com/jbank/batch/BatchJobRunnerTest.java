@@ -0,0 +1,224 @@
+package com.jbank.batch;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.jbank.repository.DAO.BatchJobDAO;
+import com.jbank.repository.entities.BatchPartitionEntity;
+
+/**
+ * Unit tests for BatchJobRunner - run creation and joining, partition claiming, checkpoint resume,
+ * retries, lease loss and several instances sharing one run
+ *
+ * @author juanf
+ */
+@ExtendWith(MockitoExtension.class)
+public class BatchJobRunnerTest {
+
+    @Mock
+    private BatchJobDAO batchJobDAO;
+
+    private BatchJobRunner runner;
+    private final List<int[]> processedRanges = Collections.synchronizedList(new ArrayList<>());
+
+    // Stands in for the batch_partitions work queue: poll() behaves like a SKIP LOCKED claim
+    private final Queue<BatchPartitionEntity> claimable = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        runner = newRunner("node-1");
+
+        lenient().when(batchJobDAO.claimPartition(anyInt(), anyString(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            BatchPartitionEntity partition = claimable.poll();
+            if (partition == null) {
+                return Optional.empty();
+            }
+            partition.setAttempts(partition.getAttempts() + 1);
+            return Optional.of(partition);
+        });
+        lenient().when(batchJobDAO.checkpoint(any(), anyString(), anyInt())).thenAnswer(invocation -> {
+            BatchPartitionEntity partition = invocation.getArgument(0);
+            if ("COMPLETED".equals(partition.getStatus())) {
+                completed.incrementAndGet();
+            }
+            return true;
+        });
+        lenient().when(batchJobDAO.getPartitionCounts(anyInt(), anyInt())).thenAnswer(invocation -> Map.of(
+            "total", completed.get() + claimable.size(),
+            "completed", completed.get(),
+            "claimable", claimable.size(),
+            "leased", 0
+        ));
+        lenient().doAnswer(invocation -> {
+            BatchPartitionEntity partition = invocation.getArgument(0);
+            if (partition.getAttempts() < 3) {
+                claimable.add(partition);
+            }
+            return null;
+        }).when(batchJobDAO).releaseFailed(any(), anyString());
+    }
+
+    private BatchJobRunner newRunner(String instanceId) {
+        return new BatchJobRunner(() -> mock(Connection.class), connection -> batchJobDAO, instanceId);
+    }
+
+    private BatchJob recordingJob(int parallelism, int chunkSize, int failAtId) {
+        return new AbstractBatchJob("test-job", parallelism) {
+            @Override
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            @Override
+            public BatchWorker createWorker(Connection connection) {
+                return (fromId, toId) -> {
+                    if (fromId <= failAtId && failAtId < toId) {
+                        throw new SQLException("boom");
+                    }
+                    processedRanges.add(new int[] { fromId, toId });
+                    return toId - fromId;
+                };
+            }
+        };
+    }
+
+    private long totalProcessed() {
+        synchronized (processedRanges) {
+            return processedRanges.stream().mapToLong(range -> range[1] - range[0]).sum();
+        }
+    }
+
+    @Test
+    public void testNewRun_CreatesPartitionsAndProcessesWholeRange() throws Exception {
+        when(batchJobDAO.createRunIfAbsent("test-job", "2025-01-31")).thenReturn(Optional.of(3));
+        when(batchJobDAO.getAccountIDRange()).thenReturn(Optional.of(new int[] { 1, 100 }));
+        doAnswer(invocation -> {
+            List<BatchPartitionEntity> partitions = invocation.getArgument(0);
+            claimable.addAll(partitions);
+            return null;
+        }).when(batchJobDAO).createPartitions(anyList());
+        when(batchJobDAO.finishRun(3)).thenReturn("COMPLETED");
+
+        BatchProgress progress = runner.run(recordingJob(2, 10, -1), "2025-01-31");
+
+        assertEquals(100, totalProcessed());
+        assertEquals(100, progress.getItemsProcessed());
+        assertEquals(64, progress.getCompletedPartitions());
+        assertTrue(progress.isSuccessful());
+        verify(batchJobDAO, never()).findRunID(anyString(), anyString());
+    }
+
+    @Test
+    public void testJoinExistingRun_StartsAtCheckpoint() throws Exception {
+        when(batchJobDAO.createRunIfAbsent("test-job", "2025-01-31")).thenReturn(Optional.empty());
+        when(batchJobDAO.findRunID("test-job", "2025-01-31")).thenReturn(Optional.of(7));
+        claimable.add(new BatchPartitionEntity(7, 1, 51, 101, 81, 30, "RUNNING"));
+        when(batchJobDAO.finishRun(7)).thenReturn("COMPLETED");
+
+        BatchProgress progress = runner.run(recordingJob(2, 10, -1), "2025-01-31");
+
+        assertEquals(20, totalProcessed());
+        assertEquals(81, processedRanges.get(0)[0]);
+        assertTrue(progress.isSuccessful());
+        verify(batchJobDAO).reopenFailedRun(7);
+        verify(batchJobDAO, never()).createPartitions(anyList());
+    }
+
+    @Test
+    public void testFailingPartition_RetriedUpToMaxAttemptsThenRunFails() throws Exception {
+        when(batchJobDAO.createRunIfAbsent(anyString(), anyString())).thenReturn(Optional.empty());
+        when(batchJobDAO.findRunID(anyString(), anyString())).thenReturn(Optional.of(4));
+        claimable.add(new BatchPartitionEntity(4, 0, 1, 51));
+        claimable.add(new BatchPartitionEntity(4, 1, 51, 101));
+        when(batchJobDAO.finishRun(4)).thenReturn("FAILED");
+
+        BatchProgress progress = runner.run(recordingJob(1, 10, 25), "2025-01-31");
+
+        verify(batchJobDAO, times(3)).releaseFailed(any(), anyString());
+        assertEquals(3, progress.getFailedPartitions());
+        assertFalse(progress.isSuccessful());
+        assertEquals("FAILED", progress.getRunStatus());
+        // The second partition completed; the first never got past its failing chunk
+        assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void testLostLease_AbandonsPartitionWithoutCompletingIt() throws Exception {
+        when(batchJobDAO.createRunIfAbsent(anyString(), anyString())).thenReturn(Optional.empty());
+        when(batchJobDAO.findRunID(anyString(), anyString())).thenReturn(Optional.of(5));
+        claimable.add(new BatchPartitionEntity(5, 0, 1, 51));
+        doReturn(false).when(batchJobDAO).checkpoint(any(), anyString(), anyInt());
+        when(batchJobDAO.finishRun(5)).thenReturn("COMPLETED");
+
+        BatchProgress progress = runner.run(recordingJob(1, 10, -1), "2025-01-31");
+
+        assertEquals(1, progress.getLeasesLost());
+        assertEquals(0, progress.getItemsProcessed());
+        verify(batchJobDAO, never()).releaseFailed(any(), anyString());
+    }
+
+    @Test
+    public void testTwoInstances_ShareRunAndProcessEachIdOnce() throws Exception {
+        when(batchJobDAO.createRunIfAbsent(anyString(), anyString())).thenReturn(Optional.empty());
+        when(batchJobDAO.findRunID(anyString(), anyString())).thenReturn(Optional.of(9));
+        claimable.addAll(BatchPartitioner.split(9, 1, 10_000, 64));
+        when(batchJobDAO.finishRun(9)).thenReturn("COMPLETED");
+
+        BatchJob job = recordingJob(3, 50, -1);
+        BatchJobRunner other = newRunner("node-2");
+        CompletableFuture<BatchProgress> first = CompletableFuture.supplyAsync(() -> runQuietly(runner, job));
+        CompletableFuture<BatchProgress> second = CompletableFuture.supplyAsync(() -> runQuietly(other, job));
+
+        long items = first.get().getItemsProcessed() + second.get().getItemsProcessed();
+        assertEquals(10_000, items);
+        assertEquals(10_000, totalProcessed());
+        boolean[] seen = new boolean[10_001];
+        synchronized (processedRanges) {
+            for (int[] range : processedRanges) {
+                for (int id = range[0]; id < range[1]; id++) {
+                    assertFalse(seen[id], "ID processed twice: " + id);
+                    seen[id] = true;
+                }
+            }
+        }
+    }
+
+    private static BatchProgress runQuietly(BatchJobRunner runner, BatchJob job) {
+        try {
+            return runner.run(job, "2025-01-31");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.jbank.batch;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.repository.entities.BatchPartitionEntity;
+
+/**
+ * Unit tests for BatchPartitioner
+ */
+public class BatchPartitionerTest {
+
+    @Test
+    public void testSplitCoversRangeContiguously() {
+        List<BatchPartitionEntity> partitions = BatchPartitioner.split(1, 1, 103, 4);
+
+        assertEquals(4, partitions.size());
+        assertEquals(1, partitions.get(0).getRangeStart());
+        assertEquals(104, partitions.get(3).getRangeEnd());
+        for (int i = 1; i < partitions.size(); i++) {
+            assertEquals(partitions.get(i - 1).getRangeEnd(), partitions.get(i).getRangeStart());
+        }
+    }
+
+    @Test
+    public void testSplitWidthsDifferByAtMostOne() {
+        List<BatchPartitionEntity> partitions = BatchPartitioner.split(1, 10, 19, 3);
+
+        assertEquals(4, partitions.get(0).getRangeEnd() - partitions.get(0).getRangeStart());
+        assertEquals(3, partitions.get(1).getRangeEnd() - partitions.get(1).getRangeStart());
+        assertEquals(3, partitions.get(2).getRangeEnd() - partitions.get(2).getRangeStart());
+    }
+
+    @Test
+    public void testSplitNarrowRangeReturnsFewerPartitions() {
+        List<BatchPartitionEntity> partitions = BatchPartitioner.split(1, 5, 6, 8);
+        assertEquals(2, partitions.size());
+    }
+
+    @Test
+    public void testNewPartitionsStartAtRangeStart() {
+        for (BatchPartitionEntity partition : BatchPartitioner.split(9, 1, 1000, 5)) {
+            assertEquals(partition.getRangeStart(), partition.getCheckpoint());
+            assertEquals("PENDING", partition.getStatus());
+            assertEquals(9, partition.getRunID());
+        }
+    }
+
+    @Test
+    public void testEmptyRange() {
+        assertTrue(BatchPartitioner.split(1, 10, 5, 4).isEmpty());
+    }
+
+    @Test
+    public void testInvalidPartitionCount() {
+        assertThrows(IllegalArgumentException.class, () -> BatchPartitioner.split(1, 1, 10, 0));
+    }
+}
@@ -0,0 +1,197 @@
+package com.jbank.batch.jobs;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.batch.BatchWorker;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+import com.jbank.util.TestDatabase;
+
+/**
+ * The account batch jobs' workers against the real DAOs, on a manual-commit connection like the one the
+ * runner gives them, with other writers changing the accounts while a chunk is processed.
+ *
+ * @author juanf
+ */
+public class AccountJobsTest {
+
+    private static final String BALANCE_UPDATE = "UPDATE accounts SET balance";
+
+    private TestDatabase database;
+    private CheckingAccountService checkingService;
+    private SavingsAccountService savingsService;
+    private int clientId;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO(database.getConnection());
+        checkingService = new CheckingAccountService(new CheckingAccountDAO(database.getConnection()), clientAccountDAO);
+        savingsService = new SavingsAccountService(new SavingsAccountDAO(database.getConnection()), clientAccountDAO);
+        clientId = new PersonalClientService(new PersonalClientDAO(database.getConnection()), clientAccountDAO)
+                .create(new PersonalClient(0, "Batch Client", "1 Main St", "5551234567", "123456789", 720, 60_000.00,
+                        5_000.00));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testOverdraftSweep_MovesSavingsIntoChecking() throws Exception {
+        int checkingId = overdrawnChecking(-100.00);
+        int savingsId = savings(500.00);
+
+        try (Connection connection = workerConnection(count -> { })) {
+            assertEquals(1, new OverdraftSweepJob().createWorker(connection).processRange(0, Integer.MAX_VALUE));
+            connection.commit();
+        }
+
+        assertEquals(0.00, checkingService.getById(checkingId).orElseThrow().getBalance(), 0.001);
+        assertEquals(400.00, savingsService.getById(savingsId).orElseThrow().getBalance(), 0.001);
+        assertEquals(1, savingsService.getById(savingsId).orElseThrow().getWithdrawalCounter());
+    }
+
+    @Test
+    public void testOverdraftSweep_FailedDepositRollsBackWithdrawal() throws Exception {
+        int checkingId = overdrawnChecking(-100.00);
+        int firstSavingsId = savings(500.00);
+        int secondSavingsId = savings(500.00);
+
+        // The second balance write is the checking deposit
+        try (Connection connection = workerConnection(count -> {
+            if (count == 2) {
+                throw new SQLException("deposit failed");
+            }
+        })) {
+            assertEquals(0, new OverdraftSweepJob().createWorker(connection).processRange(0, Integer.MAX_VALUE));
+            connection.commit();
+        }
+
+        assertEquals(-100.00, checkingService.getById(checkingId).orElseThrow().getBalance(), 0.001);
+        for (int savingsId : new int[] { firstSavingsId, secondSavingsId }) {
+            SavingsAccount stored = savingsService.getById(savingsId).orElseThrow();
+            assertEquals(500.00, stored.getBalance(), 0.001);
+            assertEquals(0, stored.getWithdrawalCounter());
+        }
+    }
+
+    @Test
+    public void testWithdrawalCounterReset_KeepsConcurrentDeposit() throws Exception {
+        int savingsId = savings(500.00);
+        execute("UPDATE savings_accounts SET withdrawal_counter = 3 WHERE account_id = " + savingsId);
+
+        // A deposit commits after the worker read the range but before it resets the counter
+        try (Connection connection = intercept(database.openConnection(), "UPDATE savings_accounts", count ->
+                savingsService.deposit(savingsService.getById(savingsId).orElseThrow(), 50.00))) {
+            connection.setAutoCommit(false);
+            assertEquals(1, new WithdrawalCounterResetJob().createWorker(connection).processRange(0, Integer.MAX_VALUE));
+            connection.commit();
+        }
+
+        SavingsAccount stored = savingsService.getById(savingsId).orElseThrow();
+        assertEquals(550.00, stored.getBalance(), 0.001);
+        assertEquals(0, stored.getWithdrawalCounter());
+    }
+
+    @Test
+    public void testInterestAccrual_RetriesAccountChangedConcurrently() throws Exception {
+        int savingsId = savings(1_000.00);
+
+        // A deposit commits after the worker read the range, so its first interest write is rejected
+        try (Connection connection = workerConnection(count -> {
+            if (count == 1) {
+                savingsService.deposit(savingsService.getById(savingsId).orElseThrow(), 100.00);
+            }
+        })) {
+            assertEquals(1, new InterestAccrualJob().createWorker(connection).processRange(0, Integer.MAX_VALUE));
+            connection.commit();
+        }
+
+        SavingsAccount expected = new SavingsAccount(clientId, savingsId, 1_100.00, "Savings", 2.5, 6);
+        expected.applyInterest();
+        assertEquals(expected.getBalance(), savingsService.getById(savingsId).orElseThrow().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testInterestAccrual_FailsPartitionWhenAccountKeepsChanging() throws Exception {
+        int savingsId = savings(1_000.00);
+
+        try (Connection connection = workerConnection(count ->
+                savingsService.deposit(savingsService.getById(savingsId).orElseThrow(), 1.00))) {
+            BatchWorker worker = new InterestAccrualJob().createWorker(connection);
+            assertThrows(SQLException.class, () -> worker.processRange(0, Integer.MAX_VALUE));
+            connection.rollback();
+        }
+
+        assertEquals(1_003.00, savingsService.getById(savingsId).orElseThrow().getBalance(), 0.001);
+    }
+
+    private interface Hook {
+        // @param count How many matching statements were prepared so far, this one included
+        void beforePrepare(int count) throws SQLException;
+    }
+
+    // A manual-commit connection that runs the hook before each balance write is prepared
+    private Connection workerConnection(Hook hook) throws SQLException {
+        Connection connection = intercept(database.openConnection(), BALANCE_UPDATE, hook);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private static Connection intercept(Connection target, String sqlPrefix, Hook hook) {
+        AtomicInteger count = new AtomicInteger();
+        return (Connection) Proxy.newProxyInstance(AccountJobsTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && ((String) args[0]).startsWith(sqlPrefix)) {
+                        hook.beforePrepare(count.incrementAndGet());
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private int overdrawnChecking(double balance) throws SQLException {
+        Integer accountId = checkingService.create(new CheckingAccount(clientId, 0, 0.00, "Checking", 0.00, 500.00),
+                clientId);
+        assertNotNull(accountId);
+        execute("UPDATE accounts SET balance = " + balance + " WHERE account_id = " + accountId);
+        return accountId;
+    }
+
+    private int savings(double balance) {
+        Integer accountId = savingsService.create(new SavingsAccount(clientId, 0, balance, "Savings", 2.5, 6), clientId);
+        assertNotNull(accountId);
+        return accountId;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = database.getConnection().createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.jbank.cache;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.PersonalClient;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for cross-node cache invalidation: two nodes in this JVM, each with its own connections, caches
+ * and coherence threads, against one in-memory database (H2 has no LISTEN/NOTIFY, so messages go through
+ * the polled table).
+ *
+ * @author juanf
+ */
+public class CacheCoherenceTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private TestDatabase database;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        try (Statement stmt = database.getConnection().createStatement()) {
+            stmt.execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                    + "(1, 'PERSONAL', '5551234567', '1 Main St', 'Ana Diaz')");
+            stmt.execute("INSERT INTO personal_clients VALUES (1, '123-45-6789', 700, 50000, 0)");
+            stmt.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES "
+                    + "(10, 'CHECKING', 'Checking', 100.00)");
+            stmt.execute("INSERT INTO checking_accounts VALUES (10, 35, 100)");
+            stmt.execute("INSERT INTO client_accounts VALUES (1, 10, 'PRIMARY')");
+        }
+        nodeA = new Node(database);
+        nodeB = new Node(database);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        database.close();
+    }
+
+    @Test
+    public void testClientUpdate_EvictsOtherNodesCopy() throws Exception {
+        assertEquals("Ana Diaz", nodeA.clients.getById(1).orElseThrow().getName());
+        assertEquals("Ana Diaz", nodeB.clients.getById(1).orElseThrow().getName());
+        assertEquals(1, nodeB.clientCache.size());
+
+        PersonalClient client = nodeA.clients.getById(1).orElseThrow();
+        client.setName("Ana Diaz Ruiz");
+        nodeA.clients.update(1, client);
+
+        assertEquals(0, nodeA.clientCache.size());
+        await(() -> nodeB.clientCache.size() == 0);
+        assertEquals("Ana Diaz Ruiz", nodeB.clients.getById(1).orElseThrow().getName());
+    }
+
+    @Test
+    public void testDeposit_EvictsOtherNodesAccount() throws Exception {
+        assertEquals(100.0, nodeB.accounts.getById(10).orElseThrow().getBalance(), 0.001);
+
+        CheckingAccount account = nodeA.accounts.getById(10).orElseThrow();
+        assertTrue(nodeA.accounts.deposit(account, 25.0));
+
+        await(() -> nodeB.accountCache.size() == 0);
+        assertEquals(125.0, nodeB.accounts.getById(10).orElseThrow().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testMovementRead_BypassesStaleCache() throws Exception {
+        assertEquals(100.0, nodeB.accounts.getById(10).orElseThrow().getBalance(), 0.001);
+        // A change whose invalidation has not reached node B yet
+        try (Statement stmt = database.getConnection().createStatement()) {
+            stmt.execute("UPDATE accounts SET balance = 150.00 WHERE account_id = 10");
+        }
+        assertEquals(100.0, nodeB.accounts.getById(10).orElseThrow().getBalance(), 0.001);
+
+        CheckingAccount account = nodeB.accounts.getByIdForWrite(10).orElseThrow();
+        assertEquals(150.0, account.getBalance(), 0.001);
+        assertTrue(nodeB.accounts.deposit(account, 25.0));
+        assertEquals(175.0, nodeB.accounts.getById(10).orElseThrow().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testBurst_IsCoalesced() throws Exception {
+        EntityCache<String> cacheA = nodeA.coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, 1000));
+        EntityCache<String> cacheB = nodeB.coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, 1000));
+        for (int id = 1000; id < 1200; id++) {
+            cacheB.get(id, () -> Optional.of("cached"));
+        }
+        assertEquals(200, cacheB.size());
+
+        for (int id = 1000; id < 1200; id++) {
+            cacheA.invalidate(id);
+        }
+
+        await(() -> cacheB.size() == 0);
+        assertTrue(countInvalidationRows() < 20, "invalidations were not coalesced: " + countInvalidationRows());
+    }
+
+    @Test
+    public void testListenerReconnect_FlushesCaches() throws Exception {
+        nodeB.clients.getById(1);
+        nodeB.accounts.getById(10);
+        assertEquals(2, nodeB.clientCache.size() + nodeB.accountCache.size());
+
+        // Drop node B's connections: invalidations sent while it reconnects would be lost
+        nodeB.closeConnections();
+
+        await(() -> nodeB.clientCache.size() == 0 && nodeB.accountCache.size() == 0);
+        await(nodeB.coherence::isListening);
+        PersonalClient client = nodeA.clients.getById(1).orElseThrow();
+        client.setName("Bo Diaz");
+        nodeA.clients.update(1, client);
+        await(() -> nodeB.clients.getById(1).orElseThrow().getName().equals("Bo Diaz"));
+    }
+
+    @Test
+    public void testLoadOverlappingInvalidation_IsNotCached() throws Exception {
+        EntityCache<String> cache = new EntityCache<>(CachedEntity.CLIENT, 10);
+
+        Optional<String> loaded = cache.get(5, () -> {
+            cache.invalidate(5);
+            return Optional.of("read before the change");
+        });
+
+        assertEquals("read before the change", loaded.orElseThrow());
+        assertEquals(0, cache.size());
+        cache.get(5, () -> Optional.of("current"));
+        assertEquals("current", cache.get(5, () -> Optional.of("not loaded")).orElseThrow());
+    }
+
+    @Test
+    public void testPreloadAfterInvalidation_IsNotCached() {
+        EntityCache<String> cache = new EntityCache<>(CachedEntity.CLIENT, 10);
+
+        long stamp = cache.preloadStamp();
+        assertTrue(cache.preload(4, "from snapshot", stamp));
+        cache.invalidate(5);
+
+        assertFalse(cache.preload(5, "read before the change", stamp));
+        assertFalse(cache.preload(4, "again", cache.preloadStamp()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testMessage_SplitsUnderLimitAndRoundTrips() {
+        Map<CachedEntity, Set<Integer>> ids = new EnumMap<>(CachedEntity.class);
+        ids.put(CachedEntity.CLIENT, new LinkedHashSet<>(List.of(1, 2, 3)));
+        Set<Integer> accounts = new LinkedHashSet<>();
+        for (int id = 100_000; id < 103_000; id++) {
+            accounts.add(id);
+        }
+        ids.put(CachedEntity.ACCOUNT, accounts);
+
+        List<String> messages = InvalidationMessage.encode("node1", ids);
+
+        assertTrue(messages.size() > 1);
+        Set<Integer> decodedAccounts = new HashSet<>();
+        Set<Integer> decodedClients = new HashSet<>();
+        for (String text : messages) {
+            assertTrue(text.length() <= InvalidationMessage.MAX_LENGTH);
+            InvalidationMessage message = InvalidationMessage.decode(text);
+            assertEquals("node1", message.getNodeId());
+            decodedAccounts.addAll(message.getIds().getOrDefault(CachedEntity.ACCOUNT, Set.of()));
+            decodedClients.addAll(message.getIds().getOrDefault(CachedEntity.CLIENT, Set.of()));
+        }
+        assertEquals(accounts, decodedAccounts);
+        assertEquals(Set.of(1, 2, 3), decodedClients);
+
+        Map<CachedEntity, Set<Integer>> small = new EnumMap<>(CachedEntity.class);
+        small.put(CachedEntity.CLIENT, new LinkedHashSet<>(List.of(1, 2)));
+        small.put(CachedEntity.ACCOUNT, Set.of(7));
+        assertEquals(List.of("node1|C1,2;A7"), InvalidationMessage.encode("node1", small));
+    }
+
+    private int countInvalidationRows() throws SQLException {
+        try (Statement stmt = database.getConnection().createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM cache_invalidations")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    // One application instance: its own services, caches and coherence threads
+    private static final class Node implements AutoCloseable {
+        final List<Connection> connections = new CopyOnWriteArrayList<>();
+        final CacheCoherence coherence;
+        final EntityCache<PersonalClientEntity> clientCache;
+        final EntityCache<CheckingAccountEntity> accountCache;
+        final PersonalClientService clients;
+        final CheckingAccountService accounts;
+
+        Node(TestDatabase database) throws Exception {
+            Connection connection = database.openConnection();
+            connections.add(connection);
+            coherence = new CacheCoherence(() -> {
+                Connection opened = database.openConnection();
+                connections.add(opened);
+                return opened;
+            }, new PollingTransport(), CacheCoherence.DEFAULT_COALESCE_MILLIS);
+            clientCache = coherence.register(new EntityCache<>(CachedEntity.CLIENT, 100));
+            accountCache = coherence.register(new EntityCache<>(CachedEntity.ACCOUNT, 100));
+            clients = new PersonalClientService(new PersonalClientDAO(connection), new ClientAccountDAO(connection));
+            clients.setCache(clientCache);
+            accounts = new CheckingAccountService(new CheckingAccountDAO(connection), new ClientAccountDAO(connection));
+            accounts.setCache(accountCache);
+            coherence.start();
+            await(coherence::isListening);
+        }
+
+        // Closes the coherence threads' connections, leaving the services' one open
+        void closeConnections() throws SQLException {
+            for (Connection connection : connections.subList(1, connections.size())) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            coherence.close();
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+}
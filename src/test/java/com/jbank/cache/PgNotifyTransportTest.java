@@ -0,0 +1,266 @@
+package com.jbank.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Tests for PgNotifyTransport against a stand-in for PostgreSQL: connections that implement PGConnection
+ * and pass pg_notify payloads to every connection listening on the channel, so the transport and the
+ * coherence threads run unchanged without a server.
+ *
+ * @author juanf
+ */
+public class PgNotifyTransportTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final FakeServer server = new FakeServer();
+
+    @Test
+    public void testForConnection_PicksNotifyOnPostgres() throws Exception {
+        assertInstanceOf(PgNotifyTransport.class,
+                InvalidationTransport.forConnection(server.connect(), CacheCoherence.DEFAULT_CHANNEL));
+        assertInstanceOf(PollingTransport.class,
+                InvalidationTransport.forConnection(mock(Connection.class), CacheCoherence.DEFAULT_CHANNEL));
+    }
+
+    @Test
+    public void testChannel_MustBeAnIdentifier() {
+        assertThrows(IllegalArgumentException.class, () -> new PgNotifyTransport("jbank; DROP TABLE accounts"));
+        assertThrows(IllegalArgumentException.class, () -> new PgNotifyTransport("Jbank"));
+    }
+
+    @Test
+    public void testEncodedMessages_ReachListenersOnTheChannelUnchanged() throws Exception {
+        PgNotifyTransport listener = new PgNotifyTransport("jbank_cache");
+        Connection listening = server.connect();
+        listener.listen(listening);
+        Connection otherChannel = server.connect();
+        new PgNotifyTransport("other_app").listen(otherChannel);
+
+        Map<CachedEntity, Set<Integer>> ids = new EnumMap<>(CachedEntity.class);
+        ids.put(CachedEntity.CLIENT, new LinkedHashSet<>(List.of(1, 2)));
+        Set<Integer> accounts = new LinkedHashSet<>();
+        for (int id = 100_000; id < 102_000; id++) {
+            accounts.add(id);
+        }
+        ids.put(CachedEntity.ACCOUNT, accounts);
+        List<String> messages = InvalidationMessage.encode("node1", ids);
+        new PgNotifyTransport("jbank_cache").send(server.connect(), messages);
+
+        assertTrue(messages.size() > 1);
+        assertEquals(messages, listener.receive(listening, 100));
+        Set<Integer> decoded = new LinkedHashSet<>();
+        for (String text : messages) {
+            decoded.addAll(InvalidationMessage.decode(text).getIds().getOrDefault(CachedEntity.ACCOUNT, Set.of()));
+        }
+        assertEquals(accounts, decoded);
+        assertEquals(List.of(), listener.receive(listening, 10));
+        assertEquals(List.of(), new PgNotifyTransport("other_app").receive(otherChannel, 10));
+    }
+
+    @Test
+    public void testListenerReconnect_FlushesCachesAndKeepsReceiving() throws Exception {
+        try (CacheCoherence nodeA = node(); CacheCoherence nodeB = node()) {
+            EntityCache<String> cacheA = nodeA.register(new EntityCache<>(CachedEntity.ACCOUNT, 100));
+            EntityCache<String> cacheB = nodeB.register(new EntityCache<>(CachedEntity.ACCOUNT, 100));
+            nodeA.start();
+            nodeB.start();
+            await(() -> nodeA.isListening() && nodeB.isListening());
+
+            cacheB.get(10, () -> Optional.of("balance 100"));
+            cacheB.get(11, () -> Optional.of("balance 200"));
+            cacheA.invalidate(10);
+            await(() -> cacheB.size() == 1);
+
+            // The server drops every connection: anything sent until node B listens again is lost
+            server.dropAll();
+            await(() -> cacheB.size() == 0);
+            await(nodeB::isListening);
+
+            cacheB.get(12, () -> Optional.of("balance 300"));
+            cacheA.invalidate(12);
+            await(() -> cacheB.size() == 0);
+        }
+    }
+
+    private CacheCoherence node() {
+        return new CacheCoherence(server::connect, new PgNotifyTransport(CacheCoherence.DEFAULT_CHANNEL),
+                CacheCoherence.DEFAULT_COALESCE_MILLIS);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    // Delivers pg_notify payloads to the connections listening on the channel, like one PostgreSQL database
+    private static final class FakeServer {
+        private final List<FakeConnection> connections = new CopyOnWriteArrayList<>();
+
+        Connection connect() {
+            FakeConnection connection = new FakeConnection(this);
+            connections.add(connection);
+            return connection.proxy;
+        }
+
+        void notify(String channel, String payload) {
+            for (FakeConnection connection : connections) {
+                if (connection.channels.contains(channel)) {
+                    connection.notifications.add(notification(channel, payload));
+                }
+            }
+        }
+
+        void dropAll() {
+            for (FakeConnection connection : connections) {
+                connection.closed = true;
+            }
+            connections.clear();
+        }
+    }
+
+    private static final class FakeConnection implements InvocationHandler {
+        final Set<String> channels = new CopyOnWriteArraySet<>();
+        final BlockingQueue<PGNotification> notifications = new LinkedBlockingQueue<>();
+        final Connection proxy;
+        private final FakeServer server;
+        volatile boolean closed;
+
+        FakeConnection(FakeServer server) {
+            this.server = server;
+            this.proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class, PGConnection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(self);
+                case "unwrap":
+                    return self;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("This connection has been closed.");
+            }
+            switch (method.getName()) {
+                case "setAutoCommit":
+                    return null;
+                case "createStatement":
+                    return statement();
+                case "prepareStatement":
+                    return notifyStatement((String) args[0]);
+                case "getNotifications":
+                    return receive(args == null ? 0 : (Integer) args[0]);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private PGNotification[] receive(int timeoutMillis) throws InterruptedException, SQLException {
+            List<PGNotification> received = new ArrayList<>();
+            PGNotification first = notifications.poll(Math.max(timeoutMillis, 1), TimeUnit.MILLISECONDS);
+            if (closed) {
+                throw new SQLException("An I/O error occurred while sending to the backend.");
+            }
+            if (first != null) {
+                received.add(first);
+                notifications.drainTo(received);
+            }
+            return received.toArray(new PGNotification[0]);
+        }
+
+        private Statement statement() {
+            return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+                    (self, method, args) -> {
+                        if (method.getName().equals("execute") && ((String) args[0]).startsWith("LISTEN ")) {
+                            channels.add(((String) args[0]).substring("LISTEN ".length()));
+                            return false;
+                        }
+                        if (method.getName().equals("close")) {
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private PreparedStatement notifyStatement(String sql) {
+            assertEquals("SELECT pg_notify(?, ?)", sql);
+            String[] parameters = new String[2];
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (self, method, args) -> {
+                        switch (method.getName()) {
+                            case "setString":
+                                parameters[(Integer) args[0] - 1] = (String) args[1];
+                                return null;
+                            case "executeQuery":
+                                server.notify(parameters[0], parameters[1]);
+                                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                        new Class<?>[] { ResultSet.class }, (rs, m, a) -> null);
+                            case "close":
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static PGNotification notification(String channel, String payload) {
+        return new PGNotification() {
+            @Override
+            public String getName() {
+                return channel;
+            }
+
+            @Override
+            public int getPID() {
+                return 4242;
+            }
+
+            @Override
+            public String getParameter() {
+                return payload;
+            }
+        };
+    }
+}
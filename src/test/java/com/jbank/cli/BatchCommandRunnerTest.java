@@ -0,0 +1,109 @@
+package com.jbank.cli;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.CreditLineService;
+import com.jbank.service.SavingsAccountService;
+
+/**
+ * Unit tests for BatchCommandRunner - command parsing, results per line, failures not stopping the
+ * script, and account types looked up once per run
+ *
+ * @author juanf
+ */
+@ExtendWith(MockitoExtension.class)
+public class BatchCommandRunnerTest {
+
+    @Mock
+    private CheckingAccountDAO checkingAccountDAO;
+
+    @Mock
+    private SavingsAccountDAO savingsAccountDAO;
+
+    @Mock
+    private CreditLineDAO creditLineDAO;
+
+    @Mock
+    private ClientAccountDAO clientAccountDAO;
+
+    private BatchCommandRunner runner;
+
+    @BeforeEach
+    public void setUp() {
+        runner = new BatchCommandRunner(new CheckingAccountService(checkingAccountDAO, clientAccountDAO),
+                new SavingsAccountService(savingsAccountDAO, clientAccountDAO),
+                new CreditLineService(creditLineDAO, clientAccountDAO), clientAccountDAO);
+    }
+
+    @Test
+    public void testRun_ResultsAndSummary() throws Exception {
+        when(checkingAccountDAO.getByIDForWrite(5)).thenReturn(Optional.of(new CheckingAccountEntity(5, 1, 100.0, 35.0, 0.0, "Main")));
+        when(creditLineDAO.getByIDForWrite(9)).thenReturn(Optional.of(new CreditLineEntity(9, 1, 0.0, 5000.0, 18.0, 2.0, "Card")));
+        when(checkingAccountDAO.updateBalance(5, 100.0, 125.0, null)).thenReturn(true);
+        when(creditLineDAO.updateBalance(9, 0.0, 100.0, null)).thenReturn(true);
+        when(checkingAccountDAO.create(any())).thenReturn(77);
+        when(clientAccountDAO.assignAccountToClient(3, 77, "PRIMARY")).thenReturn(true);
+
+        String script = String.join("\n",
+                "# end-of-day adjustments",
+                "deposit 5 25.00",
+                "withdraw 5 1000",
+                "",
+                "charge 9 100",
+                "charge 5 10",
+                "bogus 1",
+                "deposit 5 abc",
+                "open-checking 3 100 25 500 \"Ops Float\"");
+        StringWriter out = new StringWriter();
+        BatchSummary summary = runner.run(new BufferedReader(new StringReader(script)), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals("ok 2 deposit account=5 amount=25.00", lines[0]);
+        assertEquals("FAIL 3 withdraw: OVERDRAFT_LIMIT_EXCEEDED (Withdrawal would exceed overdraft limit.)", lines[1]);
+        assertEquals("ok 5 charge account=9 amount=100.00", lines[2]);
+        assertEquals("FAIL 6 charge: account 5 is a checking account", lines[3]);
+        assertEquals("FAIL 7 bogus: unknown command", lines[4]);
+        assertEquals("FAIL 8 deposit: not a number: abc", lines[5]);
+        assertEquals("ok 9 open-checking account=77", lines[6]);
+        assertTrue(lines[7].startsWith("7 commands: 3 succeeded, 4 failed in "));
+        assertEquals(3, summary.getSucceeded());
+        assertEquals(4, summary.getFailed());
+
+        // Account 5 was found as checking once; later commands go straight to the checking lookup
+        verify(checkingAccountDAO, times(3)).getByIDForWrite(5);
+        verify(savingsAccountDAO, never()).getByIDForWrite(5);
+        verify(savingsAccountDAO, times(1)).getByIDForWrite(9);
+    }
+
+    @Test
+    public void testTokenize_QuotedArguments() throws Exception {
+        assertEquals(List.of("open-savings", "3", "50", "1.5", "6", "Rainy Day Fund"),
+                BatchCommandRunner.tokenize("open-savings  3 50 1.5\t6 \"Rainy Day Fund\""));
+        assertThrows(BatchCommandRunner.CommandException.class, () -> BatchCommandRunner.tokenize("close \"5"));
+    }
+}
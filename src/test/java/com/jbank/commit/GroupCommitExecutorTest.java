@@ -0,0 +1,237 @@
+package com.jbank.commit;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for GroupCommitExecutor - shared commits, per-write results, conflict detection and
+ * fallback to individual writes
+ *
+ * @author juanf
+ */
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitExecutorTest {
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement balanceStmt;
+
+    @Mock
+    private PreparedStatement counterStmt;
+
+    private GroupCommitExecutor executor;
+
+    // Account IDs whose stored balance no longer matches (conditional update hits no row)
+    private Set<Integer> conflicting = Set.of();
+    // Account IDs the database rejects outright
+    private Set<Integer> broken = Set.of();
+
+    private final AtomicInteger currentAccount = new AtomicInteger();
+    private final List<Integer> pendingAccounts = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        lenient().when(connection.prepareStatement(contains("UPDATE accounts"))).thenReturn(balanceStmt);
+        lenient().when(connection.prepareStatement(contains("UPDATE savings_accounts"))).thenReturn(counterStmt);
+
+        lenient().doAnswer(invocation -> {
+            currentAccount.set(invocation.getArgument(1));
+            return null;
+        }).when(balanceStmt).setInt(eq(2), anyInt());
+        lenient().doAnswer(invocation -> pendingAccounts.add(currentAccount.get())).when(balanceStmt).addBatch();
+        lenient().when(balanceStmt.executeBatch()).thenAnswer(invocation -> {
+            List<Integer> accounts = new ArrayList<>(pendingAccounts);
+            pendingAccounts.clear();
+            if (accounts.stream().anyMatch(broken::contains)) {
+                if (accounts.size() > 1) {
+                    throw new BatchUpdateException("batch rejected", new int[0]);
+                }
+                throw new SQLException("write rejected");
+            }
+            return accounts.stream().mapToInt(id -> conflicting.contains(id) ? 0 : 1).toArray();
+        });
+        lenient().when(counterStmt.executeBatch()).thenReturn(new int[] { 1 });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    private GroupCommitExecutor newExecutor(int maxBatchSize) {
+        // A long window so the whole test batch lands in one group
+        return new GroupCommitExecutor(() -> connection, maxBatchSize, 1_000_000);
+    }
+
+    @Test
+    public void testConcurrentWrites_ShareOneCommit() throws Exception {
+        executor = newExecutor(10);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            results.add(executor.submit(new BalanceWrite(id, 100.00, 150.00)));
+        }
+
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        verify(connection, times(1)).commit();
+        assertEquals(1, executor.getCommitCount());
+        assertEquals(10, executor.getWriteCount());
+    }
+
+    @Test
+    public void testConflictingWrite_OnlyThatCallerGetsFalse() throws Exception {
+        conflicting = Set.of(2);
+        executor = newExecutor(3);
+
+        CompletableFuture<Boolean> first = executor.submit(new BalanceWrite(1, 100.00, 150.00));
+        CompletableFuture<Boolean> second = executor.submit(new BalanceWrite(2, 100.00, 150.00));
+        CompletableFuture<Boolean> third = executor.submit(new BalanceWrite(3, 100.00, 150.00));
+
+        assertTrue(first.get());
+        assertFalse(second.get());
+        assertTrue(third.get());
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void testWithdrawals_AddedOnlyForAppliedWrites() throws Exception {
+        conflicting = Set.of(2);
+        executor = newExecutor(2);
+
+        CompletableFuture<Boolean> applied = executor.submit(new BalanceWrite(1, 100.00, 50.00, 1));
+        CompletableFuture<Boolean> rejected = executor.submit(new BalanceWrite(2, 100.00, 50.00, 2));
+
+        assertTrue(applied.get());
+        assertFalse(rejected.get());
+        // Added to the stored counter, so two withdrawals in one group that read the same counter both count
+        verify(connection).prepareStatement(contains("withdrawal_counter = withdrawal_counter + ?"));
+        verify(counterStmt).setInt(1, 1);
+        verify(counterStmt, never()).setInt(1, 2);
+        verify(counterStmt, times(1)).addBatch();
+    }
+
+    @Test
+    public void testMovementKeys_RecordedOnlyForAppliedWrites() throws Exception {
+        PreparedStatement keyStmt = mock(PreparedStatement.class);
+        when(connection.prepareStatement(contains("movement_keys"))).thenReturn(keyStmt);
+        conflicting = Set.of(2);
+        executor = newExecutor(2);
+        UUID appliedKey = UUID.randomUUID();
+        UUID rejectedKey = UUID.randomUUID();
+
+        CompletableFuture<Boolean> applied = executor.submit(new BalanceWrite(1, 100.00, 150.00, null, null, appliedKey));
+        CompletableFuture<Boolean> rejected = executor.submit(new BalanceWrite(2, 100.00, 150.00, null, null, rejectedKey));
+
+        assertTrue(applied.get());
+        assertFalse(rejected.get());
+        verify(keyStmt).setObject(1, appliedKey);
+        verify(keyStmt, never()).setObject(1, rejectedKey);
+        verify(keyStmt, times(1)).executeBatch();
+    }
+
+    @Test
+    public void testRejectedBatch_RetriesWritesIndividually() throws Exception {
+        broken = Set.of(2);
+        executor = newExecutor(3);
+
+        CompletableFuture<Boolean> first = executor.submit(new BalanceWrite(1, 100.00, 150.00));
+        CompletableFuture<Boolean> second = executor.submit(new BalanceWrite(2, 100.00, 150.00));
+        CompletableFuture<Boolean> third = executor.submit(new BalanceWrite(3, 100.00, 150.00));
+
+        assertTrue(first.get());
+        ExecutionException failure = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(SQLException.class, failure.getCause());
+        assertTrue(third.get());
+        assertEquals(2, executor.getCommitCount());
+    }
+
+    @Test
+    public void testApply_UnwrapsSQLException() {
+        broken = Set.of(7);
+        executor = newExecutor(1);
+
+        assertThrows(SQLException.class, () -> executor.apply(new BalanceWrite(7, 100.00, 150.00)));
+    }
+
+    @Test
+    public void testClose_RejectsNewWrites() {
+        executor = newExecutor(1);
+        executor.close();
+
+        CompletableFuture<Boolean> result = executor.submit(new BalanceWrite(1, 100.00, 150.00));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    public void testCloseRacingSubmit_EveryWriteCompletes() throws Exception {
+        executor = new GroupCommitExecutor(() -> connection, 16, 0);
+        List<CompletableFuture<Boolean>> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 2_000; i++) {
+                    results.add(executor.submit(new BalanceWrite(1 + i % 10, 100.00, 150.00)));
+                }
+            });
+            submitters.add(thread);
+            thread.start();
+        }
+        started.await();
+        executor.close();
+        for (Thread thread : submitters) {
+            thread.join();
+        }
+
+        // Queued before close: committed; after: refused. None may be left waiting
+        for (CompletableFuture<Boolean> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.jbank.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for DataExporter against an in-memory database - CSV quoting, JSON types, filters and gzip files
+ *
+ * @author juanf
+ */
+public class DataExporterTest {
+
+    private TestDatabase database;
+    private DataExporter exporter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        exporter = new DataExporter(database.getConnection());
+        try (Statement statement = database.getConnection().createStatement()) {
+            statement.execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                    + "(1, 'PERSONAL', '555-0101', '1 Main St, Springfield', 'Ana \"Annie\" Ruiz'), "
+                    + "(2, 'BUSINESS', '555-0102', '9 Dock Rd', 'Harbor Supply')");
+            statement.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES "
+                    + "(10, 'CHECKING', 'Everyday', 1520.75), (11, 'SAVINGS', 'Rainy Day', 30000.10), "
+                    + "(12, 'CREDIT_LINE', 'Card', 250.00)");
+            statement.execute("INSERT INTO checking_accounts VALUES (10, 35.00, 500.00)");
+            statement.execute("INSERT INTO savings_accounts VALUES (11, 1.50, 6, 2)");
+            statement.execute("INSERT INTO credit_lines VALUES (12, 5000.00, 18.00, 2.00)");
+            statement.execute("INSERT INTO client_accounts VALUES (1, 10, 'PRIMARY'), (1, 11, 'PRIMARY'), "
+                    + "(2, 11, 'JOINT'), (2, 12, 'PRIMARY')");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testCsv_HeaderAndQuoting() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(ExportTable.CLIENTS, ExportFilter.all(), ExportFormat.CSV, out);
+
+        assertEquals(2, rows);
+        assertEquals("customer_id,client_type,name,address,phone_number\r\n"
+                + "1,PERSONAL,\"Ana \"\"Annie\"\" Ruiz\",\"1 Main St, Springfield\",555-0101\r\n"
+                + "2,BUSINESS,Harbor Supply,9 Dock Rd,555-0102\r\n", out.toString(StandardCharsets.UTF_8));
+        assertTrue(database.getConnection().getAutoCommit());
+    }
+
+    @Test
+    public void testNdjson_TypedValuesAndNulls() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(ExportTable.ACCOUNTS, ExportFilter.all().accountType("savings"), ExportFormat.NDJSON, out);
+
+        assertEquals("{\"account_id\":11,\"account_type\":\"SAVINGS\",\"account_name\":\"Rainy Day\","
+                + "\"balance\":30000.10,\"overdraft_fee\":null,\"overdraft_limit\":null,"
+                + "\"savings_interest_rate\":1.50,\"withdrawal_limit\":6,\"withdrawal_counter\":2,"
+                + "\"credit_limit\":null,\"credit_interest_rate\":null,\"min_payment_percentage\":null}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFilters_ClientTypeAndBalanceRange() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportFilter filter = ExportFilter.all().clientType("BUSINESS").minBalance(new BigDecimal("100"))
+                .maxBalance(new BigDecimal("1000"));
+        long rows = exporter.export(ExportTable.CLIENT_ACCOUNTS, filter, ExportFormat.CSV, out);
+
+        assertEquals(1, rows);
+        assertEquals("customer_id,client_type,account_id,account_type,ownership_type,balance\r\n"
+                + "2,BUSINESS,12,CREDIT_LINE,PRIMARY,250.00\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFilters_RejectedWhereTheyDoNotApply() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ExportTable.CLIENTS.sql(ExportFilter.all().minBalance(BigDecimal.ONE)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ExportTable.ACCOUNTS.sql(ExportFilter.all().clientType("PERSONAL")));
+        assertThrows(IllegalArgumentException.class, () -> ExportFilter.all().accountType("BROKERAGE"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ExportFilter.all().minBalance(BigDecimal.TEN).maxBalance(BigDecimal.ONE));
+    }
+
+    @Test
+    public void testExportToFile_Gzip(@TempDir Path directory) throws Exception {
+        Path target = directory.resolve("personal.ndjson.gz");
+        ExportResult result = exporter.exportToFile(ExportTable.PERSONAL_CLIENTS, ExportFilter.all(),
+                ExportFormat.NDJSON, target, true);
+
+        assertEquals(0, result.getRows());
+        assertEquals(Files.size(target), result.getBytes());
+        assertFalse(Files.exists(directory.resolve("personal.ndjson.gz.part")));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+
+        try (Statement statement = database.getConnection().createStatement()) {
+            statement.execute("INSERT INTO personal_clients VALUES (1, '123-45-6789', 720, 85000.00, 1200.50)");
+        }
+        result = exporter.exportToFile(ExportTable.PERSONAL_CLIENTS, ExportFilter.all(), ExportFormat.NDJSON, target, true);
+        assertEquals(1, result.getRows());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(json.startsWith("{\"customer_id\":1,\"name\":\"Ana \\\"Annie\\\" Ruiz\","));
+            assertTrue(json.endsWith("\"credit_score\":720,\"yearly_income\":85000.00,\"total_debt\":1200.50}\n"));
+        }
+    }
+
+    @Test
+    public void testExport_ReadOnlyTransactionRestoredAfterwards() throws Exception {
+        Connection real = database.getConnection();
+        boolean[] readOnly = { false };
+        List<Boolean> readOnlyAtQuery = new ArrayList<>();
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("setReadOnly")) {
+                        readOnly[0] = (Boolean) args[0];
+                    } else if (method.getName().equals("prepareStatement")) {
+                        readOnlyAtQuery.add(readOnly[0]);
+                    }
+                    try {
+                        return method.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        new DataExporter(connection).export(ExportTable.ACCOUNTS, ExportFilter.all(), ExportFormat.CSV,
+                new ByteArrayOutputStream());
+
+        assertEquals(List.of(true), readOnlyAtQuery);
+        assertFalse(readOnly[0]);
+        assertTrue(real.getAutoCommit());
+    }
+}
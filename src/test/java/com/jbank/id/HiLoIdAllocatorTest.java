@@ -0,0 +1,155 @@
+package com.jbank.id;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for hi/lo ID allocation and client-side IDs in the DAOs, against an in-memory database.
+ *
+ * @author juanf
+ */
+public class HiLoIdAllocatorTest {
+
+    private TestDatabase database;
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        connection = database.getConnection();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testBlocks_OneSequenceValuePerBlock() throws Exception {
+        HiLoIdAllocator.configure(connection, 10);
+        HiLoIdAllocator allocator = new HiLoIdAllocator(10);
+
+        int[] ids = allocator.nextIds(connection, IdSequence.CLIENT, 25);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[0] + i, ids[i]);
+        }
+        // Three blocks taken, so the next one starts three steps on
+        assertEquals(ids[0] + 30, IdSequence.CLIENT.nextValue(connection));
+    }
+
+    @Test
+    public void testNodesAndPlainInserts_NeverShareIds() throws Exception {
+        HiLoIdAllocator.configure(connection, 5);
+        HiLoIdAllocator node1 = new HiLoIdAllocator(5);
+        HiLoIdAllocator node2 = new HiLoIdAllocator(5);
+        PersonalClientDAO plainDAO = new PersonalClientDAO(connection);
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            assertTrue(ids.add(node1.nextId(connection, IdSequence.CLIENT)));
+            assertTrue(ids.add(node2.nextId(connection, IdSequence.CLIENT)));
+            if (i % 4 == 0) {
+                // A plain insert takes the first ID of a whole block
+                assertTrue(ids.add(plainDAO.create(client(i))));
+            }
+        }
+        assertEquals(27, ids.size());
+    }
+
+    @Test
+    public void testStripedShard_IdsStayInStripe() throws Exception {
+        HiLoIdAllocator.configure(connection, 4, 2, 3);
+        HiLoIdAllocator allocator = new HiLoIdAllocator(4, 3);
+
+        for (int id : allocator.nextIds(connection, IdSequence.CLIENT, 10)) {
+            assertEquals(2, id % 3);
+        }
+        assertEquals(2, new PersonalClientDAO(connection).create(client(0)) % 3);
+    }
+
+    @Test
+    public void testSequenceNotConfiguredForBlocks_Refused() throws Exception {
+        HiLoIdAllocator.configure(connection, 10);
+
+        assertThrows(SQLException.class, () -> new HiLoIdAllocator(20).nextId(connection, IdSequence.CLIENT));
+    }
+
+    @Test
+    public void testCreateAll_BatchesClientsUnderAllocatedIds() throws Exception {
+        HiLoIdAllocator.configure(connection, 50);
+        PersonalClientDAO dao = new PersonalClientDAO(connection);
+        dao.setIdAllocator(new HiLoIdAllocator(50));
+        List<PersonalClientEntity> clients = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            clients.add(client(i));
+        }
+
+        List<Integer> ids = dao.createAll(clients);
+
+        assertEquals(5, ids.size());
+        assertEquals(5, dao.getAll().size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("Client " + i, dao.getByID(ids.get(i)).orElseThrow().getName());
+        }
+    }
+
+    @Test
+    public void testPreassignedIds_LinkParentAndChildRows() throws Exception {
+        HiLoIdAllocator.configure(connection, 20);
+        HiLoIdAllocator allocator = new HiLoIdAllocator(20);
+        int clientId = allocator.nextId(connection, IdSequence.CLIENT);
+        int accountId = allocator.nextId(connection, IdSequence.ACCOUNT);
+
+        connection.setAutoCommit(false);
+        assertEquals(clientId, new PersonalClientDAO(connection).createWithID(client(0), clientId));
+        assertEquals(accountId, new CheckingAccountDAO(connection)
+                .createWithID(new CheckingAccountEntity(0, clientId, 75.0, 35.0, 0.0, "Main"), accountId));
+        assertTrue(new ClientAccountDAO(connection).assignAccountToClient(clientId, accountId, "PRIMARY"));
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        assertEquals(Map.of(accountId, "PRIMARY"), new ClientAccountDAO(connection).getAccountsByClient(clientId));
+    }
+
+    private static PersonalClientEntity client(int index) {
+        return new PersonalClientEntity(0, "555-010" + index, index + " Main St", "Client " + index,
+                "123-45-67" + (10 + index), 700, 50000.0, 1000.0);
+    }
+
+    @Test
+    public void testRestartAfterMaxId_StaysInStripeAboveReservedBlocks() throws Exception {
+        HiLoIdAllocator.configure(connection, 10, 1, 3);
+        int[] ids = new HiLoIdAllocator(10, 3).nextIds(connection, IdSequence.ACCOUNT, 4);
+        CheckingAccountDAO dao = new CheckingAccountDAO(connection);
+        for (int id : ids) {
+            dao.createWithID(new CheckingAccountEntity(0, 0, 0.0, 25.0, 100.0, "Restored"), id);
+        }
+
+        IdSequence.ACCOUNT.restartAfterMaxId(connection);
+
+        long next = IdSequence.ACCOUNT.nextValue(connection);
+        assertEquals(1, next % 3);
+        assertTrue(next > ids[0] + 9 * 3, "next block must start past the whole reserved block");
+        assertEquals(30, IdSequence.ACCOUNT.increment(connection));
+    }
+}
@@ -0,0 +1,97 @@
+package com.jbank.jfr;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.jbank.metrics.InstrumentedConnection;
+import com.jbank.metrics.Metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Unit tests for the JFR events - emitted only while a recording enables them, with the fields the
+ * instrumented code fills in
+ *
+ * @author juanf
+ */
+public class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEvents_RecordedWhileEnabled() throws Exception {
+        String sql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(sql)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+        Connection instrumented = InstrumentedConnection.wrap(connection);
+
+        Path file = tempDir.resolve("test.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OperationEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(SqlStatementEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(TransactionEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            assertTrue(JfrEvents.operationsEnabled());
+
+            try (Metrics.Sample sample = Metrics.time("service.Test.withdraw")) {
+                sample.movement(42, 12.50);
+                sample.fail("REJECTED");
+            }
+            instrumented.setAutoCommit(false);
+            instrumented.prepareStatement(sql).executeUpdate();
+            instrumented.prepareStatement(sql).executeUpdate();
+            instrumented.commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+        assertFalse(JfrEvents.operationsEnabled());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent operation = only(events, "com.jbank.Operation");
+        assertEquals("service.Test.withdraw", operation.getString("operation"));
+        assertEquals(42, operation.getInt("accountId"));
+        assertEquals(12.50, operation.getDouble("amount"), 0.001);
+        assertEquals("REJECTED", operation.getString("outcome"));
+
+        assertEquals(2, events.stream().filter(e -> e.getEventType().getName().equals("com.jbank.SqlStatement"))
+                .filter(e -> e.getString("sql").equals(sql) && e.getLong("rows") == 1).count());
+        RecordedEvent transaction = only(events, "com.jbank.Transaction");
+        assertEquals(2, transaction.getInt("statements"));
+        assertEquals("COMMITTED", transaction.getString("outcome"));
+    }
+
+    @Test
+    public void testNoRecording_SampleIsNoop() {
+        assertFalse(JfrEvents.operationsEnabled());
+
+        try (Metrics.Sample sample = Metrics.time("service.Test.deposit")) {
+            sample.movement(1, 1.00);
+            assertFalse(sample.outcome(false, "REJECTED"));
+        }
+
+        assertTrue(Metrics.registry().getHistogramSnapshots().isEmpty());
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), "events named " + name);
+        return matching.get(0);
+    }
+}
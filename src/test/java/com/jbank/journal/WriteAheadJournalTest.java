@@ -0,0 +1,183 @@
+package com.jbank.journal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.MovementKeyDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Unit tests for WriteAheadJournal and JournalReader - append and replay, segment rollover and
+ * retention, reopening after a crash, CRC detection of torn records, and the keys and markers the
+ * services journal around their database writes
+ *
+ * @author juanf
+ */
+public class WriteAheadJournalTest {
+
+    @TempDir
+    Path directory;
+
+    // Room for 10 records per segment
+    private static final int SEGMENT_SIZE = JournalSegment.RECORD_SIZE * 10;
+
+    private WriteAheadJournal open(int retainedSegments) throws Exception {
+        return new WriteAheadJournal(directory, SEGMENT_SIZE, 4, 0, retainedSegments);
+    }
+
+    private static List<JournalRecord> readAll(JournalReader reader) throws Exception {
+        List<JournalRecord> records = new ArrayList<>();
+        try (reader) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    @Test
+    public void testAppendAndReplay_ReturnsRecordsInOrder() throws Exception {
+        UUID key = UUID.randomUUID();
+        try (WriteAheadJournal journal = open(10)) {
+            assertEquals(1, journal.append(100, JournalOpType.DEPOSIT, 2_500, key));
+            assertEquals(2, journal.append(101, JournalOpType.WITHDRAWAL, 1_000));
+
+            List<JournalRecord> records = readAll(journal.reader(1));
+
+            assertEquals(2, records.size());
+            JournalRecord first = records.get(0);
+            assertEquals(100, first.getAccountID());
+            assertEquals(JournalOpType.DEPOSIT, first.getOpType());
+            assertEquals(2_500, first.getAmountCents());
+            assertEquals(key, first.getIdempotencyKey());
+            assertEquals(JournalOpType.WITHDRAWAL, records.get(1).getOpType());
+        }
+    }
+
+    @Test
+    public void testRollover_SpansSegmentsAndReaderStartsAtSequence() throws Exception {
+        try (WriteAheadJournal journal = open(10)) {
+            for (int i = 0; i < 25; i++) {
+                journal.append(i, JournalOpType.CHARGE, i);
+            }
+
+            assertEquals(3, JournalSegment.list(directory).size());
+            List<JournalRecord> records = readAll(journal.reader(12));
+            assertEquals(14, records.size());
+            assertEquals(12, records.get(0).getSequence());
+            assertEquals(25, records.get(13).getSequence());
+        }
+    }
+
+    @Test
+    public void testRetention_DeletesOldestSegments() throws Exception {
+        try (WriteAheadJournal journal = open(2)) {
+            for (int i = 0; i < 35; i++) {
+                journal.append(1, JournalOpType.PAYMENT, 100);
+            }
+
+            assertEquals(2, JournalSegment.list(directory).size());
+            List<JournalRecord> records = readAll(journal.reader(0));
+            assertEquals(21, records.get(0).getSequence());
+            assertEquals(15, records.size());
+        }
+    }
+
+    @Test
+    public void testReopen_ContinuesAfterLastRecord() throws Exception {
+        try (WriteAheadJournal journal = open(10)) {
+            for (int i = 0; i < 13; i++) {
+                journal.append(1, JournalOpType.DEPOSIT, 100);
+            }
+        }
+
+        try (WriteAheadJournal journal = open(10)) {
+            assertEquals(14, journal.getNextSequence());
+            assertEquals(14, journal.append(1, JournalOpType.DEPOSIT, 100));
+            assertEquals(14, readAll(journal.reader(1)).size());
+        }
+    }
+
+    @Test
+    public void testTornRecord_ReplayStopsBeforeItAndAppendOverwritesIt() throws Exception {
+        try (WriteAheadJournal journal = open(10)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(1, JournalOpType.DEPOSIT, 100);
+            }
+        }
+        // Corrupt the amount of the third record, as if the crash hit mid-write
+        Path segment = JournalSegment.list(directory).get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(2L * JournalSegment.RECORD_SIZE + 20);
+            file.writeByte(0x7f);
+        }
+
+        try (WriteAheadJournal journal = open(10)) {
+            assertEquals(2, readAll(journal.reader(1)).size());
+            assertEquals(3, journal.append(1, JournalOpType.DEPOSIT, 200));
+            List<JournalRecord> records = readAll(journal.reader(1));
+            assertEquals(3, records.size());
+            assertEquals(200, records.get(2).getAmountCents());
+        }
+    }
+
+    @Test
+    public void testServiceMovements_KeysMatchDatabaseAndMarkersFollow() throws Exception {
+        try (WriteAheadJournal journal = open(10); TestDatabase database = new TestDatabase()) {
+            Connection connection = database.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) "
+                        + "VALUES (10, 'CHECKING', 'Checking', 100.00)");
+                statement.execute("INSERT INTO checking_accounts VALUES (10, 35, 100)");
+            }
+            CheckingAccountService service = new CheckingAccountService(new CheckingAccountDAO(connection),
+                    new ClientAccountDAO(connection));
+            service.setJournal(journal);
+
+            assertEquals(TransactionResult.OK, service.tryDeposit(new CheckingAccount(1, 10, 100.00, "Checking", 35, 100), 25.00));
+            // Read before the deposit: rejected, and nothing stored
+            assertEquals(TransactionResult.REJECTED,
+                    service.tryDeposit(new CheckingAccount(1, 10, 100.00, "Checking", 35, 100), 5.00));
+
+            List<JournalRecord> records = readAll(journal.reader(1));
+            assertEquals(List.of(JournalOpType.DEPOSIT, JournalOpType.COMMIT, JournalOpType.DEPOSIT, JournalOpType.ABORT),
+                    records.stream().map(JournalRecord::getOpType).toList());
+            assertEquals(records.get(0).getIdempotencyKey(), records.get(1).getIdempotencyKey());
+            assertEquals(records.get(2).getIdempotencyKey(), records.get(3).getIdempotencyKey());
+            MovementKeyDAO movementKeys = new MovementKeyDAO(connection);
+            assertTrue(movementKeys.contains(records.get(0).getIdempotencyKey()));
+            assertFalse(movementKeys.contains(records.get(2).getIdempotencyKey()));
+        }
+    }
+
+    @Test
+    public void testClosedJournal_RejectsAppend() throws Exception {
+        WriteAheadJournal journal = open(10);
+        journal.close();
+
+        assertThrows(IOException.class, () -> journal.append(1, JournalOpType.DEPOSIT, 100));
+    }
+
+    @Test
+    public void testEmptyDirectory_ReaderHasNoRecords() throws Exception {
+        try (JournalReader reader = new JournalReader(directory.resolve("missing"), 1)) {
+            assertFalse(reader.hasNext());
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.jbank.ledger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for LedgerEngine - limit checks, concurrent producers, journaling, store flushes and
+ * rebuilding from snapshot plus journal replay
+ *
+ * @author juanf
+ */
+public class LedgerEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path journalPath;
+    private InMemoryStore store;
+    private LedgerEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        journalPath = tempDir.resolve("ledger.journal");
+        // Accounts 1-3: balance owed 0, limit 1000.00
+        store = new InMemoryStore(new int[] { 1, 2, 3 }, new long[] { 0, 0, 0 },
+                new long[] { 100_000, 100_000, 100_000 });
+        engine = new LedgerEngine(store, journalPath, 1024, 10);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void testCharge_WithinLimit_Applied() throws Exception {
+        engine.start();
+
+        assertTrue(engine.charge(1, 25_000).get());
+        engine.close();
+
+        assertEquals(25_000, engine.getBalanceCents(1).getAsLong());
+        assertEquals(25_000, store.balances.get(1));
+    }
+
+    @Test
+    public void testCharge_OverLimit_Rejected() throws Exception {
+        engine.start();
+
+        assertTrue(engine.charge(1, 90_000).get());
+        assertFalse(engine.charge(1, 20_000).get());
+        engine.close();
+
+        assertEquals(90_000, engine.getBalanceCents(1).getAsLong());
+    }
+
+    @Test
+    public void testPayment_CreditBeyondLimit_Rejected() throws Exception {
+        engine.start();
+
+        assertTrue(engine.payment(2, 100_000).get());
+        assertFalse(engine.payment(2, 1).get());
+    }
+
+    @Test
+    public void testUnknownAccountOrInvalidAmount_Rejected() throws Exception {
+        engine.start();
+
+        assertFalse(engine.charge(99, 100).get());
+        assertFalse(engine.charge(1, 0).get());
+        assertFalse(engine.payment(1, -5).get());
+    }
+
+    @Test
+    public void testConcurrentProducers_EveryCommandApplied() throws Exception {
+        engine.start();
+        int threads = 8;
+        int perThread = 5_000;
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    engine.publish(LedgerCommandType.CHARGE, 3, 1);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        engine.close();
+
+        assertEquals(threads * perThread, engine.getBalanceCents(3).getAsLong());
+        assertEquals(threads * perThread - 1, engine.getProcessedSequence());
+        assertEquals(threads * perThread, store.balances.get(3));
+    }
+
+    @Test
+    public void testRestart_ReplaysJournalEntriesMissingFromStore() throws Exception {
+        engine.start();
+        CompletableFuture<Boolean> charged = engine.charge(1, 10_000);
+        assertTrue(charged.get());
+        assertTrue(engine.payment(1, 4_000).get());
+        engine.close();
+        long savedSequence = store.lastSequence;
+
+        // Simulate a crash before the last save: the store only has the initial balances
+        InMemoryStore stale = new InMemoryStore(new int[] { 1, 2, 3 }, new long[] { 0, 0, 0 },
+                new long[] { 100_000, 100_000, 100_000 });
+        writeJournal(savedSequence);
+        LedgerEngine restarted = new LedgerEngine(stale, journalPath, 1024, 10);
+        restarted.start();
+        restarted.close();
+
+        assertEquals(6_000, restarted.getBalanceCents(1).getAsLong());
+        assertEquals(6_000, stale.balances.get(1));
+        assertEquals(savedSequence, stale.lastSequence);
+    }
+
+    @Test
+    public void testRestart_SkipsJournalEntriesAlreadyStored() throws Exception {
+        engine.start();
+        assertTrue(engine.charge(2, 5_000).get());
+        engine.close();
+        writeJournal(store.lastSequence);
+
+        // A later direct correction in the store must not be overwritten by stale journal entries
+        store.balances.put(2, 1_000L);
+        LedgerEngine restarted = new LedgerEngine(store, journalPath, 1024, 10);
+        restarted.start();
+        restarted.close();
+
+        assertEquals(1_000, restarted.getBalanceCents(2).getAsLong());
+    }
+
+    @Test
+    public void testSparseAccountIds_FoundWithoutDenseIndex() throws Exception {
+        // Striped and block-allocated IDs: far apart and sharing a stride
+        int[] ids = { 2, 1_500_002, 2_000_000_000, 3_000 * 3 + 2 };
+        InMemoryStore sparse = new InMemoryStore(ids, new long[4], new long[] { 100, 100, 100, 100 });
+        LedgerEngine sparseEngine = new LedgerEngine(sparse, tempDir.resolve("sparse.journal"), 1024, 10);
+        sparseEngine.start();
+
+        for (int id : ids) {
+            assertTrue(sparseEngine.charge(id, 50).get());
+        }
+        assertFalse(sparseEngine.charge(1_500_005, 50).get());
+        sparseEngine.close();
+
+        assertEquals(50, sparse.balances.get(2_000_000_000));
+    }
+
+    @Test
+    public void testClose_StoreDown_GivesUpAndReplaysOnNextStart() throws Exception {
+        engine.start();
+        store.failing = true;
+        assertTrue(engine.charge(1, 7_000).get());
+        Thread.sleep(50);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), engine::close);
+
+        store.failing = false;
+        LedgerEngine restarted = new LedgerEngine(store, journalPath, 1024, 10);
+        restarted.start();
+        restarted.close();
+        assertEquals(7_000, store.balances.get(1));
+    }
+
+    @Test
+    public void testJournalFailure_UndoesBatchAndKeepsItFromStore() throws Exception {
+        List<FailingJournal> journals = new ArrayList<>();
+        LedgerEngine failing = new LedgerEngine(store, journalPath, 1024, 10, path -> {
+            FailingJournal journal = new FailingJournal(path);
+            journals.add(journal);
+            return journal;
+        });
+        failing.start();
+        assertTrue(failing.charge(1, 10_000).get());
+
+        journals.get(0).failing = true;
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> failing.charge(1, 5_000).get());
+        assertInstanceOf(IOException.class, failure.getCause());
+        // Refused from then on, without touching the balance
+        assertFalse(failing.charge(1, 1_000).get());
+        journals.get(0).failing = false;
+        failing.close();
+
+        assertEquals(10_000, failing.getBalanceCents(1).getAsLong());
+        assertEquals(10_000, store.balances.get(1));
+        assertEquals(1, LedgerJournal.replay(journalPath, (sequence, type, accountId, amount, balanceAfter) -> {
+        }));
+    }
+
+    @Test
+    public void testCreditLimit_UsedByLaterCharges() throws Exception {
+        engine.start();
+
+        assertFalse(engine.charge(1, 150_000).get());
+        assertTrue(engine.setCreditLimit(1, 200_000).get());
+        assertTrue(engine.charge(1, 150_000).get());
+        assertFalse(engine.setCreditLimit(99, 200_000).get());
+        engine.close();
+
+        assertEquals(200_000, engine.getCreditLimitCents(1).getAsLong());
+        assertEquals(150_000, store.balances.get(1));
+    }
+
+    @Test
+    public void testCloseRacingProducers_EveryReplyCompletes() throws Exception {
+        LedgerEngine small = new LedgerEngine(store, tempDir.resolve("small.journal"), 16, 10);
+        small.start();
+        List<CompletableFuture<Boolean>> replies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 20_000; i++) {
+                    replies.add(small.charge(3, 1));
+                    try {
+                        small.publish(LedgerCommandType.CHARGE, 3, 1);
+                    } catch (IllegalStateException e) {
+                        // Closed
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        started.await();
+        small.close();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (CompletableFuture<Boolean> reply : replies) {
+                try {
+                    reply.get();
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+        });
+        assertEquals(small.getBalanceCents(3).getAsLong(), store.balances.get(3));
+    }
+
+    // Recreates a journal holding the two commands of the test, ending at lastSequence
+    private void writeJournal(long lastSequence) throws Exception {
+        Files.deleteIfExists(journalPath);
+        try (LedgerJournal journal = new LedgerJournal(journalPath)) {
+            if (lastSequence >= 2) {
+                journal.append(lastSequence - 1, LedgerCommandType.CHARGE, 1, 10_000, 10_000);
+                journal.append(lastSequence, LedgerCommandType.PAYMENT, 1, 4_000, 6_000);
+            } else {
+                journal.append(lastSequence, LedgerCommandType.CHARGE, 2, 5_000, 5_000);
+            }
+        }
+    }
+
+    // Journal whose flush fails while failing is set, like a full or broken disk
+    private static class FailingJournal extends LedgerJournal {
+        private volatile boolean failing;
+
+        FailingJournal(Path path) throws IOException {
+            super(path);
+        }
+
+        @Override
+        void flush() throws IOException {
+            if (failing) {
+                throw new IOException("No space left on device");
+            }
+            super.flush();
+        }
+    }
+
+    // Store stand-in that keeps the saved state in memory
+    private static class InMemoryStore implements LedgerStore {
+        private final int[] ids;
+        private final long[] limits;
+        private final Map<Integer, Long> balances = new HashMap<>();
+        private long lastSequence;
+        private volatile boolean failing;
+
+        InMemoryStore(int[] ids, long[] balances, long[] limits) {
+            this.ids = ids;
+            this.limits = limits;
+            for (int i = 0; i < ids.length; i++) {
+                this.balances.put(ids[i], balances[i]);
+            }
+        }
+
+        @Override
+        public synchronized LedgerSnapshot load() {
+            long[] current = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                current[i] = balances.get(ids[i]);
+            }
+            return new LedgerSnapshot(ids, current, limits, lastSequence);
+        }
+
+        @Override
+        public synchronized void save(int[] accountIds, long[] balanceCents, int count, long sequence)
+                throws SQLException {
+            if (failing) {
+                throw new SQLException("Store unavailable");
+            }
+            for (int i = 0; i < count; i++) {
+                balances.put(accountIds[i], balanceCents[i]);
+            }
+            lastSequence = sequence;
+        }
+    }
+}
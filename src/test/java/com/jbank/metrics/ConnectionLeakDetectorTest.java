@@ -0,0 +1,91 @@
+package com.jbank.metrics;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit tests for ConnectionLeakDetector - connections held past the threshold and connections never
+ * closed are reported with where they were opened
+ *
+ * @author juanf
+ */
+public class ConnectionLeakDetectorTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("jbank.jdbc.leak");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+        ConnectionLeakDetector.configure(300);
+    }
+
+    @Test
+    public void testHeldConnection_FlaggedOnceThenReportedOnClose() throws Exception {
+        ConnectionLeakDetector.configure(0);
+        Connection connection = InstrumentedConnection.wrap(mock(Connection.class), true);
+
+        ConnectionLeakDetector.check();
+        ConnectionLeakDetector.check();
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("Connection held for "));
+        assertTrue(message.contains("at com.jbank.metrics.ConnectionLeakDetectorTest.testHeldConnection"));
+
+        connection.close();
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(1).getFormattedMessage().startsWith("Connection flagged as held too long was closed"));
+    }
+
+    @Test
+    public void testClosedConnection_NotFlagged() throws Exception {
+        ConnectionLeakDetector.configure(60);
+        int open = ConnectionLeakDetector.getOpenCount();
+        Connection connection = InstrumentedConnection.wrap(mock(Connection.class), true);
+        assertEquals(open + 1, ConnectionLeakDetector.getOpenCount());
+
+        connection.close();
+        ConnectionLeakDetector.configure(0);
+        ConnectionLeakDetector.check();
+
+        assertEquals(open, ConnectionLeakDetector.getOpenCount());
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void testUnreturnedConnection_ReportedWhenCollected() throws Exception {
+        ConnectionLeakDetector.configure(-1);
+        openAndDrop();
+
+        for (int i = 0; i < 50 && appender.list.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("Connection leaked: garbage-collected without being closed"));
+        assertTrue(message.contains("at com.jbank.metrics.ConnectionLeakDetectorTest.openAndDrop"));
+    }
+
+    private static void openAndDrop() {
+        InstrumentedConnection.wrap(mock(Connection.class), true);
+    }
+}
@@ -0,0 +1,72 @@
+package com.jbank.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for LatencyHistogram - bucket layout, quantile accuracy and concurrent recording
+ *
+ * @author juanf
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets_CoverValuesWithinThreePercent() {
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long low = LatencyHistogram.lowestValueOf(bucket);
+            long width = LatencyHistogram.widthOf(bucket);
+
+            assertTrue(value >= low && value - low < width, "value " + value + " outside its bucket");
+            assertTrue(width == 1 || (double) width / low <= 1.0 / 32, "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    public void testQuantiles_UniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_000, snapshot.getValueAtQuantile(0.5), 5_000_000 * 0.03);
+        assertEquals(9_900_000, snapshot.getValueAtQuantile(0.99), 9_900_000 * 0.03);
+        assertEquals(5_000_500, snapshot.getMean(), 1);
+    }
+
+    @Test
+    public void testEmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtQuantile(0.99));
+
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void testConcurrentRecording_NoLostCounts() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200_000, histogram.snapshot().getCount());
+        assertEquals(49_999, histogram.snapshot().getMax());
+    }
+}
@@ -0,0 +1,106 @@
+package com.jbank.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for Metrics, InstrumentedConnection and the text exposition
+ *
+ * @author juanf
+ */
+public class MetricsTest {
+
+    @BeforeEach
+    public void setUp() {
+        Metrics.registry().clear();
+        Metrics.setEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.registry().clear();
+    }
+
+    @Test
+    public void testTime_RecordsIntoNamedHistogram() {
+        try (Metrics.Sample sample = Metrics.time("service.Test.op")) {
+            // Timed block
+        }
+
+        assertEquals(1, Metrics.registry().histogram("service.Test.op").getCount());
+    }
+
+    @Test
+    public void testDisabled_RecordsNothing() {
+        Metrics.setEnabled(false);
+
+        try (Metrics.Sample sample = Metrics.time("service.Test.op")) {
+            Metrics.increment("calls", 1);
+        }
+
+        assertTrue(Metrics.registry().getHistogramSnapshots().isEmpty());
+        assertTrue(Metrics.registry().getCounterValues().isEmpty());
+    }
+
+    @Test
+    public void testInstrumentedConnection_TimesStatementsAndCountsRows() throws Exception {
+        String select = "SELECT account_id FROM client_accounts WHERE customer_id = ?";
+        String update = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+        Connection connection = mock(Connection.class);
+        PreparedStatement selectStatement = mock(PreparedStatement.class);
+        PreparedStatement updateStatement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(select)).thenReturn(selectStatement);
+        when(connection.prepareStatement(update)).thenReturn(updateStatement);
+        when(selectStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(updateStatement.executeUpdate()).thenReturn(1);
+
+        Connection instrumented = InstrumentedConnection.wrap(connection);
+        try (ResultSet rs = instrumented.prepareStatement(select).executeQuery()) {
+            while (rs.next()) {
+                // Read every row
+            }
+        }
+        instrumented.prepareStatement(update).executeUpdate();
+
+        assertEquals(1, Metrics.registry().histogram("sql:" + select).getCount());
+        assertEquals(3, Metrics.registry().counter("sql.rows:" + select).get());
+        assertEquals(1, Metrics.registry().counter("sql.rows:" + update).get());
+    }
+
+    @Test
+    public void testToText_ExposesEveryMetricType() {
+        Metrics.increment("batch.items", 7);
+        Metrics.gauge("commit.pending", () -> 3);
+        Metrics.registry().histogram("sql:SELECT \"x\"").record(2_000_000);
+
+        String text = MetricsExporter.toText(Metrics.registry());
+
+        assertTrue(text.contains("jbank_counter{name=\"batch.items\"} 7"));
+        assertTrue(text.contains("jbank_gauge{name=\"commit.pending\"} 3"));
+        assertTrue(text.contains("jbank_latency_seconds_count{name=\"sql:SELECT \\\"x\\\"\"} 1"));
+        assertFalse(text.contains("quantile=\"0.5\"} 0.0\n"));
+    }
+
+    @Test
+    public void testMBean_ReadsHistogramFields() throws Exception {
+        Metrics.registry().histogram("dao.Test.read").record(5_000);
+        MetricsMBean bean = new MetricsMBean(Metrics.registry());
+
+        assertEquals(1L, bean.getAttribute("dao.Test.read.count"));
+        assertEquals(5.0, (double) bean.getAttribute("dao.Test.read.maxMicros"), 0.01);
+        assertEquals(6, bean.getMBeanInfo().getAttributes().length);
+    }
+}
@@ -0,0 +1,130 @@
+package com.jbank.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit tests for the slow-query log - entries carry the SQL, bind count, rows and calling frames, and
+ * statements under the threshold are not logged
+ *
+ * @author juanf
+ */
+public class SlowQueryLogTest {
+
+    private static final String SELECT = "SELECT account_id FROM client_accounts WHERE customer_id = ? AND type = ?";
+    private static final String UPDATE = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("jbank.jdbc.slow");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Connection connection;
+    private PreparedStatement selectStatement;
+    private PreparedStatement updateStatement;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        appender.start();
+        logger.addAppender(appender);
+        connection = mock(Connection.class);
+        selectStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(SELECT)).thenReturn(selectStatement);
+        when(connection.prepareStatement(UPDATE)).thenReturn(updateStatement);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+        SlowQueryLog.configure(-1);
+    }
+
+    @Test
+    public void testSlowQuery_LoggedWithRowsOnClose() throws Exception {
+        SlowQueryLog.configure(0);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(selectStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+
+        Connection instrumented = InstrumentedConnection.wrap(connection);
+        try (PreparedStatement stmt = instrumented.prepareStatement(SELECT)) {
+            stmt.setInt(1, 42);
+            stmt.setString(2, "JOINT");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // Read every row
+                }
+                assertTrue(appender.list.isEmpty());
+            }
+        }
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("Slow SQL: "));
+        assertTrue(message.contains("2 binds, 2 rows: " + SELECT));
+        assertTrue(message.contains("at com.jbank.metrics.SlowQueryLogTest.testSlowQuery_LoggedWithRowsOnClose"));
+    }
+
+    @Test
+    public void testSlowUpdate_LoggedAtExecute() throws Exception {
+        SlowQueryLog.configure(0);
+        when(updateStatement.executeUpdate()).thenReturn(1);
+
+        PreparedStatement stmt = InstrumentedConnection.wrap(connection).prepareStatement(UPDATE);
+        stmt.setDouble(1, 10.0);
+        stmt.setInt(2, 7);
+        stmt.executeUpdate();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("2 binds, 1 rows: " + UPDATE));
+    }
+
+    @Test
+    public void testFastQuery_NotLogged() throws Exception {
+        SlowQueryLog.configure(60_000);
+        when(updateStatement.executeUpdate()).thenReturn(1);
+
+        InstrumentedConnection.wrap(connection).prepareStatement(UPDATE).executeUpdate();
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void testFailedStatement_LoggedAndRethrown() throws Exception {
+        SlowQueryLog.configure(60_000);
+        when(updateStatement.executeUpdate()).thenThrow(new SQLException("deadlock detected"));
+
+        PreparedStatement stmt = InstrumentedConnection.wrap(connection).prepareStatement(UPDATE);
+        stmt.setDouble(1, 10.0);
+        assertThrows(SQLException.class, stmt::executeUpdate);
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.contains("1 binds: " + UPDATE + " (deadlock detected)"));
+    }
+
+    @Test
+    public void testDisabled_NothingLogged() throws Exception {
+        SlowQueryLog.configure(-1);
+        when(updateStatement.executeUpdate()).thenThrow(new SQLException("deadlock detected"));
+
+        PreparedStatement stmt = InstrumentedConnection.wrap(connection).prepareStatement(UPDATE);
+        assertThrows(SQLException.class, stmt::executeUpdate);
+
+        assertTrue(appender.list.isEmpty());
+    }
+}
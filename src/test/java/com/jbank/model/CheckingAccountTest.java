@@ -68,4 +68,11 @@ public class CheckingAccountTest {
         );
         assertEquals("Withdrawal would exceed overdraft limit.", exception.getMessage());
     }
+
+    @Test
+    public void testTryWithdraw_OverdraftLimitExceeded() {
+        assertEquals(TransactionResult.OVERDRAFT_LIMIT_EXCEEDED, testAccount.tryWithdraw(2000));
+        assertEquals(TransactionResult.INVALID_DEPOSIT_AMOUNT, testAccount.tryDeposit(0));
+        assertEquals(1000, testAccount.getBalance(), 0.01);
+    }
 }
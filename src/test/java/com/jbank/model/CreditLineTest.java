@@ -70,4 +70,18 @@ public class CreditLineTest {
         );
         assertEquals("Payment would result in a credit balance exceeding the credit limit.", exception.getMessage());
     }
+
+    @Test
+    public void testTryMakePayment_Overpayment() {
+        assertEquals(TransactionResult.OVERPAYMENT, testAccount.tryMakePayment(6000));
+        assertEquals(TransactionResult.INVALID_PAYMENT_AMOUNT, testAccount.tryMakePayment(-1));
+        assertEquals(0, testAccount.getBalance(), 0.01);
+    }
+
+    @Test
+    public void testCheckCharge() {
+        assertEquals(TransactionResult.OK, testAccount.checkCharge(5000));
+        assertEquals(TransactionResult.CREDIT_LIMIT_EXCEEDED, testAccount.checkCharge(5000.01));
+        assertEquals(TransactionResult.INVALID_CHARGE_AMOUNT, testAccount.checkCharge(0));
+    }
 }
@@ -69,6 +69,34 @@ public class SavingsAccountTest {
         assertEquals("Insufficient funds for withdrawal.", exception.getMessage());
     }
 
+    @Test
+    public void testRestoredWithdrawalCounterEnforcesLimit() {
+        SavingsAccount restored = new SavingsAccount(1, 1, 5000.0, "Savings", 1.5, 2, 2);
+        assertEquals(2, restored.getWithdrawalCounter());
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> 
+            restored.withdraw(100)
+        );
+        assertEquals("Withdrawal limit reached.", exception.getMessage());
+    }
+
+    @Test
+    public void testTryWithdraw_ReportsRejectionWithoutChangingAccount() {
+        assertEquals(TransactionResult.INSUFFICIENT_FUNDS, testAccount.tryWithdraw(10000));
+        assertEquals(TransactionResult.INVALID_WITHDRAWAL_AMOUNT, testAccount.tryWithdraw(-1));
+        assertEquals(5000, testAccount.getBalance(), 0.01);
+        assertEquals(0, testAccount.getWithdrawalCounter());
+
+        SavingsAccount limited = new SavingsAccount(1, 1, 5000.0, "Savings", 1.5, 2, 2);
+        assertEquals(TransactionResult.WITHDRAWAL_LIMIT_REACHED, limited.tryWithdraw(100));
+    }
+
+    @Test
+    public void testTryWithdraw_Accepted() {
+        assertEquals(TransactionResult.OK, testAccount.tryWithdraw(1000));
+        assertEquals(4000, testAccount.getBalance(), 0.01);
+        assertEquals(1, testAccount.getWithdrawalCounter());
+    }
+
     // Apply interest business logic
     @Test
     public void testApplyInterestValid() {
@@ -0,0 +1,313 @@
+package com.jbank.outbox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.jbank.commit.GroupCommitExecutor;
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.OutboxDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.service.SavingsAccountService;
+import com.jbank.shard.ShardPool;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for the transactional outbox against an in-memory database: events commit and roll back with
+ * their change, group commit appends them in its batch, and the relay delivers, deletes and tracks offsets
+ *
+ * @author juanf
+ */
+public class OutboxTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestDatabase database;
+    private Connection connection;
+    private Outbox outbox;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        connection = database.getConnection();
+        outbox = new Outbox(connection);
+        execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                + "(1, 'PERSONAL', '5551234567', '1 Main St', 'Ana Diaz'), (2, 'PERSONAL', '5557654321', '2 Main St', 'Bo Li')",
+                "INSERT INTO personal_clients VALUES (1, '123-45-6789', 700, 50000, 0), (2, '987-65-4321', 650, 40000, 0)",
+                "INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES "
+                + "(10, 'CHECKING', 'Checking', 100.00), (11, 'SAVINGS', 'Savings', 500.00)",
+                "INSERT INTO checking_accounts VALUES (10, 35, 100)",
+                "INSERT INTO savings_accounts VALUES (11, 1, 6, 0)",
+                "INSERT INTO client_accounts VALUES (1, 10, 'PRIMARY'), (1, 11, 'PRIMARY')");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testDeposit_WritesEventWithBalance() throws Exception {
+        CheckingAccountService service = new CheckingAccountService(new CheckingAccountDAO(connection),
+                new ClientAccountDAO(connection));
+        service.setOutbox(outbox);
+
+        assertTrue(service.deposit(new CheckingAccount(1, 10, 100.00, "Checking", 35, 100), 25.50));
+
+        List<OutboxEvent> events = claimAll();
+        assertEquals(1, events.size());
+        assertEquals(OutboxEventType.DEPOSIT, events.get(0).getType());
+        assertEquals(10, events.get(0).getAggregateId());
+        assertEquals("{\"accountId\":10,\"amount\":25.50,\"balance\":125.50}", events.get(0).getPayload());
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void testFailedChange_RollsBackChangeAndEvent() throws Exception {
+        CheckingAccountDAO dao = new CheckingAccountDAO(connection);
+
+        assertThrows(SQLException.class, () -> outbox.write(
+                OutboxEvent.movement(OutboxEventType.DEPOSIT, 10, 50, 150), changed -> {
+                    execute("UPDATE accounts SET balance = 150 WHERE account_id = 10");
+                    throw new SQLException("Simulated failure");
+                }));
+        assertEquals(false, outbox.write(OutboxEvent.movement(OutboxEventType.DEPOSIT, 10, 50, 150), changed -> false));
+
+        assertEquals(100.00, dao.getByID(10).orElseThrow().getBalance());
+        assertEquals(0, new OutboxDAO(connection).countPending());
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void testPooledOutbox_ConcurrentWritersUseTheirOwnConnections() throws Exception {
+        int writers = 8;
+        int depositsPerWriter = 25;
+        for (int w = 0; w < writers; w++) {
+            execute("INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES (" + (20 + w)
+                    + ", 'CHECKING', 'Checking', 0)", "INSERT INTO checking_accounts VALUES (" + (20 + w) + ", 35, 0)");
+        }
+        // The service's DAO stays on the shared connection; the outbox writes never touch it
+        CheckingAccountService service = new CheckingAccountService(new CheckingAccountDAO(connection),
+                new ClientAccountDAO(connection));
+        try (ShardPool pool = new ShardPool("outbox", database::openConnection, 4, 5000)) {
+            service.setOutbox(new Outbox(pool));
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                CheckingAccount account = new CheckingAccount(1, 20 + w, 0, "Checking", 35, 0);
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < depositsPerWriter; i++) {
+                        if (!service.deposit(account, 1.00)) {
+                            failures.add(new AssertionError("Deposit " + i + " to " + account.getAccountID() + " failed"));
+                        }
+                    }
+                });
+                thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+                threads.add(thread);
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join(60_000);
+            }
+            assertEquals(List.of(), failures);
+        }
+
+        CheckingAccountDAO dao = new CheckingAccountDAO(connection);
+        for (int w = 0; w < writers; w++) {
+            assertEquals(depositsPerWriter, dao.getByID(20 + w).orElseThrow().getBalance(), 0.001);
+        }
+        assertEquals(writers * depositsPerWriter, new OutboxDAO(connection).countPending());
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void testGroupCommit_AppendsEventsOfAppliedWrites() throws Exception {
+        SavingsAccountService service = new SavingsAccountService(new SavingsAccountDAO(connection),
+                new ClientAccountDAO(connection));
+        service.setOutbox(outbox);
+        try (GroupCommitExecutor executor = new GroupCommitExecutor(database::openConnection, 16, 100)) {
+            service.setGroupCommitExecutor(executor);
+            SavingsAccount account = new SavingsAccount(1, 11, 500.00, "Savings", 1.0, 6);
+            assertTrue(service.withdraw(account, 100.00));
+
+            // Stale balance: rejected, and no event
+            assertEquals(false, service.withdraw(new SavingsAccount(1, 11, 500.00, "Savings", 1.0, 6), 50.00));
+        }
+
+        List<OutboxEvent> events = claimAll();
+        assertEquals(1, events.size());
+        assertEquals(OutboxEventType.WITHDRAWAL, events.get(0).getType());
+        assertEquals("{\"accountId\":11,\"amount\":100.00,\"balance\":400.00}", events.get(0).getPayload());
+    }
+
+    @Test
+    public void testRelay_DeliversToSinksDeletesAndTracksOffset() throws Exception {
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO(connection);
+        clientAccountDAO.setOutbox(outbox);
+        PersonalClientService clientService = new PersonalClientService(new PersonalClientDAO(connection), clientAccountDAO);
+        clientService.setOutbox(outbox);
+
+        assertTrue(clientAccountDAO.assignAccountToClient(2, 10, "JOINT"));
+        assertTrue(clientAccountDAO.removeAccountFromClient(2, 10));
+        clientService.update(1, new PersonalClient(1, "Ana Diaz", "3 Main St", "5551234567", "123-45-6789", 720, 50000, 0));
+
+        ListenerSink listeners = new ListenerSink();
+        List<OutboxEvent> received = new CopyOnWriteArrayList<>();
+        listeners.subscribe(received::add);
+        listeners.subscribe(event -> {
+            throw new IllegalStateException("Listener failures do not block delivery");
+        });
+        Path file = tempDir.resolve("events.ndjson");
+        try (OutboxRelay relay = new OutboxRelay(database::openConnection, "warehouse",
+                List.of(listeners, new FileSink(file)), 2)) {
+            assertEquals(2, relay.relayOnce());
+            assertEquals(1, relay.relayOnce());
+            assertEquals(0, relay.relayOnce());
+            assertEquals(3, relay.getDeliveredCount());
+        }
+
+        assertEquals(List.of(OutboxEventType.OWNER_ADDED, OutboxEventType.OWNER_REMOVED, OutboxEventType.CLIENT_UPDATED),
+                received.stream().map(OutboxEvent::getType).toList());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("\"type\":\"OWNER_ADDED\",\"aggregateType\":\"ACCOUNT\",\"aggregateId\":10"));
+        assertTrue(lines.get(0).endsWith("\"payload\":{\"accountId\":10,\"clientId\":2,\"ownershipType\":\"JOINT\"}}"));
+        assertTrue(lines.get(2).endsWith("\"payload\":{\"clientId\":1,\"clientType\":\"PERSONAL\"}}"));
+
+        OutboxDAO outboxDAO = new OutboxDAO(connection);
+        assertEquals(0, outboxDAO.countPending());
+        assertEquals(received.get(2).getEventId(), outboxDAO.getOffset("warehouse"));
+    }
+
+    @Test
+    public void testRelay_FailedSinkKeepsBatch() throws Exception {
+        outbox.write(OutboxEvent.movement(OutboxEventType.DEPOSIT, 10, 1, 101), changed -> true);
+        List<Long> delivered = new ArrayList<>();
+        boolean[] failing = { true };
+        OutboxSink flaky = new OutboxSink() {
+            @Override
+            public String getName() {
+                return "flaky";
+            }
+
+            @Override
+            public void deliver(List<OutboxEvent> events) throws IOException {
+                if (failing[0]) {
+                    throw new IOException("Receiver down");
+                }
+                events.forEach(event -> delivered.add(event.getEventId()));
+            }
+        };
+
+        try (OutboxRelay relay = new OutboxRelay(database::openConnection, "fraud", List.of(flaky), 100)) {
+            assertThrows(IOException.class, relay::relayOnce);
+            assertEquals(1, new OutboxDAO(connection).countPending());
+            assertEquals(0, new OutboxDAO(connection).getOffset("fraud"));
+
+            failing[0] = false;
+            assertEquals(1, relay.relayOnce());
+        }
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    public void testClaim_SkipsEventsLockedByAnotherRelay() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            outbox.write(OutboxEvent.movement(OutboxEventType.DEPOSIT, 10, 1, 100 + i), changed -> true);
+        }
+        try (Connection first = database.openConnection(); Connection second = database.openConnection()) {
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+            List<OutboxEvent> firstBatch = new OutboxDAO(first).claim(2);
+            List<OutboxEvent> secondBatch = new OutboxDAO(second).claim(10);
+
+            assertEquals(2, firstBatch.size());
+            assertEquals(3, secondBatch.size());
+            assertTrue(secondBatch.get(0).getEventId() > firstBatch.get(1).getEventId());
+            first.rollback();
+            second.rollback();
+        }
+    }
+
+    @Test
+    public void testSocketSink_WaitsForAcknowledgement() throws Exception {
+        outbox.write(OutboxEvent.movement(OutboxEventType.DEPOSIT, 10, 1, 101), changed -> true);
+        outbox.write(OutboxEvent.movement(OutboxEventType.WITHDRAWAL, 10, 1, 100), changed -> true);
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread receiver = new Thread(() -> {
+                try (Socket socket = server.accept();
+                        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                        PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                    for (int i = 0; i < 2; i++) {
+                        String line = in.readLine();
+                        received.add(line);
+                        // Acknowledge the batch's last event
+                        out.println(line.substring("{\"eventId\":".length(), line.indexOf(',')));
+                    }
+                } catch (IOException e) {
+                    // Test fails on the assertions below
+                }
+            });
+            receiver.start();
+
+            try (OutboxRelay relay = new OutboxRelay(database::openConnection, "loopback",
+                    List.of(new SocketSink("localhost", server.getLocalPort(), 5_000)), 1)) {
+                assertEquals(1, relay.relayOnce());
+                assertEquals(1, relay.relayOnce());
+            }
+            receiver.join(5_000);
+        }
+
+        assertEquals(2, received.size());
+        assertTrue(received.get(1).contains("\"type\":\"WITHDRAWAL\""));
+        assertEquals(0, new OutboxDAO(connection).countPending());
+    }
+
+    private List<OutboxEvent> claimAll() throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            return new OutboxDAO(connection).claim(100);
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.jbank.replica;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.service.CheckingAccountService;
+import com.jbank.service.PersonalClientService;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for read-replica routing. The primary and each replica are separate in-memory databases, and
+ * replication positions come from a stand-in monitor so lag can be set directly.
+ *
+ * @author juanf
+ */
+public class ReplicaRouterTest {
+
+    private TestDatabase primaryDatabase;
+    private TestDatabase replicaDatabase1;
+    private TestDatabase replicaDatabase2;
+    private Connection primary;
+    private Connection replica1;
+    private Connection replica2;
+    private FakeMonitor monitor;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        primaryDatabase = new TestDatabase();
+        replicaDatabase1 = new TestDatabase();
+        replicaDatabase2 = new TestDatabase();
+        primary = primaryDatabase.getConnection();
+        replica1 = replicaDatabase1.getConnection();
+        replica2 = replicaDatabase2.getConnection();
+        monitor = new FakeMonitor();
+        router = new ReplicaRouter(primary, List.of(replica1, replica2), monitor, 0);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        primaryDatabase.close();
+        replicaDatabase1.close();
+        replicaDatabase2.close();
+    }
+
+    @Test
+    public void testReads_TakeTurnsAcrossIdleReplicas() {
+        Connection first = read();
+        Connection second = read();
+        Connection third = read();
+
+        assertNotSame(first, second);
+        assertSame(first, third);
+        assertTrue(List.of(replica1, replica2).contains(first));
+        assertTrue(List.of(replica1, replica2).contains(second));
+    }
+
+    @Test
+    public void testReads_PreferLeastBusyReplica() {
+        try (ReplicaRouter.Lease busy = router.forRead()) {
+            Connection other = busy.getConnection() == replica1 ? replica2 : replica1;
+            assertSame(other, read());
+            assertSame(other, read());
+        }
+    }
+
+    @Test
+    public void testReadYourWrites_PrimaryUntilReplicaCatchesUp() {
+        monitor.primary = 100;
+        monitor.replayed.put(replica1, 50L);
+        monitor.replayed.put(replica2, 50L);
+        router.recordWrite();
+
+        try (ReplicaRouter.Lease lease = router.forRead()) {
+            assertFalse(lease.isReplica());
+            assertSame(primary, lease.getConnection());
+        }
+
+        monitor.replayed.put(replica2, 100L);
+        assertSame(replica2, read());
+        assertSame(replica2, read());
+    }
+
+    @Test
+    public void testOtherSessions_KeepReadingReplicas() {
+        monitor.primary = 100;
+        router.recordWrite();
+        assertSame(primary, read());
+
+        try (ReplicaRouter.Scope scope = router.bind(router.session("teller-2"))) {
+            assertNotSame(primary, read());
+        }
+        assertSame(primary, read());
+    }
+
+    @Test
+    public void testUnreadablePrimaryPosition_PinsSessionToPrimary() {
+        monitor.primaryFails = true;
+        router.recordWrite();
+
+        assertSame(primary, read());
+    }
+
+    @Test
+    public void testDaoReads_GoToReplicaAndSessionReadsItsWrites() throws Exception {
+        // Names differ per database to show where each read went
+        insertClient(primary, "Ana Diaz");
+        insertClient(replica1, "Ana Diaz (replica)");
+        insertClient(replica2, "Ana Diaz (replica)");
+        PersonalClientDAO dao = new PersonalClientDAO(primary);
+        dao.setReplicaRouter(router);
+        PersonalClientService service = new PersonalClientService(dao, new ClientAccountDAO(primary));
+        service.setReplicaRouter(router);
+
+        PersonalClient client = service.getById(1).orElseThrow();
+        assertEquals("Ana Diaz (replica)", client.getName());
+
+        client.setName("Ana Diaz Ruiz");
+        monitor.primary = 10;
+        service.update(1, client);
+        // Neither replica has the update yet
+        assertEquals("Ana Diaz Ruiz", service.getById(1).orElseThrow().getName());
+
+        // Replicated to the first replica only
+        execute(replica1, "UPDATE clients SET name = 'Ana Diaz Ruiz (replica)' WHERE customer_id = 1");
+        monitor.replayed.put(replica1, 10L);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("Ana Diaz Ruiz (replica)", service.getById(1).orElseThrow().getName());
+        }
+    }
+
+    @Test
+    public void testMovementReads_StayOnPrimary() throws Exception {
+        // Another session deposited on the primary; neither replica has it yet
+        for (Connection connection : List.of(primary, replica1, replica2)) {
+            execute(connection, "INSERT INTO accounts (account_id, account_type, account_name, balance) "
+                    + "VALUES (5, 'CHECKING', 'Main', 100.00)");
+            execute(connection, "INSERT INTO checking_accounts (account_id, overdraft_fee, overdraft_limit) VALUES (5, 25, 500)");
+        }
+        execute(primary, "UPDATE accounts SET balance = 150.00 WHERE account_id = 5");
+        CheckingAccountDAO dao = new CheckingAccountDAO(primary);
+        dao.setReplicaRouter(router);
+        CheckingAccountService service = new CheckingAccountService(dao, new ClientAccountDAO(primary));
+        service.setReplicaRouter(router);
+
+        assertEquals(100.00, service.getById(5).orElseThrow().getBalance());
+        CheckingAccount account = service.getByIdForWrite(5).orElseThrow();
+        assertEquals(150.00, account.getBalance());
+        assertEquals(TransactionResult.OK, service.tryDeposit(account, 10.00));
+        assertEquals(160.00, dao.getByIDForWrite(5).orElseThrow().getBalance());
+    }
+
+    private Connection read() {
+        try (ReplicaRouter.Lease lease = router.forRead()) {
+            return lease.getConnection();
+        }
+    }
+
+    private static void insertClient(Connection connection, String name) throws SQLException {
+        execute(connection, "INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                + "(1, 'PERSONAL', '5551234567', '1 Main St', '" + name + "')");
+        execute(connection, "INSERT INTO personal_clients VALUES (1, '123-45-6789', 700, 50000, 0)");
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static final class FakeMonitor implements ReplicationMonitor {
+        volatile long primary;
+        volatile boolean primaryFails;
+        final Map<Connection, Long> replayed = new ConcurrentHashMap<>();
+
+        @Override
+        public long primaryPosition(Connection connection) throws SQLException {
+            if (primaryFails) {
+                throw new SQLException("primary position unavailable");
+            }
+            return primary;
+        }
+
+        @Override
+        public long replayedPosition(Connection replica) {
+            return replayed.getOrDefault(replica, 0L);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.jbank.service;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.util.AllocationMeter;
+
+/**
+ * Allocation budgets for hot service operations, measured per call with in-memory DAO stand-ins so only
+ * the service layer's own allocations count. Budgets sit a little above the current figures.
+ *
+ * @author juanf
+ */
+public class AllocationBudgetTest {
+
+    private static final int CHECKING_ID = 1;
+    private static final int SAVINGS_ID = 2;
+    private static final int CREDIT_ID = 3;
+
+    // Currently nothing (the balance is written back as primitives) and 232 bytes (three models and their Optionals)
+    private static final long BUDGET_DEPOSIT = 48;
+    private static final long BUDGET_VIEW_ALL_ACCOUNTS = 384;
+
+    private ClientAccountDAO clientAccountDAO;
+    private CheckingAccountService checkingService;
+    private SavingsAccountService savingsService;
+    private CreditLineService creditLineService;
+
+    @BeforeEach
+    public void setUp() {
+        assumeTrue(AllocationMeter.isSupported(), "Per-thread allocation counting is not available");
+
+        Map<Integer, String> owned = new LinkedHashMap<>();
+        owned.put(CHECKING_ID, "PRIMARY");
+        owned.put(SAVINGS_ID, "PRIMARY");
+        owned.put(CREDIT_ID, "JOINT");
+        Optional<CheckingAccountEntity> checking = Optional.of(
+                new CheckingAccountEntity(CHECKING_ID, 0, 500.00, 25.00, 500.00, "Checking"));
+        Optional<SavingsAccountEntity> savings = Optional.of(
+                new SavingsAccountEntity(SAVINGS_ID, 0, 1_000.00, 2.5, 6, 0, "Savings"));
+        Optional<CreditLineEntity> credit = Optional.of(
+                new CreditLineEntity(CREDIT_ID, 0, 0.0, 5_000.00, 18.0, 2.0, "Credit"));
+
+        clientAccountDAO = new ClientAccountDAO((Connection) null) {
+            @Override
+            public Map<Integer, String> getAccountsByClient(int clientId) {
+                return owned;
+            }
+        };
+        checkingService = new CheckingAccountService(new CheckingAccountDAO((Connection) null) {
+            @Override
+            public Optional<CheckingAccountEntity> getByID(Integer id) {
+                return id == CHECKING_ID ? checking : Optional.empty();
+            }
+
+            @Override
+            public boolean updateBalance(int accountId, double expectedBalance, double newBalance, UUID movementKey) {
+                return true;
+            }
+        }, clientAccountDAO);
+        savingsService = new SavingsAccountService(new SavingsAccountDAO((Connection) null) {
+            @Override
+            public Optional<SavingsAccountEntity> getByID(Integer id) {
+                return id == SAVINGS_ID ? savings : Optional.empty();
+            }
+        }, clientAccountDAO);
+        creditLineService = new CreditLineService(new CreditLineDAO((Connection) null) {
+            @Override
+            public Optional<CreditLineEntity> getByID(Integer id) {
+                return id == CREDIT_ID ? credit : Optional.empty();
+            }
+        }, clientAccountDAO);
+    }
+
+    @Test
+    public void testDeposit_WithinBudget() throws Exception {
+        CheckingAccount account = new CheckingAccount(10, CHECKING_ID, 500.00, "Checking", 25.00, 500.00);
+
+        AllocationMeter.assertAllocatedAtMost(BUDGET_DEPOSIT, () -> assertTrue(checkingService.deposit(account, 1.00)));
+    }
+
+    @Test
+    public void testViewAllAccounts_WithinBudget() throws Exception {
+        AllocationMeter.assertAllocatedAtMost(BUDGET_VIEW_ALL_ACCOUNTS, () -> {
+            for (int accountId : clientAccountDAO.getAccountsByClient(10).keySet()) {
+                if (checkingService.getById(accountId).isEmpty() && savingsService.getById(accountId).isEmpty()) {
+                    assertTrue(creditLineService.getById(accountId).isPresent());
+                }
+            }
+        });
+    }
+}
@@ -10,16 +10,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.jbank.commit.BalanceWrite;
+import com.jbank.commit.GroupCommitExecutor;
 import com.jbank.model.CheckingAccount;
+import com.jbank.model.TransactionResult;
 import com.jbank.repository.DAO.CheckingAccountDAO;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.entities.CheckingAccountEntity;
@@ -233,13 +239,13 @@ public class CheckingAccountServiceTest {
     @Test
     public void testDeposit_ValidAmount_UpdatesBalance() throws Exception {
         CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
-        when(checkingAccountDAO.updateByID(any())).thenReturn(new CheckingAccountEntity(testAccountId, testClientId, 600.00, 25.00, 500.00, "My Checking"));
+        when(checkingAccountDAO.updateBalance(testAccountId, 500.00, 600.00, null)).thenReturn(true);
 
         boolean result = service.deposit(account, 100.00);
 
         assertTrue(result);
         assertEquals(600.00, account.getBalance());
-        verify(checkingAccountDAO).updateByID(any(CheckingAccountEntity.class));
+        verify(checkingAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
@@ -250,32 +256,88 @@ public class CheckingAccountServiceTest {
 
         assertFalse(result);
         assertEquals(500.00, account.getBalance()); // Balance unchanged
-        verify(checkingAccountDAO, never()).updateByID(any());
+        verify(checkingAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
     public void testWithdraw_ValidAmount_UpdatesBalance() throws Exception {
         CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
-        when(checkingAccountDAO.updateByID(any())).thenReturn(new CheckingAccountEntity(testAccountId, testClientId, 400.00, 25.00, 500.00, "My Checking"));
+        when(checkingAccountDAO.updateBalance(testAccountId, 500.00, 400.00, null)).thenReturn(true);
 
         boolean result = service.withdraw(account, 100.00);
 
         assertTrue(result);
         assertEquals(400.00, account.getBalance());
-        verify(checkingAccountDAO).updateByID(any(CheckingAccountEntity.class));
+        verify(checkingAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
     public void testWithdraw_WithOverdraft_AppliesFeeAndUpdates() throws Exception {
         CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 100.00, "My Checking", 25.00, 500.00);
         // Withdraw 200: 100 - 200 = -100, then apply fee: -100 - 25 = -125
-        when(checkingAccountDAO.updateByID(any())).thenReturn(new CheckingAccountEntity(testAccountId, testClientId, -125.00, 25.00, 500.00, "My Checking"));
+        when(checkingAccountDAO.updateBalance(testAccountId, 100.00, -125.00, null)).thenReturn(true);
 
         boolean result = service.withdraw(account, 200.00);
 
         assertTrue(result);
         assertEquals(-125.00, account.getBalance());
-        verify(checkingAccountDAO).updateByID(any(CheckingAccountEntity.class));
+        verify(checkingAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testWithdraw_BalanceChangedConcurrently_Rejected() throws Exception {
+        CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
+        when(checkingAccountDAO.updateBalance(testAccountId, 500.00, 400.00, null)).thenReturn(false);
+
+        assertEquals(TransactionResult.REJECTED, service.tryWithdraw(account, 100.00));
+    }
+
+    @Test
+    public void testTryDeposit_UnsavedAccount_InvalidAccount() throws Exception {
+        TransactionResult result = service.tryDeposit(validAccount, 100.00);
+
+        assertEquals(TransactionResult.INVALID_ACCOUNT, result);
+        assertEquals(500.00, validAccount.getBalance());
+        verify(checkingAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testTryWithdraw_ValidationFailsWhileStoring_InvalidRequest() throws Exception {
+        CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
+        when(checkingAccountDAO.updateBalance(testAccountId, 500.00, 400.00, null)).thenThrow(new IllegalArgumentException("Account name too long"));
+
+        assertEquals(TransactionResult.INVALID_REQUEST, service.tryWithdraw(account, 100.00));
+    }
+
+    @Test
+    public void testDeposit_WithGroupCommit_WritesConditionalBalance() throws Exception {
+        GroupCommitExecutor executor = mock(GroupCommitExecutor.class);
+        service.setGroupCommitExecutor(executor);
+        CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
+        when(executor.apply(any())).thenReturn(true);
+
+        boolean result = service.deposit(account, 100.00);
+
+        assertTrue(result);
+        ArgumentCaptor<BalanceWrite> captor = ArgumentCaptor.forClass(BalanceWrite.class);
+        verify(executor).apply(captor.capture());
+        assertEquals(testAccountId, captor.getValue().getAccountID());
+        assertEquals(500.00, captor.getValue().getExpectedBalance());
+        assertEquals(600.00, captor.getValue().getNewBalance());
+        verify(checkingAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testWithdraw_WithGroupCommit_ConcurrentChangeReturnsFalse() throws Exception {
+        GroupCommitExecutor executor = mock(GroupCommitExecutor.class);
+        service.setGroupCommitExecutor(executor);
+        CheckingAccount account = new CheckingAccount(testClientId, testAccountId, 500.00, "My Checking", 25.00, 500.00);
+        when(executor.apply(any())).thenReturn(false);
+
+        boolean result = service.withdraw(account, 100.00);
+
+        assertFalse(result);
+        verify(checkingAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     // ===== Model to Entity Conversion Tests =====
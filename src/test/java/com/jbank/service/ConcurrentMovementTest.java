@@ -0,0 +1,203 @@
+package com.jbank.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Concurrent money movements through the real DAOs, each thread with services on a connection of its own
+ * the way the API server's workers have them: every movement reads the account, then writes the balance
+ * it computed. No movement may be lost; one that raced another is rejected and retried, as an API client
+ * would on a 409, and one that fails is rolled back without taking other threads' movements with it.
+ *
+ * @author juanf
+ */
+public class ConcurrentMovementTest {
+
+    private static final int THREADS = 8;
+    private static final int MOVEMENTS_PER_THREAD = 50;
+
+    private static final String COUNTER_UPDATE = "UPDATE savings_accounts SET withdrawal_counter";
+
+    private TestDatabase database;
+    private CheckingAccountService checkingService;
+    private SavingsAccountService savingsService;
+    private int clientId;
+    private final List<Connection> workerConnections = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        ClientAccountDAO clientAccountDAO = new ClientAccountDAO(database.getConnection());
+        checkingService = new CheckingAccountService(new CheckingAccountDAO(database.getConnection()), clientAccountDAO);
+        savingsService = new SavingsAccountService(new SavingsAccountDAO(database.getConnection()), clientAccountDAO);
+        clientId = new PersonalClientService(new PersonalClientDAO(database.getConnection()), clientAccountDAO)
+                .create(new PersonalClient(0, "Busy Client", "1 Main St", "5551234567", "123456789", 720, 60_000.00,
+                        5_000.00));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Connection connection : workerConnections) {
+            connection.close();
+        }
+        database.close();
+    }
+
+    @Test
+    public void testConcurrentDeposits_NoneLost() throws Exception {
+        Integer accountId = checkingService.create(new CheckingAccount(clientId, 0, 100.00, "Checking", 25.00, 500.00),
+                clientId);
+        assertNotNull(accountId);
+
+        int rejected = runConcurrently(thread -> {
+            CheckingAccountService service = new CheckingAccountService(new CheckingAccountDAO(workerConnection()),
+                    new ClientAccountDAO(workerConnection()));
+            return () -> service.tryDeposit(service.getById(accountId).orElseThrow(), 1.00);
+        });
+
+        double expected = 100.00 + THREADS * MOVEMENTS_PER_THREAD;
+        assertEquals(expected, checkingService.getById(accountId).orElseThrow().getBalance(), 0.001,
+                rejected + " deposits were rejected and retried");
+    }
+
+    @Test
+    public void testConcurrentWithdrawals_BalanceAndCounterAgree() throws Exception {
+        Integer accountId = savingsService.create(new SavingsAccount(clientId, 0, 1_000.00, "Savings", 2.5, 1_000),
+                clientId);
+        assertNotNull(accountId);
+
+        runConcurrently(thread -> {
+            SavingsAccountService service = savingsService(workerConnection());
+            return () -> service.tryWithdraw(service.getById(accountId).orElseThrow(), 1.00);
+        });
+
+        SavingsAccount stored = savingsService.getById(accountId).orElseThrow();
+        assertEquals(1_000.00 - THREADS * MOVEMENTS_PER_THREAD, stored.getBalance(), 0.001);
+        assertEquals(THREADS * MOVEMENTS_PER_THREAD, stored.getWithdrawalCounter());
+    }
+
+    @Test
+    public void testFailingWithdrawals_RolledBackWithoutLosingOthers() throws Exception {
+        Integer accountId = savingsService.create(new SavingsAccount(clientId, 0, 1_000.00, "Savings", 2.5, 1_000),
+                clientId);
+        assertNotNull(accountId);
+
+        // The first thread's counter update always fails, after its balance update already ran
+        Connection failing = workerConnection();
+        Connection failingProxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && ((String) args[0]).startsWith(COUNTER_UPDATE)) {
+                        throw new SQLException("counter update failed");
+                    }
+                    try {
+                        return method.invoke(failing, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        AtomicInteger failed = new AtomicInteger();
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                SavingsAccountService service = savingsService(failingProxy);
+                return () -> {
+                    TransactionResult result = service.tryWithdraw(service.getById(accountId).orElseThrow(), 1.00);
+                    if (result == TransactionResult.REJECTED) {
+                        return result;
+                    }
+                    assertEquals(TransactionResult.DB_ERROR, result);
+                    failed.incrementAndGet();
+                    return TransactionResult.OK;
+                };
+            }
+            SavingsAccountService service = savingsService(workerConnection());
+            return () -> service.tryWithdraw(service.getById(accountId).orElseThrow(), 1.00);
+        });
+
+        int applied = (THREADS - 1) * MOVEMENTS_PER_THREAD;
+        SavingsAccount stored = savingsService.getById(accountId).orElseThrow();
+        assertEquals(MOVEMENTS_PER_THREAD, failed.get());
+        assertEquals(1_000.00 - applied, stored.getBalance(), 0.001);
+        assertEquals(applied, stored.getWithdrawalCounter());
+        assertTrue(failing.getAutoCommit());
+    }
+
+    // Each thread's connection, closed after the test
+    private Connection workerConnection() throws SQLException {
+        Connection connection = database.openConnection();
+        synchronized (workerConnections) {
+            workerConnections.add(connection);
+        }
+        return connection;
+    }
+
+    private static SavingsAccountService savingsService(Connection connection) {
+        return new SavingsAccountService(new SavingsAccountDAO(connection), new ClientAccountDAO(connection));
+    }
+
+    private interface Movement {
+        TransactionResult run();
+    }
+
+    private interface WorkerFactory {
+        // The movement one thread runs, with services it does not share with the others
+        Movement create(int thread) throws SQLException;
+    }
+
+    // Runs each thread's movement MOVEMENTS_PER_THREAD times, retrying rejections; returns how many were rejected
+    private static int runConcurrently(WorkerFactory workerFactory) throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Movement movement = workerFactory.create(t);
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < MOVEMENTS_PER_THREAD; i++) {
+                        TransactionResult result;
+                        while ((result = movement.run()) == TransactionResult.REJECTED) {
+                            rejected.incrementAndGet();
+                        }
+                        assertEquals(TransactionResult.OK, result);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return rejected.get();
+    }
+}
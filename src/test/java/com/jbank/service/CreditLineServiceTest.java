@@ -1,6 +1,8 @@
 package com.jbank.service;
 
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -10,16 +12,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.jbank.ledger.LedgerEngine;
 import com.jbank.model.CreditLine;
+import com.jbank.model.TransactionResult;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.DAO.CreditLineDAO;
 import com.jbank.repository.entities.CreditLineEntity;
@@ -243,12 +249,25 @@ public class CreditLineServiceTest {
     @Test
     public void testChargeCredit_ValidAmount_UpdatesBalance() throws Exception {
         CreditLine creditLine = new CreditLine(testClientId, testAccountId, 0.0, "My Credit Line", 5000.00, 15.0, 2.0);
-        when(creditLineDAO.updateByID(any())).thenReturn(new CreditLineEntity(testAccountId, testClientId, 1000.0, 5000.00, 15.0, 0.02, "My Credit Line"));
+        when(creditLineDAO.updateBalance(testAccountId, 0.0, 1000.0, null)).thenReturn(true);
 
         boolean result = service.chargeCredit(creditLine, 1000.0);
 
         assertTrue(result);
-        verify(creditLineDAO).updateByID(any(CreditLineEntity.class));
+        verify(creditLineDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testChargeCredit_WithLedgerEngine_RoutesChargeInCents() throws Exception {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        service.setLedgerEngine(ledgerEngine);
+        CreditLine creditLine = new CreditLine(testClientId, testAccountId, 0.0, "My Credit Line", 5000.00, 15.0, 2.0);
+        when(ledgerEngine.charge(testAccountId, 100_050)).thenReturn(CompletableFuture.completedFuture(true));
+
+        boolean result = service.chargeCredit(creditLine, 1000.50);
+
+        assertTrue(result);
+        verify(creditLineDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
@@ -258,7 +277,8 @@ public class CreditLineServiceTest {
         boolean result = service.chargeCredit(creditLine, 6000.0);
 
         assertFalse(result);
-        verify(creditLineDAO, never()).updateByID(any());
+        verify(creditLineDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
+        assertEquals(TransactionResult.CREDIT_LIMIT_EXCEEDED, service.tryChargeCredit(creditLine, 6000.0));
     }
 
     @Test
@@ -268,18 +288,18 @@ public class CreditLineServiceTest {
         boolean result = service.chargeCredit(creditLine, -1000.0);
 
         assertFalse(result);
-        verify(creditLineDAO, never()).updateByID(any());
+        verify(creditLineDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
     public void testMakePayment_ValidAmount_UpdatesBalance() throws Exception {
         CreditLine creditLine = new CreditLine(testClientId, testAccountId, 2000.0, "My Credit Line", 5000.00, 15.0, 2.0);
-        when(creditLineDAO.updateByID(any())).thenReturn(new CreditLineEntity(testAccountId, testClientId, 1000.0, 5000.00, 15.0, 2.0, "My Credit Line"));
+        when(creditLineDAO.updateBalance(testAccountId, 2000.0, 1000.0, null)).thenReturn(true);
 
         boolean result = service.makePayment(creditLine, 1000.0);
 
         assertTrue(result);
-        verify(creditLineDAO).updateByID(any(CreditLineEntity.class));
+        verify(creditLineDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
@@ -289,7 +309,7 @@ public class CreditLineServiceTest {
         boolean result = service.makePayment(creditLine, -1000.0);
 
         assertFalse(result);
-        verify(creditLineDAO, never()).updateByID(any());
+        verify(creditLineDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), any());
     }
 
     @Test
@@ -305,13 +325,44 @@ public class CreditLineServiceTest {
     @Test
     public void testIncreaseCreditLimit_IncreasesByTenPercent() throws Exception {
         CreditLine creditLine = new CreditLine(testClientId, testAccountId, 1000.0, "My Credit Line", 5000.00, 15.0, 2.0);
-        when(creditLineDAO.updateByID(any())).thenReturn(new CreditLineEntity(testAccountId, testClientId, 1000.0, 5500.00, 15.0, 0.02, "My Credit Line"));
+        when(creditLineDAO.updateTerms(any())).thenReturn(true);
 
         boolean result = service.increaseCreditLimit(creditLine);
 
         assertTrue(result);
         assertEquals(5500.00, creditLine.getCreditLimit());
-        verify(creditLineDAO).updateByID(any(CreditLineEntity.class));
+        verify(creditLineDAO).updateTerms(any(CreditLineEntity.class));
+        verify(creditLineDAO, never()).updateByID(any());
+    }
+
+    @Test
+    public void testIncreaseCreditLimit_WithLedgerEngine_SendsLimitInCents() throws Exception {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        service.setLedgerEngine(ledgerEngine);
+        CreditLine creditLine = new CreditLine(testClientId, testAccountId, 1000.0, "My Credit Line", 5000.00, 15.0, 2.0);
+        when(creditLineDAO.updateTerms(any())).thenReturn(true);
+        when(ledgerEngine.setCreditLimit(testAccountId, 550_000)).thenReturn(CompletableFuture.completedFuture(true));
+
+        boolean result = service.increaseCreditLimit(creditLine);
+
+        assertTrue(result);
+        verify(ledgerEngine).setCreditLimit(testAccountId, 550_000);
+    }
+
+    @Test
+    public void testUpdate_WithLedgerEngine_KeepsEngineBalance() throws Exception {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        service.setLedgerEngine(ledgerEngine);
+        CreditLine stale = new CreditLine(testClientId, testAccountId, 100.0, "My Credit Line", 6000.00, 15.0, 2.0);
+        when(creditLineDAO.updateTerms(any())).thenReturn(true);
+        when(ledgerEngine.setCreditLimit(testAccountId, 600_000)).thenReturn(CompletableFuture.completedFuture(true));
+        when(ledgerEngine.getBalanceCents(testAccountId)).thenReturn(OptionalLong.of(250_000));
+
+        CreditLine result = service.update(testAccountId, stale);
+
+        assertEquals(2500.00, result.getBalance());
+        assertEquals(6000.00, result.getCreditLimit());
+        verify(creditLineDAO, never()).updateByID(any());
     }
 
     // ===== Model to Entity Conversion Tests =====
@@ -0,0 +1,112 @@
+package com.jbank.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.model.CheckingAccount;
+import com.jbank.model.CreditLine;
+import com.jbank.model.PersonalClient;
+import com.jbank.model.SavingsAccount;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.ClientAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.util.QueryCounter;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Query budgets for hot operations, run through the real DAOs against an in-memory database. The budgets
+ * are the current counts: a change that adds statements (an N+1 loop, a redundant read) fails here and
+ * must either be fixed or raise the budget on purpose.
+ *
+ * @author juanf
+ */
+public class QueryBudgetTest {
+
+    private TestDatabase database;
+    private QueryCounter counter;
+    private ClientAccountDAO clientAccountDAO;
+    private PersonalClientService clientService;
+    private CheckingAccountService checkingService;
+    private SavingsAccountService savingsService;
+    private CreditLineService creditLineService;
+
+    private int clientId;
+    private int checkingId;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = new TestDatabase();
+        counter = new QueryCounter(database.getConnection());
+        clientAccountDAO = new ClientAccountDAO(counter.getConnection());
+        clientService = new PersonalClientService(new PersonalClientDAO(counter.getConnection()), clientAccountDAO);
+        checkingService = new CheckingAccountService(new CheckingAccountDAO(counter.getConnection()), clientAccountDAO);
+        savingsService = new SavingsAccountService(new SavingsAccountDAO(counter.getConnection()), clientAccountDAO);
+        creditLineService = new CreditLineService(new CreditLineDAO(counter.getConnection()), clientAccountDAO);
+
+        clientId = clientService.create(new PersonalClient(0, "Budget Client", "1 Main St", "5551234567",
+                "123456789", 720, 60_000.00, 5_000.00));
+        checkingId = checkingService.create(new CheckingAccount(clientId, 0, 500.00, "Checking", 25.00, 500.00),
+                clientId);
+        assertNotNull(savingsService.create(new SavingsAccount(clientId, 0, 1_000.00, "Savings", 2.5, 6), clientId));
+        assertNotNull(creditLineService.create(new CreditLine(clientId, 0, 0.0, "Credit", 5_000.00, 18.0, 2.0),
+                clientId));
+        counter.reset();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    public void testLoginByTaxID_SingleQuery() {
+        assertTrue(clientService.getByTaxID("123-45-6789").isPresent());
+
+        counter.assertQueries(1);
+        counter.assertRows(1);
+    }
+
+    @Test
+    public void testDeposit_WithinBudget() {
+        CheckingAccount account = checkingService.getById(checkingId).orElseThrow();
+        counter.reset();
+
+        assertTrue(checkingService.deposit(account, 50.00));
+
+        // Balance update plus a rewrite of the unchanged overdraft settings
+        counter.assertQueries(2);
+        counter.assertRoundTrips(2);
+    }
+
+    @Test
+    public void testViewAllAccounts_WithinBudget() {
+        // The lookups AccountController.viewAllAccounts makes: each account is tried as checking, then savings,
+        // then credit line
+        Map<Integer, String> owned = clientService.getClientAccounts(clientId);
+        int found = 0;
+        for (int accountId : owned.keySet()) {
+            Optional<?> account = checkingService.getById(accountId);
+            if (account.isEmpty()) {
+                account = savingsService.getById(accountId);
+            }
+            if (account.isEmpty()) {
+                account = creditLineService.getById(accountId);
+            }
+            found += account.isPresent() ? 1 : 0;
+        }
+
+        assertEquals(3, found);
+        // 1 ownership query + 1 + 2 + 3 typed lookups: grows with every account a client opens
+        counter.assertQueries(7);
+        counter.assertRows(6);
+    }
+}
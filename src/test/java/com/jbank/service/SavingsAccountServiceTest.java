@@ -1,6 +1,9 @@
 package com.jbank.service;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -10,16 +13,26 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.jbank.journal.JournalOpType;
+import com.jbank.journal.WriteAheadJournal;
 import com.jbank.model.SavingsAccount;
+import com.jbank.model.TransactionResult;
 import com.jbank.repository.DAO.ClientAccountDAO;
 import com.jbank.repository.DAO.SavingsAccountDAO;
 import com.jbank.repository.entities.SavingsAccountEntity;
@@ -236,13 +249,75 @@ public class SavingsAccountServiceTest {
     @Test
     public void testDeposit_ValidAmount_UpdatesBalance() throws Exception {
         SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
-        when(savingsAccountDAO.updateByID(any())).thenReturn(new SavingsAccountEntity(testAccountId, testClientId, 1500.00, 3.0, 500, 0, "My Savings"));
+        when(savingsAccountDAO.updateBalance(testAccountId, 1000.00, 1500.00, 0, null)).thenReturn(true);
 
         boolean result = service.deposit(account, 500.00);
 
         assertTrue(result);
         assertEquals(1500.00, account.getBalance());
-        verify(savingsAccountDAO).updateByID(any(SavingsAccountEntity.class));
+        verify(savingsAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
+    }
+
+    @Test
+    public void testDeposit_WithJournal_RecordsMovementBeforeWriteAndCommitAfter() throws Exception {
+        WriteAheadJournal journal = mock(WriteAheadJournal.class);
+        service.setJournal(journal);
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
+        when(savingsAccountDAO.updateBalance(eq(testAccountId), eq(1000.00), eq(1500.25), eq(0), any())).thenReturn(true);
+
+        boolean result = service.deposit(account, 500.25);
+
+        assertTrue(result);
+        ArgumentCaptor<UUID> key = ArgumentCaptor.forClass(UUID.class);
+        InOrder order = inOrder(journal, savingsAccountDAO);
+        order.verify(journal).append(eq(testAccountId), eq(JournalOpType.DEPOSIT), eq(50_025L), key.capture());
+        // The write stores the journal record's key with the balance
+        order.verify(savingsAccountDAO).updateBalance(testAccountId, 1000.00, 1500.25, 0, key.getValue());
+        order.verify(journal).append(testAccountId, JournalOpType.COMMIT, 0, key.getValue());
+    }
+
+    @Test
+    public void testDeposit_WithJournal_RejectedWriteIsAborted() throws Exception {
+        WriteAheadJournal journal = mock(WriteAheadJournal.class);
+        service.setJournal(journal);
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
+        when(savingsAccountDAO.updateBalance(eq(testAccountId), eq(1000.00), eq(1500.00), eq(0), any())).thenReturn(false);
+
+        assertEquals(TransactionResult.REJECTED, service.tryDeposit(account, 500.00));
+
+        ArgumentCaptor<UUID> key = ArgumentCaptor.forClass(UUID.class);
+        verify(journal).append(eq(testAccountId), eq(JournalOpType.DEPOSIT), eq(50_000L), key.capture());
+        verify(journal).append(testAccountId, JournalOpType.ABORT, 0, key.getValue());
+        verify(journal, never()).append(anyInt(), eq(JournalOpType.COMMIT), anyLong(), any());
+    }
+
+    @Test
+    public void testDeposit_WithJournal_FailedWriteGetsNoMarker() throws Exception {
+        WriteAheadJournal journal = mock(WriteAheadJournal.class);
+        service.setJournal(journal);
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
+        when(savingsAccountDAO.updateBalance(eq(testAccountId), eq(1000.00), eq(1500.00), eq(0), any()))
+                .thenThrow(new SQLException("connection reset"));
+
+        assertEquals(TransactionResult.DB_ERROR, service.tryDeposit(account, 500.00));
+
+        // Whether the commit happened is unknown, so movement_keys decides on recovery
+        verify(journal).append(eq(testAccountId), eq(JournalOpType.DEPOSIT), eq(50_000L), any());
+        verify(journal, never()).append(anyInt(), eq(JournalOpType.COMMIT), anyLong(), any());
+        verify(journal, never()).append(anyInt(), eq(JournalOpType.ABORT), anyLong(), any());
+    }
+
+    @Test
+    public void testDeposit_JournalFailure_SkipsDatabaseWrite() throws Exception {
+        WriteAheadJournal journal = mock(WriteAheadJournal.class);
+        service.setJournal(journal);
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
+        when(journal.append(anyInt(), any(), anyLong(), any())).thenThrow(new IOException("disk full"));
+
+        boolean result = service.deposit(account, 500.00);
+
+        assertFalse(result);
+        verify(savingsAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
     }
 
     @Test
@@ -253,19 +328,19 @@ public class SavingsAccountServiceTest {
 
         assertFalse(result);
         assertEquals(1000.00, account.getBalance()); // Balance unchanged
-        verify(savingsAccountDAO, never()).updateByID(any());
+        verify(savingsAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
     }
 
     @Test
     public void testWithdraw_ValidAmount_UpdatesBalance() throws Exception {
         SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
-        when(savingsAccountDAO.updateByID(any())).thenReturn(new SavingsAccountEntity(testAccountId, testClientId, 500.00, 3.0, 500, 0, "My Savings"));
+        when(savingsAccountDAO.updateBalance(testAccountId, 1000.00, 500.00, 1, null)).thenReturn(true);
 
         boolean result = service.withdraw(account, 500.00);
 
         assertTrue(result);
         assertEquals(500.00, account.getBalance());
-        verify(savingsAccountDAO).updateByID(any(SavingsAccountEntity.class));
+        verify(savingsAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
     }
 
     @Test
@@ -276,7 +351,18 @@ public class SavingsAccountServiceTest {
 
         assertFalse(result);
         assertEquals(1000.00, account.getBalance()); // Balance unchanged
-        verify(savingsAccountDAO, never()).updateByID(any());
+        verify(savingsAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
+    }
+
+    @Test
+    public void testTryWithdraw_LimitReached_ReportsReason() throws Exception {
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 2, 2);
+
+        TransactionResult result = service.tryWithdraw(account, 100.00);
+
+        assertEquals(TransactionResult.WITHDRAWAL_LIMIT_REACHED, result);
+        assertEquals(1000.00, account.getBalance());
+        verify(savingsAccountDAO, never()).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
     }
 
     // ===== Interest Rate Tests =====
@@ -285,18 +371,19 @@ public class SavingsAccountServiceTest {
     public void testApplyInterest_ValidRate_UpdatesBalance() throws Exception {
         SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
         // 1000 * (3.0 / 100) = 30
-        when(savingsAccountDAO.updateByID(any())).thenReturn(new SavingsAccountEntity(testAccountId, testClientId, 1030.00, 3.0, 500, 0, "My Savings"));
+        when(savingsAccountDAO.updateBalance(testAccountId, 1000.00, 1030.00, 0, null)).thenReturn(true);
 
         boolean result = service.applyInterest(account);
 
         assertTrue(result);
         assertEquals(1030.00, account.getBalance());
-        verify(savingsAccountDAO).updateByID(any(SavingsAccountEntity.class));
+        verify(savingsAccountDAO).updateBalance(anyInt(), anyDouble(), anyDouble(), anyInt(), any());
     }
 
     @Test
     public void testApplyInterest_ZeroRate_BalanceUnchanged() throws Exception {
         SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 0.0, 500);
+        when(savingsAccountDAO.updateBalance(testAccountId, 1000.00, 1000.00, 0, null)).thenReturn(true);
 
         boolean result = service.applyInterest(account);
 
@@ -304,6 +391,14 @@ public class SavingsAccountServiceTest {
         assertEquals(1000.00, account.getBalance());
     }
 
+    @Test
+    public void testApplyInterest_BalanceChangedConcurrently_ReturnsFalse() throws Exception {
+        SavingsAccount account = new SavingsAccount(testClientId, testAccountId, 1000.00, "My Savings", 3.0, 500);
+        when(savingsAccountDAO.updateBalance(testAccountId, 1000.00, 1030.00, 0, null)).thenReturn(false);
+
+        assertFalse(service.applyInterest(account));
+    }
+
     // ===== Model to Entity Conversion Tests =====
 
     @Test
@@ -0,0 +1,178 @@
+package com.jbank.shard;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jbank.analytics.GroupTotal;
+import com.jbank.id.HiLoIdAllocator;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for the sharding layer over three separate in-memory databases, each striped as its shard.
+ *
+ * @author juanf
+ */
+public class ShardedRepositoryTest {
+    private static final int SHARDS = 3;
+
+    private final List<TestDatabase> databases = new ArrayList<>();
+    private ShardRouter router;
+    private ShardedRepository repository;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        List<ShardPool> pools = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            TestDatabase database = new TestDatabase();
+            ShardIds.stripe(database.getConnection(), shard, SHARDS);
+            databases.add(database);
+            pools.add(new ShardPool("shard" + shard, database::openConnection, 2, 1000));
+        }
+        router = new ShardRouter(pools);
+        repository = new ShardedRepository(router);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        router.close();
+        for (TestDatabase database : databases) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void testClients_SpreadAcrossShardsAndFoundByID() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(createClient(i));
+        }
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(2, count(shard, "clients"));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            assertEquals(i % SHARDS, router.shardOf(id));
+            assertEquals("Client " + i, repository.getPersonalClient(id).orElseThrow().getName());
+        }
+        assertEquals(6, repository.getAllPersonalClients().size());
+    }
+
+    @Test
+    public void testAccounts_CreatedOnOwnersShard() throws Exception {
+        int owner = createClient(0);
+        createClient(1);
+        int shard = router.shardOf(owner);
+
+        int accountId = repository.createCheckingAccount(new CheckingAccountEntity(0, owner, 100.0, 35.0, 0.0, "Main"), owner);
+
+        assertEquals(shard, router.shardOf(accountId));
+        for (int other = 0; other < SHARDS; other++) {
+            assertEquals(other == shard ? 1 : 0, count(other, "accounts"));
+        }
+        assertEquals(Map.of(accountId, "PRIMARY"), repository.getAccountsByClient(owner));
+        assertEquals(100.0, repository.getCheckingAccount(accountId).orElseThrow().getBalance(), 0.001);
+    }
+
+    @Test
+    public void testJointOwnerOnAnotherShard_ListedBothWaysAndRemoved() throws Exception {
+        int owner = createClient(0);
+        int joint = createClient(1);
+        int accountId = repository.createSavingsAccount(new SavingsAccountEntity(0, owner, 50.0, 1.5, 6, 0, "Rainy day"), owner);
+
+        assertTrue(repository.addJointOwner(joint, accountId));
+
+        assertEquals(Map.of(owner, "PRIMARY", joint, "JOINT"), repository.getClientsByAccount(accountId));
+        assertEquals(Map.of(accountId, "JOINT"), repository.getAccountsByClient(joint));
+
+        assertTrue(repository.removeOwner(joint, accountId));
+        assertEquals(Map.of(owner, "PRIMARY"), repository.getClientsByAccount(accountId));
+        assertTrue(repository.getAccountsByClient(joint).isEmpty());
+    }
+
+    @Test
+    public void testJointOwner_UnknownAccountRefused() throws Exception {
+        createClient(0);
+        int joint = createClient(1);
+
+        assertFalse(repository.addJointOwner(joint, 3 * 100));
+        assertTrue(repository.getAccountsByClient(joint).isEmpty());
+    }
+
+    @Test
+    public void testScatter_GathersAccountsAndBalancesFromEveryShard() throws Exception {
+        for (int i = 0; i < SHARDS; i++) {
+            int owner = createClient(i);
+            repository.createCheckingAccount(new CheckingAccountEntity(0, owner, 100.25, 35.0, 0.0, "Main"), owner);
+            repository.createCreditLine(new CreditLineEntity(0, owner, 0.0, 1000.0, 18.0, 2.0, "Card"), owner);
+        }
+
+        assertEquals(SHARDS, repository.getAllCheckingAccounts().size());
+        assertEquals(SHARDS, repository.getAllCreditLines().size());
+
+        List<GroupTotal> totals = repository.balancesByAccountType();
+        assertEquals(2, totals.size());
+        assertEquals("CHECKING", totals.get(0).getGroup());
+        assertEquals(SHARDS, totals.get(0).getAccounts());
+        assertEquals(new BigDecimal("300.75"), totals.get(0).getBalance());
+        assertEquals("CREDIT_LINE", totals.get(1).getGroup());
+        assertEquals(new BigDecimal("3000.00"), totals.get(1).getCreditLimit());
+    }
+
+    @Test
+    public void testIdBlocks_StayInShardStripe() throws Exception {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            HiLoIdAllocator.configure(databases.get(shard).getConnection(), 10, shard, SHARDS);
+        }
+        repository.setIdBlockSize(10);
+
+        for (int i = 0; i < 6; i++) {
+            int owner = createClient(i);
+            assertEquals(i % SHARDS, router.shardOf(owner));
+            int accountId = repository.createSavingsAccount(new SavingsAccountEntity(0, owner, 5.0, 1.0, 6, 0, "Jar"), owner);
+            assertEquals(router.shardOf(owner), router.shardOf(accountId));
+        }
+        assertEquals(6, repository.getAllSavingsAccounts().size());
+    }
+
+    @Test
+    public void testPool_TimesOutWhenExhausted() throws Exception {
+        try (ShardPool pool = new ShardPool("small", databases.get(0)::openConnection, 1, 50)) {
+            Connection held = pool.borrow();
+            assertThrows(SQLException.class, pool::borrow);
+            pool.release(held);
+            pool.release(pool.borrow());
+        }
+    }
+
+    private int createClient(int index) throws SQLException {
+        return repository.createPersonalClient(new PersonalClientEntity(0, "555-010" + index, index + " Main St",
+                "Client " + index, "123-45-67" + (10 + index), 700, 50000.0, 1000.0));
+    }
+
+    private int count(int shard, String table) throws SQLException {
+        try (PreparedStatement stmt = databases.get(shard).getConnection().prepareStatement("SELECT COUNT(*) FROM " + table);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
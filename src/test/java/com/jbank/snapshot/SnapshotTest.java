@@ -0,0 +1,229 @@
+package com.jbank.snapshot;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.jbank.cache.CachedEntity;
+import com.jbank.cache.EntityCache;
+import com.jbank.ledger.LedgerSnapshot;
+import com.jbank.ledger.LedgerStore;
+import com.jbank.repository.DAO.BusinessClientDAO;
+import com.jbank.repository.DAO.CheckingAccountDAO;
+import com.jbank.repository.DAO.CreditLineDAO;
+import com.jbank.repository.DAO.PersonalClientDAO;
+import com.jbank.repository.DAO.SavingsAccountDAO;
+import com.jbank.repository.entities.BusinessClientEntity;
+import com.jbank.repository.entities.CheckingAccountEntity;
+import com.jbank.repository.entities.CreditLineEntity;
+import com.jbank.repository.entities.PersonalClientEntity;
+import com.jbank.repository.entities.SavingsAccountEntity;
+import com.jbank.util.TestDatabase;
+
+/**
+ * Tests for snapshot dump and restore against in-memory databases - round trip of every table, sequence
+ * reset, corruption checks and warming the ledger and the entity caches from a snapshot
+ *
+ * @author juanf
+ */
+public class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private TestDatabase source;
+    private TestDatabase target;
+    private Path snapshot;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        source = new TestDatabase();
+        target = new TestDatabase();
+        snapshot = directory.resolve("bank.snap");
+        try (Statement statement = source.getConnection().createStatement()) {
+            statement.execute("INSERT INTO clients (customer_id, client_type, phone_number, address, name) VALUES "
+                    + "(1, 'PERSONAL', '555-0101', 'Calle Mayor 1\\tBajo', 'José Núñez'), "
+                    + "(2, 'BUSINESS', '555-0102', '9 Dock Rd', 'Harbor \\\\ Supply'), "
+                    + "(40, 'BUSINESS', '555-0140', '2 Mill Ln', 'Mill Works')");
+            statement.execute("INSERT INTO personal_clients VALUES (1, '123-45-6789', 720, 85000.00, 1200.50)");
+            statement.execute("INSERT INTO business_clients VALUES "
+                    + "(2, '12-3456789', 'LLC', 'Ann Lee', 'CFO', 250000.00, 1200000.00, -35000.25), "
+                    + "(40, '98-7654321', 'LLC', 'Bo Chan', 'Owner', 10.00, 20.00, 0.00)");
+            statement.execute("INSERT INTO accounts (account_id, account_type, account_name, balance) VALUES "
+                    + "(10, 'CHECKING', 'Everyday', -120.75), (11, 'SAVINGS', 'Rainy Day', 30000.10), "
+                    + "(12, 'CREDIT_LINE', 'Card', 250.00), (300, 'CREDIT_LINE', 'Fleet', 0.05)");
+            statement.execute("INSERT INTO checking_accounts VALUES (10, 35.00, 500.00)");
+            statement.execute("INSERT INTO savings_accounts VALUES (11, 1.50, 6, 2)");
+            statement.execute("INSERT INTO credit_lines VALUES (12, 5000.00, 18.00, 2.00), (300, 90000.00, 12.50, 3.00)");
+            statement.execute("INSERT INTO client_accounts VALUES (1, 10, 'PRIMARY'), (1, 11, 'PRIMARY'), "
+                    + "(2, 11, 'JOINT'), (2, 12, 'PRIMARY'), (40, 300, 'PRIMARY')");
+            statement.execute("INSERT INTO ledger_checkpoints (ledger_name, last_sequence) VALUES ('credit', 912)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void testDumpAndRestore_RoundTripsEveryTable() throws Exception {
+        List<SnapshotSection> sections = new SnapshotWriter(source.getConnection()).write(snapshot);
+        assertEquals(SnapshotTable.values().length, sections.size());
+        assertFalse(Files.exists(directory.resolve("bank.snap.part")));
+
+        long rows = new SnapshotRestorer(target::openConnection, 3).restore(snapshot);
+
+        assertEquals(20, rows);
+        for (SnapshotTable table : SnapshotTable.values()) {
+            assertEquals(dump(source.getConnection(), table), dump(target.getConnection(), table), table.getTableName());
+        }
+        // New rows get keys after the restored ones
+        try (Statement statement = target.getConnection().createStatement()) {
+            statement.execute("INSERT INTO accounts (account_type, account_name, balance) VALUES ('SAVINGS', 'New', 0)");
+            try (ResultSet rs = statement.executeQuery("SELECT MAX(account_id) FROM accounts")) {
+                rs.next();
+                assertEquals(301, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testRestore_RefusesNonEmptyDatabase() throws Exception {
+        new SnapshotWriter(source.getConnection()).write(snapshot);
+
+        assertThrows(IllegalStateException.class,
+                () -> new SnapshotRestorer(source::openConnection, 2).restore(snapshot));
+    }
+
+    @Test
+    public void testCorruptSnapshot_Rejected() throws Exception {
+        new SnapshotWriter(source.getConnection()).write(snapshot);
+        long size = Files.size(snapshot);
+
+        // A flipped byte in the clients section fails its checksum and rolls the table back
+        Path corrupt = directory.resolve("corrupt.snap");
+        Files.copy(snapshot, corrupt);
+        try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(1);
+            channel.read(bytes, 40);
+            bytes.put(0, (byte) (bytes.get(0) ^ 0x20)).rewind();
+            channel.write(bytes, 40);
+        }
+        assertThrows(IOException.class, () -> new SnapshotRestorer(target::openConnection, 2).restore(corrupt));
+        assertEquals("", dump(target.getConnection(), SnapshotTable.CLIENTS));
+
+        // A file cut short has no trailer
+        Path truncated = directory.resolve("truncated.snap");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(snapshot), (int) size - 5));
+        assertThrows(IOException.class, () -> SnapshotReader.open(truncated));
+    }
+
+    @Test
+    public void testLedgerSnapshot_WarmsEngineOnce() throws Exception {
+        new SnapshotWriter(source.getConnection()).write(snapshot);
+        LedgerStore database = mock(LedgerStore.class);
+        LedgerSnapshot fromDatabase = new LedgerSnapshot(new int[0], new long[0], new long[0], 0);
+        when(database.load()).thenReturn(fromDatabase);
+        SnapshotLedgerStore store = new SnapshotLedgerStore(snapshot, "credit", database);
+
+        LedgerSnapshot state = store.load();
+
+        assertArrayEquals(new int[] { 12, 300 }, state.getAccountIds());
+        assertArrayEquals(new long[] { 25000, 5 }, state.getBalanceCents());
+        assertArrayEquals(new long[] { 500000, 9000000 }, state.getCreditLimitCents());
+        assertEquals(912, state.getLastSequence());
+        // Later loads come from the database, which may have moved on since the snapshot
+        assertSame(fromDatabase, store.load());
+    }
+
+    @Test
+    public void testCacheWarmer_CachesWhatTheDaosRead() throws Exception {
+        new SnapshotWriter(source.getConnection()).write(snapshot);
+        Connection connection = source.getConnection();
+        EntityCache<PersonalClientEntity> personalClients = new EntityCache<>(CachedEntity.CLIENT, 10);
+        EntityCache<BusinessClientEntity> businessClients = new EntityCache<>(CachedEntity.CLIENT, 1);
+        EntityCache<CheckingAccountEntity> checkingAccounts = new EntityCache<>(CachedEntity.ACCOUNT, 10);
+        EntityCache<SavingsAccountEntity> savingsAccounts = new EntityCache<>(CachedEntity.ACCOUNT, 10);
+        EntityCache<CreditLineEntity> creditLines = new EntityCache<>(CachedEntity.ACCOUNT, 10);
+        // Already cached entries are kept
+        CreditLineEntity cachedCard = new CreditLineEntity(12, 0, 1.00, 2.00, 3.00, 4.00, "Cached");
+        creditLines.get(12, () -> Optional.of(cachedCard));
+        SnapshotCacheWarmer warmer = new SnapshotCacheWarmer(snapshot);
+        warmer.setPersonalClientCache(personalClients);
+        warmer.setBusinessClientCache(businessClients);
+        warmer.setCheckingAccountCache(checkingAccounts);
+        warmer.setSavingsAccountCache(savingsAccounts);
+        warmer.setCreditLineCache(creditLines);
+
+        assertEquals(5, warmer.warm());
+
+        assertSameFields(new PersonalClientDAO(connection).getByID(1), cached(personalClients, 1));
+        // The business cache only has room for the lowest ID
+        assertSameFields(new BusinessClientDAO(connection).getByID(2), cached(businessClients, 2));
+        assertEquals(1, businessClients.size());
+        assertSameFields(new CheckingAccountDAO(connection).getByID(10), cached(checkingAccounts, 10));
+        assertSameFields(new SavingsAccountDAO(connection).getByID(11), cached(savingsAccounts, 11));
+        assertSameFields(new CreditLineDAO(connection).getByID(300), cached(creditLines, 300));
+        assertSame(cachedCard, cached(creditLines, 12).orElseThrow());
+    }
+
+    // The cached entity, failing if it would have to be loaded
+    private static <V> Optional<V> cached(EntityCache<V> cache, int id) throws SQLException {
+        return cache.get(id, () -> fail("entity " + id + " was not cached"));
+    }
+
+    // Compares every getter of the two entities
+    private static void assertSameFields(Optional<?> expected, Optional<?> actual) throws Exception {
+        assertTrue(expected.isPresent() && actual.isPresent());
+        for (Method getter : expected.get().getClass().getMethods()) {
+            if (getter.getName().startsWith("get") && getter.getParameterCount() == 0
+                    && getter.getDeclaringClass() != Object.class) {
+                assertEquals(getter.invoke(expected.get()), getter.invoke(actual.get()), getter.getName());
+            }
+        }
+    }
+
+    // Every row of a table as text, in key order
+    private static String dump(Connection connection, SnapshotTable table) throws SQLException {
+        StringBuilder text = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(table.selectSql())) {
+            ResultSetMetaData columns = rs.getMetaData();
+            while (rs.next()) {
+                for (int i = 1; i <= columns.getColumnCount(); i++) {
+                    text.append(rs.getString(i)).append('|');
+                }
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.jbank.tracing;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.jbank.metrics.InstrumentedConnection;
+import com.jbank.metrics.Metrics;
+
+/**
+ * Unit tests for Tracer - span nesting through Metrics and the instrumented connection, sampling and
+ * the slow-trace output
+ *
+ * @author juanf
+ */
+public class TracerTest {
+
+    private static final String SQL = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    public void tearDown() {
+        Tracer.configure(0, 1_000, null);
+    }
+
+    @Test
+    public void testTrace_WritesNestedSpans() throws Exception {
+        Path file = tempDir.resolve("traces.jsonl");
+        Tracer.configure(1.0, 0, file);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+        Connection instrumented = InstrumentedConnection.wrap(connection);
+
+        try (Span root = Tracer.startTrace("AccountController.withdrawFromChecking")) {
+            assertTrue(root.isRecording());
+            try (Metrics.Sample service = Metrics.time("service.CheckingAccountService.withdraw")) {
+                try (Metrics.Sample dao = Metrics.time("dao.CheckingAccountDAO.updateByID")) {
+                    instrumented.prepareStatement(SQL).executeUpdate();
+                }
+                service.fail("INSUFFICIENT_FUNDS");
+            }
+        }
+
+        assertFalse(Tracer.isTracing());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size());
+        String json = lines.get(0);
+        assertTrue(json.contains("\"name\":\"AccountController.withdrawFromChecking\""));
+        assertTrue(json.contains("{\"id\":1,\"parent\":0,\"name\":\"AccountController.withdrawFromChecking\""));
+        assertTrue(json.contains("{\"id\":2,\"parent\":1,\"name\":\"service.CheckingAccountService.withdraw\""));
+        assertTrue(json.contains("{\"id\":3,\"parent\":2,\"name\":\"dao.CheckingAccountDAO.updateByID\""));
+        assertTrue(json.contains("{\"id\":4,\"parent\":3,\"name\":\"sql:" + SQL + "\""));
+        assertTrue(json.contains("\"outcome\":\"INSUFFICIENT_FUNDS\""));
+        assertTrue(json.contains("\"droppedSpans\":0"));
+    }
+
+    @Test
+    public void testTrace_FastTraceNotWritten() throws Exception {
+        Path file = tempDir.resolve("traces.jsonl");
+        Tracer.configure(1.0, 60_000, file);
+
+        try (Span root = Tracer.startTrace("PersonalClientController.loginViaTaxID");
+                Metrics.Sample sample = Metrics.time("service.PersonalClientService.getByTaxID")) {
+            assertTrue(Tracer.isTracing());
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testTrace_NestedActionBecomesChild() {
+        Tracer.configure(1.0, 60_000, null);
+
+        try (Span root = Tracer.startTrace("AccountController.makeCharge")) {
+            try (Span child = Tracer.startTrace("AccountController.handleCreditLineOperations")) {
+                assertSame(root, child.getParent());
+                assertSame(root.getTrace(), child.getTrace());
+            }
+            assertEquals(2, root.getTrace().getSpanCount());
+        }
+    }
+
+    @Test
+    public void testTrace_DisabledReturnsNoop() {
+        Tracer.configure(0, 0, null);
+
+        try (Span root = Tracer.startTrace("AccountController.viewAllAccounts")) {
+            assertSame(Span.NOOP, root);
+            assertFalse(Tracer.isTracing());
+            assertSame(Span.NOOP, Tracer.startSpan("service.CheckingAccountService.getById"));
+        }
+    }
+
+    @Test
+    public void testSpan_OutsideTraceReturnsNoop() {
+        Tracer.configure(1.0, 0, null);
+
+        assertSame(Span.NOOP, Tracer.startSpan("dao.ClientAccountDAO.getAccountsByClient"));
+    }
+
+    @Test
+    public void testConfigure_InvalidRateRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Tracer.configure(1.5, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> Tracer.configure(0.5, -1, null));
+    }
+}
@@ -0,0 +1,54 @@
+package com.jbank.util;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test helper that measures the heap bytes the current thread allocates while running a block, using
+ * the JVM's per-thread allocation counter. Blocks are run a number of times first so class loading and
+ * one-off initialization are not counted.
+ *
+ * @author juanf
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @FunctionalInterface
+    public interface Block {
+        void run() throws Exception;
+    }
+
+    private AllocationMeter() {
+    }
+
+    // Allocation counting is optional in the JVM, but on by default in HotSpot
+    public static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Runs the block warmups times, then measures it over iterations runs.
+     * @return Average bytes allocated per run
+     */
+    public static long measure(int warmups, int iterations, Block block) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            block.run();
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            block.run();
+        }
+        return (THREADS.getCurrentThreadAllocatedBytes() - before) / iterations;
+    }
+
+    // Fails if the block allocates more than maxBytes per run on average
+    public static void assertAllocatedAtMost(long maxBytes, Block block) throws Exception {
+        long allocated = measure(200, 1_000, block);
+        if (allocated > maxBytes) {
+            fail(String.format("Expected at most %d bytes allocated per run, but allocated %d", maxBytes, allocated));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.jbank.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test helper that wraps a JDBC connection and counts what an operation does with it: statements
+ * executed, database round trips (executions plus commits and rollbacks) and rows read or changed.
+ * Reset it before the operation, then check the counts with the assert methods, which list the
+ * executed SQL when the budget is exceeded.
+ *
+ * @author juanf
+ */
+public class QueryCounter {
+
+    private final Connection connection;
+    private final List<String> statements = new ArrayList<>();
+    private int roundTrips;
+    private long rows;
+
+    public QueryCounter(Connection target) {
+        this.connection = (Connection) Proxy.newProxyInstance(QueryCounter.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("commit") || name.equals("rollback")) {
+                        roundTrips++;
+                    }
+                    Object result = invoke(target, method, args);
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                    if (result instanceof PreparedStatement) {
+                        return wrapStatement((Statement) result, PreparedStatement.class, sql);
+                    }
+                    if (result instanceof Statement) {
+                        return wrapStatement((Statement) result, Statement.class, null);
+                    }
+                    return result;
+                });
+    }
+
+    // The counting connection, to hand to the DAOs under test
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public void reset() {
+        statements.clear();
+        roundTrips = 0;
+        rows = 0;
+    }
+
+    public int getQueries() {
+        return statements.size();
+    }
+
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+
+    // Fails if more statements ran since the last reset
+    public void assertQueries(int max) {
+        if (statements.size() > max) {
+            fail(String.format("Expected at most %d queries, but %d ran:%n%s", max, statements.size(),
+                    String.join(System.lineSeparator(), statements)));
+        }
+    }
+
+    public void assertRoundTrips(int max) {
+        if (roundTrips > max) {
+            fail(String.format("Expected at most %d round trips, but made %d. Statements:%n%s", max, roundTrips,
+                    String.join(System.lineSeparator(), statements)));
+        }
+    }
+
+    public void assertRows(long max) {
+        if (rows > max) {
+            fail(String.format("Expected at most %d rows, but %d were read or changed", max, rows));
+        }
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type, String preparedSql) {
+        return Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+                    String sql = args != null && args.length > 0 && args[0] instanceof String
+                            ? (String) args[0] : preparedSql;
+                    statements.add(sql);
+                    roundTrips++;
+                    Object result = invoke(statement, method, args);
+                    if (result instanceof Integer || result instanceof Long) {
+                        rows += Math.max(0, ((Number) result).longValue());
+                    } else if (result instanceof int[]) {
+                        for (int updated : (int[]) result) {
+                            rows += Math.max(0, updated);
+                        }
+                    } else if (result instanceof ResultSet) {
+                        return wrapResultSet((ResultSet) result);
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrapResultSet(ResultSet resultSet) {
+        return Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
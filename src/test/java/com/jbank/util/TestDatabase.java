@@ -0,0 +1,71 @@
+package com.jbank.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Private in-memory H2 database in PostgreSQL mode with the jbank schema, for tests that need the real
+ * DAOs. Each instance is a separate database that disappears when it is closed.
+ *
+ * @author juanf
+ */
+public class TestDatabase implements AutoCloseable {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String url;
+    private final Connection connection;
+
+    public TestDatabase() throws SQLException, IOException {
+        url = "jdbc:h2:mem:jbank" + NEXT_ID.incrementAndGet()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+        connection = DriverManager.getConnection(url, "jbank", "");
+        createSchema();
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    // Another connection to the same database, for code that opens its own; the caller closes it
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, "jbank", "");
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    private void createSchema() throws SQLException, IOException {
+        String schema;
+        try (InputStream input = TestDatabase.class.getClassLoader().getResourceAsStream("schema.sql")) {
+            if (input == null) {
+                throw new IOException("Unable to find schema.sql");
+            }
+            schema = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // Strip comments, and map the one type H2 spells differently
+        StringBuilder script = new StringBuilder();
+        for (String line : schema.split("\n")) {
+            int comment = line.indexOf("--");
+            script.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        String ddl = script.toString().replace("TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE");
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : ddl.split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+}